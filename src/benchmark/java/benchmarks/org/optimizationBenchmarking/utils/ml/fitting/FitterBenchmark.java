@@ -0,0 +1,87 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A benchmark for complete runs of the fitters, i.e., for creating and
+ * {@linkplain org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJob#call()
+ * calling} a fitting job on an example data set. The fitters are
+ * randomized, so the results of this benchmark are noisier than those of
+ * the others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class FitterBenchmark {
+
+  /** the fitter */
+  @Param({ "CMAESLS", //$NON-NLS-1$
+      "BIPOPCMAESLS", //$NON-NLS-1$
+      "DELS", //$NON-NLS-1$
+      "ESLS", //$NON-NLS-1$
+      "LSSimplex", //$NON-NLS-1$
+      "ParallelLSSimplex", //$NON-NLS-1$
+      "VarPro" })//$NON-NLS-1$
+  public String fitter;
+
+  /** the example data set */
+  @Param({ _Examples.DATASET_1, _Examples.DATASET_2, _Examples.DATASET_3,
+      _Examples.DATASET_4 })
+  public String dataset;
+
+  /** the fitter */
+  private IFunctionFitter m_fitter;
+  /** the example */
+  private FittingExampleDataset m_example;
+  /** the quality measure */
+  private WeightedRootMeanSquareError m_measure;
+
+  /** create */
+  public FitterBenchmark() {
+    super();
+  }
+
+  /** set up the benchmark */
+  @Setup
+  public void setup() {
+    this.m_fitter = _Examples._fitter(this.fitter);
+    this.m_example = _Examples._dataset(this.dataset);
+    this.m_measure = new WeightedRootMeanSquareError(this.m_example.data);
+  }
+
+  /**
+   * Fit the model of the example data set
+   *
+   * @return the result
+   * @throws Exception
+   *           if the fitting fails
+   */
+  @Benchmark
+  public IFittingResult call() throws Exception {
+    return this.m_fitter.use()//
+        .setFunctionToFit(this.m_example.model)//
+        .setPoints(this.m_example.data)//
+        .setQualityMeasure(this.m_measure)//
+        .create().call();
+  }
+}
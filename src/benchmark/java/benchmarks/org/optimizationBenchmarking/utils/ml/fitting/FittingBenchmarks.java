@@ -0,0 +1,212 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.optimizationBenchmarking.utils.error.ErrorUtils;
+
+/**
+ * <p>
+ * Run all benchmarks of this package and compare them to a baseline. All
+ * benchmarks measure the average time per operation, so a higher score
+ * is worse.
+ * </p>
+ * <p>
+ * The first argument is the path to the baseline file. Each result is
+ * compared to the baseline result of the same benchmark and parameters.
+ * If any result is slower than the baseline by more than the tolerance,
+ * i.e., the relative slowdown given as second argument
+ * ({@link #DEFAULT_TOLERANCE} by default), the regressions are printed
+ * and the program exits with a non-zero exit code. The same happens if
+ * the baseline file does not exist or has no result for one of the
+ * benchmarks, so that a misspelled path or a new benchmark cannot pass
+ * unnoticed.
+ * </p>
+ * <p>
+ * A baseline is only recorded if the third argument is {@code true}: the
+ * results are then stored in the baseline file, replacing any previous
+ * baseline, and are not compared. With Maven, this is done via
+ * {@code mvn -Pbenchmarks -DskipTests -Dbenchmarks.record=true verify}.
+ * Since the absolute times depend on the machine, the baseline should be
+ * recorded on the same machine on which the benchmarks are compared to
+ * it, e.g., from the last release. Without arguments, the benchmarks are
+ * just run.
+ * </p>
+ */
+public final class FittingBenchmarks {
+
+  /** the default tolerance */
+  public static final double DEFAULT_TOLERANCE = 0.15d;
+
+  /** the forbidden constructor */
+  private FittingBenchmarks() {
+    ErrorUtils.doNotCall();
+  }
+
+  /**
+   * Get the key of a result in the baseline file
+   *
+   * @param result
+   *          the result
+   * @return the key
+   */
+  private static final String __key(final RunResult result) {
+    final BenchmarkParams params;
+    final ArrayList<String> keys;
+    final StringBuilder builder;
+
+    params = result.getParams();
+    builder = new StringBuilder(params.getBenchmark());
+    keys = new ArrayList<>(params.getParamsKeys());
+    Collections.sort(keys);
+    for (final String key : keys) {
+      builder.append(':');
+      builder.append(key);
+      builder.append('=');
+      builder.append(params.getParam(key));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Compare the results to the baseline
+   *
+   * @param results
+   *          the results
+   * @param baseline
+   *          the baseline
+   * @param tolerance
+   *          the tolerance
+   * @return the number of regressions, including the results without
+   *         baseline
+   */
+  private static final int __compare(final Collection<RunResult> results,
+      final Properties baseline, final double tolerance) {
+    String key, value;
+    double base, score;
+    int regressions;
+
+    regressions = 0;
+    for (final RunResult result : results) {
+      key = FittingBenchmarks.__key(result);
+      value = baseline.getProperty(key);
+      score = result.getPrimaryResult().getScore();
+      if (value == null) {
+        ++regressions;
+        System.out.println("No baseline for " + key); //$NON-NLS-1$
+        continue;
+      }
+      base = Double.parseDouble(value);
+      if (score > (base * (1d + tolerance))) {
+        ++regressions;
+        System.out.println("Regression in " + key + //$NON-NLS-1$
+            ": " + score + //$NON-NLS-1$
+            " vs. baseline " + base + ' ' + //$NON-NLS-1$
+            result.getPrimaryResult().getScoreUnit());
+      }
+    }
+    return regressions;
+  }
+
+  /**
+   * The main entry point
+   *
+   * @param args
+   *          the arguments: the path to the baseline file, the tolerance,
+   *          and whether a new baseline should be recorded, all optional
+   * @throws Exception
+   *           if something fails
+   */
+  public static final void main(final String[] args) throws Exception {
+    final Collection<RunResult> results;
+    final Properties baseline;
+    final Path path;
+    final double tolerance;
+    final boolean record;
+    final int regressions;
+
+    results = new Runner(new OptionsBuilder()//
+        .include(FittingBenchmarks.class.getPackage().getName() + ".*")//$NON-NLS-1$
+        .shouldFailOnError(true)//
+        .build()).run();
+
+    if ((args == null) || (args.length <= 0)) {
+      return;
+    }
+    path = Paths.get(args[0]);
+    tolerance = ((args.length > 1) ? Double.parseDouble(args[1])
+        : FittingBenchmarks.DEFAULT_TOLERANCE);
+    if ((tolerance < 0d) || (tolerance != tolerance)) {
+      throw new IllegalArgumentException(//
+          "Tolerance must not be negative or NaN, but is " //$NON-NLS-1$
+              + tolerance);
+    }
+
+    record = ((args.length > 2) && Boolean.parseBoolean(args[2]));
+
+    baseline = new Properties();
+    if (record) {
+      for (final RunResult result : results) {
+        baseline.setProperty(FittingBenchmarks.__key(result),
+            Double.toString(result.getPrimaryResult().getScore()));
+      }
+      FittingBenchmarks.__store(baseline, path);
+      System.out.println("Stored new baseline in " + path); //$NON-NLS-1$
+      return;
+    }
+
+    if (!(Files.exists(path))) {
+      System.out.println("Baseline " + path + //$NON-NLS-1$
+          " does not exist, record it with " + //$NON-NLS-1$
+          "-Dbenchmarks.record=true."); //$NON-NLS-1$
+      System.exit(1);
+    }
+    try (final InputStream input = Files.newInputStream(path)) {
+      baseline.load(input);
+    }
+    regressions = FittingBenchmarks.__compare(results, baseline,
+        tolerance);
+    if (regressions > 0) {
+      System.out.println(regressions + //
+          " benchmark(s) slower than the baseline or " + //$NON-NLS-1$
+          "without baseline."); //$NON-NLS-1$
+      System.exit(1);
+    }
+    System.out.println("No regressions."); //$NON-NLS-1$
+  }
+
+  /**
+   * Store the baseline
+   *
+   * @param baseline
+   *          the baseline
+   * @param path
+   *          the path
+   * @throws IOException
+   *           if I/O fails
+   */
+  private static final void __store(final Properties baseline,
+      final Path path) throws IOException {
+    final Path parent;
+
+    parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (final OutputStream output = Files.newOutputStream(path)) {
+      baseline.store(output, "baseline of the fitting benchmarks"); //$NON-NLS-1$
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A benchmark for a single call to each of the local search methods of
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob}
+ * , i.e., Levenberg-Marquardt, Nelder-Mead, BOBYQA, and CMA-ES, from a
+ * fixed starting point. The points are prepared only once, so that the
+ * results reflect the cost of the local search itself. BOBYQA is also
+ * measured in its
+ * {@linkplain shared.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.LegacySafeBOBYQAOptimizer
+ * former implementation} on the vectors and matrices of commons math
+ * ({@code BOBYQA_LEGACY}), which performs exactly the same steps, so that
+ * the two results can be compared directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class LocalSearchBenchmark {
+
+  /** the local search method */
+  @Param({ "LEVENBERG_MARQUARDT", //$NON-NLS-1$
+      "NELDER_MEAD", //$NON-NLS-1$
+      "BOBYQA", //$NON-NLS-1$
+      "BOBYQA_LEGACY", //$NON-NLS-1$
+      "CMAES" })//$NON-NLS-1$
+  public String method;
+
+  /** the example data set */
+  @Param({ _Examples.DATASET_1, _Examples.DATASET_2, _Examples.DATASET_3,
+      _Examples.DATASET_4 })
+  public String dataset;
+
+  /** the fitter */
+  private _LocalSearchFitter m_fitter;
+  /** the example */
+  private FittingExampleDataset m_example;
+  /** the prepared points */
+  private PreparedDataset m_points;
+  /** the quality measure */
+  private WeightedRootMeanSquareError m_measure;
+
+  /** create */
+  public LocalSearchBenchmark() {
+    super();
+  }
+
+  /** set up the benchmark */
+  @Setup
+  public void setup() {
+    final int methodIndex;
+
+    switch (this.method) {
+      case "LEVENBERG_MARQUARDT": {//$NON-NLS-1$
+        methodIndex = FittingMetrics.LEVENBERG_MARQUARDT;
+        break;
+      }
+      case "NELDER_MEAD": {//$NON-NLS-1$
+        methodIndex = FittingMetrics.NELDER_MEAD;
+        break;
+      }
+      case "BOBYQA": {//$NON-NLS-1$
+        methodIndex = FittingMetrics.BOBYQA;
+        break;
+      }
+      case "BOBYQA_LEGACY": {//$NON-NLS-1$
+        methodIndex = _LocalSearchFitter.LEGACY_BOBYQA;
+        break;
+      }
+      case "CMAES": {//$NON-NLS-1$
+        methodIndex = FittingMetrics.CMAES;
+        break;
+      }
+      default: {
+        throw new IllegalArgumentException(//
+            "Unknown local search method: " + this.method); //$NON-NLS-1$
+      }
+    }
+
+    this.m_example = _Examples._dataset(this.dataset);
+    this.m_points = PreparedDataset.prepare(this.m_example.data);
+    this.m_measure = new WeightedRootMeanSquareError(this.m_example.data);
+    this.m_fitter = new _LocalSearchFitter(methodIndex,
+        _Examples._parameters(this.m_example.model, this.m_example.data),
+        LocalSearchBenchmark.__stddevs(this.m_example));
+  }
+
+  /**
+   * Compute the standard deviations of a few random guesses, as the
+   * CMA-ES-based fitter does
+   *
+   * @param example
+   *          the example
+   * @return the standard deviations
+   */
+  private static final double[] __stddevs(
+      final FittingExampleDataset example) {
+    final IParameterGuesser guesser;
+    final Random random;
+    final double[] guess, sum, sumOfSquares, stddevs;
+    final int samples;
+    double mean;
+    int sample, index;
+
+    guesser = example.model.createParameterGuesser(example.data);
+    random = new Random(_Examples.SEED);
+    guess = new double[example.model.getParameterCount()];
+    sum = new double[guess.length];
+    sumOfSquares = new double[guess.length];
+    stddevs = new double[guess.length];
+
+    samples = 16;
+    for (sample = samples; (--sample) >= 0;) {
+      guesser.createRandomGuess(guess, random);
+      for (index = guess.length; (--index) >= 0;) {
+        sum[index] += guess[index];
+        sumOfSquares[index] += (guess[index] * guess[index]);
+      }
+    }
+
+    for (index = guess.length; (--index) >= 0;) {
+      mean = (sum[index] / samples);
+      stddevs[index] = Math.max(1e-8d, Math.sqrt(Math.max(0d,
+          ((sumOfSquares[index] / samples) - (mean * mean)))));
+    }
+    return stddevs;
+  }
+
+  /**
+   * Refine the starting point with the local search method
+   *
+   * @return the result
+   * @throws Exception
+   *           if the fitting fails
+   */
+  @Benchmark
+  public IFittingResult refine() throws Exception {
+    return this.m_fitter.use()//
+        .setFunctionToFit(this.m_example.model)//
+        .setPoints(this.m_points)//
+        .setQualityMeasure(this.m_measure)//
+        .create().call();
+  }
+}
@@ -0,0 +1,146 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A benchmark for the value and gradient computation of the models, both
+ * point by point and in batches. Each operation processes all points of
+ * the same example data set. The models with the suffix
+ * {@code ExpressionModel} compute the same formulas as their hand-written
+ * counterparts, but derive their gradients automatically, see
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.models.ExpressionModel}
+ * .
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+  /** the model */
+  @Param({ "CubicModel", //$NON-NLS-1$
+      "ExpLinearModelOverLogX", //$NON-NLS-1$
+      "ExponentialDecayModel", //$NON-NLS-1$
+      "GompertzModel", //$NON-NLS-1$
+      "LogisticModelWithOffsetOverLogX", //$NON-NLS-1$
+      "QuadraticModel", //$NON-NLS-1$
+      "GompertzExpressionModel", //$NON-NLS-1$
+      "LogisticExpressionModel" })//$NON-NLS-1$
+  public String model;
+
+  /** the model */
+  private BasicModel m_model;
+  /** the {@code x}-coordinates */
+  private double[] m_x;
+  /** the parameters */
+  private double[] m_parameters;
+  /** the values */
+  private double[] m_values;
+  /** the gradients */
+  private double[][] m_gradients;
+
+  /** create */
+  public ModelBenchmark() {
+    super();
+  }
+
+  /** set up the benchmark */
+  @Setup
+  public void setup() {
+    final FittingExampleDataset example;
+
+    example = _Examples._dataset(_Examples.DATASET_3);
+    this.m_model = _Examples._model(this.model);
+    this.m_x = _Examples._x(example.data);
+    this.m_parameters = _Examples._parameters(this.m_model,
+        example.data);
+    this.m_values = new double[this.m_x.length];
+    this.m_gradients = new double[this.m_x.length][this.m_model
+        .getParameterCount()];
+  }
+
+  /**
+   * Compute the values point by point
+   *
+   * @return the sum of the values
+   */
+  @Benchmark
+  public double value() {
+    final BasicModel function;
+    final double[] x, parameters;
+    double sum;
+    int index;
+
+    function = this.m_model;
+    x = this.m_x;
+    parameters = this.m_parameters;
+    sum = 0d;
+    for (index = x.length; (--index) >= 0;) {
+      sum += function.value(x[index], parameters);
+    }
+    return sum;
+  }
+
+  /**
+   * Compute the gradients point by point
+   *
+   * @return the gradients
+   */
+  @Benchmark
+  public double[][] gradient() {
+    final BasicModel function;
+    final double[] x, parameters;
+    final double[][] gradients;
+    int index;
+
+    function = this.m_model;
+    x = this.m_x;
+    parameters = this.m_parameters;
+    gradients = this.m_gradients;
+    for (index = x.length; (--index) >= 0;) {
+      function.gradient(x[index], parameters, gradients[index]);
+    }
+    return gradients;
+  }
+
+  /**
+   * Compute the values in one batch
+   *
+   * @return the values
+   */
+  @Benchmark
+  public double[] valueBatch() {
+    this.m_model.valueBatch(this.m_x, this.m_parameters, this.m_values,
+        this.m_x.length);
+    return this.m_values;
+  }
+
+  /**
+   * Compute the values and gradients in one batch
+   *
+   * @return the gradients
+   */
+  @Benchmark
+  public double[][] valueAndGradientBatch() {
+    this.m_model.valueAndGradientBatch(this.m_x, this.m_parameters,
+        this.m_values, this.m_gradients, this.m_x.length);
+    return this.m_gradients;
+  }
+}
@@ -0,0 +1,72 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A benchmark for
+ * {@link IParameterGuesser#createRandomGuess(double[], Random)} of the
+ * guessers of the models of the example data sets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParameterGuesserBenchmark {
+
+  /** the example data set */
+  @Param({ _Examples.DATASET_1, _Examples.DATASET_2, _Examples.DATASET_3,
+      _Examples.DATASET_4 })
+  public String dataset;
+
+  /** the guesser */
+  private IParameterGuesser m_guesser;
+  /** the random number generator */
+  private Random m_random;
+  /** the destination */
+  private double[] m_parameters;
+
+  /** create */
+  public ParameterGuesserBenchmark() {
+    super();
+  }
+
+  /** set up the benchmark */
+  @Setup
+  public void setup() {
+    final FittingExampleDataset example;
+
+    example = _Examples._dataset(this.dataset);
+    this.m_guesser = example.model.createParameterGuesser(example.data);
+    this.m_random = new Random(_Examples.SEED);
+    this.m_parameters = new double[example.model.getParameterCount()];
+  }
+
+  /**
+   * Create a random guess
+   *
+   * @return the guess
+   */
+  @Benchmark
+  public double[] createRandomGuess() {
+    this.m_guesser.createRandomGuess(this.m_parameters, this.m_random);
+    return this.m_parameters;
+  }
+}
@@ -0,0 +1,108 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A benchmark for the overloads of
+ * {@link IFittingQualityMeasure#evaluate(ParametricUnaryFunction, double[])}
+ * , i.e., the innermost loop of all fitters, for the weighted
+ * root-mean-square error and the robust quality measures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class QualityMeasureBenchmark {
+
+  /** the example data set */
+  @Param({ _Examples.DATASET_1, _Examples.DATASET_2, _Examples.DATASET_3,
+      _Examples.DATASET_4 })
+  public String dataset;
+
+  /** the quality measure */
+  @Param({ "WeightedRootMeanSquareError", //$NON-NLS-1$
+      "WeightedHuberError", //$NON-NLS-1$
+      "WeightedCauchyError", //$NON-NLS-1$
+      "WeightedSoftL1Error" })//$NON-NLS-1$
+  public String measure;
+
+  /** the model */
+  private ParametricUnaryFunction m_model;
+  /** the quality measure */
+  private IFittingQualityMeasure m_measure;
+  /** the parameters */
+  private double[] m_parameters;
+  /** the evaluation record */
+  private FittingEvaluation m_evaluation;
+
+  /** create */
+  public QualityMeasureBenchmark() {
+    super();
+  }
+
+  /** set up the benchmark */
+  @Setup
+  public void setup() {
+    final FittingExampleDataset example;
+
+    example = _Examples._dataset(this.dataset);
+    this.m_model = example.model;
+    this.m_measure = _Examples._measure(this.measure, example.data);
+    this.m_parameters = _Examples._parameters(example.model, example.data);
+    this.m_evaluation = new FittingEvaluation();
+  }
+
+  /**
+   * Compute only the quality
+   *
+   * @return the quality
+   */
+  @Benchmark
+  public double quality() {
+    return this.m_measure.evaluate(this.m_model, this.m_parameters);
+  }
+
+  /**
+   * Compute the quality and the residuals
+   *
+   * @return the quality
+   */
+  @Benchmark
+  public double residuals() {
+    this.m_measure.evaluate(this.m_model, this.m_parameters, true, false,
+        this.m_evaluation);
+    return this.m_evaluation.quality;
+  }
+
+  /**
+   * Compute the quality, the residuals, and the Jacobian, as needed by
+   * the Levenberg-Marquardt algorithm
+   *
+   * @return the quality
+   */
+  @Benchmark
+  public double residualsAndJacobian() {
+    this.m_measure.evaluate(this.m_model, this.m_parameters, true, true,
+        this.m_evaluation);
+    return this.m_evaluation.quality;
+  }
+}
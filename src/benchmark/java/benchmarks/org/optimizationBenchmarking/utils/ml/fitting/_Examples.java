@@ -0,0 +1,248 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.util.Random;
+
+import org.optimizationBenchmarking.utils.error.ErrorUtils;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls.BIPOPCMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.ParallelLSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.varpro.VarProFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpLinearModelOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExponentialDecayModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.QuadraticModel;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedCauchyError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedHuberError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedSoftL1Error;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+import examples.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDatasets;
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * Shared helpers of the benchmarks, which resolve the names used as
+ * benchmark parameters.
+ */
+final class _Examples {
+
+  /**
+   * the example data sets used by the benchmarks, one for each model of
+   * {@link FittingExampleDatasets} and with increasing numbers of points
+   */
+  static final String DATASET_1 = "A_1FlipHC_uf020_01_FOL"; //$NON-NLS-1$
+  /** the second example data set */
+  static final String DATASET_2 = "B_mFlipHC_uf100_01_FOE"; //$NON-NLS-1$
+  /** the third example data set */
+  static final String DATASET_3 = "C_2FlipHCrs_uf250_01_TOG"; //$NON-NLS-1$
+  /** the fourth example data set */
+  static final String DATASET_4 = "D_2FlipHC_uf250_01_FTQ"; //$NON-NLS-1$
+
+  /** the seed for all random number generators of the benchmarks */
+  static final long SEED = 7L;
+
+  /** the forbidden constructor */
+  private _Examples() {
+    ErrorUtils.doNotCall();
+  }
+
+  /**
+   * Get an example data set by its name, i.e., the name of the
+   * corresponding field of {@link FittingExampleDatasets}
+   *
+   * @param name
+   *          the name
+   * @return the data set
+   */
+  static final FittingExampleDataset _dataset(final String name) {
+    try {
+      return ((FittingExampleDataset) (FittingExampleDatasets.class
+          .getField(name).get(null)));
+    } catch (final ReflectiveOperationException error) {
+      throw new IllegalArgumentException(//
+          "Unknown example data set: " + name, //$NON-NLS-1$
+          error);
+    }
+  }
+
+  /**
+   * Get a model by its class name
+   *
+   * @param name
+   *          the simple name of the model class, without the leading
+   *          underscore of the models only used in the benchmarks
+   * @return the model
+   */
+  static final BasicModel _model(final String name) {
+    switch (name) {
+      case "CubicModel": {//$NON-NLS-1$
+        return new CubicModel();
+      }
+      case "ExpLinearModelOverLogX": {//$NON-NLS-1$
+        return new ExpLinearModelOverLogX();
+      }
+      case "ExponentialDecayModel": {//$NON-NLS-1$
+        return new ExponentialDecayModel();
+      }
+      case "GompertzModel": {//$NON-NLS-1$
+        return new GompertzModel();
+      }
+      case "LogisticModelWithOffsetOverLogX": {//$NON-NLS-1$
+        return new LogisticModelWithOffsetOverLogX();
+      }
+      case "QuadraticModel": {//$NON-NLS-1$
+        return new QuadraticModel();
+      }
+      case "GompertzExpressionModel": {//$NON-NLS-1$
+        return new _GompertzExpressionModel();
+      }
+      case "LogisticExpressionModel": {//$NON-NLS-1$
+        return new _LogisticExpressionModel();
+      }
+      default: {
+        throw new IllegalArgumentException(//
+            "Unknown model: " + name); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Create a quality measure by its class name
+   *
+   * @param name
+   *          the simple name of the quality measure class
+   * @param data
+   *          the data
+   * @return the quality measure
+   */
+  static final IFittingQualityMeasure _measure(final String name,
+      final IMatrix data) {
+    switch (name) {
+      case "WeightedRootMeanSquareError": {//$NON-NLS-1$
+        return new WeightedRootMeanSquareError(data);
+      }
+      case "WeightedHuberError": {//$NON-NLS-1$
+        return new WeightedHuberError(data);
+      }
+      case "WeightedCauchyError": {//$NON-NLS-1$
+        return new WeightedCauchyError(data);
+      }
+      case "WeightedSoftL1Error": {//$NON-NLS-1$
+        return new WeightedSoftL1Error(data);
+      }
+      default: {
+        throw new IllegalArgumentException(//
+            "Unknown quality measure: " + name); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Get a fitter by its name
+   *
+   * @param name
+   *          the name of the fitter class without the {@code Fitter}
+   *          suffix
+   * @return the fitter
+   */
+  static final IFunctionFitter _fitter(final String name) {
+    switch (name) {
+      case "CMAESLS": {//$NON-NLS-1$
+        return CMAESLSFitter.getInstance();
+      }
+      case "BIPOPCMAESLS": {//$NON-NLS-1$
+        return BIPOPCMAESLSFitter.getInstance();
+      }
+      case "DELS": {//$NON-NLS-1$
+        return DELSFitter.getInstance();
+      }
+      case "ESLS": {//$NON-NLS-1$
+        return ESLSFitter.getInstance();
+      }
+      case "LSSimplex": {//$NON-NLS-1$
+        return LSSimplexFitter.getInstance();
+      }
+      case "ParallelLSSimplex": {//$NON-NLS-1$
+        return ParallelLSSimplexFitter.getInstance();
+      }
+      case "VarPro": {//$NON-NLS-1$
+        return VarProFitter.getInstance();
+      }
+      default: {
+        throw new IllegalArgumentException(//
+            "Unknown fitter: " + name); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Get the {@code x}-coordinates of a data set
+   *
+   * @param data
+   *          the data
+   * @return the {@code x}-coordinates
+   */
+  static final double[] _x(final IMatrix data) {
+    final double[] x;
+    int index;
+
+    index = data.m();
+    x = new double[index];
+    for (; (--index) >= 0;) {
+      x[index] = data.getDouble(index, 0);
+    }
+    return x;
+  }
+
+  /**
+   * Create a reproducible parameter vector for a model: the best of a few
+   * random guesses, so that all benchmarks start from the same, plausible
+   * point
+   *
+   * @param model
+   *          the model
+   * @param data
+   *          the data
+   * @return the parameters
+   */
+  static final double[] _parameters(final ParametricUnaryFunction model,
+      final IMatrix data) {
+    final IParameterGuesser guesser;
+    final Random random;
+    final double[] x, current, best;
+    double error, bestError, residual;
+    int guess, index;
+
+    guesser = model.createParameterGuesser(data);
+    random = new Random(_Examples.SEED);
+    x = _Examples._x(data);
+    current = new double[model.getParameterCount()];
+    best = new double[current.length];
+    bestError = Double.POSITIVE_INFINITY;
+
+    for (guess = 16; (--guess) >= 0;) {
+      guesser.createRandomGuess(current, random);
+      error = 0d;
+      for (index = x.length; (--index) >= 0;) {
+        residual = (model.value(x[index], current)
+            - data.getDouble(index, 1));
+        error += (residual * residual);
+      }
+      if (error < bestError) {
+        bestError = error;
+        System.arraycopy(current, 0, best, 0, best.length);
+      }
+    }
+    return ((bestError < Double.POSITIVE_INFINITY) ? best : current);
+  }
+}
@@ -0,0 +1,64 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import org.optimizationBenchmarking.utils.document.spec.IMath;
+import org.optimizationBenchmarking.utils.document.spec.IMathRenderable;
+import org.optimizationBenchmarking.utils.document.spec.IParameterRenderer;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpressionModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ModelExpression;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * The {@link GompertzModel} {@code a+(b*exp(c*exp(d*x)))}, defined as
+ * {@link ExpressionModel}, so that the automatically derived gradients
+ * can be benchmarked against the hand-written ones. Everything but the
+ * values and gradients is delegated to the hand-written model.
+ */
+final class _GompertzExpressionModel extends ExpressionModel {
+
+  /** the hand-written model */
+  private final GompertzModel m_model;
+
+  /** create */
+  _GompertzExpressionModel() {
+    super(_GompertzExpressionModel.__define());
+    this.m_model = new GompertzModel();
+  }
+
+  /**
+   * Define the formula
+   *
+   * @return the root term of the formula
+   */
+  private static final ModelExpression.Term __define() {
+    final ModelExpression e;
+
+    e = new ModelExpression(4);
+    return e.add(e.parameter(0), e.multiply(e.parameter(1), e.exp(//
+        e.multiply(e.parameter(2), //
+            e.exp(e.multiply(e.parameter(3), e.x()))))));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final IParameterGuesser createParameterGuesser(
+      final IMatrix data) {
+    return this.m_model.createParameterGuesser(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void mathRender(final ITextOutput out,
+      final IParameterRenderer renderer, final IMathRenderable x) {
+    this.m_model.mathRender(out, renderer, x);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void mathRender(final IMath out,
+      final IParameterRenderer renderer, final IMathRenderable x) {
+    this.m_model.mathRender(out, renderer, x);
+  }
+}
@@ -0,0 +1,63 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFitter;
+
+/**
+ * A fitter which only applies a single local search method to a fixed
+ * starting point, so that the local search methods of
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob}
+ * can be benchmarked in isolation.
+ */
+final class _LocalSearchFitter extends OptimizationBasedFitter {
+
+  /**
+   * the method code for the former implementation of BOBYQA, which works
+   * on the vectors and matrices of commons math, see
+   * {@link shared.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.LegacySafeBOBYQAOptimizer}
+   */
+  static final int LEGACY_BOBYQA = FittingMetrics.METHOD_COUNT;
+
+  /**
+   * the local search method, one of the method constants of
+   * {@link FittingMetrics} or {@link #LEGACY_BOBYQA}
+   */
+  final int m_method;
+  /** the starting point */
+  final double[] m_start;
+  /** the standard deviations for CMA-ES */
+  final double[] m_stddevs;
+
+  /**
+   * create
+   *
+   * @param method
+   *          the local search method, one of the method constants of
+   *          {@link FittingMetrics} or {@link #LEGACY_BOBYQA}
+   * @param start
+   *          the starting point
+   * @param stddevs
+   *          the standard deviations for CMA-ES
+   */
+  _LocalSearchFitter(final int method, final double[] start,
+      final double[] stddevs) {
+    super();
+    this.m_method = method;
+    this.m_start = start;
+    this.m_stddevs = stddevs;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final FittingJob create(final FittingJobBuilder builder) {
+    return new _LocalSearchFittingJob(builder, this);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return "Local Search Benchmark Fitter"; //$NON-NLS-1$
+  }
+}
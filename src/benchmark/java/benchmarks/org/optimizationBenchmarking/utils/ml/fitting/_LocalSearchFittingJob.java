@@ -0,0 +1,65 @@
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.LegacySafeBOBYQAOptimizer;
+
+/** The job of the {@link _LocalSearchFitter}. */
+final class _LocalSearchFittingJob
+    extends OptimizationBasedFittingJob<FittingCandidateSolution> {
+
+  /** the owning fitter */
+  private final _LocalSearchFitter m_owner;
+
+  /**
+   * create the fitting job
+   *
+   * @param builder
+   *          the builder
+   * @param owner
+   *          the owning fitter
+   */
+  _LocalSearchFittingJob(final FittingJobBuilder builder,
+      final _LocalSearchFitter owner) {
+    super(builder);
+    this.m_owner = owner;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void doFit() {
+    final FittingCandidateSolution solution;
+
+    solution = new FittingCandidateSolution(
+        this.m_function.getParameterCount());
+    System.arraycopy(this.m_owner.m_start, 0, solution.solution, 0,
+        solution.solution.length);
+    solution.quality = this.evaluate(solution.solution);
+
+    switch (this.m_owner.m_method) {
+      case FittingMetrics.LEVENBERG_MARQUARDT: {
+        this.refineWithLevenbergMarquardt(solution);
+        return;
+      }
+      case FittingMetrics.NELDER_MEAD: {
+        this.refineWithNelderMead(solution);
+        return;
+      }
+      case FittingMetrics.BOBYQA: {
+        this.refineWithBOBYQA(solution);
+        return;
+      }
+      case _LocalSearchFitter.LEGACY_BOBYQA: {
+        LegacySafeBOBYQAOptimizer.refine(this, solution.solution,
+            this.getNumericalOptimizerMaxIterations());
+        return;
+      }
+      default: {
+        this.refineWithCMAES(solution, this.m_owner.m_stddevs);
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * <p>
+ * <a href="http://openjdk.java.net/projects/code-tools/jmh/">JMH</a>
+ * benchmarks for the
+ * {@link org.optimizationBenchmarking.utils.ml.fitting function fitting}
+ * subsystem: the quality measure, the models, the parameter guessers,
+ * the local search methods, and the fitters as a whole, all measured on
+ * the example data sets from
+ * {@link examples.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDatasets}
+ * .
+ * </p>
+ * <p>
+ * The benchmarks are not part of the normal build. They are compiled and
+ * executed via the {@code benchmarks} profile, e.g.,
+ * {@code mvn -Pbenchmarks -DskipTests verify}, which runs
+ * {@link benchmarks.org.optimizationBenchmarking.utils.ml.fitting.FittingBenchmarks}
+ * . The results are compared to the baseline read from the file given by
+ * the property {@code benchmarks.baseline},
+ * {@code benchmarks/baseline.properties} by default, and the build fails
+ * if any benchmark has become slower than the tolerance allows, or if
+ * there is no baseline for it. A baseline is never created implicitly:
+ * it is recorded by setting the property {@code benchmarks.record} to
+ * {@code true}, i.e.,
+ * {@code mvn -Pbenchmarks -DskipTests -Dbenchmarks.record=true verify},
+ * which stores the results in the baseline file instead of comparing
+ * them.
+ * </p>
+ */
+package benchmarks.org.optimizationBenchmarking.utils.ml.fitting;
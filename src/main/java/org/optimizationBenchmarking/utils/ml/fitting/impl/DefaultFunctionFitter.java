@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import org.optimizationBenchmarking.utils.collections.iterators.IterableIterator;
 import org.optimizationBenchmarking.utils.collections.lists.ArrayListView;
 import org.optimizationBenchmarking.utils.error.ErrorUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.CachingFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStore;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.debug.DebugFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
@@ -12,7 +14,13 @@ import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
 
 /**
- * The default function fitter.
+ * The default function fitter. Like all fitters, the returned fitters fit
+ * models which are linear in all of their parameters, such as
+ * polynomials, directly in closed form, see
+ * {@link FittingUtils#canFitInClosedForm(org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction, org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure)}
+ * . If a {@linkplain #setResultStore(FittingResultStore) result store} is
+ * set, the returned fitters look up their results in the store first and
+ * add new results to it.
  */
 public final class DefaultFunctionFitter {
 
@@ -39,7 +47,23 @@ public final class DefaultFunctionFitter {
     if (inst == null) {
       DefaultFunctionFitter.__noFitter();
     }
-    return inst;
+    return DefaultFunctionFitter.__cache(inst, __StoreHolder.STORE);
+  }
+
+  /**
+   * Wrap a fitter into a {@link CachingFunctionFitter} if a result store
+   * is set
+   *
+   * @param fitter
+   *          the fitter
+   * @param store
+   *          the store, or {@code null} if none is set
+   * @return the fitter to use
+   */
+  private static final IFunctionFitter __cache(
+      final IFunctionFitter fitter, final FittingResultStore store) {
+    return ((store != null) ? new CachingFunctionFitter(fitter, store)
+        : fitter);
   }
 
   /**
@@ -51,11 +75,25 @@ public final class DefaultFunctionFitter {
    */
   public static final ArrayListView<IFunctionFitter> getAllInstance() {
     final ArrayListView<IFunctionFitter> fitters;
+    final FittingResultStore store;
+    final IFunctionFitter[] cached;
+    int index;
+
     fitters = __AllHolder.INSTANCES;
     if (fitters == null) {
       DefaultFunctionFitter.__noFitter();
     }
-    return fitters;
+    store = __StoreHolder.STORE;
+    if (store == null) {
+      return fitters;
+    }
+
+    cached = new IFunctionFitter[fitters.size()];
+    for (index = cached.length; (--index) >= 0;) {
+      cached[index] = DefaultFunctionFitter.__cache(fitters.get(index),
+          store);
+    }
+    return new ArrayListView<>(cached, false);
   }
 
   /**
@@ -73,6 +111,36 @@ public final class DefaultFunctionFitter {
     __AllHolder.INSTANCES = fitters;
   }
 
+  /**
+   * Set the store in which the default fitters look up their results
+   * before fitting and to which they add new results. This allows, e.g.,
+   * re-generating a report for the same data without fitting all the
+   * functions again.
+   *
+   * @param store
+   *          the store, or {@code null} to always perform the fitting
+   */
+  public static final void setResultStore(
+      final FittingResultStore store) {
+    __StoreHolder.STORE = store;
+  }
+
+  /**
+   * Get the store in which the default fitters look up their results
+   *
+   * @return the store, or {@code null} if none is set
+   * @see #setResultStore(FittingResultStore)
+   */
+  public static final FittingResultStore getResultStore() {
+    return __StoreHolder.STORE;
+  }
+
+  /** the internal holder for the result store */
+  private static final class __StoreHolder {
+    /** the store, or {@code null} if none is set */
+    static volatile FittingResultStore STORE;
+  }
+
   /** the internal holder for the default fitter */
   private static final class __DefaultHolder {
 
@@ -2,6 +2,9 @@ package org.optimizationBenchmarking.utils.ml.fitting.impl;
 
 import org.optimizationBenchmarking.utils.error.ErrorUtils;
 import org.optimizationBenchmarking.utils.math.text.ABCParameterRenderer;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
 import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
 
@@ -53,4 +56,34 @@ public final class FittingUtils {
     textOut.append("] with quality ");//$NON-NLS-1$
     textOut.append(quality);
   }
+
+  /**
+   * Check whether a function can be fitted in closed form under a given
+   * quality measure. This is the case for models which are linear in all
+   * of their parameters, such as polynomials, under the
+   * {@link WeightedRootMeanSquareError}: The optimal parameters then are
+   * the solution of a weighted linear least squares problem, see
+   * {@link WeightedRootMeanSquareError#solveLinearParameters(BasicModel, double[])}
+   * , and no optimization algorithm is needed.
+   *
+   * @param function
+   *          the function
+   * @param measure
+   *          the quality measure
+   * @return {@code true} if the function can be fitted in closed form,
+   *         {@code false} otherwise
+   */
+  public static final boolean canFitInClosedForm(
+      final ParametricUnaryFunction function,
+      final IFittingQualityMeasure measure) {
+    final int parameters;
+
+    if ((function instanceof BasicModel)
+        && (measure instanceof WeightedRootMeanSquareError)) {
+      parameters = function.getParameterCount();
+      return ((parameters > 0) && (((BasicModel) function)
+          .getLinearParameterCount() >= parameters));
+    }
+    return false;
+  }
 }
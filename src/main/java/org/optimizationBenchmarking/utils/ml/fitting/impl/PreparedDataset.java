@@ -0,0 +1,542 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+import org.optimizationBenchmarking.utils.math.matrix.AbstractMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
+
+/**
+ * <p>
+ * An immutable, validated set of {@code x-y}-coordinate pairs to be
+ * fitted, together with derived information which is needed by the
+ * parameter guessers, e.g., the logarithms of the coordinates used to
+ * compare points on a log scale. The points are stored column-wise.
+ * Minimum, maximum, and ranges of the coordinates are computed once upon
+ * creation, the columns with the natural logarithms of the coordinates
+ * are computed lazily on first use. A data set can be extended by
+ * {@linkplain #append(IMatrix) appending} points, which creates a new
+ * data set sharing the storage of the existing one.
+ * </p>
+ * <p>
+ * Since this class is a {@link IMatrix}, it can be passed to any method
+ * which expects the points to be fitted. Instances can be shared by any
+ * number of fitting jobs and threads, so that a
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.multi.MultiFittingJob}
+ * fitting multiple functions with multiple fitters only needs to prepare
+ * the data once. Use {@link #prepare(IMatrix)} to obtain an instance.
+ * </p>
+ */
+public final class PreparedDataset extends AbstractMatrix {
+
+  /** the {@code x}-coordinates */
+  private final double[] m_x;
+  /** the {@code y}-coordinates */
+  private final double[] m_y;
+  /**
+   * the number of points, i.e., of valid elements of the coordinate
+   * arrays, which may be longer
+   */
+  private final int m_count;
+  /**
+   * the number of array elements claimed by this data set or by a data
+   * set {@linkplain #append(IMatrix) appended} to it
+   */
+  private final AtomicInteger m_claimed;
+
+  /** the minimum {@code x}-coordinate */
+  private final double m_minX;
+  /** the maximum {@code x}-coordinate */
+  private final double m_maxX;
+  /** the minimum {@code y}-coordinate */
+  private final double m_minY;
+  /** the maximum {@code y}-coordinate */
+  private final double m_maxY;
+
+  /** the natural logarithms of the {@code x}-coordinates */
+  private volatile double[] m_logX;
+  /** the natural logarithms of the {@code y}-coordinates */
+  private volatile double[] m_logY;
+  /** the hash code of the points, or {@code 0} if not yet computed */
+  private volatile int m_contentHashCode;
+  /** the fingerprint of the points, or {@code 0} if not yet computed */
+  private volatile long m_contentFingerprint;
+
+  /**
+   * create the prepared data set
+   *
+   * @param points
+   *          the points
+   */
+  private PreparedDataset(final IMatrix points) {
+    super();
+
+    final double[] x, y;
+    double t, minX, maxX, minY, maxY;
+    int i;
+
+    i = points.m();
+    this.m_x = x = new double[i];
+    this.m_y = y = new double[i];
+    this.m_count = i;
+    this.m_claimed = new AtomicInteger(i);
+
+    --i;
+    minX = maxX = x[i] = points.getDouble(i, 0);
+    minY = maxY = y[i] = points.getDouble(i, 1);
+
+    for (; (--i) >= 0;) {
+      x[i] = t = points.getDouble(i, 0);
+      if (t < minX) {
+        minX = t;
+      } else {
+        if (t > maxX) {
+          maxX = t;
+        }
+      }
+      y[i] = t = points.getDouble(i, 1);
+      if (t < minY) {
+        minY = t;
+      } else {
+        if (t > maxY) {
+          maxY = t;
+        }
+      }
+    }
+
+    this.m_minX = minX;
+    this.m_maxX = maxX;
+    this.m_minY = minY;
+    this.m_maxY = maxY;
+  }
+
+  /**
+   * create the prepared data set
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param y
+   *          the {@code y}-coordinates
+   * @param count
+   *          the number of points
+   * @param claimed
+   *          the number of array elements claimed
+   * @param minX
+   *          the minimum {@code x}-coordinate
+   * @param maxX
+   *          the maximum {@code x}-coordinate
+   * @param minY
+   *          the minimum {@code y}-coordinate
+   * @param maxY
+   *          the maximum {@code y}-coordinate
+   */
+  private PreparedDataset(final double[] x, final double[] y,
+      final int count, final AtomicInteger claimed, final double minX,
+      final double maxX, final double minY, final double maxY) {
+    super();
+    this.m_x = x;
+    this.m_y = y;
+    this.m_count = count;
+    this.m_claimed = claimed;
+    this.m_minX = minX;
+    this.m_maxX = maxX;
+    this.m_minY = minY;
+    this.m_maxY = maxY;
+  }
+
+  /**
+   * Obtain a prepared data set for the given points. If {@code points} is
+   * already a prepared data set, it is returned as-is. Otherwise, the
+   * points are validated and copied.
+   *
+   * @param points
+   *          the points
+   * @return the prepared data set
+   */
+  public static final PreparedDataset prepare(final IMatrix points) {
+    if (points instanceof PreparedDataset) {
+      return ((PreparedDataset) points);
+    }
+    FittingQualityMeasure.validateData(points);
+    return new PreparedDataset(points);
+  }
+
+  /**
+   * Create a data set containing the points of this data set followed by
+   * the given points. If this data set is the latest extension of its
+   * storage and the storage has room for the new points, they are written
+   * behind the existing ones and the storage is shared, which does not
+   * affect this data set since it only accesses its first {@link #m()}
+   * points. Otherwise, the points are copied into a larger storage.
+   * Appending points hence has amortized costs linear in the number of
+   * new points, which makes it suitable for growing data sets, e.g., in
+   * an
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.incremental.IncrementalFittingSession}
+   * . This data set is not changed.
+   *
+   * @param points
+   *          the points to append
+   * @return the data set with all points
+   */
+  public final PreparedDataset append(final IMatrix points) {
+    final int count, newCount;
+    AtomicInteger claimed;
+    double[] x, y;
+    double t, minX, maxX, minY, maxY;
+    int i;
+
+    FittingQualityMeasure.validateData(points);
+
+    count = this.m_count;
+    newCount = (count + points.m());
+    claimed = this.m_claimed;
+    x = this.m_x;
+    y = this.m_y;
+    if ((newCount > x.length)
+        || (!(claimed.compareAndSet(count, newCount)))) {
+      i = Math.max(newCount, (count << 1));
+      x = Arrays.copyOf(x, i);
+      y = Arrays.copyOf(y, i);
+      claimed = new AtomicInteger(newCount);
+    }
+
+    minX = this.m_minX;
+    maxX = this.m_maxX;
+    minY = this.m_minY;
+    maxY = this.m_maxY;
+    for (i = (newCount - count); (--i) >= 0;) {
+      x[count + i] = t = points.getDouble(i, 0);
+      if (t < minX) {
+        minX = t;
+      }
+      if (t > maxX) {
+        maxX = t;
+      }
+      y[count + i] = t = points.getDouble(i, 1);
+      if (t < minY) {
+        minY = t;
+      }
+      if (t > maxY) {
+        maxY = t;
+      }
+    }
+
+    return new PreparedDataset(x, y, newCount, claimed, minX, maxX, minY,
+        maxY);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int m() {
+    return this.m_count;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int n() {
+    return 2;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final double getDouble(final int row, final int column) {
+    switch (column) {
+      case 0: {
+        return this.m_x[row];
+      }
+      case 1: {
+        return this.m_y[row];
+      }
+      default: {
+        throw new IndexOutOfBoundsException(//
+            "Column index must be 0 or 1, but is " + column); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final long getLong(final int row, final int column) {
+    return ((long) (this.getDouble(row, column)));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final boolean isIntegerMatrix() {
+    return false;
+  }
+
+  /**
+   * Get the {@code x}-coordinate of a given point
+   *
+   * @param index
+   *          the point index
+   * @return the {@code x}-coordinate
+   */
+  public final double getX(final int index) {
+    return this.m_x[index];
+  }
+
+  /**
+   * Get the {@code y}-coordinate of a given point
+   *
+   * @param index
+   *          the point index
+   * @return the {@code y}-coordinate
+   */
+  public final double getY(final int index) {
+    return this.m_y[index];
+  }
+
+  /**
+   * Get the minimum {@code x}-coordinate
+   *
+   * @return the minimum {@code x}-coordinate
+   */
+  public final double getMinX() {
+    return this.m_minX;
+  }
+
+  /**
+   * Get the maximum {@code x}-coordinate
+   *
+   * @return the maximum {@code x}-coordinate
+   */
+  public final double getMaxX() {
+    return this.m_maxX;
+  }
+
+  /**
+   * Get the range of the {@code x}-coordinates, i.e.,
+   * <code>{@link #getMaxX()}-{@link #getMinX()}</code>
+   *
+   * @return the range of the {@code x}-coordinates
+   */
+  public final double getRangeX() {
+    return (this.m_maxX - this.m_minX);
+  }
+
+  /**
+   * Get the minimum {@code y}-coordinate
+   *
+   * @return the minimum {@code y}-coordinate
+   */
+  public final double getMinY() {
+    return this.m_minY;
+  }
+
+  /**
+   * Get the maximum {@code y}-coordinate
+   *
+   * @return the maximum {@code y}-coordinate
+   */
+  public final double getMaxY() {
+    return this.m_maxY;
+  }
+
+  /**
+   * Get the range of the {@code y}-coordinates, i.e.,
+   * <code>{@link #getMaxY()}-{@link #getMinY()}</code>
+   *
+   * @return the range of the {@code y}-coordinates
+   */
+  public final double getRangeY() {
+    return (this.m_maxY - this.m_minY);
+  }
+
+  /**
+   * Compute the natural logarithms of all elements of an array
+   *
+   * @param data
+   *          the data
+   * @param count
+   *          the number of elements
+   * @return the logarithms
+   */
+  private static final double[] __log(final double[] data,
+      final int count) {
+    final double[] res;
+    int i;
+
+    i = count;
+    res = new double[i];
+    for (; (--i) >= 0;) {
+      res[i] = Math.log(data[i]);
+    }
+    return res;
+  }
+
+  /**
+   * Get the natural logarithm of the {@code x}-coordinate of a given
+   * point. The logarithms are computed once for all points upon the first
+   * call. Non-positive coordinates result in {@link Double#NaN} or
+   * {@link Double#NEGATIVE_INFINITY}, as in {@link Math#log(double)}.
+   *
+   * @param index
+   *          the point index
+   * @return the logarithm of the {@code x}-coordinate
+   */
+  public final double getLogX(final int index) {
+    double[] logX;
+
+    logX = this.m_logX;
+    if (logX == null) {
+      this.m_logX = logX = PreparedDataset.__log(this.m_x, this.m_count);
+    }
+    return logX[index];
+  }
+
+  /**
+   * Get the natural logarithm of the {@code y}-coordinate of a given
+   * point. The logarithms are computed once for all points upon the first
+   * call. Non-positive coordinates result in {@link Double#NaN} or
+   * {@link Double#NEGATIVE_INFINITY}, as in {@link Math#log(double)}.
+   *
+   * @param index
+   *          the point index
+   * @return the logarithm of the {@code y}-coordinate
+   */
+  public final double getLogY(final int index) {
+    double[] logY;
+
+    logY = this.m_logY;
+    if (logY == null) {
+      this.m_logY = logY = PreparedDataset.__log(this.m_y, this.m_count);
+    }
+    return logY[index];
+  }
+
+  /**
+   * Get a hash code of the points of this data set. Different from
+   * {@link #hashCode()}, two data sets with the same points in the same
+   * order always have the same content hash code. The hash code is
+   * computed once, upon the first call.
+   *
+   * @return the hash code of the points
+   * @see #contentEquals(PreparedDataset)
+   */
+  public final int contentHashCode() {
+    int hash;
+
+    hash = this.m_contentHashCode;
+    if (hash == 0) {
+      hash = HashUtils.combineHashes(
+          PreparedDataset.__hashCode(this.m_x, this.m_count),
+          PreparedDataset.__hashCode(this.m_y, this.m_count));
+      if (hash == 0) {
+        hash = 1;
+      }
+      this.m_contentHashCode = hash;
+    }
+    return hash;
+  }
+
+  /**
+   * Get a 64 bit fingerprint of the points of this data set. Like
+   * {@link #contentHashCode()}, it only depends on the points and their
+   * order, but it is much less likely to collide and is the same in all
+   * runs of the program, so it can identify a data set in persistent
+   * storage. The fingerprint is computed once, upon the first call.
+   *
+   * @return the fingerprint of the points
+   */
+  public final long contentFingerprint() {
+    final double[] x, y;
+    final int count;
+    long hash;
+    int i;
+
+    hash = this.m_contentFingerprint;
+    if (hash == 0L) {
+      x = this.m_x;
+      y = this.m_y;
+      hash = count = this.m_count;
+      for (i = 0; i < count; i++) {
+        hash = PreparedDataset.__mix(
+            hash + Double.doubleToLongBits(x[i]));
+        hash = PreparedDataset.__mix(
+            hash + Double.doubleToLongBits(y[i]));
+      }
+      if (hash == 0L) {
+        hash = 1L;
+      }
+      this.m_contentFingerprint = hash;
+    }
+    return hash;
+  }
+
+  /**
+   * Compute the hash code of the first elements of an array in the same
+   * way as {@link Arrays#hashCode(double[])}
+   *
+   * @param data
+   *          the array
+   * @param count
+   *          the number of elements to consider
+   * @return the hash code
+   */
+  private static final int __hashCode(final double[] data,
+      final int count) {
+    long bits;
+    int hash, i;
+
+    hash = 1;
+    for (i = 0; i < count; i++) {
+      bits = Double.doubleToLongBits(data[i]);
+      hash = ((31 * hash) + ((int) (bits ^ (bits >>> 32))));
+    }
+    return hash;
+  }
+
+  /**
+   * Scramble the bits of a 64 bit value, using the finalizer of the
+   * SplitMix64 generator.
+   *
+   * @param value
+   *          the value
+   * @return the scrambled value
+   */
+  private static final long __mix(final long value) {
+    long z;
+
+    z = (value + 0x9e3779b97f4a7c15L);
+    z = ((z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L);
+    z = ((z ^ (z >>> 27)) * 0x94d049bb133111ebL);
+    return (z ^ (z >>> 31));
+  }
+
+  /**
+   * Check whether this data set contains the same points in the same order
+   * as another one.
+   *
+   * @param other
+   *          the other data set
+   * @return {@code true} if both data sets contain the same points,
+   *         {@code false} otherwise
+   * @see #contentHashCode()
+   */
+  public final boolean contentEquals(final PreparedDataset other) {
+    int i;
+
+    if (other == this) {
+      return true;
+    }
+    if ((other == null) || (other.m_count != this.m_count)) {
+      return false;
+    }
+    if (this.contentHashCode() != other.contentHashCode()) {
+      return false;
+    }
+    for (i = this.m_count; (--i) >= 0;) {
+      if ((Double.doubleToLongBits(this.m_x[i]) != Double
+          .doubleToLongBits(other.m_x[i]))
+          || (Double.doubleToLongBits(this.m_y[i]) != Double
+              .doubleToLongBits(other.m_y[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
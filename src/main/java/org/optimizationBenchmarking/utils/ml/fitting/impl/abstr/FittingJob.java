@@ -1,11 +1,15 @@
 package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.FittingUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
 import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJob;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
@@ -18,17 +22,37 @@ public class FittingJob extends ToolJob implements IFittingJob {
   /** a function to fit */
   protected final ParametricUnaryFunction m_function;
 
-  /** the fitting result */
-  private final double[] m_result;
-  /** the quality */
-  private double m_quality;
+  /**
+   * the best solution found so far: a lock-free cell which is only ever
+   * replaced by better solutions
+   */
+  private final AtomicReference<__Best> m_best;
 
-  /** the matrix */
-  protected final IMatrix m_data;
+  /** the prepared data set with the points to fit */
+  protected final PreparedDataset m_data;
 
   /** the fitting quality measure */
   protected final IFittingQualityMeasure m_measure;
 
+  /** the time limit in nanoseconds, or {@link Long#MAX_VALUE} */
+  private final long m_timeLimit;
+  /** the maximum number of evaluations, or {@link Long#MAX_VALUE} */
+  private final long m_maxEvaluations;
+  /** the target quality */
+  private final double m_targetQuality;
+  /**
+   * the number of evaluations, or {@code null} if there is neither a
+   * time nor an evaluation limit
+   */
+  private final AtomicLong m_evaluations;
+  /** the point in time when the time limit is reached */
+  private long m_deadline;
+  /** has the budget been exhausted? */
+  private volatile boolean m_budgetExhausted;
+
+  /** the metrics, or {@code null} if no metrics are collected */
+  final FittingMetrics m_metrics;
+
   /**
    * create the fitting job
    *
@@ -45,8 +69,33 @@ public class FittingJob extends ToolJob implements IFittingJob {
     FittingJobBuilder.validateMeasure(//
         this.m_measure = builder.getQualityMeasure());
 
-    this.m_result = new double[this.m_function.getParameterCount()];
-    this.m_quality = Double.POSITIVE_INFINITY;
+    this.m_best = new AtomicReference<>(new __Best(
+        new double[this.m_function.getParameterCount()],
+        Double.POSITIVE_INFINITY));
+
+    this.m_timeLimit = FittingJob.__toNanos(builder.getTimeLimit());
+    this.m_maxEvaluations = builder.getMaxEvaluations();
+    this.m_targetQuality = builder.getTargetQuality();
+    this.m_metrics = (builder.isCollectingMetrics() ? new FittingMetrics()
+        : null);
+    this.m_evaluations = (((this.m_timeLimit < Long.MAX_VALUE)
+        || (this.m_maxEvaluations < Long.MAX_VALUE)
+        || (this.m_metrics != null)) ? new AtomicLong() : null);
+  }
+
+  /**
+   * Convert a time limit in milliseconds to nanoseconds
+   *
+   * @param milliseconds
+   *          the time limit in milliseconds
+   * @return the time limit in nanoseconds, or {@link Long#MAX_VALUE} if
+   *         there is no limit
+   */
+  private static final long __toNanos(final long milliseconds) {
+    if (milliseconds >= (Long.MAX_VALUE / 1_000_000L)) {
+      return Long.MAX_VALUE;
+    }
+    return (milliseconds * 1_000_000L);
   }
 
   /** Perform the fitting */
@@ -54,6 +103,32 @@ public class FittingJob extends ToolJob implements IFittingJob {
     //
   }
 
+  /**
+   * Fit the function in closed form if
+   * {@linkplain FittingUtils#canFitInClosedForm(ParametricUnaryFunction, IFittingQualityMeasure)
+   * possible}. In this case, the result is exact and {@link #fit()} does
+   * not need to be called.
+   *
+   * @return {@code true} if the function has been fitted, {@code false}
+   *         if the fitting procedure must be used
+   */
+  private final boolean __fitInClosedForm() {
+    final double[] parameters;
+
+    if (!(FittingUtils.canFitInClosedForm(this.m_function,
+        this.m_measure))) {
+      return false;
+    }
+
+    parameters = new double[this.m_function.getParameterCount()];
+    if (((WeightedRootMeanSquareError) (this.m_measure))
+        .solveLinearParameters(((BasicModel) (this.m_function)),
+            parameters)) {
+      return (this.evaluate(parameters) < Double.POSITIVE_INFINITY);
+    }
+    return false;
+  }
+
   /**
    * Compute the quality of a given fitting.
    *
@@ -65,13 +140,42 @@ public class FittingJob extends ToolJob implements IFittingJob {
    */
   protected final double evaluate(final double[] params) {
     final double res;
-    res = this.m_measure.evaluate(this.m_function, params);
+    this.countEvaluation();
+    res = this._getEvaluationMeasure().evaluate(this.m_function, params);
     this.register(res, params);
     return res;
   }
 
   /**
-   * Register a solution
+   * Get the quality measure used by {@link #evaluate(double[])}. This is
+   * {@link #m_measure}, unless the job currently searches on a coreset.
+   *
+   * @return the quality measure used by {@link #evaluate(double[])}
+   */
+  IFittingQualityMeasure _getEvaluationMeasure() {
+    return this.m_measure;
+  }
+
+  /**
+   * Forget the quality of the best solution found so far, but keep the
+   * solution itself, so that solutions evaluated with a different quality
+   * measure can be registered from now on.
+   */
+  final void _forgetBestQuality() {
+    this.m_best.set(new __Best(this.m_best.get().m_parameters,
+        Double.POSITIVE_INFINITY));
+  }
+
+  /**
+   * Register a solution. This method is thread-safe and lock-free: The
+   * common case of a solution which is not better than the best one
+   * found so far only needs a single read, and an improvement replaces
+   * the best solution with a compare-and-set. Only qualities measured on
+   * all points are compared with the target quality and recorded in the
+   * metrics: while the job searches on a coreset, an improvement there
+   * says nothing reliable about the quality on all points, which is
+   * only known after the best solution has been evaluated on all points
+   * at the end of the search.
    *
    * @param quality
    *          the solution quality
@@ -80,10 +184,69 @@ public class FittingJob extends ToolJob implements IFittingJob {
    */
   protected final void register(final double quality,
       final double[] params) {
-    if ((quality < this.m_quality) && (quality >= 0d)) {
-      System.arraycopy(params, 0, this.m_result, 0, this.m_result.length);
-      this.m_quality = quality;
+    __Best current, improved;
+
+    if ((quality < 0d) || (quality != quality)) {
+      return;
+    }
+
+    current = this.m_best.get();
+    if (quality >= current.m_quality) {
+      return;
     }
+
+    improved = new __Best(params.clone(), quality);
+    while (!(this.m_best.compareAndSet(current, improved))) {
+      current = this.m_best.get();
+      if (quality >= current.m_quality) {
+        return;
+      }
+    }
+
+    if (this._getEvaluationMeasure() != this.m_measure) {
+      return;
+    }
+    if (this.m_metrics != null) {
+      this.m_metrics._improved(quality);
+    }
+    if (quality <= this.m_targetQuality) {
+      this.m_budgetExhausted = true;
+    }
+  }
+
+  /**
+   * Count an evaluation of the objective function and check the budget
+   * of the job. This method must be called before each evaluation. If
+   * the time limit or the maximum number of evaluations has been
+   * exceeded or the target quality has been reached, the fitting
+   * procedure is aborted and the job returns the best solution found so
+   * far. This method is thread-safe.
+   */
+  protected final void countEvaluation() {
+    if (this.m_budgetExhausted) {
+      throw _BudgetExhaustedException.INSTANCE;
+    }
+    if (this.m_evaluations != null) {
+      if ((this.m_evaluations.incrementAndGet() > this.m_maxEvaluations)
+          || ((this.m_timeLimit < Long.MAX_VALUE)
+              && ((System.nanoTime() - this.m_deadline) > 0L))) {
+        this.m_budgetExhausted = true;
+        throw _BudgetExhaustedException.INSTANCE;
+      }
+    }
+  }
+
+  /**
+   * Check whether the budget of the job has been exhausted, i.e., whether
+   * it should stop and return the best solution found so far. Fitting
+   * procedures do not need to check this in their loops, since the next
+   * evaluation of the objective function will abort them anyway.
+   *
+   * @return {@code true} if the budget has been exhausted, {@code false}
+   *         otherwise
+   */
+  protected final boolean isBudgetExhausted() {
+    return this.m_budgetExhausted;
   }
 
   /**
@@ -111,6 +274,7 @@ public class FittingJob extends ToolJob implements IFittingJob {
   @Override
   public final FittingResult call() throws IllegalArgumentException {
     final Logger logger;
+    __Best best;
     MemoryTextOutput textOut;
     Throwable error;
     String message;
@@ -129,18 +293,34 @@ public class FittingJob extends ToolJob implements IFittingJob {
     }
 
     try {
-      this.fit();
+      if (this.m_timeLimit < Long.MAX_VALUE) {
+        this.m_deadline = (System.nanoTime() + this.m_timeLimit);
+      }
+      if (this.m_metrics != null) {
+        this.m_metrics._start();
+      }
+      try {
+        if (!(this.__fitInClosedForm())) {
+          this.fit();
+        }
+      } catch (@SuppressWarnings("unused") final _BudgetExhaustedException exhausted) {
+        // the budget is exhausted: use the best solution found so far
+      }
+      if (this.m_metrics != null) {
+        this.m_metrics._finish(this.m_evaluations.get());
+      }
 
+      best = this.m_best.get();
       canLog = (logger != null) && (logger.isLoggable(Level.FINER));
-      isFinite = ((this.m_quality >= 0d)
-          && (this.m_quality < Double.POSITIVE_INFINITY));
+      isFinite = ((best.m_quality >= 0d)
+          && (best.m_quality < Double.POSITIVE_INFINITY));
       if (canLog || (!isFinite)) {
         if (textOut == null) {
           textOut = this.__createMessageBody();
         }
         textOut.append(", obtained result ");//$NON-NLS-1$
-        FittingUtils.renderFittingResult(this.m_result, this.m_quality,
-            textOut);
+        FittingUtils.renderFittingResult(best.m_parameters,
+            best.m_quality, textOut);
         message = null;
       }
 
@@ -150,8 +330,8 @@ public class FittingJob extends ToolJob implements IFittingJob {
           logger.finer("Finished fitting" + //$NON-NLS-1$
               textOut.toString());
         }
-        return new FittingResult(this.m_result, this.m_quality,
-            this.m_function);
+        return new FittingResult(best.m_parameters, best.m_quality,
+            this.m_function, this.m_metrics);
       }
     } catch (final Throwable cause) {
       error = cause;
@@ -183,6 +363,36 @@ public class FittingJob extends ToolJob implements IFittingJob {
    *          the destination record
    */
   protected final void getCopyOfBest(final FittingCandidateSolution dest) {
-    dest.assign(this.m_result, this.m_quality);
+    final __Best best;
+
+    best = this.m_best.get();
+    dest.assign(best.m_parameters, best.m_quality);
+  }
+
+  /**
+   * An immutable record of the best solution found so far. Records are
+   * never modified after their creation, so they can be shared among
+   * threads and replaced atomically.
+   */
+  private static final class __Best {
+
+    /** the parameters */
+    final double[] m_parameters;
+    /** the quality */
+    final double m_quality;
+
+    /**
+     * create the record
+     *
+     * @param parameters
+     *          the parameters, which must not be modified afterwards
+     * @param quality
+     *          the quality
+     */
+    __Best(final double[] parameters, final double quality) {
+      super();
+      this.m_parameters = parameters;
+      this.m_quality = quality;
+    }
   }
 }
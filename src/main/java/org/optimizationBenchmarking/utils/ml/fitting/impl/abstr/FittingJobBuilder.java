@@ -1,9 +1,10 @@
 package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
 
 import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
-import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJobBuilder;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
 import org.optimizationBenchmarking.utils.tools.impl.abstr.ToolJobBuilder;
 
@@ -16,7 +17,7 @@ public class FittingJobBuilder
   private final FunctionFitter m_tool;
 
   /** the {@code x-y}-coordinate pairs */
-  private IMatrix m_points;
+  private PreparedDataset m_points;
 
   /** a function to fit */
   private ParametricUnaryFunction m_function;
@@ -24,6 +25,28 @@ public class FittingJobBuilder
   /** the fitting quality measure */
   private IFittingQualityMeasure m_measure;
 
+  /** should the job use multiple threads? */
+  private boolean m_parallel;
+
+  /** the fraction of the iteration budgets to grant to the job */
+  private double m_effort;
+
+  /** the starting points, or {@code null} if none were provided */
+  private double[][] m_startingPoints;
+
+  /** the time limit in milliseconds */
+  private long m_timeLimit;
+  /** the maximum number of objective function evaluations */
+  private long m_maxEvaluations;
+  /** the target quality */
+  private double m_targetQuality;
+
+  /** should metrics be collected? */
+  private boolean m_collectMetrics;
+
+  /** the coreset size, or {@code 0} if no coreset should be used */
+  private int m_coresetSize;
+
   /**
    * create
    *
@@ -33,13 +56,24 @@ public class FittingJobBuilder
   protected FittingJobBuilder(final FunctionFitter owner) {
     super();
     this.m_tool = owner;
+    this.m_effort = 1d;
+    this.m_timeLimit = Long.MAX_VALUE;
+    this.m_maxEvaluations = Long.MAX_VALUE;
+    this.m_targetQuality = Double.NEGATIVE_INFINITY;
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The points are converted to a {@link PreparedDataset}, unless they
+   * already are one. If the same points are fitted by several jobs, it is
+   * thus best to {@linkplain PreparedDataset#prepare(IMatrix) prepare}
+   * them once and pass the prepared data set to all job builders.
+   * </p>
+   */
   @Override
   public final FittingJobBuilder setPoints(final IMatrix points) {
-    FittingQualityMeasure.validateData(points);
-    this.m_points = points;
+    this.m_points = PreparedDataset.prepare(points);
     return this;
   }
 
@@ -52,12 +86,340 @@ public class FittingJobBuilder
     return this;
   }
 
+  /**
+   * Set whether the fitting job should use multiple threads. Fitters
+   * which work on populations of candidate solutions, such as
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter}
+   * and
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter}
+   * , can then evaluate and refine the solutions of a generation in
+   * parallel, and
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter}
+   * can run its independent restarts in parallel. This is useful if a
+   * single, large data set is to be fitted on a machine with many cores.
+   * Other fitters ignore this setting. By default, jobs are
+   * single-threaded.
+   *
+   * @param parallel
+   *          {@code true} if the job may use multiple threads,
+   *          {@code false} if it should only use the calling thread
+   * @return this builder
+   */
+  public final FittingJobBuilder setParallel(final boolean parallel) {
+    this.m_parallel = parallel;
+    return this;
+  }
+
+  /**
+   * Check whether the fitting job may use multiple threads
+   *
+   * @return {@code true} if the job may use multiple threads,
+   *         {@code false} if it should only use the calling thread
+   * @see #setParallel(boolean)
+   */
+  public final boolean isParallel() {
+    return this.m_parallel;
+  }
+
+  /**
+   * Set the effort the fitting job should invest, as fraction of its
+   * normal iteration budgets. Jobs based on numerical optimization scale
+   * the maximum iterations of their least squares and optimization
+   * methods by this factor. A low effort is useful to quickly get a rough
+   * idea of how well a function fits the data, e.g., to decide which of
+   * several functions is worth a full fitting. By default, the effort is
+   * {@code 1}.
+   *
+   * @param effort
+   *          the effort, in {@code (0, 1]}
+   * @return this builder
+   */
+  public final FittingJobBuilder setEffort(final double effort) {
+    FittingJobBuilder.validateEffort(effort);
+    this.m_effort = effort;
+    return this;
+  }
+
+  /**
+   * Get the effort the fitting job should invest
+   *
+   * @return the effort, in {@code (0, 1]}
+   * @see #setEffort(double)
+   */
+  public final double getEffort() {
+    return this.m_effort;
+  }
+
+  /**
+   * Validate the effort of a fitting job
+   *
+   * @param effort
+   *          the effort
+   */
+  public static final void validateEffort(final double effort) {
+    if ((effort > 0d) && (effort <= 1d)) {
+      return;
+    }
+    throw new IllegalArgumentException(//
+        "Effort must be in (0, 1], but is " + effort); //$NON-NLS-1$
+  }
+
+  /**
+   * Set the starting points for the fitting process, e.g., the parameters
+   * of a function fitted to a previous version of the data. Fitting jobs
+   * based on numerical optimization then seed their initial solutions
+   * from these points (and random perturbations of them) instead of only
+   * using the random guesses of the function's parameter guesser. Since
+   * good starting points make most restarts unnecessary, such jobs will
+   * also reduce their restart budgets. Starting points whose length does
+   * not match the number of parameters of the function to fit or which
+   * contain non-finite values are ignored.
+   *
+   * @param points
+   *          the starting points, or {@code null} to use only random
+   *          guesses
+   * @return this builder
+   */
+  public final FittingJobBuilder setStartingPoints(
+      final double[]... points) {
+    final double[][] copy;
+    int index;
+
+    if ((points == null) || (points.length <= 0)) {
+      this.m_startingPoints = null;
+      return this;
+    }
+
+    copy = new double[points.length][];
+    for (index = copy.length; (--index) >= 0;) {
+      if (points[index] == null) {
+        throw new IllegalArgumentException(//
+            "Starting point cannot be null."); //$NON-NLS-1$
+      }
+      copy[index] = points[index].clone();
+    }
+    this.m_startingPoints = copy;
+    return this;
+  }
+
+  /**
+   * Set the starting points for the fitting process from the results of
+   * previous fitting processes.
+   *
+   * @param results
+   *          the previous fitting results, or {@code null} to use only
+   *          random guesses
+   * @return this builder
+   * @see #setStartingPoints(double[][])
+   */
+  public final FittingJobBuilder setStartingPoints(
+      final IFittingResult... results) {
+    final double[][] points;
+    int index;
+
+    if ((results == null) || (results.length <= 0)) {
+      this.m_startingPoints = null;
+      return this;
+    }
+
+    points = new double[results.length][];
+    for (index = points.length; (--index) >= 0;) {
+      if (results[index] == null) {
+        throw new IllegalArgumentException(//
+            "Previous fitting result cannot be null."); //$NON-NLS-1$
+      }
+      points[index] = results[index].getFittedParametersRef().clone();
+    }
+    this.m_startingPoints = points;
+    return this;
+  }
+
+  /**
+   * Get the starting points for the fitting process. The returned array
+   * must not be modified.
+   *
+   * @return the starting points, or {@code null} if none were provided
+   * @see #setStartingPoints(double[][])
+   */
+  public final double[][] getStartingPoints() {
+    return this.m_startingPoints;
+  }
+
+  /**
+   * Set the maximum time the fitting job may take. If the time is up,
+   * the job stops and returns the best result found so far. The limit is
+   * checked whenever the objective function is evaluated, so it may be
+   * exceeded by the time needed for a single evaluation. By default,
+   * there is no time limit.
+   *
+   * @param milliseconds
+   *          the time limit in milliseconds, or {@link Long#MAX_VALUE} for
+   *          no limit
+   * @return this builder
+   */
+  public final FittingJobBuilder setTimeLimit(final long milliseconds) {
+    if (milliseconds <= 0L) {
+      throw new IllegalArgumentException(//
+          "Time limit must be positive, but is " //$NON-NLS-1$
+              + milliseconds);
+    }
+    this.m_timeLimit = milliseconds;
+    return this;
+  }
+
+  /**
+   * Get the maximum time the fitting job may take
+   *
+   * @return the time limit in milliseconds, or {@link Long#MAX_VALUE} if
+   *         there is no limit
+   * @see #setTimeLimit(long)
+   */
+  public final long getTimeLimit() {
+    return this.m_timeLimit;
+  }
+
+  /**
+   * Set the maximum number of objective function evaluations, i.e., of
+   * computations of the fitting quality or residuals of a parameter
+   * vector. Once this number is exceeded, the job stops and returns the
+   * best result found so far. By default, there is no limit.
+   *
+   * @param maxEvaluations
+   *          the maximum number of evaluations, or {@link Long#MAX_VALUE}
+   *          for no limit
+   * @return this builder
+   */
+  public final FittingJobBuilder setMaxEvaluations(
+      final long maxEvaluations) {
+    if (maxEvaluations <= 0L) {
+      throw new IllegalArgumentException(//
+          "Maximum number of evaluations must be positive, but is " //$NON-NLS-1$
+              + maxEvaluations);
+    }
+    this.m_maxEvaluations = maxEvaluations;
+    return this;
+  }
+
+  /**
+   * Get the maximum number of objective function evaluations
+   *
+   * @return the maximum number of evaluations, or {@link Long#MAX_VALUE}
+   *         if there is no limit
+   * @see #setMaxEvaluations(long)
+   */
+  public final long getMaxEvaluations() {
+    return this.m_maxEvaluations;
+  }
+
+  /**
+   * Set the target quality: Once a solution with a quality less than or
+   * equal to this value has been found, the job stops and returns it. By
+   * default, the job always runs until its normal end.
+   *
+   * @param targetQuality
+   *          the target quality, or {@link Double#NEGATIVE_INFINITY} to
+   *          never stop early
+   * @return this builder
+   */
+  public final FittingJobBuilder setTargetQuality(
+      final double targetQuality) {
+    if ((targetQuality != targetQuality)
+        || (targetQuality >= Double.POSITIVE_INFINITY)) {
+      throw new IllegalArgumentException(//
+          "Target quality must not be NaN or +infinity, but is " //$NON-NLS-1$
+              + targetQuality);
+    }
+    this.m_targetQuality = targetQuality;
+    return this;
+  }
+
+  /**
+   * Get the target quality
+   *
+   * @return the target quality, or {@link Double#NEGATIVE_INFINITY} if
+   *         the job never stops early
+   * @see #setTargetQuality(double)
+   */
+  public final double getTargetQuality() {
+    return this.m_targetQuality;
+  }
+
+  /**
+   * Set whether the fitting job should collect {@link FittingMetrics}
+   * about its progress, which can then be obtained via
+   * {@link FittingResult#getMetrics()}. Collecting metrics incurs a small
+   * overhead, so it is disabled by default.
+   *
+   * @param collectMetrics
+   *          {@code true} to collect metrics, {@code false} otherwise
+   * @return this builder
+   */
+  public final FittingJobBuilder setCollectMetrics(
+      final boolean collectMetrics) {
+    this.m_collectMetrics = collectMetrics;
+    return this;
+  }
+
+  /**
+   * Should the fitting job collect metrics?
+   *
+   * @return {@code true} if metrics are collected, {@code false}
+   *         otherwise
+   * @see #setCollectMetrics(boolean)
+   */
+  public final boolean isCollectingMetrics() {
+    return this.m_collectMetrics;
+  }
+
+  /**
+   * Set the size of the coreset on which the fitting job should perform
+   * its search. For very large data sets, say, with millions of points,
+   * the job then reduces the points to a coreset of at most
+   * {@code size} points which is stratified in {@code x} and whose
+   * weights are scaled to represent all points, see
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError#coreset(int, java.util.Random)}
+   * . All global search phases of an {@link OptimizationBasedFittingJob}
+   * run on the coreset, only the final Levenberg-Marquardt refinement of
+   * the best solution uses all points. A few thousand points usually
+   * suffice. This setting only has an effect if the quality measure is
+   * the
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError}
+   * and if there are more points than {@code size}. By default, no
+   * coreset is used.
+   *
+   * @param size
+   *          the maximum number of points of the coreset, or {@code 0} to
+   *          always use all points
+   * @return this builder
+   */
+  public final FittingJobBuilder setCoresetSize(final int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException(//
+          "Coreset size must not be negative, but is " //$NON-NLS-1$
+              + size);
+    }
+    this.m_coresetSize = size;
+    return this;
+  }
+
+  /**
+   * Get the size of the coreset on which the fitting job should perform
+   * its search.
+   *
+   * @return the maximum number of points of the coreset, or {@code 0} if
+   *         all points are used
+   * @see #setCoresetSize(int)
+   */
+  public final int getCoresetSize() {
+    return this.m_coresetSize;
+  }
+
   /**
    * Get the matrix with the points to be fitted.
    *
    * @return the matrix with the points to be fitted
    */
-  public final IMatrix getPoints() {
+  public final PreparedDataset getPoints() {
     return this.m_points;
   }
 
@@ -0,0 +1,331 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Arrays;
+
+import org.optimizationBenchmarking.utils.text.textOutput.MemoryTextOutput;
+
+/**
+ * <p>
+ * Metrics collected during a fitting job: the number of objective
+ * function evaluations, the number and duration of the initial guesses
+ * and of the calls to the local search methods, how often an improved
+ * solution was rejected by
+ * {@link OptimizationBasedFittingJob#checkImprovedSolution(FittingCandidateSolution)}
+ * , and a trace of the best solution quality over time.
+ * </p>
+ * <p>
+ * Metrics are only collected if this was
+ * {@linkplain FittingJobBuilder#setCollectMetrics(boolean) requested} when
+ * building the job. They can then be obtained via
+ * {@link FittingResult#getMetrics()}. All times are measured in
+ * nanoseconds and all points in time are relative to the start of the
+ * job.
+ * </p>
+ */
+public final class FittingMetrics {
+
+  /** the index of the Levenberg-Marquardt algorithm */
+  public static final int LEVENBERG_MARQUARDT = 0;
+  /** the index of the Nelder-Mead simplex algorithm */
+  public static final int NELDER_MEAD = (FittingMetrics.LEVENBERG_MARQUARDT
+      + 1);
+  /** the index of the BOBYQA algorithm */
+  public static final int BOBYQA = (FittingMetrics.NELDER_MEAD + 1);
+  /** the index of the CMA-ES algorithm */
+  public static final int CMAES = (FittingMetrics.BOBYQA + 1);
+  /** the number of local search methods */
+  public static final int METHOD_COUNT = (FittingMetrics.CMAES + 1);
+
+  /** the names of the methods */
+  private static final String[] NAMES = { "Levenberg-Marquardt", //$NON-NLS-1$
+      "Nelder-Mead", //$NON-NLS-1$
+      "BOBYQA", //$NON-NLS-1$
+      "CMA-ES" };//$NON-NLS-1$
+
+  /** the number of calls to each local search method */
+  private final long[] m_refinements;
+  /** the time spent in each local search method */
+  private final long[] m_refinementNanos;
+  /** the number of improvements found by each local search method */
+  private final long[] m_improvements;
+  /** the number of failed calls to each local search method */
+  private final long[] m_failures;
+
+  /** the number of rejected improvements */
+  private long m_rejections;
+  /** the number of initial guesses */
+  private long m_guesses;
+  /** the time spent for creating initial guesses */
+  private long m_guessNanos;
+  /** the number of objective function evaluations */
+  private long m_evaluations;
+  /** the total runtime */
+  private long m_runtimeNanos;
+
+  /** the start time */
+  private long m_startTime;
+
+  /** the points in time of the quality trace */
+  private long[] m_traceTimes;
+  /** the qualities of the quality trace */
+  private double[] m_traceQualities;
+  /** the length of the trace */
+  private int m_traceLength;
+
+  /** create */
+  FittingMetrics() {
+    super();
+    this.m_refinements = new long[FittingMetrics.METHOD_COUNT];
+    this.m_refinementNanos = new long[FittingMetrics.METHOD_COUNT];
+    this.m_improvements = new long[FittingMetrics.METHOD_COUNT];
+    this.m_failures = new long[FittingMetrics.METHOD_COUNT];
+    this.m_traceTimes = new long[16];
+    this.m_traceQualities = new double[16];
+  }
+
+  /** start the measurement */
+  final void _start() {
+    this.m_startTime = System.nanoTime();
+  }
+
+  /**
+   * finish the measurement
+   *
+   * @param evaluations
+   *          the total number of evaluations
+   */
+  final synchronized void _finish(final long evaluations) {
+    this.m_runtimeNanos = (System.nanoTime() - this.m_startTime);
+    this.m_evaluations = evaluations;
+  }
+
+  /**
+   * Record a call to a local search method
+   *
+   * @param method
+   *          the method index
+   * @param nanos
+   *          the time spent
+   * @param result
+   *          the result code
+   */
+  final synchronized void _refined(final int method, final long nanos,
+      final int result) {
+    ++this.m_refinements[method];
+    this.m_refinementNanos[method] += nanos;
+    if (result == OptimizationBasedFittingJob.RET_IMPROVEMENT) {
+      ++this.m_improvements[method];
+    } else {
+      if (result == OptimizationBasedFittingJob.RET_FAILED) {
+        ++this.m_failures[method];
+      }
+    }
+  }
+
+  /** Record that an improved solution was rejected */
+  final synchronized void _rejected() {
+    ++this.m_rejections;
+  }
+
+  /**
+   * Record the creation of initial guesses
+   *
+   * @param count
+   *          the number of guesses
+   * @param nanos
+   *          the time spent
+   */
+  final synchronized void _guessed(final int count, final long nanos) {
+    this.m_guesses += count;
+    this.m_guessNanos += nanos;
+  }
+
+  /**
+   * Record an improvement of the best solution of the job
+   *
+   * @param quality
+   *          the new best quality
+   */
+  final synchronized void _improved(final double quality) {
+    final int length;
+
+    length = this.m_traceLength;
+    if (length >= this.m_traceTimes.length) {
+      this.m_traceTimes = Arrays.copyOf(this.m_traceTimes, (length << 1));
+      this.m_traceQualities = Arrays.copyOf(this.m_traceQualities,
+          (length << 1));
+    }
+    this.m_traceTimes[length] = (System.nanoTime() - this.m_startTime);
+    this.m_traceQualities[length] = quality;
+    this.m_traceLength = (length + 1);
+  }
+
+  /**
+   * Get the total number of objective function evaluations, both on all
+   * and on subsets of the points
+   *
+   * @return the total number of objective function evaluations
+   */
+  public final synchronized long getEvaluations() {
+    return this.m_evaluations;
+  }
+
+  /**
+   * Get the total runtime of the job
+   *
+   * @return the total runtime of the job in nanoseconds
+   */
+  public final synchronized long getRuntimeNanos() {
+    return this.m_runtimeNanos;
+  }
+
+  /**
+   * Get the number of initial guesses created
+   *
+   * @return the number of initial guesses created
+   */
+  public final synchronized long getGuesses() {
+    return this.m_guesses;
+  }
+
+  /**
+   * Get the time spent creating initial guesses
+   *
+   * @return the time spent creating initial guesses, in nanoseconds
+   */
+  public final synchronized long getGuessNanos() {
+    return this.m_guessNanos;
+  }
+
+  /**
+   * Get the number of calls to a local search method
+   *
+   * @param method
+   *          the method, e.g., {@link #LEVENBERG_MARQUARDT}
+   * @return the number of calls
+   */
+  public final synchronized long getRefinements(final int method) {
+    return this.m_refinements[method];
+  }
+
+  /**
+   * Get the time spent in a local search method
+   *
+   * @param method
+   *          the method, e.g., {@link #LEVENBERG_MARQUARDT}
+   * @return the time spent in nanoseconds
+   */
+  public final synchronized long getRefinementNanos(final int method) {
+    return this.m_refinementNanos[method];
+  }
+
+  /**
+   * Get the number of calls to a local search method which improved the
+   * solution they were applied to
+   *
+   * @param method
+   *          the method, e.g., {@link #LEVENBERG_MARQUARDT}
+   * @return the number of improvements
+   */
+  public final synchronized long getImprovements(final int method) {
+    return this.m_improvements[method];
+  }
+
+  /**
+   * Get the number of calls to a local search method which failed to
+   * produce any valid solution
+   *
+   * @param method
+   *          the method, e.g., {@link #LEVENBERG_MARQUARDT}
+   * @return the number of failures
+   */
+  public final synchronized long getFailures(final int method) {
+    return this.m_failures[method];
+  }
+
+  /**
+   * Get the number of improved solutions which were rejected by
+   * {@link OptimizationBasedFittingJob#checkImprovedSolution(FittingCandidateSolution)}
+   *
+   * @return the number of rejected improvements
+   */
+  public final synchronized long getRejections() {
+    return this.m_rejections;
+  }
+
+  /**
+   * Get the number of entries in the quality trace, i.e., how often the
+   * best solution of the job was improved
+   *
+   * @return the length of the quality trace
+   */
+  public final synchronized int getTraceLength() {
+    return this.m_traceLength;
+  }
+
+  /**
+   * Get the point in time of an entry of the quality trace
+   *
+   * @param index
+   *          the index of the entry
+   * @return the time since the start of the job in nanoseconds
+   */
+  public final synchronized long getTraceTimeNanos(final int index) {
+    if ((index < 0) || (index >= this.m_traceLength)) {
+      throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+    return this.m_traceTimes[index];
+  }
+
+  /**
+   * Get the quality of an entry of the quality trace
+   *
+   * @param index
+   *          the index of the entry
+   * @return the best quality found up to that point in time
+   */
+  public final synchronized double getTraceQuality(final int index) {
+    if ((index < 0) || (index >= this.m_traceLength)) {
+      throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+    return this.m_traceQualities[index];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final synchronized String toString() {
+    final MemoryTextOutput textOut;
+    int index;
+
+    textOut = new MemoryTextOutput(256);
+    textOut.append(this.m_evaluations);
+    textOut.append(" evaluations in ");//$NON-NLS-1$
+    textOut.append(this.m_runtimeNanos);
+    textOut.append("ns, ");//$NON-NLS-1$
+    textOut.append(this.m_guesses);
+    textOut.append(" guesses in ");//$NON-NLS-1$
+    textOut.append(this.m_guessNanos);
+    textOut.append("ns");//$NON-NLS-1$
+    for (index = 0; index < FittingMetrics.METHOD_COUNT; index++) {
+      if (this.m_refinements[index] > 0L) {
+        textOut.append(", ");//$NON-NLS-1$
+        textOut.append(FittingMetrics.NAMES[index]);
+        textOut.append(": ");//$NON-NLS-1$
+        textOut.append(this.m_refinements[index]);
+        textOut.append(" calls in ");//$NON-NLS-1$
+        textOut.append(this.m_refinementNanos[index]);
+        textOut.append("ns with ");//$NON-NLS-1$
+        textOut.append(this.m_improvements[index]);
+        textOut.append(" improvements and ");//$NON-NLS-1$
+        textOut.append(this.m_failures[index]);
+        textOut.append(" failures");//$NON-NLS-1$
+      }
+    }
+    textOut.append(", ");//$NON-NLS-1$
+    textOut.append(this.m_rejections);
+    textOut.append(" rejected improvements, ");//$NON-NLS-1$
+    textOut.append(this.m_traceLength);
+    textOut.append(" improvements of the best solution");//$NON-NLS-1$
+    return textOut.toString();
+  }
+}
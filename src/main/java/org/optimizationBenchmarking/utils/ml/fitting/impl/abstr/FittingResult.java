@@ -16,6 +16,9 @@ public final class FittingResult implements IFittingResult {
   /** the solution quality */
   private final double m_quality;
 
+  /** the metrics, or {@code null} if none were collected */
+  private final FittingMetrics m_metrics;
+
   /** the internal hash code */
   private int m_hashCode;
 
@@ -28,12 +31,27 @@ public final class FittingResult implements IFittingResult {
    *          the quality
    * @param function
    *          the function
+   * @param metrics
+   *          the metrics, or {@code null} if none were collected
    */
   FittingResult(final double[] result, final double quality,
-      final ParametricUnaryFunction function) {
+      final ParametricUnaryFunction function,
+      final FittingMetrics metrics) {
     this.m_function = function;
     this.m_quality = quality;
     this.m_solution = result;
+    this.m_metrics = metrics;
+  }
+
+  /**
+   * Get the metrics collected during the fitting process
+   *
+   * @return the metrics, or {@code null} if the fitting job was not
+   *         {@linkplain FittingJobBuilder#setCollectMetrics(boolean)
+   *         asked} to collect them
+   */
+  public final FittingMetrics getMetrics() {
+    return this.m_metrics;
   }
 
   /** {@inheritDoc} */
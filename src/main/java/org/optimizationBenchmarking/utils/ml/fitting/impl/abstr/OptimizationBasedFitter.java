@@ -172,8 +172,6 @@ public abstract class OptimizationBasedFitter extends FunctionFitter {
           "org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction", //$NON-NLS-1$
           "org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer", //$NON-NLS-1$
           "org.apache.commons.math3.optim.nonlinear.scalar.noderiv.CMAESOptimizer", //$NON-NLS-1$
-          "org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex", //$NON-NLS-1$
-          "org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer", //$NON-NLS-1$
           "org.apache.commons.math3.random.JDKRandomGenerator", //$NON-NLS-1$
           "org.apache.commons.math3.util.FastMath", //$NON-NLS-1$
           "org.apache.commons.math3.util.Incrementor" //$NON-NLS-1$
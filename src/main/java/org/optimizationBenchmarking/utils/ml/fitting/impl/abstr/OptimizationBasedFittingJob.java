@@ -1,15 +1,19 @@
 package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.math3.analysis.MultivariateFunction;
 import org.apache.commons.math3.exception.MathIllegalStateException;
 import org.apache.commons.math3.exception.NumberIsTooSmallException;
 import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
 import org.apache.commons.math3.exception.util.LocalizedFormats;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresProblem;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresProblem.Evaluation;
-import org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.QRDecomposition;
@@ -22,16 +26,17 @@ import org.apache.commons.math3.optim.MaxIter;
 import org.apache.commons.math3.optim.PointValuePair;
 import org.apache.commons.math3.optim.SimpleBounds;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
-import org.apache.commons.math3.optim.nonlinear.scalar.MultivariateOptimizer;
 import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
 import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.CMAESOptimizer;
-import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex;
-import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
 import org.apache.commons.math3.random.JDKRandomGenerator;
 import org.apache.commons.math3.util.FastMath;
 import org.apache.commons.math3.util.Incrementor;
+import org.optimizationBenchmarking.utils.math.MathUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.guessers.DefaultParameterGuesser;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
 
 /**
  * A function fitting job which has some basic provisions to utilize
@@ -60,46 +65,58 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
   protected static final int RET_NO_IMPROVEMENT = (OptimizationBasedFittingJob.RET_FAILED
       + 1);
 
-  /** the selected points */
-  private IFittingQualityMeasure m_selected;
-
-  /** the evaluation counter */
-  private Incrementor m_evaluationCounter;
-  /** the iteration counter */
-  private Incrementor m_iterationCounter;
-
-  /** the start vector */
-  private ArrayRealVector m_startVector;
-  /** the start vector data */
-  private double[] m_startVectorData;
-
-  /** the objective function */
-  private ObjectiveFunction m_objective;
   /** the maximum evaluations */
   private MaxEval m_maxEval;
   /** the maximum iterations */
   private MaxIter m_maxIter;
   /** the shared point value pair checker */
-  private __PointValuePairChecker m_pointValuePairChecker;
-
-  /** the Levenberg-Marquardt optimizer */
-  private LevenbergMarquardtOptimizer m_levenbergMarquardt;
-  /** the simplex optimizer */
-  private SimplexOptimizer m_simplex;
-  /** the bobyqa optimizer */
-  private __SafeBOBYQAOptimizer m_bobyqa;
-  /** the CMA-ES optimizer */
-  private CMAESOptimizer m_cmaes;
-
-  /** the maximum iterations granted to least squares methods */
+  private final __PointValuePairChecker m_pointValuePairChecker;
+  /** the evaluation counter of the least squares problem */
+  private Incrementor m_evaluationCounter;
+  /** the iteration counter of the least squares problem */
+  private Incrementor m_iterationCounter;
+
+  /**
+   * the maximum iterations granted to least squares methods, scaled by
+   * the effort
+   */
   private int m_leastSquaresMaxIterations;
-  /** the maximum iterations granted to optimization algorithms */
+  /**
+   * the maximum iterations granted to optimization algorithms, scaled by
+   * the effort
+   */
   private int m_optimizerMaxIterations;
+  /**
+   * the maximum iterations for least squares methods requested by the
+   * fitting algorithm
+   */
+  private int m_leastSquaresMaxIterationsRequested;
+  /**
+   * the maximum iterations for optimization algorithms requested by the
+   * fitting algorithm
+   */
+  private int m_optimizerMaxIterationsRequested;
+  /** the fraction of the iteration budgets to grant */
+  private final double m_effort;
+
+  /** should populations be processed in parallel? */
+  private final boolean m_parallel;
 
-  /** the best solution found in the internal optimization steps */
-  private double[] m_bestData;
-  /** the best quality found in the internal optimization steps */
-  private double m_bestQuality;
+  /** the valid starting points, or {@code null} if there are none */
+  private final double[][] m_startingPoints;
+
+  /** the coreset size, or {@code 0} if no coreset should be used */
+  private final int m_coresetSize;
+  /**
+   * the quality measure on which the search is performed: either the
+   * coreset or {@link #m_measure}
+   */
+  private volatile IFittingQualityMeasure m_searchMeasure;
+
+  /** the evaluation context of the thread running the job */
+  private EvaluationContext m_context;
+  /** the evaluation contexts for parallel processing */
+  private EvaluationContext[] m_parallelContexts;
 
   /**
    * create the fitting job
@@ -108,25 +125,297 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
    *          the builder
    */
   protected OptimizationBasedFittingJob(final FittingJobBuilder builder) {
+    this(builder, builder.isParallel());
+  }
+
+  /**
+   * create the fitting job
+   *
+   * @param builder
+   *          the builder
+   * @param parallel
+   *          should the job run in
+   *          {@linkplain FittingJobBuilder#setParallel(boolean) parallel
+   *          mode}, regardless of the setting of the {@code builder}?
+   */
+  protected OptimizationBasedFittingJob(final FittingJobBuilder builder,
+      final boolean parallel) {
     super(builder);
     final int dim;
 
-    this.m_leastSquaresMaxIterations = OptimizationBasedFittingJob.DEFAULT_LEAST_SQUARES_MAX_ITERATIONS;
+    this.m_effort = builder.getEffort();
+    this.setLeastSquaresMaxIterations(
+        OptimizationBasedFittingJob.DEFAULT_LEAST_SQUARES_MAX_ITERATIONS);
 
     dim = this.m_function.getParameterCount();
-    this.m_optimizerMaxIterations = (dim * dim * 300);
-    this.m_selected = this.m_measure;
+    this.setNumericalOptimizerMaxIterations(dim * dim * 300);
+    this.m_pointValuePairChecker = new __PointValuePairChecker();
+    this.m_parallel = parallel;
+    this.m_startingPoints = OptimizationBasedFittingJob
+        .__validStartingPoints(builder.getStartingPoints(), dim);
+    this.m_coresetSize = builder.getCoresetSize();
+    this.m_searchMeasure = this.m_measure;
+  }
+
+  /**
+   * Select the starting points which can be used for the function to fit
+   *
+   * @param points
+   *          the starting points provided to the builder, or {@code null}
+   * @param dim
+   *          the number of parameters of the function to fit
+   * @return the usable starting points, or {@code null} if there are none
+   */
+  private static final double[][] __validStartingPoints(
+      final double[][] points, final int dim) {
+    final double[][] valid;
+    int count;
+
+    if (points == null) {
+      return null;
+    }
+
+    valid = new double[points.length][];
+    count = 0;
+    outer: for (final double[] point : points) {
+      if (point.length != dim) {
+        continue outer;
+      }
+      for (final double value : point) {
+        if (!(MathUtils.isFinite(value))) {
+          continue outer;
+        }
+      }
+      valid[count++] = point;
+    }
+
+    if (count <= 0) {
+      return null;
+    }
+    return ((count < valid.length) ? Arrays.copyOf(valid, count) : valid);
+  }
+
+  /**
+   * Were starting points provided for this job?
+   *
+   * @return {@code true} if there are starting points, {@code false} if
+   *         the job needs to start from random guesses
+   * @see FittingJobBuilder#setStartingPoints(double[][])
+   */
+  protected final boolean hasStartingPoints() {
+    return (this.m_startingPoints != null);
   }
 
   /**
-   * Set the maximum number of iterations for least squares algorithms
+   * Create the {@code index}-th initial guess. If no starting points were
+   * provided, this is just a random guess created by the parameter
+   * guesser. Otherwise, the first guesses are the starting points
+   * themselves. Later guesses are mostly random perturbations of the
+   * starting points, but every fourth one is still a random guess, so
+   * that the fitting process can escape if the data has changed too much
+   * for the starting points to be useful.
+   *
+   * @param guesser
+   *          the parameter guesser
+   * @param index
+   *          the index of the guess, starting at {@code 0}
+   * @param dest
+   *          the destination array
+   * @param random
+   *          the random number generator
+   */
+  protected final void createGuess(final IParameterGuesser guesser,
+      final int index, final double[] dest, final Random random) {
+    final long start;
+
+    if (this.m_metrics == null) {
+      this.__createGuess(guesser, index, dest, random);
+    } else {
+      start = System.nanoTime();
+      this.__createGuess(guesser, index, dest, random);
+      this.m_metrics._guessed(1, (System.nanoTime() - start));
+    }
+  }
+
+  /**
+   * Create the {@code index}-th initial guess, without metrics, see
+   * {@link #createGuess(IParameterGuesser, int, double[], Random)}.
+   *
+   * @param guesser
+   *          the parameter guesser
+   * @param index
+   *          the index of the guess, starting at {@code 0}
+   * @param dest
+   *          the destination array
+   * @param random
+   *          the random number generator
+   */
+  private final void __createGuess(final IParameterGuesser guesser,
+      final int index, final double[] dest, final Random random) {
+    final double[][] points;
+    final double[] point;
+    double value;
+    int dimension;
+
+    points = this.m_startingPoints;
+    if ((points == null)
+        || ((index >= points.length) && ((index & 3) == 3))) {
+      guesser.createRandomGuess(dest, random);
+      return;
+    }
+
+    point = points[index % points.length];
+    if (index < points.length) {
+      System.arraycopy(point, 0, dest, 0, dest.length);
+      return;
+    }
+
+    for (dimension = dest.length; (--dimension) >= 0;) {
+      value = point[dimension];
+      dest[dimension] = value + (random.nextGaussian()
+          * Math.max(1e-8d, (0.05d * Math.abs(value))));
+    }
+  }
+
+  /**
+   * Create the initial guesses with the indexes {@code index} to
+   * {@code index+count-1}, see
+   * {@link #createGuess(IParameterGuesser, int, double[], Random)}. The
+   * guesses are stored one after the other in {@code dest}, i.e., the
+   * {@code i}-th guess occupies the elements {@code i*n} to
+   * {@code (i+1)*n-1}, where {@code n} is the number of parameters of the
+   * function. Guesses with non-finite parameters are dropped, so that they
+   * do not need to be evaluated. If the guesser is a
+   * {@link DefaultParameterGuesser} and no starting points were provided,
+   * all guesses are created in a single
+   * {@linkplain DefaultParameterGuesser#createRandomGuesses(double[], int, int, Random)
+   * batch}, which allows it to share work among them.
+   *
+   * @param guesser
+   *          the parameter guesser
+   * @param index
+   *          the index of the first guess
+   * @param dest
+   *          the destination array, with room for at least {@code count}
+   *          guesses
+   * @param count
+   *          the number of guesses to create
+   * @param random
+   *          the random number generator
+   * @return the number of valid guesses stored in {@code dest}
+   */
+  protected final int createGuesses(final IParameterGuesser guesser,
+      final int index, final double[] dest, final int count,
+      final Random random) {
+    final long start;
+    final int result;
+
+    if (this.m_metrics == null) {
+      return this.__createGuesses(guesser, index, dest, count, random);
+    }
+    start = System.nanoTime();
+    result = this.__createGuesses(guesser, index, dest, count, random);
+    this.m_metrics._guessed(count, (System.nanoTime() - start));
+    return result;
+  }
+
+  /**
+   * Create several initial guesses, without metrics, see
+   * {@link #createGuesses(IParameterGuesser, int, double[], int, Random)}.
+   *
+   * @param guesser
+   *          the parameter guesser
+   * @param index
+   *          the index of the first guess
+   * @param dest
+   *          the destination array
+   * @param count
+   *          the number of guesses to create
+   * @param random
+   *          the random number generator
+   * @return the number of valid guesses stored in {@code dest}
+   */
+  private final int __createGuesses(final IParameterGuesser guesser,
+      final int index, final double[] dest, final int count,
+      final Random random) {
+    final int numParameters;
+    final double[] guess;
+    int current, valid;
+
+    numParameters = this.m_function.getParameterCount();
+    if ((this.m_startingPoints == null)
+        && (guesser instanceof DefaultParameterGuesser)) {
+      return ((DefaultParameterGuesser) guesser).createRandomGuesses(dest,
+          numParameters, count, random);
+    }
+
+    guess = new double[numParameters];
+    valid = 0;
+    outer: for (current = 0; current < count; current++) {
+      this.__createGuess(guesser, (index + current), guess, random);
+      for (final double value : guess) {
+        if (!(MathUtils.isFinite(value))) {
+          continue outer;
+        }
+      }
+      System.arraycopy(guess, 0, dest, (valid * numParameters),
+          numParameters);
+      ++valid;
+    }
+    return valid;
+  }
+
+  /**
+   * Get the restart budget of the fitting process, i.e., the number of
+   * restarts, initial samples, or generations. If starting points were
+   * provided, the budget is reduced to a quarter of the normal budget.
+   *
+   * @param budget
+   *          the normal budget used when starting from random guesses
+   * @return the budget to use
+   */
+  protected final int getRestartBudget(final int budget) {
+    if (this.m_startingPoints == null) {
+      return budget;
+    }
+    return Math.max(1, (budget >>> 2));
+  }
+
+  /**
+   * Set the maximum number of iterations for least squares algorithms.
+   * This setting is shared by all evaluation contexts and must not be
+   * changed while
+   * {@link #processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * is running. If the job has been created with an
+   * {@linkplain FittingJobBuilder#setEffort(double) effort} below
+   * {@code 1}, the least squares methods will only be granted the
+   * corresponding fraction of the iterations.
    *
    * @param maxIterations
    *          the maximum number of iterations for least squares algorithms
    */
   protected final void setLeastSquaresMaxIterations(
       final int maxIterations) {
-    this.m_leastSquaresMaxIterations = maxIterations;
+    final int scaled;
+
+    this.m_leastSquaresMaxIterationsRequested = maxIterations;
+    this.m_leastSquaresMaxIterations = scaled = this.__scale(maxIterations);
+    this.m_iterationCounter = new Incrementor(scaled);
+    this.m_evaluationCounter = new Incrementor(scaled * scaled);
+  }
+
+  /**
+   * Scale an iteration budget by the effort
+   *
+   * @param maxIterations
+   *          the iteration budget
+   * @return the scaled iteration budget
+   */
+  private final int __scale(final int maxIterations) {
+    if (this.m_effort >= 1d) {
+      return maxIterations;
+    }
+    return Math.max(1, ((int) (Math.ceil(maxIterations * this.m_effort))));
   }
 
   /**
@@ -135,12 +424,17 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
    * @return the maximum number of iterations for least squares algorithms
    */
   protected final int getLeastSquaresMaxIterations() {
-    return this.m_leastSquaresMaxIterations;
+    return this.m_leastSquaresMaxIterationsRequested;
   }
 
   /**
    * Set the maximum number of iterations for numerical optimization
-   * algorithms
+   * algorithms. This setting is shared by all evaluation contexts and
+   * must not be changed while
+   * {@link #processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * is running. Like the
+   * {@linkplain #setLeastSquaresMaxIterations(int) least squares budget},
+   * this budget is scaled by the effort of the job.
    *
    * @param maxIterations
    *          the maximum number of iterations for numerical optimization
@@ -148,9 +442,16 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
    */
   protected final void setNumericalOptimizerMaxIterations(
       final int maxIterations) {
-    this.m_maxEval = null;
-    this.m_maxIter = null;
-    this.m_optimizerMaxIterations = maxIterations;
+    final int numParams, scaled;
+
+    numParams = this.m_function.getParameterCount();
+    this.m_optimizerMaxIterationsRequested = maxIterations;
+    this.m_optimizerMaxIterations = scaled = this.__scale(maxIterations);
+    // large enough for Nelder-Mead and BOBYQA
+    this.m_maxEval = new MaxEval(//
+        Math.max(scaled, Math.max(1000, //
+            (scaled * numParams * numParams * 2))));
+    this.m_maxIter = new MaxIter(scaled + 1);
   }
 
   /**
@@ -161,7 +462,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
    *         algorithms
    */
   protected final int getNumericalOptimizerMaxIterations() {
-    return this.m_optimizerMaxIterations;
+    return this.m_optimizerMaxIterationsRequested;
   }
 
   //// BEGIN: basic functions of the implemented interfaces
@@ -169,13 +470,13 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
   /** {@inheritDoc} */
   @Override
   public final RealVector getStart() {
-    return this.m_startVector;
+    return this.m_context.m_startVector;
   }
 
   /** {@inheritDoc} */
   @Override
   public final int getObservationSize() {
-    return this.m_selected.getSampleCount();
+    return this.m_context.getObservationSize();
   }
 
   /** {@inheritDoc} */
@@ -196,24 +497,24 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
         ? ((ArrayRealVector) vec).getDataRef() : vec.toArray());
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This method is only called by optimizers of commons math which solve
+   * the job as {@link LeastSquaresProblem}. The refinements of the job
+   * itself evaluate their points in an {@link EvaluationContext}, which
+   * reuses its evaluation records. Here, a new record is created for
+   * each point, since these optimizers keep the evaluations of previous
+   * points, e.g., to check for convergence.
+   * </p>
+   */
   @Override
   public final Evaluation evaluate(final RealVector point) {
     final _InternalEvaluation eval;
-    final double[] vector;
 
     eval = new _InternalEvaluation(point);
-    vector = OptimizationBasedFittingJob.__toArray(point);
-
-    this.m_selected.evaluate(this.m_function, vector, true, true, eval);
-    if ((eval.quality < this.m_bestQuality) && (eval.quality >= 0d)) {
-      this.m_bestQuality = eval.quality;
-      System.arraycopy(vector, 0, this.m_bestData, 0,
-          this.m_bestData.length);
-      if (this.m_selected == this.m_measure) {
-        this.register(eval.quality, vector);
-      }
-    }
+    this.m_context._evaluate(OptimizationBasedFittingJob.__toArray(point),
+        eval);
     return eval;
   }
 
@@ -226,44 +527,73 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
    *          the random number generator
    */
   protected final void subselect(final int npoints, final Random random) {
-    this.m_selected = this.m_measure.subselect(npoints, random);
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+    this.m_context.subselect(npoints, random);
   }
 
   /**
    * Select the specified points
    */
   protected final void deselectPoints() {
-    this.m_selected = this.m_measure;
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+    this.m_context.deselectPoints();
+  }
+
+  /**
+   * {@linkplain EvaluationContext#fork() Fork} the evaluation context of
+   * the thread running the job, so that another thread can evaluate and
+   * refine solutions at the same time.
+   *
+   * @return the new context
+   */
+  protected final EvaluationContext forkContext() {
+    return this.m_context.fork();
+  }
+
+  /**
+   * {@linkplain EvaluationContext#merge(EvaluationContext) Merge} the best
+   * point of a forked context into the evaluation context of the thread
+   * running the job.
+   *
+   * @param context
+   *          the forked context
+   * @return {@code true} if the best point of the forked context has been
+   *         taken over, {@code false} otherwise
+   */
+  protected final boolean mergeContext(final EvaluationContext context) {
+    return this.m_context.merge(context);
   }
 
   /** {@inheritDoc} */
   @Override
   public final double value(final double[] point) {
-    final double res;
-
-    res = this.m_selected.evaluate(this.m_function, point);
-    if ((res < this.m_bestQuality) && (res >= 0d)) {
-      this.m_bestQuality = res;
-      System.arraycopy(point, 0, this.m_bestData, 0,
-          this.m_bestData.length);
-      if (this.m_selected == this.m_measure) {
-        this.register(res, point);
-      }
-    }
-    return res;
+    return this.m_context.value(point);
   }
 
   /** {@inheritDoc} */
   @Override
   public final boolean converged(final int iteration,
       final Evaluation previous, final Evaluation current) {
+    return this._leastSquaresConverged(iteration, previous.getRMS(),
+        current.getRMS());
+  }
+
+  /**
+   * Check whether a least squares method has converged, based on the
+   * root-mean-square errors of the previous and current point.
+   *
+   * @param iteration
+   *          the iteration
+   * @param previousRMS
+   *          the root-mean-square error of the previous point
+   * @param currentRMS
+   *          the root-mean-square error of the current point
+   * @return {@code true} on convergence, {@code false} otherwise
+   */
+  final boolean _leastSquaresConverged(final int iteration,
+      final double previousRMS, final double currentRMS) {
     if (iteration >= this.m_leastSquaresMaxIterations) {
       return true;
     }
-    return OptimizationBasedFittingJob.__check(previous.getRMS(),
-        current.getRMS());
+    return OptimizationBasedFittingJob.__check(previousRMS, currentRMS);
   }
 
   /**
@@ -298,20 +628,53 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     if (iteration >= this.m_optimizerMaxIterations) {
       return true;
     }
-    return OptimizationBasedFittingJob.__check(
+    return OptimizationBasedFittingJob._optimizerConverged(
         previous.getValue().doubleValue(),
         current.getValue().doubleValue());
   }
 
-  /** {@inheritDoc} */
+  /**
+   * Check whether the value of a point of a numerical optimizer has
+   * converged, i.e., whether the relative difference between its
+   * previous and its current value is below the threshold.
+   *
+   * @param previousValue
+   *          the previous value
+   * @param currentValue
+   *          the current value
+   * @return {@code true} on convergence, {@code false} otherwise
+   */
+  static final boolean _optimizerConverged(final double previousValue,
+      final double currentValue) {
+    return OptimizationBasedFittingJob.__check(previousValue,
+        currentValue);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The counter is created once per least squares budget and reset to
+   * zero upon each call, since an optimizer obtains it once at the start
+   * of each run.
+   * </p>
+   */
   @Override
   public final Incrementor getEvaluationCounter() {
+    this.m_evaluationCounter.resetCount();
     return this.m_evaluationCounter;
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The counter is created once per least squares budget and reset to
+   * zero upon each call, since an optimizer obtains it once at the start
+   * of each run.
+   * </p>
+   */
   @Override
   public final Incrementor getIterationCounter() {
+    this.m_iterationCounter.resetCount();
     return this.m_iterationCounter;
   }
 
@@ -325,23 +688,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
   //// BEGIN: optimization routines
 
   /**
-   * Copy a given array to the internal start vector.
-   *
-   * @param data
-   *          the data array
-   */
-  private final void __copyToStartVector(final double[] data) {
-    if (this.m_startVector == null) {
-      this.m_startVectorData = data.clone();
-      this.m_startVector = new ArrayRealVector(this.m_startVectorData,
-          false);
-    } else {
-      System.arraycopy(data, 0, this.m_startVectorData, 0, data.length);
-    }
-  }
-
-  /**
-   * Check whether an improved fitting candidate solution can be accepted
+   * Check whether an improved fitting candidate solution can be accepted.
+   * If
+   * {@link #processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * is used in parallel mode, this method may be called by several
+   * threads at once.
    *
    * @param solution
    *          the solution
@@ -352,308 +703,985 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
   }
 
   /**
-   * Produce the return value.
+   * Refine a given {@code solution} with the Levenberg-Marquardt algorithm
+   * in the evaluation context of the thread running the job, see
+   * {@link EvaluationContext#refineWithLevenbergMarquardt(FittingCandidateSolution)}
+   * .
    *
    * @param solution
    *          the solution to refine
    * @return one of the {@code RET_} codes
    */
-  private final int __return(final FCST solution) {
-    final double quality;
+  protected final int refineWithLevenbergMarquardt(final FCST solution) {
+    return this.m_context.refineWithLevenbergMarquardt(solution);
+  }
 
-    quality = this.m_bestQuality;
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+  /**
+   * refine a given solution using Nelder-Mead
+   *
+   * @param solution
+   *          the solution to refine
+   * @return one of the {@code RET_} codes
+   */
+  protected final int refineWithNelderMead(final FCST solution) {
+    return this.m_context.refineWithNelderMead(solution);
+  }
 
-    if ((quality < solution.quality) && (quality >= 0d)) {
-      solution.assign(this.m_bestData, quality);
-      return this.checkImprovedSolution(solution);
-    }
-    if ((quality < 0d) || (quality >= Double.POSITIVE_INFINITY)) {
-      return OptimizationBasedFittingJob.RET_FAILED;
-    }
+  /**
+   * refine a given solution using BOBYQA
+   *
+   * @param solution
+   *          the solution to refine
+   * @return one of the {@code RET_} codes
+   */
+  protected final int refineWithBOBYQA(final FCST solution) {
+    return this.m_context.refineWithBOBYQA(solution);
+  }
 
-    return OptimizationBasedFittingJob.RET_NO_IMPROVEMENT;
+  /**
+   * refine a given solution using CMA-ES
+   *
+   * @param solution
+   *          the solution to refine
+   * @param stddev
+   *          the standard deviations
+   * @return one of the {@code RET_} codes
+   */
+  protected final int refineWithCMAES(final FCST solution,
+      final double[] stddev) {
+    return this.m_context.refineWithCMAES(solution, stddev);
   }
 
   /**
-   * Refine a given {@code solution} with the Levenberg-Marquardt
-   * algorithm.
+   * refine a given solution using all available means
    *
    * @param solution
    *          the solution to refine
    * @return one of the {@code RET_} codes
    */
-  protected final int refineWithLevenbergMarquardt(final FCST solution) {
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+  protected final int refineWithLevenbergMarquardtAndNelderMead(
+      final FCST solution) {
+    return this.m_context
+        .refineWithLevenbergMarquardtAndNelderMead(solution);
+  }
 
-    try {
-      this.m_iterationCounter = new Incrementor(
-          this.m_leastSquaresMaxIterations);
-      this.m_evaluationCounter = new Incrementor(
-          this.m_leastSquaresMaxIterations
-              * this.m_leastSquaresMaxIterations);
-      this.__copyToStartVector(solution.solution);
-
-      if (this.m_levenbergMarquardt == null) {
-        this.m_levenbergMarquardt = new LevenbergMarquardtOptimizer();
+  /**
+   * Apply a {@link SolutionProcessor} to the candidate solutions at
+   * indexes {@code start} (inclusive) to {@code end} (exclusive) of an
+   * array. The solutions must be independent of each other, i.e., the
+   * processor must only modify the solution it is given, and it must
+   * perform all evaluations and refinements via the
+   * {@link EvaluationContext} it is given. If the processor
+   * {@linkplain EvaluationContext#subselect(int, Random) selects a subset}
+   * of the points, it must {@linkplain EvaluationContext#deselectPoints()
+   * select all points} again before returning. Likewise, this method must
+   * only be called while all points are selected in the job's own
+   * context. If the job has been created in
+   * {@linkplain FittingJobBuilder#setParallel(boolean) parallel mode},
+   * the range is split into chunks which are processed by the threads of
+   * a {@link ForkJoinPool}, each thread with its own evaluation context:
+   * If the job is running in a fork-join pool, say, as part of a
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.multi.MultiFittingJob}
+   * , this pool is used, otherwise a shared pool is used. The method
+   * returns when all solutions have been processed. Otherwise, the
+   * solutions are processed one by one in the context of the thread
+   * running the job.
+   *
+   * @param processor
+   *          the processor
+   * @param solutions
+   *          the solutions
+   * @param start
+   *          the index of the first solution to process
+   * @param end
+   *          the exclusive end index of the solutions to process
+   */
+  @SuppressWarnings("unchecked")
+  protected final void processSolutions(final SolutionProcessor processor,
+      final FCST[] solutions, final int start, final int end) {
+    final __ParallelProcessing task;
+    EvaluationContext[] contexts;
+    int index, count;
+
+    count = Math.min((end - start),
+        Runtime.getRuntime().availableProcessors());
+    if ((!this.m_parallel) || (count <= 1)) {
+      for (index = end; (--index) >= start;) {
+        processor.process(this.m_context, solutions[index]);
       }
-      this.m_levenbergMarquardt.optimize(this);
-    } catch (@SuppressWarnings("unused") final Throwable error) {
-      // ignored
-    } finally {
-      this.m_evaluationCounter = null;
-      this.m_iterationCounter = null;
+      return;
+    }
+
+    contexts = this.m_parallelContexts;
+    if ((contexts == null) || (contexts.length < count)) {
+      contexts = ((EvaluationContext[]) (new OptimizationBasedFittingJob<?>.EvaluationContext[count]));
+      index = 0;
+      if (this.m_parallelContexts != null) {
+        index = this.m_parallelContexts.length;
+        System.arraycopy(this.m_parallelContexts, 0, contexts, 0, index);
+      }
+      for (; index < count; index++) {
+        contexts[index] = this.m_context.fork();
+      }
+      this.m_parallelContexts = contexts;
     }
 
-    return this.__return(solution);
+    task = new __ParallelProcessing(processor, solutions, contexts, 0,
+        count, start, end);
+    if (ForkJoinTask.inForkJoinPool()) {
+      task.invoke();
+    } else {
+      __ForkJoinPoolHolder.POOL.invoke(task);
+    }
   }
 
   /**
-   * get the maximum evaluations: large enough for Nelder-Mead and BOBYQA
+   * Evaluate the candidate solutions at indexes {@code start} (inclusive)
+   * to {@code end} (exclusive) of an array on all points, in parallel if
+   * the job is in parallel mode, see
+   * {@link #processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * .
    *
-   * @return the maximum evaluations fitting to the maximum iterations
+   * @param solutions
+   *          the solutions
+   * @param start
+   *          the index of the first solution to evaluate
+   * @param end
+   *          the exclusive end index of the solutions to evaluate
    */
-  private final MaxEval __getMaxEval() {
-    final int maxIt, numParams;
-    if (this.m_maxEval == null) {
-      maxIt = this.m_optimizerMaxIterations;
-      numParams = this.m_function.getParameterCount();
-      this.m_maxEval = new MaxEval(//
-          Math.max(maxIt, Math.max(1000, //
-              (maxIt * numParams * numParams * 2))));
-    }
-    return this.m_maxEval;
+  protected final void evaluateSolutions(final FCST[] solutions,
+      final int start, final int end) {
+    this.processSolutions(new __Evaluation(), solutions, start, end);
+  }
+
+  /**
+   * Refine the candidate solutions at indexes {@code start} (inclusive) to
+   * {@code end} (exclusive) of an array with the Levenberg-Marquardt
+   * algorithm, in parallel if the job is in parallel mode, see
+   * {@link #processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * .
+   *
+   * @param solutions
+   *          the solutions
+   * @param start
+   *          the index of the first solution to refine
+   * @param end
+   *          the exclusive end index of the solutions to refine
+   */
+  protected final void refineWithLevenbergMarquardt(final FCST[] solutions,
+      final int start, final int end) {
+    this.processSolutions(new __LevenbergMarquardtRefinement(), solutions,
+        start, end);
+  }
+
+  //// END: optimization routines
+
+  /** perform the fitting procedure */
+  protected abstract void doFit();
+
+  /** {@inheritDoc} */
+  @Override
+  final IFittingQualityMeasure _getEvaluationMeasure() {
+    return this.m_searchMeasure;
   }
 
   /**
-   * get the maximum iterations: large enough for Nelder-Mead and BOBYQA
+   * Switch the search to a coreset of the points if
+   * {@linkplain FittingJobBuilder#setCoresetSize(int) requested} and
+   * possible.
    *
-   * @return the maximum iterations fitting to the maximum iterations
+   * @return {@code true} if the search runs on a coreset, {@code false}
+   *         if it uses all points
    */
-  private final MaxIter __getMaxIterations() {
-    if (this.m_maxIter == null) {
-      this.m_maxIter = new MaxIter(this.m_optimizerMaxIterations + 1);
+  private final boolean __enterCoreset() {
+    final IFittingQualityMeasure coreset;
+
+    if ((this.m_coresetSize <= 0)
+        || (!(this.m_measure instanceof WeightedRootMeanSquareError))
+        || (this.m_measure.getSampleCount() <= this.m_coresetSize)) {
+      return false;
     }
-    return this.m_maxIter;
+
+    coreset = ((WeightedRootMeanSquareError) (this.m_measure)).coreset(
+        this.m_coresetSize, new Random(this.m_data.contentHashCode()));
+    if (coreset == this.m_measure) {
+      return false;
+    }
+    this.m_searchMeasure = coreset;
+    return true;
   }
 
   /**
-   * refine a given solution using Nelder-Mead
+   * Leave the coreset: evaluate the best solution found on the coreset on
+   * all points and, if the budget permits, refine it with the
+   * Levenberg-Marquardt algorithm on all points. The solution is
+   * evaluated on all points even if the budget is exhausted, so that the
+   * job always returns a solution with its true quality.
    *
-   * @param solution
-   *          the solution to refine
-   * @return one of the {@code RET_} codes
+   * @param context
+   *          the evaluation context of the thread running the job
+   * @param refine
+   *          should the solution be refined?
    */
-  protected final int refineWithNelderMead(final FCST solution) {
-    double[] bounds;
-    double value;
-    int index;
+  private final void __leaveCoreset(final EvaluationContext context,
+      final boolean refine) {
+    final FittingCandidateSolution best;
+    final double quality;
+
+    best = new FittingCandidateSolution(
+        this.m_function.getParameterCount());
+    this.getCopyOfBest(best);
+    if ((best.quality >= Double.POSITIVE_INFINITY)
+        && (context.m_bestQuality < Double.POSITIVE_INFINITY)) {
+      best.assign(context.m_bestData, context.m_bestQuality);
+    }
+
+    this.m_searchMeasure = this.m_measure;
+    this.m_parallelContexts = null;
+    this._forgetBestQuality();
+    context.deselectPoints();
+
+    if (best.quality < Double.POSITIVE_INFINITY) {
+      quality = this.m_measure.evaluate(this.m_function, best.solution);
+      this.register(quality, best.solution);
+      if (refine) {
+        context._refineOnAllPoints(best.solution, quality);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void fit() {
+    final FittingCandidateSolution best;
+    final EvaluationContext context;
+    final boolean coreset;
+    EvaluationContext bestContext;
+
+    try {
+      coreset = this.__enterCoreset();
+      this.m_context = context = new EvaluationContext();
+      try {
+        this.doFit();
+      } catch (final _BudgetExhaustedException exhausted) {
+        if (coreset) {
+          this.__leaveCoreset(context, false);
+          throw exhausted;
+        }
+        best = new FittingCandidateSolution(
+            this.m_function.getParameterCount());
+        this.getCopyOfBest(best);
+        if (best.quality >= Double.POSITIVE_INFINITY) {
+          // The budget was exhausted before any solution was evaluated
+          // on all points: evaluate the best solution on the subset once
+          // more, so that we can return at least that. If the job used
+          // several contexts in parallel, each of them may have one.
+          bestContext = context;
+          if (this.m_parallelContexts != null) {
+            for (final EvaluationContext parallel : this.m_parallelContexts) {
+              if (parallel.m_bestQuality < bestContext.m_bestQuality) {
+                bestContext = parallel;
+              }
+            }
+          }
+          if (bestContext.m_bestQuality < Double.POSITIVE_INFINITY) {
+            this.register(this.m_measure.evaluate(this.m_function,
+                bestContext.m_bestData), bestContext.m_bestData);
+          }
+        }
+        throw exhausted;
+      }
+      if (coreset) {
+        this.__leaveCoreset(context, true);
+      }
+    } finally {
+      this.m_context = null;
+      this.m_parallelContexts = null;
+      this.m_searchMeasure = this.m_measure;
+    }
+  }
+
+  /**
+   * <p>
+   * The state of the evaluations and local searches of a fitting job: the
+   * currently selected points, the best solution found during the current
+   * refinement step, and the work spaces of the optimization algorithms.
+   * An evaluation context is not thread-safe and must only be used by one
+   * thread at a time.
+   * </p>
+   * <p>
+   * The methods of the job itself, such as
+   * {@link OptimizationBasedFittingJob#value(double[])} or
+   * {@link OptimizationBasedFittingJob#refineWithLevenbergMarquardt(FittingCandidateSolution)}
+   * , use the context of the thread running the job.
+   * {@link OptimizationBasedFittingJob#processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * gives each of its worker threads a context of its own, so that they
+   * can evaluate and refine different solutions at the same time. All
+   * contexts share the settings of the job and report improvements of the
+   * overall best solution to the job, which keeps it in a lock-free cell.
+   * </p>
+   * <p>
+   * Contexts are cheap to {@linkplain #fork() fork}, since the work spaces
+   * of the optimization algorithms are only allocated when needed. A
+   * fitting procedure can thus run several local searches on different
+   * threads, each with a forked context, and then
+   * {@linkplain #merge(EvaluationContext) merge} the best results of the
+   * forked contexts back into its own context. The evaluation budget is
+   * counted by the job itself and hence shared by all contexts.
+   * </p>
+   */
+  protected final class EvaluationContext
+      implements MultivariateFunction {
+
+    /** the selected points */
+    private IFittingQualityMeasure m_selected;
+
+    /** the start vector */
+    private ArrayRealVector m_startVector;
+    /** the start vector data */
+    private double[] m_startVectorData;
+
+    /** the objective function */
+    private ObjectiveFunction m_objective;
+
+    /** the Levenberg-Marquardt optimizer */
+    private _LevenbergMarquardt m_levenbergMarquardt;
+    /** the Nelder-Mead optimizer */
+    private _NelderMead m_nelderMead;
+    /** the bobyqa optimizer */
+    private __SafeBOBYQAOptimizer m_bobyqa;
+    /** the CMA-ES optimizer */
+    private CMAESOptimizer m_cmaes;
+
+    /** the best solution found in the internal optimization steps */
+    private final double[] m_bestData;
+    /** the best quality found in the internal optimization steps */
+    private double m_bestQuality;
+
+    /** create the evaluation context */
+    EvaluationContext() {
+      this(OptimizationBasedFittingJob.this.m_searchMeasure);
+    }
+
+    /**
+     * create the evaluation context
+     *
+     * @param selected
+     *          the selected points
+     */
+    private EvaluationContext(final IFittingQualityMeasure selected) {
+      super();
+      this.m_selected = selected;
+      this.m_bestData = new double[OptimizationBasedFittingJob.this.m_function
+          .getParameterCount()];
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Get the number of currently selected points
+     *
+     * @return the number of currently selected points
+     */
+    final int getObservationSize() {
+      return this.m_selected.getSampleCount();
+    }
+
+    /**
+     * Remember a point if it is better than the best point found so far.
+     * If all points are selected, register it with the job as well.
+     *
+     * @param quality
+     *          the quality of the point
+     * @param point
+     *          the point
+     */
+    private final void __update(final double quality,
+        final double[] point) {
+      if ((quality < this.m_bestQuality) && (quality >= 0d)) {
+        this.m_bestQuality = quality;
+        System.arraycopy(point, 0, this.m_bestData, 0,
+            this.m_bestData.length);
+        if (this.m_selected == OptimizationBasedFittingJob.this.m_searchMeasure) {
+          OptimizationBasedFittingJob.this.register(quality, point);
+        }
+      }
+    }
+
+    /**
+     * Evaluate a point with the currently selected quality measure,
+     * compute its residuals and Jacobian, and remember it if it is the
+     * best point found so far. The residuals and Jacobian arrays of
+     * {@code dest} are reused if they have the right size.
+     *
+     * @param point
+     *          the point
+     * @param dest
+     *          the destination evaluation record
+     */
+    final void _evaluate(final double[] point,
+        final FittingEvaluation dest) {
+      OptimizationBasedFittingJob.this.countEvaluation();
+      this.m_selected.evaluate(OptimizationBasedFittingJob.this.m_function,
+          point, true, true, dest);
+      this.__update(dest.quality, point);
+    }
+
+    /**
+     * Check whether a least squares method has converged, see
+     * {@link OptimizationBasedFittingJob#_leastSquaresConverged(int, double, double)}
+     * .
+     *
+     * @param iteration
+     *          the iteration
+     * @param previousRMS
+     *          the root-mean-square error of the previous point
+     * @param currentRMS
+     *          the root-mean-square error of the current point
+     * @return {@code true} on convergence, {@code false} otherwise
+     */
+    final boolean _leastSquaresConverged(final int iteration,
+        final double previousRMS, final double currentRMS) {
+      return OptimizationBasedFittingJob.this._leastSquaresConverged(
+          iteration, previousRMS, currentRMS);
+    }
+
+    /**
+     * Compute the quality of a point with the currently selected quality
+     * measure and remember it if it is the best point found so far.
+     *
+     * @param point
+     *          the point
+     * @return the quality
+     */
+    @Override
+    public final double value(final double[] point) {
+      final double res;
+
+      OptimizationBasedFittingJob.this.countEvaluation();
+      res = this.m_selected
+          .evaluate(OptimizationBasedFittingJob.this.m_function, point);
+      this.__update(res, point);
+      return res;
+    }
+
+    /**
+     * Compute the qualities of several points with the currently selected
+     * quality measure and remember the best of them if it is better than
+     * the best point found so far. This is the batch version of
+     * {@link #value(double[])}. The points are evaluated one after the
+     * other in the calling thread, so this method only saves the
+     * overhead of the individual calls.
+     *
+     * @param points
+     *          the points
+     * @param start
+     *          the index of the first point to evaluate
+     * @param end
+     *          the exclusive end index of the points to evaluate
+     * @param dest
+     *          the destination array for the qualities, with the same
+     *          indexes as the points
+     */
+    final void _values(final double[][] points, final int start,
+        final int end, final double[] dest) {
+      int index;
+
+      for (index = start; index < end; index++) {
+        dest[index] = this.value(points[index]);
+      }
+    }
+
+    /**
+     * Check whether a numerical optimizer has converged, see
+     * {@link OptimizationBasedFittingJob#_optimizerConverged(double, double)}
+     * .
+     *
+     * @param previousValue
+     *          the previous value
+     * @param currentValue
+     *          the current value
+     * @return {@code true} on convergence, {@code false} otherwise
+     */
+    final boolean _optimizerConverged(final double previousValue,
+        final double currentValue) {
+      return OptimizationBasedFittingJob
+          ._optimizerConverged(previousValue, currentValue);
+    }
+
+    /**
+     * Choose a set of points
+     *
+     * @param npoints
+     *          the number of points to select
+     * @param random
+     *          the random number generator
+     */
+    public final void subselect(final int npoints, final Random random) {
+      this.m_selected = OptimizationBasedFittingJob.this.m_searchMeasure
+          .subselect(npoints, random);
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Select the specified points
+     */
+    public final void deselectPoints() {
+      this.m_selected = OptimizationBasedFittingJob.this.m_searchMeasure;
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Create a new context with the same selected points, which can be
+     * used by another thread. The new context does not know the best
+     * point found by this context.
+     *
+     * @return the new context
+     */
+    public final EvaluationContext fork() {
+      return new EvaluationContext(this.m_selected);
+    }
+
+    /**
+     * Merge the best point found by another context, usually a
+     * {@linkplain #fork() fork} of this one, into this context. The other
+     * context must not be used by another thread at the same time. Points
+     * evaluated on all points have already been reported to the job by
+     * the other context.
+     *
+     * @param other
+     *          the other context
+     * @return {@code true} if the best point of the other context is
+     *         better than the best point of this context and has been
+     *         taken over, {@code false} otherwise
+     */
+    public final boolean merge(final EvaluationContext other) {
+      if ((other != this) && (other.m_selected == this.m_selected)
+          && (other.m_bestQuality < this.m_bestQuality)
+          && (other.m_bestQuality >= 0d)) {
+        this.m_bestQuality = other.m_bestQuality;
+        System.arraycopy(other.m_bestData, 0, this.m_bestData, 0,
+            this.m_bestData.length);
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Copy the best point found by this context into the given
+     * destination record. This is the best point evaluated with
+     * {@link #value(double[])} or {@linkplain #merge(EvaluationContext)
+     * merged} from another context since the points were last selected,
+     * while the refinement methods forget their best point when they
+     * return it.
+     *
+     * @param dest
+     *          the destination record
+     */
+    public final void getCopyOfBest(final FittingCandidateSolution dest) {
+      dest.assign(this.m_bestData, this.m_bestQuality);
+    }
+
+    /**
+     * Copy a given array to the internal start vector.
+     *
+     * @param data
+     *          the data array
+     */
+    private final void __copyToStartVector(final double[] data) {
+      if (this.m_startVector == null) {
+        this.m_startVectorData = data.clone();
+        this.m_startVector = new ArrayRealVector(this.m_startVectorData,
+            false);
+      } else {
+        System.arraycopy(data, 0, this.m_startVectorData, 0,
+            data.length);
+      }
+    }
+
+    /**
+     * Get the start time of a refinement step, if metrics are collected
+     *
+     * @return the start time, or {@code 0L} if no metrics are collected
+     */
+    private final long __startRefinement() {
+      return ((OptimizationBasedFittingJob.this.m_metrics != null)
+          ? System.nanoTime() : 0L);
+    }
 
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+    /**
+     * Record the end of a refinement step, if metrics are collected
+     *
+     * @param method
+     *          the method index, see {@link FittingMetrics}
+     * @param start
+     *          the start time
+     * @param result
+     *          the result code
+     * @return the result code
+     */
+    private final int __endRefinement(final int method, final long start,
+        final int result) {
+      final FittingMetrics metrics;
 
-    try {
-      if (this.m_pointValuePairChecker == null) {
-        this.m_pointValuePairChecker = new __PointValuePairChecker();
+      metrics = OptimizationBasedFittingJob.this.m_metrics;
+      if (metrics != null) {
+        metrics._refined(method, (System.nanoTime() - start), result);
       }
+      return result;
+    }
 
-      if (this.m_simplex == null) {
-        this.m_simplex = new SimplexOptimizer(
-            this.m_pointValuePairChecker);
+    /**
+     * Produce the return value.
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    private final int __return(final FCST solution) {
+      final double quality;
+      final int result;
+
+      quality = this.m_bestQuality;
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+
+      if ((quality < solution.quality) && (quality >= 0d)) {
+        solution.assign(this.m_bestData, quality);
+        result = OptimizationBasedFittingJob.this
+            .checkImprovedSolution(solution);
+        if ((result != OptimizationBasedFittingJob.RET_IMPROVEMENT)
+            && (OptimizationBasedFittingJob.this.m_metrics != null)) {
+          OptimizationBasedFittingJob.this.m_metrics._rejected();
+        }
+        return result;
       }
-      if (this.m_objective == null) {
-        this.m_objective = new ObjectiveFunction(this);
+      if ((quality < 0d) || (quality >= Double.POSITIVE_INFINITY)) {
+        return OptimizationBasedFittingJob.RET_FAILED;
       }
 
-      bounds = solution.solution;
-      for (index = bounds.length; (--index) >= 0;) {
-        if (Math.abs(value = bounds[index]) < Double.MIN_NORMAL) {
-          if (bounds == solution.solution) {
-            bounds = bounds.clone();
-          }
-          bounds[index] = ((value < 0d) ? (-Double.MIN_NORMAL)
-              : Double.MIN_NORMAL);
-        }
+      return OptimizationBasedFittingJob.RET_NO_IMPROVEMENT;
+    }
+
+    /**
+     * Get the objective function for the numerical optimizers
+     *
+     * @return the objective function
+     */
+    private final ObjectiveFunction __getObjective() {
+      if (this.m_objective == null) {
+        this.m_objective = new ObjectiveFunction(this);
       }
+      return this.m_objective;
+    }
 
-      this.m_simplex.optimize(//
-          new NelderMeadSimplex(bounds), //
-          new InitialGuess(solution.solution), //
-          this.m_objective, this.__getMaxEval(), this.__getMaxIterations(),
-          GoalType.MINIMIZE);
+    /**
+     * Refine a given {@code solution} with the Levenberg-Marquardt
+     * algorithm. We use an internal implementation which behaves like
+     * {@link org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer}
+     * with the job as convergence checker, but which allocates its work
+     * arrays only once per context instead of in every iteration of every
+     * call.
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    public final int refineWithLevenbergMarquardt(final FCST solution) {
+      final long start;
 
-    } catch (@SuppressWarnings("unused") final Throwable error) {
-      // unused
+      start = this.__startRefinement();
+      return this.__endRefinement(FittingMetrics.LEVENBERG_MARQUARDT, start,
+          this.__refineWithLevenbergMarquardt(solution));
     }
 
-    return this.__return(solution);
-  }
-
-  /**
-   * refine a given solution using BOBYQA
-   *
-   * @param solution
-   *          the solution to refine
-   * @return one of the {@code RET_} codes
-   */
-  protected final int refineWithBOBYQA(final FCST solution) {
-    final int dim;
-    final double[] lower, upper, orig;
-    double bound;
-    int index;
+    /**
+     * refine a given solution using the Levenberg-Marquardt algorithm, without metrics
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    private final int __refineWithLevenbergMarquardt(final FCST solution) {
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
 
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+      try {
+        this.__copyToStartVector(solution.solution);
 
-    try {
-      if (this.m_objective == null) {
-        this.m_objective = new ObjectiveFunction(this);
+        if (this.m_levenbergMarquardt == null) {
+          this.m_levenbergMarquardt = new _LevenbergMarquardt(this,
+              OptimizationBasedFittingJob.this.m_function
+                  .getParameterCount());
+        }
+        this.m_levenbergMarquardt._optimize(this.m_startVectorData,
+            OptimizationBasedFittingJob.this.m_leastSquaresMaxIterations);
+      } catch (final _BudgetExhaustedException exhausted) {
+        throw exhausted;
+      } catch (@SuppressWarnings("unused") final Throwable error) {
+        // ignored
       }
-      dim = solution.solution.length;
 
-      if (this.m_bobyqa == null) {
-        this.m_bobyqa = new __SafeBOBYQAOptimizer(dim << 1);
-      }
+      return this.__return(solution);
+    }
 
-      orig = solution.solution;
-      lower = new double[orig.length];
-      upper = new double[orig.length];
-      index = 0;
-      for (final double value : orig) {
-        if (value < 0d) {
-          bound = (-value);
-        } else {
-          bound = value;
-        }
-        if (bound > 1e50d) {
-          // try to prevent cases where BOBYQA may get problems
-          return OptimizationBasedFittingJob.RET_FAILED;
-        }
-        if (bound < 1e-9d) {
-          bound = 1e-9d;
+    /**
+     * Refine a point with the Levenberg-Marquardt algorithm on all points
+     * after a search on a coreset. Every improvement is registered with
+     * the job directly, so the candidate solution classes and
+     * {@link OptimizationBasedFittingJob#checkImprovedSolution(FittingCandidateSolution)}
+     * of the job are not involved.
+     *
+     * @param point
+     *          the point to refine
+     * @param quality
+     *          the quality of the point on all points
+     */
+    final void _refineOnAllPoints(final double[] point,
+        final double quality) {
+      final long start;
+      final boolean improved;
+
+      start = this.__startRefinement();
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+      try {
+        this.__copyToStartVector(point);
+        if (this.m_levenbergMarquardt == null) {
+          this.m_levenbergMarquardt = new _LevenbergMarquardt(this,
+              OptimizationBasedFittingJob.this.m_function
+                  .getParameterCount());
         }
-        bound *= 10d;
+        this.m_levenbergMarquardt._optimize(this.m_startVectorData,
+            OptimizationBasedFittingJob.this.m_leastSquaresMaxIterations);
+      } catch (final _BudgetExhaustedException exhausted) {
+        throw exhausted;
+      } catch (@SuppressWarnings("unused") final Throwable error) {
+        // ignored
+      }
+      improved = (this.m_bestQuality < quality);
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+      this.__endRefinement(FittingMetrics.LEVENBERG_MARQUARDT, start,
+          (improved ? OptimizationBasedFittingJob.RET_IMPROVEMENT
+              : OptimizationBasedFittingJob.RET_NO_IMPROVEMENT));
+    }
+
+    /**
+     * refine a given solution using Nelder-Mead
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    public final int refineWithNelderMead(final FCST solution) {
+      final long start;
+
+      start = this.__startRefinement();
+      return this.__endRefinement(FittingMetrics.NELDER_MEAD, start,
+          this.__refineWithNelderMead(solution));
+    }
 
-        lower[index] = Math.nextAfter((value - bound),
-            Double.NEGATIVE_INFINITY);
-        upper[index] = Math.nextUp(value + bound);
-        ++index;
+    /**
+     * refine a given solution using Nelder-Mead, without metrics
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    private final int __refineWithNelderMead(final FCST solution) {
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+
+      try {
+        if (this.m_nelderMead == null) {
+          this.m_nelderMead = new _NelderMead(this,
+              OptimizationBasedFittingJob.this.m_function
+                  .getParameterCount());
+        }
+        this.m_nelderMead._optimize(solution.solution,
+            OptimizationBasedFittingJob.this.m_maxEval.getMaxEval(),
+            OptimizationBasedFittingJob.this.m_maxIter.getMaxIter());
+      } catch (final _BudgetExhaustedException exhausted) {
+        throw exhausted;
+      } catch (@SuppressWarnings("unused") final Throwable error) {
+        // ignored
       }
 
-      this.m_bobyqa.optimize(GoalType.MINIMIZE, //
-          this.m_objective, //
-          new InitialGuess(solution.solution), //
-          new SimpleBounds(lower, upper), //
-          this.__getMaxEval(), this.__getMaxIterations());
+      return this.__return(solution);
+    }
+
+    /**
+     * refine a given solution using BOBYQA
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    public final int refineWithBOBYQA(final FCST solution) {
+      final long start;
 
-    } catch (@SuppressWarnings("unused") final Throwable error) {
-      // ignored
+      start = this.__startRefinement();
+      return this.__endRefinement(FittingMetrics.BOBYQA, start,
+          this.__refineWithBOBYQA(solution));
     }
 
-    return this.__return(solution);
-  }
+    /**
+     * refine a given solution using BOBYQA, without metrics
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    private final int __refineWithBOBYQA(final FCST solution) {
+      final int dim;
+      final double[] lower, upper, orig;
+      double bound;
+      int index;
 
-  /**
-   * refine a given solution using CMA-ES
-   *
-   * @param solution
-   *          the solution to refine
-   * @param stddev
-   *          the standard deviations
-   * @return one of the {@code RET_} codes
-   */
-  protected final int refineWithCMAES(final FCST solution,
-      final double[] stddev) {
-    final int dim;
-    final double[] lower, upper, orig;
-    double value, offset;
-    int index;
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
 
-    this.m_bestQuality = Double.POSITIVE_INFINITY;
+      try {
+        dim = solution.solution.length;
 
-    try {
-      if (this.m_objective == null) {
-        this.m_objective = new ObjectiveFunction(this);
-      }
+        if (this.m_bobyqa == null) {
+          this.m_bobyqa = new __SafeBOBYQAOptimizer(this, (dim << 1),
+              dim);
+        }
 
-      if (this.m_pointValuePairChecker == null) {
-        this.m_pointValuePairChecker = new __PointValuePairChecker();
-      }
+        orig = solution.solution;
+        lower = this.m_bobyqa.m_lowerBound;
+        upper = this.m_bobyqa.m_upperBound;
+        index = 0;
+        for (final double value : orig) {
+          if (value < 0d) {
+            bound = (-value);
+          } else {
+            bound = value;
+          }
+          if (bound > 1e50d) {
+            // try to prevent cases where BOBYQA may get problems
+            return OptimizationBasedFittingJob.RET_FAILED;
+          }
+          if (bound < 1e-9d) {
+            bound = 1e-9d;
+          }
+          bound *= 10d;
 
-      dim = solution.solution.length;
-
-      if (this.m_cmaes == null) {
-        this.m_cmaes = new CMAESOptimizer(//
-            this.m_optimizerMaxIterations, //
-            0d, //
-            true, //
-            (this.m_optimizerMaxIterations / 10), //
-            0, //
-            new JDKRandomGenerator(), //
-            false, //
-            this.m_pointValuePairChecker);
-      }
+          lower[index] = Math.nextAfter((value - bound),
+              Double.NEGATIVE_INFINITY);
+          upper[index] = Math.nextUp(value + bound);
+          ++index;
+        }
 
-      orig = solution.solution;
-      lower = new double[orig.length];
-      upper = new double[orig.length];
-      for (index = orig.length; (--index) >= 0;) {
-        value = orig[index];
-        offset = Math.max((3d * stddev[index]), 1e-10d);
-        lower[index] = Math.nextAfter((value - offset),
-            Double.NEGATIVE_INFINITY);
-        upper[index] = Math.nextUp(value + offset);
-      }
+        this.m_bobyqa._optimize(orig,
+            OptimizationBasedFittingJob.this.m_maxEval.getMaxEval());
 
-      this.m_cmaes.optimize(GoalType.MINIMIZE, //
-          this.m_objective, //
-          new InitialGuess(solution.solution), //
-          new CMAESOptimizer.Sigma(stddev), //
-          this.__getMaxEval(), this.__getMaxIterations(), //
-          new CMAESOptimizer.PopulationSize(
-              5 + ((int) (3 * Math.log(dim)))), //
-          new SimpleBounds(lower, upper)//
-      );
+      } catch (final _BudgetExhaustedException exhausted) {
+        throw exhausted;
+      } catch (@SuppressWarnings("unused") final Throwable error) {
+        // ignored
+      }
 
-    } catch (@SuppressWarnings("unused") final Throwable error) {
-      // ignored
+      return this.__return(solution);
     }
 
-    return this.__return(solution);
-  }
+    /**
+     * refine a given solution using CMA-ES
+     *
+     * @param solution
+     *          the solution to refine
+     * @param stddev
+     *          the standard deviations
+     * @return one of the {@code RET_} codes
+     */
+    public final int refineWithCMAES(final FCST solution,
+        final double[] stddev) {
+      final long start;
 
-  /**
-   * refine a given solution using all available means
-   *
-   * @param solution
-   *          the solution to refine
-   * @return one of the {@code RET_} codes
-   */
-  protected final int refineWithLevenbergMarquardtAndNelderMead(
-      final FCST solution) {
-    boolean doLocalSearch, hasImprovement;
-    int retVal, maxIterations;
-
-    doLocalSearch = true;
-    hasImprovement = false;
-    loop: for (maxIterations = 100; (--maxIterations) > 0;) {
-      switch (retVal = this.refineWithLevenbergMarquardt(solution)) {
-        case RET_IMPROVEMENT: {
-          hasImprovement = doLocalSearch = true;
-          break;
-        }
-        case RET_FAILED:
-        case RET_NO_IMPROVEMENT: {
-          break;
+      start = this.__startRefinement();
+      return this.__endRefinement(FittingMetrics.CMAES, start,
+          this.__refineWithCMAES(solution, stddev));
+    }
+
+    /**
+     * refine a given solution using CMA-ES, without metrics
+     *
+     * @param solution
+     *          the solution to refine
+     * @param stddev
+     *          the standard deviations
+     * @return one of the {@code RET_} codes
+     */
+    private final int __refineWithCMAES(final FCST solution,
+        final double[] stddev) {
+      final int dim, maxIterations;
+      final double[] lower, upper, orig;
+      double value, offset;
+      int index;
+
+      this.m_bestQuality = Double.POSITIVE_INFINITY;
+
+      try {
+        dim = solution.solution.length;
+
+        if (this.m_cmaes == null) {
+          maxIterations = OptimizationBasedFittingJob.this.m_optimizerMaxIterations;
+          this.m_cmaes = new CMAESOptimizer(//
+              maxIterations, //
+              0d, //
+              true, //
+              (maxIterations / 10), //
+              0, //
+              new JDKRandomGenerator(), //
+              false, //
+              OptimizationBasedFittingJob.this.m_pointValuePairChecker);
         }
-        default: {
-          return retVal;
+
+        orig = solution.solution;
+        lower = new double[orig.length];
+        upper = new double[orig.length];
+        for (index = orig.length; (--index) >= 0;) {
+          value = orig[index];
+          offset = Math.max((3d * stddev[index]), 1e-10d);
+          lower[index] = Math.nextAfter((value - offset),
+              Double.NEGATIVE_INFINITY);
+          upper[index] = Math.nextUp(value + offset);
         }
+
+        this.m_cmaes.optimize(GoalType.MINIMIZE, //
+            this.__getObjective(), //
+            new InitialGuess(solution.solution), //
+            new CMAESOptimizer.Sigma(stddev), //
+            OptimizationBasedFittingJob.this.m_maxEval, //
+            OptimizationBasedFittingJob.this.m_maxIter, //
+            new CMAESOptimizer.PopulationSize(
+                5 + ((int) (3 * Math.log(dim)))), //
+            new SimpleBounds(lower, upper)//
+        );
+
+      } catch (final _BudgetExhaustedException exhausted) {
+        throw exhausted;
+      } catch (@SuppressWarnings("unused") final Throwable error) {
+        // ignored
       }
-      if (doLocalSearch) {
-        switch (this.refineWithNelderMead(solution)) {
+
+      return this.__return(solution);
+    }
+
+    /**
+     * refine a given solution using all available means
+     *
+     * @param solution
+     *          the solution to refine
+     * @return one of the {@code RET_} codes
+     */
+    public final int refineWithLevenbergMarquardtAndNelderMead(
+        final FCST solution) {
+      boolean doLocalSearch, hasImprovement;
+      int retVal, maxIterations;
+
+      doLocalSearch = true;
+      hasImprovement = false;
+      loop: for (maxIterations = 100; (--maxIterations) > 0;) {
+        switch (retVal = this.refineWithLevenbergMarquardt(solution)) {
           case RET_IMPROVEMENT: {
-            hasImprovement = true;
-            doLocalSearch = false;
-            continue loop;
+            hasImprovement = doLocalSearch = true;
+            break;
           }
           case RET_FAILED:
           case RET_NO_IMPROVEMENT: {
@@ -663,44 +1691,189 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             return retVal;
           }
         }
+        if (doLocalSearch) {
+          switch (this.refineWithNelderMead(solution)) {
+            case RET_IMPROVEMENT: {
+              hasImprovement = true;
+              doLocalSearch = false;
+              continue loop;
+            }
+            case RET_FAILED:
+            case RET_NO_IMPROVEMENT: {
+              break;
+            }
+            default: {
+              return retVal;
+            }
+          }
+        }
+        break loop;
       }
-      break loop;
+      if (hasImprovement) {
+        return OptimizationBasedFittingJob.RET_IMPROVEMENT;
+      }
+      return OptimizationBasedFittingJob.RET_NO_IMPROVEMENT;
     }
-    if (hasImprovement) {
-      return OptimizationBasedFittingJob.RET_IMPROVEMENT;
+  }
+
+  /**
+   * An operation which
+   * {@link OptimizationBasedFittingJob#processSolutions(SolutionProcessor, FittingCandidateSolution[], int, int)}
+   * applies to candidate solutions, such as evaluating or refining them.
+   */
+  protected abstract class SolutionProcessor {
+
+    /** create the solution processor */
+    protected SolutionProcessor() {
+      super();
     }
-    return OptimizationBasedFittingJob.RET_NO_IMPROVEMENT;
+
+    /**
+     * Process a candidate solution
+     *
+     * @param context
+     *          the evaluation context to use for all evaluations and
+     *          refinements
+     * @param solution
+     *          the solution to process
+     */
+    protected abstract void process(final EvaluationContext context,
+        final FCST solution);
   }
 
-  //// END: optimization routines
+  /** the processor evaluating solutions */
+  private final class __Evaluation extends SolutionProcessor {
 
-  /** perform the fitting procedure */
-  protected abstract void doFit();
+    /** create */
+    __Evaluation() {
+      super();
+    }
 
-  /** {@inheritDoc} */
-  @Override
-  protected final void fit() {
-    try {
-      this.m_bestData = new double[this.m_function.getParameterCount()];
-      this.doFit();
-    } finally {
-      this.m_levenbergMarquardt = null;
-      this.m_cmaes = null;
-      this.m_bobyqa = null;
-      this.m_simplex = null;
-      this.m_pointValuePairChecker = null;
-      this.m_startVector = null;
-      this.m_startVectorData = null;
-      this.m_evaluationCounter = null;
-      this.m_iterationCounter = null;
-      this.m_objective = null;
-      this.m_maxEval = null;
-      this.m_maxIter = null;
-      this.m_selected = null;
-      this.m_bestData = null;
+    /** {@inheritDoc} */
+    @Override
+    protected final void process(final EvaluationContext context,
+        final FCST solution) {
+      solution.quality = context.value(solution.solution);
+    }
+  }
+
+  /** the processor refining solutions with Levenberg-Marquardt */
+  private final class __LevenbergMarquardtRefinement
+      extends SolutionProcessor {
+
+    /** create */
+    __LevenbergMarquardtRefinement() {
+      super();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void process(final EvaluationContext context,
+        final FCST solution) {
+      context.refineWithLevenbergMarquardt(solution);
+    }
+  }
+
+  /** the task processing solutions in parallel */
+  private final class __ParallelProcessing extends RecursiveAction {
+
+    /** the serial version uid */
+    private static final long serialVersionUID = 1L;
+
+    /** the processor */
+    private final SolutionProcessor m_processor;
+    /** the solutions */
+    private final FCST[] m_solutions;
+    /** the evaluation contexts */
+    private final EvaluationContext[] m_contexts;
+    /** the index of the first context to use */
+    private final int m_contextStart;
+    /** the exclusive end index of the contexts to use */
+    private final int m_contextEnd;
+    /** the index of the first solution to process */
+    private final int m_start;
+    /** the exclusive end index of the solutions to process */
+    private final int m_end;
+
+    /**
+     * create the task
+     *
+     * @param processor
+     *          the processor
+     * @param solutions
+     *          the solutions
+     * @param contexts
+     *          the evaluation contexts
+     * @param contextStart
+     *          the index of the first context to use
+     * @param contextEnd
+     *          the exclusive end index of the contexts to use
+     * @param start
+     *          the index of the first solution to process
+     * @param end
+     *          the exclusive end index of the solutions to process
+     */
+    __ParallelProcessing(final SolutionProcessor processor,
+        final FCST[] solutions, final EvaluationContext[] contexts,
+        final int contextStart, final int contextEnd, final int start,
+        final int end) {
+      super();
+      this.m_processor = processor;
+      this.m_solutions = solutions;
+      this.m_contexts = contexts;
+      this.m_contextStart = contextStart;
+      this.m_contextEnd = contextEnd;
+      this.m_start = start;
+      this.m_end = end;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void compute() {
+      final EvaluationContext context;
+      final __ParallelProcessing right;
+      final int middle, split;
+      int index;
+
+      if ((this.m_contextEnd - this.m_contextStart) <= 1) {
+        context = this.m_contexts[this.m_contextStart];
+        for (index = this.m_end; (--index) >= this.m_start;) {
+          this.m_processor.process(context, this.m_solutions[index]);
+        }
+        return;
+      }
+
+      // divide the contexts and the solutions into two halves
+      middle = ((this.m_contextStart + this.m_contextEnd) >>> 1);
+      split = (this.m_start + (((middle - this.m_contextStart)
+          * (this.m_end - this.m_start))
+          / (this.m_contextEnd - this.m_contextStart)));
+      right = new __ParallelProcessing(this.m_processor, this.m_solutions,
+          this.m_contexts, middle, this.m_contextEnd, split, this.m_end);
+      right.fork();
+      // Even if the first half fails, say, because the budget is
+      // exhausted, we wait for the second half: Once this task is done, no
+      // thread must use the contexts anymore.
+      try {
+        new __ParallelProcessing(this.m_processor, this.m_solutions,
+            this.m_contexts, this.m_contextStart, middle, this.m_start,
+            split).invoke();
+      } finally {
+        right.quietlyJoin();
+      }
+      right.join();
     }
   }
 
+  /**
+   * the holder for the fork-join pool used for parallel processing if a
+   * job is not already running in a fork-join pool
+   */
+  private static final class __ForkJoinPoolHolder {
+    /** the shared pool */
+    static final ForkJoinPool POOL = new ForkJoinPool();
+  }
+
   /** The internal evaluation. */
   private static final class _InternalEvaluation extends FittingEvaluation
       implements Evaluation {
@@ -820,7 +1993,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
   /**
    * <p>
-   * This is the internal drop-in replacement for
+   * This is the internal replacement for
    * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
    * . The BOBYQA optimizer is quite nice, but its implementation in the
    * current commons math version (3.6.1) can sometimes go into an endless
@@ -839,15 +2012,27 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
    * here and use the BOBYQA optimizer directly.
    * </p>
    * <p>
-   * Since this class is identical to
+   * Different from the original, this implementation works directly on
+   * {@code double[]} and row-major {@code double[][]} arrays instead of
+   * {@link org.apache.commons.math3.linear.ArrayRealVector} and
+   * {@link org.apache.commons.math3.linear.Array2DRowRealMatrix}, and all
+   * of its work arrays are allocated once, when the optimizer is created.
+   * Since
+   * {@link OptimizationBasedFittingJob#refineWithBOBYQA(FittingCandidateSolution)}
+   * is invoked many times during a fitting job, this avoids creating lots
+   * of garbage in the trust region loops. The objective function is the
+   * {@link EvaluationContext#value(double[])} method of the evaluation
+   * context owning the optimizer.
+   * </p>
+   * <p>
+   * Since this class is otherwise identical to
    * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
    * , we provide no documentation. Also, this is not to be considered as a
    * permanent solution, just as a temporary fix until the reported issues
    * are resolved.
    * </p>
    */
-  private static final class __SafeBOBYQAOptimizer
-      extends MultivariateOptimizer {
+  private static final class __SafeBOBYQAOptimizer {
     /** Minimum dimension of the problem: {@value} */
     public static final int MINIMUM_PROBLEM_DIMENSION = 2;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
@@ -886,6 +2071,8 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     private static final double ONE_OVER_A_THOUSAND = __SafeBOBYQAOptimizer.ONE
         / 1000;
 
+    /** the owning job, which provides the objective function */
+    private final MultivariateFunction m_owner;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
     private final int m_numberOfInterpolationPoints;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
@@ -893,72 +2080,212 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
     private final double m_stoppingTrustRegionRadius;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_currentBest;
+    private final double[] m_currentBest;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private double[] m_boundDifference;
+    private final double[] m_boundDifference;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
     private int m_trustRegionCenterInterpolationPointIndex;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private Array2DRowRealMatrix m_bMatrix;
+    private final double[][] m_bMatrix;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private Array2DRowRealMatrix m_zMatrix;
+    private final double[][] m_zMatrix;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private Array2DRowRealMatrix m_interpolationPoints;
+    private final double[][] m_interpolationPoints;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_originShift;
+    private final double[] m_originShift;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_fAtInterpolationPoints;
+    private final double[] m_fAtInterpolationPoints;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_trustRegionCenterOffset;
+    private final double[] m_trustRegionCenterOffset;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_gradientAtTrustRegionCenter;
+    private final double[] m_gradientAtTrustRegionCenter;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_lowerDifference;
+    private final double[] m_lowerDifference;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_upperDifference;
+    private final double[] m_upperDifference;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_modelSecondDerivativesParameters;
+    private final double[] m_modelSecondDerivativesParameters;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_newPoint;
+    private final double[] m_newPoint;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_alternativeNewPoint;
+    private final double[] m_alternativeNewPoint;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_trialStepPoint;
+    private final double[] m_trialStepPoint;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_lagrangeValuesAtNewPoint;
+    private final double[] m_lagrangeValuesAtNewPoint;
     /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
-    private ArrayRealVector m_modelSecondDerivativesValues;
+    private final double[] m_modelSecondDerivativesValues;
+
+    /** the lower bounds */
+    final double[] m_lowerBound;
+    /** the upper bounds */
+    final double[] m_upperBound;
+    /** the first work array of size {@code n} in {@code bobyqb} */
+    private final double[] m_bobyqbWork1;
+    /** the second work array of size {@code npt} in {@code bobyqb} */
+    private final double[] m_bobyqbWork2;
+    /** the third work array of size {@code npt} in {@code bobyqb} */
+    private final double[] m_bobyqbWork3;
+    /** the new gradient used by {@code trsbox} */
+    private final double[] m_gnew;
+    /** the bound indicators used by {@code trsbox} */
+    private final double[] m_xbdi;
+    /** the search direction used by {@code trsbox} */
+    private final double[] m_s;
+    /** the product of the Hessian and {@link #m_s} in {@code trsbox} */
+    private final double[] m_hs;
+    /** the reduced product of the Hessian in {@code trsbox} */
+    private final double[] m_hred;
+    /** the work array of size {@code npt} in {@code trsbox} */
+    private final double[] m_trsboxWork;
+    /** the gradient of the Lagrange function in {@code altmov} */
+    private final double[] m_glag;
+    /** the column of the Hessian in {@code altmov} */
+    private final double[] m_hcol;
+    /** the first work array of size {@code n} in {@code altmov} */
+    private final double[] m_altmovWork1;
+    /** the second work array of size {@code n} in {@code altmov} */
+    private final double[] m_altmovWork2;
+    /** the work array of size {@code npt+n} in {@code update} */
+    private final double[] m_updateWork;
+    /** the pair of values returned by {@code trsbox} and {@code altmov} */
+    private final double[] m_pair;
+
+    /** the number of performed objective function evaluations */
+    private int m_evaluations;
+    /** the maximum number of objective function evaluations */
+    private int m_maxEvaluations;
 
     /**
      * see
      * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
      *
+     * @param owner
+     *          the objective function
      * @param numberOfInterpolationPoints
      *          Number of interpolation conditions. For a problem of
      *          dimension {@code n}, its value must be in the interval
      *          {@code [n+2, (n+1)(n+2)/2]}. Choices that exceed
      *          {@code 2n+1} are not recommended.
+     * @param dimension
+     *          the dimension of the problem
      */
-    __SafeBOBYQAOptimizer(final int numberOfInterpolationPoints) {
-      super(null); // No custom convergence criterion.
+    __SafeBOBYQAOptimizer(final MultivariateFunction owner,
+        final int numberOfInterpolationPoints, final int dimension) {
+      super();
+
+      // Check problem dimension.
+      if (dimension < __SafeBOBYQAOptimizer.MINIMUM_PROBLEM_DIMENSION) {
+        throw new NumberIsTooSmallException(Integer.valueOf(dimension),
+            Integer.valueOf(
+                __SafeBOBYQAOptimizer.MINIMUM_PROBLEM_DIMENSION),
+            true);
+      }
+      // Check number of interpolation points.
+      final int[] nPointsInterval = { dimension + 2,
+          ((dimension + 2) * (dimension + 1)) / 2 };
+      if ((numberOfInterpolationPoints < nPointsInterval[0])
+          || (numberOfInterpolationPoints > nPointsInterval[1])) {
+        throw new OutOfRangeException(
+            LocalizedFormats.NUMBER_OF_INTERPOLATION_POINTS,
+            Integer.valueOf(numberOfInterpolationPoints),
+            Integer.valueOf(nPointsInterval[0]),
+            Integer.valueOf(nPointsInterval[1]));
+      }
+
+      this.m_owner = owner;
       this.m_numberOfInterpolationPoints = numberOfInterpolationPoints;
       this.m_initialTrustRegionRadius = __SafeBOBYQAOptimizer.DEFAULT_INITIAL_RADIUS;
       this.m_stoppingTrustRegionRadius = __SafeBOBYQAOptimizer.DEFAULT_STOPPING_RADIUS;
+
+      // Allocate the data structures used by the "bobyqa" method.
+      this.m_currentBest = new double[dimension];
+      this.m_boundDifference = new double[dimension];
+      this.m_bMatrix = new double[dimension
+          + numberOfInterpolationPoints][dimension];
+      this.m_zMatrix =
+          new double[numberOfInterpolationPoints][numberOfInterpolationPoints
+          - dimension - 1];
+      this.m_interpolationPoints =
+          new double[numberOfInterpolationPoints][dimension];
+      this.m_originShift = new double[dimension];
+      this.m_fAtInterpolationPoints =
+          new double[numberOfInterpolationPoints];
+      this.m_trustRegionCenterOffset = new double[dimension];
+      this.m_gradientAtTrustRegionCenter = new double[dimension];
+      this.m_lowerDifference = new double[dimension];
+      this.m_upperDifference = new double[dimension];
+      this.m_modelSecondDerivativesParameters =
+          new double[numberOfInterpolationPoints];
+      this.m_newPoint = new double[dimension];
+      this.m_alternativeNewPoint = new double[dimension];
+      this.m_trialStepPoint = new double[dimension];
+      this.m_lagrangeValuesAtNewPoint = new double[dimension
+          + numberOfInterpolationPoints];
+      this.m_modelSecondDerivativesValues = new double[(dimension
+          * (dimension + 1)) / 2];
+
+      // Allocate the work arrays.
+      this.m_lowerBound = new double[dimension];
+      this.m_upperBound = new double[dimension];
+      this.m_bobyqbWork1 = new double[dimension];
+      this.m_bobyqbWork2 = new double[numberOfInterpolationPoints];
+      this.m_bobyqbWork3 = new double[numberOfInterpolationPoints];
+      this.m_gnew = new double[dimension];
+      this.m_xbdi = new double[dimension];
+      this.m_s = new double[dimension];
+      this.m_hs = new double[dimension];
+      this.m_hred = new double[dimension];
+      this.m_trsboxWork = new double[numberOfInterpolationPoints];
+      this.m_glag = new double[dimension];
+      this.m_hcol = new double[numberOfInterpolationPoints];
+      this.m_altmovWork1 = new double[dimension];
+      this.m_altmovWork2 = new double[dimension];
+      this.m_updateWork = new double[numberOfInterpolationPoints
+          + dimension];
+      this.m_pair = new double[2];
     }
 
-    /** {@inheritDoc} */
-    @Override
-    protected final PointValuePair doOptimize() {
-      final double[] lowerBound = this.getLowerBound();
-      final double[] upperBound = this.getUpperBound();
+    /**
+     * Minimize the objective function within the bounds stored in
+     * {@link #m_lowerBound} and {@link #m_upperBound}.
+     *
+     * @param startPoint
+     *          the starting point
+     * @param maxEvaluations
+     *          the maximum number of objective function evaluations
+     * @return the value of the objective at the optimum, or
+     *         {@link Double#POSITIVE_INFINITY} if we got stuck and had to
+     *         abort a potential infinite loop.
+     * @throws TooManyEvaluationsException
+     *           if the maximum number of evaluations is exceeded
+     */
+    final double _optimize(final double[] startPoint,
+        final int maxEvaluations) {
+      this.m_evaluations = 0;
+      this.m_maxEvaluations = maxEvaluations;
 
-      this.__setup(lowerBound, upperBound);
+      this.__setup(this.m_lowerBound, this.m_upperBound);
 
-      this.m_currentBest = new ArrayRealVector(this.getStartPoint());
+      System.arraycopy(startPoint, 0, this.m_currentBest, 0,
+          this.m_currentBest.length);
 
-      final double value = this.__bobyqa(lowerBound, upperBound);
+      return this.__bobyqa(this.m_lowerBound, this.m_upperBound);
+    }
 
-      return new PointValuePair(this.m_currentBest.getDataRef(), value);
+    /**
+     * Evaluate the objective function at {@link #m_currentBest}.
+     *
+     * @return the objective value
+     * @throws TooManyEvaluationsException
+     *           if the maximum number of evaluations is exceeded
+     */
+    private final double __computeObjectiveValue() {
+      if ((++this.m_evaluations) > this.m_maxEvaluations) {
+        throw new TooManyEvaluationsException(
+            Integer.valueOf(this.m_maxEvaluations));
+      }
+      return this.m_owner.value(this.m_currentBest);
     }
 
     /**
@@ -976,52 +2303,43 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     private double __bobyqa(final double[] lowerBound,
         final double[] upperBound) {
 
-      final int n = this.m_currentBest.getDimension();
+      final int n = this.m_currentBest.length;
 
       for (int j = 0; j < n; j++) {
         final double boundDiff = this.m_boundDifference[j];
-        this.m_lowerDifference.setEntry(j,
-            lowerBound[j] - this.m_currentBest.getEntry(j));
-        this.m_upperDifference.setEntry(j,
-            upperBound[j] - this.m_currentBest.getEntry(j));
-        if (this.m_lowerDifference
-            .getEntry(j) >= -this.m_initialTrustRegionRadius) {
-          if (this.m_lowerDifference
-              .getEntry(j) >= __SafeBOBYQAOptimizer.ZERO) {
-            this.m_currentBest.setEntry(j, lowerBound[j]);
-            this.m_lowerDifference.setEntry(j, __SafeBOBYQAOptimizer.ZERO);
-            this.m_upperDifference.setEntry(j, boundDiff);
+        this.m_lowerDifference[j] = lowerBound[j] - this.m_currentBest[j];
+        this.m_upperDifference[j] = upperBound[j] - this.m_currentBest[j];
+        if (this.m_lowerDifference[j] >= -this.m_initialTrustRegionRadius) {
+          if (this.m_lowerDifference[j] >= __SafeBOBYQAOptimizer.ZERO) {
+            this.m_currentBest[j] = lowerBound[j];
+            this.m_lowerDifference[j] = __SafeBOBYQAOptimizer.ZERO;
+            this.m_upperDifference[j] = boundDiff;
           } else {
-            this.m_currentBest.setEntry(j,
-                lowerBound[j] + this.m_initialTrustRegionRadius);
-            this.m_lowerDifference.setEntry(j,
-                -this.m_initialTrustRegionRadius);
+            this.m_currentBest[j] = lowerBound[j]
+                + this.m_initialTrustRegionRadius;
+            this.m_lowerDifference[j] = -this.m_initialTrustRegionRadius;
             // Computing MAX
             final double deltaOne = upperBound[j]
-                - this.m_currentBest.getEntry(j);
-            this.m_upperDifference.setEntry(j,
-                FastMath.max(deltaOne, this.m_initialTrustRegionRadius));
+                - this.m_currentBest[j];
+            this.m_upperDifference[j] = FastMath.max(deltaOne,
+                this.m_initialTrustRegionRadius);
           }
         } else
-          if (this.m_upperDifference
-              .getEntry(j) <= this.m_initialTrustRegionRadius) {
-            if (this.m_upperDifference
-                .getEntry(j) <= __SafeBOBYQAOptimizer.ZERO) {
-              this.m_currentBest.setEntry(j, upperBound[j]);
-              this.m_lowerDifference.setEntry(j, -boundDiff);
-              this.m_upperDifference.setEntry(j,
-                  __SafeBOBYQAOptimizer.ZERO);
+          if (this.m_upperDifference[j] <= //
+              this.m_initialTrustRegionRadius) {
+            if (this.m_upperDifference[j] <= __SafeBOBYQAOptimizer.ZERO) {
+              this.m_currentBest[j] = upperBound[j];
+              this.m_lowerDifference[j] = -boundDiff;
+              this.m_upperDifference[j] = __SafeBOBYQAOptimizer.ZERO;
             } else {
-              this.m_currentBest.setEntry(j,
-                  upperBound[j] - this.m_initialTrustRegionRadius);
+              this.m_currentBest[j] = upperBound[j]
+                  - this.m_initialTrustRegionRadius;
               // Computing MIN
               final double deltaOne = lowerBound[j]
-                  - this.m_currentBest.getEntry(j);
+                  - this.m_currentBest[j];
               final double deltaTwo = -this.m_initialTrustRegionRadius;
-              this.m_lowerDifference.setEntry(j,
-                  FastMath.min(deltaOne, deltaTwo));
-              this.m_upperDifference.setEntry(j,
-                  this.m_initialTrustRegionRadius);
+              this.m_lowerDifference[j] = FastMath.min(deltaOne, deltaTwo);
+              this.m_upperDifference[j] = this.m_initialTrustRegionRadius;
             }
           }
       }
@@ -1045,15 +2363,18 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     private double __bobyqb(final double[] lowerBound,
         final double[] upperBound) {
 
-      final int n = this.m_currentBest.getDimension();
+      final int n = this.m_currentBest.length;
       final int npt = this.m_numberOfInterpolationPoints;
       final int np = n + 1;
       final int nptm = npt - np;
       final int nh = (n * np) / 2;
 
-      final ArrayRealVector work1 = new ArrayRealVector(n);
-      final ArrayRealVector work2 = new ArrayRealVector(npt);
-      final ArrayRealVector work3 = new ArrayRealVector(npt);
+      final double[] work1 = this.m_bobyqbWork1;
+      final double[] work2 = this.m_bobyqbWork2;
+      final double[] work3 = this.m_bobyqbWork3;
+      Arrays.fill(work1, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(work2, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(work3, __SafeBOBYQAOptimizer.ZERO);
 
       double cauchy = Double.NaN;
       double alpha = Double.NaN;
@@ -1083,14 +2404,13 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       this.__prelim(lowerBound, upperBound);
       double xoptsq = __SafeBOBYQAOptimizer.ZERO;
       for (int i = 0; i < n; i++) {
-        this.m_trustRegionCenterOffset.setEntry(i,
-            this.m_interpolationPoints.getEntry(
-                this.m_trustRegionCenterInterpolationPointIndex, i));
+        this.m_trustRegionCenterOffset[i] =
+            this.m_interpolationPoints[this.m_trustRegionCenterInterpolationPointIndex][i];
         // Computing 2nd power
-        final double deltaOne = this.m_trustRegionCenterOffset.getEntry(i);
+        final double deltaOne = this.m_trustRegionCenterOffset[i];
         xoptsq += deltaOne * deltaOne;
       }
-      double fsave = this.m_fAtInterpolationPoints.getEntry(0);
+      double fsave = this.m_fAtInterpolationPoints[0];
       final int kbase = 0;
 
       // Complete the settings that are required for the iterative
@@ -1099,7 +2419,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       int ntrits = 0;
       int itest = 0;
       int knew = 0;
-      int nfsav = this.getEvaluations();
+      int nfsav = this.m_evaluations;
       double rho = this.m_initialTrustRegionRadius;
       double delta = rho;
       double diffa = __SafeBOBYQAOptimizer.ZERO;
@@ -1128,36 +2448,27 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               for (int j = 0; j < n; j++) {
                 for (int i = 0; i <= j; i++) {
                   if (i < j) {
-                    this.m_gradientAtTrustRegionCenter.setEntry(j,
-                        this.m_gradientAtTrustRegionCenter.getEntry(j)
-                            + (this.m_modelSecondDerivativesValues
-                                .getEntry(ih)
-                                * this.m_trustRegionCenterOffset
-                                    .getEntry(i)));
+                    this.m_gradientAtTrustRegionCenter[j] +=
+                        (this.m_modelSecondDerivativesValues[ih]
+                            * this.m_trustRegionCenterOffset[i]);
                   }
-                  this.m_gradientAtTrustRegionCenter.setEntry(i,
-                      this.m_gradientAtTrustRegionCenter.getEntry(i)
-                          + (this.m_modelSecondDerivativesValues
-                              .getEntry(ih)
-                              * this.m_trustRegionCenterOffset
-                                  .getEntry(j)));
+                  this.m_gradientAtTrustRegionCenter[i] +=
+                      (this.m_modelSecondDerivativesValues[ih]
+                          * this.m_trustRegionCenterOffset[j]);
                   ih++;
                 }
               }
-              if (this.getEvaluations() > npt) {
+              if (this.m_evaluations > npt) {
                 for (int k = 0; k < npt; k++) {
                   double temp = __SafeBOBYQAOptimizer.ZERO;
                   for (int j = 0; j < n; j++) {
-                    temp += this.m_interpolationPoints.getEntry(k, j)
-                        * this.m_trustRegionCenterOffset.getEntry(j);
+                    temp += this.m_interpolationPoints[k][j]
+                        * this.m_trustRegionCenterOffset[j];
                   }
-                  temp *= this.m_modelSecondDerivativesParameters
-                      .getEntry(k);
+                  temp *= this.m_modelSecondDerivativesParameters[k];
                   for (int i = 0; i < n; i++) {
-                    this.m_gradientAtTrustRegionCenter.setEntry(i,
-                        this.m_gradientAtTrustRegionCenter.getEntry(i)
-                            + (temp * this.m_interpolationPoints
-                                .getEntry(k, i)));
+                    this.m_gradientAtTrustRegionCenter[i] += (temp
+                            * this.m_interpolationPoints[k][i]);
                   }
                 }
               }
@@ -1179,11 +2490,16 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
           }
           case 60: {
 
-            final ArrayRealVector gnew = new ArrayRealVector(n);
-            final ArrayRealVector xbdi = new ArrayRealVector(n);
-            final ArrayRealVector s = new ArrayRealVector(n);
-            final ArrayRealVector hs = new ArrayRealVector(n);
-            final ArrayRealVector hred = new ArrayRealVector(n);
+            final double[] gnew = this.m_gnew;
+            final double[] xbdi = this.m_xbdi;
+            final double[] s = this.m_s;
+            final double[] hs = this.m_hs;
+            final double[] hred = this.m_hred;
+            Arrays.fill(gnew, __SafeBOBYQAOptimizer.ZERO);
+            Arrays.fill(xbdi, __SafeBOBYQAOptimizer.ZERO);
+            Arrays.fill(s, __SafeBOBYQAOptimizer.ZERO);
+            Arrays.fill(hs, __SafeBOBYQAOptimizer.ZERO);
+            Arrays.fill(hred, __SafeBOBYQAOptimizer.ZERO);
 
             final double[] dsqCrvmin = this.__trsbox(delta, gnew, xbdi, s,
                 hs, hred);
@@ -1202,7 +2518,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               // Computing 2nd power
               deltaOne = __SafeBOBYQAOptimizer.TEN * rho;
               distsq = deltaOne * deltaOne;
-              if (this.getEvaluations() <= (nfsav + 2)) {
+              if (this.m_evaluations <= (nfsav + 2)) {
                 state = 650;
                 break;
               }
@@ -1231,23 +2547,21 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               final double bdtol = errbig / rho;
               for (int j = 0; j < n; j++) {
                 double bdtest = bdtol;
-                if (this.m_newPoint.getEntry(j) == this.m_lowerDifference
-                    .getEntry(j)) {
-                  bdtest = work1.getEntry(j);
+                if (this.m_newPoint[j] == this.m_lowerDifference[j]) {
+                  bdtest = work1[j];
                 }
-                if (this.m_newPoint.getEntry(j) == this.m_upperDifference
-                    .getEntry(j)) {
-                  bdtest = -work1.getEntry(j);
+                if (this.m_newPoint[j] == this.m_upperDifference[j]) {
+                  bdtest = -work1[j];
                 }
                 if (bdtest < bdtol) {
-                  double curv = this.m_modelSecondDerivativesValues
-                      .getEntry((j + (j * j)) / 2);
+                  double curv =
+                      this.m_modelSecondDerivativesValues[(j + (j * j))
+                      / 2];
                   for (int k = 0; k < npt; k++) {
                     // Computing 2nd power
-                    final double d1 = this.m_interpolationPoints
-                        .getEntry(k, j);
-                    curv += this.m_modelSecondDerivativesParameters
-                        .getEntry(k) * (d1 * d1);
+                    final double d1 = this.m_interpolationPoints[k][j];
+                    curv += this.m_modelSecondDerivativesParameters[k]
+                        * (d1 * d1);
                   }
                   bdtest += __SafeBOBYQAOptimizer.HALF * curv * rho;
                   if (bdtest < bdtol) {
@@ -1284,31 +2598,24 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               // = new ArrayRealVector(npt, -HALF *
               // xoptsq).add(m_interpolationPoints.operate(trustRegionCenter));
               for (int k = 0; k < npt; k++) {
-                sumpq += this.m_modelSecondDerivativesParameters
-                    .getEntry(k);
+                sumpq += this.m_modelSecondDerivativesParameters[k];
                 double sum = -__SafeBOBYQAOptimizer.HALF * xoptsq;
                 for (int i = 0; i < n; i++) {
-                  sum += this.m_interpolationPoints.getEntry(k, i)
-                      * this.m_trustRegionCenterOffset.getEntry(i);
+                  sum += this.m_interpolationPoints[k][i]
+                      * this.m_trustRegionCenterOffset[i];
                 }
-                work2.setEntry(k, sum);
+                work2[k] = sum;
                 final double temp = fracsq
                     - (__SafeBOBYQAOptimizer.HALF * sum);
                 for (int i = 0; i < n; i++) {
-                  work1.setEntry(i, this.m_bMatrix.getEntry(k, i));
-                  this.m_lagrangeValuesAtNewPoint.setEntry(i, (sum
-                      * this.m_interpolationPoints.getEntry(k, i))
-                      + (temp
-                          * this.m_trustRegionCenterOffset.getEntry(i)));
+                  work1[i] = this.m_bMatrix[k][i];
+                  this.m_lagrangeValuesAtNewPoint[i] = (sum
+                          * this.m_interpolationPoints[k][i]) + (temp * this.m_trustRegionCenterOffset[i]);
                   final int ip = npt + i;
                   for (int j = 0; j <= i; j++) {
-                    this.m_bMatrix.setEntry(ip, j,
-                        this.m_bMatrix.getEntry(ip, j)
-                            + (work1.getEntry(i)
-                                * this.m_lagrangeValuesAtNewPoint
-                                    .getEntry(j))
-                        + (this.m_lagrangeValuesAtNewPoint.getEntry(i)
-                            * work1.getEntry(j)));
+                    this.m_bMatrix[ip][j] = this.m_bMatrix[ip][j]
+                        + (work1[i] * this.m_lagrangeValuesAtNewPoint[j])
+                        + (this.m_lagrangeValuesAtNewPoint[i] * work1[j]);
                   }
                 }
               }
@@ -1320,33 +2627,29 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                 double sumz = __SafeBOBYQAOptimizer.ZERO;
                 double sumw = __SafeBOBYQAOptimizer.ZERO;
                 for (int k = 0; k < npt; k++) {
-                  sumz += this.m_zMatrix.getEntry(k, m);
-                  this.m_lagrangeValuesAtNewPoint.setEntry(k,
-                      work2.getEntry(k) * this.m_zMatrix.getEntry(k, m));
-                  sumw += this.m_lagrangeValuesAtNewPoint.getEntry(k);
+                  sumz += this.m_zMatrix[k][m];
+                  this.m_lagrangeValuesAtNewPoint[k] = work2[k]
+                      * this.m_zMatrix[k][m];
+                  sumw += this.m_lagrangeValuesAtNewPoint[k];
                 }
                 for (int j = 0; j < n; j++) {
                   double sum = ((fracsq * sumz)
                       - (__SafeBOBYQAOptimizer.HALF * sumw))
-                      * this.m_trustRegionCenterOffset.getEntry(j);
+                      * this.m_trustRegionCenterOffset[j];
                   for (int k = 0; k < npt; k++) {
-                    sum += this.m_lagrangeValuesAtNewPoint.getEntry(k)
-                        * this.m_interpolationPoints.getEntry(k, j);
+                    sum += this.m_lagrangeValuesAtNewPoint[k]
+                        * this.m_interpolationPoints[k][j];
                   }
-                  work1.setEntry(j, sum);
+                  work1[j] = sum;
                   for (int k = 0; k < npt; k++) {
-                    this.m_bMatrix.setEntry(k, j,
-                        this.m_bMatrix.getEntry(k, j)
-                            + (sum * this.m_zMatrix.getEntry(k, m)));
+                    this.m_bMatrix[k][j] += (sum * this.m_zMatrix[k][m]);
                   }
                 }
                 for (int i = 0; i < n; i++) {
                   final int ip = i + npt;
-                  final double temp = work1.getEntry(i);
+                  final double temp = work1[i];
                   for (int j = 0; j <= i; j++) {
-                    this.m_bMatrix.setEntry(ip, j,
-                        this.m_bMatrix.getEntry(ip, j)
-                            + (temp * work1.getEntry(j)));
+                    this.m_bMatrix[ip][j] += (temp * work1[j]);
                   }
                 }
               }
@@ -1358,42 +2661,32 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
               int ih = 0;
               for (int j = 0; j < n; j++) {
-                work1.setEntry(j, -__SafeBOBYQAOptimizer.HALF * sumpq
-                    * this.m_trustRegionCenterOffset.getEntry(j));
+                work1[j] = -__SafeBOBYQAOptimizer.HALF * sumpq
+                    * this.m_trustRegionCenterOffset[j];
                 for (int k = 0; k < npt; k++) {
-                  work1.setEntry(j, work1.getEntry(j)
-                      + (this.m_modelSecondDerivativesParameters.getEntry(
-                          k) * this.m_interpolationPoints.getEntry(k, j)));
-                  this.m_interpolationPoints.setEntry(k, j,
-                      this.m_interpolationPoints.getEntry(k, j)
-                          - this.m_trustRegionCenterOffset.getEntry(j));
+                  work1[j] += (this.m_modelSecondDerivativesParameters[k]
+                          * this.m_interpolationPoints[k][j]);
+                  this.m_interpolationPoints[k][j] -=
+                      this.m_trustRegionCenterOffset[j];
                 }
                 for (int i = 0; i <= j; i++) {
-                  this.m_modelSecondDerivativesValues.setEntry(ih,
-                      this.m_modelSecondDerivativesValues.getEntry(ih)
-                          + (work1.getEntry(i)
-                              * this.m_trustRegionCenterOffset.getEntry(j))
-                          + (this.m_trustRegionCenterOffset.getEntry(i)
-                              * work1.getEntry(j)));
-                  this.m_bMatrix.setEntry(npt + i, j,
-                      this.m_bMatrix.getEntry(npt + j, i));
+                  this.m_modelSecondDerivativesValues[ih] =
+                      this.m_modelSecondDerivativesValues[ih]
+                      + (work1[i] * this.m_trustRegionCenterOffset[j])
+                      + (this.m_trustRegionCenterOffset[i] * work1[j]);
+                  this.m_bMatrix[npt + i][j] = this.m_bMatrix[npt + j][i];
                   ih++;
                 }
               }
               for (int i = 0; i < n; i++) {
-                this.m_originShift.setEntry(i,
-                    this.m_originShift.getEntry(i)
-                        + this.m_trustRegionCenterOffset.getEntry(i));
-                this.m_newPoint.setEntry(i, this.m_newPoint.getEntry(i)
-                    - this.m_trustRegionCenterOffset.getEntry(i));
-                this.m_lowerDifference.setEntry(i,
-                    this.m_lowerDifference.getEntry(i)
-                        - this.m_trustRegionCenterOffset.getEntry(i));
-                this.m_upperDifference.setEntry(i,
-                    this.m_upperDifference.getEntry(i)
-                        - this.m_trustRegionCenterOffset.getEntry(i));
-                this.m_trustRegionCenterOffset.setEntry(i,
-                    __SafeBOBYQAOptimizer.ZERO);
+                this.m_originShift[i] += this.m_trustRegionCenterOffset[i];
+                this.m_newPoint[i] -= this.m_trustRegionCenterOffset[i];
+                this.m_lowerDifference[i] -=
+                    this.m_trustRegionCenterOffset[i];
+                this.m_upperDifference[i] -=
+                    this.m_trustRegionCenterOffset[i];
+                this.m_trustRegionCenterOffset[i] =
+                    __SafeBOBYQAOptimizer.ZERO;
               }
               xoptsq = __SafeBOBYQAOptimizer.ZERO;
             }
@@ -1449,8 +2742,8 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             cauchy = alphaCauchy[1];
 
             for (int i = 0; i < n; i++) {
-              this.m_trialStepPoint.setEntry(i, this.m_newPoint.getEntry(i)
-                  - this.m_trustRegionCenterOffset.getEntry(i));
+              this.m_trialStepPoint[i] = this.m_newPoint[i]
+                  - this.m_trustRegionCenterOffset[i];
             }
 
             // Calculate VLAG and BETA for the current choice of D. The
@@ -1467,29 +2760,28 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               double sumb = __SafeBOBYQAOptimizer.ZERO;
               double sum = __SafeBOBYQAOptimizer.ZERO;
               for (int j = 0; j < n; j++) {
-                suma += this.m_interpolationPoints.getEntry(k, j)
-                    * this.m_trialStepPoint.getEntry(j);
-                sumb += this.m_interpolationPoints.getEntry(k, j)
-                    * this.m_trustRegionCenterOffset.getEntry(j);
-                sum += this.m_bMatrix.getEntry(k, j)
-                    * this.m_trialStepPoint.getEntry(j);
-              }
-              work3.setEntry(k,
-                  suma * ((__SafeBOBYQAOptimizer.HALF * suma) + sumb));
-              this.m_lagrangeValuesAtNewPoint.setEntry(k, sum);
-              work2.setEntry(k, suma);
+                suma += this.m_interpolationPoints[k][j]
+                    * this.m_trialStepPoint[j];
+                sumb += this.m_interpolationPoints[k][j]
+                    * this.m_trustRegionCenterOffset[j];
+                sum += this.m_bMatrix[k][j]
+                    * this.m_trialStepPoint[j];
+              }
+              work3[k] = suma
+                  * ((__SafeBOBYQAOptimizer.HALF * suma) + sumb);
+              this.m_lagrangeValuesAtNewPoint[k] = sum;
+              work2[k] = suma;
             }
             beta = __SafeBOBYQAOptimizer.ZERO;
             for (int m = 0; m < nptm; m++) {
               double sum = __SafeBOBYQAOptimizer.ZERO;
               for (int k = 0; k < npt; k++) {
-                sum += this.m_zMatrix.getEntry(k, m) * work3.getEntry(k);
+                sum += this.m_zMatrix[k][m] * work3[k];
               }
               beta -= sum * sum;
               for (int k = 0; k < npt; k++) {
-                this.m_lagrangeValuesAtNewPoint.setEntry(k,
-                    this.m_lagrangeValuesAtNewPoint.getEntry(k)
-                        + (sum * this.m_zMatrix.getEntry(k, m)));
+                this.m_lagrangeValuesAtNewPoint[k] += (sum
+                        * this.m_zMatrix[k][m]);
               }
             }
             dsq = __SafeBOBYQAOptimizer.ZERO;
@@ -1497,33 +2789,29 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             double dx = __SafeBOBYQAOptimizer.ZERO;
             for (int j = 0; j < n; j++) {
               // Computing 2nd power
-              final double d1 = this.m_trialStepPoint.getEntry(j);
+              final double d1 = this.m_trialStepPoint[j];
               dsq += d1 * d1;
               double sum = __SafeBOBYQAOptimizer.ZERO;
               for (int k = 0; k < npt; k++) {
-                sum += work3.getEntry(k) * this.m_bMatrix.getEntry(k, j);
+                sum += work3[k] * this.m_bMatrix[k][j];
               }
-              bsum += sum * this.m_trialStepPoint.getEntry(j);
+              bsum += sum * this.m_trialStepPoint[j];
               final int jp = npt + j;
               for (int i = 0; i < n; i++) {
-                sum += this.m_bMatrix.getEntry(jp, i)
-                    * this.m_trialStepPoint.getEntry(i);
+                sum += this.m_bMatrix[jp][i]
+                    * this.m_trialStepPoint[i];
               }
-              this.m_lagrangeValuesAtNewPoint.setEntry(jp, sum);
-              bsum += sum * this.m_trialStepPoint.getEntry(j);
-              dx += this.m_trialStepPoint.getEntry(j)
-                  * this.m_trustRegionCenterOffset.getEntry(j);
+              this.m_lagrangeValuesAtNewPoint[jp] = sum;
+              bsum += sum * this.m_trialStepPoint[j];
+              dx += this.m_trialStepPoint[j]
+                  * this.m_trustRegionCenterOffset[j];
             }
 
             beta = ((dx * dx) + (dsq
                 * (xoptsq + dx + dx + (__SafeBOBYQAOptimizer.HALF * dsq)))
                 + beta) - bsum; // Original
 
-            this.m_lagrangeValuesAtNewPoint.setEntry(
-                this.m_trustRegionCenterInterpolationPointIndex,
-                this.m_lagrangeValuesAtNewPoint.getEntry(
-                    this.m_trustRegionCenterInterpolationPointIndex)
-                    + __SafeBOBYQAOptimizer.ONE);
+            this.m_lagrangeValuesAtNewPoint[this.m_trustRegionCenterInterpolationPointIndex] += __SafeBOBYQAOptimizer.ONE;
 
             // If NTRITS is zero, the denominator may be increased by
             // replacing
@@ -1533,17 +2821,14 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
             if (ntrits == 0) {
               // Computing 2nd power
-              final double d1 = this.m_lagrangeValuesAtNewPoint
-                  .getEntry(knew);
+              final double d1 = this.m_lagrangeValuesAtNewPoint[knew];
               denom = (d1 * d1) + (alpha * beta);
               if ((denom < cauchy)
                   && (cauchy > __SafeBOBYQAOptimizer.ZERO)) {
                 for (int i = 0; i < n; i++) {
-                  this.m_newPoint.setEntry(i,
-                      this.m_alternativeNewPoint.getEntry(i));
-                  this.m_trialStepPoint.setEntry(i,
-                      this.m_newPoint.getEntry(i)
-                          - this.m_trustRegionCenterOffset.getEntry(i));
+                  this.m_newPoint[i] = this.m_alternativeNewPoint[i];
+                  this.m_trialStepPoint[i] = this.m_newPoint[i]
+                      - this.m_trustRegionCenterOffset[i];
                 }
                 cauchy = __SafeBOBYQAOptimizer.ZERO;
 
@@ -1573,18 +2858,17 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                 double hdiag = __SafeBOBYQAOptimizer.ZERO;
                 for (int m = 0; m < nptm; m++) {
                   // Computing 2nd power
-                  final double d1 = this.m_zMatrix.getEntry(k, m);
+                  final double d1 = this.m_zMatrix[k][m];
                   hdiag += d1 * d1;
                 }
                 // Computing 2nd power
-                final double d2 = this.m_lagrangeValuesAtNewPoint
-                    .getEntry(k);
+                final double d2 = this.m_lagrangeValuesAtNewPoint[k];
                 final double den = (beta * hdiag) + (d2 * d2);
                 distsq = __SafeBOBYQAOptimizer.ZERO;
                 for (int j = 0; j < n; j++) {
                   // Computing 2nd power
-                  final double d3 = this.m_interpolationPoints.getEntry(k,
-                      j) - this.m_trustRegionCenterOffset.getEntry(j);
+                  final double d3 = this.m_interpolationPoints[k][j]
+                      - this.m_trustRegionCenterOffset[j];
                   distsq += d3 * d3;
                 }
                 // Computing MAX
@@ -1599,8 +2883,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                 }
                 // Computing MAX
                 // Computing 2nd power
-                final double d5 = this.m_lagrangeValuesAtNewPoint
-                    .getEntry(k);
+                final double d5 = this.m_lagrangeValuesAtNewPoint[k];
                 biglsq = FastMath.max(biglsq, temp * (d5 * d5));
               }
             }
@@ -1621,22 +2904,20 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               // Computing MIN
               // Computing MAX
               final double d3 = lowerBound[i];
-              final double d4 = this.m_originShift.getEntry(i)
-                  + this.m_newPoint.getEntry(i);
+              final double d4 = this.m_originShift[i]
+                  + this.m_newPoint[i];
               final double d1 = FastMath.max(d3, d4);
               final double d2 = upperBound[i];
-              this.m_currentBest.setEntry(i, FastMath.min(d1, d2));
-              if (this.m_newPoint.getEntry(i) == this.m_lowerDifference
-                  .getEntry(i)) {
-                this.m_currentBest.setEntry(i, lowerBound[i]);
+              this.m_currentBest[i] = FastMath.min(d1, d2);
+              if (this.m_newPoint[i] == this.m_lowerDifference[i]) {
+                this.m_currentBest[i] = lowerBound[i];
               }
-              if (this.m_newPoint.getEntry(i) == this.m_upperDifference
-                  .getEntry(i)) {
-                this.m_currentBest.setEntry(i, upperBound[i]);
+              if (this.m_newPoint[i] == this.m_upperDifference[i]) {
+                this.m_currentBest[i] = upperBound[i];
               }
             }
 
-            f = this.computeObjectiveValue(this.m_currentBest.toArray());
+            f = this.__computeObjectiveValue();
 
             if (ntrits == -1) {
               fsave = f;
@@ -1648,31 +2929,31 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             // the step D,
             // and set DIFF to the error of this prediction.
 
-            final double fopt = this.m_fAtInterpolationPoints
-                .getEntry(this.m_trustRegionCenterInterpolationPointIndex);
+            final double fopt =
+                this.m_fAtInterpolationPoints[this.m_trustRegionCenterInterpolationPointIndex];
             double vquad = __SafeBOBYQAOptimizer.ZERO;
             int ih = 0;
             for (int j = 0; j < n; j++) {
-              vquad += this.m_trialStepPoint.getEntry(j)
-                  * this.m_gradientAtTrustRegionCenter.getEntry(j);
+              vquad += this.m_trialStepPoint[j]
+                  * this.m_gradientAtTrustRegionCenter[j];
               for (int i = 0; i <= j; i++) {
-                double temp = this.m_trialStepPoint.getEntry(i)
-                    * this.m_trialStepPoint.getEntry(j);
+                double temp = this.m_trialStepPoint[i]
+                    * this.m_trialStepPoint[j];
                 if (i == j) {
                   temp *= __SafeBOBYQAOptimizer.HALF;
                 }
-                vquad += this.m_modelSecondDerivativesValues.getEntry(ih)
+                vquad += this.m_modelSecondDerivativesValues[ih]
                     * temp;
                 ih++;
               }
             }
             for (int k = 0; k < npt; k++) {
               // Computing 2nd power
-              final double d1 = work2.getEntry(k);
+              final double d1 = work2[k];
               final double d2 = d1 * d1; // "d1" must be squared first to
                                          // prevent test failures.
               vquad += __SafeBOBYQAOptimizer.HALF
-                  * this.m_modelSecondDerivativesParameters.getEntry(k)
+                  * this.m_modelSecondDerivativesParameters[k]
                   * d2;
             }
             final double diff = f - fopt - vquad;
@@ -1680,7 +2961,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             diffb = diffa;
             diffa = FastMath.abs(diff);
             if (dnorm > rho) {
-              nfsav = this.getEvaluations();
+              nfsav = this.m_evaluations;
             }
 
             // Pick the next value of DELTA after a trust region step.
@@ -1721,18 +3002,17 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                   double hdiag = __SafeBOBYQAOptimizer.ZERO;
                   for (int m = 0; m < nptm; m++) {
                     // Computing 2nd power
-                    final double d1 = this.m_zMatrix.getEntry(k, m);
+                    final double d1 = this.m_zMatrix[k][m];
                     hdiag += d1 * d1;
                   }
                   // Computing 2nd power
-                  final double d1 = this.m_lagrangeValuesAtNewPoint
-                      .getEntry(k);
+                  final double d1 = this.m_lagrangeValuesAtNewPoint[k];
                   final double den = (beta * hdiag) + (d1 * d1);
                   distsq = __SafeBOBYQAOptimizer.ZERO;
                   for (int j = 0; j < n; j++) {
                     // Computing 2nd power
-                    final double d2 = this.m_interpolationPoints
-                        .getEntry(k, j) - this.m_newPoint.getEntry(j);
+                    final double d2 = this.m_interpolationPoints[k][j]
+                        - this.m_newPoint[j];
                     distsq += d2 * d2;
                   }
                   // Computing MAX
@@ -1747,8 +3027,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                   }
                   // Computing MAX
                   // Computing 2nd power
-                  final double d4 = this.m_lagrangeValuesAtNewPoint
-                      .getEntry(k);
+                  final double d4 = this.m_lagrangeValuesAtNewPoint[k];
                   final double d5 = temp * (d4 * d4);
                   biglsq = FastMath.max(biglsq, d5);
                 }
@@ -1766,27 +3045,24 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             this.__update(beta, denom, knew);
 
             ih = 0;
-            final double pqold = this.m_modelSecondDerivativesParameters
-                .getEntry(knew);
-            this.m_modelSecondDerivativesParameters.setEntry(knew,
-                __SafeBOBYQAOptimizer.ZERO);
+            final double pqold =
+                this.m_modelSecondDerivativesParameters[knew];
+            this.m_modelSecondDerivativesParameters[knew] =
+                __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
               final double temp = pqold
-                  * this.m_interpolationPoints.getEntry(knew, i);
+                  * this.m_interpolationPoints[knew][i];
               for (int j = 0; j <= i; j++) {
-                this.m_modelSecondDerivativesValues.setEntry(ih,
-                    this.m_modelSecondDerivativesValues.getEntry(ih)
-                        + (temp * this.m_interpolationPoints.getEntry(knew,
-                            j)));
+                this.m_modelSecondDerivativesValues[ih] += (temp
+                        * this.m_interpolationPoints[knew][j]);
                 ih++;
               }
             }
             for (int m = 0; m < nptm; m++) {
-              final double temp = diff * this.m_zMatrix.getEntry(knew, m);
+              final double temp = diff * this.m_zMatrix[knew][m];
               for (int k = 0; k < npt; k++) {
-                this.m_modelSecondDerivativesParameters.setEntry(k,
-                    this.m_modelSecondDerivativesParameters.getEntry(k)
-                        + (temp * this.m_zMatrix.getEntry(k, m)));
+                this.m_modelSecondDerivativesParameters[k] += (temp
+                        * this.m_zMatrix[k][m]);
               }
             }
 
@@ -1795,33 +3071,29 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             // the old XOPT that are caused by the updating of the
             // quadratic model.
 
-            this.m_fAtInterpolationPoints.setEntry(knew, f);
+            this.m_fAtInterpolationPoints[knew] = f;
             for (int i = 0; i < n; i++) {
-              this.m_interpolationPoints.setEntry(knew, i,
-                  this.m_newPoint.getEntry(i));
-              work1.setEntry(i, this.m_bMatrix.getEntry(knew, i));
+              this.m_interpolationPoints[knew][i] = this.m_newPoint[i];
+              work1[i] = this.m_bMatrix[knew][i];
             }
             for (int k = 0; k < npt; k++) {
               double suma = __SafeBOBYQAOptimizer.ZERO;
               for (int m = 0; m < nptm; m++) {
-                suma += this.m_zMatrix.getEntry(knew, m)
-                    * this.m_zMatrix.getEntry(k, m);
+                suma += this.m_zMatrix[knew][m]
+                    * this.m_zMatrix[k][m];
               }
               double sumb = __SafeBOBYQAOptimizer.ZERO;
               for (int j = 0; j < n; j++) {
-                sumb += this.m_interpolationPoints.getEntry(k, j)
-                    * this.m_trustRegionCenterOffset.getEntry(j);
+                sumb += this.m_interpolationPoints[k][j]
+                    * this.m_trustRegionCenterOffset[j];
               }
               final double temp = suma * sumb;
               for (int i = 0; i < n; i++) {
-                work1.setEntry(i, work1.getEntry(i)
-                    + (temp * this.m_interpolationPoints.getEntry(k, i)));
+                work1[i] += (temp * this.m_interpolationPoints[k][i]);
               }
             }
             for (int i = 0; i < n; i++) {
-              this.m_gradientAtTrustRegionCenter.setEntry(i,
-                  this.m_gradientAtTrustRegionCenter.getEntry(i)
-                      + (diff * work1.getEntry(i)));
+              this.m_gradientAtTrustRegionCenter[i] += (diff * work1[i]);
             }
 
             // Update XOPT, GOPT and KOPT if the new calculated F is less
@@ -1832,40 +3104,32 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               xoptsq = __SafeBOBYQAOptimizer.ZERO;
               ih = 0;
               for (int j = 0; j < n; j++) {
-                this.m_trustRegionCenterOffset.setEntry(j,
-                    this.m_newPoint.getEntry(j));
+                this.m_trustRegionCenterOffset[j] = this.m_newPoint[j];
                 // Computing 2nd power
-                final double d1 = this.m_trustRegionCenterOffset
-                    .getEntry(j);
+                final double d1 = this.m_trustRegionCenterOffset[j];
                 xoptsq += d1 * d1;
                 for (int i = 0; i <= j; i++) {
                   if (i < j) {
-                    this.m_gradientAtTrustRegionCenter.setEntry(j,
-                        this.m_gradientAtTrustRegionCenter.getEntry(j)
-                            + (this.m_modelSecondDerivativesValues
-                                .getEntry(ih)
-                                * this.m_trialStepPoint.getEntry(i)));
+                    this.m_gradientAtTrustRegionCenter[j] +=
+                        (this.m_modelSecondDerivativesValues[ih]
+                            * this.m_trialStepPoint[i]);
                   }
-                  this.m_gradientAtTrustRegionCenter.setEntry(i,
-                      this.m_gradientAtTrustRegionCenter.getEntry(i)
-                          + (this.m_modelSecondDerivativesValues.getEntry(
-                              ih) * this.m_trialStepPoint.getEntry(j)));
+                  this.m_gradientAtTrustRegionCenter[i] +=
+                      (this.m_modelSecondDerivativesValues[ih]
+                          * this.m_trialStepPoint[j]);
                   ih++;
                 }
               }
               for (int k = 0; k < npt; k++) {
                 double temp = __SafeBOBYQAOptimizer.ZERO;
                 for (int j = 0; j < n; j++) {
-                  temp += this.m_interpolationPoints.getEntry(k, j)
-                      * this.m_trialStepPoint.getEntry(j);
+                  temp += this.m_interpolationPoints[k][j]
+                      * this.m_trialStepPoint[j];
                 }
-                temp *= this.m_modelSecondDerivativesParameters
-                    .getEntry(k);
+                temp *= this.m_modelSecondDerivativesParameters[k];
                 for (int i = 0; i < n; i++) {
-                  this.m_gradientAtTrustRegionCenter.setEntry(i,
-                      this.m_gradientAtTrustRegionCenter.getEntry(i)
-                          + (temp * this.m_interpolationPoints.getEntry(k,
-                              i)));
+                  this.m_gradientAtTrustRegionCenter[i] += (temp
+                          * this.m_interpolationPoints[k][i]);
                 }
               }
             }
@@ -1878,62 +3142,60 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
             if (ntrits > 0) {
               for (int k = 0; k < npt; k++) {
-                this.m_lagrangeValuesAtNewPoint.setEntry(k,
-                    this.m_fAtInterpolationPoints.getEntry(k)
-                        - this.m_fAtInterpolationPoints.getEntry(
-                            this.m_trustRegionCenterInterpolationPointIndex));
-                work3.setEntry(k, __SafeBOBYQAOptimizer.ZERO);
+                this.m_lagrangeValuesAtNewPoint[k] =
+                    this.m_fAtInterpolationPoints[k]
+                    - this.m_fAtInterpolationPoints[this.m_trustRegionCenterInterpolationPointIndex];
+                work3[k] = __SafeBOBYQAOptimizer.ZERO;
               }
               for (int j = 0; j < nptm; j++) {
                 double sum = __SafeBOBYQAOptimizer.ZERO;
                 for (int k = 0; k < npt; k++) {
-                  sum += this.m_zMatrix.getEntry(k, j)
-                      * this.m_lagrangeValuesAtNewPoint.getEntry(k);
+                  sum += this.m_zMatrix[k][j]
+                      * this.m_lagrangeValuesAtNewPoint[k];
                 }
                 for (int k = 0; k < npt; k++) {
-                  work3.setEntry(k, work3.getEntry(k)
-                      + (sum * this.m_zMatrix.getEntry(k, j)));
+                  work3[k] += (sum * this.m_zMatrix[k][j]);
                 }
               }
               for (int k = 0; k < npt; k++) {
                 double sum = __SafeBOBYQAOptimizer.ZERO;
                 for (int j = 0; j < n; j++) {
-                  sum += this.m_interpolationPoints.getEntry(k, j)
-                      * this.m_trustRegionCenterOffset.getEntry(j);
+                  sum += this.m_interpolationPoints[k][j]
+                      * this.m_trustRegionCenterOffset[j];
                 }
-                work2.setEntry(k, work3.getEntry(k));
-                work3.setEntry(k, sum * work3.getEntry(k));
+                work2[k] = work3[k];
+                work3[k] = sum * work3[k];
               }
               double gqsq = __SafeBOBYQAOptimizer.ZERO;
               double gisq = __SafeBOBYQAOptimizer.ZERO;
               for (int i = 0; i < n; i++) {
                 double sum = __SafeBOBYQAOptimizer.ZERO;
                 for (int k = 0; k < npt; k++) {
-                  sum += (this.m_bMatrix.getEntry(k, i)
-                      * this.m_lagrangeValuesAtNewPoint.getEntry(k))
-                      + (this.m_interpolationPoints.getEntry(k, i)
-                          * work3.getEntry(k));
+                  sum += (this.m_bMatrix[k][i]
+                      * this.m_lagrangeValuesAtNewPoint[k])
+                      + (this.m_interpolationPoints[k][i]
+                          * work3[k]);
                 }
-                if (this.m_trustRegionCenterOffset
-                    .getEntry(i) == this.m_lowerDifference.getEntry(i)) {
+                if (this.m_trustRegionCenterOffset[i] == //
+                    this.m_lowerDifference[i]) {
                   // Computing MIN
                   // Computing 2nd power
                   final double d1 = FastMath.min(
                       __SafeBOBYQAOptimizer.ZERO,
-                      this.m_gradientAtTrustRegionCenter.getEntry(i));
+                      this.m_gradientAtTrustRegionCenter[i]);
                   gqsq += d1 * d1;
                   // Computing 2nd power
                   final double d2 = FastMath
                       .min(__SafeBOBYQAOptimizer.ZERO, sum);
                   gisq += d2 * d2;
                 } else
-                  if (this.m_trustRegionCenterOffset
-                      .getEntry(i) == this.m_upperDifference.getEntry(i)) {
+                  if (this.m_trustRegionCenterOffset[i] == //
+                      this.m_upperDifference[i]) {
                     // Computing MAX
                     // Computing 2nd power
                     final double d1 = FastMath.max(
                         __SafeBOBYQAOptimizer.ZERO,
-                        this.m_gradientAtTrustRegionCenter.getEntry(i));
+                        this.m_gradientAtTrustRegionCenter[i]);
                     gqsq += d1 * d1;
                     // Computing 2nd power
                     final double d2 = FastMath
@@ -1941,12 +3203,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                     gisq += d2 * d2;
                   } else {
                     // Computing 2nd power
-                    final double d1 = this.m_gradientAtTrustRegionCenter
-                        .getEntry(i);
+                    final double d1 = this.m_gradientAtTrustRegionCenter[i];
                     gqsq += d1 * d1;
                     gisq += sum * sum;
                   }
-                this.m_lagrangeValuesAtNewPoint.setEntry(npt + i, sum);
+                this.m_lagrangeValuesAtNewPoint[npt + i] = sum;
               }
 
               // Test whether to replace the new quadratic model by the
@@ -1962,16 +3223,15 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                 for (int i = 0, max = FastMath.max(npt,
                     nh); i < max; i++) {
                   if (i < n) {
-                    this.m_gradientAtTrustRegionCenter.setEntry(i,
-                        this.m_lagrangeValuesAtNewPoint.getEntry(npt + i));
+                    this.m_gradientAtTrustRegionCenter[i] =
+                        this.m_lagrangeValuesAtNewPoint[npt + i];
                   }
                   if (i < npt) {
-                    this.m_modelSecondDerivativesParameters.setEntry(i,
-                        work2.getEntry(i));
+                    this.m_modelSecondDerivativesParameters[i] = work2[i];
                   }
                   if (i < nh) {
-                    this.m_modelSecondDerivativesValues.setEntry(i,
-                        __SafeBOBYQAOptimizer.ZERO);
+                    this.m_modelSecondDerivativesValues[i] =
+                        __SafeBOBYQAOptimizer.ZERO;
                   }
                   itest = 0;
                 }
@@ -2013,8 +3273,8 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               double sum = __SafeBOBYQAOptimizer.ZERO;
               for (int j = 0; j < n; j++) {
                 // Computing 2nd power
-                final double d1 = this.m_interpolationPoints.getEntry(k, j)
-                    - this.m_trustRegionCenterOffset.getEntry(j);
+                final double d1 = this.m_interpolationPoints[k][j]
+                    - this.m_trustRegionCenterOffset[j];
                 sum += d1 * d1;
               }
               if (sum > distsq) {
@@ -2087,7 +3347,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
                 }
               delta = FastMath.max(delta, rho);
               ntrits = 0;
-              nfsav = this.getEvaluations();
+              nfsav = this.m_evaluations;
               state = 60;
               break;
             }
@@ -2103,28 +3363,26 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
           }
           case 720: {
 
-            if (this.m_fAtInterpolationPoints.getEntry(
-                this.m_trustRegionCenterInterpolationPointIndex) <= fsave) {
+            if (this.m_fAtInterpolationPoints[this.m_trustRegionCenterInterpolationPointIndex] <= fsave) {
               for (int i = 0; i < n; i++) {
                 // Computing MIN
                 // Computing MAX
                 final double d3 = lowerBound[i];
-                final double d4 = this.m_originShift.getEntry(i)
-                    + this.m_trustRegionCenterOffset.getEntry(i);
+                final double d4 = this.m_originShift[i]
+                    + this.m_trustRegionCenterOffset[i];
                 final double d1 = FastMath.max(d3, d4);
                 final double d2 = upperBound[i];
-                this.m_currentBest.setEntry(i, FastMath.min(d1, d2));
-                if (this.m_trustRegionCenterOffset
-                    .getEntry(i) == this.m_lowerDifference.getEntry(i)) {
-                  this.m_currentBest.setEntry(i, lowerBound[i]);
+                this.m_currentBest[i] = FastMath.min(d1, d2);
+                if (this.m_trustRegionCenterOffset[i] == //
+                    this.m_lowerDifference[i]) {
+                  this.m_currentBest[i] = lowerBound[i];
                 }
-                if (this.m_trustRegionCenterOffset
-                    .getEntry(i) == this.m_upperDifference.getEntry(i)) {
-                  this.m_currentBest.setEntry(i, upperBound[i]);
+                if (this.m_trustRegionCenterOffset[i] == //
+                    this.m_upperDifference[i]) {
+                  this.m_currentBest[i] = upperBound[i];
                 }
               }
-              f = this.m_fAtInterpolationPoints.getEntry(
-                  this.m_trustRegionCenterInterpolationPointIndex);
+              f = this.m_fAtInterpolationPoints[this.m_trustRegionCenterInterpolationPointIndex];
             }
             return f;
           }
@@ -2155,41 +3413,42 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
      */
     private final double[] __altmov(final int knew, final double adelt) {
 
-      final int n = this.m_currentBest.getDimension();
+      final int n = this.m_currentBest.length;
       final int npt = this.m_numberOfInterpolationPoints;
 
-      final ArrayRealVector glag = new ArrayRealVector(n);
-      final ArrayRealVector hcol = new ArrayRealVector(npt);
+      final double[] glag = this.m_glag;
+      final double[] hcol = this.m_hcol;
 
-      final ArrayRealVector work1 = new ArrayRealVector(n);
-      final ArrayRealVector work2 = new ArrayRealVector(n);
+      final double[] work1 = this.m_altmovWork1;
+      final double[] work2 = this.m_altmovWork2;
+      Arrays.fill(glag, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(work1, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(work2, __SafeBOBYQAOptimizer.ZERO);
 
       for (int k = 0; k < npt; k++) {
-        hcol.setEntry(k, __SafeBOBYQAOptimizer.ZERO);
+        hcol[k] = __SafeBOBYQAOptimizer.ZERO;
       }
       for (int j = 0, max = npt - n - 1; j < max; j++) {
-        final double tmp = this.m_zMatrix.getEntry(knew, j);
+        final double tmp = this.m_zMatrix[knew][j];
         for (int k = 0; k < npt; k++) {
-          hcol.setEntry(k,
-              hcol.getEntry(k) + (tmp * this.m_zMatrix.getEntry(k, j)));
+          hcol[k] += (tmp * this.m_zMatrix[k][j]);
         }
       }
-      final double alpha = hcol.getEntry(knew);
+      final double alpha = hcol[knew];
       final double ha = __SafeBOBYQAOptimizer.HALF * alpha;
 
       for (int i = 0; i < n; i++) {
-        glag.setEntry(i, this.m_bMatrix.getEntry(knew, i));
+        glag[i] = this.m_bMatrix[knew][i];
       }
       for (int k = 0; k < npt; k++) {
         double tmp = __SafeBOBYQAOptimizer.ZERO;
         for (int j = 0; j < n; j++) {
-          tmp += this.m_interpolationPoints.getEntry(k, j)
-              * this.m_trustRegionCenterOffset.getEntry(j);
+          tmp += this.m_interpolationPoints[k][j]
+              * this.m_trustRegionCenterOffset[j];
         }
-        tmp *= hcol.getEntry(k);
+        tmp *= hcol[k];
         for (int i = 0; i < n; i++) {
-          glag.setEntry(i, glag.getEntry(i)
-              + (tmp * this.m_interpolationPoints.getEntry(k, i)));
+          glag[i] += (tmp * this.m_interpolationPoints[k][i]);
         }
       }
 
@@ -2205,9 +3464,9 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
         double dderiv = __SafeBOBYQAOptimizer.ZERO;
         double distsq = __SafeBOBYQAOptimizer.ZERO;
         for (int i = 0; i < n; i++) {
-          final double tmp = this.m_interpolationPoints.getEntry(k, i)
-              - this.m_trustRegionCenterOffset.getEntry(i);
-          dderiv += glag.getEntry(i) * tmp;
+          final double tmp = this.m_interpolationPoints[k][i]
+              - this.m_trustRegionCenterOffset[i];
+          dderiv += glag[i] * tmp;
           distsq += tmp * tmp;
         }
         double subd = adelt / FastMath.sqrt(distsq);
@@ -2217,39 +3476,39 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
         final double sumin = FastMath.min(__SafeBOBYQAOptimizer.ONE, subd);
 
         for (int i = 0; i < n; i++) {
-          final double tmp = this.m_interpolationPoints.getEntry(k, i)
-              - this.m_trustRegionCenterOffset.getEntry(i);
+          final double tmp = this.m_interpolationPoints[k][i]
+              - this.m_trustRegionCenterOffset[i];
           if (tmp > __SafeBOBYQAOptimizer.ZERO) {
-            if ((slbd * tmp) < (this.m_lowerDifference.getEntry(i)
-                - this.m_trustRegionCenterOffset.getEntry(i))) {
-              slbd = (this.m_lowerDifference.getEntry(i)
-                  - this.m_trustRegionCenterOffset.getEntry(i)) / tmp;
+            if ((slbd * tmp) < (this.m_lowerDifference[i]
+                - this.m_trustRegionCenterOffset[i])) {
+              slbd = (this.m_lowerDifference[i]
+                  - this.m_trustRegionCenterOffset[i]) / tmp;
               ilbd = -i - 1;
             }
-            if ((subd * tmp) > (this.m_upperDifference.getEntry(i)
-                - this.m_trustRegionCenterOffset.getEntry(i))) {
+            if ((subd * tmp) > (this.m_upperDifference[i]
+                - this.m_trustRegionCenterOffset[i])) {
               // Computing MAX
               subd = FastMath
                   .max(sumin,
-                      (this.m_upperDifference.getEntry(i)
-                          - this.m_trustRegionCenterOffset.getEntry(i))
+                      (this.m_upperDifference[i]
+                          - this.m_trustRegionCenterOffset[i])
                           / tmp);
               iubd = i + 1;
             }
           } else
             if (tmp < __SafeBOBYQAOptimizer.ZERO) {
-              if ((slbd * tmp) > (this.m_upperDifference.getEntry(i)
-                  - this.m_trustRegionCenterOffset.getEntry(i))) {
-                slbd = (this.m_upperDifference.getEntry(i)
-                    - this.m_trustRegionCenterOffset.getEntry(i)) / tmp;
+              if ((slbd * tmp) > (this.m_upperDifference[i]
+                  - this.m_trustRegionCenterOffset[i])) {
+                slbd = (this.m_upperDifference[i]
+                    - this.m_trustRegionCenterOffset[i]) / tmp;
                 ilbd = i + 1;
               }
-              if ((subd * tmp) < (this.m_lowerDifference.getEntry(i)
-                  - this.m_trustRegionCenterOffset.getEntry(i))) {
+              if ((subd * tmp) < (this.m_lowerDifference[i]
+                  - this.m_trustRegionCenterOffset[i])) {
                 // Computing MAX
                 subd = FastMath.max(sumin,
-                    (this.m_lowerDifference.getEntry(i)
-                        - this.m_trustRegionCenterOffset.getEntry(i))
+                    (this.m_lowerDifference[i]
+                        - this.m_trustRegionCenterOffset[i])
                         / tmp);
                 iubd = -i - 1;
               }
@@ -2310,20 +3569,17 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       }
 
       for (int i = 0; i < n; i++) {
-        final double tmp = this.m_trustRegionCenterOffset.getEntry(i)
-            + (stpsav * (this.m_interpolationPoints.getEntry(ksav, i)
-                - this.m_trustRegionCenterOffset.getEntry(i)));
-        this.m_newPoint.setEntry(i,
-            FastMath.max(this.m_lowerDifference.getEntry(i),
-                FastMath.min(this.m_upperDifference.getEntry(i), tmp)));
+        final double tmp = this.m_trustRegionCenterOffset[i]
+            + (stpsav * (this.m_interpolationPoints[ksav][i]
+                - this.m_trustRegionCenterOffset[i]));
+        this.m_newPoint[i] = FastMath.max(this.m_lowerDifference[i],
+            FastMath.min(this.m_upperDifference[i], tmp));
       }
       if (ibdsav < 0) {
-        this.m_newPoint.setEntry(-ibdsav - 1,
-            this.m_lowerDifference.getEntry(-ibdsav - 1));
+        this.m_newPoint[-ibdsav - 1] = this.m_lowerDifference[-ibdsav - 1];
       }
       if (ibdsav > 0) {
-        this.m_newPoint.setEntry(ibdsav - 1,
-            this.m_upperDifference.getEntry(ibdsav - 1));
+        this.m_newPoint[ibdsav - 1] = this.m_upperDifference[ibdsav - 1];
       }
 
       final double bigstp = adelt + adelt;
@@ -2334,22 +3590,24 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
         double wfixsq = __SafeBOBYQAOptimizer.ZERO;
         double ggfree = __SafeBOBYQAOptimizer.ZERO;
         for (int i = 0; i < n; i++) {
-          final double glagValue = glag.getEntry(i);
-          work1.setEntry(i, __SafeBOBYQAOptimizer.ZERO);
+          final double glagValue = glag[i];
+          work1[i] = __SafeBOBYQAOptimizer.ZERO;
           if ((FastMath.min(
-              this.m_trustRegionCenterOffset.getEntry(i)
-                  - this.m_lowerDifference.getEntry(i),
+              this.m_trustRegionCenterOffset[i]
+                  - this.m_lowerDifference[i],
               glagValue) > __SafeBOBYQAOptimizer.ZERO)
               || (FastMath.max(
-                  this.m_trustRegionCenterOffset.getEntry(i)
-                      - this.m_upperDifference.getEntry(i),
+                  this.m_trustRegionCenterOffset[i]
+                      - this.m_upperDifference[i],
                   glagValue) < __SafeBOBYQAOptimizer.ZERO)) {
-            work1.setEntry(i, bigstp);
+            work1[i] = bigstp;
             ggfree += glagValue * glagValue;
           }
         }
         if (ggfree == __SafeBOBYQAOptimizer.ZERO) {
-          return new double[] { alpha, __SafeBOBYQAOptimizer.ZERO };
+          this.m_pair[0] = alpha;
+          this.m_pair[1] = __SafeBOBYQAOptimizer.ZERO;
+          return this.m_pair;
         }
 
         final double tmp1 = (adelt * adelt) - wfixsq;
@@ -2357,22 +3615,22 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
           step = FastMath.sqrt(tmp1 / ggfree);
           ggfree = __SafeBOBYQAOptimizer.ZERO;
           for (int i = 0; i < n; i++) {
-            if (work1.getEntry(i) == bigstp) {
-              final double tmp2 = this.m_trustRegionCenterOffset
-                  .getEntry(i) - (step * glag.getEntry(i));
-              if (tmp2 <= this.m_lowerDifference.getEntry(i)) {
-                work1.setEntry(i, this.m_lowerDifference.getEntry(i)
-                    - this.m_trustRegionCenterOffset.getEntry(i));
-                final double d1 = work1.getEntry(i);
+            if (work1[i] == bigstp) {
+              final double tmp2 = this.m_trustRegionCenterOffset[i]
+                  - (step * glag[i]);
+              if (tmp2 <= this.m_lowerDifference[i]) {
+                work1[i] = this.m_lowerDifference[i]
+                    - this.m_trustRegionCenterOffset[i];
+                final double d1 = work1[i];
                 wfixsq += d1 * d1;
               } else
-                if (tmp2 >= this.m_upperDifference.getEntry(i)) {
-                  work1.setEntry(i, this.m_upperDifference.getEntry(i)
-                      - this.m_trustRegionCenterOffset.getEntry(i));
-                  final double d1 = work1.getEntry(i);
+                if (tmp2 >= this.m_upperDifference[i]) {
+                  work1[i] = this.m_upperDifference[i]
+                      - this.m_trustRegionCenterOffset[i];
+                  final double d1 = work1[i];
                   wfixsq += d1 * d1;
                 } else {
-                  final double d1 = glag.getEntry(i);
+                  final double d1 = glag[i];
                   ggfree += d1 * d1;
                 }
             }
@@ -2381,38 +3639,36 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
         double gw = __SafeBOBYQAOptimizer.ZERO;
         for (int i = 0; i < n; i++) {
-          final double glagValue = glag.getEntry(i);
-          if (work1.getEntry(i) == bigstp) {
-            work1.setEntry(i, -step * glagValue);
+          final double glagValue = glag[i];
+          if (work1[i] == bigstp) {
+            work1[i] = -step * glagValue;
             final double min = FastMath.min(
-                this.m_upperDifference.getEntry(i),
-                this.m_trustRegionCenterOffset.getEntry(i)
-                    + work1.getEntry(i));
-            this.m_alternativeNewPoint.setEntry(i,
-                FastMath.max(this.m_lowerDifference.getEntry(i), min));
+                this.m_upperDifference[i],
+                this.m_trustRegionCenterOffset[i]
+                    + work1[i]);
+            this.m_alternativeNewPoint[i] =
+                FastMath.max(this.m_lowerDifference[i], min);
           } else
-            if (work1.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-              this.m_alternativeNewPoint.setEntry(i,
-                  this.m_trustRegionCenterOffset.getEntry(i));
+            if (work1[i] == __SafeBOBYQAOptimizer.ZERO) {
+              this.m_alternativeNewPoint[i] =
+                  this.m_trustRegionCenterOffset[i];
             } else
               if (glagValue > __SafeBOBYQAOptimizer.ZERO) {
-                this.m_alternativeNewPoint.setEntry(i,
-                    this.m_lowerDifference.getEntry(i));
+                this.m_alternativeNewPoint[i] = this.m_lowerDifference[i];
               } else {
-                this.m_alternativeNewPoint.setEntry(i,
-                    this.m_upperDifference.getEntry(i));
+                this.m_alternativeNewPoint[i] = this.m_upperDifference[i];
               }
-          gw += glagValue * work1.getEntry(i);
+          gw += glagValue * work1[i];
         }
 
         double curv = __SafeBOBYQAOptimizer.ZERO;
         for (int k = 0; k < npt; k++) {
           double tmp = __SafeBOBYQAOptimizer.ZERO;
           for (int j = 0; j < n; j++) {
-            tmp += this.m_interpolationPoints.getEntry(k, j)
-                * work1.getEntry(j);
+            tmp += this.m_interpolationPoints[k][j]
+                * work1[j];
           }
-          curv += hcol.getEntry(k) * tmp * tmp;
+          curv += hcol[k] * tmp * tmp;
         }
         if (iflag == 1) {
           curv = -curv;
@@ -2421,11 +3677,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             + FastMath.sqrt(__SafeBOBYQAOptimizer.TWO))))) {
           final double scale = -gw / curv;
           for (int i = 0; i < n; i++) {
-            final double tmp = this.m_trustRegionCenterOffset.getEntry(i)
-                + (scale * work1.getEntry(i));
-            this.m_alternativeNewPoint.setEntry(i, FastMath.max(
-                this.m_lowerDifference.getEntry(i),
-                FastMath.min(this.m_upperDifference.getEntry(i), tmp)));
+            final double tmp = this.m_trustRegionCenterOffset[i]
+                + (scale * work1[i]);
+            this.m_alternativeNewPoint[i] =
+                FastMath.max( this.m_lowerDifference[i],
+                    FastMath.min(this.m_upperDifference[i], tmp));
           }
           // Computing 2nd power
           final double d1 = __SafeBOBYQAOptimizer.HALF * gw * scale;
@@ -2438,8 +3694,8 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
         if (iflag == 0) {
           for (int i = 0; i < n; i++) {
-            glag.setEntry(i, -glag.getEntry(i));
-            work2.setEntry(i, this.m_alternativeNewPoint.getEntry(i));
+            glag[i] = -glag[i];
+            work2[i] = this.m_alternativeNewPoint[i];
           }
           csave = cauchy;
           iflag = 1;
@@ -2449,12 +3705,14 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       }
       if (csave > cauchy) {
         for (int i = 0; i < n; i++) {
-          this.m_alternativeNewPoint.setEntry(i, work2.getEntry(i));
+          this.m_alternativeNewPoint[i] = work2[i];
         }
         cauchy = csave;
       }
 
-      return new double[] { alpha, cauchy };
+      this.m_pair[0] = alpha;
+      this.m_pair[1] = cauchy;
+      return this.m_pair;
     }
 
     // ----------------------------------------------------------------------------------------
@@ -2471,9 +3729,9 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     private final void __prelim(final double[] lowerBound,
         final double[] upperBound) {
 
-      final int n = this.m_currentBest.getDimension();
+      final int n = this.m_currentBest.length;
       final int npt = this.m_numberOfInterpolationPoints;
-      final int ndim = this.m_bMatrix.getRowDimension();
+      final int ndim = this.m_bMatrix.length;
 
       final double rhosq = this.m_initialTrustRegionRadius
           * this.m_initialTrustRegionRadius;
@@ -2484,24 +3742,22 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       // elements of XPT, BMAT, HQ, PQ and ZMAT to zero.
 
       for (int j = 0; j < n; j++) {
-        this.m_originShift.setEntry(j, this.m_currentBest.getEntry(j));
+        this.m_originShift[j] = this.m_currentBest[j];
         for (int k = 0; k < npt; k++) {
-          this.m_interpolationPoints.setEntry(k, j,
-              __SafeBOBYQAOptimizer.ZERO);
+          this.m_interpolationPoints[k][j] = __SafeBOBYQAOptimizer.ZERO;
         }
         for (int i = 0; i < ndim; i++) {
-          this.m_bMatrix.setEntry(i, j, __SafeBOBYQAOptimizer.ZERO);
+          this.m_bMatrix[i][j] = __SafeBOBYQAOptimizer.ZERO;
         }
       }
       for (int i = 0, max = (n * np) / 2; i < max; i++) {
-        this.m_modelSecondDerivativesValues.setEntry(i,
-            __SafeBOBYQAOptimizer.ZERO);
+        this.m_modelSecondDerivativesValues[i] = __SafeBOBYQAOptimizer.ZERO;
       }
       for (int k = 0; k < npt; k++) {
-        this.m_modelSecondDerivativesParameters.setEntry(k,
-            __SafeBOBYQAOptimizer.ZERO);
+        this.m_modelSecondDerivativesParameters[k] =
+            __SafeBOBYQAOptimizer.ZERO;
         for (int j = 0, max = npt - np; j < max; j++) {
-          this.m_zMatrix.setEntry(k, j, __SafeBOBYQAOptimizer.ZERO);
+          this.m_zMatrix[k][j] = __SafeBOBYQAOptimizer.ZERO;
         }
       }
 
@@ -2509,7 +3765,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       int jpt = 0;
       double fbeg = Double.NaN;
       do {
-        final int nfm = this.getEvaluations();
+        final int nfm = this.m_evaluations;
         final int nfx = nfm - n;
         final int nfmm = nfm - 1;
         final int nfxm = nfx - 1;
@@ -2518,30 +3774,27 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
         if (nfm <= (2 * n)) {
           if ((nfm >= 1) && (nfm <= n)) {
             stepa = this.m_initialTrustRegionRadius;
-            if (this.m_upperDifference
-                .getEntry(nfmm) == __SafeBOBYQAOptimizer.ZERO) {
+            if (this.m_upperDifference[nfmm] == __SafeBOBYQAOptimizer.ZERO) {
               stepa = -stepa;
             }
-            this.m_interpolationPoints.setEntry(nfm, nfmm, stepa);
+            this.m_interpolationPoints[nfm][nfmm] = stepa;
           } else
             if (nfm > n) {
-              stepa = this.m_interpolationPoints.getEntry(nfx, nfxm);
+              stepa = this.m_interpolationPoints[nfx][nfxm];
               stepb = -this.m_initialTrustRegionRadius;
-              if (this.m_lowerDifference
-                  .getEntry(nfxm) == __SafeBOBYQAOptimizer.ZERO) {
+              if (this.m_lowerDifference[nfxm] == __SafeBOBYQAOptimizer.ZERO) {
                 stepb = FastMath.min(
                     __SafeBOBYQAOptimizer.TWO
                         * this.m_initialTrustRegionRadius,
-                    this.m_upperDifference.getEntry(nfxm));
+                    this.m_upperDifference[nfxm]);
               }
-              if (this.m_upperDifference
-                  .getEntry(nfxm) == __SafeBOBYQAOptimizer.ZERO) {
+              if (this.m_upperDifference[nfxm] == __SafeBOBYQAOptimizer.ZERO) {
                 stepb = FastMath.max(
                     -__SafeBOBYQAOptimizer.TWO
                         * this.m_initialTrustRegionRadius,
-                    this.m_lowerDifference.getEntry(nfxm));
+                    this.m_lowerDifference[nfxm]);
               }
-              this.m_interpolationPoints.setEntry(nfm, nfxm, stepb);
+              this.m_interpolationPoints[nfm][nfxm] = stepb;
             }
         } else {
           final int tmp1 = (nfm - np) / n;
@@ -2554,113 +3807,100 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
           }
           final int iptMinus1 = ipt - 1;
           final int jptMinus1 = jpt - 1;
-          this.m_interpolationPoints.setEntry(nfm, iptMinus1,
-              this.m_interpolationPoints.getEntry(ipt, iptMinus1));
-          this.m_interpolationPoints.setEntry(nfm, jptMinus1,
-              this.m_interpolationPoints.getEntry(jpt, jptMinus1));
+          this.m_interpolationPoints[nfm][iptMinus1] =
+              this.m_interpolationPoints[ipt][iptMinus1];
+          this.m_interpolationPoints[nfm][jptMinus1] =
+              this.m_interpolationPoints[jpt][jptMinus1];
         }
 
         for (int j = 0; j < n; j++) {
-          this.m_currentBest.setEntry(j,
-              FastMath.min(
-                  FastMath.max(lowerBound[j],
-                      this.m_originShift.getEntry(j)
-                          + this.m_interpolationPoints.getEntry(nfm, j)),
-              upperBound[j]));
-          if (this.m_interpolationPoints.getEntry(nfm,
-              j) == this.m_lowerDifference.getEntry(j)) {
-            this.m_currentBest.setEntry(j, lowerBound[j]);
+          this.m_currentBest[j] = FastMath.min(
+              FastMath.max(lowerBound[j], this.m_originShift[j]
+                  + this.m_interpolationPoints[nfm][j]),
+              upperBound[j]);
+          if (this.m_interpolationPoints[nfm][j] == this.m_lowerDifference[j]) {
+            this.m_currentBest[j] = lowerBound[j];
           }
-          if (this.m_interpolationPoints.getEntry(nfm,
-              j) == this.m_upperDifference.getEntry(j)) {
-            this.m_currentBest.setEntry(j, upperBound[j]);
+          if (this.m_interpolationPoints[nfm][j] == this.m_upperDifference[j]) {
+            this.m_currentBest[j] = upperBound[j];
           }
         }
 
         final double objectiveValue = this
-            .computeObjectiveValue(this.m_currentBest.toArray());
+            .__computeObjectiveValue();
         final double f = objectiveValue;
-        final int numEval = this.getEvaluations(); // nfm + 1
-        this.m_fAtInterpolationPoints.setEntry(nfm, f);
+        final int numEval = this.m_evaluations; // nfm + 1
+        this.m_fAtInterpolationPoints[nfm] = f;
 
         if (numEval == 1) {
           fbeg = f;
           this.m_trustRegionCenterInterpolationPointIndex = 0;
         } else
-          if (f < this.m_fAtInterpolationPoints
-              .getEntry(this.m_trustRegionCenterInterpolationPointIndex)) {
+          if (f < this.m_fAtInterpolationPoints[this.m_trustRegionCenterInterpolationPointIndex]) {
             this.m_trustRegionCenterInterpolationPointIndex = nfm;
           }
 
         if (numEval <= ((2 * n) + 1)) {
           if ((numEval >= 2) && (numEval <= (n + 1))) {
-            this.m_gradientAtTrustRegionCenter.setEntry(nfmm,
-                (f - fbeg) / stepa);
+            this.m_gradientAtTrustRegionCenter[nfmm] = (f - fbeg) / stepa;
             if (npt < (numEval + n)) {
               final double oneOverStepA = __SafeBOBYQAOptimizer.ONE
                   / stepa;
-              this.m_bMatrix.setEntry(0, nfmm, -oneOverStepA);
-              this.m_bMatrix.setEntry(nfm, nfmm, oneOverStepA);
-              this.m_bMatrix.setEntry(npt + nfmm, nfmm,
-                  -__SafeBOBYQAOptimizer.HALF * rhosq);
+              this.m_bMatrix[0][nfmm] = -oneOverStepA;
+              this.m_bMatrix[nfm][nfmm] = oneOverStepA;
+              this.m_bMatrix[npt + nfmm][nfmm] =
+                  -__SafeBOBYQAOptimizer.HALF * rhosq;
             }
           } else
             if (numEval >= (n + 2)) {
               final int ih = ((nfx * (nfx + 1)) / 2) - 1;
               final double tmp = (f - fbeg) / stepb;
               final double diff = stepb - stepa;
-              this.m_modelSecondDerivativesValues.setEntry(ih,
-                  (__SafeBOBYQAOptimizer.TWO * (tmp
-                      - this.m_gradientAtTrustRegionCenter.getEntry(nfxm)))
-                      / diff);
-              this.m_gradientAtTrustRegionCenter.setEntry(nfxm,
-                  ((this.m_gradientAtTrustRegionCenter.getEntry(nfxm)
-                      * stepb) - (tmp * stepa)) / diff);
+              this.m_modelSecondDerivativesValues[ih] =
+                  (__SafeBOBYQAOptimizer.TWO
+                      * (tmp - this.m_gradientAtTrustRegionCenter[nfxm])) / diff;
+              this.m_gradientAtTrustRegionCenter[nfxm] =
+                  ((this.m_gradientAtTrustRegionCenter[nfxm] * stepb)
+                      - (tmp * stepa)) / diff;
               if (((stepa * stepb) < __SafeBOBYQAOptimizer.ZERO)
-                  && (f < this.m_fAtInterpolationPoints
-                      .getEntry(nfm - n))) {
-                this.m_fAtInterpolationPoints.setEntry(nfm,
-                    this.m_fAtInterpolationPoints.getEntry(nfm - n));
-                this.m_fAtInterpolationPoints.setEntry(nfm - n, f);
+                  && (f < this.m_fAtInterpolationPoints[nfm - n])) {
+                this.m_fAtInterpolationPoints[nfm] =
+                    this.m_fAtInterpolationPoints[nfm - n];
+                this.m_fAtInterpolationPoints[nfm - n] = f;
                 if (this.m_trustRegionCenterInterpolationPointIndex == nfm) {
                   this.m_trustRegionCenterInterpolationPointIndex = nfm
                       - n;
                 }
-                this.m_interpolationPoints.setEntry(nfm - n, nfxm, stepb);
-                this.m_interpolationPoints.setEntry(nfm, nfxm, stepa);
-              }
-              this.m_bMatrix.setEntry(0, nfxm,
-                  -(stepa + stepb) / (stepa * stepb));
-              this.m_bMatrix.setEntry(nfm, nfxm,
-                  -__SafeBOBYQAOptimizer.HALF / this.m_interpolationPoints
-                      .getEntry(nfm - n, nfxm));
-              this.m_bMatrix.setEntry(nfm - n, nfxm,
-                  -this.m_bMatrix.getEntry(0, nfxm)
-                      - this.m_bMatrix.getEntry(nfm, nfxm));
-              this.m_zMatrix.setEntry(0, nfxm,
+                this.m_interpolationPoints[nfm - n][nfxm] = stepb;
+                this.m_interpolationPoints[nfm][nfxm] = stepa;
+              }
+              this.m_bMatrix[0][nfxm] = -(stepa + stepb) / (stepa * stepb);
+              this.m_bMatrix[nfm][nfxm] = -__SafeBOBYQAOptimizer.HALF
+                  / this.m_interpolationPoints[nfm - n][nfxm];
+              this.m_bMatrix[nfm - n][nfxm] = -this.m_bMatrix[0][nfxm]
+                  - this.m_bMatrix[nfm][nfxm];
+              this.m_zMatrix[0][nfxm] =
                   FastMath.sqrt(__SafeBOBYQAOptimizer.TWO)
-                      / (stepa * stepb));
-              this.m_zMatrix.setEntry(nfm, nfxm,
-                  FastMath.sqrt(__SafeBOBYQAOptimizer.HALF) / rhosq);
-              this.m_zMatrix.setEntry(nfm - n, nfxm,
-                  -this.m_zMatrix.getEntry(0, nfxm)
-                      - this.m_zMatrix.getEntry(nfm, nfxm));
+                  / (stepa * stepb);
+              this.m_zMatrix[nfm][nfxm] =
+                  FastMath.sqrt(__SafeBOBYQAOptimizer.HALF) / rhosq;
+              this.m_zMatrix[nfm - n][nfxm] = -this.m_zMatrix[0][nfxm]
+                  - this.m_zMatrix[nfm][nfxm];
             }
         } else {
-          this.m_zMatrix.setEntry(0, nfxm, recip);
-          this.m_zMatrix.setEntry(nfm, nfxm, recip);
-          this.m_zMatrix.setEntry(ipt, nfxm, -recip);
-          this.m_zMatrix.setEntry(jpt, nfxm, -recip);
+          this.m_zMatrix[0][nfxm] = recip;
+          this.m_zMatrix[nfm][nfxm] = recip;
+          this.m_zMatrix[ipt][nfxm] = -recip;
+          this.m_zMatrix[jpt][nfxm] = -recip;
 
           final int ih = (((ipt * (ipt - 1)) / 2) + jpt) - 1;
-          final double tmp = this.m_interpolationPoints.getEntry(nfm,
-              ipt - 1) * this.m_interpolationPoints.getEntry(nfm, jpt - 1);
-          this.m_modelSecondDerivativesValues.setEntry(ih,
-              ((fbeg - this.m_fAtInterpolationPoints.getEntry(ipt)
-                  - this.m_fAtInterpolationPoints.getEntry(jpt)) + f)
-                  / tmp);
+          final double tmp = this.m_interpolationPoints[nfm][ipt - 1]
+              * this.m_interpolationPoints[nfm][jpt - 1];
+          this.m_modelSecondDerivativesValues[ih] = //
+              ((fbeg - this.m_fAtInterpolationPoints[ipt]
+                  - this.m_fAtInterpolationPoints[jpt]) + f) / tmp;
         }
-      } while (this.getEvaluations() < npt);
+      } while (this.m_evaluations < npt);
     }
 
     /**
@@ -2690,11 +3930,10 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
      */
     @SuppressWarnings("fallthrough")
     private double[] __trsbox(final double delta,
-        final ArrayRealVector gnew, final ArrayRealVector xbdi,
-        final ArrayRealVector s, final ArrayRealVector hs,
-        final ArrayRealVector hred) {
+        final double[] gnew, final double[] xbdi, final double[] s,
+        final double[] hs, final double[] hred) {
 
-      final int n = this.m_currentBest.getDimension();
+      final int n = this.m_currentBest.length;
       final int npt = this.m_numberOfInterpolationPoints;
 
       double dsq = Double.NaN;
@@ -2719,25 +3958,24 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
       iterc = 0;
       nact = 0;
       for (int i = 0; i < n; i++) {
-        xbdi.setEntry(i, __SafeBOBYQAOptimizer.ZERO);
-        if (this.m_trustRegionCenterOffset
-            .getEntry(i) <= this.m_lowerDifference.getEntry(i)) {
-          if (this.m_gradientAtTrustRegionCenter
-              .getEntry(i) >= __SafeBOBYQAOptimizer.ZERO) {
-            xbdi.setEntry(i, __SafeBOBYQAOptimizer.MINUS_ONE);
+        xbdi[i] = __SafeBOBYQAOptimizer.ZERO;
+        if (this.m_trustRegionCenterOffset[i] <= this.m_lowerDifference[i]) {
+          if (this.m_gradientAtTrustRegionCenter[i] >= //
+              __SafeBOBYQAOptimizer.ZERO) {
+            xbdi[i] = __SafeBOBYQAOptimizer.MINUS_ONE;
           }
         } else
-          if ((this.m_trustRegionCenterOffset
-              .getEntry(i) >= this.m_upperDifference.getEntry(i))
-              && (this.m_gradientAtTrustRegionCenter
-                  .getEntry(i) <= __SafeBOBYQAOptimizer.ZERO)) {
-            xbdi.setEntry(i, __SafeBOBYQAOptimizer.ONE);
+          if ((this.m_trustRegionCenterOffset[i] >= //
+              this.m_upperDifference[i])
+              && (this.m_gradientAtTrustRegionCenter[i] <= //
+                  __SafeBOBYQAOptimizer.ZERO)) {
+            xbdi[i] = __SafeBOBYQAOptimizer.ONE;
           }
-        if (xbdi.getEntry(i) != __SafeBOBYQAOptimizer.ZERO) {
+        if (xbdi[i] != __SafeBOBYQAOptimizer.ZERO) {
           ++nact;
         }
-        this.m_trialStepPoint.setEntry(i, __SafeBOBYQAOptimizer.ZERO);
-        gnew.setEntry(i, this.m_gradientAtTrustRegionCenter.getEntry(i));
+        this.m_trialStepPoint[i] = __SafeBOBYQAOptimizer.ZERO;
+        gnew[i] = this.m_gradientAtTrustRegionCenter[i];
       }
       delsq = delta * delta;
       qred = __SafeBOBYQAOptimizer.ZERO;
@@ -2753,16 +3991,16 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
           case 30: {
             stepsq = __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
-              if (xbdi.getEntry(i) != __SafeBOBYQAOptimizer.ZERO) {
-                s.setEntry(i, __SafeBOBYQAOptimizer.ZERO);
+              if (xbdi[i] != __SafeBOBYQAOptimizer.ZERO) {
+                s[i] = __SafeBOBYQAOptimizer.ZERO;
               } else
                 if (beta == __SafeBOBYQAOptimizer.ZERO) {
-                  s.setEntry(i, -gnew.getEntry(i));
+                  s[i] = -gnew[i];
                 } else {
-                  s.setEntry(i, (beta * s.getEntry(i)) - gnew.getEntry(i));
+                  s[i] = (beta * s[i]) - gnew[i];
                 }
               // Computing 2nd power
-              final double d1 = s.getEntry(i);
+              final double d1 = s[i];
               stepsq += d1 * d1;
             }
             if (stepsq == __SafeBOBYQAOptimizer.ZERO) {
@@ -2787,11 +4025,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             ds = __SafeBOBYQAOptimizer.ZERO;
             shs = __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-                final double d1 = this.m_trialStepPoint.getEntry(i);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
+                final double d1 = this.m_trialStepPoint[i];
                 resid -= d1 * d1;
-                ds += s.getEntry(i) * this.m_trialStepPoint.getEntry(i);
-                shs += s.getEntry(i) * hs.getEntry(i);
+                ds += s[i] * this.m_trialStepPoint[i];
+                shs += s[i] * hs[i];
               }
             }
             if (resid <= __SafeBOBYQAOptimizer.ZERO) {
@@ -2811,15 +4049,15 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
             iact = -1;
             for (int i = 0; i < n; i++) {
-              if (s.getEntry(i) != __SafeBOBYQAOptimizer.ZERO) {
-                xsum = this.m_trustRegionCenterOffset.getEntry(i)
-                    + this.m_trialStepPoint.getEntry(i);
-                if (s.getEntry(i) > __SafeBOBYQAOptimizer.ZERO) {
-                  temp = (this.m_upperDifference.getEntry(i) - xsum)
-                      / s.getEntry(i);
+              if (s[i] != __SafeBOBYQAOptimizer.ZERO) {
+                xsum = this.m_trustRegionCenterOffset[i]
+                    + this.m_trialStepPoint[i];
+                if (s[i] > __SafeBOBYQAOptimizer.ZERO) {
+                  temp = (this.m_upperDifference[i] - xsum)
+                      / s[i];
                 } else {
-                  temp = (this.m_lowerDifference.getEntry(i) - xsum)
-                      / s.getEntry(i);
+                  temp = (this.m_lowerDifference[i] - xsum)
+                      / s[i];
                 }
                 if (temp < stplen) {
                   stplen = temp;
@@ -2841,16 +4079,13 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               ggsav = gredsq;
               gredsq = __SafeBOBYQAOptimizer.ZERO;
               for (int i = 0; i < n; i++) {
-                gnew.setEntry(i,
-                    gnew.getEntry(i) + (stplen * hs.getEntry(i)));
-                if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
+                gnew[i] += (stplen * hs[i]);
+                if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
                   // Computing 2nd power
-                  final double d1 = gnew.getEntry(i);
+                  final double d1 = gnew[i];
                   gredsq += d1 * d1;
                 }
-                this.m_trialStepPoint.setEntry(i,
-                    this.m_trialStepPoint.getEntry(i)
-                        + (stplen * s.getEntry(i)));
+                this.m_trialStepPoint[i] += (stplen * s[i]);
               }
               final double d1 = stplen
                   * (ggsav - (__SafeBOBYQAOptimizer.HALF * stplen * shs));
@@ -2860,11 +4095,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
 
             if (iact >= 0) {
               ++nact;
-              xbdi.setEntry(iact, __SafeBOBYQAOptimizer.ONE);
-              if (s.getEntry(iact) < __SafeBOBYQAOptimizer.ZERO) {
-                xbdi.setEntry(iact, __SafeBOBYQAOptimizer.MINUS_ONE);
+              xbdi[iact] = __SafeBOBYQAOptimizer.ONE;
+              if (s[iact] < __SafeBOBYQAOptimizer.ZERO) {
+                xbdi[iact] = __SafeBOBYQAOptimizer.MINUS_ONE;
               }
-              final double d1 = this.m_trialStepPoint.getEntry(iact);
+              final double d1 = this.m_trialStepPoint[iact];
               delsq -= d1 * d1;
               if (delsq <= __SafeBOBYQAOptimizer.ZERO) {
                 state = 190;
@@ -2901,16 +4136,16 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             dredg = __SafeBOBYQAOptimizer.ZERO;
             gredsq = __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-                double d1 = this.m_trialStepPoint.getEntry(i);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
+                double d1 = this.m_trialStepPoint[i];
                 dredsq += d1 * d1;
-                dredg += this.m_trialStepPoint.getEntry(i)
-                    * gnew.getEntry(i);
-                d1 = gnew.getEntry(i);
+                dredg += this.m_trialStepPoint[i]
+                    * gnew[i];
+                d1 = gnew[i];
                 gredsq += d1 * d1;
-                s.setEntry(i, this.m_trialStepPoint.getEntry(i));
+                s[i] = this.m_trialStepPoint[i];
               } else {
-                s.setEntry(i, __SafeBOBYQAOptimizer.ZERO);
+                s[i] = __SafeBOBYQAOptimizer.ZERO;
               }
             }
             itcsav = iterc;
@@ -2927,11 +4162,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             }
             temp = FastMath.sqrt(temp);
             for (int i = 0; i < n; i++) {
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-                s.setEntry(i, ((dredg * this.m_trialStepPoint.getEntry(i))
-                    - (dredsq * gnew.getEntry(i))) / temp);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
+                s[i] = ((dredg * this.m_trialStepPoint[i])
+                    - (dredsq * gnew[i])) / temp;
               } else {
-                s.setEntry(i, __SafeBOBYQAOptimizer.ZERO);
+                s[i] = __SafeBOBYQAOptimizer.ZERO;
               }
             }
             sredg = -temp;
@@ -2939,44 +4174,44 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             angbd = __SafeBOBYQAOptimizer.ONE;
             iact = -1;
             for (int i = 0; i < n; i++) {
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-                tempa = (this.m_trustRegionCenterOffset.getEntry(i)
-                    + this.m_trialStepPoint.getEntry(i))
-                    - this.m_lowerDifference.getEntry(i);
-                tempb = this.m_upperDifference.getEntry(i)
-                    - this.m_trustRegionCenterOffset.getEntry(i)
-                    - this.m_trialStepPoint.getEntry(i);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
+                tempa = (this.m_trustRegionCenterOffset[i]
+                    + this.m_trialStepPoint[i])
+                    - this.m_lowerDifference[i];
+                tempb = this.m_upperDifference[i]
+                    - this.m_trustRegionCenterOffset[i]
+                    - this.m_trialStepPoint[i];
                 if (tempa <= __SafeBOBYQAOptimizer.ZERO) {
                   ++nact;
-                  xbdi.setEntry(i, __SafeBOBYQAOptimizer.MINUS_ONE);
+                  xbdi[i] = __SafeBOBYQAOptimizer.MINUS_ONE;
                   state = 100;
                   break;
                 } else
                   if (tempb <= __SafeBOBYQAOptimizer.ZERO) {
                     ++nact;
-                    xbdi.setEntry(i, __SafeBOBYQAOptimizer.ONE);
+                    xbdi[i] = __SafeBOBYQAOptimizer.ONE;
                     state = 100;
                     break;
                   }
-                double d1 = this.m_trialStepPoint.getEntry(i);
-                final double d2 = s.getEntry(i);
+                double d1 = this.m_trialStepPoint[i];
+                final double d2 = s[i];
                 ssq = (d1 * d1) + (d2 * d2);
-                d1 = this.m_trustRegionCenterOffset.getEntry(i)
-                    - this.m_lowerDifference.getEntry(i);
+                d1 = this.m_trustRegionCenterOffset[i]
+                    - this.m_lowerDifference[i];
                 temp = ssq - (d1 * d1);
                 if (temp > __SafeBOBYQAOptimizer.ZERO) {
-                  temp = FastMath.sqrt(temp) - s.getEntry(i);
+                  temp = FastMath.sqrt(temp) - s[i];
                   if ((angbd * temp) > tempa) {
                     angbd = tempa / temp;
                     iact = i;
                     xsav = __SafeBOBYQAOptimizer.MINUS_ONE;
                   }
                 }
-                d1 = this.m_upperDifference.getEntry(i)
-                    - this.m_trustRegionCenterOffset.getEntry(i);
+                d1 = this.m_upperDifference[i]
+                    - this.m_trustRegionCenterOffset[i];
                 temp = ssq - (d1 * d1);
                 if (temp > __SafeBOBYQAOptimizer.ZERO) {
-                  temp = FastMath.sqrt(temp) + s.getEntry(i);
+                  temp = FastMath.sqrt(temp) + s[i];
                   if ((angbd * temp) > tempb) {
                     angbd = tempb / temp;
                     iact = i;
@@ -2995,11 +4230,11 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             dhs = __SafeBOBYQAOptimizer.ZERO;
             dhd = __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-                shs += s.getEntry(i) * hs.getEntry(i);
-                dhs += this.m_trialStepPoint.getEntry(i) * hs.getEntry(i);
-                dhd += this.m_trialStepPoint.getEntry(i)
-                    * hred.getEntry(i);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
+                shs += s[i] * hs[i];
+                dhs += this.m_trialStepPoint[i] * hs[i];
+                dhd += this.m_trialStepPoint[i]
+                    * hred[i];
               }
             }
 
@@ -3050,26 +4285,24 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             dredg = __SafeBOBYQAOptimizer.ZERO;
             gredsq = __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
-              gnew.setEntry(i, gnew.getEntry(i)
-                  + ((cth - __SafeBOBYQAOptimizer.ONE) * hred.getEntry(i))
-                  + (sth * hs.getEntry(i)));
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ZERO) {
-                this.m_trialStepPoint.setEntry(i,
-                    (cth * this.m_trialStepPoint.getEntry(i))
-                        + (sth * s.getEntry(i)));
-                dredg += this.m_trialStepPoint.getEntry(i)
-                    * gnew.getEntry(i);
+              gnew[i] = gnew[i]
+                  + ((cth - __SafeBOBYQAOptimizer.ONE) * hred[i])
+                  + (sth * hs[i]);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ZERO) {
+                this.m_trialStepPoint[i] = (cth * this.m_trialStepPoint[i])
+                    + (sth * s[i]);
+                dredg += this.m_trialStepPoint[i]
+                    * gnew[i];
                 // Computing 2nd power
-                final double d1 = gnew.getEntry(i);
+                final double d1 = gnew[i];
                 gredsq += d1 * d1;
               }
-              hred.setEntry(i,
-                  (cth * hred.getEntry(i)) + (sth * hs.getEntry(i)));
+              hred[i] = (cth * hred[i]) + (sth * hs[i]);
             }
             qred += sdec;
             if ((iact >= 0) && (isav == iu)) {
               ++nact;
-              xbdi.setEntry(iact, xsav);
+              xbdi[iact] = xsav;
               state = 100;
               break;
             }
@@ -3084,52 +4317,51 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
             dsq = __SafeBOBYQAOptimizer.ZERO;
             for (int i = 0; i < n; i++) {
               final double min = FastMath.min(
-                  this.m_trustRegionCenterOffset.getEntry(i)
-                      + this.m_trialStepPoint.getEntry(i),
-                  this.m_upperDifference.getEntry(i));
-              this.m_newPoint.setEntry(i,
-                  FastMath.max(min, this.m_lowerDifference.getEntry(i)));
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.MINUS_ONE) {
-                this.m_newPoint.setEntry(i,
-                    this.m_lowerDifference.getEntry(i));
-              }
-              if (xbdi.getEntry(i) == __SafeBOBYQAOptimizer.ONE) {
-                this.m_newPoint.setEntry(i,
-                    this.m_upperDifference.getEntry(i));
-              }
-              this.m_trialStepPoint.setEntry(i, this.m_newPoint.getEntry(i)
-                  - this.m_trustRegionCenterOffset.getEntry(i));
-              final double d1 = this.m_trialStepPoint.getEntry(i);
+                  this.m_trustRegionCenterOffset[i]
+                      + this.m_trialStepPoint[i],
+                  this.m_upperDifference[i]);
+              this.m_newPoint[i] = FastMath.max(min, this.m_lowerDifference[i]);
+              if (xbdi[i] == __SafeBOBYQAOptimizer.MINUS_ONE) {
+                this.m_newPoint[i] = this.m_lowerDifference[i];
+              }
+              if (xbdi[i] == __SafeBOBYQAOptimizer.ONE) {
+                this.m_newPoint[i] = this.m_upperDifference[i];
+              }
+              this.m_trialStepPoint[i] = this.m_newPoint[i]
+                  - this.m_trustRegionCenterOffset[i];
+              final double d1 = this.m_trialStepPoint[i];
               dsq += d1 * d1;
             }
-            return new double[] { dsq, crvmin };
+            this.m_pair[0] = dsq;
+            this.m_pair[1] = crvmin;
+            return this.m_pair;
           }
 
           case 210: {
             int ih = 0;
             for (int j = 0; j < n; j++) {
-              hs.setEntry(j, __SafeBOBYQAOptimizer.ZERO);
+              hs[j] = __SafeBOBYQAOptimizer.ZERO;
               for (int i = 0; i <= j; i++) {
                 if (i < j) {
-                  hs.setEntry(j, hs.getEntry(j)
-                      + (this.m_modelSecondDerivativesValues.getEntry(ih)
-                          * s.getEntry(i)));
+                  hs[j] += (this.m_modelSecondDerivativesValues[ih] * s[i]);
                 }
-                hs.setEntry(i,
-                    hs.getEntry(i)
-                        + (this.m_modelSecondDerivativesValues.getEntry(ih)
-                            * s.getEntry(j)));
+                hs[i] += (this.m_modelSecondDerivativesValues[ih] * s[j]);
                 ih++;
               }
             }
-            final RealVector tmp = this.m_interpolationPoints.operate(s)
-                .ebeMultiply(this.m_modelSecondDerivativesParameters);
+            final double[] tmp = this.m_trsboxWork;
+            for (int k = 0; k < npt; k++) {
+              double sum = __SafeBOBYQAOptimizer.ZERO;
+              for (int i = 0; i < n; i++) {
+                sum += this.m_interpolationPoints[k][i] * s[i];
+              }
+              tmp[k] = sum * this.m_modelSecondDerivativesParameters[k];
+            }
             for (int k = 0; k < npt; k++) {
-              if (this.m_modelSecondDerivativesParameters
-                  .getEntry(k) != __SafeBOBYQAOptimizer.ZERO) {
+              if (this.m_modelSecondDerivativesParameters[k] != //
+                  __SafeBOBYQAOptimizer.ZERO) {
                 for (int i = 0; i < n; i++) {
-                  hs.setEntry(i, hs.getEntry(i) + (tmp.getEntry(k)
-                      * this.m_interpolationPoints.getEntry(k, i)));
+                  hs[i] += (tmp[k] * this.m_interpolationPoints[k][i]);
                 }
               }
             }
@@ -3142,7 +4374,7 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
               break;
             }
             for (int i = 0; i < n; i++) {
-              hred.setEntry(i, hs.getEntry(i));
+              hred[i] = hs[i];
             }
             state = 120;
             break;
@@ -3174,83 +4406,77 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     private final void __update(final double beta, final double denom,
         final int knew) {
 
-      final int n = this.m_currentBest.getDimension();
+      final int n = this.m_currentBest.length;
       final int npt = this.m_numberOfInterpolationPoints;
       final int nptm = npt - n - 1;
 
-      final ArrayRealVector work = new ArrayRealVector(npt + n);
+      final double[] work = this.m_updateWork;
+      Arrays.fill(work, __SafeBOBYQAOptimizer.ZERO);
 
       double ztest = __SafeBOBYQAOptimizer.ZERO;
       for (int k = 0; k < npt; k++) {
         for (int j = 0; j < nptm; j++) {
           // Computing MAX
           ztest = FastMath.max(ztest,
-              FastMath.abs(this.m_zMatrix.getEntry(k, j)));
+              FastMath.abs(this.m_zMatrix[k][j]));
         }
       }
       ztest *= 1e-20;
 
       for (int j = 1; j < nptm; j++) {
-        final double d1 = this.m_zMatrix.getEntry(knew, j);
+        final double d1 = this.m_zMatrix[knew][j];
         if (FastMath.abs(d1) > ztest) {
           // Computing 2nd power
-          final double d2 = this.m_zMatrix.getEntry(knew, 0);
+          final double d2 = this.m_zMatrix[knew][0];
           // Computing 2nd power
-          final double d3 = this.m_zMatrix.getEntry(knew, j);
+          final double d3 = this.m_zMatrix[knew][j];
           final double d4 = FastMath.sqrt((d2 * d2) + (d3 * d3));
-          final double d5 = this.m_zMatrix.getEntry(knew, 0) / d4;
-          final double d6 = this.m_zMatrix.getEntry(knew, j) / d4;
+          final double d5 = this.m_zMatrix[knew][0] / d4;
+          final double d6 = this.m_zMatrix[knew][j] / d4;
           for (int i = 0; i < npt; i++) {
-            final double d7 = (d5 * this.m_zMatrix.getEntry(i, 0))
-                + (d6 * this.m_zMatrix.getEntry(i, j));
-            this.m_zMatrix.setEntry(i, j,
-                (d5 * this.m_zMatrix.getEntry(i, j))
-                    - (d6 * this.m_zMatrix.getEntry(i, 0)));
-            this.m_zMatrix.setEntry(i, 0, d7);
+            final double d7 = (d5 * this.m_zMatrix[i][0])
+                + (d6 * this.m_zMatrix[i][j]);
+            this.m_zMatrix[i][j] = (d5 * this.m_zMatrix[i][j])
+                - (d6 * this.m_zMatrix[i][0]);
+            this.m_zMatrix[i][0] = d7;
           }
         }
-        this.m_zMatrix.setEntry(knew, j, __SafeBOBYQAOptimizer.ZERO);
+        this.m_zMatrix[knew][j] = __SafeBOBYQAOptimizer.ZERO;
       }
 
       for (int i = 0; i < npt; i++) {
-        work.setEntry(i, this.m_zMatrix.getEntry(knew, 0)
-            * this.m_zMatrix.getEntry(i, 0));
+        work[i] = this.m_zMatrix[knew][0] * this.m_zMatrix[i][0];
       }
-      final double alpha = work.getEntry(knew);
-      final double tau = this.m_lagrangeValuesAtNewPoint.getEntry(knew);
-      this.m_lagrangeValuesAtNewPoint.setEntry(knew,
-          this.m_lagrangeValuesAtNewPoint.getEntry(knew)
-              - __SafeBOBYQAOptimizer.ONE);
+      final double alpha = work[knew];
+      final double tau = this.m_lagrangeValuesAtNewPoint[knew];
+      this.m_lagrangeValuesAtNewPoint[knew] -= __SafeBOBYQAOptimizer.ONE;
 
       // Complete the updating of ZMAT.
 
       final double sqrtDenom = FastMath.sqrt(denom);
       final double d1 = tau / sqrtDenom;
-      final double d2 = this.m_zMatrix.getEntry(knew, 0) / sqrtDenom;
+      final double d2 = this.m_zMatrix[knew][0] / sqrtDenom;
       for (int i = 0; i < npt; i++) {
-        this.m_zMatrix.setEntry(i, 0, (d1 * this.m_zMatrix.getEntry(i, 0))
-            - (d2 * this.m_lagrangeValuesAtNewPoint.getEntry(i)));
+        this.m_zMatrix[i][0] = (d1 * this.m_zMatrix[i][0])
+            - (d2 * this.m_lagrangeValuesAtNewPoint[i]);
       }
 
       // Finally, update the matrix BMAT.
 
       for (int j = 0; j < n; j++) {
         final int jp = npt + j;
-        work.setEntry(jp, this.m_bMatrix.getEntry(knew, j));
+        work[jp] = this.m_bMatrix[knew][j];
         final double d3 = ((alpha
-            * this.m_lagrangeValuesAtNewPoint.getEntry(jp))
-            - (tau * work.getEntry(jp))) / denom;
-        final double d4 = ((-beta * work.getEntry(jp))
-            - (tau * this.m_lagrangeValuesAtNewPoint.getEntry(jp)))
+            * this.m_lagrangeValuesAtNewPoint[jp])
+            - (tau * work[jp])) / denom;
+        final double d4 = ((-beta * work[jp])
+            - (tau * this.m_lagrangeValuesAtNewPoint[jp]))
             / denom;
         for (int i = 0; i <= jp; i++) {
-          this.m_bMatrix.setEntry(i, j,
-              this.m_bMatrix.getEntry(i, j)
-                  + (d3 * this.m_lagrangeValuesAtNewPoint.getEntry(i))
-                  + (d4 * work.getEntry(i)));
+          this.m_bMatrix[i][j] = this.m_bMatrix[i][j]
+              + (d3 * this.m_lagrangeValuesAtNewPoint[i]) + (d4 * work[i]);
           if (i >= npt) {
-            this.m_bMatrix.setEntry(jp, (i - npt),
-                this.m_bMatrix.getEntry(i, j));
+            this.m_bMatrix[jp][(i - npt)] = this.m_bMatrix[i][j];
           }
         }
       }
@@ -3268,31 +4494,10 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
     private final void __setup(final double[] lowerBound,
         final double[] upperBound) {
 
-      final double[] init = this.getStartPoint();
-      final int dimension = init.length;
-
-      // Check problem dimension.
-      if (dimension < __SafeBOBYQAOptimizer.MINIMUM_PROBLEM_DIMENSION) {
-        throw new NumberIsTooSmallException(Integer.valueOf(dimension),
-            Integer.valueOf(
-                __SafeBOBYQAOptimizer.MINIMUM_PROBLEM_DIMENSION),
-            true);
-      }
-      // Check number of interpolation points.
-      final int[] nPointsInterval = { dimension + 2,
-          ((dimension + 2) * (dimension + 1)) / 2 };
-      if ((this.m_numberOfInterpolationPoints < nPointsInterval[0])
-          || (this.m_numberOfInterpolationPoints > nPointsInterval[1])) {
-        throw new OutOfRangeException(
-            LocalizedFormats.NUMBER_OF_INTERPOLATION_POINTS,
-            Integer.valueOf(this.m_numberOfInterpolationPoints),
-            Integer.valueOf(nPointsInterval[0]),
-            Integer.valueOf(nPointsInterval[1]));
-      }
+      final int dimension = this.m_currentBest.length;
 
       // Initialize bound differences.
-      this.m_boundDifference = new double[dimension];
-
+      this.m_initialTrustRegionRadius = __SafeBOBYQAOptimizer.DEFAULT_INITIAL_RADIUS;
       final double requiredMinDiff = 2 * this.m_initialTrustRegionRadius;
       double minDiff = Double.POSITIVE_INFINITY;
       for (int i = 0; i < dimension; i++) {
@@ -3303,30 +4508,34 @@ public abstract class OptimizationBasedFittingJob<FCST extends FittingCandidateS
         this.m_initialTrustRegionRadius = minDiff / 3.0;
       }
 
-      // Initialize the data structures used by the "bobyqa" method.
-      this.m_bMatrix = new Array2DRowRealMatrix(
-          dimension + this.m_numberOfInterpolationPoints, dimension);
-      this.m_zMatrix = new Array2DRowRealMatrix(
-          this.m_numberOfInterpolationPoints,
-          this.m_numberOfInterpolationPoints - dimension - 1);
-      this.m_interpolationPoints = new Array2DRowRealMatrix(
-          this.m_numberOfInterpolationPoints, dimension);
-      this.m_originShift = new ArrayRealVector(dimension);
-      this.m_fAtInterpolationPoints = new ArrayRealVector(
-          this.m_numberOfInterpolationPoints);
-      this.m_trustRegionCenterOffset = new ArrayRealVector(dimension);
-      this.m_gradientAtTrustRegionCenter = new ArrayRealVector(dimension);
-      this.m_lowerDifference = new ArrayRealVector(dimension);
-      this.m_upperDifference = new ArrayRealVector(dimension);
-      this.m_modelSecondDerivativesParameters = new ArrayRealVector(
-          this.m_numberOfInterpolationPoints);
-      this.m_newPoint = new ArrayRealVector(dimension);
-      this.m_alternativeNewPoint = new ArrayRealVector(dimension);
-      this.m_trialStepPoint = new ArrayRealVector(dimension);
-      this.m_lagrangeValuesAtNewPoint = new ArrayRealVector(
-          dimension + this.m_numberOfInterpolationPoints);
-      this.m_modelSecondDerivativesValues = new ArrayRealVector(
-          (dimension * (dimension + 1)) / 2);
+      // Reset the data structures used by the "bobyqa" method.
+      for (final double[] row : this.m_bMatrix) {
+        Arrays.fill(row, __SafeBOBYQAOptimizer.ZERO);
+      }
+      for (final double[] row : this.m_zMatrix) {
+        Arrays.fill(row, __SafeBOBYQAOptimizer.ZERO);
+      }
+      for (final double[] row : this.m_interpolationPoints) {
+        Arrays.fill(row, __SafeBOBYQAOptimizer.ZERO);
+      }
+      Arrays.fill(this.m_originShift, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_fAtInterpolationPoints,
+          __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_trustRegionCenterOffset,
+          __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_gradientAtTrustRegionCenter,
+          __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_lowerDifference, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_upperDifference, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_modelSecondDerivativesParameters,
+          __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_newPoint, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_alternativeNewPoint, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_trialStepPoint, __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_lagrangeValuesAtNewPoint,
+          __SafeBOBYQAOptimizer.ZERO);
+      Arrays.fill(this.m_modelSecondDerivativesValues,
+          __SafeBOBYQAOptimizer.ZERO);
     }
   }
 }
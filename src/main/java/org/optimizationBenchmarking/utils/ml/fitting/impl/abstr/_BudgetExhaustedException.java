@@ -0,0 +1,23 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+/**
+ * This exception is thrown by the objective function of a fitting job if
+ * the budget of the job is exhausted, i.e., if its time limit or maximum
+ * number of evaluations has been exceeded or its target quality has been
+ * reached. It unwinds the optimization algorithms and the fitting
+ * procedure, after which the job returns the best solution it has found
+ * so far. It carries no stack trace, so throwing it is cheap.
+ */
+final class _BudgetExhaustedException extends RuntimeException {
+
+  /** the serial version uid */
+  private static final long serialVersionUID = 1L;
+
+  /** the shared instance */
+  static final _BudgetExhaustedException INSTANCE = new _BudgetExhaustedException();
+
+  /** create */
+  private _BudgetExhaustedException() {
+    super("Budget exhausted.", null, false, false); //$NON-NLS-1$
+  }
+}
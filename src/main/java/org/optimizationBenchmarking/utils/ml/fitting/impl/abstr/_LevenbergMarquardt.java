@@ -0,0 +1,846 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.util.Precision;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+
+/**
+ * <p>
+ * An internal implementation of the Levenberg-Marquardt algorithm for
+ * least-squares problems. This is a port of
+ * {@link org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer}
+ * (commons math 3.6.1, which itself is a translation of the MINPACK
+ * routine {@code lmder}) with the default settings of that class and the
+ * same sequence of floating point operations.
+ * </p>
+ * <p>
+ * The difference is that this implementation does not allocate any
+ * memory during the optimization: The weighted Jacobian is stored in a
+ * flat, column-major {@code double[]}, all work arrays are allocated
+ * once, and the two {@link FittingEvaluation} records holding the current
+ * and the trial point are reused, so that the quality measure can write
+ * its residuals and Jacobian directly into them. An instance belongs to a
+ * single evaluation context of an {@link OptimizationBasedFittingJob} and
+ * is reused for all the (often hundreds of) refinement steps performed in
+ * this context. It is not thread-safe.
+ * </p>
+ */
+final class _LevenbergMarquardt {
+
+  /** the initial step bound factor */
+  private static final double INITIAL_STEP_BOUND_FACTOR = 100d;
+  /** the cost relative tolerance */
+  private static final double COST_RELATIVE_TOLERANCE = 1e-10d;
+  /** the parameter relative tolerance */
+  private static final double PAR_RELATIVE_TOLERANCE = 1e-10d;
+  /** the orthogonality tolerance */
+  private static final double ORTHO_TOLERANCE = 1e-10d;
+  /** the ranking threshold of the QR decomposition */
+  private static final double QR_RANKING_THRESHOLD = Precision.SAFE_MIN;
+  /** twice the machine epsilon */
+  private static final double TWO_EPS = (2d * Precision.EPSILON);
+
+  /** the owning evaluation context */
+  private final OptimizationBasedFittingJob<?>.EvaluationContext m_owner;
+  /** the number of parameters */
+  private final int m_parameterCount;
+
+  /** the current point */
+  private final double[] m_point;
+  /** the backup of the current point */
+  private final double[] m_oldX;
+  /** the scaling factors of the parameters */
+  private final double[] m_diag;
+  /** the direction associated with the Levenberg-Marquardt parameter */
+  private final double[] m_lmDir;
+  /** the first work array */
+  private final double[] m_work1;
+  /** the second work array */
+  private final double[] m_work2;
+  /** the third work array */
+  private final double[] m_work3;
+  /** the diagonal elements of the {@code R} matrix */
+  private final double[] m_diagR;
+  /** the norms of the columns of the Jacobian */
+  private final double[] m_jacNorm;
+  /** the coefficients of the Householder transforms */
+  private final double[] m_beta;
+  /** the column permutation of the QR decomposition */
+  private final int[] m_permutation;
+
+  /**
+   * the negated, weighted Jacobian in column-major order, i.e., element
+   * {@code (row, column)} is at index {@code column*m_rows+row}
+   */
+  private double[] m_jacobian;
+  /** the product of the transposed {@code Q} and the residuals */
+  private double[] m_qtf;
+  /** the number of observations, i.e., rows of the Jacobian */
+  private int m_rows;
+  /** the rank of the Jacobian */
+  private int m_rank;
+
+  /** the evaluation record of the current point */
+  private FittingEvaluation m_current;
+  /** the evaluation record of the trial point */
+  private FittingEvaluation m_trial;
+
+  /**
+   * create the optimizer
+   *
+   * @param owner
+   *          the owning evaluation context
+   * @param parameterCount
+   *          the number of parameters
+   */
+  _LevenbergMarquardt(
+      final OptimizationBasedFittingJob<?>.EvaluationContext owner,
+      final int parameterCount) {
+    super();
+
+    this.m_owner = owner;
+    this.m_parameterCount = parameterCount;
+
+    this.m_point = new double[parameterCount];
+    this.m_oldX = new double[parameterCount];
+    this.m_diag = new double[parameterCount];
+    this.m_lmDir = new double[parameterCount];
+    this.m_work1 = new double[parameterCount];
+    this.m_work2 = new double[parameterCount];
+    this.m_work3 = new double[parameterCount];
+    this.m_diagR = new double[parameterCount];
+    this.m_jacNorm = new double[parameterCount];
+    this.m_beta = new double[parameterCount];
+    this.m_permutation = new int[parameterCount];
+
+    this.m_current = new FittingEvaluation();
+    this.m_trial = new FittingEvaluation();
+  }
+
+  /**
+   * Make sure that the work arrays depending on the number of observations
+   * are large enough.
+   *
+   * @param rows
+   *          the number of observations
+   */
+  private final void __ensureRows(final int rows) {
+    final int size;
+
+    this.m_rows = rows;
+    size = (rows * this.m_parameterCount);
+    if ((this.m_jacobian == null) || (this.m_jacobian.length < size)) {
+      this.m_jacobian = new double[size];
+    }
+    if ((this.m_qtf == null) || (this.m_qtf.length < rows)) {
+      this.m_qtf = new double[rows];
+    }
+  }
+
+  /**
+   * Run the optimization. All points are evaluated via
+   * {@link OptimizationBasedFittingJob#_evaluate(double[], FittingEvaluation)}
+   * , which keeps track of the best solution. The optimization stops on
+   * convergence, when
+   * {@link OptimizationBasedFittingJob#_leastSquaresConverged(int, double, double)}
+   * returns {@code true}, when {@code maxIterations} iterations or
+   * {@code maxIterations*maxIterations} evaluations have been performed,
+   * or if the problem turns out to be numerically ill-conditioned.
+   *
+   * @param start
+   *          the starting point
+   * @param maxIterations
+   *          the maximum number of iterations
+   */
+  final void _optimize(final double[] start, final int maxIterations) {
+    final OptimizationBasedFittingJob<?>.EvaluationContext owner;
+    final int nC, nR, solvedCols, maxEvaluations;
+    final double[] point, oldX, diag, lmDir, work1, work2, work3, diagR,
+        jacNorm, qtf, jacobian;
+    final int[] permutation;
+    FittingEvaluation current, swap;
+    double lmPar, delta, xNorm, maxCosine, previousRMS, previousCost,
+        currentCost, lmNorm, actRed, coeff1, coeff2, pc2, preRed, dirDer,
+        ratio, sum, s, dk, tmp;
+    boolean firstIteration;
+    int iteration, evaluations, i, j, k, pj, column;
+
+    owner = this.m_owner;
+    nC = this.m_parameterCount;
+    nR = owner.getObservationSize();
+    this.__ensureRows(nR);
+    solvedCols = Math.min(nR, nC);
+    maxEvaluations = (maxIterations * maxIterations);
+
+    point = this.m_point;
+    oldX = this.m_oldX;
+    diag = this.m_diag;
+    lmDir = this.m_lmDir;
+    work1 = this.m_work1;
+    work2 = this.m_work2;
+    work3 = this.m_work3;
+    diagR = this.m_diagR;
+    jacNorm = this.m_jacNorm;
+    permutation = this.m_permutation;
+    qtf = this.m_qtf;
+    jacobian = this.m_jacobian;
+
+    Arrays.fill(lmDir, 0d);
+    Arrays.fill(work1, 0d);
+    Arrays.fill(work2, 0d);
+    Arrays.fill(work3, 0d);
+    System.arraycopy(start, 0, point, 0, nC);
+
+    lmPar = 0d;
+    delta = 0d;
+    xNorm = 0d;
+
+    // evaluate the function at the starting point
+    evaluations = 1;
+    current = this.m_current;
+    owner._evaluate(point, current);
+    currentCost = current.rsError;
+
+    firstIteration = true;
+    for (iteration = 1; iteration <= maxIterations; iteration++) {
+      previousRMS = current.rmsError;
+
+      // QR decomposition of the Jacobian matrix
+      if (!(this.__qrDecomposition(current.jacobian, solvedCols))) {
+        return;
+      }
+
+      System.arraycopy(current.residuals, 0, qtf, 0, nR);
+      this.__qTy(qtf);
+
+      // let the Jacobian contain the R matrix with its diagonal elements
+      for (k = 0; k < solvedCols; ++k) {
+        pj = permutation[k];
+        jacobian[(pj * nR) + k] = diagR[pj];
+      }
+
+      if (firstIteration) {
+        // scale the point according to the norms of the columns of the
+        // initial Jacobian
+        xNorm = 0d;
+        for (k = 0; k < nC; ++k) {
+          dk = jacNorm[k];
+          if (dk == 0d) {
+            dk = 1d;
+          }
+          s = dk * point[k];
+          xNorm += s * s;
+          diag[k] = dk;
+        }
+        xNorm = Math.sqrt(xNorm);
+        delta = ((xNorm == 0d)
+            ? _LevenbergMarquardt.INITIAL_STEP_BOUND_FACTOR
+            : (_LevenbergMarquardt.INITIAL_STEP_BOUND_FACTOR * xNorm));
+      }
+
+      // check orthogonality between function vector and Jacobian columns
+      maxCosine = 0d;
+      if (currentCost != 0d) {
+        for (j = 0; j < solvedCols; ++j) {
+          pj = permutation[j];
+          s = jacNorm[pj];
+          if (s != 0d) {
+            column = (pj * nR);
+            sum = 0d;
+            for (i = 0; i <= j; ++i) {
+              sum += jacobian[column + i] * qtf[i];
+            }
+            maxCosine = Math.max(maxCosine,
+                Math.abs(sum) / (s * currentCost));
+          }
+        }
+      }
+      if (maxCosine <= _LevenbergMarquardt.ORTHO_TOLERANCE) {
+        return;
+      }
+
+      // rescale if necessary
+      for (j = 0; j < nC; ++j) {
+        diag[j] = Math.max(diag[j], jacNorm[j]);
+      }
+
+      for (ratio = 0d; ratio < 1.0e-4d;) {
+        // save the state
+        for (j = 0; j < solvedCols; ++j) {
+          pj = permutation[j];
+          oldX[pj] = point[pj];
+        }
+        previousCost = currentCost;
+
+        // determine the Levenberg-Marquardt parameter
+        lmPar = this.__determineLMParameter(qtf, delta, solvedCols, lmPar);
+
+        // compute the new point and the norm of the evolution direction
+        lmNorm = 0d;
+        for (j = 0; j < solvedCols; ++j) {
+          pj = permutation[j];
+          lmDir[pj] = -lmDir[pj];
+          point[pj] = oldX[pj] + lmDir[pj];
+          s = diag[pj] * lmDir[pj];
+          lmNorm += s * s;
+        }
+        lmNorm = Math.sqrt(lmNorm);
+        if (firstIteration) {
+          delta = Math.min(delta, lmNorm);
+        }
+
+        // evaluate the function at the new point
+        if ((++evaluations) > maxEvaluations) {
+          return;
+        }
+        owner._evaluate(point, this.m_trial);
+        currentCost = this.m_trial.rsError;
+
+        // compute the scaled actual reduction
+        actRed = -1d;
+        if ((0.1d * currentCost) < previousCost) {
+          s = currentCost / previousCost;
+          actRed = 1d - (s * s);
+        }
+
+        // compute the scaled predicted reduction and the scaled
+        // directional derivative
+        for (j = 0; j < solvedCols; ++j) {
+          pj = permutation[j];
+          column = (pj * nR);
+          s = lmDir[pj];
+          work1[j] = 0d;
+          for (i = 0; i <= j; ++i) {
+            work1[i] += jacobian[column + i] * s;
+          }
+        }
+        coeff1 = 0d;
+        for (j = 0; j < solvedCols; ++j) {
+          coeff1 += work1[j] * work1[j];
+        }
+        pc2 = previousCost * previousCost;
+        coeff1 /= pc2;
+        coeff2 = (lmPar * lmNorm * lmNorm) / pc2;
+        preRed = coeff1 + (2d * coeff2);
+        dirDer = -(coeff1 + coeff2);
+
+        // ratio of the actual to the predicted reduction
+        ratio = ((preRed == 0d) ? 0d : (actRed / preRed));
+
+        // update the step bound
+        if (ratio <= 0.25d) {
+          tmp = ((actRed < 0d)
+              ? ((0.5d * dirDer) / (dirDer + (0.5d * actRed))) : 0.5d);
+          if (((0.1d * currentCost) >= previousCost) || (tmp < 0.1d)) {
+            tmp = 0.1d;
+          }
+          delta = tmp * Math.min(delta, 10d * lmNorm);
+          lmPar /= tmp;
+        } else {
+          if ((lmPar == 0d) || (ratio >= 0.75d)) {
+            delta = 2d * lmNorm;
+            lmPar *= 0.5d;
+          }
+        }
+
+        // test for successful iteration
+        if (ratio >= 1.0e-4d) {
+          firstIteration = false;
+          xNorm = 0d;
+          for (k = 0; k < nC; ++k) {
+            s = diag[k] * point[k];
+            xNorm += s * s;
+          }
+          xNorm = Math.sqrt(xNorm);
+
+          swap = current;
+          this.m_current = current = this.m_trial;
+          this.m_trial = swap;
+
+          if (owner._leastSquaresConverged(iteration, previousRMS,
+              current.rmsError)) {
+            return;
+          }
+        } else {
+          // failed iteration: reset the previous values
+          currentCost = previousCost;
+          for (j = 0; j < solvedCols; ++j) {
+            pj = permutation[j];
+            point[pj] = oldX[pj];
+          }
+        }
+
+        // default convergence criteria
+        if (((Math.abs(actRed) <= _LevenbergMarquardt.COST_RELATIVE_TOLERANCE)
+            && (preRed <= _LevenbergMarquardt.COST_RELATIVE_TOLERANCE)
+            && (ratio <= 2d))
+            || (delta <= (_LevenbergMarquardt.PAR_RELATIVE_TOLERANCE
+                * xNorm))) {
+          return;
+        }
+
+        // tolerances too small for further progress
+        if (((Math.abs(actRed) <= _LevenbergMarquardt.TWO_EPS)
+            && (preRed <= _LevenbergMarquardt.TWO_EPS) && (ratio <= 2d))
+            || (delta <= (_LevenbergMarquardt.TWO_EPS * xNorm))
+            || (maxCosine <= _LevenbergMarquardt.TWO_EPS)) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Determine the Levenberg-Marquardt parameter. The result direction is
+   * stored in {@link #m_lmDir}.
+   *
+   * @param qy
+   *          the product of the transposed {@code Q} and the residuals
+   * @param delta
+   *          the upper bound on the Euclidean norm of
+   *          {@code diag*lmDir}
+   * @param solvedCols
+   *          the number of solved columns
+   * @param lmParameter
+   *          the current Levenberg-Marquardt parameter
+   * @return the new Levenberg-Marquardt parameter
+   */
+  private final double __determineLMParameter(final double[] qy,
+      final double delta, final int solvedCols, final double lmParameter) {
+    final double[] jacobian, diag, diagR, work1, work2, work3, lmDir;
+    final int[] permutation;
+    final int rank, nC, nR;
+    double lmPar, dxNorm, fp, sum2, parl, sum, s, gNorm, paru, sPar,
+        previousFP, correction, ypk;
+    int i, j, k, pj, column, countdown;
+
+    jacobian = this.m_jacobian;
+    diag = this.m_diag;
+    diagR = this.m_diagR;
+    work1 = this.m_work1;
+    work2 = this.m_work2;
+    work3 = this.m_work3;
+    lmDir = this.m_lmDir;
+    permutation = this.m_permutation;
+    rank = this.m_rank;
+    nC = this.m_parameterCount;
+    nR = this.m_rows;
+    lmPar = lmParameter;
+
+    // compute and store in lmDir the Gauss-Newton direction, if the
+    // Jacobian is rank-deficient, obtain a least squares solution
+    for (j = 0; j < rank; ++j) {
+      lmDir[permutation[j]] = qy[j];
+    }
+    for (j = rank; j < nC; ++j) {
+      lmDir[permutation[j]] = 0d;
+    }
+    for (k = rank - 1; k >= 0; --k) {
+      pj = permutation[k];
+      column = (pj * nR);
+      ypk = lmDir[pj] / diagR[pj];
+      for (i = 0; i < k; ++i) {
+        lmDir[permutation[i]] -= ypk * jacobian[column + i];
+      }
+      lmDir[pj] = ypk;
+    }
+
+    // evaluate the function at the origin, and test for acceptance of
+    // the Gauss-Newton direction
+    dxNorm = 0d;
+    for (j = 0; j < solvedCols; ++j) {
+      pj = permutation[j];
+      s = diag[pj] * lmDir[pj];
+      work1[pj] = s;
+      dxNorm += s * s;
+    }
+    dxNorm = Math.sqrt(dxNorm);
+    fp = dxNorm - delta;
+    if (fp <= (0.1d * delta)) {
+      return 0d;
+    }
+
+    // if the Jacobian is not rank deficient, the Newton step provides a
+    // lower bound, parl, for the zero of the function, otherwise set this
+    // bound to zero
+    parl = 0d;
+    if (rank == solvedCols) {
+      for (j = 0; j < solvedCols; ++j) {
+        pj = permutation[j];
+        work1[pj] *= diag[pj] / dxNorm;
+      }
+      sum2 = 0d;
+      for (j = 0; j < solvedCols; ++j) {
+        pj = permutation[j];
+        column = (pj * nR);
+        sum = 0d;
+        for (i = 0; i < j; ++i) {
+          sum += jacobian[column + i] * work1[permutation[i]];
+        }
+        s = (work1[pj] - sum) / diagR[pj];
+        work1[pj] = s;
+        sum2 += s * s;
+      }
+      parl = fp / (delta * sum2);
+    }
+
+    // calculate an upper bound, paru, for the zero of the function
+    sum2 = 0d;
+    for (j = 0; j < solvedCols; ++j) {
+      pj = permutation[j];
+      column = (pj * nR);
+      sum = 0d;
+      for (i = 0; i <= j; ++i) {
+        sum += jacobian[column + i] * qy[i];
+      }
+      sum /= diag[pj];
+      sum2 += sum * sum;
+    }
+    gNorm = Math.sqrt(sum2);
+    paru = gNorm / delta;
+    if (paru == 0d) {
+      paru = Precision.SAFE_MIN / Math.min(delta, 0.1d);
+    }
+
+    // if the input par lies outside of the interval (parl,paru), set par
+    // to the closer endpoint
+    lmPar = Math.min(paru, Math.max(lmPar, parl));
+    if (lmPar == 0d) {
+      lmPar = gNorm / dxNorm;
+    }
+
+    for (countdown = 10; countdown >= 0; --countdown) {
+      // evaluate the function at the current value of lmPar
+      if (lmPar == 0d) {
+        lmPar = Math.max(Precision.SAFE_MIN, 0.001d * paru);
+      }
+      sPar = Math.sqrt(lmPar);
+      for (j = 0; j < solvedCols; ++j) {
+        pj = permutation[j];
+        work1[pj] = sPar * diag[pj];
+      }
+      this.__determineLMDirection(qy, work1, work2, solvedCols, work3);
+
+      dxNorm = 0d;
+      for (j = 0; j < solvedCols; ++j) {
+        pj = permutation[j];
+        s = diag[pj] * lmDir[pj];
+        work3[pj] = s;
+        dxNorm += s * s;
+      }
+      dxNorm = Math.sqrt(dxNorm);
+      previousFP = fp;
+      fp = dxNorm - delta;
+
+      // if the function is small enough, accept the current value of
+      // lmPar, also test for the exceptional cases where parl is zero or
+      // the number of iterations has reached 10
+      if ((Math.abs(fp) <= (0.1d * delta))
+          || ((parl == 0d) && (fp <= previousFP) && (previousFP < 0d))) {
+        return lmPar;
+      }
+
+      // compute the Newton correction
+      for (j = 0; j < solvedCols; ++j) {
+        pj = permutation[j];
+        work1[pj] = (work3[pj] * diag[pj]) / dxNorm;
+      }
+      for (j = 0; j < solvedCols; ++j) {
+        pj = permutation[j];
+        column = (pj * nR);
+        work1[pj] /= work2[j];
+        s = work1[pj];
+        for (i = j + 1; i < solvedCols; ++i) {
+          work1[permutation[i]] -= jacobian[column + i] * s;
+        }
+      }
+      sum2 = 0d;
+      for (j = 0; j < solvedCols; ++j) {
+        s = work1[permutation[j]];
+        sum2 += s * s;
+      }
+      correction = fp / (delta * sum2);
+
+      // depending on the sign of the function, update parl or paru.
+      if (fp > 0d) {
+        parl = Math.max(parl, lmPar);
+      } else {
+        if (fp < 0d) {
+          paru = Math.min(paru, lmPar);
+        }
+      }
+
+      // compute an improved estimate for lmPar
+      lmPar = Math.max(parl, lmPar + correction);
+    }
+
+    return lmPar;
+  }
+
+  /**
+   * Solve the least squares problem {@code min |A*x-b|} subject to the
+   * diagonal constraint {@code D*x=0}. The result direction is stored in
+   * {@link #m_lmDir}.
+   *
+   * @param qy
+   *          the product of the transposed {@code Q} and the residuals
+   * @param diag
+   *          the diagonal matrix {@code D}
+   * @param lmDiag
+   *          the diagonal elements associated with {@code lmDir}
+   * @param solvedCols
+   *          the number of solved columns
+   * @param work
+   *          a work array
+   */
+  private final void __determineLMDirection(final double[] qy,
+      final double[] diag, final double[] lmDiag, final int solvedCols,
+      final double[] work) {
+    final double[] jacobian, diagR, lmDir;
+    final int[] permutation;
+    final int nR, nC;
+    double dpj, qtbpj, rkk, sin, cos, cotan, tan, temp, rik, sum;
+    int i, j, k, pj, pk, column, nSing;
+
+    jacobian = this.m_jacobian;
+    diagR = this.m_diagR;
+    lmDir = this.m_lmDir;
+    permutation = this.m_permutation;
+    nR = this.m_rows;
+    nC = this.m_parameterCount;
+
+    // copy R and Qty to preserve input and initialize s, in particular,
+    // save the diagonal elements of R in lmDir
+    for (j = 0; j < solvedCols; ++j) {
+      pj = permutation[j];
+      for (i = j + 1; i < solvedCols; ++i) {
+        jacobian[(pj * nR) + i] = jacobian[(permutation[i] * nR) + j];
+      }
+      lmDir[j] = diagR[pj];
+      work[j] = qy[j];
+    }
+
+    // eliminate the diagonal matrix d using a Givens rotation
+    for (j = 0; j < solvedCols; ++j) {
+      // prepare the row of d to be eliminated, locating the diagonal
+      // element using p from the Q.R. factorization
+      pj = permutation[j];
+      dpj = diag[pj];
+      if (dpj != 0d) {
+        Arrays.fill(lmDiag, j + 1, lmDiag.length, 0d);
+      }
+      lmDiag[j] = dpj;
+
+      // the transformations to eliminate the row of d modify only a
+      // single element of Qty beyond the first n, which is initially zero.
+      qtbpj = 0d;
+      for (k = j; k < solvedCols; ++k) {
+        pk = permutation[k];
+        column = (pk * nR);
+
+        // determine a Givens rotation which eliminates the appropriate
+        // element in the current row of d
+        if (lmDiag[k] != 0d) {
+          rkk = jacobian[column + k];
+          if (Math.abs(rkk) < Math.abs(lmDiag[k])) {
+            cotan = rkk / lmDiag[k];
+            sin = 1d / Math.sqrt(1d + (cotan * cotan));
+            cos = sin * cotan;
+          } else {
+            tan = lmDiag[k] / rkk;
+            cos = 1d / Math.sqrt(1d + (tan * tan));
+            sin = cos * tan;
+          }
+
+          // compute the modified diagonal element of R and the modified
+          // element of (Qty,0)
+          jacobian[column + k] = (cos * rkk) + (sin * lmDiag[k]);
+          temp = (cos * work[k]) + (sin * qtbpj);
+          qtbpj = (-sin * work[k]) + (cos * qtbpj);
+          work[k] = temp;
+
+          // accumulate the transformation in the row of s
+          for (i = k + 1; i < solvedCols; ++i) {
+            rik = jacobian[column + i];
+            temp = (cos * rik) + (sin * lmDiag[i]);
+            lmDiag[i] = (-sin * rik) + (cos * lmDiag[i]);
+            jacobian[column + i] = temp;
+          }
+        }
+      }
+
+      // store the diagonal element of s and restore the corresponding
+      // diagonal element of R
+      column = (permutation[j] * nR);
+      lmDiag[j] = jacobian[column + j];
+      jacobian[column + j] = lmDir[j];
+    }
+
+    // solve the triangular system for z, if the system is singular, then
+    // obtain a least squares solution
+    nSing = solvedCols;
+    for (j = 0; j < solvedCols; ++j) {
+      if ((lmDiag[j] == 0d) && (nSing == solvedCols)) {
+        nSing = j;
+      }
+      if (nSing < solvedCols) {
+        work[j] = 0d;
+      }
+    }
+    if (nSing > 0) {
+      for (j = nSing - 1; j >= 0; --j) {
+        column = (permutation[j] * nR);
+        sum = 0d;
+        for (i = j + 1; i < nSing; ++i) {
+          sum += jacobian[column + i] * work[i];
+        }
+        work[j] = (work[j] - sum) / lmDiag[j];
+      }
+    }
+
+    // permute the components of z back to components of lmDir
+    for (j = 0; j < nC; ++j) {
+      lmDir[permutation[j]] = work[j];
+    }
+  }
+
+  /**
+   * Copy the negated Jacobian into the column-major work matrix and
+   * decompose it with Householder transforms and column pivoting.
+   *
+   * @param source
+   *          the Jacobian as computed by the quality measure
+   * @param solvedCols
+   *          the number of solved columns
+   * @return {@code true} if the decomposition succeeded, {@code false} if
+   *         the Jacobian contains non-finite values
+   */
+  private final boolean __qrDecomposition(final double[][] source,
+      final int solvedCols) {
+    final double[] jacobian, diagR, jacNorm, beta;
+    final int[] permutation;
+    final int nR, nC;
+    double[] row;
+    double norm2, akk, ak2, alpha, betak, gamma, value;
+    int i, j, k, dk, pk, nextColumn, column, other;
+
+    jacobian = this.m_jacobian;
+    diagR = this.m_diagR;
+    jacNorm = this.m_jacNorm;
+    beta = this.m_beta;
+    permutation = this.m_permutation;
+    nR = this.m_rows;
+    nC = this.m_parameterCount;
+
+    for (i = nR; (--i) >= 0;) {
+      row = source[i];
+      for (k = nC; (--k) >= 0;) {
+        jacobian[(k * nR) + i] = (-row[k]);
+      }
+    }
+    Arrays.fill(diagR, 0d);
+    Arrays.fill(beta, 0d);
+
+    // initializations
+    for (k = 0; k < nC; ++k) {
+      permutation[k] = k;
+      column = (k * nR);
+      norm2 = 0d;
+      for (i = 0; i < nR; ++i) {
+        value = jacobian[column + i];
+        norm2 += value * value;
+      }
+      jacNorm[k] = Math.sqrt(norm2);
+    }
+
+    // transform the matrix column after column
+    for (k = 0; k < nC; ++k) {
+      // select the column with the greatest norm on active components
+      nextColumn = -1;
+      ak2 = Double.NEGATIVE_INFINITY;
+      for (i = k; i < nC; ++i) {
+        column = (permutation[i] * nR);
+        norm2 = 0d;
+        for (j = k; j < nR; ++j) {
+          value = jacobian[column + j];
+          norm2 += value * value;
+        }
+        if (Double.isInfinite(norm2) || Double.isNaN(norm2)) {
+          return false;
+        }
+        if (norm2 > ak2) {
+          nextColumn = i;
+          ak2 = norm2;
+        }
+      }
+      if (ak2 <= _LevenbergMarquardt.QR_RANKING_THRESHOLD) {
+        this.m_rank = k;
+        return true;
+      }
+      pk = permutation[nextColumn];
+      permutation[nextColumn] = permutation[k];
+      permutation[k] = pk;
+
+      // choose alpha such that Hk.u = alpha ek
+      column = (pk * nR);
+      akk = jacobian[column + k];
+      alpha = ((akk > 0d) ? (-Math.sqrt(ak2)) : Math.sqrt(ak2));
+      betak = 1d / (ak2 - (akk * alpha));
+      beta[pk] = betak;
+
+      // transform the current column
+      diagR[pk] = alpha;
+      jacobian[column + k] -= alpha;
+
+      // transform the remaining columns
+      for (dk = nC - 1 - k; dk > 0; --dk) {
+        other = (permutation[k + dk] * nR);
+        gamma = 0d;
+        for (j = k; j < nR; ++j) {
+          gamma += jacobian[column + j] * jacobian[other + j];
+        }
+        gamma *= betak;
+        for (j = k; j < nR; ++j) {
+          jacobian[other + j] -= gamma * jacobian[column + j];
+        }
+      }
+    }
+
+    this.m_rank = solvedCols;
+    return true;
+  }
+
+  /**
+   * Compute the product {@code Qt.y} in place.
+   *
+   * @param y
+   *          the vector to multiply, will be overwritten with the result
+   */
+  private final void __qTy(final double[] y) {
+    final double[] jacobian, beta;
+    final int[] permutation;
+    final int nR, nC;
+    double gamma;
+    int i, k, pk, column;
+
+    jacobian = this.m_jacobian;
+    beta = this.m_beta;
+    permutation = this.m_permutation;
+    nR = this.m_rows;
+    nC = this.m_parameterCount;
+
+    for (k = 0; k < nC; ++k) {
+      pk = permutation[k];
+      column = (pk * nR);
+      gamma = 0d;
+      for (i = k; i < nR; ++i) {
+        gamma += jacobian[column + i] * y[i];
+      }
+      gamma *= beta[pk];
+      for (i = k; i < nR; ++i) {
+        y[i] -= gamma * jacobian[column + i];
+      }
+    }
+  }
+}
@@ -0,0 +1,417 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+/**
+ * <p>
+ * An internal implementation of the Nelder-Mead downhill simplex
+ * algorithm. It behaves like
+ * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer}
+ * with a
+ * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex}
+ * with the default coefficients (commons math 3.6.1), i.e., it performs
+ * the same reflection, expansion, contraction, and shrink steps and
+ * applies the same convergence criterion and limits, but it does not
+ * allocate any memory during the optimization.
+ * </p>
+ * <p>
+ * The vertices of the simplex are kept in arrays which are allocated
+ * once and reused for all refinement steps performed in the same
+ * evaluation context. New points replace the worst vertex by swapping
+ * arrays, not by copying them. The sum of the best {@code n} vertices,
+ * from which the centroid is derived, is updated incrementally whenever
+ * a vertex is replaced, which costs {@code O(n)} instead of
+ * {@code O(n^2)} per iteration. To prevent the accumulation of rounding
+ * errors, it is recomputed from scratch every {@code n} iterations and
+ * after each shrink step. The vertices of the initial simplex and of a
+ * shrink step are passed to
+ * {@link OptimizationBasedFittingJob.EvaluationContext#_values(double[][], int, int, double[])}
+ * in a single call. This call still evaluates them one after the other,
+ * so it only saves the overhead of the individual calls. The reflection,
+ * expansion, and contraction candidates depend on each other and are
+ * evaluated one at a time.
+ * </p>
+ * <p>
+ * An instance belongs to a single evaluation context of an
+ * {@link OptimizationBasedFittingJob}. It is not thread-safe.
+ * </p>
+ */
+final class _NelderMead {
+
+  /** the reflection coefficient */
+  private static final double RHO = 1d;
+  /** the expansion coefficient */
+  private static final double KHI = 2d;
+  /** the contraction coefficient */
+  private static final double GAMMA = 0.5d;
+  /** the shrinkage coefficient */
+  private static final double SIGMA = 0.5d;
+
+  /** the owning evaluation context */
+  private final OptimizationBasedFittingJob<?>.EvaluationContext m_owner;
+  /** the number of parameters */
+  private final int m_parameterCount;
+
+  /** the vertices of the simplex, sorted by their values */
+  private final double[][] m_vertices;
+  /** the values of the vertices */
+  private final double[] m_values;
+  /** the values of the vertices before the current iteration */
+  private final double[] m_previous;
+  /** the sum of the best {@code n} vertices */
+  private final double[] m_sum;
+  /** the centroid of the best {@code n} vertices */
+  private final double[] m_centroid;
+  /** the initial steps */
+  private final double[] m_steps;
+  /** the candidate points: the reflected point and the trial point */
+  private final double[][] m_candidates;
+  /** the values of the candidate points */
+  private final double[] m_candidateValues;
+
+  /** the remaining number of evaluations */
+  private int m_remainingEvaluations;
+
+  /**
+   * create the optimizer
+   *
+   * @param owner
+   *          the owning evaluation context
+   * @param parameterCount
+   *          the number of parameters
+   */
+  _NelderMead(final OptimizationBasedFittingJob<?>.EvaluationContext owner,
+      final int parameterCount) {
+    super();
+
+    this.m_owner = owner;
+    this.m_parameterCount = parameterCount;
+    this.m_vertices = new double[parameterCount + 1][parameterCount];
+    this.m_values = new double[parameterCount + 1];
+    this.m_previous = new double[parameterCount + 1];
+    this.m_sum = new double[parameterCount];
+    this.m_centroid = new double[parameterCount];
+    this.m_steps = new double[parameterCount];
+    this.m_candidates = new double[2][parameterCount];
+    this.m_candidateValues = new double[2];
+  }
+
+  /**
+   * Evaluate some points via the owning context, as long as the
+   * evaluation budget permits.
+   *
+   * @param points
+   *          the points
+   * @param start
+   *          the index of the first point to evaluate
+   * @param end
+   *          the exclusive end index of the points to evaluate
+   * @param dest
+   *          the destination for the values
+   * @return {@code true} if all points could be evaluated, {@code false}
+   *         if the evaluation budget is exhausted
+   */
+  private final boolean __evaluate(final double[][] points,
+      final int start, final int end, final double[] dest) {
+    final int count, remaining;
+
+    count = (end - start);
+    remaining = this.m_remainingEvaluations;
+    if (remaining < count) {
+      this.m_owner._values(points, start, (start + remaining), dest);
+      this.m_remainingEvaluations = 0;
+      return false;
+    }
+    this.m_owner._values(points, start, end, dest);
+    this.m_remainingEvaluations = (remaining - count);
+    return true;
+  }
+
+  /**
+   * Sort the vertices by their values. We use insertion sort, which is
+   * stable like the sorting in commons math.
+   */
+  private final void __sort() {
+    final double[][] vertices;
+    final double[] values;
+    double[] vertex;
+    double value;
+    int i, j;
+
+    vertices = this.m_vertices;
+    values = this.m_values;
+    for (i = 1; i < values.length; i++) {
+      value = values[i];
+      vertex = vertices[i];
+      for (j = i; (j > 0) && (Double.compare(values[j - 1], value) > 0);
+          j--) {
+        values[j] = values[j - 1];
+        vertices[j] = vertices[j - 1];
+      }
+      values[j] = value;
+      vertices[j] = vertex;
+    }
+  }
+
+  /** Compute the sum of the best {@code n} vertices from scratch */
+  private final void __computeSum() {
+    final double[][] vertices;
+    final double[] sum;
+    double[] vertex;
+    int i, j;
+
+    vertices = this.m_vertices;
+    sum = this.m_sum;
+    vertex = vertices[0];
+    System.arraycopy(vertex, 0, sum, 0, sum.length);
+    for (i = 1; i < this.m_parameterCount; i++) {
+      vertex = vertices[i];
+      for (j = sum.length; (--j) >= 0;) {
+        sum[j] += vertex[j];
+      }
+    }
+  }
+
+  /**
+   * Replace the worst vertex with a candidate point, keep the vertices
+   * sorted, and update the sum of the best {@code n} vertices
+   *
+   * @param candidate
+   *          the index of the candidate point
+   */
+  private final void __replaceWorst(final int candidate) {
+    final double[][] vertices;
+    final double[] values, sum, inserted;
+    final int n;
+    double[] point, swap;
+    double value, swapValue;
+    int i;
+
+    vertices = this.m_vertices;
+    values = this.m_values;
+    n = this.m_parameterCount;
+    inserted = point = this.m_candidates[candidate];
+    value = this.m_candidateValues[candidate];
+
+    for (i = 0; i < n; i++) {
+      if (Double.compare(values[i], value) > 0) {
+        swap = vertices[i];
+        vertices[i] = point;
+        point = swap;
+        swapValue = values[i];
+        values[i] = value;
+        value = swapValue;
+      }
+    }
+
+    // the array of the worst vertex becomes the new candidate array
+    this.m_candidates[candidate] = vertices[n];
+    vertices[n] = point;
+    values[n] = value;
+
+    if (point != inserted) {
+      // the inserted point is among the best n vertices now, the former
+      // second-worst vertex is not
+      sum = this.m_sum;
+      for (i = sum.length; (--i) >= 0;) {
+        sum[i] += (inserted[i] - point[i]);
+      }
+    }
+  }
+
+  /**
+   * Perform one iteration of the Nelder-Mead algorithm
+   *
+   * @param refreshSum
+   *          should the sum of the best vertices be recomputed from
+   *          scratch?
+   * @return {@code true} if the iteration could be completed,
+   *         {@code false} if the evaluation budget is exhausted
+   */
+  private final boolean __iterate(final boolean refreshSum) {
+    final double[][] vertices, candidates;
+    final double[] values, centroid, sum, xWorst, xR, candidateValues;
+    final double best, secondBest, worst, scaling;
+    final int n;
+    double[] xT, xSmallest, x;
+    int i, j;
+
+    vertices = this.m_vertices;
+    values = this.m_values;
+    candidates = this.m_candidates;
+    candidateValues = this.m_candidateValues;
+    centroid = this.m_centroid;
+    sum = this.m_sum;
+    n = this.m_parameterCount;
+
+    best = values[0];
+    secondBest = values[n - 1];
+    worst = values[n];
+    xWorst = vertices[n];
+
+    // compute the centroid of the best vertices
+    if (refreshSum) {
+      this.__computeSum();
+    }
+    scaling = (1d / n);
+    for (j = n; (--j) >= 0;) {
+      centroid[j] = (sum[j] * scaling);
+    }
+
+    // compute the reflection point
+    xR = candidates[0];
+    for (j = n; (--j) >= 0;) {
+      xR[j] = centroid[j] + (_NelderMead.RHO * (centroid[j] - xWorst[j]));
+    }
+    if (!(this.__evaluate(candidates, 0, 1, candidateValues))) {
+      return false;
+    }
+
+    if ((Double.compare(best, candidateValues[0]) <= 0)
+        && (Double.compare(candidateValues[0], secondBest) < 0)) {
+      // accept the reflected point
+      this.__replaceWorst(0);
+      return true;
+    }
+
+    xT = candidates[1];
+    if (Double.compare(candidateValues[0], best) < 0) {
+      // compute the expansion point
+      for (j = n; (--j) >= 0;) {
+        xT[j] = centroid[j] + (_NelderMead.KHI * (xR[j] - centroid[j]));
+      }
+      if (!(this.__evaluate(candidates, 1, 2, candidateValues))) {
+        return false;
+      }
+      this.__replaceWorst(
+          (Double.compare(candidateValues[1], candidateValues[0]) < 0) ? 1
+              : 0);
+      return true;
+    }
+
+    if (Double.compare(candidateValues[0], worst) < 0) {
+      // perform an outside contraction
+      for (j = n; (--j) >= 0;) {
+        xT[j] = centroid[j] + (_NelderMead.GAMMA * (xR[j] - centroid[j]));
+      }
+      if (!(this.__evaluate(candidates, 1, 2, candidateValues))) {
+        return false;
+      }
+      if (Double.compare(candidateValues[1], candidateValues[0]) <= 0) {
+        this.__replaceWorst(1);
+        return true;
+      }
+    } else {
+      // perform an inside contraction
+      for (j = n; (--j) >= 0;) {
+        xT[j] = centroid[j]
+            - (_NelderMead.GAMMA * (centroid[j] - xWorst[j]));
+      }
+      if (!(this.__evaluate(candidates, 1, 2, candidateValues))) {
+        return false;
+      }
+      if (Double.compare(candidateValues[1], worst) < 0) {
+        this.__replaceWorst(1);
+        return true;
+      }
+    }
+
+    // perform a shrink
+    xSmallest = vertices[0];
+    for (i = 1; i <= n; i++) {
+      x = vertices[i];
+      for (j = n; (--j) >= 0;) {
+        x[j] = xSmallest[j] + (_NelderMead.SIGMA * (x[j] - xSmallest[j]));
+      }
+    }
+    if (!(this.__evaluate(vertices, 1, (n + 1), values))) {
+      return false;
+    }
+    this.__sort();
+    this.__computeSum();
+    return true;
+  }
+
+  /**
+   * Run the optimization. All points are evaluated via the owning
+   * evaluation context, which keeps track of the best solution. The
+   * initial simplex is built from the starting point like a
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex}
+   * whose steps are the coordinates of the starting point. The
+   * optimization stops when
+   * {@link OptimizationBasedFittingJob#_optimizerConverged(double, double)}
+   * holds for the values of all vertices before and after an iteration,
+   * when {@code maxIterations} iterations have been performed, or when
+   * the next evaluation would exceed {@code maxEvaluations}.
+   *
+   * @param start
+   *          the starting point
+   * @param maxEvaluations
+   *          the maximum number of evaluations
+   * @param maxIterations
+   *          the maximum number of iterations
+   */
+  final void _optimize(final double[] start, final int maxEvaluations,
+      final int maxIterations) {
+    final OptimizationBasedFittingJob<?>.EvaluationContext owner;
+    final double[][] vertices;
+    final double[] values, previous, steps;
+    final int n;
+    double[] vertex;
+    double value;
+    boolean converged;
+    int iteration, i, j;
+
+    owner = this.m_owner;
+    n = this.m_parameterCount;
+    vertices = this.m_vertices;
+    values = this.m_values;
+    previous = this.m_previous;
+    steps = this.m_steps;
+    this.m_remainingEvaluations = maxEvaluations;
+
+    // the steps: the coordinates of the starting point, but not zero
+    for (j = n; (--j) >= 0;) {
+      value = start[j];
+      if (Math.abs(value) < Double.MIN_NORMAL) {
+        value = ((value < 0d) ? (-Double.MIN_NORMAL) : Double.MIN_NORMAL);
+      }
+      steps[j] = value;
+    }
+
+    // build the initial simplex
+    System.arraycopy(start, 0, vertices[0], 0, n);
+    for (i = 1; i <= n; i++) {
+      vertex = vertices[i];
+      for (j = n; (--j) >= 0;) {
+        vertex[j] = start[j] + ((j < i) ? steps[j] : 0d);
+      }
+    }
+    if (!(this.__evaluate(vertices, 0, (n + 1), values))) {
+      return;
+    }
+    this.__sort();
+    this.__computeSum();
+
+    for (iteration = 0;;) {
+      if (iteration > 0) {
+        converged = true;
+        for (i = n; i >= 0; i--) {
+          if (!(owner._optimizerConverged(previous[i], values[i]))) {
+            converged = false;
+            break;
+          }
+        }
+        if (converged) {
+          return;
+        }
+      }
+
+      System.arraycopy(values, 0, previous, 0, (n + 1));
+      if (!(this.__iterate((iteration > 0) && ((iteration % n) == 0)))) {
+        return;
+      }
+      if ((++iteration) > maxIterations) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFitter;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * This curve fitter runs CMA-ES several times with the BIPOP restart
+ * strategy, i.e., alternates between runs with increasing population
+ * sizes and short local runs with small populations, and refines the
+ * results with least-squares solvers. It needs more evaluations than the
+ * {@linkplain org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter
+ * single CMA-ES run}, but is less likely to get stuck in local optima of
+ * multimodal models.
+ */
+public final class BIPOPCMAESLSFitter extends OptimizationBasedFitter {
+
+  /** the method name */
+  static final String METHOD = "BIPOP-CMA-ES + Least-Squares Fitter"; //$NON-NLS-1$
+
+  /** create */
+  BIPOPCMAESLSFitter() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final FittingJob create(final FittingJobBuilder builder) {
+    return new _BIPOPCMAESLSFittingJob(builder);
+  }
+
+  /**
+   * Get the globally shared instance of the BIPOP-CMA-ES/LS-based curve
+   * fitter
+   *
+   * @return the instance of the BIPOP-CMA-ES/LS-based curve fitter
+   */
+  public static final BIPOPCMAESLSFitter getInstance() {
+    return __BIPOPCMAESLSCurveFitterHolder.INSTANCE;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    ETextCase next;
+
+    textOut.append("BIPOP-"); //$NON-NLS-1$
+    next = OptimizationBasedFitter.printCMAES(textCase, textOut, true);
+    textOut.append('-');
+    next = OptimizationBasedFitter.printLevenbergMarcquardt(next, textOut,
+        false);
+    textOut.append(' ');
+    return next.appendWord("hybrid", textOut); //$NON-NLS-1$
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return BIPOPCMAESLSFitter.METHOD;
+  }
+
+  /** the instance holder */
+  private static final class __BIPOPCMAESLSCurveFitterHolder {
+    /** the shared instance */
+    static final BIPOPCMAESLSFitter INSTANCE = new BIPOPCMAESLSFitter();
+  }
+}
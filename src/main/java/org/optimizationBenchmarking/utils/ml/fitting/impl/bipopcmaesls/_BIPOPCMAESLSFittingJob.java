@@ -0,0 +1,229 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.optimizationBenchmarking.utils.math.statistics.aggregate.StandardDeviationAggregate;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+/**
+ * <p>
+ * A function fitting job which runs CMA-ES several times with the BIPOP
+ * restart strategy and refines the result of each run with the
+ * Levenberg-Marquardt algorithm. Like the job of the
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter}
+ * , it first estimates the standard deviations of the parameters from a
+ * few refined samples.
+ * </p>
+ * <p>
+ * The first run uses the default population size and starts at the best
+ * solution found so far. Then, the job alternates between two regimes
+ * and always picks the one which has consumed fewer evaluations so far:
+ * In the large regime, the population size is doubled for each restart
+ * (IPOP) and the run starts from a new guess, which helps on multimodal
+ * models. In the small regime, a run uses a random population size
+ * between the default one and half of the latest large one, starts at
+ * the best solution found so far, and uses a smaller step size, which
+ * refines the best solution locally.
+ * </p>
+ * <p>
+ * The samples of each generation are evaluated with
+ * {@link #evaluateSolutions(FittingCandidateSolution[], int, int)}, i.e.,
+ * in parallel if the job has been created in parallel mode.
+ * </p>
+ */
+final class _BIPOPCMAESLSFittingJob
+    extends OptimizationBasedFittingJob<FittingCandidateSolution> {
+
+  /** the maximum number of doublings of the population size */
+  private static final int MAX_DOUBLINGS = 9;
+
+  /**
+   * create the fitting job
+   *
+   * @param builder
+   *          the builder
+   */
+  _BIPOPCMAESLSFittingJob(final FittingJobBuilder builder) {
+    super(builder);
+  }
+
+  /**
+   * Estimate the standard deviations of the parameters from a few
+   * samples refined with the Levenberg-Marquardt algorithm, in the same
+   * way as the CMA-ES/LS hybrid does.
+   *
+   * @param guesser
+   *          the parameter guesser
+   * @param current
+   *          a temporary solution
+   * @param random
+   *          the random number generator
+   * @param stddevs
+   *          the destination array for the standard deviations
+   * @return the number of guesses used
+   */
+  private final int __estimateStandardDeviations(
+      final IParameterGuesser guesser,
+      final FittingCandidateSolution current, final Random random,
+      final double[] stddevs) {
+    final int numParams, maxLSIterations;
+    final double[] currentArray, guesses;
+    StandardDeviationAggregate[] stddev;
+    int index, samples, subsamples, guess, created;
+    double quality;
+
+    numParams = stddevs.length;
+    currentArray = current.solution;
+    subsamples = (10 * numParams);
+    guesses = new double[subsamples * numParams];
+    stddev = new StandardDeviationAggregate[numParams];
+    for (index = numParams; (--index) >= 0;) {
+      stddev[index] = new StandardDeviationAggregate();
+    }
+
+    maxLSIterations = this.getLeastSquaresMaxIterations();
+    this.setLeastSquaresMaxIterations(((numParams * numParams) * 8) / 5);
+
+    guess = 0;
+    for (samples = this.getRestartBudget(((numParams * 7) / 4) + 1); //
+    (--samples) >= 0;) {
+
+      current.quality = Double.POSITIVE_INFINITY;
+      created = this.createGuesses(guesser, guess, guesses, subsamples,
+          random);
+      guess += subsamples;
+      for (index = created; (--index) >= 0;) {
+        System.arraycopy(guesses, (index * numParams), stddevs, 0,
+            numParams);
+        quality = this.evaluate(stddevs);
+        if ((quality > 0d) && (quality < current.quality)) {
+          current.assign(stddevs, quality);
+        }
+      }
+
+      this.refineWithLevenbergMarquardt(current);
+      for (index = numParams; (--index) >= 0;) {
+        stddev[index].append(currentArray[index]);
+      }
+    }
+    this.setLeastSquaresMaxIterations(maxLSIterations);
+
+    for (index = numParams; (--index) >= 0;) {
+      stddevs[index] = stddev[index].doubleValue();
+    }
+    stddev = null;
+
+    if (this.hasStartingPoints()) {
+      // the few samples around the starting points may have converged
+      // to the same point, but CMA-ES still needs some spread
+      this.getCopyOfBest(current);
+      for (index = numParams; (--index) >= 0;) {
+        stddevs[index] = Math.max(stddevs[index],
+            Math.max(1e-8d, (1e-3d * Math.abs(currentArray[index]))));
+      }
+    }
+    return guess;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void doFit() {
+    final int numParams, defaultLambda, maxGenerations;
+    final FittingCandidateSolution current;
+    final double[] stddevs;
+    final _CMAES cmaes;
+    final Random random;
+    IParameterGuesser guesser;
+    FittingCandidateSolution[] population;
+    long largeEvaluations, smallEvaluations;
+    int guess, runs, doublings, lambda, largeLambda, index;
+    double sigma, uniform;
+    boolean large;
+
+    numParams = this.m_function.getParameterCount();
+    current = new FittingCandidateSolution(numParams);
+    stddevs = new double[numParams];
+    random = ThreadLocalRandom.current();
+
+    guesser = this.m_function.createParameterGuesser(this.m_data);
+    guess = this.__estimateStandardDeviations(guesser, current, random,
+        stddevs);
+
+    cmaes = new _CMAES(numParams);
+    defaultLambda = 4 + ((int) (3d * Math.log(numParams)));
+    maxGenerations = this.getNumericalOptimizerMaxIterations();
+    population = null;
+    largeLambda = defaultLambda;
+    largeEvaluations = smallEvaluations = 0L;
+    doublings = 0;
+
+    for (runs = this.getRestartBudget(numParams + 3); (--runs) >= 0;) {
+      if (population == null) {
+        // the first run: default population size at the best solution
+        large = true;
+        lambda = defaultLambda;
+        sigma = 1d;
+        this.getCopyOfBest(current);
+      } else {
+        large = (largeEvaluations <= smallEvaluations);
+        if (large) {
+          if (doublings < _BIPOPCMAESLSFittingJob.MAX_DOUBLINGS) {
+            ++doublings;
+          }
+          largeLambda = lambda = (defaultLambda << doublings);
+          sigma = 1d;
+          this.createGuess(guesser, (guess++), current.solution, random);
+        } else {
+          uniform = random.nextDouble();
+          lambda = Math.max(defaultLambda,
+              ((int) (defaultLambda * Math.pow(
+                  ((0.5d * largeLambda) / defaultLambda),
+                  (uniform * uniform)))));
+          sigma = Math.pow(10d, (-2d * random.nextDouble()));
+          this.getCopyOfBest(current);
+        }
+      }
+
+      if ((population == null) || (population.length < lambda)) {
+        population = new FittingCandidateSolution[lambda];
+        for (index = lambda; (--index) >= 0;) {
+          population[index] = new FittingCandidateSolution(numParams);
+        }
+      }
+
+      cmaes._start(current.solution, stddevs, sigma, lambda,
+          Math.max(1, Math.min(maxGenerations, (100 + ((50
+              * (numParams + 3) * (numParams + 3))
+              / ((int) (Math.ceil(Math.sqrt(lambda)))))))));
+      do {
+        cmaes._sample(population, random);
+        this.evaluateSolutions(population, 0, lambda);
+      } while (cmaes._update(population));
+
+      if (large) {
+        largeEvaluations += (((long) lambda) * cmaes._getGeneration());
+      } else {
+        smallEvaluations += (((long) lambda) * cmaes._getGeneration());
+      }
+
+      if (cmaes.m_bestQuality < Double.POSITIVE_INFINITY) {
+        current.assign(cmaes.m_best, cmaes.m_bestQuality);
+        this.refineWithLevenbergMarquardt(current);
+      }
+    }
+
+    population = null;
+    this.getCopyOfBest(current);
+    this.refineWithLevenbergMarquardtAndNelderMead(current);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return BIPOPCMAESLSFitter.METHOD;
+  }
+}
@@ -0,0 +1,563 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls;
+
+import java.util.Random;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+
+/**
+ * <p>
+ * The core of a CMA-ES run in ask-and-tell style: {@link #_sample} fills
+ * a population with new points, the caller evaluates them in any way it
+ * likes, e.g., in parallel, and {@link #_update} adapts the search
+ * distribution to the evaluated population. The algorithm follows the
+ * standard CMA-ES with rank-one and rank-mu update and cumulative
+ * step-size adaptation, as in Hansen's {@code purecmaes}.
+ * </p>
+ * <p>
+ * The object can be used for many runs with different population sizes,
+ * so that the restart strategies of
+ * {@link _BIPOPCMAESLSFittingJob} do not allocate new memory for each
+ * run: all vectors and matrices whose size depends only on the number of
+ * parameters are allocated once, those depending on the population size
+ * only grow. The eigendecomposition of the covariance matrix is the
+ * expensive part of each generation. It is therefore only updated every
+ * {@code O(n)} generations and computed with Jacobi rotations on a
+ * pre-allocated work matrix.
+ * </p>
+ * <p>
+ * Each run works in coordinates scaled by the standard deviations given
+ * to {@link #_start}, so that parameters of very different magnitudes do
+ * not lead to an ill-conditioned covariance matrix from the start.
+ * </p>
+ */
+final class _CMAES {
+
+  /** the relative tolerance for the objective value */
+  private static final double TOL_FUN = 1e-12d;
+  /** the relative tolerance for the parameters */
+  private static final double TOL_X = 1e-12d;
+  /** the maximum condition of the covariance matrix */
+  private static final double MAX_CONDITION = 1e14d;
+  /** the maximum number of sweeps of the Jacobi method */
+  private static final int MAX_SWEEPS = 64;
+
+  /** the number of parameters */
+  private final int m_n;
+  /** the mean of the search distribution */
+  private final double[] m_mean;
+  /** the previous mean of the search distribution */
+  private final double[] m_oldMean;
+  /** the scale of each coordinate */
+  private final double[] m_scale;
+  /** the evolution path of the covariance matrix */
+  private final double[] m_pc;
+  /** the evolution path of the step size */
+  private final double[] m_ps;
+  /** the covariance matrix */
+  private final double[][] m_c;
+  /** the eigenvectors of the covariance matrix, as columns */
+  private final double[][] m_b;
+  /** the square roots of the eigenvalues of the covariance matrix */
+  private final double[] m_d;
+  /** the work matrix for the eigendecomposition */
+  private final double[][] m_work;
+  /** a temporary vector */
+  private final double[] m_temp;
+  /** another temporary vector */
+  private final double[] m_temp2;
+  /** the best point found in the current run */
+  final double[] m_best;
+  /** the quality of the best point found in the current run */
+  double m_bestQuality;
+
+  /** the steps of the population in scaled coordinates */
+  private double[][] m_y;
+  /** the recombination weights */
+  private double[] m_weights;
+  /** the indexes of the population members, sorted by quality */
+  private int[] m_order;
+  /** the best qualities of the most recent generations */
+  private double[] m_history;
+
+  /** the population size */
+  private int m_lambda;
+  /** the number of selected parents */
+  private int m_mu;
+  /** the variance-effective selection mass */
+  private double m_mueff;
+  /** the learning rate of the covariance path */
+  private double m_cc;
+  /** the learning rate of the step size path */
+  private double m_cs;
+  /** the learning rate of the rank-one update */
+  private double m_c1;
+  /** the learning rate of the rank-mu update */
+  private double m_cmu;
+  /** the damping of the step size adaptation */
+  private double m_damps;
+  /** the expected length of a normally distributed vector */
+  private final double m_chiN;
+  /** the step size */
+  private double m_sigma;
+
+  /** the current generation */
+  private int m_generation;
+  /** the generation of the last eigendecomposition */
+  private int m_eigenGeneration;
+  /** the number of generations between eigendecompositions */
+  private int m_eigenInterval;
+  /** the maximum number of generations */
+  private int m_maxGenerations;
+
+  /**
+   * create the CMA-ES core
+   *
+   * @param n
+   *          the number of parameters
+   */
+  _CMAES(final int n) {
+    super();
+    this.m_n = n;
+    this.m_mean = new double[n];
+    this.m_oldMean = new double[n];
+    this.m_scale = new double[n];
+    this.m_pc = new double[n];
+    this.m_ps = new double[n];
+    this.m_c = new double[n][n];
+    this.m_b = new double[n][n];
+    this.m_d = new double[n];
+    this.m_work = new double[n][n];
+    this.m_temp = new double[n];
+    this.m_temp2 = new double[n];
+    this.m_best = new double[n];
+    this.m_chiN = Math.sqrt(n)
+        * ((1d - (1d / (4d * n))) + (1d / (21d * n * n)));
+  }
+
+  /**
+   * Get the quality of a population member for ranking: invalid qualities
+   * are treated as infinitely bad
+   *
+   * @param quality
+   *          the quality
+   * @return the rank quality
+   */
+  private static final double __rankQuality(final double quality) {
+    return ((quality >= 0d) ? quality : Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Start a new run
+   *
+   * @param mean
+   *          the initial mean
+   * @param scale
+   *          the initial standard deviation of each parameter
+   * @param sigma
+   *          the initial step size, relative to the standard deviations
+   * @param lambda
+   *          the population size
+   * @param maxGenerations
+   *          the maximum number of generations of the run
+   */
+  final void _start(final double[] mean, final double[] scale,
+      final double sigma, final int lambda, final int maxGenerations) {
+    final int n, mu, historyLength;
+    final double[] weights;
+    double sum, sumOfSquares, weight;
+    int i, j;
+
+    n = this.m_n;
+    if (lambda < 2) {
+      throw new IllegalArgumentException(//
+          "Population size must be at least 2, but is " //$NON-NLS-1$
+              + lambda);
+    }
+
+    // allocate or reuse the population-dependent arrays
+    if ((this.m_y == null) || (this.m_y.length < lambda)) {
+      this.m_y = new double[lambda][n];
+      this.m_order = new int[lambda];
+    }
+    historyLength = (10 + ((30 * n) + lambda - 1) / lambda);
+    if ((this.m_history == null)
+        || (this.m_history.length != historyLength)) {
+      this.m_history = new double[historyLength];
+    }
+
+    // the recombination weights
+    this.m_lambda = lambda;
+    this.m_mu = mu = (lambda >>> 1);
+    if ((this.m_weights == null) || (this.m_weights.length < mu)) {
+      this.m_weights = new double[mu];
+    }
+    weights = this.m_weights;
+    sum = 0d;
+    for (i = mu; (--i) >= 0;) {
+      weights[i] = weight = (Math.log(mu + 0.5d) - Math.log(i + 1));
+      sum += weight;
+    }
+    sumOfSquares = 0d;
+    for (i = mu; (--i) >= 0;) {
+      weights[i] = weight = (weights[i] / sum);
+      sumOfSquares += (weight * weight);
+    }
+    this.m_mueff = (1d / sumOfSquares);
+
+    // the strategy parameters
+    this.m_cc = ((4d + (this.m_mueff / n))
+        / ((n + 4d) + ((2d * this.m_mueff) / n)));
+    this.m_cs = ((this.m_mueff + 2d) / (n + this.m_mueff + 5d));
+    this.m_c1 = (2d / (((n + 1.3d) * (n + 1.3d)) + this.m_mueff));
+    this.m_cmu = Math.min((1d - this.m_c1),
+        ((2d * ((this.m_mueff - 2d) + (1d / this.m_mueff)))
+            / (((n + 2d) * (n + 2d)) + this.m_mueff)));
+    this.m_damps = (1d + (2d * Math.max(0d,
+        (Math.sqrt((this.m_mueff - 1d) / (n + 1d)) - 1d))) + this.m_cs);
+    this.m_eigenInterval = Math.max(1, ((int) (lambda
+        / ((this.m_c1 + this.m_cmu) * n * 10d))));
+
+    // the initial state
+    System.arraycopy(mean, 0, this.m_mean, 0, n);
+    for (i = n; (--i) >= 0;) {
+      this.m_scale[i] = Math.max(1e-10d, Math.abs(scale[i]));
+      this.m_pc[i] = 0d;
+      this.m_ps[i] = 0d;
+      this.m_d[i] = 1d;
+      for (j = n; (--j) >= 0;) {
+        this.m_c[i][j] = this.m_b[i][j] = ((i == j) ? 1d : 0d);
+      }
+    }
+    this.m_sigma = sigma;
+    this.m_generation = 0;
+    this.m_eigenGeneration = 0;
+    this.m_maxGenerations = maxGenerations;
+    this.m_bestQuality = Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Get the population size of the current run
+   *
+   * @return the population size of the current run
+   */
+  final int _getLambda() {
+    return this.m_lambda;
+  }
+
+  /**
+   * Get the number of generations of the current run so far
+   *
+   * @return the number of generations of the current run so far
+   */
+  final int _getGeneration() {
+    return this.m_generation;
+  }
+
+  /**
+   * Sample a new population from the search distribution
+   *
+   * @param population
+   *          the population, with at least {@link #_getLambda()}
+   *          elements
+   * @param random
+   *          the random number generator
+   */
+  final void _sample(final FittingCandidateSolution[] population,
+      final Random random) {
+    final int n;
+    final double[][] b;
+    final double[] d, z, mean, scale;
+    double[] y, x;
+    double sum;
+    int k, i, j;
+
+    n = this.m_n;
+    b = this.m_b;
+    d = this.m_d;
+    z = this.m_temp;
+    mean = this.m_mean;
+    scale = this.m_scale;
+
+    for (k = this.m_lambda; (--k) >= 0;) {
+      for (j = n; (--j) >= 0;) {
+        z[j] = (d[j] * random.nextGaussian());
+      }
+      y = this.m_y[k];
+      x = population[k].solution;
+      for (i = n; (--i) >= 0;) {
+        sum = 0d;
+        for (j = n; (--j) >= 0;) {
+          sum += (b[i][j] * z[j]);
+        }
+        y[i] = sum;
+        x[i] = mean[i] + (this.m_sigma * scale[i] * sum);
+      }
+      population[k].quality = Double.POSITIVE_INFINITY;
+    }
+  }
+
+  /**
+   * Sort the population members by quality
+   *
+   * @param population
+   *          the population
+   */
+  private final void __sort(final FittingCandidateSolution[] population) {
+    final int[] order;
+    int i, j, index;
+    double quality;
+
+    order = this.m_order;
+    for (i = 0; i < this.m_lambda; i++) {
+      quality = _CMAES.__rankQuality(population[i].quality);
+      for (j = i; (j > 0) && (_CMAES.__rankQuality(
+          population[order[j - 1]].quality) > quality); j--) {
+        order[j] = order[j - 1];
+      }
+      order[j] = i;
+    }
+
+    index = order[0];
+    quality = _CMAES.__rankQuality(population[index].quality);
+    if (quality < this.m_bestQuality) {
+      this.m_bestQuality = quality;
+      System.arraycopy(population[index].solution, 0, this.m_best, 0,
+          this.m_n);
+    }
+  }
+
+  /**
+   * Update the eigendecomposition of the covariance matrix with the
+   * cyclic Jacobi method
+   *
+   * @return {@code true} if the covariance matrix is still usable,
+   *         {@code false} otherwise
+   */
+  private final boolean __decompose() {
+    final int n;
+    final double[][] a, v;
+    final double[] d;
+    double offDiagonal, app, aqq, apq, theta, t, c, s, tau, g, h, max,
+        min;
+    int sweep, p, q, r;
+
+    n = this.m_n;
+    a = this.m_work;
+    v = this.m_b;
+    d = this.m_d;
+
+    for (p = n; (--p) >= 0;) {
+      for (q = n; (--q) >= p;) {
+        a[p][q] = a[q][p] = this.m_c[p][q];
+        v[p][q] = v[q][p] = ((p == q) ? 1d : 0d);
+      }
+    }
+
+    for (sweep = _CMAES.MAX_SWEEPS; (--sweep) >= 0;) {
+      offDiagonal = 0d;
+      for (p = n; (--p) > 0;) {
+        for (q = p; (--q) >= 0;) {
+          offDiagonal += Math.abs(a[p][q]);
+        }
+      }
+      if (offDiagonal <= 0d) {
+        break;
+      }
+
+      for (p = 0; p < n; p++) {
+        for (q = p + 1; q < n; q++) {
+          apq = a[p][q];
+          app = a[p][p];
+          aqq = a[q][q];
+          if (Math.abs(apq) <= (1e-300d
+              + (1e-17d * (Math.abs(app) + Math.abs(aqq))))) {
+            a[p][q] = a[q][p] = 0d;
+            continue;
+          }
+          theta = ((aqq - app) / (2d * apq));
+          t = (1d / (Math.abs(theta) + Math.sqrt((theta * theta) + 1d)));
+          if (theta < 0d) {
+            t = (-t);
+          }
+          c = (1d / Math.sqrt((t * t) + 1d));
+          s = (t * c);
+          tau = (s / (1d + c));
+
+          a[p][p] = app - (t * apq);
+          a[q][q] = aqq + (t * apq);
+          a[p][q] = a[q][p] = 0d;
+          for (r = n; (--r) >= 0;) {
+            if ((r != p) && (r != q)) {
+              g = a[r][p];
+              h = a[r][q];
+              a[r][p] = a[p][r] = g - (s * (h + (g * tau)));
+              a[r][q] = a[q][r] = h + (s * (g - (h * tau)));
+            }
+            g = v[r][p];
+            h = v[r][q];
+            v[r][p] = g - (s * (h + (g * tau)));
+            v[r][q] = h + (s * (g - (h * tau)));
+          }
+        }
+      }
+    }
+
+    max = 0d;
+    min = Double.POSITIVE_INFINITY;
+    for (p = n; (--p) >= 0;) {
+      app = a[p][p];
+      if ((app <= 0d) || (app != app) || (app >= Double.POSITIVE_INFINITY)) {
+        return false;
+      }
+      d[p] = Math.sqrt(app);
+      max = Math.max(max, app);
+      min = Math.min(min, app);
+    }
+    return (max <= (min * _CMAES.MAX_CONDITION));
+  }
+
+  /**
+   * Update the search distribution with an evaluated population
+   *
+   * @param population
+   *          the population evaluated after the last call to
+   *          {@link #_sample(FittingCandidateSolution[], Random)}
+   * @return {@code true} if the run should continue, {@code false} if it
+   *         has converged or failed
+   */
+  final boolean _update(final FittingCandidateSolution[] population) {
+    final int n, mu, generation;
+    final double[] mean, oldMean, scale, pc, ps, weights, ymean, temp, d,
+        history;
+    final double[][] c, b, y;
+    final double cs, cc, c1, cmu, hsigFactor, psFactor, pcFactor, best;
+    final boolean hsig;
+    double sum, norm, worst, value, previous;
+    double[] step;
+    int i, j, k;
+
+    n = this.m_n;
+    mu = this.m_mu;
+    mean = this.m_mean;
+    oldMean = this.m_oldMean;
+    scale = this.m_scale;
+    pc = this.m_pc;
+    ps = this.m_ps;
+    weights = this.m_weights;
+    ymean = this.m_temp;
+    temp = this.m_temp2;
+    d = this.m_d;
+    c = this.m_c;
+    b = this.m_b;
+    y = this.m_y;
+    cs = this.m_cs;
+    cc = this.m_cc;
+    c1 = this.m_c1;
+    cmu = this.m_cmu;
+
+    this.__sort(population);
+    generation = (++this.m_generation);
+
+    // recombination of the mean in scaled coordinates
+    System.arraycopy(mean, 0, oldMean, 0, n);
+    for (j = n; (--j) >= 0;) {
+      sum = 0d;
+      for (i = mu; (--i) >= 0;) {
+        sum += (weights[i] * y[this.m_order[i]][j]);
+      }
+      ymean[j] = sum;
+      mean[j] = oldMean[j] + (this.m_sigma * scale[j] * sum);
+    }
+
+    // cumulation for the step size: ps = (1-cs)*ps +
+    // sqrt(cs*(2-cs)*mueff) * B * D^-1 * B^T * ymean
+    for (j = n; (--j) >= 0;) {
+      sum = 0d;
+      for (i = n; (--i) >= 0;) {
+        sum += (b[i][j] * ymean[i]);
+      }
+      temp[j] = (sum / d[j]);
+    }
+    psFactor = Math.sqrt(cs * (2d - cs) * this.m_mueff);
+    norm = 0d;
+    for (i = n; (--i) >= 0;) {
+      sum = 0d;
+      for (j = n; (--j) >= 0;) {
+        sum += (b[i][j] * temp[j]);
+      }
+      ps[i] = value = (((1d - cs) * ps[i]) + (psFactor * sum));
+      norm += (value * value);
+    }
+    norm = Math.sqrt(norm);
+
+    // cumulation for the covariance matrix
+    hsig = ((norm / Math.sqrt(1d - Math.pow((1d - cs), (2d * generation)))
+        / this.m_chiN) < (1.4d + (2d / (n + 1d))));
+    pcFactor = (hsig ? Math.sqrt(cc * (2d - cc) * this.m_mueff) : 0d);
+    for (i = n; (--i) >= 0;) {
+      pc[i] = (((1d - cc) * pc[i]) + (pcFactor * ymean[i]));
+    }
+
+    // rank-one and rank-mu update of the covariance matrix
+    hsigFactor = (hsig ? 0d : (c1 * cc * (2d - cc)));
+    for (i = n; (--i) >= 0;) {
+      for (j = i + 1; (--j) >= 0;) {
+        sum = 0d;
+        for (k = mu; (--k) >= 0;) {
+          step = y[this.m_order[k]];
+          sum += (weights[k] * step[i] * step[j]);
+        }
+        c[i][j] = c[j][i] = (((1d - c1 - cmu) + hsigFactor) * c[i][j])//
+            + (c1 * pc[i] * pc[j]) + (cmu * sum);
+      }
+    }
+
+    // step size adaptation
+    this.m_sigma *= Math
+        .exp(Math.min(1d, ((cs / this.m_damps) * ((norm / this.m_chiN) - 1d))));
+    if ((this.m_sigma <= 0d) || (this.m_sigma != this.m_sigma)
+        || (this.m_sigma >= Double.POSITIVE_INFINITY)) {
+      return false;
+    }
+
+    // lazy update of the eigendecomposition
+    if ((generation - this.m_eigenGeneration) >= this.m_eigenInterval) {
+      this.m_eigenGeneration = generation;
+      if (!(this.__decompose())) {
+        return false;
+      }
+    }
+
+    if (generation >= this.m_maxGenerations) {
+      return false;
+    }
+
+    // stop if the best qualities did not change over the recent
+    // generations and the qualities in the population are equal
+    history = this.m_history;
+    best = _CMAES.__rankQuality(population[this.m_order[0]].quality);
+    worst = _CMAES.__rankQuality(
+        population[this.m_order[this.m_lambda - 1]].quality);
+    history[generation % history.length] = best;
+    if (generation >= history.length) {
+      previous = best;
+      for (i = history.length; (--i) >= 0;) {
+        previous = Math.max(previous, history[i]);
+      }
+      value = (_CMAES.TOL_FUN * Math.max(best, Double.MIN_NORMAL));
+      if (((previous - best) <= value) && ((worst - best) <= value)) {
+        return false;
+      }
+    }
+
+    // stop if the distribution has become too narrow
+    for (i = n; (--i) >= 0;) {
+      if ((this.m_sigma * scale[i] * Math.max(Math.abs(pc[i]),
+          Math.sqrt(c[i][i]))) > (_CMAES.TOL_X
+              * Math.max(Math.abs(mean[i]), 1e-8d))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * A function fitter which runs CMA-ES with the BIPOP restart strategy and
+ * refines its results with least-squares solvers.
+ */
+package org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls;
\ No newline at end of file
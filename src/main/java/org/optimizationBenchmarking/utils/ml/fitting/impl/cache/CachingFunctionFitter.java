@@ -0,0 +1,132 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.cache;
+
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * <p>
+ * A function fitter which looks up the results of another fitter in a
+ * {@link FittingResultStore} before fitting. If a result for the same
+ * data, model, fitter, and quality measure is stored, its quality is
+ * checked with a single evaluation and it is returned right away.
+ * Otherwise, the job of the wrapped fitter is executed and its result is
+ * added to the store.
+ * </p>
+ * <p>
+ * Only the results of jobs which use the full
+ * {@linkplain FittingJobBuilder#setEffort(double) effort}, no budget, no
+ * target quality, and no
+ * {@linkplain FittingJobBuilder#setCoresetSize(int) coreset} are stored,
+ * since the results of other jobs may be worse than the wrapped fitter
+ * could achieve. Jobs whose quality measure works on a subset of the
+ * points are never looked up. The metrics of a job whose result was
+ * found in the store describe the look-up, not the original fitting
+ * procedure.
+ * </p>
+ */
+public final class CachingFunctionFitter extends FunctionFitter {
+
+  /** the wrapped fitter */
+  final IFunctionFitter m_fitter;
+  /** the store */
+  final FittingResultStore m_store;
+
+  /**
+   * create the caching fitter
+   *
+   * @param fitter
+   *          the fitter to wrap
+   * @param store
+   *          the store
+   */
+  public CachingFunctionFitter(final IFunctionFitter fitter,
+      final FittingResultStore store) {
+    super();
+    if (fitter == null) {
+      throw new IllegalArgumentException(
+          "Fitter to wrap cannot be null."); //$NON-NLS-1$
+    }
+    if (store == null) {
+      throw new IllegalArgumentException(
+          "Fitting result store cannot be null."); //$NON-NLS-1$
+    }
+    this.m_fitter = ((fitter instanceof CachingFunctionFitter)
+        ? ((CachingFunctionFitter) fitter).m_fitter : fitter);
+    this.m_store = store;
+  }
+
+  /**
+   * Get the wrapped fitter
+   *
+   * @return the wrapped fitter
+   */
+  public final IFunctionFitter getFitter() {
+    return this.m_fitter;
+  }
+
+  /**
+   * Get the store
+   *
+   * @return the store
+   */
+  public final FittingResultStore getStore() {
+    return this.m_store;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final boolean canUse() {
+    return this.m_fitter.canUse();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final FittingJob create(final FittingJobBuilder builder) {
+    return new _CachingFittingJob(this, builder);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    final ETextCase next;
+
+    next = textCase.appendWord("cached", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    return this.m_fitter.printLongName(textOut, next);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return this.m_fitter.toString();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int hashCode() {
+    return HashUtils.combineHashes(HashUtils.hashCode(this.m_fitter),
+        HashUtils.hashCode(this.m_store));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final boolean equals(final Object o) {
+    final CachingFunctionFitter other;
+
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof CachingFunctionFitter) {
+      other = ((CachingFunctionFitter) o);
+      return ((this.m_store == other.m_store) && //
+          this.m_fitter.equals(other.m_fitter));
+    }
+    return false;
+  }
+}
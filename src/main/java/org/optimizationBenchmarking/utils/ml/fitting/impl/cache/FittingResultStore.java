@@ -0,0 +1,596 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRobustError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+/**
+ * <p>
+ * A persistent store for fitting results. Each result is identified by a
+ * {@linkplain PreparedDataset#contentFingerprint() fingerprint} of the
+ * fitted points, the class of the fitted model, the fitter, the quality
+ * measure, and the version of the library, and the store maps it to the
+ * fitted parameters and their quality. Use a {@link CachingFunctionFitter}
+ * to look up results in the store before fitting and to add new results
+ * to it, so that fitting the same data again, e.g., when generating a
+ * report for the same experiment a second time, takes almost no time.
+ * </p>
+ * <p>
+ * The store is a single, append-only file. Upon opening, the file is
+ * memory-mapped and all of its records are loaded into an in-memory
+ * index. New results are appended to the end of the file, under a file
+ * lock, so that several processes can share the same store. Each record
+ * carries a checksum: A torn record at the end of the file, e.g., after
+ * a crash, is discarded. A corrupted record followed by other records is
+ * skipped, but kept in the file, so that the records after it are never
+ * lost. Results added by other processes after the store was opened
+ * become visible when it is opened the next time. The store is
+ * thread-safe.
+ * </p>
+ */
+public final class FittingResultStore implements Closeable {
+
+  /** the magic number at the beginning of the file */
+  private static final long MAGIC = 0x4f42464954535452L;
+  /** the version of the file format */
+  private static final int FORMAT = 1;
+  /** the size of the file header */
+  private static final int HEADER_SIZE = 12;
+
+  /** a valid record was loaded */
+  private static final int RECORD_VALID = 0;
+  /** a complete record with a wrong checksum was skipped */
+  private static final int RECORD_CORRUPTED = (FittingResultStore.RECORD_VALID
+      + 1);
+  /** the end of the file or an incomplete record was reached */
+  private static final int RECORD_END = (FittingResultStore.RECORD_CORRUPTED
+      + 1);
+  /** a record with an invalid length was reached */
+  private static final int RECORD_INVALID = (FittingResultStore.RECORD_END
+      + 1);
+  /**
+   * the version used if the version of the library cannot be determined
+   */
+  private static final String UNKNOWN_VERSION = "unknown"; //$NON-NLS-1$
+
+  /** the path to the file */
+  private final Path m_path;
+  /** the version of the library */
+  private final String m_version;
+  /** the channel to the file */
+  private final FileChannel m_channel;
+  /** the in-memory index of all results */
+  private final HashMap<_Key, _Entry> m_entries;
+
+  /**
+   * create the store
+   *
+   * @param path
+   *          the path to the file
+   * @param version
+   *          the version of the library
+   * @param channel
+   *          the channel to the file
+   */
+  private FittingResultStore(final Path path, final String version,
+      final FileChannel channel) {
+    super();
+    this.m_path = path;
+    this.m_version = version;
+    this.m_channel = channel;
+    this.m_entries = new HashMap<>();
+  }
+
+  /**
+   * Open a store, creating the file if it does not exist yet. The results
+   * are tagged with the implementation version of this library, so that
+   * results of a different version are not re-used.
+   *
+   * @param path
+   *          the path to the file
+   * @return the store
+   * @throws IOException
+   *           if the file cannot be opened or is not a store
+   */
+  public static final FittingResultStore open(final Path path)
+      throws IOException {
+    String version;
+
+    version = FittingResultStore.class.getPackage()
+        .getImplementationVersion();
+    if (version == null) {
+      version = FittingResultStore.UNKNOWN_VERSION;
+    }
+    return FittingResultStore.open(path, version);
+  }
+
+  /**
+   * Open a store, creating the file if it does not exist yet.
+   *
+   * @param path
+   *          the path to the file
+   * @param version
+   *          the version tag of the results: only results stored with the
+   *          same version tag are re-used
+   * @return the store
+   * @throws IOException
+   *           if the file cannot be opened or is not a store
+   */
+  public static final FittingResultStore open(final Path path,
+      final String version) throws IOException {
+    final FileChannel channel;
+    final FittingResultStore store;
+    boolean ok;
+
+    if (path == null) {
+      throw new IllegalArgumentException(
+          "Path of fitting result store cannot be null."); //$NON-NLS-1$
+    }
+    if ((version == null) || (version.isEmpty())) {
+      throw new IllegalArgumentException(
+          "Version of fitting result store cannot be null or empty."); //$NON-NLS-1$
+    }
+
+    channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    ok = false;
+    try {
+      store = new FittingResultStore(path, version, channel);
+      store.__load();
+      ok = true;
+    } finally {
+      if (!ok) {
+        channel.close();
+      }
+    }
+    return store;
+  }
+
+  /**
+   * Load all records from the file, write the header if the file is new,
+   * and cut off a torn record at its end. Records are only ever appended
+   * as a whole under the file lock, which is held while loading, so only
+   * the last record can be torn: It may be incomplete, have a wrong
+   * checksum, or consist of zeros if the file was extended, but the
+   * record was not written. A complete record with a wrong checksum which
+   * is not the last one is skipped. Anything else is a corruption after
+   * which the records cannot be told apart anymore, so the store is not
+   * opened, instead of cutting off the records which may follow.
+   *
+   * @throws IOException
+   *           if the file cannot be read or is not a store
+   */
+  private final void __load() throws IOException {
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    final ByteBuffer header;
+    final long size;
+    int end;
+    boolean loading;
+
+    channel = this.m_channel;
+    try (final FileLock lock = channel.lock()) {
+      size = channel.size();
+
+      if (size <= 0L) {
+        header = ByteBuffer.allocate(FittingResultStore.HEADER_SIZE);
+        header.putLong(FittingResultStore.MAGIC);
+        header.putInt(FittingResultStore.FORMAT);
+        header.flip();
+        FittingResultStore.__write(channel, header, 0L);
+        return;
+      }
+
+      if ((size < FittingResultStore.HEADER_SIZE)
+          || (size > Integer.MAX_VALUE)) {
+        throw new IOException(//
+            "File '" + this.m_path + //$NON-NLS-1$
+                "' is not a fitting result store or too large."); //$NON-NLS-1$
+      }
+
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+      if ((buffer.getLong() != FittingResultStore.MAGIC)
+          || (buffer.getInt() != FittingResultStore.FORMAT)) {
+        throw new IOException(//
+            "File '" + this.m_path + //$NON-NLS-1$
+                "' is not a fitting result store of a supported format."); //$NON-NLS-1$
+      }
+
+      end = buffer.position();
+      loading = true;
+      while (loading) {
+        switch (this.__loadRecord(buffer)) {
+          case FittingResultStore.RECORD_VALID: {
+            end = buffer.position();
+            break;
+          }
+          case FittingResultStore.RECORD_CORRUPTED: {
+            // only the last record may be torn, others are skipped
+            if (buffer.hasRemaining()) {
+              end = buffer.position();
+            } else {
+              loading = false;
+            }
+            break;
+          }
+          case FittingResultStore.RECORD_INVALID: {
+            if (!(FittingResultStore.__isZero(buffer))) {
+              throw new IOException(//
+                  "File '" + this.m_path + //$NON-NLS-1$
+                      "' contains a corrupted record at position " //$NON-NLS-1$
+                      + end + '.');
+            }
+            loading = false;
+            break;
+          }
+          default: {
+            loading = false;
+          }
+        }
+      }
+
+      if (end < size) {
+        channel.truncate(end);
+      }
+    }
+  }
+
+  /**
+   * Check whether all remaining bytes of a buffer are zero, as is the
+   * case if the file was extended, but the record was not written.
+   *
+   * @param buffer
+   *          the buffer
+   * @return {@code true} if all remaining bytes of the buffer are zero,
+   *         {@code false} otherwise
+   */
+  private static final boolean __isZero(final ByteBuffer buffer) {
+    int index;
+
+    for (index = buffer.limit(); (--index) >= buffer.position();) {
+      if (buffer.get(index) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Load a single record from the file. If the record is complete, the
+   * buffer is positioned after it, otherwise it remains at the start of
+   * the record.
+   *
+   * @param buffer
+   *          the buffer positioned at the start of the record
+   * @return {@link #RECORD_VALID} if a valid record was loaded,
+   *         {@link #RECORD_CORRUPTED} if a complete record with a wrong
+   *         checksum was skipped, {@link #RECORD_END} if the end of
+   *         the file or an incomplete record was reached, or
+   *         {@link #RECORD_INVALID} if the length of the record is
+   *         invalid
+   */
+  private final int __loadRecord(final ByteBuffer buffer) {
+    final CRC32 checksum;
+    final byte[] descriptor;
+    final double[] parameters;
+    final long fingerprint;
+    final int length, start, count;
+    final double quality;
+    int index;
+
+    start = (buffer.position() + 4);
+    if (start > buffer.limit()) {
+      return FittingResultStore.RECORD_END;
+    }
+    length = buffer.getInt(start - 4);
+    if (length <= 0) {
+      return FittingResultStore.RECORD_INVALID;
+    }
+    if ((buffer.limit() - start) < (length + 4)) {
+      return FittingResultStore.RECORD_END;
+    }
+
+    checksum = new CRC32();
+    for (index = 0; index < length; index++) {
+      checksum.update(buffer.get(start + index));
+    }
+    buffer.position(start + length + 4);
+    if (buffer.getInt(start + length) != ((int) (checksum.getValue()))) {
+      return FittingResultStore.RECORD_CORRUPTED;
+    }
+    buffer.position(start);
+
+    fingerprint = buffer.getLong();
+    count = buffer.getInt();
+    descriptor = new byte[buffer.getShort() & 0xffff];
+    buffer.get(descriptor);
+    quality = buffer.getDouble();
+    parameters = new double[buffer.getInt()];
+    for (index = 0; index < parameters.length; index++) {
+      parameters[index] = buffer.getDouble();
+    }
+    buffer.position(start + length + 4);
+
+    this.__index(new _Key(fingerprint, count,
+        new String(descriptor, StandardCharsets.UTF_8)),
+        new _Entry(quality, parameters));
+    return FittingResultStore.RECORD_VALID;
+  }
+
+  /**
+   * Write a buffer to the file.
+   *
+   * @param channel
+   *          the channel
+   * @param buffer
+   *          the buffer
+   * @param position
+   *          the position in the file
+   * @throws IOException
+   *           if writing fails
+   */
+  private static final void __write(final FileChannel channel,
+      final ByteBuffer buffer, final long position) throws IOException {
+    long current;
+
+    current = position;
+    while (buffer.hasRemaining()) {
+      current += channel.write(buffer, current);
+    }
+  }
+
+  /**
+   * Add an entry to the in-memory index, unless a better entry for the
+   * same key exists already.
+   *
+   * @param key
+   *          the key
+   * @param entry
+   *          the entry
+   * @return {@code true} if the entry was added, {@code false} otherwise
+   */
+  private final boolean __index(final _Key key, final _Entry entry) {
+    final _Entry old;
+
+    old = this.m_entries.get(key);
+    if ((old != null) && (old.m_quality <= entry.m_quality)) {
+      return false;
+    }
+    this.m_entries.put(key, entry);
+    return true;
+  }
+
+  /**
+   * Create the key identifying the result of fitting a function to a data
+   * set. The quality measure is identified by its class and, for the
+   * {@linkplain WeightedRobustError robust measures}, by its scale.
+   *
+   * @param points
+   *          the points
+   * @param function
+   *          the function
+   * @param fitter
+   *          the fitter
+   * @param measure
+   *          the quality measure
+   * @return the key
+   */
+  final _Key _key(final PreparedDataset points,
+      final ParametricUnaryFunction function, final IFunctionFitter fitter,
+      final IFittingQualityMeasure measure) {
+    String measureName;
+
+    measureName = measure.getClass().getName();
+    if (measure instanceof WeightedRobustError) {
+      measureName += ('(' + Double.toString(
+          ((WeightedRobustError) measure).getScale()) + ')');
+    }
+    return new _Key(points.contentFingerprint(), points.m(), //
+        fitter.getClass().getName() + '\t' + //
+            measureName + '\t' + //
+            function.getClass().getName() + '\t' + //
+            function.getParameterCount() + '\t' + //
+            this.m_version);
+  }
+
+  /**
+   * Get the stored result for a given key
+   *
+   * @param key
+   *          the key
+   * @return the result, or {@code null} if none is stored
+   */
+  final synchronized _Entry _get(final _Key key) {
+    return this.m_entries.get(key);
+  }
+
+  /**
+   * Store a result, unless a better one is already stored for the same
+   * key.
+   *
+   * @param key
+   *          the key
+   * @param quality
+   *          the quality of the result
+   * @param parameters
+   *          the fitted parameters
+   * @throws IOException
+   *           if the result cannot be written
+   */
+  final synchronized void _put(final _Key key, final double quality,
+      final double[] parameters) throws IOException {
+    final FileChannel channel;
+    final ByteBuffer buffer;
+    final CRC32 checksum;
+    final byte[] descriptor;
+    final int length;
+
+    if (!(this.__index(key, new _Entry(quality, parameters.clone())))) {
+      return;
+    }
+
+    descriptor = key.m_descriptor.getBytes(StandardCharsets.UTF_8);
+    length = (8 + 4 + 2 + descriptor.length + 8 + 4
+        + (parameters.length << 3));
+    buffer = ByteBuffer.allocate(length + 8);
+    buffer.putInt(length);
+    buffer.putLong(key.m_fingerprint);
+    buffer.putInt(key.m_count);
+    buffer.putShort((short) (descriptor.length));
+    buffer.put(descriptor);
+    buffer.putDouble(quality);
+    buffer.putInt(parameters.length);
+    for (final double parameter : parameters) {
+      buffer.putDouble(parameter);
+    }
+    checksum = new CRC32();
+    checksum.update(buffer.array(), 4, length);
+    buffer.putInt((int) (checksum.getValue()));
+    buffer.flip();
+
+    channel = this.m_channel;
+    try (final FileLock lock = channel.lock()) {
+      FittingResultStore.__write(channel, buffer, channel.size());
+    }
+  }
+
+  /**
+   * Get the number of results in the store
+   *
+   * @return the number of results in the store
+   */
+  public final synchronized int size() {
+    return this.m_entries.size();
+  }
+
+  /**
+   * Get the path to the file of the store
+   *
+   * @return the path to the file of the store
+   */
+  public final Path getPath() {
+    return this.m_path;
+  }
+
+  /**
+   * Get the version tag of the results in the store
+   *
+   * @return the version tag of the results in the store
+   */
+  public final String getVersion() {
+    return this.m_version;
+  }
+
+  /**
+   * Close the store. Results which are already in the store can still be
+   * looked up, but no new results can be added.
+   *
+   * @throws IOException
+   *           if the file cannot be closed
+   */
+  @Override
+  public final void close() throws IOException {
+    this.m_channel.close();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return ("fitting result store " + this.m_path); //$NON-NLS-1$
+  }
+
+  /** the key identifying a stored result */
+  static final class _Key {
+
+    /** the fingerprint of the points */
+    final long m_fingerprint;
+    /** the number of points */
+    final int m_count;
+    /** the description of fitter, measure, model, and version */
+    final String m_descriptor;
+    /** the hash code */
+    private final int m_hashCode;
+
+    /**
+     * create the key
+     *
+     * @param fingerprint
+     *          the fingerprint of the points
+     * @param count
+     *          the number of points
+     * @param descriptor
+     *          the description of fitter, measure, model, and version
+     */
+    _Key(final long fingerprint, final int count,
+        final String descriptor) {
+      super();
+      this.m_fingerprint = fingerprint;
+      this.m_count = count;
+      this.m_descriptor = descriptor;
+      this.m_hashCode = HashUtils.combineHashes(//
+          HashUtils.combineHashes(HashUtils.hashCode(fingerprint), count),
+          HashUtils.hashCode(descriptor));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int hashCode() {
+      return this.m_hashCode;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean equals(final Object o) {
+      final _Key other;
+
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof _Key) {
+        other = ((_Key) o);
+        return ((this.m_fingerprint == other.m_fingerprint) && //
+            (this.m_count == other.m_count) && //
+            this.m_descriptor.equals(other.m_descriptor));
+      }
+      return false;
+    }
+  }
+
+  /** a stored result */
+  static final class _Entry {
+
+    /** the quality of the result */
+    final double m_quality;
+    /** the fitted parameters */
+    final double[] m_parameters;
+
+    /**
+     * create the entry
+     *
+     * @param quality
+     *          the quality of the result
+     * @param parameters
+     *          the fitted parameters
+     */
+    _Entry(final double quality, final double[] parameters) {
+      super();
+      this.m_quality = quality;
+      this.m_parameters = parameters;
+    }
+  }
+}
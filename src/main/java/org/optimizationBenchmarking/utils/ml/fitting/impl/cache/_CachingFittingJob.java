@@ -0,0 +1,160 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.cache;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+
+/** A fitting job which first looks up its result in the store. */
+final class _CachingFittingJob extends FittingJob {
+
+  /**
+   * the relative tolerance when comparing the quality of a stored result
+   * with its re-evaluated quality
+   */
+  private static final double TOLERANCE = 1e-9d;
+
+  /** the owning fitter */
+  private final CachingFunctionFitter m_owner;
+
+  /** should the job use multiple threads? */
+  private final boolean m_parallel;
+  /** the fraction of the iteration budgets to grant to the job */
+  private final double m_effort;
+  /** the starting points, or {@code null} if none were provided */
+  private final double[][] m_startingPoints;
+  /** the time limit in milliseconds */
+  private final long m_timeLimit;
+  /** the maximum number of objective function evaluations */
+  private final long m_maxEvaluations;
+  /** the target quality */
+  private final double m_targetQuality;
+  /** the coreset size, or {@code 0} if no coreset should be used */
+  private final int m_coresetSize;
+
+  /**
+   * create the caching job
+   *
+   * @param owner
+   *          the owning fitter
+   * @param builder
+   *          the builder
+   */
+  _CachingFittingJob(final CachingFunctionFitter owner,
+      final FittingJobBuilder builder) {
+    super(builder);
+    this.m_owner = owner;
+    this.m_parallel = builder.isParallel();
+    this.m_effort = builder.getEffort();
+    this.m_startingPoints = builder.getStartingPoints();
+    this.m_timeLimit = builder.getTimeLimit();
+    this.m_maxEvaluations = builder.getMaxEvaluations();
+    this.m_targetQuality = builder.getTargetQuality();
+    this.m_coresetSize = builder.getCoresetSize();
+  }
+
+  /**
+   * Can the result of this job be stored? This is only the case if the
+   * job grants the wrapped fitter its full effort and budget.
+   *
+   * @return {@code true} if the result can be stored, {@code false}
+   *         otherwise
+   */
+  private final boolean __canStore() {
+    return ((this.m_effort >= 1d) && //
+        (this.m_timeLimit == Long.MAX_VALUE) && //
+        (this.m_maxEvaluations == Long.MAX_VALUE) && //
+        (this.m_targetQuality == Double.NEGATIVE_INFINITY) && //
+        (this.m_coresetSize <= 0));
+  }
+
+  /**
+   * Create the builder for the job of the wrapped fitter, with the same
+   * settings as this job
+   *
+   * @return the builder
+   */
+  private final IFittingJobBuilder __createBuilder() {
+    final IFittingJobBuilder builder;
+    final FittingJobBuilder fittingBuilder;
+
+    builder = this.m_owner.m_fitter.use()//
+        .setLogger(this.getLogger())//
+        .setFunctionToFit(this.m_function)//
+        .setQualityMeasure(this.m_measure)//
+        .setPoints(this.m_data);
+    if (builder instanceof FittingJobBuilder) {
+      fittingBuilder = ((FittingJobBuilder) builder);
+      fittingBuilder.setParallel(this.m_parallel)//
+          .setEffort(this.m_effort)//
+          .setTimeLimit(this.m_timeLimit)//
+          .setMaxEvaluations(this.m_maxEvaluations)//
+          .setTargetQuality(this.m_targetQuality)//
+          .setCoresetSize(this.m_coresetSize)//
+          .setStartingPoints(this.m_startingPoints);
+    }
+    return builder;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void fit() {
+    final FittingResultStore store;
+    final FittingResultStore._Entry entry;
+    final IFittingResult result;
+    final Logger logger;
+    FittingResultStore._Key key;
+    double quality;
+
+    store = this.m_owner.m_store;
+    key = null;
+    if (this.m_measure.getSampleCount() == this.m_data.m()) {
+      key = store._key(this.m_data, this.m_function,
+          this.m_owner.m_fitter, this.m_measure);
+      entry = store._get(key);
+      if ((entry != null) && (entry.m_parameters.length == //
+          this.m_function.getParameterCount())) {
+        quality = this.evaluate(entry.m_parameters);
+        if (quality <= (entry.m_quality
+            * (1d + _CachingFittingJob.TOLERANCE))) {
+          return;
+        }
+      }
+    }
+
+    try {
+      result = this.__createBuilder().create().call();
+    } catch (final RuntimeException error) {
+      throw error;
+    } catch (final Exception error) {
+      throw new IllegalArgumentException(//
+          "Error while fitting with " + this.m_owner.m_fitter, //$NON-NLS-1$
+          error);
+    }
+    quality = result.getQuality();
+    this.register(quality, result.getFittedParametersRef());
+
+    if ((key != null) && this.__canStore()) {
+      try {
+        store._put(key, quality, result.getFittedParametersRef());
+      } catch (final IOException error) {
+        logger = this.getLogger();
+        if ((logger != null) && (logger.isLoggable(Level.WARNING))) {
+          logger.log(Level.WARNING, //
+              ("Could not add fitting result to " + store), //$NON-NLS-1$
+              error);
+        }
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return this.m_owner.toString();
+  }
+}
@@ -0,0 +1,6 @@
+/**
+ * A persistent store for fitting results and a function fitter which
+ * re-uses the results in the store instead of fitting the same data
+ * again.
+ */
+package org.optimizationBenchmarking.utils.ml.fitting.impl.cache;
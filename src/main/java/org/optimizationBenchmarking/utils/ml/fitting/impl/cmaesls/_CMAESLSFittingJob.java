@@ -36,8 +36,8 @@ final class _CMAESLSFittingJob
     Random random;
     IParameterGuesser guesser;
     StandardDeviationAggregate[] stddev;
-    double[] stddevs, currentArray;
-    int index, samples, subsamples;
+    double[] stddevs, currentArray, guesses;
+    int index, samples, subsamples, guess, created;
     double quality;
 
     numParams = this.m_function.getParameterCount();
@@ -45,6 +45,8 @@ final class _CMAESLSFittingJob
     currentArray = current.solution;
     stddev = new StandardDeviationAggregate[numParams];
     stddevs = new double[numParams];
+    subsamples = (10 * numParams);
+    guesses = new double[subsamples * numParams];
     random = ThreadLocalRandom.current();
 
     for (index = numParams; (--index) >= 0;) {
@@ -55,11 +57,17 @@ final class _CMAESLSFittingJob
     this.setLeastSquaresMaxIterations(((numParams * numParams) * 8) / 5);
 
     guesser = this.m_function.createParameterGuesser(this.m_data);
-    for (samples = ((numParams * 7) / 4) + 1; (--samples) >= 0;) {
+    guess = 0;
+    for (samples = this.getRestartBudget(((numParams * 7) / 4) + 1); //
+    (--samples) >= 0;) {
 
       current.quality = Double.POSITIVE_INFINITY;
-      for (subsamples = (10 * numParams); (--subsamples) >= 0;) {
-        guesser.createRandomGuess(stddevs, random);
+      created = this.createGuesses(guesser, guess, guesses, subsamples,
+          random);
+      guess += subsamples;
+      for (index = created; (--index) >= 0;) {
+        System.arraycopy(guesses, (index * numParams), stddevs, 0,
+            numParams);
         quality = this.evaluate(stddevs);
         if ((quality > 0d) && (quality < current.quality)) {
           current.assign(stddevs, quality);
@@ -77,6 +85,16 @@ final class _CMAESLSFittingJob
     }
     stddev = null;
 
+    if (this.hasStartingPoints()) {
+      // the few samples around the starting points may have converged
+      // to the same point, but CMA-ES still needs some spread
+      this.getCopyOfBest(current);
+      for (index = numParams; (--index) >= 0;) {
+        stddevs[index] = Math.max(stddevs[index],
+            Math.max(1e-8d, (1e-3d * Math.abs(currentArray[index]))));
+      }
+    }
+
     this.setNumericalOptimizerMaxIterations(numParams * numParams * 700);
     this.setLeastSquaresMaxIterations(maxLSIterations);
     this.getCopyOfBest(current);
@@ -119,35 +119,38 @@ final class _DELSFittingJob
   }
 
   /**
-   * Create a random solution
+   * Evaluate an initial solution and replace it with new random guesses
+   * until it is valid
    *
    * @param guesser
    *          the parameter guesser
    * @param solution
-   *          the destination solution record
+   *          the solution record
    * @param random
    *          the random number generator
    */
-  private final void __randomSolution(final IParameterGuesser guesser,
+  private final void __validSolution(final IParameterGuesser guesser,
       final FittingCandidateSolution solution, final Random random) {
     int limiter;
 
     // make sure all points are valid
-    for (limiter = 100; (--limiter) >= 0;) {
-      guesser.createRandomGuess(solution.solution, random);
+    for (limiter = 100;;) {
       solution.quality = this.evaluate(solution.solution);
-      if ((solution.quality >= 0d)
-          && (solution.quality < Double.POSITIVE_INFINITY)) {
+      if (((solution.quality >= 0d)
+          && (solution.quality < Double.POSITIVE_INFINITY))
+          || ((--limiter) <= 0)) {
         return;
       }
+      guesser.createRandomGuess(solution.solution, random);
     }
   }
 
   /** {@inheritDoc} */
   @Override
   protected void doFit() {
-    final int numParameters, populationSize;
+    final int numParameters, populationSize, created;
     final Random random;
+    final double[] guesses;
     FittingCandidateSolution[] parents, offspring;
     FittingCandidateSolution current, parent1, parent2, parent3;
     IParameterGuesser guesser;
@@ -166,23 +169,33 @@ final class _DELSFittingJob
 
     maxIterations = this.getLeastSquaresMaxIterations();
 
+    guesses = new double[populationSize * numParameters];
+    created = this.createGuesses(guesser, 0, guesses, populationSize,
+        random);
     for (index = populationSize; (--index) >= 0;) {
       offspring[index] = new FittingCandidateSolution(numParameters);
       parents[index] = current = new FittingCandidateSolution(
           numParameters);
-      this.__randomSolution(guesser, current, random);
-      this.setLeastSquaresMaxIterations(300);
-      this.subselect(numParameters, random);
-      current.quality = this.value(current.solution);
-      this.refineWithLevenbergMarquardt(current);
-      this.deselectPoints();
-      current.quality = this.evaluate(current.solution);
-      this.setLeastSquaresMaxIterations(100);
-      this.refineWithLevenbergMarquardt(current);
+      if (index < created) {
+        System.arraycopy(guesses, (index * numParameters),
+            current.solution, 0, numParameters);
+      } else {
+        this.createGuess(guesser, index, current.solution, random);
+      }
+      this.__validSolution(guesser, current, random);
     }
 
-    for (generation = (((numParameters * numParameters
-        * populationSize) << 1) / 3); (--generation) >= 0;) {
+    // all guesses are drawn before the first one is refined, also in
+    // serial mode, so the random numbers are used in another order than
+    // when each guess was refined right after it was drawn
+    this.setLeastSquaresMaxIterations(300);
+    this.processSolutions(new __InitialRefinement(numParameters), parents,
+        0, populationSize);
+    this.setLeastSquaresMaxIterations(100);
+    this.refineWithLevenbergMarquardt(parents, 0, populationSize);
+
+    for (generation = this.getRestartBudget(((numParameters
+        * numParameters * populationSize) << 1) / 3); (--generation) >= 0;) {
       for (index = populationSize; (--index) >= 0;) {
         parent1 = parents[index];
 
@@ -201,8 +214,8 @@ final class _DELSFittingJob
           _DELSFittingJob.__centerCrossover(parent1, parent2, parent3,
               current.solution, random);
         }
-        current.quality = this.value(current.solution);
       }
+      this.evaluateSolutions(offspring, 0, populationSize);
 
       for (index = populationSize; (--index) >= 0;) {
         current = offspring[index];
@@ -222,6 +235,39 @@ final class _DELSFittingJob
     this.refineWithLevenbergMarquardtAndNelderMead(current);
   }
 
+  /**
+   * The initial refinement of a random solution: First refine it with the
+   * Levenberg-Marquardt algorithm on a small subset of the points, then
+   * evaluate it on all points.
+   */
+  private final class __InitialRefinement extends SolutionProcessor {
+
+    /** the number of points to select */
+    private final int m_points;
+
+    /**
+     * create
+     *
+     * @param points
+     *          the number of points to select
+     */
+    __InitialRefinement(final int points) {
+      super();
+      this.m_points = points;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void process(final EvaluationContext context,
+        final FittingCandidateSolution solution) {
+      context.subselect(this.m_points, ThreadLocalRandom.current());
+      solution.quality = context.value(solution.solution);
+      context.refineWithLevenbergMarquardt(solution);
+      context.deselectPoints();
+      solution.quality = context.value(solution.solution);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public final String toString() {
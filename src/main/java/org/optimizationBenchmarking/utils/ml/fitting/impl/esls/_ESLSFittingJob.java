@@ -111,8 +111,9 @@ final class _ESLSFittingJob
   /** {@inheritDoc} */
   @Override
   protected final void doFit() {
-    final int numParams, mu, lambda;
+    final int numParams, mu, lambda, created;
     final _ESCandidate[] population;
+    final double[] guesses;
     final Random random;
     final double tau, tau0;
     IParameterGuesser guesser;
@@ -129,16 +130,26 @@ final class _ESLSFittingJob
     guesser = this.m_function.createParameterGuesser(this.m_data);
 
     // create starting population of mu+lambda individuals
+    guesses = new double[population.length * numParams];
+    created = this.createGuesses(guesser, 0, guesses, population.length,
+        random);
     for (index = population.length; (--index) >= 0;) {
       population[index] = current = new _ESCandidate(numParams);
 
-      inner: for (findSamples = 100; (--findSamples) >= 0;) {
-        guesser.createRandomGuess(current.solution, random);
+      if (index < created) {
+        System.arraycopy(guesses, (index * numParams), current.solution,
+            0, numParams);
+      } else {
+        this.createGuess(guesser, index, current.solution, random);
+      }
+      inner: for (findSamples = 100;;) {
         current.quality = this.evaluate(current.solution);
-        if ((current.quality >= 0d)
-            && (current.quality < Double.POSITIVE_INFINITY)) {
+        if (((current.quality >= 0d)
+            && (current.quality < Double.POSITIVE_INFINITY))
+            || ((--findSamples) <= 0)) {
           break inner;
         }
+        guesser.createRandomGuess(current.solution, random);
       }
 
       // create step length
@@ -155,7 +166,8 @@ final class _ESLSFittingJob
 
     // now perform actual algorithm
     this.setLeastSquaresMaxIterations(30);
-    for (generation = Primes.nextPrime((7 * lambda) / 3); //
+    for (generation = Primes
+        .nextPrime(this.getRestartBudget((7 * lambda) / 3)); //
     (--generation) >= 0;) {
 
       // mu+lambda selection
@@ -176,14 +188,13 @@ final class _ESLSFittingJob
 
         _ESLSFittingJob.__createOffspring(parent1, parent2, tau0, tau,
             random, current);
-        current.quality = this.evaluate(current.solution);
       }
+      this.evaluateSolutions(population, mu, population.length);
 
       if ((generation & 3) == 0) {
         // every 4 generations refine with least squares
-        for (final _ESCandidate candidate : population) {
-          this.refineWithLevenbergMarquardt(candidate);
-        }
+        this.refineWithLevenbergMarquardt(population, 0,
+            population.length);
       }
     }
   }
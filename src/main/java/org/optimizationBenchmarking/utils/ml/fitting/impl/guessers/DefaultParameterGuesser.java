@@ -2,6 +2,7 @@ package org.optimizationBenchmarking.utils.ml.fitting.impl.guessers;
 
 import java.util.Random;
 
+import org.optimizationBenchmarking.utils.math.MathUtils;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
 
 /**
@@ -10,6 +11,13 @@ import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
  */
 public class DefaultParameterGuesser implements IParameterGuesser {
 
+  /**
+   * the number of attempts made to create a valid guess in
+   * {@link #createRandomGuesses(double[], int, int, Random)} before a
+   * guess is discarded
+   */
+  static final int MAX_ATTEMPTS = 10;
+
   /** create */
   public DefaultParameterGuesser() {
     super();
@@ -24,4 +32,117 @@ public class DefaultParameterGuesser implements IParameterGuesser {
           * (random.nextInt(5) + 1));
     }
   }
+
+  /**
+   * Check whether a guess is valid, i.e., whether it makes sense to
+   * evaluate it. By default, a guess is valid if all of its parameters are
+   * finite.
+   *
+   * @param parameters
+   *          the guess
+   * @return {@code true} if the guess is valid, {@code false} otherwise
+   */
+  protected boolean isValidGuess(final double[] parameters) {
+    for (final double value : parameters) {
+      if (!(MathUtils.isFinite(value))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Create a random guess and make sure that it is
+   * {@linkplain #isValidGuess(double[]) valid}
+   *
+   * @param parameters
+   *          the destination array to receive the guess
+   * @param random
+   *          the random number generator
+   * @return {@code true} if a valid guess could be created within
+   *         {@link #MAX_ATTEMPTS} attempts, {@code false} otherwise
+   */
+  final boolean _createValidGuess(final double[] parameters,
+      final Random random) {
+    int attempts;
+
+    for (attempts = DefaultParameterGuesser.MAX_ATTEMPTS; (--attempts) >= 0;) {
+      this.createRandomGuess(parameters, random);
+      if (this.isValidGuess(parameters)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Validate the arguments of
+   * {@link #createRandomGuesses(double[], int, int, Random)}
+   *
+   * @param dest
+   *          the destination array
+   * @param parameterCount
+   *          the number of parameters per guess
+   * @param count
+   *          the number of guesses
+   */
+  static final void _validateGuesses(final double[] dest,
+      final int parameterCount, final int count) {
+    if (parameterCount <= 0) {
+      throw new IllegalArgumentException(
+          "Number of parameters must be greater than 0, but is " //$NON-NLS-1$
+              + parameterCount);
+    }
+    if (count < 0) {
+      throw new IllegalArgumentException(
+          "Number of guesses must not be negative, but is " //$NON-NLS-1$
+              + count);
+    }
+    if ((dest == null) || ((dest.length / parameterCount) < count)) {
+      throw new IllegalArgumentException(//
+          "Destination array must have room for " + count + //$NON-NLS-1$
+              " guesses with " + parameterCount + //$NON-NLS-1$
+              " parameters each."); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Create several random guesses at once. The guesses are stored one
+   * after the other in {@code dest}, i.e., the {@code i}-th guess occupies
+   * the elements {@code i*parameterCount} to
+   * {@code (i+1)*parameterCount-1}. Only
+   * {@linkplain #isValidGuess(double[]) valid} guesses are stored: If no
+   * valid guess can be found for a slot after a few attempts, the slot is
+   * dropped, so the number of guesses actually created may be less than
+   * {@code count}.
+   *
+   * @param dest
+   *          the destination array, with room for at least {@code count}
+   *          guesses
+   * @param parameterCount
+   *          the number of parameters per guess
+   * @param count
+   *          the number of guesses to create
+   * @param random
+   *          the random number generator
+   * @return the number of valid guesses stored in {@code dest}
+   */
+  public int createRandomGuesses(final double[] dest,
+      final int parameterCount, final int count, final Random random) {
+    final double[] guess;
+    int index, valid;
+
+    DefaultParameterGuesser._validateGuesses(dest, parameterCount, count);
+
+    guess = new double[parameterCount];
+    valid = 0;
+    for (index = count; (--index) >= 0;) {
+      if (this._createValidGuess(guess, random)) {
+        System.arraycopy(guess, 0, dest, (valid * parameterCount),
+            parameterCount);
+        ++valid;
+      }
+    }
+    return valid;
+  }
 }
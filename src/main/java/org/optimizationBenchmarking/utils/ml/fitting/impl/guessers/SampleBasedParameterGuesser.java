@@ -5,6 +5,7 @@ import java.util.Random;
 import org.optimizationBenchmarking.utils.comparison.Compare;
 import org.optimizationBenchmarking.utils.math.combinatorics.CanonicalPermutation;
 import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
 
 /**
  * <p>
@@ -39,8 +40,46 @@ import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
 public abstract class SampleBasedParameterGuesser
     extends DefaultParameterGuesser {
 
+  /** the distance measure uses the {@code x}-coordinates */
+  private static final int USE_X = 1;
+  /** the distance measure uses the {@code y}-coordinates */
+  private static final int USE_Y = 2;
+  /** the distance measure log-scales the {@code x}-coordinates */
+  private static final int LOG_SCALE_X = 4;
+  /** the distance measure log-scales the {@code y}-coordinates */
+  private static final int LOG_SCALE_Y = 8;
+
+  /** the distance measures to choose from */
+  private static final int[] DISTANCE_MEASURES = { //
+      0, //
+      SampleBasedParameterGuesser.USE_X, //
+      SampleBasedParameterGuesser.USE_Y, //
+      (SampleBasedParameterGuesser.USE_X
+          | SampleBasedParameterGuesser.USE_Y), //
+      (SampleBasedParameterGuesser.USE_X
+          | SampleBasedParameterGuesser.LOG_SCALE_X), //
+      (SampleBasedParameterGuesser.USE_X
+          | SampleBasedParameterGuesser.USE_Y
+          | SampleBasedParameterGuesser.LOG_SCALE_X), //
+      (SampleBasedParameterGuesser.USE_Y
+          | SampleBasedParameterGuesser.LOG_SCALE_Y), //
+      (SampleBasedParameterGuesser.USE_X
+          | SampleBasedParameterGuesser.USE_Y
+          | SampleBasedParameterGuesser.LOG_SCALE_Y), //
+      (SampleBasedParameterGuesser.USE_X
+          | SampleBasedParameterGuesser.USE_Y
+          | SampleBasedParameterGuesser.LOG_SCALE_X
+          | SampleBasedParameterGuesser.LOG_SCALE_Y),//
+  };
+
   /** the data matrix */
   private final IMatrix m_data;
+  /**
+   * the data matrix as prepared data set, whose cached logarithms of the
+   * coordinates are used for log-scaling, or {@code null} if the data
+   * was not prepared
+   */
+  private final PreparedDataset m_prepared;
 
   /** the minimum x value */
   protected final double m_minX;
@@ -114,6 +153,7 @@ public abstract class SampleBasedParameterGuesser
     super();
 
     final int available;
+    final PreparedDataset prepared;
     double t, minX, minY, maxX, maxY;
     int i, j;
 
@@ -135,25 +175,35 @@ public abstract class SampleBasedParameterGuesser
 
     if (requiredPoints < available) {
       this.m_data = data;
-      i = (available - 1);
-      minX = maxX = data.getDouble(i, 0);
-      minY = maxY = data.getDouble(i, 1);
-
-      for (i = available; (--i) >= 0;) {
-        t = data.getDouble(i, 0);
-        if (t < minX) {
-          minX = t;
-        } else {
-          if (t > maxX) {
-            maxX = t;
+      if (data instanceof PreparedDataset) {
+        // the ranges have already been computed when preparing the data
+        this.m_prepared = prepared = ((PreparedDataset) data);
+        minX = prepared.getMinX();
+        maxX = prepared.getMaxX();
+        minY = prepared.getMinY();
+        maxY = prepared.getMaxY();
+      } else {
+        this.m_prepared = null;
+        i = (available - 1);
+        minX = maxX = data.getDouble(i, 0);
+        minY = maxY = data.getDouble(i, 1);
+
+        for (i = available; (--i) >= 0;) {
+          t = data.getDouble(i, 0);
+          if (t < minX) {
+            minX = t;
+          } else {
+            if (t > maxX) {
+              maxX = t;
+            }
           }
-        }
-        t = data.getDouble(i, 1);
-        if (t < minY) {
-          minY = t;
-        } else {
-          if (t > maxY) {
-            maxY = t;
+          t = data.getDouble(i, 1);
+          if (t < minY) {
+            minY = t;
+          } else {
+            if (t > maxY) {
+              maxY = t;
+            }
           }
         }
       }
@@ -189,6 +239,7 @@ public abstract class SampleBasedParameterGuesser
         minX = maxX = minY = maxY = Double.NaN;
       }
       this.m_data = null;
+      this.m_prepared = null;
       this.m_candidate = null;
       this.m_indexes = null;
     }
@@ -217,7 +268,8 @@ public abstract class SampleBasedParameterGuesser
     }
 
     this.m_distanceMeasureChoices = CanonicalPermutation
-        .createCanonicalZero(9);
+        .createCanonicalZero(
+            SampleBasedParameterGuesser.DISTANCE_MEASURES.length);
 
     this.m_variants = CanonicalPermutation.createCanonicalZero(variants);
   }
@@ -284,7 +336,8 @@ public abstract class SampleBasedParameterGuesser
    * Draw a random set of points from the data matrix. All points will stem
    * from different rows of the matrix and it is attempted to ensure that
    * they differ in all of their {@code x} and {@code y} coordinates. The
-   * points in the array are sorted in lexicographically.
+   * points in the array are sorted in lexicographically and the indexes
+   * of the points are sorted along with them.
    *
    * @param currentChoice
    *          the destination array to receive the candidate points
@@ -360,8 +413,8 @@ public abstract class SampleBasedParameterGuesser
       // Now sort the points.
       for (i = n; (--i) > 0;) {
         for (j = i; (--j) >= 0;) {
-          SampleBasedParameterGuesser.__compareAndSwap(currentChoice, j, i,
-              useX, useY);
+          SampleBasedParameterGuesser.__compareAndSwap(currentChoice,
+              indexes, j, i, useX, useY);
         }
       }
     }
@@ -374,6 +427,9 @@ public abstract class SampleBasedParameterGuesser
    *
    * @param data
    *          the data array
+   * @param indexes
+   *          the indexes of the points in the data matrix, which are
+   *          swapped along with the points
    * @param i
    *          the first,smaller index
    * @param j
@@ -384,9 +440,10 @@ public abstract class SampleBasedParameterGuesser
    *          should we use the {@code y}-coordinate for sorting?
    */
   private static final void __compareAndSwap(final double[] data,
-      final int i, final int j, final boolean useX, final boolean useY) {
+      final int[] indexes, final int i, final int j, final boolean useX,
+      final boolean useY) {
     double x1, x2, y1, y2;
-    final int ii, jj, resX;
+    final int ii, jj, resX, index;
 
     ii = (i << 1);
     jj = (j << 1);
@@ -416,6 +473,10 @@ public abstract class SampleBasedParameterGuesser
     data[ii + 1] = y2;
     data[jj] = x1;
     data[jj + 1] = y1;
+
+    index = indexes[i];
+    indexes[i] = indexes[j];
+    indexes[j] = index;
   }
 
   /**
@@ -450,18 +511,21 @@ public abstract class SampleBasedParameterGuesser
    *
    * @param curX
    *          the coordinate
+   * @param index
+   *          the index of the point in the data matrix
    * @param logScaleX
    *          the log scale indicator
    * @return the formatted result
    */
-  private final double __formatX(final double curX,
+  private final double __formatX(final double curX, final int index,
       final boolean logScaleX) {
     final double d;
     if (logScaleX) {
       if (this.m_minX <= 0d) {
         d = Math.log((curX - this.m_minX) + 1d);
       } else {
-        d = (Math.log(curX) - this.m_logMinX);
+        d = (((this.m_prepared != null) ? this.m_prepared.getLogX(index)
+            : Math.log(curX)) - this.m_logMinX);
       }
       return (d / this.m_logScaleX);
     }
@@ -473,18 +537,21 @@ public abstract class SampleBasedParameterGuesser
    *
    * @param curY
    *          the coordinate
+   * @param index
+   *          the index of the point in the data matrix
    * @param logScaleY
    *          the log scale indicator
    * @return the formatted result
    */
-  private final double __formatY(final double curY,
+  private final double __formatY(final double curY, final int index,
       final boolean logScaleY) {
     final double d;
     if (logScaleY) {
       if (this.m_minY <= 0d) {
         d = Math.log((curY - this.m_minY) + 1d);
       } else {
-        d = (Math.log(curY) - this.m_logMinY);
+        d = (((this.m_prepared != null) ? this.m_prepared.getLogY(index)
+            : Math.log(curY)) - this.m_logMinY);
       }
       return (d / this.m_logScaleY);
     }
@@ -500,6 +567,8 @@ public abstract class SampleBasedParameterGuesser
    *
    * @param candidate
    *          the candidate sample
+   * @param indexes
+   *          the indexes of the points of the sample in the data matrix
    * @param useX
    *          should we use the {@code x}-coordinates in the distance
    *          computation?
@@ -515,13 +584,15 @@ public abstract class SampleBasedParameterGuesser
    * @return the quality value
    */
   private final double __quality(final double[] candidate,
-      final boolean useX, final boolean useY, final boolean logScaleX,
-      final boolean logScaleY) {
+      final int[] indexes, final boolean useX, final boolean useY,
+      final boolean logScaleX, final boolean logScaleY) {
     double quality, curX, curY, prevX, prevY;
     int i;
 
-    curX = (useX ? curX = this.__formatX(candidate[0], logScaleX) : 0d);
-    curY = (useY ? curY = this.__formatY(candidate[1], logScaleY) : 0d);
+    curX = (useX ? this.__formatX(candidate[0], indexes[0], logScaleX)
+        : 0d);
+    curY = (useY ? this.__formatY(candidate[1], indexes[0], logScaleY)
+        : 0d);
 
     i = 2;
     quality = Double.POSITIVE_INFINITY;
@@ -529,9 +600,13 @@ public abstract class SampleBasedParameterGuesser
       prevX = curX;
       prevY = curY;
 
-      curX = (useX ? curX = this.__formatX(candidate[i], logScaleX) : 0d);
+      curX = (useX
+          ? this.__formatX(candidate[i], indexes[i >>> 1], logScaleX)
+          : 0d);
       ++i;
-      curY = (useY ? curY = this.__formatY(candidate[i], logScaleY) : 0d);
+      curY = (useY
+          ? this.__formatY(candidate[i], indexes[i >>> 1], logScaleY)
+          : 0d);
       ++i;
 
       prevX = Math.hypot((curX - prevX), (curY - prevY));
@@ -563,7 +638,8 @@ public abstract class SampleBasedParameterGuesser
     boolean useX, useY, logScaleX, logScaleY;
     double bestQuality, currentQuality;
     int distanceMeasureLoop, distanceMeasureChoice, distanceMeasure,
-        pointSetChoice, pointChoice, variantLoop, variantChoice, variant;
+        distanceMeasureFlags, pointSetChoice, pointChoice, variantLoop,
+        variantChoice, variant;
 
     variants = this.m_variants;
     if ((data = this.m_data) != null) {
@@ -578,7 +654,8 @@ public abstract class SampleBasedParameterGuesser
         variant = variants[variantChoice];
         --variantLoop;
 
-        for (distanceMeasureLoop = 9; (distanceMeasureLoop) > 0;) {
+        for (distanceMeasureLoop = distanceMeasureChoices.length; //
+        (distanceMeasureLoop) > 0;) {
           // In the main loop, we first choose a distance measure, then
           // attempt to find points far away from each other under this
           // measure.
@@ -586,64 +663,28 @@ public abstract class SampleBasedParameterGuesser
           distanceMeasure = distanceMeasureChoices[distanceMeasureChoice];
           --distanceMeasureLoop;
 
-          switch (distanceMeasure) {
-            case 0: {
-              useX = useY = logScaleX = logScaleY = false;
-              break;
-            }
-            case 1: {
-              useX = true;
-              useY = logScaleX = logScaleY = false;
-              break;
-            }
-            case 2: {
-              useY = true;
-              useX = logScaleX = logScaleY = false;
-              break;
-            }
-            case 3: {
-              useX = useY = true;
-              logScaleX = logScaleY = false;
-              break;
-            }
-            case 4: {
-              useX = logScaleX = true;
-              useY = logScaleY = false;
-              break;
-            }
-            case 5: {
-              useX = useY = logScaleX = true;
-              logScaleY = false;
-              break;
-            }
-            case 6: {
-              useY = logScaleY = true;
-              useX = logScaleX = false;
-              break;
-            }
-            case 7: {
-              useX = useY = logScaleY = true;
-              logScaleX = false;
-              break;
-            }
-            default: {
-              useX = useY = logScaleX = logScaleY = true;
-              break;
-            }
-          }
+          distanceMeasureFlags = SampleBasedParameterGuesser.DISTANCE_MEASURES[distanceMeasure];
+          useX = ((distanceMeasureFlags
+              & SampleBasedParameterGuesser.USE_X) != 0);
+          useY = ((distanceMeasureFlags
+              & SampleBasedParameterGuesser.USE_Y) != 0);
+          logScaleX = ((distanceMeasureFlags
+              & SampleBasedParameterGuesser.LOG_SCALE_X) != 0);
+          logScaleY = ((distanceMeasureFlags
+              & SampleBasedParameterGuesser.LOG_SCALE_Y) != 0);
 
           for (pointSetChoice = 2; (--pointSetChoice) >= 0;) {
             // Draw a set of points.
             SampleBasedParameterGuesser.__drawCandidate(bestChoice,
                 indexes, data, random, useX, useY);
             if (useX || useY) {// we do care about the distance
-              bestQuality = this.__quality(bestChoice, useX, useY,
-                  logScaleX, logScaleY);
+              bestQuality = this.__quality(bestChoice, indexes, useX,
+                  useY, logScaleX, logScaleY);
               for (pointChoice = 10; (--pointChoice) >= 0;) {
                 SampleBasedParameterGuesser.__drawCandidate(currentChoice,
                     indexes, data, random, useX, useY);
-                currentQuality = this.__quality(currentChoice, useX, useY,
-                    logScaleX, logScaleY);
+                currentQuality = this.__quality(currentChoice, indexes,
+                    useX, useY, logScaleX, logScaleY);
                 if (currentQuality > bestQuality) {
                   System.arraycopy(currentChoice, 0, bestChoice, 0,
                       bestChoice.length);
@@ -684,4 +725,111 @@ public abstract class SampleBasedParameterGuesser
     this.fallback(random.nextInt(this.m_variants.length), parameters,
         random);
   }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The point selection is shared among the guesses: Each guess first
+   * chooses a random distance measure. For all guesses which have chosen
+   * the same measure, a common pool of about two point sets per guess is
+   * drawn and every guess receives a different one of the best point sets
+   * in this pool. A single guess, in contrast, draws eleven point sets and
+   * uses only the best of them. Guesses which fail or are not
+   * {@linkplain #isValidGuess(double[]) valid} are replaced by guesses
+   * created by {@link #createRandomGuess(double[], Random)}.
+   * </p>
+   */
+  @Override
+  public final int createRandomGuesses(final double[] dest,
+      final int parameterCount, final int count, final Random random) {
+    final IMatrix data;
+    final double[] guess;
+    final int[] indexes, variants, measureCounts;
+    double[][] pool;
+    double[] qualities, points;
+    double quality;
+    boolean useX, useY, logScaleX, logScaleY;
+    int measure, flags, poolSize, guesses, index, best, search, valid;
+
+    if ((data = this.m_data) == null) {
+      // there is no point selection to share
+      return super.createRandomGuesses(dest, parameterCount, count,
+          random);
+    }
+
+    DefaultParameterGuesser._validateGuesses(dest, parameterCount, count);
+
+    guess = new double[parameterCount];
+    indexes = this.m_indexes;
+    variants = this.m_variants;
+
+    measureCounts = new int[//
+        SampleBasedParameterGuesser.DISTANCE_MEASURES.length];
+    for (index = count; (--index) >= 0;) {
+      ++measureCounts[random.nextInt(measureCounts.length)];
+    }
+
+    valid = 0;
+    for (measure = measureCounts.length; (--measure) >= 0;) {
+      guesses = measureCounts[measure];
+      if (guesses <= 0) {
+        continue;
+      }
+
+      flags = SampleBasedParameterGuesser.DISTANCE_MEASURES[measure];
+      useX = ((flags & SampleBasedParameterGuesser.USE_X) != 0);
+      useY = ((flags & SampleBasedParameterGuesser.USE_Y) != 0);
+      logScaleX = ((flags
+          & SampleBasedParameterGuesser.LOG_SCALE_X) != 0);
+      logScaleY = ((flags
+          & SampleBasedParameterGuesser.LOG_SCALE_Y) != 0);
+
+      // draw the pool of point sets: for a single guess, this is as same
+      // as many as in createRandomGuess
+      poolSize = ((useX || useY) ? ((guesses << 1) + 9) : guesses);
+      pool = new double[poolSize][this.m_selection.length];
+      qualities = new double[poolSize];
+      for (index = poolSize; (--index) >= 0;) {
+        SampleBasedParameterGuesser.__drawCandidate(pool[index], indexes,
+            data, random, useX, useY);
+        if (useX || useY) {
+          qualities[index] = this.__quality(pool[index], indexes, useX,
+              useY, logScaleX, logScaleY);
+        }
+      }
+
+      for (index = 0; index < guesses; index++) {
+        if (useX || useY) {
+          // move the best remaining point set to the current index
+          best = index;
+          for (search = (index + 1); search < poolSize; search++) {
+            if (qualities[search] > qualities[best]) {
+              best = search;
+            }
+          }
+          points = pool[best];
+          pool[best] = pool[index];
+          pool[index] = points;
+          quality = qualities[best];
+          qualities[best] = qualities[index];
+          qualities[index] = quality;
+        }
+
+        points = pool[index];
+        SampleBasedParameterGuesser.__shuffle(points, random);
+        if (!(this._guess(variants[random.nextInt(variants.length)],
+            points, guess, random) && this.isValidGuess(guess))) {
+          if (!(this._createValidGuess(guess, random))) {
+            continue;
+          }
+        }
+
+        System.arraycopy(guess, 0, dest, (valid * parameterCount),
+            parameterCount);
+        ++valid;
+      }
+    }
+
+    return valid;
+  }
 }
@@ -16,6 +16,12 @@ import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
  * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter}
  * , but outperforms it in 66% of the runs (while losing in 33% of them).
  * </p>
+ * <p>
+ * If a job is created in
+ * {@linkplain org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder#setParallel(boolean)
+ * parallel mode}, its restarts run concurrently. The
+ * {@link ParallelLSSimplexFitter} always does so.
+ * </p>
  */
 public final class LSSimplexFitter extends OptimizationBasedFitter {
 
@@ -30,7 +36,7 @@ public final class LSSimplexFitter extends OptimizationBasedFitter {
   /** {@inheritDoc} */
   @Override
   protected final FittingJob create(final FittingJobBuilder builder) {
-    return new _LSSimplexFittingJob(builder);
+    return new _LSSimplexFittingJob(builder, builder.isParallel());
   }
 
   /**
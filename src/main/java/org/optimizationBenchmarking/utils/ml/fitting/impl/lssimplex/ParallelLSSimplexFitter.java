@@ -0,0 +1,80 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFitter;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * <p>
+ * The parallel variant of the {@link LSSimplexFitter}: Its jobs are always
+ * in {@linkplain FittingJobBuilder#setParallel(boolean) parallel mode},
+ * i.e., they run the independent restarts of the least-squares and
+ * simplex search concurrently, using all available cores. The
+ * BOBYQA-based afterburner is applied only once, to the overall best
+ * solution.
+ * </p>
+ * <p>
+ * This fitter is useful to reduce the time needed to fit a single
+ * function. If many functions are to be fitted at once, say, in a
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.multi.MultiFittingJob}
+ * , the jobs themselves are already run in parallel and the
+ * {@link LSSimplexFitter} is the better choice.
+ * </p>
+ */
+public final class ParallelLSSimplexFitter extends OptimizationBasedFitter {
+
+  /** the method name */
+  static final String METHOD = "Parallel Least-Squares + Simplex + BOBYQA Fitter"; //$NON-NLS-1$
+
+  /** create */
+  ParallelLSSimplexFitter() {
+    super();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The job is put into parallel mode directly, the {@code builder} is
+   * not modified: Jobs created later from it use its own setting.
+   * </p>
+   */
+  @Override
+  protected final FittingJob create(final FittingJobBuilder builder) {
+    return new _LSSimplexFittingJob(builder, true);
+  }
+
+  /**
+   * Get the globally shared instance of the parallel LS-Simplex-based
+   * curve fitter
+   *
+   * @return the instance of the parallel LS-Simplex-based curve fitter
+   */
+  public static final ParallelLSSimplexFitter getInstance() {
+    return __ParallelLSSimplexCurveFitterHolder.INSTANCE;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    final ETextCase next;
+
+    next = textCase.appendWord("parallel", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    return LSSimplexFitter.getInstance().printLongName(textOut, next);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return ParallelLSSimplexFitter.METHOD;
+  }
+
+  /** the instance holder */
+  private static final class __ParallelLSSimplexCurveFitterHolder {
+    /** the shared instance */
+    static final ParallelLSSimplexFitter INSTANCE = new ParallelLSSimplexFitter();
+  }
+}
@@ -8,6 +8,13 @@ final class _Candidate extends FittingCandidateSolution {
   /** the data */
   final long[] m_bits;
 
+  /**
+   * the number of steps by which the bits of the parameters of a solution
+   * must differ from those of every explored solution for the solution to
+   * be accepted during the current refinement of this candidate
+   */
+  long m_steps;
+
   /**
    * Create the fitting candidate solution
    *
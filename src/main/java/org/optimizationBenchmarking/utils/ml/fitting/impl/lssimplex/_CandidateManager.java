@@ -1,13 +1,57 @@
 package org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex;
 
-/** the class managing the solutions we have */
+import java.util.Arrays;
+
+/**
+ * The class managing the solutions we have. Two solutions are considered
+ * as the same if the raw bits of their parameters differ by no more than a
+ * given number of steps in each dimension. In order to find such
+ * solutions quickly, the solutions are stored in a hash index over a grid:
+ * The bits of each parameter are divided into cells of
+ * {@code 2^CELL_BITS} steps and the cells of all parameters together
+ * are hashed. A query only needs to look at the few grid cells which
+ * intersect with the box of allowed differences around the candidate,
+ * which is usually only one cell and only rarely more than a handful.
+ * The restarts of a fitting job may run in parallel and share one manager,
+ * so all access to the index is synchronized. Queries are cheap compared
+ * to the local searches producing the candidates, so there is little
+ * contention.
+ */
 final class _CandidateManager {
 
+  /** the number of bits of the cells of the grid */
+  private static final int CELL_BITS = 13;
+
+  /** the minimum number of hash buckets */
+  private static final int MIN_BUCKETS = 16;
+
   /** the visited candidates */
   private long[] m_done;
 
+  /**
+   * the next candidate in the same bucket, plus {@code 1}, or {@code 0}
+   * if there is none
+   */
+  private int[] m_next;
+
+  /** the hash codes of the visited candidates */
+  private int[] m_hashes;
+
+  /**
+   * the first candidate in each bucket, plus {@code 1}, or {@code 0} if
+   * the bucket is empty
+   */
+  private int[] m_buckets;
+
   /** the number of managed candidates */
-  int m_count;
+  private int m_count;
+
+  /** the lowest cells to query */
+  private final long[] m_lowCells;
+  /** the highest cells to query */
+  private final long[] m_highCells;
+  /** the cells currently queried */
+  private final long[] m_cells;
 
   /**
    * create the candidate manager
@@ -19,29 +63,191 @@ final class _CandidateManager {
    */
   _CandidateManager(final int numParameters, final int initialCapacity) {
     super();
+
+    int buckets;
+
     this.m_done = new long[numParameters * initialCapacity];
+    this.m_next = new int[initialCapacity];
+    this.m_hashes = new int[initialCapacity];
+
+    buckets = _CandidateManager.MIN_BUCKETS;
+    while (buckets < initialCapacity) {
+      buckets <<= 1;
+    }
+    this.m_buckets = new int[buckets];
+
+    this.m_lowCells = new long[numParameters];
+    this.m_highCells = new long[numParameters];
+    this.m_cells = new long[numParameters];
+  }
+
+  /**
+   * Get the grid cell of a given value
+   *
+   * @param bits
+   *          the raw bits of a parameter value
+   * @return the cell
+   */
+  private static final long __cell(final long bits) {
+    return (bits >> _CandidateManager.CELL_BITS);
   }
 
   /**
-   * Add a given candidate to the managed list.
+   * Compute the hash code of a cell vector
+   *
+   * @param cells
+   *          the cells
+   * @return the hash code
+   */
+  private static final int __hash(final long[] cells) {
+    long hash;
+
+    hash = 0L;
+    for (final long cell : cells) {
+      hash = ((hash * 0x9E3779B97F4A7C15L) + cell);
+    }
+    hash ^= (hash >>> 29);
+    hash *= 0xBF58476D1CE4E5B9L;
+    return ((int) (hash ^ (hash >>> 32)));
+  }
+
+  /** Forget all managed candidates. */
+  final synchronized void _clear() {
+    if (this.m_count > 0) {
+      Arrays.fill(this.m_buckets, 0);
+      this.m_count = 0;
+    }
+  }
+
+  /**
+   * Double the number of hash buckets and re-distribute the candidates.
+   */
+  private final void __rehash() {
+    final int[] buckets, next, hashes;
+    final int mask;
+    int index, bucket;
+
+    buckets = new int[this.m_buckets.length << 1];
+    next = this.m_next;
+    hashes = this.m_hashes;
+    mask = (buckets.length - 1);
+    for (index = this.m_count; (--index) >= 0;) {
+      bucket = (hashes[index] & mask);
+      next[index] = buckets[bucket];
+      buckets[bucket] = (index + 1);
+    }
+    this.m_buckets = buckets;
+  }
+
+  /**
+   * Add a given candidate to the managed list. The current parameter
+   * values of the candidate are stored.
+   *
+   * @param candidate
+   *          the candidate
+   */
+  final synchronized void _add(final _Candidate candidate) {
+    this.__add(candidate);
+  }
+
+  /**
+   * Add a given candidate to the managed list, without synchronization.
    *
    * @param candidate
    *          the candidate
    */
-  final void _add(final _Candidate candidate) {
-    final int numParams, start;
-    long[] temp;
+  private final void __add(final _Candidate candidate) {
+    final double[] solution;
+    final long[] cells;
+    final int numParams, index, start, hash, bucket;
+    long bits;
+    int dimension;
+
+    solution = candidate.solution;
+    numParams = solution.length;
+    index = this.m_count;
+    start = (index * numParams);
+
+    if (index >= this.m_next.length) {
+      this.m_done = Arrays.copyOf(this.m_done, (start << 1));
+      this.m_next = Arrays.copyOf(this.m_next, (index << 1));
+      this.m_hashes = Arrays.copyOf(this.m_hashes, (index << 1));
+    }
+
+    cells = this.m_cells;
+    for (dimension = numParams; (--dimension) >= 0;) {
+      bits = Double.doubleToLongBits(solution[dimension] + 0d);
+      this.m_done[start + dimension] = bits;
+      cells[dimension] = _CandidateManager.__cell(bits);
+    }
+
+    this.m_hashes[index] = hash = _CandidateManager.__hash(cells);
+    bucket = (hash & (this.m_buckets.length - 1));
+    this.m_next[index] = this.m_buckets[bucket];
+    this.m_buckets[bucket] = (index + 1);
+    this.m_count = (index + 1);
+
+    if (this.m_count > ((this.m_buckets.length >>> 2) * 3)) {
+      this.__rehash();
+    }
+  }
+
+  /**
+   * Check whether a stored candidate is the same as the given bits
+   *
+   * @param index
+   *          the index of the stored candidate
+   * @param bits
+   *          the bits of the candidate to check
+   * @param steps
+   *          the number of steps required between at least two variables
+   * @return {@code true} if the candidates are the same, {@code false}
+   *         otherwise
+   */
+  private final boolean __isSame(final int index, final long[] bits,
+      final long steps) {
+    final long[] done;
+    final long msteps;
+    int innerIndex;
 
-    numParams = candidate.m_bits.length;
-    start = this.m_count * numParams;
+    done = this.m_done;
+    msteps = (-steps);
+    innerIndex = ((index * bits.length) - 1);
+    for (long value : bits) {
+      value = (value - done[++innerIndex]);
+      if ((value < msteps) || (value > steps)) {
+        return false;
+      }
+    }
+    return true;
+  }
 
-    if (start >= this.m_done.length) {
-      temp = new long[start * 2];
-      System.arraycopy(this.m_done, 0, temp, 0, start);
-      this.m_done = temp;
+  /**
+   * Check whether there is a candidate in the bucket of the given hash
+   * code which is the same as the given bits
+   *
+   * @param hash
+   *          the hash code
+   * @param bits
+   *          the bits of the candidate to check
+   * @param steps
+   *          the number of steps required between at least two variables
+   * @return {@code true} if there is such a candidate, {@code false}
+   *         otherwise
+   */
+  private final boolean __isInBucket(final int hash, final long[] bits,
+      final long steps) {
+    final int[] next;
+    int entry;
+
+    next = this.m_next;
+    for (entry = this.m_buckets[hash & (this.m_buckets.length - 1)]; //
+    entry > 0; entry = next[entry - 1]) {
+      if (this.__isSame((entry - 1), bits, steps)) {
+        return true;
+      }
     }
-    System.arraycopy(candidate.m_bits, 0, this.m_done, start, numParams);
-    ++this.m_count;
+    return false;
   }
 
   /**
@@ -55,27 +261,86 @@ final class _CandidateManager {
    *         in the {@code 64-bits} MSBs in each dimension, {@code false}
    *         otherwise
    */
-  final boolean _isUniqueEnough(final _Candidate candidate,
+  private final boolean __isUniqueEnough(final _Candidate candidate,
       final long steps) {
-    final int end, step;
-    final long[] done;
-    final long msteps;
-    int mainIndex, innerIndex;
+    final long[] bits, low, high, cells;
+    long value, bound, visit;
+    int dimension, index;
 
-    step = candidate.m_bits.length;
-    end = (this.m_count * step) - 1;
-    done = this.m_done;
-    msteps = (-steps);
-    outer: for (mainIndex = (-1); mainIndex < end; mainIndex += step) {
-      innerIndex = mainIndex;
-      for (long value : candidate.m_bits) {
-        value = (value - done[++innerIndex]);
-        if ((value < msteps) || (value > steps)) {
-          continue outer;
+    if (this.m_count <= 0) {
+      return true;
+    }
+
+    bits = candidate.m_bits;
+    low = this.m_lowCells;
+    high = this.m_highCells;
+    cells = this.m_cells;
+
+    // compute the range of cells intersecting with the box of allowed
+    // differences, saturating at the limits of long
+    visit = 1L;
+    for (dimension = bits.length; (--dimension) >= 0;) {
+      value = bits[dimension];
+      bound = (value - steps);
+      low[dimension] = cells[dimension] = _CandidateManager
+          .__cell((bound > value) ? Long.MIN_VALUE : bound);
+      bound = (value + steps);
+      high[dimension] = _CandidateManager
+          .__cell((bound < value) ? Long.MAX_VALUE : bound);
+      if (visit <= this.m_count) {
+        visit *= Math.min(Integer.MAX_VALUE,
+            ((high[dimension] - low[dimension]) + 1L));
+      }
+    }
+
+    if (visit > this.m_count) {
+      // the box spans more cells than there are candidates: check them
+      // all
+      for (index = this.m_count; (--index) >= 0;) {
+        if (this.__isSame(index, bits, steps)) {
+          return false;
         }
       }
-      return false;
+      return true;
     }
-    return true;
+
+    // visit all cells in the range
+    for (;;) {
+      if (this.__isInBucket(_CandidateManager.__hash(cells), bits,
+          steps)) {
+        return false;
+      }
+      for (dimension = cells.length; (--dimension) >= 0;) {
+        if (cells[dimension] < high[dimension]) {
+          ++cells[dimension];
+          break;
+        }
+        cells[dimension] = low[dimension];
+      }
+      if (dimension < 0) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Add a given candidate to the managed list if it is sufficiently
+   * unique. The check and the addition are done atomically, so that two
+   * restarts running in parallel cannot both accept the same solution.
+   *
+   * @param candidate
+   *          the candidate solution
+   * @param steps
+   *          the number of steps required between at least two variables
+   * @return {@code true} if the candidate was sufficiently unique and has
+   *         been added, {@code false} otherwise
+   */
+  final synchronized boolean _addIfUniqueEnough(final _Candidate candidate,
+      final long steps) {
+    if (this.__isUniqueEnough(candidate, steps)) {
+      this.__add(candidate);
+      return true;
+    }
+    return false;
   }
 }
@@ -2,6 +2,7 @@ package org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex;
 
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
@@ -12,6 +13,17 @@ import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
  * ordinary least-squares problem approach (Levenberg-Marquardt or
  * Gauss-Newton algorithm) and then to refine the result using a direct
  * method, the Nelder-Mead simplex. As afterburner, we apply BOBYQA.
+ * <p>
+ * The restarts of the main loop are independent of each other, except
+ * that they share the {@linkplain _CandidateManager index of the explored
+ * solutions}. They are therefore run via
+ * {@link #processSolutions(OptimizationBasedFittingJob.SolutionProcessor, org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution[], int, int)}
+ * : If the job is in
+ * {@linkplain org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder#setParallel(boolean)
+ * parallel mode}, they run concurrently, each in its own evaluation
+ * context, otherwise one after the other. The afterburner is applied only
+ * once, to the overall best solution.
+ * </p>
  */
 final class _LSSimplexFittingJob
     extends OptimizationBasedFittingJob<_Candidate> {
@@ -22,12 +34,6 @@ final class _LSSimplexFittingJob
   private static final int RET_SAME = (OptimizationBasedFittingJob.RET_NO_IMPROVEMENT
       + 1);
 
-  /**
-   * the required steps for a solution to be considered sufficiently
-   * different
-   */
-  private long m_steps;
-
   /** the candidate manager */
   private _CandidateManager m_manager;
 
@@ -36,17 +42,31 @@ final class _LSSimplexFittingJob
    *
    * @param builder
    *          the builder
+   * @param parallel
+   *          should the restarts run in parallel?
    */
-  _LSSimplexFittingJob(final FittingJobBuilder builder) {
-    super(builder);
+  _LSSimplexFittingJob(final FittingJobBuilder builder,
+      final boolean parallel) {
+    super(builder, parallel);
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Every accepted solution is remembered as explored. A refinement which
+   * arrives at a solution which is the same as an explored one thus
+   * stops, be it a refinement of a start point or one of the alternating
+   * restarts of the least-squares method and the simplex search. Since
+   * the restarts may run in parallel, the required difference is taken
+   * from the candidate being refined.
+   * </p>
+   */
   @Override
   protected final int checkImprovedSolution(final _Candidate solution) {
-    return this.m_manager._isUniqueEnough(solution, this.m_steps)//
-        ? OptimizationBasedFittingJob.RET_IMPROVEMENT
-        : _LSSimplexFittingJob.RET_SAME;
+    if (this.m_manager._addIfUniqueEnough(solution, solution.m_steps)) {
+      return OptimizationBasedFittingJob.RET_IMPROVEMENT;
+    }
+    return _LSSimplexFittingJob.RET_SAME;
   }
 
   /**
@@ -60,7 +80,7 @@ final class _LSSimplexFittingJob
 
     this.getCopyOfBest(solution);
     best = solution.quality;
-    this.m_steps = 32L;
+    solution.m_steps = 32L;
     if (this.refineWithBOBYQA(
         solution) != OptimizationBasedFittingJob.RET_IMPROVEMENT) {
       this.getCopyOfBest(solution);
@@ -69,8 +89,8 @@ final class _LSSimplexFittingJob
       }
     }
 
-    this.m_steps = 0L;
-    this.m_manager.m_count = 0;
+    solution.m_steps = 0L;
+    this.m_manager._clear();
     this.refineWithLevenbergMarquardt(solution);
   }
 
@@ -79,51 +99,122 @@ final class _LSSimplexFittingJob
   /** {@inheritDoc} */
   @Override
   protected final void doFit() {
-    final int numParameters, maxStartPointSamples;
-    final Random random;
-    final _Candidate bestSolution, tempSolution;
-    IParameterGuesser guesser;
-    int startPointIterations, mainIterations, initRetVal;
-    boolean hasNoStart;
-
-    // initialize and allocate all needed variables
+    final int numParameters, mainLoopIterations;
+    final _Candidate[] restarts;
+    int index;
 
-    random = ThreadLocalRandom.current();
     numParameters = this.m_function.getParameterCount();
 
     this.m_manager = new _CandidateManager(numParameters,
         (_LSSimplexFittingJob.MAIN_LOOP_ITERATIONS * 16));
 
-    guesser = this.m_function.createParameterGuesser(this.m_data);
+    mainLoopIterations = this
+        .getRestartBudget(_LSSimplexFittingJob.MAIN_LOOP_ITERATIONS);
+    restarts = new _Candidate[mainLoopIterations];
+    for (index = mainLoopIterations; (--index) >= 0;) {
+      restarts[index] = new _Candidate(numParameters);
+    }
 
-    bestSolution = new _Candidate(numParameters);
-    tempSolution = new _Candidate(numParameters);
+    this.processSolutions(new __Restart(numParameters), restarts, 0,
+        mainLoopIterations);
 
-    maxStartPointSamples = Math.max(10, Math.min(100, ((int) (Math.round(//
-        2d * Math.pow(3d, numParameters)))))) / 3;
+    this.__afterburner(restarts[0]);
+  }
 
-    // Inner loop: 1) generate initial guess, 2) use least-squares
-    // approach to refine, 3) use direct black-box optimizer to refine,
-    // 4) if that worked, try least-squares again
-    for (mainIterations = 1; mainIterations <= _LSSimplexFittingJob.MAIN_LOOP_ITERATIONS; ++mainIterations) {
+  /**
+   * One restart of the main loop: 1) generate initial guesses, 2) use
+   * least-squares approach or the simplex search on a subset of the points
+   * to refine them and keep the best one, 3) refine it with least-squares
+   * and simplex search on all points. Each restart uses its own parameter
+   * guesser, so that restarts running in parallel do not share any state
+   * besides the candidate manager and the job.
+   */
+  private final class __Restart extends SolutionProcessor {
+
+    /** the number of parameters */
+    private final int m_numParameters;
+    /** the maximum number of start points to sample */
+    private final int m_maxStartPointSamples;
+    /** the number of guesses to create at once */
+    private final int m_guessBatch;
+    /**
+     * the index of the next batch of guesses: the batches are handed out
+     * to the restarts in the order in which they are requested, so that
+     * each guess index, and hence each starting point, is used only once
+     */
+    private final AtomicInteger m_nextBatch;
+
+    /**
+     * create
+     *
+     * @param numParameters
+     *          the number of parameters
+     */
+    __Restart(final int numParameters) {
+      super();
+      this.m_numParameters = numParameters;
+      this.m_maxStartPointSamples = Math.max(10, Math.min(100,
+          ((int) (Math.round(2d * Math.pow(3d, numParameters)))))) / 3;
+      this.m_guessBatch = (this.m_maxStartPointSamples + 1);
+      this.m_nextBatch = new AtomicInteger();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void process(final EvaluationContext context,
+        final _Candidate bestSolution) {
+      final int numParameters, guessBatch;
+      final Random random;
+      final _Candidate tempSolution;
+      final double[] guesses;
+      final IParameterGuesser guesser;
+      int startPointIterations, startPointAttempts, initRetVal,
+          availableGuesses, nextGuess;
+      boolean hasNoStart;
+
+      random = ThreadLocalRandom.current();
+      numParameters = this.m_numParameters;
+      guessBatch = this.m_guessBatch;
+      guesser = _LSSimplexFittingJob.this.m_function
+          .createParameterGuesser(_LSSimplexFittingJob.this.m_data);
+      tempSolution = new _Candidate(numParameters);
+      guesses = new double[guessBatch * numParameters];
 
       // Find initial guess: we use the parameter guesser provided by the
       // model to create a few guesses and keep the best one
       hasNoStart = true;
       bestSolution.quality = Double.POSITIVE_INFINITY;
-      startPointIterations = maxStartPointSamples;
-      while (hasNoStart || ((--startPointIterations) >= 0)) {
-        guesser.createRandomGuess(tempSolution.solution, random);
-        this.subselect(numParameters, random);
-        tempSolution.quality = this.value(tempSolution.solution);
-        this.m_steps = 2048L;
+      startPointIterations = this.m_maxStartPointSamples;
+      startPointAttempts = (this.m_maxStartPointSamples << 4);
+      availableGuesses = nextGuess = 0;
+      while (hasNoStart ? ((--startPointAttempts) >= 0)
+          : ((--startPointIterations) >= 0)) {
+        if (nextGuess >= availableGuesses) {
+          // create the guesses in batches and only take valid ones
+          nextGuess = 0;
+          availableGuesses = _LSSimplexFittingJob.this.createGuesses(
+              guesser, (this.m_nextBatch.getAndIncrement() * guessBatch),
+              guesses, guessBatch, random);
+        }
+        if (nextGuess < availableGuesses) {
+          System.arraycopy(guesses, ((nextGuess++) * numParameters),
+              tempSolution.solution, 0, numParameters);
+        } else {
+          _LSSimplexFittingJob.this.createGuess(guesser,
+              (this.m_nextBatch.getAndIncrement() * guessBatch),
+              tempSolution.solution, random);
+        }
+        context.subselect(numParameters, random);
+        tempSolution.quality = context.value(tempSolution.solution);
+        tempSolution.m_steps = 2048L;
         initRetVal = (random.nextBoolean() //
-            ? this.refineWithLevenbergMarquardt(tempSolution)//
-            : this.refineWithNelderMead(tempSolution));
-        this.deselectPoints();
+            ? context.refineWithLevenbergMarquardt(tempSolution)//
+            : context.refineWithNelderMead(tempSolution));
+        context.deselectPoints();
 
         if (initRetVal < _LSSimplexFittingJob.RET_SAME) {
-          tempSolution.quality = this.evaluate(tempSolution.solution);
+          tempSolution.quality = _LSSimplexFittingJob.this
+              .evaluate(tempSolution.solution);
           if ((tempSolution.quality >= 0d) && (hasNoStart
               || (tempSolution.quality < bestSolution.quality))) {
             bestSolution._assign(tempSolution);
@@ -131,12 +222,14 @@ final class _LSSimplexFittingJob
           }
         }
       }
-      this.m_manager._add(bestSolution);
-      this.m_steps = 32L;
-      this.refineWithLevenbergMarquardtAndNelderMead(bestSolution);
+      if (hasNoStart) {
+        // all start points led to solutions which were already explored
+        return;
+      }
+      _LSSimplexFittingJob.this.m_manager._add(bestSolution);
+      bestSolution.m_steps = 32L;
+      context.refineWithLevenbergMarquardtAndNelderMead(bestSolution);
     }
-
-    this.__afterburner(bestSolution);
   }
 
   /** {@inheritDoc} */
@@ -0,0 +1,90 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.varpro;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFitter;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * <p>
+ * A curve fitter for models which are linear in their leading
+ * parameters, i.e., which declare a positive
+ * {@linkplain org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel#getLinearParameterCount()
+ * linear parameter count}. For such models, the optimal linear
+ * parameters can be computed in closed form for any setting of the
+ * non-linear ones. This fitter therefore only optimizes the non-linear
+ * parameters with the
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter}
+ * algorithm (variable projection), which makes the search space smaller
+ * and the problem better conditioned. If all parameters are linear, the
+ * fit is computed directly without any iterative optimization.
+ * </p>
+ * <p>
+ * Models without linear parameters and quality measures other than the
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError}
+ * are fitted with the
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter}
+ * on the full parameter vector.
+ * </p>
+ */
+public final class VarProFitter extends OptimizationBasedFitter {
+
+  /** the method name */
+  static final String METHOD = "Variable Projection Fitter"; //$NON-NLS-1$
+
+  /** create */
+  VarProFitter() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final FittingJob create(final FittingJobBuilder builder) {
+    return new _VarProFittingJob(builder);
+  }
+
+  /**
+   * Get the globally shared instance of the variable projection curve
+   * fitter
+   *
+   * @return the instance of the variable projection curve fitter
+   */
+  public static final VarProFitter getInstance() {
+    return __VarProCurveFitterHolder.INSTANCE;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    ETextCase next;
+
+    next = textCase.appendWord("variable", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    next = next.appendWord("projection", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    next = next.appendWord("with", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    next = OptimizationBasedFitter.printLevenbergMarcquardt(next, textOut,
+        true);
+    textOut.append('-');
+    next = OptimizationBasedFitter.printNelderMead(next, textOut, true);
+    textOut.append('-');
+    next = OptimizationBasedFitter.printBOBYQA(next, textOut, true);
+    textOut.append(' ');
+    return next.appendWord("hybrid", textOut); //$NON-NLS-1$
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return VarProFitter.METHOD;
+  }
+
+  /** the instance holder */
+  private static final class __VarProCurveFitterHolder {
+    /** the shared instance */
+    static final VarProFitter INSTANCE = new VarProFitter();
+  }
+}
@@ -0,0 +1,160 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.varpro;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * The quality measure of the reduced problem: It receives only the
+ * non-linear parameters of a model, computes the optimal linear
+ * parameters for them, and evaluates the model with the complete
+ * parameter vector. The Jacobian only contains the columns of the
+ * non-linear parameters and is Kaufman's approximation of the Jacobian
+ * of the projected residuals, see
+ * {@link WeightedRootMeanSquareError#evaluateProjected(BasicModel, double[], boolean, boolean, FittingEvaluation)}
+ * . Since the linear parameters are optimal, it yields the exact
+ * gradient of the projected error and a better Gauss-Newton step than
+ * the partial Jacobian for fixed linear parameters. The most recently
+ * expanded parameter vector is remembered, since the fitting algorithms
+ * and the {@link _ReducedModel} often expand the same non-linear
+ * parameters several times in a row.
+ */
+final class _ProjectedMeasure extends FittingQualityMeasure {
+
+  /** the underlying measure */
+  private final WeightedRootMeanSquareError m_measure;
+  /** the complete model */
+  private final BasicModel m_model;
+  /** the number of linear parameters */
+  private final int m_linear;
+  /** the most recent expansion, or {@code null} if there is none yet */
+  private volatile __Expansion m_last;
+
+  /**
+   * create the projected measure
+   *
+   * @param measure
+   *          the underlying measure
+   * @param model
+   *          the complete model
+   * @param linear
+   *          the number of linear parameters
+   */
+  _ProjectedMeasure(final WeightedRootMeanSquareError measure,
+      final BasicModel model, final int linear) {
+    super();
+    this.m_measure = measure;
+    this.m_model = model;
+    this.m_linear = linear;
+  }
+
+  /**
+   * Compute the complete parameter vector belonging to a vector of
+   * non-linear parameters. If the linear parameters cannot be computed,
+   * they are set to {@code 0}. If the same non-linear parameters are
+   * expanded twice in a row, the linear parameters are only computed
+   * once. The returned array must therefore not be modified.
+   *
+   * @param nonLinear
+   *          the non-linear parameters
+   * @return the complete parameter vector
+   */
+  final double[] _expand(final double[] nonLinear) {
+    final double[] parameters;
+    final __Expansion last;
+
+    last = this.m_last;
+    if ((last != null) && Arrays.equals(last.m_nonLinear, nonLinear)) {
+      return last.m_parameters;
+    }
+
+    parameters = new double[this.m_linear + nonLinear.length];
+    System.arraycopy(nonLinear, 0, parameters, this.m_linear,
+        nonLinear.length);
+    if (!(this.m_measure.solveLinearParameters(this.m_model,
+        parameters))) {
+      Arrays.fill(parameters, 0, this.m_linear, 0d);
+    }
+    this.m_last = new __Expansion(nonLinear.clone(), parameters);
+    return parameters;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final double evaluate(final ParametricUnaryFunction model,
+      final double[] parameters) {
+    return this.m_measure.evaluate(this.m_model, this._expand(parameters));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void evaluate(final ParametricUnaryFunction model,
+      final double[] parameters, final boolean computeResiduals,
+      final boolean computeJacobinian, final FittingEvaluation dest) {
+    this.m_measure.evaluateProjected(this.m_model,
+        this._expand(parameters), computeResiduals, computeJacobinian,
+        dest);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final _ProjectedMeasure subselect(final int npoints,
+      final Random random) {
+    final WeightedRootMeanSquareError subset;
+
+    subset = this.m_measure.subselect((npoints + this.m_linear), random);
+    if (subset == this.m_measure) {
+      return this;
+    }
+    return new _ProjectedMeasure(subset, this.m_model, this.m_linear);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int getSampleCount() {
+    return this.m_measure.getSampleCount();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    return this.m_measure.printLongName(textOut, textCase);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return this.m_measure.toString();
+  }
+
+  /** an immutable pair of non-linear and complete parameters */
+  private static final class __Expansion {
+
+    /** the non-linear parameters */
+    final double[] m_nonLinear;
+    /** the complete parameter vector */
+    final double[] m_parameters;
+
+    /**
+     * create the expansion
+     *
+     * @param nonLinear
+     *          the non-linear parameters
+     * @param parameters
+     *          the complete parameter vector
+     */
+    __Expansion(final double[] nonLinear, final double[] parameters) {
+      super();
+      this.m_nonLinear = nonLinear;
+      this.m_parameters = parameters;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.varpro;
+
+import java.util.Random;
+
+import org.optimizationBenchmarking.utils.document.spec.IMath;
+import org.optimizationBenchmarking.utils.document.spec.IMathRenderable;
+import org.optimizationBenchmarking.utils.document.spec.IParameterRenderer;
+import org.optimizationBenchmarking.utils.math.functions.UnaryFunction;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.guessers.DefaultParameterGuesser;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * The reduced model, whose parameters are only the non-linear parameters
+ * of a complete model. The fitting algorithms only use it to create
+ * guesses and to query the number of parameters, the actual evaluation
+ * takes place in the {@link _ProjectedMeasure}. If the model is
+ * evaluated point by point nevertheless, the linear parameters are only
+ * computed once per parameter vector, since the projected measure
+ * remembers its most recent expansion.
+ */
+final class _ReducedModel extends ParametricUnaryFunction {
+
+  /** the complete model */
+  private final BasicModel m_model;
+  /** the projected measure */
+  private final _ProjectedMeasure m_measure;
+  /** the number of linear parameters */
+  private final int m_linear;
+
+  /**
+   * create the reduced model
+   *
+   * @param model
+   *          the complete model
+   * @param measure
+   *          the projected measure
+   * @param linear
+   *          the number of linear parameters
+   */
+  _ReducedModel(final BasicModel model, final _ProjectedMeasure measure,
+      final int linear) {
+    super();
+    this.m_model = model;
+    this.m_measure = measure;
+    this.m_linear = linear;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final double value(final double x, final double[] parameters) {
+    return this.m_model.value(x, this.m_measure._expand(parameters));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This is the partial derivative for fixed linear parameters.
+   * </p>
+   */
+  @Override
+  public final void gradient(final double x, final double[] parameters,
+      final double[] gradient) {
+    final double[] full;
+
+    full = new double[this.m_linear + parameters.length];
+    this.m_model.gradient(x, this.m_measure._expand(parameters), full);
+    System.arraycopy(full, this.m_linear, gradient, 0, parameters.length);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int getParameterCount() {
+    return (this.m_model.getParameterCount() - this.m_linear);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final IParameterGuesser createParameterGuesser(
+      final IMatrix data) {
+    return new __Guesser(this.m_model.createParameterGuesser(data),
+        this.m_model.getParameterCount(), this.m_linear);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final UnaryFunction toUnaryFunction(final double[] parameters) {
+    return this.m_model
+        .toUnaryFunction(this.m_measure._expand(parameters).clone());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void mathRender(final ITextOutput out,
+      final IParameterRenderer renderer) {
+    this.m_model.mathRender(out, renderer);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void mathRender(final IMath out,
+      final IParameterRenderer renderer) {
+    this.m_model.mathRender(out, renderer);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void mathRender(final ITextOutput out,
+      final IParameterRenderer renderer, final IMathRenderable x) {
+    this.m_model.mathRender(out, renderer, x);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void mathRender(final IMath out,
+      final IParameterRenderer renderer, final IMathRenderable x) {
+    this.m_model.mathRender(out, renderer, x);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return this.m_model.toString();
+  }
+
+  /**
+   * A guesser which creates guesses for the complete model and only
+   * keeps their non-linear parameters.
+   */
+  private static final class __Guesser extends DefaultParameterGuesser {
+
+    /** the guesser for the complete model */
+    private final IParameterGuesser m_guesser;
+    /** the number of parameters of the complete model */
+    private final int m_parameters;
+    /** the number of linear parameters */
+    private final int m_linear;
+
+    /**
+     * create the guesser
+     *
+     * @param guesser
+     *          the guesser for the complete model
+     * @param parameters
+     *          the number of parameters of the complete model
+     * @param linear
+     *          the number of linear parameters
+     */
+    __Guesser(final IParameterGuesser guesser, final int parameters,
+        final int linear) {
+      super();
+      this.m_guesser = guesser;
+      this.m_parameters = parameters;
+      this.m_linear = linear;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final void createRandomGuess(final double[] parameters,
+        final Random random) {
+      final double[] full;
+
+      full = new double[this.m_parameters];
+      this.m_guesser.createRandomGuess(full, random);
+      System.arraycopy(full, this.m_linear, parameters, 0,
+          parameters.length);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int createRandomGuesses(final double[] dest,
+        final int parameterCount, final int count, final Random random) {
+      final double[] full;
+      final int valid;
+      int index;
+
+      if (!(this.m_guesser instanceof DefaultParameterGuesser)) {
+        return super.createRandomGuesses(dest, parameterCount, count,
+            random);
+      }
+
+      full = new double[count * this.m_parameters];
+      valid = ((DefaultParameterGuesser) (this.m_guesser))
+          .createRandomGuesses(full, this.m_parameters, count, random);
+      for (index = 0; index < valid; index++) {
+        System.arraycopy(full,
+            ((index * this.m_parameters) + this.m_linear), dest,
+            (index * parameterCount), parameterCount);
+      }
+      return valid;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.optimizationBenchmarking.utils.ml.fitting.impl.varpro;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+/**
+ * <p>
+ * A function fitting job which uses variable projection. If all
+ * parameters of the model are linear, the optimal parameters are
+ * computed directly by linear least squares before {@link #fit()} is
+ * even called, see
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.FittingUtils#canFitInClosedForm(org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction, org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure)}
+ * . Otherwise, the job distinguishes two cases:
+ * </p>
+ * <ol>
+ * <li>If only some parameters are linear and the quality measure is the
+ * {@link WeightedRootMeanSquareError}, an inner
+ * {@link LSSimplexFitter} job optimizes the non-linear parameters of a
+ * {@link _ReducedModel} under the {@link _ProjectedMeasure}, which
+ * computes the linear parameters for each evaluated point. The result is
+ * then expanded to the complete parameter vector.</li>
+ * <li>Otherwise, the inner job fits the complete model.</li>
+ * </ol>
+ * <p>
+ * The inner job is created with the same settings as this job. Its
+ * evaluations are counted against its own budget and not reported in the
+ * metrics of this job.
+ * </p>
+ */
+final class _VarProFittingJob extends FittingJob {
+
+  /** the projected measure, or {@code null} if no projection is used */
+  private final _ProjectedMeasure m_projected;
+  /**
+   * the inner job, which fits the reduced model if {@link #m_projected}
+   * is not {@code null} or the complete model otherwise
+   */
+  private final FittingJob m_inner;
+
+  /**
+   * create the fitting job
+   *
+   * @param builder
+   *          the builder
+   */
+  _VarProFittingJob(final FittingJobBuilder builder) {
+    super(builder);
+
+    final FittingJobBuilder inner;
+    final BasicModel model;
+    final WeightedRootMeanSquareError measure;
+    final double[][] starts;
+    final int numParams;
+    double[][] reducedStarts;
+    int linear, index, count;
+
+    inner = LSSimplexFitter.getInstance().use()//
+        .setPoints(this.m_data)//
+        .setParallel(builder.isParallel())//
+        .setEffort(builder.getEffort())//
+        .setTimeLimit(builder.getTimeLimit())//
+        .setMaxEvaluations(builder.getMaxEvaluations())//
+        .setTargetQuality(builder.getTargetQuality())//
+        .setCoresetSize(builder.getCoresetSize());
+    if (builder.getLogger() != null) {
+      inner.setLogger(builder.getLogger());
+    }
+
+    numParams = this.m_function.getParameterCount();
+    linear = 0;
+    if ((this.m_function instanceof BasicModel)
+        && (this.m_measure instanceof WeightedRootMeanSquareError)) {
+      linear = ((BasicModel) (this.m_function)).getLinearParameterCount();
+      if ((linear < 0) || (linear > numParams)) {
+        linear = 0;
+      }
+    }
+
+    starts = builder.getStartingPoints();
+    if ((linear > 0) && (linear < numParams)) {
+      model = ((BasicModel) (this.m_function));
+      measure = ((WeightedRootMeanSquareError) (this.m_measure));
+      this.m_projected = new _ProjectedMeasure(measure, model, linear);
+      inner.setQualityMeasure(this.m_projected);
+      inner.setFunctionToFit(
+          new _ReducedModel(model, this.m_projected, linear));
+
+      if (starts != null) {
+        reducedStarts = new double[starts.length][];
+        count = 0;
+        for (index = 0; index < starts.length; index++) {
+          if (starts[index].length == numParams) {
+            reducedStarts[count] = new double[numParams - linear];
+            System.arraycopy(starts[index], linear,
+                reducedStarts[count], 0, (numParams - linear));
+            ++count;
+          }
+        }
+        if (count > 0) {
+          if (count < reducedStarts.length) {
+            System.arraycopy(reducedStarts, 0,
+                reducedStarts = new double[count][], 0, count);
+          }
+          inner.setStartingPoints(reducedStarts);
+        }
+      }
+    } else {
+      this.m_projected = null;
+      inner.setQualityMeasure(this.m_measure);
+      inner.setFunctionToFit(this.m_function);
+      if (starts != null) {
+        inner.setStartingPoints(starts);
+      }
+    }
+
+    this.m_inner = inner.create();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void fit() {
+    final FittingResult result;
+
+    result = this.m_inner.call();
+    if (this.m_projected != null) {
+      this.evaluate(
+          this.m_projected._expand(result.getFittedParametersRef()));
+    } else {
+      this.evaluate(result.getFittedParametersRef());
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return VarProFitter.METHOD;
+  }
+}
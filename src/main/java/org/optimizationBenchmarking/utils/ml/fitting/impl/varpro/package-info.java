@@ -0,0 +1,6 @@
+/**
+ * A function fitter which uses variable projection to fit models which
+ * are linear in some of their parameters: only the non-linear parameters
+ * are optimized, the linear ones are computed in closed form.
+ */
+package org.optimizationBenchmarking.utils.ml.fitting.impl.varpro;
@@ -0,0 +1,330 @@
+package org.optimizationBenchmarking.utils.ml.fitting.incremental;
+
+import java.util.Arrays;
+
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+/**
+ * <p>
+ * A session which fits a function to a growing set of points. Points can
+ * be {@linkplain #append(double, double) appended} at any time, and
+ * {@link #getResult()} returns a fit of the function to all points
+ * appended so far.
+ * </p>
+ * <p>
+ * The first fit is computed with a global function fitter. Afterwards,
+ * whenever new points have been appended, the session first only refines
+ * the previous parameters with the Levenberg-Marquardt algorithm, which
+ * is much cheaper than a complete fitting process. Only if the quality of
+ * the refined fit is worse than the quality of the latest global fit by
+ * more than the given relative tolerance, a new global fit is performed,
+ * which starts at the refined parameters.
+ * </p>
+ * <p>
+ * The session uses the
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError}
+ * as quality measure. At each update, the newly appended points are
+ * {@linkplain PreparedDataset#append(IMatrix) appended} to the prepared
+ * data and
+ * {@linkplain WeightedRootMeanSquareError#append(IMatrix) to the
+ * measure}, so the costs of an update do not grow with the number of
+ * points appended before. The session works with any
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction}.
+ * All methods are thread-safe.
+ * </p>
+ */
+public final class IncrementalFittingSession {
+
+  /** the default relative tolerance */
+  public static final double DEFAULT_TOLERANCE = 0.1d;
+
+  /** the global fitter */
+  private final IFunctionFitter m_fitter;
+  /** the function to fit */
+  private final ParametricUnaryFunction m_function;
+  /**
+   * the relative amount by which the quality of a refined fit may be
+   * worse than that of the latest global fit
+   */
+  private final double m_tolerance;
+
+  /**
+   * the points appended since the last update, stored as {@code x}-
+   * {@code y} pairs
+   */
+  private double[] m_points;
+  /** the number of points appended since the last update */
+  private int m_pending;
+  /** the prepared data, or {@code null} if none was prepared yet */
+  private PreparedDataset m_data;
+  /** the measure for the prepared data */
+  private WeightedRootMeanSquareError m_measure;
+
+  /** the current result, or {@code null} if none was computed yet */
+  private IFittingResult m_result;
+  /** has a point been appended since the last fit? */
+  private boolean m_changed;
+  /** the quality of the latest global fit */
+  private double m_globalQuality;
+
+  /** the number of global fits */
+  private int m_globalFits;
+  /** the number of local refinements */
+  private int m_localFits;
+
+  /**
+   * create the fitting session with the
+   * {@linkplain #DEFAULT_TOLERANCE default tolerance}
+   *
+   * @param fitter
+   *          the fitter to use for global fits
+   * @param function
+   *          the function to fit
+   */
+  public IncrementalFittingSession(final IFunctionFitter fitter,
+      final ParametricUnaryFunction function) {
+    this(fitter, function, IncrementalFittingSession.DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * create the fitting session
+   *
+   * @param fitter
+   *          the fitter to use for global fits
+   * @param function
+   *          the function to fit
+   * @param tolerance
+   *          the relative amount by which the quality of a locally
+   *          refined fit may be worse than the quality of the latest
+   *          global fit before a new global fit is performed
+   */
+  public IncrementalFittingSession(final IFunctionFitter fitter,
+      final ParametricUnaryFunction function, final double tolerance) {
+    super();
+
+    if (fitter == null) {
+      throw new IllegalArgumentException(//
+          "Function fitter cannot be null."); //$NON-NLS-1$
+    }
+    FittingJobBuilder.validateFunction(function);
+    if ((tolerance != tolerance) || (tolerance < 0d)) {
+      throw new IllegalArgumentException(//
+          "Tolerance must not be NaN or negative, but is " //$NON-NLS-1$
+              + tolerance);
+    }
+
+    this.m_fitter = fitter;
+    this.m_function = function;
+    this.m_tolerance = tolerance;
+    this.m_points = new double[32];
+    this.m_globalQuality = Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Append a point
+   *
+   * @param x
+   *          the {@code x}-coordinate
+   * @param y
+   *          the {@code y}-coordinate
+   */
+  public final synchronized void append(final double x, final double y) {
+    final int index;
+    double[] points;
+
+    if ((x != x) || (y != y) || (Math.abs(x) >= Double.POSITIVE_INFINITY)
+        || (Math.abs(y) >= Double.POSITIVE_INFINITY)) {
+      throw new IllegalArgumentException(//
+          "Coordinates must be finite, but are " + x + //$NON-NLS-1$
+              " and " + y); //$NON-NLS-1$
+    }
+
+    points = this.m_points;
+    index = (this.m_pending << 1);
+    if (index >= points.length) {
+      System.arraycopy(points, 0, //
+          this.m_points = points = new double[index << 1], 0, index);
+    }
+    points[index] = x;
+    points[index + 1] = y;
+    ++this.m_pending;
+    this.m_changed = true;
+  }
+
+  /**
+   * Append all points of a matrix
+   *
+   * @param points
+   *          the matrix with the points, with one {@code x}-{@code y}
+   *          pair per row
+   */
+  public final synchronized void append(final IMatrix points) {
+    final int count;
+    int index;
+
+    FittingQualityMeasure.validateData(points);
+    count = points.m();
+    for (index = 0; index < count; index++) {
+      this.append(points.getDouble(index, 0), points.getDouble(index, 1));
+    }
+  }
+
+  /**
+   * Get the number of points appended so far
+   *
+   * @return the number of points appended so far
+   */
+  public final synchronized int getPointCount() {
+    return (((this.m_data != null) ? this.m_data.m() : 0)
+        + this.m_pending);
+  }
+
+  /**
+   * Get the number of global fits performed so far
+   *
+   * @return the number of global fits performed so far
+   */
+  public final synchronized int getGlobalFitCount() {
+    return this.m_globalFits;
+  }
+
+  /**
+   * Get the number of local refinements performed so far
+   *
+   * @return the number of local refinements performed so far
+   */
+  public final synchronized int getLocalFitCount() {
+    return this.m_localFits;
+  }
+
+  /**
+   * Fit the function to the current points with a given fitter
+   *
+   * @param fitter
+   *          the fitter
+   * @param data
+   *          the points
+   * @param measure
+   *          the quality measure
+   * @param start
+   *          the starting point, or {@code null} if there is none
+   * @return the result
+   */
+  private final IFittingResult __fit(final IFunctionFitter fitter,
+      final PreparedDataset data, final WeightedRootMeanSquareError measure,
+      final double[] start) {
+    final IFittingJobBuilder builder;
+
+    builder = fitter.use()//
+        .setFunctionToFit(this.m_function)//
+        .setPoints(data)//
+        .setQualityMeasure(measure);
+    if ((start != null) && (builder instanceof FittingJobBuilder)) {
+      ((FittingJobBuilder) builder).setStartingPoints(start);
+    }
+
+    try {
+      return builder.create().call();
+    } catch (final RuntimeException error) {
+      throw error;
+    } catch (final Exception error) {
+      throw new IllegalArgumentException(//
+          "Error while fitting function " + this.m_function //$NON-NLS-1$
+              + " with " + fitter, //$NON-NLS-1$
+          error);
+    }
+  }
+
+  /**
+   * Add the points appended since the last update to the prepared data
+   * and the measure.
+   */
+  private final void __update() {
+    final IMatrix points;
+
+    if (this.m_pending <= 0) {
+      return;
+    }
+
+    points = new DoubleMatrix1D(
+        Arrays.copyOf(this.m_points, (this.m_pending << 1)),
+        this.m_pending, 2);
+    if (this.m_data == null) {
+      this.m_data = PreparedDataset.prepare(points);
+      this.m_measure = new WeightedRootMeanSquareError(this.m_data);
+    } else {
+      this.m_data = this.m_data.append(points);
+      this.m_measure = this.m_measure.append(points);
+    }
+    this.m_pending = 0;
+  }
+
+  /**
+   * Get the fit of the function to all points appended so far. If points
+   * have been appended since the last call, the fit is updated first.
+   *
+   * @return the fit of the function to all points appended so far
+   * @throws IllegalStateException
+   *           if no points have been appended yet
+   */
+  public final synchronized IFittingResult getResult() {
+    final PreparedDataset data;
+    final WeightedRootMeanSquareError measure;
+    IFittingResult result;
+    double[] start;
+
+    if (!(this.m_changed)) {
+      if (this.m_result == null) {
+        throw new IllegalStateException(//
+            "No points have been appended."); //$NON-NLS-1$
+      }
+      return this.m_result;
+    }
+
+    this.__update();
+    data = this.m_data;
+    measure = this.m_measure;
+
+    result = this.m_result;
+    start = null;
+    if (result != null) {
+      start = result.getFittedParametersRef();
+      try {
+        result = this.__fit(_LocalRefinementFitter._getInstance(), data,
+            measure, start);
+        ++this.m_localFits;
+        start = result.getFittedParametersRef();
+      } catch (@SuppressWarnings("unused") final IllegalArgumentException error) {
+        // the refinement failed, so we need a global fit
+        result = null;
+      }
+    }
+
+    if ((result == null) || (result.getQuality() > //
+    (this.m_globalQuality * (1d + this.m_tolerance)))) {
+      result = this.__fit(this.m_fitter, data, measure, start);
+      ++this.m_globalFits;
+      this.m_globalQuality = result.getQuality();
+    }
+
+    this.m_result = result;
+    this.m_changed = false;
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return ("Incremental fitting of " + this.m_function + //$NON-NLS-1$
+        " with " + this.m_fitter); //$NON-NLS-1$
+  }
+}
@@ -0,0 +1,49 @@
+package org.optimizationBenchmarking.utils.ml.fitting.incremental;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFitter;
+
+/**
+ * A fitter which only refines its starting point with the
+ * Levenberg-Marquardt algorithm. It is used by the
+ * {@link IncrementalFittingSession} to update a fit after new points have
+ * been added.
+ */
+final class _LocalRefinementFitter extends OptimizationBasedFitter {
+
+  /** the method name */
+  static final String METHOD = "Levenberg-Marquardt Refinement"; //$NON-NLS-1$
+
+  /** create */
+  _LocalRefinementFitter() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final FittingJob create(final FittingJobBuilder builder) {
+    return new _LocalRefinementJob(builder);
+  }
+
+  /**
+   * Get the globally shared instance of the local refinement fitter
+   *
+   * @return the instance of the local refinement fitter
+   */
+  static final _LocalRefinementFitter _getInstance() {
+    return __LocalRefinementFitterHolder.INSTANCE;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return _LocalRefinementFitter.METHOD;
+  }
+
+  /** the instance holder */
+  private static final class __LocalRefinementFitterHolder {
+    /** the shared instance */
+    static final _LocalRefinementFitter INSTANCE = new _LocalRefinementFitter();
+  }
+}
@@ -0,0 +1,45 @@
+package org.optimizationBenchmarking.utils.ml.fitting.incremental;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
+
+/**
+ * A fitting job which evaluates its first starting point and refines it
+ * with the Levenberg-Marquardt algorithm, i.e., which only performs a
+ * local search.
+ */
+final class _LocalRefinementJob
+    extends OptimizationBasedFittingJob<FittingCandidateSolution> {
+
+  /**
+   * create the fitting job
+   *
+   * @param builder
+   *          the builder
+   */
+  _LocalRefinementJob(final FittingJobBuilder builder) {
+    super(builder);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void doFit() {
+    final FittingCandidateSolution current;
+
+    current = new FittingCandidateSolution(
+        this.m_function.getParameterCount());
+    this.createGuess(this.m_function.createParameterGuesser(this.m_data),
+        0, current.solution, ThreadLocalRandom.current());
+    current.quality = this.evaluate(current.solution);
+    this.refineWithLevenbergMarquardt(current);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return _LocalRefinementFitter.METHOD;
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package provides sessions which fit a function to a growing set of
+ * points incrementally.
+ */
+package org.optimizationBenchmarking.utils.ml.fitting.incremental;
@@ -40,6 +40,134 @@ public abstract class BasicModel extends ParametricUnaryFunction {
     return new DefaultParameterGuesser();
   }
 
+  /**
+   * Compute the values of this model for a whole array of {@code x}
+   * -coordinates at once. The result must be the same as if
+   * {@link #value(double, double[])} was invoked for each coordinate. The
+   * destination array may be the same as the coordinate array.
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param parameters
+   *          the parameters
+   * @param dest
+   *          the destination array for the values
+   * @param count
+   *          the number of points to process, starting at index {@code 0}
+   */
+  public void valueBatch(final double[] x, final double[] parameters,
+      final double[] dest, final int count) {
+    int i;
+
+    for (i = count; (--i) >= 0;) {
+      dest[i] = this.value(x[i], parameters);
+    }
+  }
+
+  /**
+   * Compute the gradients of this model for a whole array of {@code x}
+   * -coordinates at once, i.e., fill the rows of a Jacobian matrix.
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param parameters
+   *          the parameters
+   * @param gradients
+   *          the destination rows for the gradients, one per point
+   * @param count
+   *          the number of points to process, starting at index {@code 0}
+   */
+  public void gradientBatch(final double[] x, final double[] parameters,
+      final double[][] gradients, final int count) {
+    int i;
+
+    for (i = count; (--i) >= 0;) {
+      this.gradient(x[i], parameters, gradients[i]);
+    }
+  }
+
+  /**
+   * Compute both the values and the gradients of this model for a whole
+   * array of {@code x}-coordinates at once. Models should override this
+   * method to compute sub-expressions which are shared by the value and
+   * the gradient only once per point. The value array may be the same as
+   * the coordinate array.
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param parameters
+   *          the parameters
+   * @param values
+   *          the destination array for the values
+   * @param gradients
+   *          the destination rows for the gradients, one per point
+   * @param count
+   *          the number of points to process, starting at index {@code 0}
+   */
+  public void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    double current;
+    int i;
+
+    for (i = count; (--i) >= 0;) {
+      current = x[i];
+      this.gradient(current, parameters, gradients[i]);
+      values[i] = this.value(current, parameters);
+    }
+  }
+
+  /**
+   * Compute the basis functions {@code g0(x)...g[k-1](x)} of the
+   * {@linkplain #getLinearParameterCount() linear parameters} for a whole
+   * array of {@code x}-coordinates at once. They must be consistent with
+   * {@link #value(double, double[])}, i.e., wherever the model returns a
+   * finite value {@code f(x)}, it must hold that
+   * {@code f(x)=p[0]*g0(x)+...+p[k-1]*g[k-1](x)}. By default, the basis
+   * functions are taken from the
+   * {@linkplain #gradientBatch(double[], double[], double[][], int)
+   * gradients}, since the derivative of the model for the parameter
+   * {@code p[i]} with {@code i<k} is {@code gi(x)}. Models whose gradient
+   * deviates from this for numerical reasons, e.g., at singularities,
+   * must override this method.
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param parameters
+   *          the parameters, only the non-linear ones are used
+   * @param basis
+   *          the destination rows, one per point, each with
+   *          {@link #getParameterCount()} elements: the first {@code k}
+   *          elements receive the basis functions, the remaining ones may
+   *          be overwritten with arbitrary values
+   * @param count
+   *          the number of points to process, starting at index {@code 0}
+   */
+  public void linearBasisBatch(final double[] x, final double[] parameters,
+      final double[][] basis, final int count) {
+    this.gradientBatch(x, parameters, basis, count);
+  }
+
+  /**
+   * Get the number {@code k} of leading parameters in which this model is
+   * linear. If {@code k>0}, the model must have the form
+   * {@code f(x)=p[0]*g0(x)+...+p[k-1]*g[k-1](x)}, where the basis
+   * functions {@code gi} only depend on {@code x} and the remaining
+   * parameters {@code p[k]...}. The basis functions are provided by
+   * {@link #linearBasisBatch(double[], double[], double[][], int)} and
+   * the linear parameters can be computed in closed form by linear least
+   * squares, see
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError#solveLinearParameters(BasicModel, double[])}
+   * . If all parameters are linear, no iterative optimization is needed
+   * at all.
+   *
+   * @return the number of leading linear parameters, {@code 0} by
+   *         default
+   */
+  public int getLinearParameterCount() {
+    return 0;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final void mathRender(final ITextOutput out,
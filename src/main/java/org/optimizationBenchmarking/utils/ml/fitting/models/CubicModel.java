@@ -34,12 +34,54 @@ public class CubicModel extends BasicModel {
     Polynomials.degree3Gradient(x, gradient);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final void valueBatch(final double[] x,
+      final double[] parameters, final double[] dest, final int count) {
+    final double a, b, c, d;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      dest[i] = Polynomials.degree3Compute(x[i], a, b, c, d);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final double a, b, c, d;
+    double currentX;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      currentX = x[i];
+      Polynomials.degree3Gradient(currentX, gradients[i]);
+      values[i] = Polynomials.degree3Compute(currentX, a, b, c, d);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public final int getParameterCount() {
     return 4;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int getLinearParameterCount() {
+    return 4;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final void mathRender(final ITextOutput out,
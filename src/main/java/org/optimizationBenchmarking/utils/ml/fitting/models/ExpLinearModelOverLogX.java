@@ -98,12 +98,80 @@ public class ExpLinearModelOverLogX extends _ModelBase {
         d);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final double a, b, c, d;
+    double[] gradient;
+    double currentX, dx, logdx, dxc, res;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+
+    for (i = count; (--i) >= 0;) {
+      currentX = x[i];
+      gradient = gradients[i];
+
+      if (MathUtils.isFinite(c) && ((dx = (d + currentX)) > 0d) && //
+          (dx < Double.POSITIVE_INFINITY) && //
+          ((dxc = _ModelBase._exp_o_p(c, (logdx = Math.log(dx)))) //
+          >= Double.MIN_NORMAL) && //
+          (dxc < Double.POSITIVE_INFINITY)) {
+        // In the normal case, log(x+d) and (x+d)^c=exp(c*log(x+d)) are
+        // shared by the value and all gradient elements, and
+        // (x+d)^(c-1) is (x+d)^c/(x+d). Only the special cases are
+        // delegated to the single-point methods.
+        gradient[0] = 1d;
+        gradient[1] = _ModelBase._gradient(dxc, b);
+        gradient[2] = _ModelBase._gradient(b * dxc * logdx, c);
+        gradient[3] = _ModelBase._gradient(b * c * (dxc / dx), d);
+
+        res = (a + (b * dxc));
+        values[i] = (MathUtils.isFinite(res) ? res//
+            : (MathUtils.isFinite(a) ? a : 0d));
+      } else {
+        this.gradient(currentX, parameters, gradient);
+        values[i] = this.value(currentX, parameters);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void linearBasisBatch(final double[] x,
+      final double[] parameters, final double[][] basis, final int count) {
+    final double c, d;
+    double[] row;
+    double res;
+    int i;
+
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      row = basis[i];
+      row[0] = 1d;
+      res = _ModelBase._exp_o_p(c, Math.log(d + x[i]));
+      row[1] = (MathUtils.isFinite(res) ? res : 0d);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public final int getParameterCount() {
     return 4;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int getLinearParameterCount() {
+    return 2;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final void mathRender(final ITextOutput out,
@@ -367,7 +435,8 @@ public class ExpLinearModelOverLogX extends _ModelBase {
         steps = 100;
         do {
           temp = -3d * Math.exp(-13d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 2, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(0, 2, temp, dest))));
         dest[2] = temp;
 
       } else {
@@ -378,22 +447,29 @@ public class ExpLinearModelOverLogX extends _ModelBase {
         do {
           temp = -(Math.exp(
               random.nextDouble() * Math.log(minMaxY[1] - minMaxY[0])));
-        } while (((--steps) > 0) && this.checkParameter(0, 1, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 1, temp, dest))));
         dest[1] = temp;
 
         steps = 100;
         do {
           temp = 2d * Math.exp(-3.5d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 2, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 2, temp, dest))));
         dest[2] = temp;
 
       }
 
+      // d must keep d+x positive for all x, so we draw the offset of the
+      // smallest x of all points (not only of the sampled ones)
+      // log-uniformly from the range of x-coordinates
       steps = 100;
       do {
-        temp = -(minMaxX[0] + Math
-            .exp(random.nextDouble() * Math.log(minMaxX[1] - minMaxX[0])));
-      } while (((--steps) > 0) && this.checkParameter(0, 3, temp, dest));
+        temp = (Math.exp(
+            random.nextDouble() * Math.log(minMaxX[1] - minMaxX[0]))
+            - this.m_minX);
+      } while (((--steps) > 0)
+          && (!(this.checkParameter(variant, 3, temp, dest))));
       dest[3] = temp;
 
       return true;
@@ -134,12 +134,96 @@ public final class ExponentialDecayModel extends _ModelBase {
     }
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final double a, b, c, d;
+    double[] gradient;
+    double currentX, xd, cxd, expcxd, res;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+
+    for (i = count; (--i) >= 0;) {
+      currentX = x[i];
+      gradient = gradients[i];
+
+      // x^d and exp(c*x^d) are shared by value and gradient
+      xd = _ModelBase._pow(currentX, d);
+      if ((xd == 0d) || (c == 0d)) {
+        cxd = 0d;
+      } else {
+        cxd = c * xd;
+      }
+      expcxd = Math.exp(cxd);
+
+      gradient[0] = 1d;
+      gradient[1] = _ModelBase._gradient(expcxd, b);
+      if (b != 0d) {
+        res = b * xd * expcxd;
+        gradient[2] = _ModelBase._gradient(res, c);
+        gradient[3] = (((res *= c) != 0d)
+            ? _ModelBase._gradient(res * Math.log(currentX), d) : 0d);
+      } else {
+        gradient[2] = gradient[3] = 0d;
+      }
+
+      if (cxd != 0d) {
+        if (((res = expcxd) != 0d) && //
+            ((res *= b) != 0d)) {
+          values[i] = ((((res += a) != 0d) && MathUtils.isFinite(res))
+              ? res : 0d);
+        } else {
+          values[i] = (MathUtils.isFinite(a) ? a : 0d);
+        }
+      } else {
+        res = (a + b);
+        values[i] = (MathUtils.isFinite(res) ? res : 0d);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void linearBasisBatch(final double[] x,
+      final double[] parameters, final double[][] basis, final int count) {
+    final double c, d;
+    double[] row;
+    double xd, res;
+    int i;
+
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      row = basis[i];
+      row[0] = 1d;
+      if ((c == 0d) || ((xd = _ModelBase._pow(x[i], d)) == 0d)
+          || ((res = (c * xd)) == 0d)) {
+        row[1] = 1d;
+      } else {
+        res = Math.exp(res);
+        row[1] = (MathUtils.isFinite(res) ? res : 0d);
+      }
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public final int getParameterCount() {
     return 4;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int getLinearParameterCount() {
+    return 2;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final void mathRender(final ITextOutput out,
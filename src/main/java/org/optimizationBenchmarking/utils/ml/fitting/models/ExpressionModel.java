@@ -0,0 +1,156 @@
+package org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * A model whose formula is defined once as a {@link ModelExpression}.
+ * Values and gradients are derived from this definition automatically
+ * with forward-mode automatic differentiation, so no derivatives need to
+ * be written by hand. The value and all derivatives of a point are
+ * computed in a single pass, sub-expressions which occur several times
+ * are computed only once, and sub-expressions which do not depend on
+ * {@code x} are computed only once per batch. Non-finite derivatives are
+ * handled like in the hand-written models: {@code NaN} becomes {@code 0}
+ * and infinities become a tiny step into the right direction.
+ * </p>
+ * <p>
+ * A subclass only needs to define its formula and pass its root term to
+ * the constructor, e.g.,
+ * </p>
+ *
+ * <pre>
+ * public MyModel() {
+ *   super(MyModel.__define());
+ * }
+ *
+ * private static final ModelExpression.Term __define() {
+ *   final ModelExpression e = new ModelExpression(2);
+ *   return e.multiply(e.parameter(0),
+ *       e.exp(e.multiply(e.parameter(1), e.x())));
+ * }
+ * </pre>
+ * <p>
+ * and implement the methods for rendering the formula. It should usually
+ * also provide a
+ * {@linkplain #createParameterGuesser(org.optimizationBenchmarking.utils.math.matrix.IMatrix)
+ * parameter guesser} tailored to the model. The evaluation does not
+ * allocate any memory: The work space is kept by the model and re-used,
+ * only threads evaluating the same model at the same time get work
+ * spaces of their own.
+ * </p>
+ */
+public abstract class ExpressionModel extends _ModelBase {
+
+  /** the compiled program */
+  private final _ExpressionProgram m_program;
+
+  /** the cached work space, or {@code null} if it is in use */
+  private final AtomicReference<_ExpressionProgram._Workspace> m_workspace;
+
+  /**
+   * create the expression-based model
+   *
+   * @param formula
+   *          the root term of the formula of the model
+   */
+  protected ExpressionModel(final ModelExpression.Term formula) {
+    super();
+    if (formula == null) {
+      throw new IllegalArgumentException("Formula cannot be null."); //$NON-NLS-1$
+    }
+    this.m_program = new _ExpressionProgram(formula);
+    this.m_workspace = new AtomicReference<>(
+        this.m_program._createWorkspace());
+  }
+
+  /**
+   * Take the work space for an evaluation
+   *
+   * @return the work space
+   */
+  private final _ExpressionProgram._Workspace __acquire() {
+    final _ExpressionProgram._Workspace workspace;
+
+    workspace = this.m_workspace.getAndSet(null);
+    return ((workspace != null) ? workspace
+        : this.m_program._createWorkspace());
+  }
+
+  /**
+   * Return the work space after an evaluation
+   *
+   * @param workspace
+   *          the work space
+   */
+  private final void __release(
+      final _ExpressionProgram._Workspace workspace) {
+    this.m_workspace.lazySet(workspace);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final double value(final double x, final double[] parameters) {
+    final _ExpressionProgram._Workspace workspace;
+    final double result;
+
+    workspace = this.__acquire();
+    result = this.m_program._value(workspace, x, parameters, null);
+    this.__release(workspace);
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void gradient(final double x, final double[] parameters,
+      final double[] gradient) {
+    final _ExpressionProgram._Workspace workspace;
+
+    workspace = this.__acquire();
+    this.m_program._value(workspace, x, parameters, gradient);
+    this.__release(workspace);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void valueBatch(final double[] x,
+      final double[] parameters, final double[] dest, final int count) {
+    final _ExpressionProgram._Workspace workspace;
+
+    workspace = this.__acquire();
+    this.m_program._batch(workspace, x, parameters, dest, null, count);
+    this.__release(workspace);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void gradientBatch(final double[] x,
+      final double[] parameters, final double[][] gradients,
+      final int count) {
+    final _ExpressionProgram._Workspace workspace;
+
+    workspace = this.__acquire();
+    this.m_program._batch(workspace, x, parameters, null, gradients,
+        count);
+    this.__release(workspace);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final _ExpressionProgram._Workspace workspace;
+
+    workspace = this.__acquire();
+    this.m_program._batch(workspace, x, parameters, values, gradients,
+        count);
+    this.__release(workspace);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int getParameterCount() {
+    return this.m_program.m_parameterCount;
+  }
+}
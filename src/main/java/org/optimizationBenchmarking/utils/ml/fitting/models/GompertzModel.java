@@ -116,12 +116,86 @@ public final class GompertzModel extends _ModelBase {
     }
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final double a, b, c, d;
+    final boolean useB;
+    double[] gradient;
+    double currentX, dx, expdx, cexpdx, expcexpdx, res;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+    useB = ((b != 0d) && (b == b));
+
+    for (i = count; (--i) >= 0;) {
+      currentX = x[i];
+      gradient = gradients[i];
+
+      if ((d != 0d) && (currentX != 0d) && //
+          ((dx = (d * currentX)) == dx) && //
+          ((cexpdx = (c * (expdx = Math.exp(dx)))) == cexpdx)) {
+        // In the normal case, exp(d*x) and exp(c*exp(d*x)) are shared
+        // by the value and all gradient elements. Only the special cases
+        // are delegated to the single-point methods.
+        expcexpdx = Math.exp(cexpdx);
+
+        gradient[0] = 1d;
+        gradient[1] = _ModelBase._gradient(expcexpdx, b);
+        if (useB) {
+          res = (b * Math.exp(cexpdx + dx));
+          gradient[2] = _ModelBase._gradient(res, c);
+          gradient[3] = _ModelBase._gradient((res * c * currentX), d);
+        } else {
+          gradient[2] = gradient[3] = 0d;
+        }
+
+        res = ((expcexpdx * b) + a);
+        values[i] = (MathUtils.isFinite(res) ? res//
+            : (MathUtils.isFinite(a) ? a : 0d));
+      } else {
+        this.gradient(currentX, parameters, gradient);
+        values[i] = this.value(currentX, parameters);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void linearBasisBatch(final double[] x,
+      final double[] parameters, final double[][] basis, final int count) {
+    final double c, d;
+    double[] row;
+    double res;
+    int i;
+
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      row = basis[i];
+      row[0] = 1d;
+      res = _ModelBase._exp_o_p(_ModelBase._exp_o_p(d, x[i]), c);
+      row[1] = (MathUtils.isFinite(res) ? res : 0d);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public final int getParameterCount() {
     return 4;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int getLinearParameterCount() {
+    return 2;
+  }
+
   /** {@inheritDoc} */
   @Override // a+(b*exp(c*exp(d*x)))
   public final void mathRender(final ITextOutput out,
@@ -353,13 +427,15 @@ public final class GompertzModel extends _ModelBase {
         steps = 100;
         do {
           temp = -40d * Math.exp(-14d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 2, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(0, 2, temp, dest))));
         dest[2] = temp;
 
         steps = 100;
         do {
           temp = -10d * Math.exp(-10d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 3, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(0, 3, temp, dest))));
         dest[3] = temp;
 
       } else {
@@ -369,13 +445,15 @@ public final class GompertzModel extends _ModelBase {
         steps = 100;
         do {
           temp = -10d * Math.exp(-10d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 2, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 2, temp, dest))));
         dest[2] = temp;
 
         steps = 100;
         do {
           temp = 2d * Math.exp(-10d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 3, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 3, temp, dest))));
         dest[3] = temp;
       }
 
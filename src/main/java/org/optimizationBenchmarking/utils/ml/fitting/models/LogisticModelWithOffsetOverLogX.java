@@ -207,36 +207,81 @@ public final class LogisticModelWithOffsetOverLogX extends _ModelBase {
   /** {@inheritDoc} */
   @Override
   public final double value(final double x, final double[] parameters) {
-    double res, a;
+    return LogisticModelWithOffsetOverLogX.__value(
+        _ModelBase._pow(x, parameters[3]), parameters[0], parameters[1],
+        parameters[2]);
+  }
 
-    res = 1d + (_ModelBase._pow(x, parameters[3]) * parameters[2]);
+  /**
+   * Compute the value of the model based on the pre-computed power
+   * {@code x^d}
+   *
+   * @param xd
+   *          the power {@code x^d}
+   * @param a
+   *          the first parameter
+   * @param b
+   *          the second parameter
+   * @param c
+   *          the third parameter
+   * @return the value
+   */
+  private static final double __value(final double xd, final double a,
+      final double b, final double c) {
+    double res;
+
+    res = 1d + (xd * c);
     if (MathUtils.isFinite(res)) {
-      res = (parameters[1] / res) + (a = parameters[0]);
+      res = (b / res) + a;
       return ((MathUtils.isFinite(res)) ? res
           : (MathUtils.isFinite(a) ? a : 0d));
     }
-    return parameters[0];
+    return a;
   }
 
   /** {@inheritDoc} */
   @Override
   public final void gradient(final double x, final double[] parameters,
       final double[] gradient) {
-    final double b, c, d, xd, cxd, bxd, div;
+    LogisticModelWithOffsetOverLogX.__gradient(x,
+        _ModelBase._pow(x, parameters[3]), parameters, gradient);
+  }
 
-    gradient[0] = 1;
+  /**
+   * Compute the gradient of the model based on the pre-computed power
+   * {@code x^d}
+   *
+   * @param x
+   *          the {@code x}-coordinate
+   * @param xd
+   *          the power {@code x^d}
+   * @param parameters
+   *          the parameters
+   * @param gradient
+   *          the destination for the gradient
+   */
+  private static final void __gradient(final double x, final double xd,
+      final double[] parameters, final double[] gradient) {
+    final double b, c, cxd, bxd, div, res;
 
-    d = parameters[3];
-    xd = _ModelBase._pow(x, d);
+    gradient[0] = 1;
 
-    if ((xd == 0d) || ((cxd = ((c = parameters[2]) * xd)) <= 0d)) {
+    if (xd == 0d) {
       gradient[1] = 1d;
       gradient[2] = gradient[3] = 0d;
       return;
     }
 
+    cxd = ((c = parameters[2]) * xd);
+    res = (1d + cxd);
+    if ((res == 0d) || (!(MathUtils.isFinite(res)))) {
+      // the model value is a, see __value
+      gradient[1] = gradient[2] = gradient[3] = 0d;
+      return;
+    }
+
     b = parameters[1];
-    gradient[1] = _ModelBase._gradient((1d / (1d + cxd)), b);
+    gradient[1] = _ModelBase._gradient((1d / res), b);
 
     bxd = (b * xd);
     if (bxd == 0d) {
@@ -247,7 +292,65 @@ public final class LogisticModelWithOffsetOverLogX extends _ModelBase {
     div = _ModelBase._add(1d, 2d * cxd, cxd * cxd);
     gradient[2] = _ModelBase._gradient(((-bxd) / div), c);
     gradient[3] = _ModelBase._gradient(((-(c * bxd * Math.log(x))) / div),
-        d);
+        parameters[3]);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void valueBatch(final double[] x,
+      final double[] parameters, final double[] dest, final int count) {
+    final double a, b, c, d;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      dest[i] = LogisticModelWithOffsetOverLogX.__value(
+          _ModelBase._pow(x[i], d), a, b, c);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final double a, b, c, d;
+    double currentX, xd;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      currentX = x[i];
+      xd = _ModelBase._pow(currentX, d);
+      LogisticModelWithOffsetOverLogX.__gradient(currentX, xd, parameters,
+          gradients[i]);
+      values[i] = LogisticModelWithOffsetOverLogX.__value(xd, a, b, c);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void linearBasisBatch(final double[] x,
+      final double[] parameters, final double[][] basis, final int count) {
+    final double c, d;
+    double[] row;
+    double res;
+    int i;
+
+    c = parameters[2];
+    d = parameters[3];
+    for (i = count; (--i) >= 0;) {
+      row = basis[i];
+      row[0] = 1d;
+      res = (1d / (1d + (_ModelBase._pow(x[i], d) * c)));
+      row[1] = (MathUtils.isFinite(res) ? res : 0d);
+    }
   }
 
   /** {@inheritDoc} */
@@ -256,6 +359,12 @@ public final class LogisticModelWithOffsetOverLogX extends _ModelBase {
     return 4;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int getLinearParameterCount() {
+    return 2;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final void mathRender(final ITextOutput out,
@@ -454,19 +563,22 @@ public final class LogisticModelWithOffsetOverLogX extends _ModelBase {
         do {
           temp = (minMax[1] - minMax[0])
               * (1d + (0.1d * random.nextGaussian()));
-        } while (((--steps) > 0) && this.checkParameter(0, 1, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(0, 1, temp, dest))));
         dest[1] = temp;
 
         steps = 100;
         do {
           temp = Math.exp(-12d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 2, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(0, 2, temp, dest))));
         dest[2] = temp;
 
         steps = 100;
         do {
           temp = 12d * Math.exp(-8d * random.nextDouble());
-        } while (((--steps) > 0) && this.checkParameter(0, 3, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(0, 3, temp, dest))));
         dest[3] = temp;
 
       } else {
@@ -476,20 +588,23 @@ public final class LogisticModelWithOffsetOverLogX extends _ModelBase {
         do {
           temp = (minMax[0] - minMax[1])
               * (0.9d + (0.1d * random.nextGaussian()));
-        } while (((--steps) > 0) && this.checkParameter(0, 1, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 1, temp, dest))));
         dest[1] = temp;
 
         steps = 100;
         do {
           temp = 30d * Math
               .exp(-7d * (random.nextDouble() * random.nextDouble()));
-        } while (((--steps) > 0) && this.checkParameter(0, 2, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 2, temp, dest))));
         dest[2] = temp;
 
         steps = 100;
         do {
           temp = -2d * Math.exp(-random.nextDouble() * 6d);
-        } while (((--steps) > 0) && this.checkParameter(0, 3, temp, dest));
+        } while (((--steps) > 0)
+            && (!(this.checkParameter(1, 3, temp, dest))));
         dest[3] = temp;
       }
 
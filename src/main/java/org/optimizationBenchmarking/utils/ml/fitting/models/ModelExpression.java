@@ -0,0 +1,549 @@
+package org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+
+/**
+ * <p>
+ * A builder for the formula of an {@link ExpressionModel}. A formula is
+ * built from the {@linkplain #x() input coordinate}, the
+ * {@linkplain #parameter(int) parameters}, {@linkplain #constant(double)
+ * constants}, and the arithmetic operations and functions provided by
+ * this class, e.g., the Gompertz model {@code a+(b*exp(c*exp(d*x)))} is
+ * </p>
+ *
+ * <pre>
+ * e = new ModelExpression(4);
+ * root = e.add(e.parameter(0), e.multiply(e.parameter(1),
+ *     e.exp(e.multiply(e.parameter(2),
+ *         e.exp(e.multiply(e.parameter(3), e.x()))))));
+ * </pre>
+ * <p>
+ * The builder only creates each distinct sub-expression once: If the same
+ * operation is applied to the same operands twice, the same
+ * {@link Term} is returned. Shared sub-expressions, such as {@code x^d} in
+ * {@code a+b/(1+c*x^d)} and its derivatives, are thus computed only once
+ * per point. Operations on constants are folded into constants.
+ * </p>
+ */
+public final class ModelExpression {
+
+  /** the input coordinate */
+  static final int OP_X = 0;
+  /** a parameter, the index is stored as first operand */
+  static final int OP_PARAMETER = (ModelExpression.OP_X + 1);
+  /** a constant */
+  static final int OP_CONSTANT = (ModelExpression.OP_PARAMETER + 1);
+  /** the sum of two terms */
+  static final int OP_ADD = (ModelExpression.OP_CONSTANT + 1);
+  /** the difference of two terms */
+  static final int OP_SUBTRACT = (ModelExpression.OP_ADD + 1);
+  /** the product of two terms */
+  static final int OP_MULTIPLY = (ModelExpression.OP_SUBTRACT + 1);
+  /** the quotient of two terms */
+  static final int OP_DIVIDE = (ModelExpression.OP_MULTIPLY + 1);
+  /** the negated term */
+  static final int OP_NEGATE = (ModelExpression.OP_DIVIDE + 1);
+  /** the exponential function */
+  static final int OP_EXP = (ModelExpression.OP_NEGATE + 1);
+  /** the natural logarithm */
+  static final int OP_LOG = (ModelExpression.OP_EXP + 1);
+  /** the square root */
+  static final int OP_SQRT = (ModelExpression.OP_LOG + 1);
+  /** the power of two terms */
+  static final int OP_POW = (ModelExpression.OP_SQRT + 1);
+
+  /** the maximum number of parameters */
+  static final int MAX_PARAMETERS = 64;
+
+  /** the number of parameters */
+  final int m_parameterCount;
+
+  /** the operations of the nodes */
+  int[] m_operations;
+  /** the first operands of the nodes */
+  int[] m_first;
+  /** the second operands of the nodes */
+  int[] m_second;
+  /** the constant values of the nodes, {@code 0} for non-constants */
+  double[] m_constants;
+  /** the bit masks of the parameters the nodes depend on */
+  long[] m_parameterMasks;
+  /** whether the nodes depend on the input coordinate */
+  boolean[] m_dependsOnX;
+  /** the number of nodes */
+  int m_count;
+
+  /** the terms which have already been created */
+  private final HashMap<__Key, Term> m_terms;
+
+  /**
+   * create a new model expression builder
+   *
+   * @param parameterCount
+   *          the number of parameters of the model
+   */
+  public ModelExpression(final int parameterCount) {
+    super();
+
+    if ((parameterCount <= 0)
+        || (parameterCount > ModelExpression.MAX_PARAMETERS)) {
+      throw new IllegalArgumentException(//
+          "Number of parameters must be in 1.." + //$NON-NLS-1$
+              ModelExpression.MAX_PARAMETERS + ", but is " //$NON-NLS-1$
+              + parameterCount);
+    }
+
+    this.m_parameterCount = parameterCount;
+    this.m_operations = new int[16];
+    this.m_first = new int[16];
+    this.m_second = new int[16];
+    this.m_constants = new double[16];
+    this.m_parameterMasks = new long[16];
+    this.m_dependsOnX = new boolean[16];
+    this.m_terms = new HashMap<>();
+  }
+
+  /**
+   * Get the number of parameters of the model
+   *
+   * @return the number of parameters of the model
+   */
+  public final int getParameterCount() {
+    return this.m_parameterCount;
+  }
+
+  /**
+   * Get the node index of a term and make sure that it belongs to this
+   * builder
+   *
+   * @param term
+   *          the term
+   * @return the node index
+   */
+  final int _index(final Term term) {
+    if ((term == null) || (term.m_owner != this)) {
+      throw new IllegalArgumentException(
+          "Term must have been created by the same model expression."); //$NON-NLS-1$
+    }
+    return term.m_index;
+  }
+
+  /**
+   * Get or create the term for a given node
+   *
+   * @param operation
+   *          the operation
+   * @param first
+   *          the first operand, or {@code -1} if there is none
+   * @param second
+   *          the second operand, or {@code -1} if there is none
+   * @param constant
+   *          the constant value
+   * @return the term
+   */
+  private final Term __node(final int operation, final int first,
+      final int second, final double constant) {
+    final __Key key;
+    final int index;
+    Term term;
+    long mask;
+    boolean dependsOnX;
+
+    key = new __Key(operation, first, second,
+        Double.doubleToLongBits(constant));
+    term = this.m_terms.get(key);
+    if (term != null) {
+      return term;
+    }
+
+    index = this.m_count;
+    if (index >= this.m_operations.length) {
+      this.m_operations = Arrays.copyOf(this.m_operations, (index << 1));
+      this.m_first = Arrays.copyOf(this.m_first, (index << 1));
+      this.m_second = Arrays.copyOf(this.m_second, (index << 1));
+      this.m_constants = Arrays.copyOf(this.m_constants, (index << 1));
+      this.m_parameterMasks = Arrays.copyOf(this.m_parameterMasks,
+          (index << 1));
+      this.m_dependsOnX = Arrays.copyOf(this.m_dependsOnX, (index << 1));
+    }
+
+    switch (operation) {
+      case OP_X: {
+        mask = 0L;
+        dependsOnX = true;
+        break;
+      }
+      case OP_PARAMETER: {
+        mask = (1L << first);
+        dependsOnX = false;
+        break;
+      }
+      case OP_CONSTANT: {
+        mask = 0L;
+        dependsOnX = false;
+        break;
+      }
+      default: {
+        mask = this.m_parameterMasks[first];
+        dependsOnX = this.m_dependsOnX[first];
+        if (second >= 0) {
+          mask |= this.m_parameterMasks[second];
+          dependsOnX |= this.m_dependsOnX[second];
+        }
+      }
+    }
+
+    this.m_operations[index] = operation;
+    this.m_first[index] = first;
+    this.m_second[index] = second;
+    this.m_constants[index] = constant;
+    this.m_parameterMasks[index] = mask;
+    this.m_dependsOnX[index] = dependsOnX;
+    this.m_count = (index + 1);
+
+    term = new Term(this, index);
+    this.m_terms.put(key, term);
+    return term;
+  }
+
+  /**
+   * Is the given node a constant?
+   *
+   * @param index
+   *          the node index
+   * @return {@code true} if the node is a constant, {@code false}
+   *         otherwise
+   */
+  private final boolean __isConstant(final int index) {
+    return (this.m_operations[index] == ModelExpression.OP_CONSTANT);
+  }
+
+  /**
+   * Is the given node the given constant?
+   *
+   * @param index
+   *          the node index
+   * @param value
+   *          the constant value
+   * @return {@code true} if the node is the constant, {@code false}
+   *         otherwise
+   */
+  private final boolean __isConstant(final int index, final double value) {
+    return (this.__isConstant(index)
+        && (Double.doubleToLongBits(this.m_constants[index]) == //
+        Double.doubleToLongBits(value)));
+  }
+
+  /**
+   * Create a unary operation, folding constants
+   *
+   * @param operation
+   *          the operation
+   * @param operand
+   *          the operand
+   * @return the term
+   */
+  private final Term __unary(final int operation, final Term operand) {
+    final int index;
+
+    index = this._index(operand);
+    if (this.__isConstant(index)) {
+      return this.constant(_ExpressionProgram._apply(operation,
+          this.m_constants[index], 0d));
+    }
+    return this.__node(operation, index, -1, 0d);
+  }
+
+  /**
+   * Create a binary operation, folding constants
+   *
+   * @param operation
+   *          the operation
+   * @param first
+   *          the first operand
+   * @param second
+   *          the second operand
+   * @param commutative
+   *          is the operation commutative?
+   * @return the term
+   */
+  private final Term __binary(final int operation, final Term first,
+      final Term second, final boolean commutative) {
+    final int firstIndex, secondIndex;
+
+    firstIndex = this._index(first);
+    secondIndex = this._index(second);
+    if (this.__isConstant(firstIndex) && this.__isConstant(secondIndex)) {
+      return this.constant(_ExpressionProgram._apply(operation,
+          this.m_constants[firstIndex], this.m_constants[secondIndex]));
+    }
+    if (commutative && (secondIndex < firstIndex)) {
+      return this.__node(operation, secondIndex, firstIndex, 0d);
+    }
+    return this.__node(operation, firstIndex, secondIndex, 0d);
+  }
+
+  /**
+   * Get the input coordinate {@code x}
+   *
+   * @return the term representing {@code x}
+   */
+  public final Term x() {
+    return this.__node(ModelExpression.OP_X, -1, -1, 0d);
+  }
+
+  /**
+   * Get a parameter of the model
+   *
+   * @param index
+   *          the index of the parameter
+   * @return the term representing the parameter
+   */
+  public final Term parameter(final int index) {
+    if ((index < 0) || (index >= this.m_parameterCount)) {
+      throw new IllegalArgumentException(//
+          "Parameter index must be in 0.." + //$NON-NLS-1$
+              (this.m_parameterCount - 1) + ", but is " + index); //$NON-NLS-1$
+    }
+    return this.__node(ModelExpression.OP_PARAMETER, index, -1, 0d);
+  }
+
+  /**
+   * Get a constant
+   *
+   * @param value
+   *          the value of the constant
+   * @return the term representing the constant
+   */
+  public final Term constant(final double value) {
+    return this.__node(ModelExpression.OP_CONSTANT, -1, -1, (value + 0d));
+  }
+
+  /**
+   * Add two terms
+   *
+   * @param a
+   *          the first term
+   * @param b
+   *          the second term
+   * @return the term representing {@code a+b}
+   */
+  public final Term add(final Term a, final Term b) {
+    if (this.__isConstant(this._index(a), 0d)) {
+      return b;
+    }
+    if (this.__isConstant(this._index(b), 0d)) {
+      return a;
+    }
+    return this.__binary(ModelExpression.OP_ADD, a, b, true);
+  }
+
+  /**
+   * Subtract two terms
+   *
+   * @param a
+   *          the first term
+   * @param b
+   *          the second term
+   * @return the term representing {@code a-b}
+   */
+  public final Term subtract(final Term a, final Term b) {
+    if (this.__isConstant(this._index(b), 0d)) {
+      return a;
+    }
+    return this.__binary(ModelExpression.OP_SUBTRACT, a, b, false);
+  }
+
+  /**
+   * Multiply two terms
+   *
+   * @param a
+   *          the first term
+   * @param b
+   *          the second term
+   * @return the term representing {@code a*b}
+   */
+  public final Term multiply(final Term a, final Term b) {
+    if (this.__isConstant(this._index(a), 1d)) {
+      return b;
+    }
+    if (this.__isConstant(this._index(b), 1d)) {
+      return a;
+    }
+    return this.__binary(ModelExpression.OP_MULTIPLY, a, b, true);
+  }
+
+  /**
+   * Divide two terms
+   *
+   * @param a
+   *          the dividend
+   * @param b
+   *          the divisor
+   * @return the term representing {@code a/b}
+   */
+  public final Term divide(final Term a, final Term b) {
+    if (this.__isConstant(this._index(b), 1d)) {
+      return a;
+    }
+    return this.__binary(ModelExpression.OP_DIVIDE, a, b, false);
+  }
+
+  /**
+   * Negate a term
+   *
+   * @param a
+   *          the term
+   * @return the term representing {@code -a}
+   */
+  public final Term negate(final Term a) {
+    return this.__unary(ModelExpression.OP_NEGATE, a);
+  }
+
+  /**
+   * Compute the square of a term
+   *
+   * @param a
+   *          the term
+   * @return the term representing {@code a*a}
+   */
+  public final Term sqr(final Term a) {
+    return this.multiply(a, a);
+  }
+
+  /**
+   * Compute the exponential function of a term
+   *
+   * @param a
+   *          the term
+   * @return the term representing {@code exp(a)}
+   */
+  public final Term exp(final Term a) {
+    return this.__unary(ModelExpression.OP_EXP, a);
+  }
+
+  /**
+   * Compute the natural logarithm of a term
+   *
+   * @param a
+   *          the term
+   * @return the term representing {@code log(a)}
+   */
+  public final Term log(final Term a) {
+    return this.__unary(ModelExpression.OP_LOG, a);
+  }
+
+  /**
+   * Compute the square root of a term
+   *
+   * @param a
+   *          the term
+   * @return the term representing {@code sqrt(a)}
+   */
+  public final Term sqrt(final Term a) {
+    return this.__unary(ModelExpression.OP_SQRT, a);
+  }
+
+  /**
+   * Raise a term to the power of another term
+   *
+   * @param a
+   *          the base
+   * @param b
+   *          the exponent
+   * @return the term representing {@code a^b}
+   */
+  public final Term pow(final Term a, final Term b) {
+    if (this.__isConstant(this._index(b), 1d)) {
+      return a;
+    }
+    return this.__binary(ModelExpression.OP_POW, a, b, false);
+  }
+
+  /** A term of a model expression. */
+  public static final class Term {
+
+    /** the owning builder */
+    final ModelExpression m_owner;
+    /** the node index */
+    final int m_index;
+
+    /**
+     * create the term
+     *
+     * @param owner
+     *          the owning builder
+     * @param index
+     *          the node index
+     */
+    Term(final ModelExpression owner, final int index) {
+      super();
+      this.m_owner = owner;
+      this.m_index = index;
+    }
+  }
+
+  /** the key identifying a node */
+  private static final class __Key {
+
+    /** the operation */
+    private final int m_operation;
+    /** the first operand */
+    private final int m_first;
+    /** the second operand */
+    private final int m_second;
+    /** the bits of the constant */
+    private final long m_constant;
+
+    /**
+     * create the key
+     *
+     * @param operation
+     *          the operation
+     * @param first
+     *          the first operand
+     * @param second
+     *          the second operand
+     * @param constant
+     *          the bits of the constant
+     */
+    __Key(final int operation, final int first, final int second,
+        final long constant) {
+      super();
+      this.m_operation = operation;
+      this.m_first = first;
+      this.m_second = second;
+      this.m_constant = constant;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int hashCode() {
+      return HashUtils.combineHashes(
+          HashUtils.combineHashes(this.m_operation, this.m_first),
+          HashUtils.combineHashes(this.m_second,
+              HashUtils.hashCode(this.m_constant)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean equals(final Object o) {
+      final __Key other;
+
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof __Key) {
+        other = ((__Key) o);
+        return ((this.m_operation == other.m_operation)
+            && (this.m_first == other.m_first)
+            && (this.m_second == other.m_second)
+            && (this.m_constant == other.m_constant));
+      }
+      return false;
+    }
+  }
+}
@@ -37,12 +37,52 @@ public final class QuadraticModel extends BasicModel {
     Polynomials.degree2Gradient(x, gradient);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final void valueBatch(final double[] x,
+      final double[] parameters, final double[] dest, final int count) {
+    final double a, b, c;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    for (i = count; (--i) >= 0;) {
+      dest[i] = Polynomials.degree2Compute(x[i], a, b, c);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void valueAndGradientBatch(final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final double a, b, c;
+    double currentX;
+    int i;
+
+    a = parameters[0];
+    b = parameters[1];
+    c = parameters[2];
+    for (i = count; (--i) >= 0;) {
+      currentX = x[i];
+      Polynomials.degree2Gradient(currentX, gradients[i]);
+      values[i] = Polynomials.degree2Compute(currentX, a, b, c);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public final int getParameterCount() {
     return 3;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int getLinearParameterCount() {
+    return 3;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final IParameterGuesser createParameterGuesser(
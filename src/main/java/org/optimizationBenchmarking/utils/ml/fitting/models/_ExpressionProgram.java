@@ -0,0 +1,767 @@
+package org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The compiled form of a {@link ModelExpression}: a straight-line program
+ * which computes the value of the model and, via forward-mode automatic
+ * differentiation, its derivatives for all parameters in one pass.
+ * </p>
+ * <p>
+ * Only the nodes the result depends on are kept. The nodes which do not
+ * depend on {@code x} come first, so that a batch can compute them only
+ * once. The remaining nodes are evaluated for a block of points at a
+ * time, one node after the other: The operation of a node thus needs to
+ * be dispatched only once per block, and the inner loops over the points
+ * are simple enough to be optimized well by the compiler. Each node
+ * stores the partial derivatives of its operation with respect to its
+ * operands, and a single chain rule loop combines them with the
+ * derivatives of the operands, for only those parameters the node
+ * actually depends on.
+ * </p>
+ * <p>
+ * A program is immutable and can be used by several threads at once, each
+ * with its own {@link _Workspace}.
+ * </p>
+ */
+final class _ExpressionProgram {
+
+  /** the number of points processed at once */
+  static final int BLOCK = 64;
+
+  /** the number of parameters */
+  final int m_parameterCount;
+  /** the number of nodes */
+  private final int m_count;
+  /** the number of leading nodes which do not depend on {@code x} */
+  private final int m_uniform;
+  /** the operations */
+  private final int[] m_operations;
+  /**
+   * the first operands, or the parameter indexes of parameter nodes
+   */
+  private final int[] m_first;
+  /** the second operands */
+  private final int[] m_second;
+  /** the constants */
+  private final double[] m_constants;
+  /** the bit masks of the parameters the nodes depend on */
+  private final long[] m_masks;
+  /** the parameters the nodes depend on */
+  private final int[][] m_parameters;
+
+  /**
+   * compile a model expression
+   *
+   * @param root
+   *          the root term of the model expression
+   */
+  _ExpressionProgram(final ModelExpression.Term root) {
+    super();
+
+    final ModelExpression expression;
+    final boolean[] needed;
+    final int[] newIndex;
+    final int rootIndex;
+    int index, count, node, operation, parameter;
+    long mask;
+
+    expression = root.m_owner;
+    rootIndex = expression._index(root);
+    this.m_parameterCount = expression.m_parameterCount;
+
+    // mark the nodes the root depends on: operands always have lower
+    // indexes than the nodes using them
+    needed = new boolean[rootIndex + 1];
+    needed[rootIndex] = true;
+    count = 0;
+    for (index = rootIndex; index >= 0; index--) {
+      if (needed[index]) {
+        ++count;
+        operation = expression.m_operations[index];
+        if ((operation != ModelExpression.OP_X)
+            && (operation != ModelExpression.OP_PARAMETER)
+            && (operation != ModelExpression.OP_CONSTANT)) {
+          needed[expression.m_first[index]] = true;
+          if (expression.m_second[index] >= 0) {
+            needed[expression.m_second[index]] = true;
+          }
+        }
+      }
+    }
+
+    // put the nodes not depending on x first, this keeps the order of
+    // operands before their users
+    newIndex = new int[rootIndex + 1];
+    this.m_operations = new int[count];
+    this.m_first = new int[count];
+    this.m_second = new int[count];
+    this.m_constants = new double[count];
+    this.m_masks = new long[count];
+    this.m_parameters = new int[count][];
+    this.m_count = count;
+
+    node = 0;
+    for (index = 0; index <= rootIndex; index++) {
+      if (needed[index] && (!(expression.m_dependsOnX[index]))) {
+        newIndex[index] = (node++);
+      }
+    }
+    this.m_uniform = node;
+    for (index = 0; index <= rootIndex; index++) {
+      if (needed[index] && expression.m_dependsOnX[index]) {
+        newIndex[index] = (node++);
+      }
+    }
+
+    for (index = 0; index <= rootIndex; index++) {
+      if (!(needed[index])) {
+        continue;
+      }
+      node = newIndex[index];
+      operation = expression.m_operations[index];
+      this.m_operations[node] = operation;
+      this.m_constants[node] = expression.m_constants[index];
+      mask = this.m_masks[node] = expression.m_parameterMasks[index];
+      if (operation == ModelExpression.OP_PARAMETER) {
+        this.m_first[node] = expression.m_first[index];
+      } else {
+        this.m_first[node] = ((expression.m_first[index] >= 0)
+            ? newIndex[expression.m_first[index]] : (-1));
+      }
+      this.m_second[node] = ((expression.m_second[index] >= 0)
+          ? newIndex[expression.m_second[index]] : (-1));
+
+      this.m_parameters[node] = new int[Long.bitCount(mask)];
+      parameter = 0;
+      for (; mask != 0L; mask &= (mask - 1L)) {
+        this.m_parameters[node][parameter++] = Long
+            .numberOfTrailingZeros(mask);
+      }
+    }
+  }
+
+  /**
+   * Apply an operation to constant operands
+   *
+   * @param operation
+   *          the operation
+   * @param a
+   *          the first operand
+   * @param b
+   *          the second operand, ignored by unary operations
+   * @return the result
+   */
+  static final double _apply(final int operation, final double a,
+      final double b) {
+    switch (operation) {
+      case ModelExpression.OP_ADD: {
+        return (a + b);
+      }
+      case ModelExpression.OP_SUBTRACT: {
+        return (a - b);
+      }
+      case ModelExpression.OP_MULTIPLY: {
+        return (a * b);
+      }
+      case ModelExpression.OP_DIVIDE: {
+        return (a / b);
+      }
+      case ModelExpression.OP_NEGATE: {
+        return (-a);
+      }
+      case ModelExpression.OP_EXP: {
+        return Math.exp(a);
+      }
+      case ModelExpression.OP_LOG: {
+        return Math.log(a);
+      }
+      case ModelExpression.OP_SQRT: {
+        return Math.sqrt(a);
+      }
+      case ModelExpression.OP_POW: {
+        return Math.pow(a, b);
+      }
+      default: {
+        throw new IllegalArgumentException(//
+            "Unknown operation: " + operation); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Create a work space for this program
+   *
+   * @return the work space
+   */
+  final _Workspace _createWorkspace() {
+    return new _Workspace(this.m_count, this.m_parameterCount);
+  }
+
+  /**
+   * Evaluate a range of nodes for a block of points
+   *
+   * @param workspace
+   *          the work space
+   * @param x
+   *          the {@code x}-coordinates
+   * @param xStart
+   *          the index of the first {@code x}-coordinate of the block
+   * @param parameters
+   *          the parameters
+   * @param derivatives
+   *          should the derivatives be computed, too?
+   * @param start
+   *          the first node to evaluate
+   * @param end
+   *          the exclusive end of the nodes to evaluate
+   * @param count
+   *          the number of points in the block
+   */
+  private final void __evaluate(final _Workspace workspace,
+      final double[] x, final int xStart, final double[] parameters,
+      final boolean derivatives, final int start, final int end,
+      final int count) {
+    final double[] values, partialsA, partialsB;
+    int node, a, b, to, j, parameter;
+    double value, va, vb;
+    boolean hasA, hasB;
+
+    values = workspace.m_values;
+    partialsA = workspace.m_partialsA;
+    partialsB = workspace.m_partialsB;
+
+    for (node = start; node < end; node++) {
+      to = (node * _ExpressionProgram.BLOCK);
+      a = (this.m_first[node] * _ExpressionProgram.BLOCK);
+      b = (this.m_second[node] * _ExpressionProgram.BLOCK);
+      hasA = hasB = false;
+
+      switch (this.m_operations[node]) {
+        case ModelExpression.OP_X: {
+          System.arraycopy(x, xStart, values, to, count);
+          continue;
+        }
+        case ModelExpression.OP_PARAMETER: {
+          parameter = this.m_first[node];
+          Arrays.fill(values, to, (to + count), parameters[parameter]);
+          if (derivatives) {
+            to = (((node * this.m_parameterCount) + parameter)
+                * _ExpressionProgram.BLOCK);
+            Arrays.fill(workspace.m_derivatives, to, (to + count), 1d);
+          }
+          continue;
+        }
+        case ModelExpression.OP_CONSTANT: {
+          Arrays.fill(values, to, (to + count), this.m_constants[node]);
+          continue;
+        }
+        case ModelExpression.OP_ADD: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = (values[a + j] + values[b + j]);
+          }
+          if (derivatives) {
+            Arrays.fill(partialsA, 0, count, 1d);
+            Arrays.fill(partialsB, 0, count, 1d);
+            hasA = hasB = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_SUBTRACT: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = (values[a + j] - values[b + j]);
+          }
+          if (derivatives) {
+            Arrays.fill(partialsA, 0, count, 1d);
+            Arrays.fill(partialsB, 0, count, -1d);
+            hasA = hasB = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_MULTIPLY: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = (values[a + j] * values[b + j]);
+          }
+          if (derivatives) {
+            System.arraycopy(values, b, partialsA, 0, count);
+            System.arraycopy(values, a, partialsB, 0, count);
+            hasA = hasB = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_DIVIDE: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = (values[a + j] / values[b + j]);
+          }
+          if (derivatives) {
+            for (j = count; (--j) >= 0;) {
+              vb = values[b + j];
+              partialsA[j] = (1d / vb);
+              partialsB[j] = (-(values[to + j] / vb));
+            }
+            hasA = hasB = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_NEGATE: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = (-values[a + j]);
+          }
+          if (derivatives) {
+            Arrays.fill(partialsA, 0, count, -1d);
+            hasA = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_EXP: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = Math.exp(values[a + j]);
+          }
+          if (derivatives) {
+            System.arraycopy(values, to, partialsA, 0, count);
+            hasA = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_LOG: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = Math.log(values[a + j]);
+          }
+          if (derivatives) {
+            for (j = count; (--j) >= 0;) {
+              partialsA[j] = (1d / values[a + j]);
+            }
+            hasA = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_SQRT: {
+          for (j = count; (--j) >= 0;) {
+            values[to + j] = Math.sqrt(values[a + j]);
+          }
+          if (derivatives) {
+            for (j = count; (--j) >= 0;) {
+              partialsA[j] = (0.5d / values[to + j]);
+            }
+            hasA = true;
+          }
+          break;
+        }
+        case ModelExpression.OP_POW: {
+          hasA = (derivatives && (this.m_masks[this.m_first[node]] != 0L));
+          hasB = (derivatives
+              && (this.m_masks[this.m_second[node]] != 0L));
+          for (j = count; (--j) >= 0;) {
+            va = values[a + j];
+            vb = values[b + j];
+            value = values[to + j] = Math.pow(va, vb);
+            if (hasA) {
+              partialsA[j] = (vb * Math.pow(va, (vb - 1d)));
+            }
+            if (hasB) {
+              partialsB[j] = (value * Math.log(va));
+            }
+          }
+          break;
+        }
+        default: {
+          throw new IllegalStateException(//
+              "Unknown operation: " + this.m_operations[node]); //$NON-NLS-1$
+        }
+      }
+
+      if (derivatives) {
+        this.__chain(workspace, node, hasA, hasB, count);
+      }
+    }
+  }
+
+  /**
+   * Apply the chain rule to compute the derivatives of a node from the
+   * partial derivatives of its operation and the derivatives of its
+   * operands
+   *
+   * @param workspace
+   *          the work space
+   * @param node
+   *          the node
+   * @param hasA
+   *          have the partial derivatives for the first operand been
+   *          computed?
+   * @param hasB
+   *          have the partial derivatives for the second operand been
+   *          computed?
+   * @param count
+   *          the number of points in the block
+   */
+  private final void __chain(final _Workspace workspace, final int node,
+      final boolean hasA, final boolean hasB, final int count) {
+    final double[] derivatives, partialsA, partialsB;
+    final int parameterCount, first, second;
+    final long maskA, maskB;
+    int to, a, b, j;
+    boolean useA, useB;
+
+    derivatives = workspace.m_derivatives;
+    partialsA = workspace.m_partialsA;
+    partialsB = workspace.m_partialsB;
+    parameterCount = this.m_parameterCount;
+    first = this.m_first[node];
+    second = this.m_second[node];
+    maskA = (hasA ? this.m_masks[first] : 0L);
+    maskB = (hasB ? this.m_masks[second] : 0L);
+
+    for (final int parameter : this.m_parameters[node]) {
+      to = (((node * parameterCount) + parameter)
+          * _ExpressionProgram.BLOCK);
+      useA = (((maskA >>> parameter) & 1L) != 0L);
+      useB = (((maskB >>> parameter) & 1L) != 0L);
+      a = (((first * parameterCount) + parameter)
+          * _ExpressionProgram.BLOCK);
+      b = (((second * parameterCount) + parameter)
+          * _ExpressionProgram.BLOCK);
+
+      // the node depends on the parameter, so at least one of its
+      // operands does, too
+      if (useA && useB) {
+        for (j = count; (--j) >= 0;) {
+          derivatives[to + j] = ((partialsA[j] * derivatives[a + j])
+              + (partialsB[j] * derivatives[b + j]));
+        }
+      } else {
+        if (useA) {
+          for (j = count; (--j) >= 0;) {
+            derivatives[to + j] = (partialsA[j] * derivatives[a + j]);
+          }
+        } else {
+          for (j = count; (--j) >= 0;) {
+            derivatives[to + j] = (partialsB[j] * derivatives[b + j]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compute the nodes which do not depend on {@code x} once and copy
+   * their values and derivatives to all points of a block
+   *
+   * @param workspace
+   *          the work space
+   * @param parameters
+   *          the parameters
+   * @param derivatives
+   *          should the derivatives be computed, too?
+   */
+  private final void __evaluateUniform(final _Workspace workspace,
+      final double[] parameters, final boolean derivatives) {
+    final double[] values, derivativeValues;
+    int node, from;
+
+    this.__evaluate(workspace, null, 0, parameters, derivatives, 0,
+        this.m_uniform, 1);
+
+    values = workspace.m_values;
+    derivativeValues = workspace.m_derivatives;
+    for (node = this.m_uniform; (--node) >= 0;) {
+      from = (node * _ExpressionProgram.BLOCK);
+      Arrays.fill(values, (from + 1), (from + _ExpressionProgram.BLOCK),
+          values[from]);
+      if (derivatives) {
+        for (final int parameter : this.m_parameters[node]) {
+          from = (((node * this.m_parameterCount) + parameter)
+              * _ExpressionProgram.BLOCK);
+          Arrays.fill(derivativeValues, (from + 1),
+              (from + _ExpressionProgram.BLOCK), derivativeValues[from]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Store the gradient of the result for one point
+   *
+   * @param derivatives
+   *          the derivatives of the nodes
+   * @param stride
+   *          the number of points stored for each node and parameter
+   * @param parameters
+   *          the parameters
+   * @param j
+   *          the index of the point
+   * @param gradient
+   *          the destination for the gradient
+   */
+  private final void __storeGradient(final double[] derivatives,
+      final int stride, final double[] parameters, final int j,
+      final double[] gradient) {
+    final int root, parameterCount;
+    final long mask;
+    int parameter;
+
+    parameterCount = this.m_parameterCount;
+    root = (this.m_count - 1);
+    mask = this.m_masks[root];
+    for (parameter = parameterCount; (--parameter) >= 0;) {
+      gradient[parameter] = ((((mask >>> parameter) & 1L) != 0L)//
+          ? _ModelBase._gradient(derivatives[(((root * parameterCount)
+              + parameter) * stride) + j], parameters[parameter])//
+          : 0d);
+    }
+  }
+
+  /**
+   * Evaluate all nodes for a single point. This is the scalar version of
+   * {@link #__evaluate(_Workspace, double[], int, double[], boolean, int, int, int)}
+   * which avoids the overhead of the loops over the points of a block.
+   * It uses a compact layout of its own, without room for a block of
+   * points per node.
+   *
+   * @param workspace
+   *          the work space
+   * @param x
+   *          the {@code x}-coordinate
+   * @param parameters
+   *          the parameters
+   * @param derivatives
+   *          should the derivatives be computed, too?
+   */
+  private final void __evaluateSingle(final _Workspace workspace,
+      final double x, final double[] parameters,
+      final boolean derivatives) {
+    final double[] values, derivativeValues;
+    final int parameterCount;
+    int node, operation, first, second, to, a, b;
+    double value, va, vb, pa, pb;
+    long maskA, maskB;
+
+    values = workspace.m_singleValues;
+    derivativeValues = workspace.m_singleDerivatives;
+    parameterCount = this.m_parameterCount;
+
+    for (node = 0; node < this.m_count; node++) {
+      operation = this.m_operations[node];
+      first = this.m_first[node];
+      second = this.m_second[node];
+      // leaves have no operands: the first operand of a parameter node is
+      // the index of the parameter
+      va = vb = pa = pb = 0d;
+      maskA = maskB = 0L;
+      if (operation > ModelExpression.OP_CONSTANT) {
+        va = values[first];
+        if (second >= 0) {
+          vb = values[second];
+        }
+      }
+
+      switch (operation) {
+        case ModelExpression.OP_X: {
+          value = x;
+          break;
+        }
+        case ModelExpression.OP_PARAMETER: {
+          value = parameters[first];
+          if (derivatives) {
+            derivativeValues[(node * parameterCount) + first] = 1d;
+          }
+          values[node] = value;
+          continue;
+        }
+        case ModelExpression.OP_CONSTANT: {
+          value = this.m_constants[node];
+          break;
+        }
+        case ModelExpression.OP_ADD: {
+          value = (va + vb);
+          pa = 1d;
+          pb = 1d;
+          break;
+        }
+        case ModelExpression.OP_SUBTRACT: {
+          value = (va - vb);
+          pa = 1d;
+          pb = -1d;
+          break;
+        }
+        case ModelExpression.OP_MULTIPLY: {
+          value = (va * vb);
+          pa = vb;
+          pb = va;
+          break;
+        }
+        case ModelExpression.OP_DIVIDE: {
+          value = (va / vb);
+          pa = (1d / vb);
+          pb = (-(value / vb));
+          break;
+        }
+        case ModelExpression.OP_NEGATE: {
+          value = (-va);
+          pa = -1d;
+          break;
+        }
+        case ModelExpression.OP_EXP: {
+          pa = value = Math.exp(va);
+          break;
+        }
+        case ModelExpression.OP_LOG: {
+          value = Math.log(va);
+          pa = (1d / va);
+          break;
+        }
+        case ModelExpression.OP_SQRT: {
+          value = Math.sqrt(va);
+          pa = (0.5d / value);
+          break;
+        }
+        case ModelExpression.OP_POW: {
+          value = Math.pow(va, vb);
+          if (derivatives) {
+            if (this.m_masks[first] != 0L) {
+              pa = (vb * Math.pow(va, (vb - 1d)));
+            }
+            if (this.m_masks[second] != 0L) {
+              pb = (value * Math.log(va));
+            }
+          }
+          break;
+        }
+        default: {
+          throw new IllegalStateException(//
+              "Unknown operation: " + operation); //$NON-NLS-1$
+        }
+      }
+      values[node] = value;
+
+      if (derivatives) {
+        if (first >= 0) {
+          maskA = this.m_masks[first];
+        }
+        if (second >= 0) {
+          maskB = this.m_masks[second];
+        }
+        for (final int parameter : this.m_parameters[node]) {
+          a = ((first * parameterCount) + parameter);
+          b = ((second * parameterCount) + parameter);
+          to = ((node * parameterCount) + parameter);
+          value = 0d;
+          if (((maskA >>> parameter) & 1L) != 0L) {
+            value = (pa * derivativeValues[a]);
+          }
+          if (((maskB >>> parameter) & 1L) != 0L) {
+            value += (pb * derivativeValues[b]);
+          }
+          derivativeValues[to] = value;
+        }
+      }
+    }
+  }
+
+  /**
+   * Compute the value of the program for a single point
+   *
+   * @param workspace
+   *          the work space
+   * @param x
+   *          the {@code x}-coordinate
+   * @param parameters
+   *          the parameters
+   * @param gradient
+   *          the destination for the gradient, or {@code null} if only
+   *          the value is needed
+   * @return the value
+   */
+  final double _value(final _Workspace workspace, final double x,
+      final double[] parameters, final double[] gradient) {
+    this.__evaluateSingle(workspace, x, parameters, (gradient != null));
+    if (gradient != null) {
+      this.__storeGradient(workspace.m_singleDerivatives, 1, parameters, 0,
+          gradient);
+    }
+    return workspace.m_singleValues[this.m_count - 1];
+  }
+
+  /**
+   * Compute the values and, optionally, the gradients of the program for
+   * a whole array of points
+   *
+   * @param workspace
+   *          the work space
+   * @param x
+   *          the {@code x}-coordinates
+   * @param parameters
+   *          the parameters
+   * @param values
+   *          the destination for the values, or {@code null} if they are
+   *          not needed
+   * @param gradients
+   *          the destination for the gradients, or {@code null} if they
+   *          are not needed
+   * @param count
+   *          the number of points
+   */
+  final void _batch(final _Workspace workspace, final double[] x,
+      final double[] parameters, final double[] values,
+      final double[][] gradients, final int count) {
+    final boolean derivatives;
+    final int result;
+    int start, block, j;
+
+    derivatives = (gradients != null);
+    result = ((this.m_count - 1) * _ExpressionProgram.BLOCK);
+    this.__evaluateUniform(workspace, parameters, derivatives);
+
+    for (start = 0; start < count; start += block) {
+      block = Math.min(_ExpressionProgram.BLOCK, (count - start));
+      this.__evaluate(workspace, x, start, parameters, derivatives,
+          this.m_uniform, this.m_count, block);
+      if (derivatives) {
+        for (j = block; (--j) >= 0;) {
+          this.__storeGradient(workspace.m_derivatives,
+              _ExpressionProgram.BLOCK, parameters, j,
+              gradients[start + j]);
+        }
+      }
+      if (values != null) {
+        System.arraycopy(workspace.m_values, result, values, start, block);
+      }
+    }
+  }
+
+  /** the work space for evaluating a program */
+  static final class _Workspace {
+
+    /** the values of the nodes */
+    final double[] m_values;
+    /** the derivatives of the nodes */
+    final double[] m_derivatives;
+    /** the values of the nodes for a single point */
+    final double[] m_singleValues;
+    /** the derivatives of the nodes for a single point */
+    final double[] m_singleDerivatives;
+    /** the partial derivatives for the first operand */
+    final double[] m_partialsA;
+    /** the partial derivatives for the second operand */
+    final double[] m_partialsB;
+
+    /**
+     * create
+     *
+     * @param count
+     *          the number of nodes
+     * @param parameterCount
+     *          the number of parameters
+     */
+    _Workspace(final int count, final int parameterCount) {
+      super();
+      this.m_values = new double[count * _ExpressionProgram.BLOCK];
+      this.m_derivatives = new double[count * parameterCount
+          * _ExpressionProgram.BLOCK];
+      this.m_singleValues = new double[count];
+      this.m_singleDerivatives = new double[count * parameterCount];
+      this.m_partialsA = new double[_ExpressionProgram.BLOCK];
+      this.m_partialsB = new double[_ExpressionProgram.BLOCK];
+    }
+  }
+}
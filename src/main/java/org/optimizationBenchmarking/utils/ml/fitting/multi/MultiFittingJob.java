@@ -1,20 +1,22 @@
 package org.optimizationBenchmarking.utils.ml.fitting.multi;
 
 import java.util.ArrayList;
-import java.util.concurrent.Future;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.FittingUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.CachingFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStore;
 import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJobBuilder;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
-import org.optimizationBenchmarking.utils.parallel.Execute;
 import org.optimizationBenchmarking.utils.text.textOutput.MemoryTextOutput;
 import org.optimizationBenchmarking.utils.tools.impl.abstr.ToolJob;
 
@@ -24,11 +26,17 @@ import org.optimizationBenchmarking.utils.tools.impl.abstr.ToolJob;
  */
 public final class MultiFittingJob extends ToolJob implements IFittingJob {
 
+  /**
+   * in each racing round, only the best {@code 1/RACING_REDUCTION} of the
+   * fitter/function pairs advance to the next round
+   */
+  private static final int RACING_REDUCTION = 3;
+
   /** the fitters */
   private final Iterable<IFunctionFitter> m_fitters;
 
   /** the {@code x-y}-coordinate pairs */
-  private final IMatrix m_points;
+  private final PreparedDataset m_points;
 
   /** a functions to fit */
   private final Iterable<ParametricUnaryFunction> m_functions;
@@ -36,6 +44,18 @@ public final class MultiFittingJob extends ToolJob implements IFittingJob {
   /** the fitting quality measure */
   private final IFittingQualityMeasure m_measure;
 
+  /** the target quality */
+  private final double m_targetQuality;
+
+  /** should results be cached? */
+  private final boolean m_cacheResults;
+
+  /** should the fitter/function pairs race against each other? */
+  private final boolean m_racing;
+
+  /** the persistent result store, or {@code null} if none is used */
+  private final FittingResultStore m_store;
+
   /**
    * create
    *
@@ -53,6 +73,11 @@ public final class MultiFittingJob extends ToolJob implements IFittingJob {
         this.m_fitters = builder.m_fitters);
     FittingJobBuilder.validateMeasure(//
         this.m_measure = builder.m_measure);
+    MultiFittingJobBuilder._validateTargetQuality(//
+        this.m_targetQuality = builder.m_targetQuality);
+    this.m_cacheResults = builder.m_cacheResults;
+    this.m_racing = builder.m_racing;
+    this.m_store = builder.m_store;
   }
 
   /**
@@ -98,20 +123,203 @@ public final class MultiFittingJob extends ToolJob implements IFittingJob {
     return textOut;
   }
 
+  /**
+   * Create the task for fitting a function with a fitter
+   *
+   * @param scheduler
+   *          the scheduler
+   * @param index
+   *          the index of the fitter/function pair
+   * @param fitter
+   *          the fitter
+   * @param function
+   *          the function
+   * @param measure
+   *          the quality measure
+   * @param effort
+   *          the effort, see {@link FittingJobBuilder#setEffort(double)}
+   * @param cache
+   *          should the result be cached?
+   * @param logger
+   *          the logger
+   * @return the task
+   */
+  private final _FittingTask __createTask(
+      final _FittingScheduler scheduler, final int index,
+      final IFunctionFitter fitter, final ParametricUnaryFunction function,
+      final IFittingQualityMeasure measure, final double effort,
+      final boolean cache, final Logger logger) {
+    final IFittingJobBuilder builder;
+
+    builder = fitter.use().setLogger(logger)//
+        .setFunctionToFit(function)//
+        .setQualityMeasure(measure)//
+        .setPoints(this.m_points);
+    if ((effort < 1d) && (builder instanceof FittingJobBuilder)) {
+      ((FittingJobBuilder) builder).setEffort(effort);
+    }
+
+    return new _FittingTask(scheduler, index, builder.create(), //
+        function.getParameterCount(), measure.getSampleCount(), //
+        (cache ? _ResultCache._key(this.m_points, function, fitter,
+            measure) : null));
+  }
+
+  /**
+   * Let the fitter/function pairs race against each other: In each
+   * round, all remaining pairs are fitted to a random subset of the data
+   * with a reduced effort. Only the best {@code 1/}
+   * {@link #RACING_REDUCTION} of them advance to the next round, which
+   * uses {@link #RACING_REDUCTION} times as many points and effort. The
+   * rounds are planned such that only a few pairs remain for the final,
+   * full fitting on all the data.
+   *
+   * @param fitters
+   *          the fitters, modified in place
+   * @param functions
+   *          the functions, modified in place
+   * @param logger
+   *          the logger
+   */
+  private final void __race(final ArrayList<IFunctionFitter> fitters,
+      final ArrayList<ParametricUnaryFunction> functions,
+      final Logger logger) {
+    final int totalSamples;
+    final Random random;
+    final ArrayList<IFunctionFitter> nextFitters;
+    final ArrayList<ParametricUnaryFunction> nextFunctions;
+    _FittingScheduler scheduler;
+    IFittingQualityMeasure measure;
+    IFittingResult result;
+    _FittingTask task;
+    double[] qualities;
+    int[] lengths, order;
+    double scale, quality;
+    int rounds, count, index, index2, minSamples, samples, survivors, swap;
+
+    count = fitters.size();
+    rounds = 0;
+    minSamples = 16;
+    for (survivors = count; survivors > 1; survivors = MultiFittingJob
+        .__survivors(survivors)) {
+      ++rounds;
+    }
+    for (final ParametricUnaryFunction function : functions) {
+      minSamples = Math.max(minSamples, (function.getParameterCount() << 2));
+    }
+
+    totalSamples = this.m_measure.getSampleCount();
+    random = new Random(this.m_points.contentHashCode());
+    nextFitters = new ArrayList<>(count);
+    nextFunctions = new ArrayList<>(count);
+
+    for (; (rounds > 0) && (count > 1); --rounds) {
+      scale = Math.pow(MultiFittingJob.RACING_REDUCTION, rounds);
+      samples = Math.max(minSamples, ((int) (totalSamples / scale)));
+      measure = ((samples < totalSamples)
+          ? this.m_measure.subselect(samples, random) : this.m_measure);
+
+      scheduler = new _FittingScheduler();
+      for (index = 0; index < count; index++) {
+        scheduler._add(this.__createTask(scheduler, index,
+            fitters.get(index), functions.get(index), measure,
+            (1d / scale), false, logger));
+      }
+
+      qualities = new double[count];
+      lengths = new int[count];
+      order = new int[count];
+      for (index = count; (--index) >= 0;) {
+        qualities[index] = Double.POSITIVE_INFINITY;
+        order[index] = index;
+      }
+
+      scheduler._run();
+      while ((task = scheduler._next()) != null) {
+        result = task.m_result;
+        if ((task.m_error == null) && (result != null)) {
+          quality = result.getQuality();
+          if ((quality >= 0d) && (quality < Double.POSITIVE_INFINITY)) {
+            qualities[task.m_index] = quality;
+            lengths[task.m_index] = task.m_parameterCount;
+          }
+        }
+      }
+
+      // insertion sort by quality, then by number of parameters
+      for (index = 1; index < count; index++) {
+        swap = order[index];
+        for (index2 = index; index2 > 0; index2--) {
+          if ((qualities[order[index2 - 1]] < qualities[swap])
+              || ((qualities[order[index2 - 1]] == qualities[swap])
+                  && (lengths[order[index2 - 1]] <= lengths[swap]))) {
+            break;
+          }
+          order[index2] = order[index2 - 1];
+        }
+        order[index2] = swap;
+      }
+
+      survivors = MultiFittingJob.__survivors(count);
+      if (qualities[order[0]] >= Double.POSITIVE_INFINITY) {
+        // nothing could be fitted to the subset, let all pairs advance
+        survivors = count;
+      } else {
+        while (qualities[order[survivors - 1]] >= Double.POSITIVE_INFINITY) {
+          --survivors;
+        }
+      }
+
+      if ((logger != null) && (logger.isLoggable(Level.FINER))) {
+        logger.finer("Racing round on " + measure.getSampleCount() + //$NON-NLS-1$
+            " samples: " + survivors + " of " + count + //$NON-NLS-1$//$NON-NLS-2$
+            " fitter/function pairs advance."); //$NON-NLS-1$
+      }
+
+      for (index = 0; index < survivors; index++) {
+        nextFitters.add(fitters.get(order[index]));
+        nextFunctions.add(functions.get(order[index]));
+      }
+      fitters.clear();
+      fitters.addAll(nextFitters);
+      nextFitters.clear();
+      functions.clear();
+      functions.addAll(nextFunctions);
+      nextFunctions.clear();
+      count = survivors;
+    }
+  }
+
+  /**
+   * Compute the number of fitter/function pairs advancing to the next
+   * racing round
+   *
+   * @param count
+   *          the number of pairs in the current round
+   * @return the number of pairs advancing to the next round
+   */
+  private static final int __survivors(final int count) {
+    return ((count + MultiFittingJob.RACING_REDUCTION - 1)
+        / MultiFittingJob.RACING_REDUCTION);
+  }
+
   /** {@inheritDoc} */
   @Override
   public final IFittingResult call() {
-    final ArrayList<Future<IFittingResult>> futures;
+    final _FittingScheduler scheduler;
+    final ArrayList<IFunctionFitter> fitters;
+    final ArrayList<ParametricUnaryFunction> functions;
     final Logger logger;
-    final int size;
+    IFunctionFitter taskFitter;
     IFittingResult best, current;
+    _FittingTask task;
     double bestQuality, curQuality;
-    int bestLength, curLength;
+    int bestLength, curLength, index;
+    boolean first;
     MemoryTextOutput textOut;
     Throwable error;
     String text;
 
-    futures = new ArrayList<>();
     logger = this.getLogger();
 
     textOut = null;
@@ -120,19 +328,25 @@ public final class MultiFittingJob extends ToolJob implements IFittingJob {
       logger.finer("Beginning to fit" + textOut.toString());//$NON-NLS-1$
     }
 
+    fitters = new ArrayList<>();
+    functions = new ArrayList<>();
+    first = true;
     for (final IFunctionFitter fitter : this.m_fitters) {
       for (final ParametricUnaryFunction function : this.m_functions) {
         FittingJobBuilder.validateFunction(function);
-        futures.add(Execute.parallel(fitter.use().setLogger(logger)//
-            .setFunctionToFit(function)//
-            .setQualityMeasure(this.m_measure)//
-            .setPoints(this.m_points)//
-            .create()));
+        if ((!first) && FittingUtils.canFitInClosedForm(function,
+            this.m_measure)) {
+          // all fitters compute the same exact result in closed form, so
+          // one is enough
+          continue;
+        }
+        fitters.add(fitter);
+        functions.add(function);
       }
+      first = false;
     }
 
-    size = futures.size();
-    if (size <= 0) {
+    if (fitters.size() <= 0) {
       if (textOut == null) {
         textOut = this.__createMessageBody();
       }
@@ -142,25 +356,41 @@ public final class MultiFittingJob extends ToolJob implements IFittingJob {
           "Error when fitting " + textOut.toString()); //$NON-NLS-1$
     }
 
+    if (this.m_racing) {
+      this.__race(fitters, functions, logger);
+    }
+
+    scheduler = new _FittingScheduler();
+    for (index = 0; index < fitters.size(); index++) {
+      taskFitter = fitters.get(index);
+      if (this.m_store != null) {
+        taskFitter = new CachingFunctionFitter(taskFitter,
+            this.m_store);
+      }
+      scheduler._add(this.__createTask(scheduler, index, taskFitter,
+          functions.get(index), this.m_measure, 1d, this.m_cacheResults,
+          logger));
+    }
+    scheduler._run();
+
     best = current = null;
     bestQuality = Double.POSITIVE_INFINITY;
     bestLength = Integer.MAX_VALUE;
     error = null;
-    for (final Future<IFittingResult> future : futures) {
+    while ((task = scheduler._next()) != null) {
 
-      try {
-        current = future.get();
-      } catch (final Throwable throwable) {
+      if (task.m_error != null) {
         if (best == null) {
           if (error == null) {
-            error = throwable;
+            error = task.m_error;
           } else {
-            error.addSuppressed(throwable);
+            error.addSuppressed(task.m_error);
           }
         }
         continue;
       }
 
+      current = task.m_result;
       if (current == null) {
         continue;
       }
@@ -176,6 +406,10 @@ public final class MultiFittingJob extends ToolJob implements IFittingJob {
         error = null;
         bestQuality = curQuality;
         bestLength = curLength;
+        if ((bestQuality >= 0d)
+            && (bestQuality <= this.m_targetQuality)) {
+          scheduler._cancel(bestLength);
+        }
       }
     }
 
@@ -5,8 +5,9 @@ import java.util.Collection;
 import org.optimizationBenchmarking.utils.collections.lists.ArrayListView;
 import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.DefaultFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
-import org.optimizationBenchmarking.utils.ml.fitting.quality.FittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStore;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
@@ -18,6 +19,13 @@ import org.optimizationBenchmarking.utils.tools.impl.abstr.ToolJobBuilder;
 public final class MultiFittingJobBuilder
     extends ToolJobBuilder<MultiFittingJob, MultiFittingJobBuilder> {
 
+  /**
+   * the default target quality: once a fitting with a quality at least
+   * this good has been found, fitting jobs which have not yet been
+   * started and could not lead to a better result are cancelled
+   */
+  public static final double DEFAULT_TARGET_QUALITY = 1e-12d;
+
   /** the owning fitter */
   private final MultiFunctionFitter m_tool;
 
@@ -25,7 +33,7 @@ public final class MultiFittingJobBuilder
   Iterable<IFunctionFitter> m_fitters;
 
   /** the {@code x-y}-coordinate pairs */
-  IMatrix m_points;
+  PreparedDataset m_points;
 
   /** a functions to fit */
   Iterable<ParametricUnaryFunction> m_functions;
@@ -33,6 +41,18 @@ public final class MultiFittingJobBuilder
   /** the fitting quality measure */
   IFittingQualityMeasure m_measure;
 
+  /** the target quality */
+  double m_targetQuality;
+
+  /** should results be cached? */
+  boolean m_cacheResults;
+
+  /** should the fitter/function pairs race against each other? */
+  boolean m_racing;
+
+  /** the persistent result store, or {@code null} if none is used */
+  FittingResultStore m_store;
+
   /**
    * create
    *
@@ -42,18 +62,22 @@ public final class MultiFittingJobBuilder
   MultiFittingJobBuilder(final MultiFunctionFitter owner) {
     super();
     this.m_tool = owner;
+    this.m_targetQuality = MultiFittingJobBuilder.DEFAULT_TARGET_QUALITY;
+    this.m_cacheResults = true;
+    this.m_store = DefaultFunctionFitter.getResultStore();
   }
 
   /**
-   * Set the points, i.e., the matrix of data to be fitted
+   * Set the points, i.e., the matrix of data to be fitted. The points are
+   * converted to a {@link PreparedDataset} (unless they already are one),
+   * which is then shared by all fitting jobs.
    *
    * @param points
    *          the points to be fitted
    * @return this builder
    */
   public final MultiFittingJobBuilder setPoints(final IMatrix points) {
-    FittingQualityMeasure.validateData(points);
-    this.m_points = points;
+    this.m_points = PreparedDataset.prepare(points);
     return this;
   }
 
@@ -76,7 +100,7 @@ public final class MultiFittingJobBuilder
    *
    * @return the matrix with the points to be fitted
    */
-  public final IMatrix getPoints() {
+  public final PreparedDataset getPoints() {
     return this.m_points;
   }
 
@@ -196,6 +220,136 @@ public final class MultiFittingJobBuilder
     return this.m_measure;
   }
 
+  /**
+   * Set the target quality. Once a fitting result with a quality less or
+   * equal to this value has been found, all fitting jobs which have not
+   * yet been started and which fit functions with at least as many
+   * parameters as that result are cancelled. Set this to {@code -1} to
+   * always run all fitting jobs.
+   *
+   * @param targetQuality
+   *          the target quality
+   * @return this builder
+   */
+  public final MultiFittingJobBuilder setTargetQuality(
+      final double targetQuality) {
+    MultiFittingJobBuilder._validateTargetQuality(targetQuality);
+    this.m_targetQuality = targetQuality;
+    return this;
+  }
+
+  /**
+   * Validate the target quality
+   *
+   * @param targetQuality
+   *          the target quality
+   */
+  static final void _validateTargetQuality(final double targetQuality) {
+    if ((targetQuality != targetQuality)
+        || (targetQuality >= Double.POSITIVE_INFINITY)) {
+      throw new IllegalArgumentException(//
+          "Target quality must be finite, but is " //$NON-NLS-1$
+              + targetQuality);
+    }
+  }
+
+  /**
+   * Get the target quality
+   *
+   * @return the target quality
+   */
+  public final double getTargetQuality() {
+    return this.m_targetQuality;
+  }
+
+  /**
+   * Set whether the fitting results should be cached. If caching is
+   * enabled, the results of all fitting jobs are stored in a process-wide
+   * cache and re-used if the same function is fitted to a data set with
+   * the same contents using the same fitter and quality measure again.
+   *
+   * @param cacheResults
+   *          {@code true} to cache results, {@code false} to always
+   *          perform the fitting
+   * @return this builder
+   */
+  public final MultiFittingJobBuilder setCacheResults(
+      final boolean cacheResults) {
+    this.m_cacheResults = cacheResults;
+    return this;
+  }
+
+  /**
+   * Are the fitting results cached?
+   *
+   * @return {@code true} if results are cached, {@code false} otherwise
+   */
+  public final boolean isCachingResults() {
+    return this.m_cacheResults;
+  }
+
+  /**
+   * Set the persistent store for the fitting results. If a store is set,
+   * the final fitting of each fitter/function pair on the full data is
+   * looked up in the store first and new results are added to it, see
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.cache.CachingFunctionFitter}
+   * . Different from the {@linkplain #setCacheResults(boolean)
+   * process-wide cache}, the store survives the end of the process. By
+   * default, the
+   * {@linkplain DefaultFunctionFitter#getResultStore() store of the
+   * default fitters} is used.
+   *
+   * @param store
+   *          the store, or {@code null} to not use a store
+   * @return this builder
+   */
+  public final MultiFittingJobBuilder setResultStore(
+      final FittingResultStore store) {
+    this.m_store = store;
+    return this;
+  }
+
+  /**
+   * Get the persistent store for the fitting results
+   *
+   * @return the store, or {@code null} if none is used
+   * @see #setResultStore(FittingResultStore)
+   */
+  public final FittingResultStore getResultStore() {
+    return this.m_store;
+  }
+
+  /**
+   * Set whether the fitter/function pairs should race against each
+   * other. In racing mode, all pairs are first fitted to a small random
+   * subset of the data with a reduced iteration budget. Only the best
+   * third of them advances to the next round, in which three times as
+   * many points and iterations are used, until only a few pairs remain.
+   * These are then fitted to the full data as usual. This can reduce the
+   * time needed to select a model from many candidates considerably, but
+   * there is a small chance that a model which would be the best on the
+   * full data is eliminated early. By default, racing is disabled.
+   *
+   * @param racing
+   *          {@code true} to let the pairs race, {@code false} to fit all
+   *          of them to the full data
+   * @return this builder
+   */
+  public final MultiFittingJobBuilder setRacing(final boolean racing) {
+    this.m_racing = racing;
+    return this;
+  }
+
+  /**
+   * Are the fitter/function pairs racing against each other?
+   *
+   * @return {@code true} if racing is enabled, {@code false} otherwise
+   * @see #setRacing(boolean)
+   */
+  public final boolean isRacing() {
+    return this.m_racing;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final MultiFittingJob create() {
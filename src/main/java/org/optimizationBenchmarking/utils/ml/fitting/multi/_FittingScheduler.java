@@ -0,0 +1,274 @@
+package org.optimizationBenchmarking.utils.ml.fitting.multi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>
+ * The scheduler for the fitting jobs of a {@link MultiFittingJob}. The
+ * tasks are ordered by their expected cost and their results are
+ * delivered in the order in which they are completed. Tasks which have
+ * not yet started can be cancelled.
+ * </p>
+ * <p>
+ * If the scheduler is used inside a {@link ForkJoinPool}, all tasks are
+ * forked at once, the most expensive one first. Idle worker threads steal
+ * the forked tasks from the bottom of the deque, i.e., they take the
+ * expensive tasks first, which shortens the total run time. The thread
+ * waiting for results meanwhile executes the cheapest remaining tasks
+ * from the top of its own deque. Only if there are no such tasks left, it
+ * blocks until the next result arrives. Outside of a fork-join pool, the
+ * tasks are executed one by one in the calling thread, the cheapest one
+ * first, so that a result which is good enough to cancel the remaining
+ * tasks is likely to be found early.
+ * </p>
+ */
+final class _FittingScheduler {
+
+  /** the task has not yet started */
+  static final int STATE_PENDING = 0;
+  /** the task is running or finished */
+  static final int STATE_STARTED = (_FittingScheduler.STATE_PENDING + 1);
+  /** the task has been cancelled */
+  static final int STATE_CANCELLED = (_FittingScheduler.STATE_STARTED
+      + 1);
+
+  /** the tasks */
+  private final ArrayList<_FittingTask> m_tasks;
+
+  /** the completed tasks */
+  private final LinkedBlockingQueue<_FittingTask> m_completed;
+
+  /**
+   * the number of tasks which have neither been returned by
+   * {@link #_next()} nor been cancelled
+   */
+  private int m_pending;
+
+  /** are we running inside a fork-join pool? */
+  private boolean m_forked;
+
+  /**
+   * the index of the next task to execute in the calling thread, i.e.,
+   * the cheapest task which has not yet been started by it
+   */
+  private int m_next;
+
+  /** create the scheduler */
+  _FittingScheduler() {
+    super();
+    this.m_tasks = new ArrayList<>();
+    this.m_completed = new LinkedBlockingQueue<>();
+  }
+
+  /**
+   * Add a task
+   *
+   * @param task
+   *          the task
+   */
+  final void _add(final _FittingTask task) {
+    this.m_tasks.add(task);
+  }
+
+  /**
+   * Get the number of tasks
+   *
+   * @return the number of tasks
+   */
+  final int _size() {
+    return this.m_tasks.size();
+  }
+
+  /** Start executing the tasks. */
+  final void _run() {
+    final ArrayList<_FittingTask> tasks;
+    int index;
+
+    tasks = this.m_tasks;
+    Collections.sort(tasks, __CostComparator.INSTANCE);
+    this.m_pending = tasks.size();
+
+    // deliver cached results right away
+    for (final _FittingTask task : tasks) {
+      if (task._loadFromCache()) {
+        task.m_state = _FittingScheduler.STATE_STARTED;
+        this.m_completed.add(task);
+      }
+    }
+
+    this.m_forked = ForkJoinTask.inForkJoinPool();
+    if (this.m_forked) {
+      for (index = tasks.size(); (--index) >= 0;) {
+        tasks.get(index).fork();
+      }
+    }
+  }
+
+  /**
+   * Mark a task as started
+   *
+   * @param task
+   *          the task
+   * @return {@code true} if the task should be executed, {@code false} if
+   *         it has been cancelled or already been completed
+   */
+  final synchronized boolean _start(final _FittingTask task) {
+    if (task.m_state == _FittingScheduler.STATE_PENDING) {
+      task.m_state = _FittingScheduler.STATE_STARTED;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Notify the scheduler that a task has been completed
+   *
+   * @param task
+   *          the task
+   */
+  final void _completed(final _FittingTask task) {
+    this.m_completed.add(task);
+  }
+
+  /**
+   * Cancel all tasks which have not yet been started and which fit a
+   * function with at least the given number of parameters. A task fitting
+   * a function with fewer parameters is not cancelled, since it could
+   * still provide a result of the same quality, which would then be
+   * preferred.
+   *
+   * @param parameterCount
+   *          the minimum number of parameters of the functions whose
+   *          tasks should be cancelled
+   */
+  final synchronized void _cancel(final int parameterCount) {
+    for (final _FittingTask task : this.m_tasks) {
+      if ((task.m_state == _FittingScheduler.STATE_PENDING)
+          && (task.m_parameterCount >= parameterCount)) {
+        task.m_state = _FittingScheduler.STATE_CANCELLED;
+        --this.m_pending;
+      }
+    }
+  }
+
+  /**
+   * Get the next completed task. This method must only be called by the
+   * thread which has called {@link #_run()}.
+   *
+   * @return the next completed task, or {@code null} if all tasks have
+   *         been completed or cancelled
+   */
+  final _FittingTask _next() {
+    final ArrayList<_FittingTask> tasks;
+    final int size;
+    _FittingTask task;
+    __Blocker blocker;
+
+    synchronized (this) {
+      if (this.m_pending <= 0) {
+        return null;
+      }
+      --this.m_pending;
+    }
+
+    tasks = this.m_tasks;
+    size = tasks.size();
+    for (;;) {
+      task = this.m_completed.poll();
+      if (task != null) {
+        return task;
+      }
+
+      // execute the next cheapest task ourselves
+      if (this.m_next >= size) {
+        break;
+      }
+      task = tasks.get(this.m_next++);
+      if (this.m_forked) {
+        if (task.tryUnfork()) {
+          task.invoke();
+        } else {
+          // the remaining tasks have been stolen by other threads
+          this.m_next = size;
+        }
+      } else {
+        task.invoke();
+      }
+    }
+
+    // wait for a result from another thread
+    blocker = new __Blocker(this.m_completed);
+    for (;;) {
+      try {
+        ForkJoinPool.managedBlock(blocker);
+        return blocker.m_task;
+      } catch (@SuppressWarnings("unused") final InterruptedException error) {
+        // ignore
+      }
+    }
+  }
+
+  /** the blocker waiting for a completed task */
+  private static final class __Blocker
+      implements ForkJoinPool.ManagedBlocker {
+
+    /** the queue */
+    private final LinkedBlockingQueue<_FittingTask> m_queue;
+
+    /** the task */
+    _FittingTask m_task;
+
+    /**
+     * create the blocker
+     *
+     * @param queue
+     *          the queue
+     */
+    __Blocker(final LinkedBlockingQueue<_FittingTask> queue) {
+      super();
+      this.m_queue = queue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean block() throws InterruptedException {
+      if (this.m_task == null) {
+        this.m_task = this.m_queue.take();
+      }
+      return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean isReleasable() {
+      if (this.m_task == null) {
+        this.m_task = this.m_queue.poll();
+      }
+      return (this.m_task != null);
+    }
+  }
+
+  /** the comparator sorting tasks by increasing expected cost */
+  private static final class __CostComparator
+      implements Comparator<_FittingTask> {
+
+    /** the shared instance */
+    static final __CostComparator INSTANCE = new __CostComparator();
+
+    /** create */
+    private __CostComparator() {
+      super();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int compare(final _FittingTask a, final _FittingTask b) {
+      return Long.compare(a.m_cost, b.m_cost);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package org.optimizationBenchmarking.utils.ml.fitting.multi;
+
+import java.util.concurrent.RecursiveAction;
+
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+
+/**
+ * A single fitting job executed by a {@link _FittingScheduler}.
+ */
+final class _FittingTask extends RecursiveAction {
+
+  /** the serial version uid */
+  private static final long serialVersionUID = 1L;
+
+  /** the owning scheduler */
+  private final _FittingScheduler m_owner;
+  /** the index of the task in the order of creation */
+  final int m_index;
+  /** the job to execute */
+  private final IFittingJob m_job;
+  /** the number of parameters of the function to fit */
+  final int m_parameterCount;
+  /** the expected cost */
+  final long m_cost;
+  /** the key of the result cache, or {@code null} if not cached */
+  private final Object m_cacheKey;
+
+  /** the state: one of the {@code STATE_} constants of the scheduler */
+  int m_state;
+
+  /** the result, if any */
+  IFittingResult m_result;
+  /** the error, if any */
+  Throwable m_error;
+
+  /**
+   * create the fitting task
+   *
+   * @param owner
+   *          the owning scheduler
+   * @param index
+   *          the index of the task in the order of creation
+   * @param job
+   *          the job to execute
+   * @param parameterCount
+   *          the number of parameters of the function to fit
+   * @param pointCount
+   *          the number of points to fit
+   * @param cacheKey
+   *          the key of the result cache, or {@code null} if the result
+   *          should not be cached
+   */
+  _FittingTask(final _FittingScheduler owner, final int index,
+      final IFittingJob job, final int parameterCount,
+      final int pointCount, final Object cacheKey) {
+    super();
+    this.m_owner = owner;
+    this.m_index = index;
+    this.m_job = job;
+    this.m_parameterCount = parameterCount;
+    // A rough estimate: The population sizes and iteration budgets of the
+    // fitters grow with the square of the parameter count, and each
+    // evaluation needs to visit each point.
+    this.m_cost = (((long) parameterCount) * parameterCount * pointCount);
+    this.m_cacheKey = cacheKey;
+  }
+
+  /**
+   * Try to obtain the result from the result cache
+   *
+   * @return {@code true} if the result was found in the cache,
+   *         {@code false} otherwise
+   */
+  final boolean _loadFromCache() {
+    if (this.m_cacheKey != null) {
+      this.m_result = _ResultCache._get(this.m_cacheKey);
+      return (this.m_result != null);
+    }
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final void compute() {
+    if (this.m_owner._start(this)) {
+      try {
+        this.m_result = this.m_job.call();
+        if ((this.m_cacheKey != null) && (this.m_result != null)) {
+          _ResultCache._put(this.m_cacheKey, this.m_result);
+        }
+      } catch (final Throwable error) {
+        this.m_error = error;
+      }
+      this.m_owner._completed(this);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package org.optimizationBenchmarking.utils.ml.fitting.multi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.optimizationBenchmarking.utils.error.ErrorUtils;
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.CachingFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRobustError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+/**
+ * A process-wide cache for the results of fitting jobs, keyed by the
+ * data set, the function to fit, the fitter, and the quality measure.
+ * Data sets are compared by their contents, so that fitting the same
+ * data again, e.g., when generating a report for the same experiment
+ * data a second time, does not refit identical curves. The cache keeps
+ * the most recently used {@link #MAX_SIZE} results. Neither the keys nor
+ * the results reference the fitted data, so the cache does not keep data
+ * sets or quality measures alive. The keys only reference the fitters,
+ * which do not hold any data.
+ */
+final class _ResultCache {
+
+  /** the maximum number of cached results */
+  static final int MAX_SIZE = 1024;
+
+  /** the forbidden constructor */
+  private _ResultCache() {
+    ErrorUtils.doNotCall();
+  }
+
+  /**
+   * Create the cache key for a fitting job. The quality measure is
+   * identified by its class and, for the
+   * {@linkplain WeightedRobustError robust measures}, by its scale, as it
+   * is always computed over the same points. The fitter is identified by
+   * itself, i.e., by its {@link Object#equals(Object)} method, so that
+   * two differently configured fitters of the same class do not share
+   * their results. A {@link CachingFunctionFitter} is identified by the
+   * fitter it wraps, since all fitters wrapped for the same result store
+   * would otherwise share their results.
+   *
+   * @param points
+   *          the points to fit
+   * @param function
+   *          the function to fit
+   * @param fitter
+   *          the fitter
+   * @param measure
+   *          the quality measure
+   * @return the key
+   */
+  static final Object _key(final PreparedDataset points,
+      final ParametricUnaryFunction function, final IFunctionFitter fitter,
+      final IFittingQualityMeasure measure) {
+    final IFunctionFitter keyFitter;
+    String measureName;
+
+    keyFitter = ((fitter instanceof CachingFunctionFitter)
+        ? ((CachingFunctionFitter) fitter).getFitter() : fitter);
+
+    measureName = measure.getClass().getName();
+    if (measure instanceof WeightedRobustError) {
+      measureName += ('(' + Double.toString(
+          ((WeightedRobustError) measure).getScale()) + ')');
+    }
+    return new __Key(points.contentFingerprint(), points.m(), keyFitter,
+        measureName + '\t' + //
+            function.getClass().getName() + '\t' + //
+            function.getParameterCount());
+  }
+
+  /**
+   * Get the cached result for a given key
+   *
+   * @param key
+   *          the key
+   * @return the result, or {@code null} if none is cached
+   */
+  static final IFittingResult _get(final Object key) {
+    final __Map map;
+
+    map = __Holder.MAP;
+    synchronized (map) {
+      return map.get(key);
+    }
+  }
+
+  /**
+   * Store a result in the cache, unless a result which is at least as
+   * good is already cached for the same key
+   *
+   * @param key
+   *          the key
+   * @param result
+   *          the result
+   */
+  static final void _put(final Object key, final IFittingResult result) {
+    final __Map map;
+    final IFittingResult old;
+
+    map = __Holder.MAP;
+    synchronized (map) {
+      old = map.get(key);
+      if ((old == null) || (result.getQuality() < old.getQuality())) {
+        map.put(key, result);
+      }
+    }
+  }
+
+  /**
+   * The key of a cached result. It identifies the data set only by its
+   * {@linkplain PreparedDataset#contentFingerprint() fingerprint} and
+   * size and the function and quality measure by their classes, so that
+   * the cache never keeps any data alive. The fitter is referenced
+   * directly.
+   */
+  private static final class __Key {
+
+    /** the fingerprint of the points */
+    private final long m_fingerprint;
+    /** the number of points */
+    private final int m_size;
+    /** the fitter */
+    private final IFunctionFitter m_fitter;
+    /** the descriptor of the function and measure */
+    private final String m_descriptor;
+    /** the hash code */
+    private final int m_hashCode;
+
+    /**
+     * create the key
+     *
+     * @param fingerprint
+     *          the fingerprint of the points
+     * @param size
+     *          the number of points
+     * @param fitter
+     *          the fitter
+     * @param descriptor
+     *          the descriptor of the function and measure
+     */
+    __Key(final long fingerprint, final int size,
+        final IFunctionFitter fitter, final String descriptor) {
+      super();
+      this.m_fingerprint = fingerprint;
+      this.m_size = size;
+      this.m_fitter = fitter;
+      this.m_descriptor = descriptor;
+      this.m_hashCode = HashUtils.combineHashes(//
+          HashUtils.combineHashes(HashUtils.hashCode(fingerprint),
+              HashUtils.hashCode(size)), //
+          HashUtils.combineHashes(HashUtils.hashCode(fitter),
+              HashUtils.hashCode(descriptor)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int hashCode() {
+      return this.m_hashCode;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean equals(final Object o) {
+      final __Key other;
+
+      if (o == this) {
+        return true;
+      }
+      if (o instanceof __Key) {
+        other = ((__Key) o);
+        return ((this.m_fingerprint == other.m_fingerprint) && //
+            (this.m_size == other.m_size) && //
+            this.m_fitter.equals(other.m_fitter) && //
+            this.m_descriptor.equals(other.m_descriptor));
+      }
+      return false;
+    }
+  }
+
+  /** the map with the least recently used entry first */
+  private static final class __Map
+      extends LinkedHashMap<Object, IFittingResult> {
+
+    /** the serial version uid */
+    private static final long serialVersionUID = 1L;
+
+    /** create */
+    __Map() {
+      super(16, 0.75f, true);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final boolean removeEldestEntry(
+        final Map.Entry<Object, IFittingResult> eldest) {
+      return (this.size() > _ResultCache.MAX_SIZE);
+    }
+  }
+
+  /** the holder for the cache map */
+  private static final class __Holder {
+    /** the shared map */
+    static final __Map MAP = new __Map();
+  }
+}
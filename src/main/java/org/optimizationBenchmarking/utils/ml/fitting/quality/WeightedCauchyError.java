@@ -0,0 +1,143 @@
+package org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * A robust quality measure based on the Cauchy (or Lorentzian) loss: A
+ * weighted residual {@code r} contributes {@code c*c*ln(1+(r*r)/(c*c))},
+ * where {@code c} is the scale. The loss grows only logarithmically for
+ * large residuals, so gross outliers have almost no influence on the
+ * fitting outcome. Since the loss is not convex, it should be used if
+ * the data contains many or very large outliers.
+ */
+public final class WeightedCauchyError extends WeightedRobustError {
+
+  /**
+   * create the Cauchy error with the
+   * {@linkplain WeightedRobustError#DEFAULT_SCALE default scale}
+   *
+   * @param data
+   *          the data matrix
+   */
+  public WeightedCauchyError(final IMatrix data) {
+    this(data, WeightedRobustError.DEFAULT_SCALE);
+  }
+
+  /**
+   * create the Cauchy error
+   *
+   * @param data
+   *          the data matrix
+   * @param scale
+   *          the scale, i.e., the size of the weighted residuals above
+   *          which the loss grows more slowly than the square
+   */
+  public WeightedCauchyError(final IMatrix data, final double scale) {
+    this(WeightedRootMeanSquareError._computeSamples(data), scale);
+  }
+
+  /**
+   * create the Cauchy error
+   *
+   * @param samples
+   *          the samples
+   * @param scale
+   *          the scale
+   */
+  private WeightedCauchyError(final _WeightedSamples samples,
+      final double scale) {
+    super(samples, scale);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final WeightedCauchyError _create(final _WeightedSamples samples) {
+    return new WeightedCauchyError(samples, this.m_scale);
+  }
+
+  /**
+   * Compute {@code ln(1+t)} for {@code t>=0}. {@link Math#log1p(double)}
+   * is much slower than {@link Math#log(double)}, which is usually a JIT
+   * intrinsic, and only needed to avoid the cancellation for tiny
+   * arguments, where the first terms of the series expansion are exact.
+   *
+   * @param t
+   *          the argument
+   * @return {@code ln(1+t)}
+   */
+  private static final double __log1p(final double t) {
+    if (t < 1e-4d) {
+      return (t * (1d - (t * (0.5d - (t / 3d)))));
+    }
+    return Math.log(1d + t);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final double _sumOfLosses(final double[] residuals, final int count) {
+    final double scaleSquare;
+    double sum, residual;
+    int i;
+
+    scaleSquare = this.m_scaleSquare;
+    sum = 0d;
+    for (i = 0; i < count; i++) {
+      residual = residuals[i];
+      sum += WeightedCauchyError
+          .__log1p((residual * residual) / scaleSquare);
+    }
+    return (sum * scaleSquare);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final double _reweight(final double[] residuals,
+      final double[][] jacobian, final int count) {
+    final double scaleSquare;
+    double sum, residual, ratio, loss, weight;
+    int i;
+
+    scaleSquare = this.m_scaleSquare;
+    sum = 0d;
+    for (i = 0; i < count; i++) {
+      residual = residuals[i];
+      ratio = ((residual * residual) / scaleSquare);
+      if (ratio == 0d) {
+        continue;
+      }
+      loss = WeightedCauchyError.__log1p(ratio);
+      sum += loss;
+      // the weight sqrt(rho(r*r)/(r*r)) of the residual
+      weight = Math.sqrt(loss / ratio);
+      residuals[i] = (residual * weight);
+      if (jacobian != null) {
+        // rho'(r*r) = 1/(1+(r*r)/(c*c))
+        WeightedRobustError._scaleRow(jacobian[i],
+            (1d / ((1d + ratio) * weight)));
+      }
+    }
+    return (sum * scaleSquare);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return "Weighted Cauchy Error"; //$NON-NLS-1$
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    ETextCase next;
+
+    next = textCase.appendWord("weighted", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    textOut.append("Cauchy"); //$NON-NLS-1$
+    textOut.append(' ');
+    next = next.nextCase();
+    return next.appendWord("error", textOut); //$NON-NLS-1$
+  }
+}
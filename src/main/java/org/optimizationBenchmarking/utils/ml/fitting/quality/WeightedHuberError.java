@@ -0,0 +1,127 @@
+package org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * A robust quality measure based on the Huber loss: Weighted residuals
+ * {@code r} up to the scale {@code c} contribute {@code r*r}, larger ones
+ * only {@code c*(2*|r|-c)}, i.e., they grow linearly instead of
+ * quadratically. Outliers thus have a bounded influence on the gradient,
+ * while small residuals are treated exactly like by the
+ * {@link WeightedRootMeanSquareError}.
+ */
+public final class WeightedHuberError extends WeightedRobustError {
+
+  /**
+   * create the Huber error with the
+   * {@linkplain WeightedRobustError#DEFAULT_SCALE default scale}
+   *
+   * @param data
+   *          the data matrix
+   */
+  public WeightedHuberError(final IMatrix data) {
+    this(data, WeightedRobustError.DEFAULT_SCALE);
+  }
+
+  /**
+   * create the Huber error
+   *
+   * @param data
+   *          the data matrix
+   * @param scale
+   *          the scale, i.e., the size of the weighted residuals above
+   *          which the loss grows only linearly
+   */
+  public WeightedHuberError(final IMatrix data, final double scale) {
+    this(WeightedRootMeanSquareError._computeSamples(data), scale);
+  }
+
+  /**
+   * create the Huber error
+   *
+   * @param samples
+   *          the samples
+   * @param scale
+   *          the scale
+   */
+  private WeightedHuberError(final _WeightedSamples samples,
+      final double scale) {
+    super(samples, scale);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final WeightedHuberError _create(final _WeightedSamples samples) {
+    return new WeightedHuberError(samples, this.m_scale);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final double _sumOfLosses(final double[] residuals, final int count) {
+    final double scale;
+    double sum, absolute, limited;
+    int i;
+
+    scale = this.m_scale;
+    sum = 0d;
+    for (i = 0; i < count; i++) {
+      absolute = Math.abs(residuals[i]);
+      limited = Math.min(absolute, scale);
+      // r*r if |r|<=c, c*(2|r|-c) otherwise
+      sum += (limited * ((2d * absolute) - limited));
+    }
+    return sum;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final double _reweight(final double[] residuals,
+      final double[][] jacobian, final int count) {
+    final double scale;
+    double sum, residual, absolute, loss, root;
+    int i;
+
+    scale = this.m_scale;
+    sum = 0d;
+    for (i = 0; i < count; i++) {
+      residual = residuals[i];
+      absolute = Math.abs(residual);
+      if (absolute <= scale) {
+        // the quadratic region: nothing to reweight
+        sum += (residual * residual);
+        continue;
+      }
+      loss = (scale * ((2d * absolute) - scale));
+      sum += loss;
+      root = Math.sqrt(loss);
+      residuals[i] = ((residual < 0d) ? (-root) : root);
+      if (jacobian != null) {
+        // d/dr sqrt(loss) = c/sqrt(loss)
+        WeightedRobustError._scaleRow(jacobian[i], (scale / root));
+      }
+    }
+    return sum;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return "Weighted Huber Error"; //$NON-NLS-1$
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    ETextCase next;
+
+    next = textCase.appendWord("weighted", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    textOut.append("Huber"); //$NON-NLS-1$
+    textOut.append(' ');
+    next = next.nextCase();
+    return next.appendWord("error", textOut); //$NON-NLS-1$
+  }
+}
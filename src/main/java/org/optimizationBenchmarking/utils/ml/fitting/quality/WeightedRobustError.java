@@ -0,0 +1,296 @@
+package org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import java.util.Random;
+
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+import org.optimizationBenchmarking.utils.math.MathUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+/**
+ * <p>
+ * The base class for robust quality measures, which limit the influence
+ * of outliers on the fitting outcome. The residuals are weighted exactly
+ * like in the {@link WeightedRootMeanSquareError}. Instead of squaring a
+ * weighted residual {@code r}, a loss function {@code rho(r*r)} is applied
+ * to it, which behaves like {@code r*r} for residuals smaller than the
+ * {@linkplain #getScale() scale} and grows more slowly for larger ones.
+ * The quality is {@code sqrt(sum(rho(r*r))/n)}, i.e., the root-mean
+ * loss, which equals the weighted root-mean-square error if all residuals
+ * are small.
+ * </p>
+ * <p>
+ * The least-squares methods of the fitters, e.g., the Levenberg-Marquardt
+ * algorithm, minimize these measures by iteratively reweighted least
+ * squares: Each residual {@code r} is reweighted to
+ * {@code r*sqrt(rho(r*r)/(r*r))}, so that the sum of the squared
+ * reweighted residuals is the sum of the losses, and each row of the
+ * Jacobian is multiplied with the derivative of the reweighted residual
+ * with respect to {@code r}. Since the weights are updated at each
+ * evaluation, every step of the algorithm is a weighted least-squares
+ * step for the current weights. The reweighting is applied to the blocks
+ * of residuals computed by the same evaluation kernel as used by the
+ * {@link WeightedRootMeanSquareError}, so it only adds a few arithmetic
+ * operations per point.
+ * </p>
+ */
+public abstract class WeightedRobustError extends FittingQualityMeasure {
+
+  /**
+   * The default scale: weighted residuals larger than this, i.e.,
+   * relative deviations of more than ten percent, are considered as
+   * potential outliers.
+   */
+  public static final double DEFAULT_SCALE = 0.1d;
+
+  /** the samples backing this quality measure */
+  private final _WeightedSamples m_samples;
+
+  /** the scale */
+  final double m_scale;
+
+  /** the square of the scale */
+  final double m_scaleSquare;
+
+  /**
+   * create the robust fitting quality measure
+   *
+   * @param samples
+   *          the samples
+   * @param scale
+   *          the scale, i.e., the size of weighted residuals above which
+   *          the loss grows more slowly than the square
+   */
+  WeightedRobustError(final _WeightedSamples samples, final double scale) {
+    super();
+
+    if (samples == null) {
+      throw new IllegalArgumentException(//
+          "Samples must not be null."); //$NON-NLS-1$
+    }
+    if ((scale <= 0d) || (scale >= Double.POSITIVE_INFINITY)
+        || (scale != scale)) {
+      throw new IllegalArgumentException(//
+          "Scale must be positive and finite, but is " + scale); //$NON-NLS-1$
+    }
+    this.m_samples = samples;
+    this.m_scale = scale;
+    this.m_scaleSquare = (scale * scale);
+  }
+
+  /**
+   * Get the scale, i.e., the size of the weighted residuals above which
+   * the loss grows more slowly than the square
+   *
+   * @return the scale
+   */
+  public final double getScale() {
+    return this.m_scale;
+  }
+
+  /**
+   * Create a measure of the same type and scale for a different set of
+   * samples
+   *
+   * @param samples
+   *          the samples
+   * @return the measure
+   */
+  abstract WeightedRobustError _create(final _WeightedSamples samples);
+
+  /**
+   * Compute the sum of the losses of a block of weighted residuals
+   *
+   * @param residuals
+   *          the weighted residuals
+   * @param count
+   *          the number of residuals
+   * @return the sum of the losses
+   */
+  abstract double _sumOfLosses(final double[] residuals, final int count);
+
+  /**
+   * Reweight the weighted residuals and the rows of the Jacobian in
+   * place, such that the squared reweighted residuals are the losses and
+   * the rows of the Jacobian are the derivatives of the reweighted
+   * residuals.
+   *
+   * @param residuals
+   *          the weighted residuals
+   * @param jacobian
+   *          the Jacobian, or {@code null} if it was not computed
+   * @param count
+   *          the number of residuals
+   * @return the sum of the losses
+   */
+  abstract double _reweight(final double[] residuals,
+      final double[][] jacobian, final int count);
+
+  /**
+   * Multiply a row of the Jacobian with a factor
+   *
+   * @param row
+   *          the row
+   * @param factor
+   *          the factor
+   */
+  static final void _scaleRow(final double[] row, final double factor) {
+    int j;
+
+    for (j = row.length; (--j) >= 0;) {
+      row[j] *= factor;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final double evaluate(final ParametricUnaryFunction model,
+      final double[] parameters) {
+    final _WeightedSamples samples;
+    final double result;
+
+    samples = this.m_samples;
+    result = Math.sqrt(samples._sumOfLosses(model, parameters, this)
+        / samples._getCount());
+    return (MathUtils.isFinite(result) ? result
+        : Double.POSITIVE_INFINITY);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void evaluate(final ParametricUnaryFunction model,
+      final double[] parameters, final boolean computeResiduals,
+      final boolean computeJacobinian, final FittingEvaluation dest) {
+    this.evaluate(model, parameters, 0, computeResiduals,
+        computeJacobinian, dest);
+  }
+
+  /**
+   * Evaluate a model and compute the reweighted residuals and, only for
+   * the parameters starting at a given index, the reweighted Jacobian,
+   * see
+   * {@link WeightedRootMeanSquareError#evaluate(ParametricUnaryFunction, double[], int, boolean, boolean, FittingEvaluation)}
+   * .
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param firstParameter
+   *          the index of the first parameter for which the Jacobian
+   *          should be computed, the rows of the Jacobian will have
+   *          {@code parameters.length-firstParameter} elements
+   * @param computeResiduals
+   *          should the residuals be computed?
+   * @param computeJacobinian
+   *          should the Jacobian be computed?
+   * @param dest
+   *          the destination record
+   */
+  public final void evaluate(final ParametricUnaryFunction model,
+      final double[] parameters, final int firstParameter,
+      final boolean computeResiduals, final boolean computeJacobinian,
+      final FittingEvaluation dest) {
+    double[][] jacobian;
+    double[] residuals, scratch;
+    final int numSamples, numParams;
+    final _WeightedSamples samples;
+    final double lossSum;
+
+    if ((firstParameter < 0) || (firstParameter >= parameters.length)) {
+      throw new IllegalArgumentException(//
+          "Index of first parameter must be in 0.." + //$NON-NLS-1$
+              (parameters.length - 1) + ", but is " + firstParameter); //$NON-NLS-1$
+    }
+
+    samples = this.m_samples;
+    numSamples = samples._getCount();
+
+    scratch = null;
+    residuals = dest.residuals;
+    if (computeResiduals) {
+      if ((residuals == null) || (residuals.length != numSamples)) {
+        dest.residuals = residuals = new double[numSamples];
+      }
+    } else {
+      if (!computeJacobinian) {
+        // only the error is needed: accumulate it block-wise
+        _WeightedSamples._setError(dest,
+            samples._sumOfLosses(model, parameters, this), numSamples);
+        return;
+      }
+      residuals = scratch = _WeightedSamples._acquireScratch(numSamples);
+    }
+
+    numParams = (parameters.length - firstParameter);
+    jacobian = dest.jacobian;
+    if (computeJacobinian) {
+      if ((jacobian == null) || (jacobian.length != numSamples)
+          || (jacobian[0].length != numParams)) {
+        dest.jacobian = jacobian = new double[numSamples][numParams];
+      }
+    } else {
+      jacobian = null;
+    }
+
+    samples._residuals(model, parameters, residuals, jacobian,
+        firstParameter);
+    lossSum = this._reweight(residuals, jacobian, numSamples);
+    if (scratch != null) {
+      _WeightedSamples._releaseScratch(scratch);
+    }
+    _WeightedSamples._setError(dest, lossSum, numSamples);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final WeightedRobustError subselect(final int npoints,
+      final Random random) {
+    final _WeightedSamples subset;
+
+    subset = this.m_samples._subselect(npoints, random);
+    if (subset == this.m_samples) {
+      return this;
+    }
+    return this._create(subset);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int getSampleCount() {
+    return this.m_samples._getCount();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int hashCode() {
+    return HashUtils.combineHashes(//
+        HashUtils.combineHashes(this.getClass().hashCode(),
+            HashUtils.hashCode(this.m_scale)),
+        this.m_samples.hashCode());
+  }
+
+  /**
+   * Two robust measures are equal if they are of the same type, have the
+   * same scale, and are based on the same points with the same weights.
+   *
+   * @param o
+   *          the other object
+   * @return {@code true} if the measures are equal, {@code false}
+   *         otherwise
+   */
+  @Override
+  public final boolean equals(final Object o) {
+    final WeightedRobustError other;
+
+    if (o == this) {
+      return true;
+    }
+    if ((o != null) && (o.getClass() == this.getClass())) {
+      other = ((WeightedRobustError) o);
+      return ((Double.compare(this.m_scale, other.m_scale) == 0) && //
+          this.m_samples.equals(other.m_samples));
+    }
+    return false;
+  }
+}
@@ -2,9 +2,11 @@ package org.optimizationBenchmarking.utils.ml.fitting.quality;
 
 import java.util.Random;
 
+import org.optimizationBenchmarking.utils.hash.HashUtils;
 import org.optimizationBenchmarking.utils.math.MathUtils;
 import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
-import org.optimizationBenchmarking.utils.math.statistics.aggregate.QuickStableSum;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
 import org.optimizationBenchmarking.utils.text.ETextCase;
@@ -25,8 +27,8 @@ import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
 public final class WeightedRootMeanSquareError
     extends FittingQualityMeasure {
 
-  /** the values backing this quality measure */
-  private final double[] m_values;
+  /** the samples backing this quality measure */
+  private final _WeightedSamples m_samples;
 
   /**
    * create the root-mean-square error fitting quality measure
@@ -35,44 +37,35 @@ public final class WeightedRootMeanSquareError
    *          the data matrix
    */
   public WeightedRootMeanSquareError(final IMatrix data) {
-    this(WeightedRootMeanSquareError.__computeMatrix(data));
+    this(WeightedRootMeanSquareError._computeSamples(data));
   }
 
   /**
    * create the root-mean-square error fitting quality measure
    *
-   * @param data
-   *          the data matrix
+   * @param samples
+   *          the samples
    */
-  private WeightedRootMeanSquareError(final double[] data) {
+  private WeightedRootMeanSquareError(final _WeightedSamples samples) {
     super();
 
-    if ((data == null) || (data.length <= 0) || ((data.length % 3) != 0)) {
+    if (samples == null) {
       throw new IllegalArgumentException(//
-          "Invalid values array: must not be null or empty and must have a length which is a multiple of 3."); //$NON-NLS-1$
+          "Samples must not be null."); //$NON-NLS-1$
     }
-    this.m_values = data;
+    this.m_samples = samples;
   }
 
   /** {@inheritDoc} */
   @Override
   public final double evaluate(final ParametricUnaryFunction model,
       final double[] parameters) {
-    final QuickStableSum sum;
-    final double[] data;
-    double residual;
-    int index;
-
-    sum = new QuickStableSum();
-
-    data = this.m_values;
-    for (index = data.length; index > 0;) {
-      residual = ((model.value(data[--index], parameters) - data[--index])
-          / data[--index]);
-      sum.append(residual * residual);
-    }
+    final _WeightedSamples samples;
+    final double residual;
 
-    residual = Math.sqrt(sum.doubleValue() / (data.length / 3));
+    samples = this.m_samples;
+    residual = Math.sqrt(samples._sumOfSquaredResiduals(model, parameters)
+        / samples._getCount());
     return (MathUtils.isFinite(residual) ? residual
         : Double.POSITIVE_INFINITY);
   }
@@ -82,65 +75,153 @@ public final class WeightedRootMeanSquareError
   public final void evaluate(final ParametricUnaryFunction model,
       final double[] parameters, final boolean computeResiduals,
       final boolean computeJacobinian, final FittingEvaluation dest) {
+    this.evaluate(model, parameters, 0, computeResiduals,
+        computeJacobinian, dest);
+  }
+
+  /**
+   * Evaluate a model and compute the Jacobian only for the parameters
+   * starting at a given index. This is useful if the leading parameters
+   * are not optimized iteratively, e.g., because they are
+   * {@linkplain #solveLinearParameters(BasicModel, double[]) computed in
+   * closed form} for every setting of the remaining parameters.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param firstParameter
+   *          the index of the first parameter for which the Jacobian
+   *          should be computed, the rows of the Jacobian will have
+   *          {@code parameters.length-firstParameter} elements
+   * @param computeResiduals
+   *          should the residuals be computed?
+   * @param computeJacobinian
+   *          should the Jacobian be computed?
+   * @param dest
+   *          the destination record
+   */
+  public final void evaluate(final ParametricUnaryFunction model,
+      final double[] parameters, final int firstParameter,
+      final boolean computeResiduals, final boolean computeJacobinian,
+      final FittingEvaluation dest) {
     double[][] jacobian;
-    double[] residuals;
+    double[] residuals, scratch;
     final int numSamples, numParams;
-    final double[] data;
-    final QuickStableSum sum;
-    double[] jacobianRow;
-    double x, expectedY, residual, inverseWeight, squareErrorSum;
-    int dataIndex, pointIndex, j;
+    final _WeightedSamples samples;
+    final double squareErrorSum;
+
+    if ((firstParameter < 0) || (firstParameter >= parameters.length)) {
+      throw new IllegalArgumentException(//
+          "Index of first parameter must be in 0.." + //$NON-NLS-1$
+              (parameters.length - 1) + ", but is " + firstParameter); //$NON-NLS-1$
+    }
 
-    data = this.m_values;
-    numSamples = (data.length / 3);
+    samples = this.m_samples;
+    numSamples = samples._getCount();
 
+    scratch = null;
     residuals = dest.residuals;
     if (computeResiduals) {
       if ((residuals == null) || (residuals.length != numSamples)) {
         dest.residuals = residuals = new double[numSamples];
       }
+    } else {
+      if (!computeJacobinian) {
+        // only the error is needed: accumulate it block-wise
+        _WeightedSamples._setError(dest,
+            samples._sumOfSquaredResiduals(model, parameters), numSamples);
+        return;
+      }
+      residuals = scratch = _WeightedSamples._acquireScratch(numSamples);
     }
 
-    numParams = parameters.length;// =model.getParameterCount();
+    numParams = (parameters.length - firstParameter);// =model.getParameterCount();
     jacobian = dest.jacobian;
     if (computeJacobinian) {
       if ((jacobian == null) || (jacobian.length != numSamples)
           || (jacobian[0].length != numParams)) {
         dest.jacobian = jacobian = new double[numSamples][numParams];
       }
+    } else {
+      jacobian = null;
     }
 
-    sum = new QuickStableSum();
-
-    for (dataIndex = data.length, pointIndex = numSamples; (--pointIndex) >= 0;) {
-      x = data[--dataIndex];
-      expectedY = data[--dataIndex];
-      inverseWeight = data[--dataIndex];
-
-      residual = ((expectedY - model.value(x, parameters))
-          / inverseWeight);
+    squareErrorSum = samples._residuals(model, parameters, residuals,
+        jacobian, firstParameter);
+    if (scratch != null) {
+      _WeightedSamples._releaseScratch(scratch);
+    }
+    _WeightedSamples._setError(dest, squareErrorSum, numSamples);
+  }
 
-      if (computeResiduals) {
-        residuals[pointIndex] = residual;
-      }
-      sum.append(residual * residual);
+  /**
+   * Compute the leading linear parameters of a model, i.e., the first
+   * {@link BasicModel#getLinearParameterCount()} parameters, for the
+   * current values of the remaining parameters. Since the model is
+   * linear in these parameters, minimizing the weighted squared error is
+   * a linear least squares problem with a unique solution, which is
+   * computed in closed form. If all parameters of the model are linear,
+   * this yields the optimal fit directly.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters: the non-linear ones are read, the linear
+   *          ones are overwritten with the solution
+   * @return {@code true} if the linear parameters could be computed,
+   *         {@code false} if the model has no linear parameters or no
+   *         finite solution exists (in which case the linear parameters
+   *         may have been overwritten with arbitrary values)
+   */
+  public final boolean solveLinearParameters(final BasicModel model,
+      final double[] parameters) {
+    final int linearCount;
 
-      if (computeJacobinian) {
-        jacobianRow = jacobian[pointIndex];
-        model.gradient(x, parameters, jacobianRow);
-        for (j = numParams; (--j) >= 0;) {
-          jacobianRow[j] /= inverseWeight;
-        }
-      }
+    linearCount = model.getLinearParameterCount();
+    if ((linearCount <= 0) || (linearCount > parameters.length)) {
+      return false;
     }
+    return this.m_samples._solveLinear(model, linearCount, parameters);
+  }
 
-    squareErrorSum = sum.doubleValue();
-    if (MathUtils.isFinite(squareErrorSum)) {
-      dest.rmsError = dest.quality = //
-      Math.sqrt(squareErrorSum / numSamples);
-      dest.rsError = Math.sqrt(squareErrorSum);
-    } else {
-      dest.rmsError = dest.rsError = dest.quality = Double.POSITIVE_INFINITY;
+  /**
+   * Evaluate the reduced problem of variable projection: The leading
+   * {@linkplain BasicModel#getLinearParameterCount() linear parameters}
+   * of the model must have been
+   * {@linkplain #solveLinearParameters(BasicModel, double[]) computed} for
+   * the current values of the remaining, non-linear ones. The residuals
+   * and the error are the same as for the complete parameter vector. The
+   * Jacobian only has columns for the non-linear parameters and is
+   * Kaufman's approximation of the Jacobian of the projected residuals,
+   * i.e., the Jacobian for fixed linear parameters projected onto the
+   * orthogonal complement of the space spanned by the weighted basis
+   * functions. It accounts for the change of the optimal linear
+   * parameters with the non-linear ones, which the partial Jacobian
+   * alone ignores.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the complete parameter vector with solved linear parameters
+   * @param computeResiduals
+   *          should the residuals be computed?
+   * @param computeJacobinian
+   *          should the Jacobian be computed?
+   * @param dest
+   *          the destination record
+   */
+  public final void evaluateProjected(final BasicModel model,
+      final double[] parameters, final boolean computeResiduals,
+      final boolean computeJacobinian, final FittingEvaluation dest) {
+    final int linearCount;
+
+    linearCount = model.getLinearParameterCount();
+    this.evaluate(model, parameters, linearCount, computeResiduals,
+        computeJacobinian, dest);
+    if (computeJacobinian) {
+      this.m_samples._projectJacobian(model, linearCount, parameters,
+          dest.jacobian);
     }
   }
 
@@ -148,42 +229,98 @@ public final class WeightedRootMeanSquareError
   @Override
   public final WeightedRootMeanSquareError subselect(final int npoints,
       final Random random) {
-    final double[] data, subset;
-    final int origLength;
-    int index, attempts, copySource, checkIndex, destIndex;
-    double x, y, inverseWeight;
-
-    data = this.m_values;
-    origLength = (data.length / 3);
-    if ((npoints >= origLength) || (npoints <= 0)) {
+    final _WeightedSamples subset;
+
+    subset = this.m_samples._subselect(npoints, random);
+    if (subset == this.m_samples) {
       return this;
     }
+    return new WeightedRootMeanSquareError(subset);
+  }
 
-    destIndex = (npoints * 3);
-    subset = new double[destIndex];
-    x = y = inverseWeight = Double.NaN;
-    for (index = npoints; (--index) >= 0;) {
-      attempter: for (attempts = 100; (--attempts) >= 0;) {
-        copySource = (3 * (random.nextInt(origLength) + 1));
-        x = data[--copySource];
-        y = data[--copySource];
-        inverseWeight = data[copySource - 1];
-        for (checkIndex = (subset.length - 1); checkIndex > destIndex;) {
-          if ((x == subset[checkIndex]) || //
-              (y == subset[checkIndex - 1])) {
-            continue attempter;
-          }
-          checkIndex -= 3;
-        }
-        break attempter;
-      }
+  /**
+   * Create a coreset of this measure for very large data sets: The
+   * returned measure is based on at most {@code size} points, stratified
+   * in {@code x}, whose weights are scaled such that its error estimates
+   * the error of this measure. Optimization algorithms can thus search
+   * on the coreset and only need to touch all points for the final
+   * refinement.
+   *
+   * @param size
+   *          the maximum number of points of the coreset
+   * @param random
+   *          the random number generator
+   * @return the coreset measure, or this measure if it is not based on
+   *         more than {@code size} points
+   */
+  public final WeightedRootMeanSquareError coreset(final int size,
+      final Random random) {
+    final _WeightedSamples coreset;
 
-      subset[--destIndex] = x;
-      subset[--destIndex] = y;
-      subset[--destIndex] = inverseWeight;
+    if (size <= 0) {
+      throw new IllegalArgumentException(//
+          "Coreset size must be positive, but is " + size); //$NON-NLS-1$
     }
+    coreset = this.m_samples._coreset(size, random);
+    if (coreset == this.m_samples) {
+      return this;
+    }
+    return new WeightedRootMeanSquareError(coreset);
+  }
 
-    return new WeightedRootMeanSquareError(subset);
+  /**
+   * Create a measure for the points of this measure followed by the given
+   * points. The result equals a measure created for all points from
+   * scratch. As long as no point has a zero {@code y}-coordinate, the
+   * weight of each point only depends on the point itself, so the weights
+   * of the existing points are kept and the storage of this measure is
+   * extended, at costs linear in the number of new points. Otherwise, the
+   * weight of the points with zero {@code y}-coordinate depends on all
+   * points and all weights are re-computed. This measure is not changed.
+   *
+   * @param points
+   *          the points to append, with one {@code x}-{@code y} pair per
+   *          row
+   * @return the measure for all points
+   * @throws IllegalStateException
+   *           if this measure is a {@linkplain #subselect(int, Random)
+   *           subset} or a {@linkplain #coreset(int, Random) coreset}
+   */
+  public final WeightedRootMeanSquareError append(final IMatrix points) {
+    final _WeightedSamples samples;
+    final double[] x, y, weights;
+    final int count;
+    double currentY;
+    boolean inverseY;
+    int index;
+
+    FittingQualityMeasure.validateData(points);
+
+    index = count = points.m();
+    x = new double[count];
+    y = new double[count];
+    weights = new double[count];
+    inverseY = true;
+    for (; (--index) >= 0;) {
+      x[index] = points.getDouble(index, 0);
+      y[index] = currentY = points.getDouble(index, 1);
+      currentY = Math.abs(currentY);
+      if (WeightedRootMeanSquareError.__checkInverseWeight(currentY)) {
+        weights[index] = (1d / currentY);
+      } else {
+        inverseY = false;
+      }
+    }
+
+    samples = this.m_samples;
+    if (inverseY && samples._hasInverseYWeights()) {
+      return new WeightedRootMeanSquareError(
+          samples._append(x, y, weights, count));
+    }
+    return new WeightedRootMeanSquareError(
+        WeightedRootMeanSquareError._computeSamples(new DoubleMatrix1D(
+            samples._concat(x, y, count), (samples._getCount() + count),
+            2)));
   }
 
   /**
@@ -252,30 +389,36 @@ public final class WeightedRootMeanSquareError
   }
 
   /**
-   * Compute the matrix data
+   * Compute the sample set, weighting each point with the inverse of the
+   * absolute value of its {@code y}-coordinate. The robust measures
+   * derived from {@link WeightedRobustError} use the same weights.
    *
    * @param matrix
    *          the matrix
-   * @return the data array
+   * @return the sample set
    */
-  private static final double[] __computeMatrix(final IMatrix matrix) {
-    final double[] dest;
+  static final _WeightedSamples _computeSamples(
+      final IMatrix matrix) {
+    final double[] x, y, weights;
     final double minInverseWeight;
-    int matrixIndex, dataIndex;
+    int index;
     double currentY, minY, minY2;
+    boolean inverseY;
 
     FittingQualityMeasure.validateData(matrix);
 
-    matrixIndex = matrix.m();
-    dataIndex = (3 * matrixIndex);
-    dest = new double[dataIndex];
+    index = matrix.m();
+    x = new double[index];
+    y = new double[index];
+    weights = new double[index];
 
     // find the two smallest non-zero absolute y values and copy the raw
     // data
     minY = minY2 = Double.POSITIVE_INFINITY;
-    for (; (--matrixIndex) >= 0;) {
-      dest[--dataIndex] = matrix.getDouble(matrixIndex, 0);
-      dest[--dataIndex] = currentY = matrix.getDouble(matrixIndex, 1);
+    inverseY = true;
+    for (; (--index) >= 0;) {
+      x[index] = matrix.getDouble(index, 0);
+      y[index] = currentY = matrix.getDouble(index, 1);
       if (currentY < 0d) {
         currentY = (-currentY);
       }
@@ -289,19 +432,19 @@ public final class WeightedRootMeanSquareError
             }
           }
         }
+      } else {
+        inverseY = false;
       }
-      --dataIndex;
     }
 
     minInverseWeight = WeightedRootMeanSquareError
         .__getMinInverseWeight(minY, minY2);
-    for (dataIndex = dest.length; dataIndex > 0;) {
-      currentY = dest[dataIndex -= 2];
-      dest[--dataIndex] = Math.max(minInverseWeight, //
-          Math.abs(currentY));
+    for (index = weights.length; (--index) >= 0;) {
+      weights[index] = (1d / Math.max(minInverseWeight, //
+          Math.abs(y[index])));
     }
 
-    return dest;
+    return new _WeightedSamples(x, y, weights, inverseY);
   }
 
   /**
@@ -353,10 +496,37 @@ public final class WeightedRootMeanSquareError
     return next.appendWord("error", textOut); //$NON-NLS-1$
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public final int hashCode() {
+    return HashUtils.combineHashes(1759, this.m_samples.hashCode());
+  }
+
+  /**
+   * Two weighted root-mean-square error measures are equal if they are
+   * based on the same points with the same weights.
+   *
+   * @param o
+   *          the other object
+   * @return {@code true} if the measures are equal, {@code false}
+   *         otherwise
+   */
+  @Override
+  public final boolean equals(final Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof WeightedRootMeanSquareError) {
+      return this.m_samples
+          .equals(((WeightedRootMeanSquareError) o).m_samples);
+    }
+    return false;
+  }
+
   /** {@inheritDoc} */
   @Override
   public final int getSampleCount() {
-    return (this.m_values.length / 3);
+    return this.m_samples._getCount();
   }
 
 }
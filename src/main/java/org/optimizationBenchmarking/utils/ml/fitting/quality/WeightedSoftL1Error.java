@@ -0,0 +1,125 @@
+package org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.text.ETextCase;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+/**
+ * A robust quality measure based on the soft-{@code L1} (or
+ * pseudo-Huber) loss: A weighted residual {@code r} contributes
+ * {@code 2*c*c*(sqrt(1+(r*r)/(c*c))-1)}, where {@code c} is the scale.
+ * This is a smooth approximation of the {@link WeightedHuberError}: It
+ * behaves like {@code r*r} for small residuals and grows linearly for
+ * large ones.
+ */
+public final class WeightedSoftL1Error extends WeightedRobustError {
+
+  /**
+   * create the soft-{@code L1} error with the
+   * {@linkplain WeightedRobustError#DEFAULT_SCALE default scale}
+   *
+   * @param data
+   *          the data matrix
+   */
+  public WeightedSoftL1Error(final IMatrix data) {
+    this(data, WeightedRobustError.DEFAULT_SCALE);
+  }
+
+  /**
+   * create the soft-{@code L1} error
+   *
+   * @param data
+   *          the data matrix
+   * @param scale
+   *          the scale, i.e., the size of the weighted residuals above
+   *          which the loss grows more slowly than the square
+   */
+  public WeightedSoftL1Error(final IMatrix data, final double scale) {
+    this(WeightedRootMeanSquareError._computeSamples(data), scale);
+  }
+
+  /**
+   * create the soft-{@code L1} error
+   *
+   * @param samples
+   *          the samples
+   * @param scale
+   *          the scale
+   */
+  private WeightedSoftL1Error(final _WeightedSamples samples,
+      final double scale) {
+    super(samples, scale);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final WeightedSoftL1Error _create(final _WeightedSamples samples) {
+    return new WeightedSoftL1Error(samples, this.m_scale);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final double _sumOfLosses(final double[] residuals, final int count) {
+    final double scaleSquare;
+    double sum, square;
+    int i;
+
+    scaleSquare = this.m_scaleSquare;
+    sum = 0d;
+    for (i = 0; i < count; i++) {
+      square = (residuals[i] * residuals[i]);
+      // 2*c*c*(sqrt(1+t)-1) = 2*r*r/(sqrt(1+t)+1), without cancellation
+      sum += (square / (Math.sqrt(1d + (square / scaleSquare)) + 1d));
+    }
+    return (2d * sum);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  final double _reweight(final double[] residuals,
+      final double[][] jacobian, final int count) {
+    final double scaleSquare;
+    double sum, residual, square, root, weight;
+    int i;
+
+    scaleSquare = this.m_scaleSquare;
+    sum = 0d;
+    for (i = 0; i < count; i++) {
+      residual = residuals[i];
+      square = (residual * residual);
+      root = Math.sqrt(1d + (square / scaleSquare));
+      // the weight sqrt(rho(r*r)/(r*r)) of the residual
+      weight = Math.sqrt(2d / (root + 1d));
+      sum += (square * (weight * weight));
+      residuals[i] = (residual * weight);
+      if (jacobian != null) {
+        // rho'(r*r) = 1/sqrt(1+(r*r)/(c*c))
+        WeightedRobustError._scaleRow(jacobian[i], (1d / (root * weight)));
+      }
+    }
+    return sum;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final String toString() {
+    return "Weighted Soft-L1 Error"; //$NON-NLS-1$
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final ETextCase printLongName(final ITextOutput textOut,
+      final ETextCase textCase) {
+    ETextCase next;
+
+    next = textCase.appendWord("weighted", textOut); //$NON-NLS-1$
+    textOut.append(' ');
+    next = next.appendWord("soft", textOut); //$NON-NLS-1$
+    textOut.append('-');
+    textOut.append('L');
+    textOut.append('1');
+    textOut.append(' ');
+    next = next.nextCase();
+    return next.appendWord("error", textOut); //$NON-NLS-1$
+  }
+}
@@ -0,0 +1,142 @@
+package org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+/**
+ * A linear least squares solver which processes the rows of the
+ * over-determined system one by one with Givens rotations. It only stores
+ * the upper triangular factor {@code R} of the QR decomposition and the
+ * rotated right-hand side, i.e., it needs {@code O(k^2)} memory for
+ * {@code k} unknowns regardless of the number of rows, and it does not
+ * square the condition number of the problem like the normal equations
+ * would.
+ */
+final class _LinearLeastSquares {
+
+  /**
+   * the relative threshold below which a diagonal element of {@code R}
+   * is considered as zero, i.e., the corresponding unknown as not
+   * determined by the data
+   */
+  private static final double RANK_THRESHOLD = 1e-12d;
+
+  /** the upper triangular factor */
+  private final double[][] m_r;
+  /** the rotated right-hand side */
+  private final double[] m_qtb;
+
+  /**
+   * create the solver
+   *
+   * @param unknowns
+   *          the number of unknowns
+   */
+  _LinearLeastSquares(final int unknowns) {
+    super();
+    this.m_r = new double[unknowns][unknowns];
+    this.m_qtb = new double[unknowns];
+  }
+
+  /**
+   * Add a row to the system. The row array is overwritten.
+   *
+   * @param row
+   *          the row, i.e., the coefficients of the unknowns in its first
+   *          elements, it may be longer than the number of unknowns
+   * @param rhs
+   *          the right-hand side
+   */
+  final void _addRow(final double[] row, final double rhs) {
+    final double[][] r;
+    final double[] qtb;
+    final int unknowns;
+    double[] rRow;
+    double b, diagonal, value, norm, cos, sin, temp;
+    int j, l;
+
+    r = this.m_r;
+    qtb = this.m_qtb;
+    unknowns = qtb.length;
+    b = rhs;
+
+    for (j = 0; j < unknowns; j++) {
+      value = row[j];
+      if (value == 0d) {
+        continue;
+      }
+      rRow = r[j];
+      diagonal = rRow[j];
+      if (diagonal == 0d) {
+        // the row becomes the j-th row of R
+        System.arraycopy(row, j, rRow, j, unknowns - j);
+        qtb[j] = b;
+        return;
+      }
+
+      // rotate the row into the j-th row of R
+      if (Math.abs(diagonal) >= Math.abs(value)) {
+        temp = (value / diagonal);
+        norm = (Math.abs(diagonal) * Math.sqrt(1d + (temp * temp)));
+      } else {
+        temp = (diagonal / value);
+        norm = (Math.abs(value) * Math.sqrt(1d + (temp * temp)));
+      }
+      cos = (diagonal / norm);
+      sin = (value / norm);
+      rRow[j] = norm;
+      for (l = (j + 1); l < unknowns; l++) {
+        temp = rRow[l];
+        rRow[l] = ((cos * temp) + (sin * row[l]));
+        row[l] = ((cos * row[l]) - (sin * temp));
+      }
+      temp = qtb[j];
+      qtb[j] = ((cos * temp) + (sin * b));
+      b = ((cos * b) - (sin * temp));
+    }
+  }
+
+  /**
+   * Solve the system by back substitution. Unknowns which are not
+   * determined by the data are set to {@code 0}.
+   *
+   * @param dest
+   *          the destination array, the solution is stored in its first
+   *          elements
+   * @return {@code true} if a finite solution was found, {@code false}
+   *         otherwise
+   */
+  final boolean _solve(final double[] dest) {
+    final double[][] r;
+    final double[] qtb;
+    final double threshold;
+    double max, sum, value;
+    int j, l;
+
+    r = this.m_r;
+    qtb = this.m_qtb;
+
+    max = 0d;
+    for (j = qtb.length; (--j) >= 0;) {
+      max = Math.max(max, Math.abs(r[j][j]));
+    }
+    if ((max <= 0d) || (max >= Double.POSITIVE_INFINITY)) {
+      return false;
+    }
+    threshold = (max * _LinearLeastSquares.RANK_THRESHOLD);
+
+    for (j = qtb.length; (--j) >= 0;) {
+      value = r[j][j];
+      if (Math.abs(value) <= threshold) {
+        dest[j] = 0d;
+        continue;
+      }
+      sum = qtb[j];
+      for (l = (j + 1); l < qtb.length; l++) {
+        sum -= (r[j][l] * dest[l]);
+      }
+      dest[j] = value = (sum / value);
+      if ((value != value) || (Math.abs(value) >= Double.POSITIVE_INFINITY)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
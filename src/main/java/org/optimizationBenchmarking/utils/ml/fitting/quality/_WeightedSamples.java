@@ -0,0 +1,1205 @@
+package org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.optimizationBenchmarking.utils.hash.HashUtils;
+import org.optimizationBenchmarking.utils.math.MathUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+/**
+ * A set of weighted samples stored column-wise, i.e., as separate arrays
+ * of {@code x}-coordinates, {@code y}-coordinates, and weights. The
+ * evaluation kernels of this class first compute the model values for a
+ * whole block of points and then transform the block into weighted
+ * residuals in simple, branch-free loops, which are amenable to
+ * auto-vectorization by the JIT. A sample set can also be a view on a
+ * subset of the points of another sample set, in which case it only
+ * stores the indexes of the selected points and shares the coordinate
+ * arrays. A complete sample set can be extended by
+ * {@linkplain #_append(double[], double[], double[], int) appending}
+ * points, in which case the arrays are shared as well.
+ */
+final class _WeightedSamples {
+
+  /**
+   * the number of points processed at once if no residual vector is
+   * provided
+   */
+  private static final int BLOCK_SIZE = 256;
+  /**
+   * the maximum number of elements which
+   * {@link #__sumOfSquares(double[], int, int)} sums up directly
+   */
+  private static final int PAIRWISE_SUM_SIZE = 32;
+
+  /**
+   * the scratch array of the current thread, or {@code null} if it is
+   * currently in use
+   */
+  private static final ThreadLocal<double[]> SCRATCH = new ThreadLocal<>();
+
+  /**
+   * the scratch matrix of the current thread, or {@code null} if it is
+   * currently in use
+   */
+  private static final ThreadLocal<double[][]> MATRIX_SCRATCH = new ThreadLocal<>();
+
+  /** the {@code x}-coordinates */
+  private final double[] m_x;
+  /** the {@code y}-coordinates */
+  private final double[] m_y;
+  /**
+   * the weights, i.e., the factors with which the residuals are
+   * multiplied
+   */
+  private final double[] m_weights;
+  /**
+   * the indexes of the selected points, or {@code null} if all points
+   * are selected
+   */
+  private final int[] m_indexes;
+  /** the number of selected points */
+  private final int m_count;
+  /**
+   * the number of valid elements of the coordinate and weight arrays,
+   * which may be longer
+   */
+  private final int m_length;
+  /**
+   * the number of array elements claimed by this sample set or by a
+   * sample set {@linkplain #_append(double[], double[], double[], int)
+   * appended} to it, or {@code null} if this sample set cannot be
+   * extended
+   */
+  private final AtomicInteger m_claimed;
+  /**
+   * is the weight of each point exactly the inverse of the absolute value
+   * of its {@code y}-coordinate?
+   */
+  private final boolean m_inverseY;
+  /** the hash code, or {@code 0} if not yet computed */
+  private volatile int m_hashCode;
+
+  /**
+   * create the sample set
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param y
+   *          the {@code y}-coordinates
+   * @param weights
+   *          the weights
+   */
+  _WeightedSamples(final double[] x, final double[] y,
+      final double[] weights) {
+    this(x, y, weights, null, x.length, null, false);
+  }
+
+  /**
+   * create a sample set which can be
+   * {@linkplain #_append(double[], double[], double[], int) extended}
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param y
+   *          the {@code y}-coordinates
+   * @param weights
+   *          the weights
+   * @param inverseY
+   *          is the weight of each point exactly the inverse of the
+   *          absolute value of its {@code y}-coordinate?
+   */
+  _WeightedSamples(final double[] x, final double[] y,
+      final double[] weights, final boolean inverseY) {
+    this(x, y, weights, null, x.length, new AtomicInteger(x.length),
+        inverseY);
+  }
+
+  /**
+   * create the sample set
+   *
+   * @param x
+   *          the {@code x}-coordinates
+   * @param y
+   *          the {@code y}-coordinates
+   * @param weights
+   *          the weights
+   * @param indexes
+   *          the indexes of the selected points, or {@code null} if all
+   *          points are selected
+   * @param length
+   *          the number of valid elements of the arrays
+   * @param claimed
+   *          the number of array elements claimed, or {@code null} if
+   *          the sample set cannot be extended
+   * @param inverseY
+   *          is the weight of each point exactly the inverse of the
+   *          absolute value of its {@code y}-coordinate?
+   */
+  private _WeightedSamples(final double[] x, final double[] y,
+      final double[] weights, final int[] indexes, final int length,
+      final AtomicInteger claimed, final boolean inverseY) {
+    super();
+
+    if ((x == null) || (y == null) || (weights == null) || //
+        (length <= 0) || (x.length < length) || (y.length < length)
+        || (weights.length < length)) {
+      throw new IllegalArgumentException(//
+          "Invalid sample arrays: must not be null or empty and must have the same length."); //$NON-NLS-1$
+    }
+    if ((indexes != null) && (indexes.length <= 0)) {
+      throw new IllegalArgumentException(//
+          "Index array must not be empty."); //$NON-NLS-1$
+    }
+
+    this.m_x = x;
+    this.m_y = y;
+    this.m_weights = weights;
+    this.m_indexes = indexes;
+    this.m_length = length;
+    this.m_claimed = claimed;
+    this.m_inverseY = inverseY;
+    this.m_count = ((indexes != null) ? indexes.length : length);
+  }
+
+  /**
+   * Get the number of selected points
+   *
+   * @return the number of selected points
+   */
+  final int _getCount() {
+    return this.m_count;
+  }
+
+  /**
+   * Copy the {@code x}-coordinates of a block of selected points into a
+   * destination array.
+   *
+   * @param start
+   *          the index of the first selected point
+   * @param count
+   *          the number of points
+   * @param dest
+   *          the destination array
+   */
+  private final void __gatherX(final int start, final int count,
+      final double[] dest) {
+    final int[] indexes;
+    final double[] x;
+    int i;
+
+    indexes = this.m_indexes;
+    if (indexes == null) {
+      System.arraycopy(this.m_x, start, dest, 0, count);
+      return;
+    }
+
+    x = this.m_x;
+    for (i = count; (--i) >= 0;) {
+      dest[i] = x[indexes[start + i]];
+    }
+  }
+
+  /**
+   * Transform a block of model values into weighted residuals, i.e.,
+   * compute {@code (y-f(x))*weight} in place.
+   *
+   * @param start
+   *          the index of the first selected point
+   * @param count
+   *          the number of points
+   * @param values
+   *          the model values, which will be overwritten with the
+   *          weighted residuals
+   */
+  private final void __residuals(final int start, final int count,
+      final double[] values) {
+    final int[] indexes;
+    final double[] y, weights;
+    int i, index;
+
+    y = this.m_y;
+    weights = this.m_weights;
+    indexes = this.m_indexes;
+
+    if (indexes == null) {
+      for (i = 0; i < count; i++) {
+        index = (start + i);
+        values[i] = ((y[index] - values[i]) * weights[index]);
+      }
+    } else {
+      for (i = 0; i < count; i++) {
+        index = indexes[start + i];
+        values[i] = ((y[index] - values[i]) * weights[index]);
+      }
+    }
+  }
+
+  /**
+   * Compute the model values for a block of {@code x}-coordinates in
+   * place. If the model is a {@link BasicModel}, its batch method is
+   * used.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param values
+   *          the {@code x}-coordinates, which will be overwritten with the
+   *          corresponding model values
+   * @param count
+   *          the number of points
+   */
+  private static final void __values(final ParametricUnaryFunction model,
+      final double[] parameters, final double[] values, final int count) {
+    int i;
+
+    if (model instanceof BasicModel) {
+      ((BasicModel) model).valueBatch(values, parameters, values, count);
+      return;
+    }
+
+    for (i = count; (--i) >= 0;) {
+      values[i] = model.value(values[i], parameters);
+    }
+  }
+
+  /**
+   * Obtain a scratch array of at least the given length. The scratch
+   * array of the current thread is re-used, so that the evaluation
+   * kernels do not need to allocate memory for every call. If it is in
+   * use by an enclosing call, e.g., because a model evaluates another
+   * measure, or too small, a new array is allocated.
+   *
+   * @param length
+   *          the required length
+   * @return the scratch array, which must be passed to
+   *         {@link #_releaseScratch(double[])} after use
+   */
+  static final double[] _acquireScratch(final int length) {
+    final double[] scratch;
+
+    scratch = _WeightedSamples.SCRATCH.get();
+    if ((scratch == null) || (scratch.length < length)) {
+      return new double[length];
+    }
+    _WeightedSamples.SCRATCH.set(null);
+    return scratch;
+  }
+
+  /**
+   * Return a scratch array obtained from {@link #_acquireScratch(int)} so
+   * that it can be re-used by the next evaluation in the current thread.
+   *
+   * @param scratch
+   *          the scratch array
+   */
+  static final void _releaseScratch(final double[] scratch) {
+    _WeightedSamples.SCRATCH.set(scratch);
+  }
+
+  /**
+   * Obtain a scratch matrix with at least the given number of rows, each
+   * of which has exactly the given number of columns. Like
+   * {@link #_acquireScratch(int)}, the scratch matrix of the current
+   * thread is re-used if it is not in use and fits, otherwise a new
+   * matrix is allocated.
+   *
+   * @param rows
+   *          the required number of rows
+   * @param columns
+   *          the number of columns
+   * @return the scratch matrix, which must be passed to
+   *         {@link #_releaseMatrixScratch(double[][])} after use
+   */
+  static final double[][] _acquireMatrixScratch(final int rows,
+      final int columns) {
+    final double[][] scratch;
+
+    scratch = _WeightedSamples.MATRIX_SCRATCH.get();
+    if ((scratch == null) || (scratch.length < rows)
+        || (scratch[0].length != columns)) {
+      return new double[Math.max(1, rows)][columns];
+    }
+    _WeightedSamples.MATRIX_SCRATCH.set(null);
+    return scratch;
+  }
+
+  /**
+   * Return a scratch matrix obtained from
+   * {@link #_acquireMatrixScratch(int, int)} so that it can be re-used by
+   * the next evaluation in the current thread.
+   *
+   * @param scratch
+   *          the scratch matrix
+   */
+  static final void _releaseMatrixScratch(final double[][] scratch) {
+    _WeightedSamples.MATRIX_SCRATCH.set(scratch);
+  }
+
+  /**
+   * Store the error computed from a sum of squared (or reweighted)
+   * residuals in an evaluation record
+   *
+   * @param dest
+   *          the destination record
+   * @param sum
+   *          the sum of the squared residuals
+   * @param count
+   *          the number of residuals
+   */
+  static final void _setError(final FittingEvaluation dest,
+      final double sum, final int count) {
+    if (MathUtils.isFinite(sum)) {
+      dest.rmsError = dest.quality = Math.sqrt(sum / count);
+      dest.rsError = Math.sqrt(sum);
+    } else {
+      dest.rmsError = dest.rsError = dest.quality = Double.POSITIVE_INFINITY;
+    }
+  }
+
+  /**
+   * Compute the sum of the squares of the first {@code count} elements of
+   * an array. The elements are summed up in blocks of
+   * {@link #BLOCK_SIZE} elements, see
+   * {@link #__sumOfSquares(double[], int, int)}, and the sums of the
+   * blocks are added up with compensated (Kahan-Babuska-Neumaier)
+   * summation. This is exactly what
+   * {@link #_sumOfSquaredResiduals(ParametricUnaryFunction, double[])}
+   * does, so a point gets the same quality, bit for bit, whether its
+   * residuals are stored or not.
+   *
+   * @param data
+   *          the data
+   * @param count
+   *          the number of elements
+   * @return the sum of squares
+   */
+  private static final double __sumOfSquares(final double[] data,
+      final int count) {
+    double sum, blockSum, next, compensation;
+    int start, end;
+
+    sum = compensation = 0d;
+    for (start = 0; start < count; start = end) {
+      end = Math.min(count, (start + _WeightedSamples.BLOCK_SIZE));
+      blockSum = _WeightedSamples.__sumOfSquares(data, start, end);
+      next = (sum + blockSum);
+      compensation += _WeightedSamples.__compensation(sum, blockSum,
+          next);
+      sum = next;
+    }
+
+    return (MathUtils.isFinite(sum) ? (sum + compensation) : sum);
+  }
+
+  /**
+   * Compute the rounding error of the addition of two sums, as needed by
+   * the compensated summation
+   *
+   * @param sum
+   *          the first sum
+   * @param add
+   *          the second sum
+   * @param next
+   *          the computed result of {@code sum+add}
+   * @return the part of the exact result lost in {@code next}
+   */
+  private static final double __compensation(final double sum,
+      final double add, final double next) {
+    return ((sum >= add) ? ((sum - next) + add) : ((add - next) + sum));
+  }
+
+  /**
+   * Compute the sum of the squares of the elements of an array at
+   * indexes {@code start} (inclusive) to {@code end} (exclusive) by
+   * pairwise summation: the range is halved until it has at most
+   * {@link #PAIRWISE_SUM_SIZE} elements, which are summed up with four
+   * independent accumulators. This keeps the rounding error growing only
+   * logarithmically with the number of elements, while the inner loop
+   * stays free of dependencies and can be vectorized.
+   *
+   * @param data
+   *          the data
+   * @param start
+   *          the index of the first element
+   * @param end
+   *          the exclusive end index
+   * @return the sum of squares
+   */
+  private static final double __sumOfSquares(final double[] data,
+      final int start, final int end) {
+    final int middle;
+    double s0, s1, s2, s3, d;
+    int i;
+
+    if ((end - start) > _WeightedSamples.PAIRWISE_SUM_SIZE) {
+      middle = ((start + end) >>> 1);
+      return (_WeightedSamples.__sumOfSquares(data, start, middle)
+          + _WeightedSamples.__sumOfSquares(data, middle, end));
+    }
+
+    s0 = s1 = s2 = s3 = 0d;
+    i = start;
+    for (; i <= (end - 4); i += 4) {
+      d = data[i];
+      s0 += (d * d);
+      d = data[i + 1];
+      s1 += (d * d);
+      d = data[i + 2];
+      s2 += (d * d);
+      d = data[i + 3];
+      s3 += (d * d);
+    }
+    for (; i < end; i++) {
+      d = data[i];
+      s0 += (d * d);
+    }
+
+    return ((s0 + s1) + (s2 + s3));
+  }
+
+  /**
+   * Compute the sum of the squared weighted residuals of a model
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @return the sum of the squared weighted residuals
+   */
+  final double _sumOfSquaredResiduals(
+      final ParametricUnaryFunction model, final double[] parameters) {
+    final double[] block;
+    final int total, blockSize;
+    double sum, blockSum, next, compensation;
+    int start, count;
+
+    total = this.m_count;
+    blockSize = Math.min(total, _WeightedSamples.BLOCK_SIZE);
+    block = _WeightedSamples._acquireScratch(blockSize);
+    sum = compensation = 0d;
+
+    for (start = 0; start < total; start += count) {
+      count = Math.min(blockSize, (total - start));
+      this.__gatherX(start, count, block);
+      _WeightedSamples.__values(model, parameters, block, count);
+      this.__residuals(start, count, block);
+      // the same compensated summation as in __sumOfSquares
+      blockSum = _WeightedSamples.__sumOfSquares(block, 0, count);
+      next = (sum + blockSum);
+      compensation += _WeightedSamples.__compensation(sum, blockSum,
+          next);
+      sum = next;
+    }
+
+    _WeightedSamples._releaseScratch(block);
+    return (MathUtils.isFinite(sum) ? (sum + compensation) : sum);
+  }
+
+  /**
+   * Compute the sum of the robust losses of the weighted residuals of a
+   * model. This is the same block kernel as
+   * {@link #_sumOfSquaredResiduals(ParametricUnaryFunction, double[])},
+   * except that each block of weighted residuals is reduced by the loss
+   * function of the given measure instead of summing up their squares.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param measure
+   *          the robust measure providing the loss function
+   * @return the sum of the losses
+   */
+  final double _sumOfLosses(final ParametricUnaryFunction model,
+      final double[] parameters, final WeightedRobustError measure) {
+    final double[] block;
+    final int total, blockSize;
+    double sum;
+    int start, count;
+
+    total = this.m_count;
+    blockSize = Math.min(total, _WeightedSamples.BLOCK_SIZE);
+    block = _WeightedSamples._acquireScratch(blockSize);
+    sum = 0d;
+
+    for (start = 0; start < total; start += count) {
+      count = Math.min(blockSize, (total - start));
+      this.__gatherX(start, count, block);
+      _WeightedSamples.__values(model, parameters, block, count);
+      this.__residuals(start, count, block);
+      sum += measure._sumOfLosses(block, count);
+    }
+
+    _WeightedSamples._releaseScratch(block);
+    return sum;
+  }
+
+  /**
+   * Compute the weighted residuals and, optionally, the weighted
+   * Jacobian of a model.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param residuals
+   *          the destination array for the residuals, must have at least
+   *          {@link #_getCount()} elements
+   * @param jacobian
+   *          the destination for the Jacobian, or {@code null} if it
+   *          should not be computed
+   * @return the sum of the squared weighted residuals
+   */
+  final double _residuals(final ParametricUnaryFunction model,
+      final double[] parameters, final double[] residuals,
+      final double[][] jacobian) {
+    final int[] indexes;
+    final double[] weights;
+    final int count;
+    double[] jacobianRow;
+    double weight, x;
+    int i, j;
+
+    count = this.m_count;
+    this.__gatherX(0, count, residuals);
+
+    if (jacobian != null) {
+      if (model instanceof BasicModel) {
+        ((BasicModel) model).valueAndGradientBatch(residuals, parameters,
+            residuals, jacobian, count);
+      } else {
+        for (i = count; (--i) >= 0;) {
+          x = residuals[i];
+          model.gradient(x, parameters, jacobian[i]);
+          residuals[i] = model.value(x, parameters);
+        }
+      }
+
+      weights = this.m_weights;
+      indexes = this.m_indexes;
+      for (i = count; (--i) >= 0;) {
+        jacobianRow = jacobian[i];
+        weight = weights[(indexes != null) ? indexes[i] : i];
+        for (j = jacobianRow.length; (--j) >= 0;) {
+          jacobianRow[j] *= weight;
+        }
+      }
+    } else {
+      _WeightedSamples.__values(model, parameters, residuals, count);
+    }
+
+    this.__residuals(0, count, residuals);
+    return _WeightedSamples.__sumOfSquares(residuals, count);
+  }
+
+  /**
+   * Compute the weighted residuals and the columns of the weighted
+   * Jacobian of a model which belong to the parameters starting at a
+   * given index. The Jacobian is computed block-wise into a scratch
+   * matrix from which only the requested columns are copied.
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param residuals
+   *          the destination array for the residuals, must have at least
+   *          {@link #_getCount()} elements
+   * @param jacobian
+   *          the destination for the Jacobian, whose rows must have
+   *          {@code parameters.length-firstColumn} elements
+   * @param firstColumn
+   *          the index of the first parameter for which the derivatives
+   *          are needed
+   * @return the sum of the squared weighted residuals
+   */
+  final double _residuals(final ParametricUnaryFunction model,
+      final double[] parameters, final double[] residuals,
+      final double[][] jacobian, final int firstColumn) {
+    final int[] indexes;
+    final double[] weights, block;
+    final double[][] gradients;
+    final int total, columns, blockSize;
+    double[] jacobianRow, gradient;
+    double weight;
+    int start, count, i, j;
+
+    if ((firstColumn <= 0) || (jacobian == null)) {
+      return this._residuals(model, parameters, residuals, jacobian);
+    }
+
+    total = this.m_count;
+    columns = (parameters.length - firstColumn);
+    blockSize = Math.min(total, _WeightedSamples.BLOCK_SIZE);
+    block = _WeightedSamples._acquireScratch(blockSize);
+    gradients = _WeightedSamples._acquireMatrixScratch(blockSize,
+        parameters.length);
+    weights = this.m_weights;
+    indexes = this.m_indexes;
+
+    for (start = 0; start < total; start += count) {
+      count = Math.min(blockSize, (total - start));
+      this.__gatherX(start, count, block);
+      if (model instanceof BasicModel) {
+        ((BasicModel) model).valueAndGradientBatch(block, parameters,
+            block, gradients, count);
+      } else {
+        for (i = count; (--i) >= 0;) {
+          weight = block[i];
+          model.gradient(weight, parameters, gradients[i]);
+          block[i] = model.value(weight, parameters);
+        }
+      }
+
+      for (i = count; (--i) >= 0;) {
+        jacobianRow = jacobian[start + i];
+        gradient = gradients[i];
+        weight = weights[(indexes != null) ? indexes[start + i]
+            : (start + i)];
+        for (j = columns; (--j) >= 0;) {
+          jacobianRow[j] = (gradient[firstColumn + j] * weight);
+        }
+      }
+      System.arraycopy(block, 0, residuals, start, count);
+    }
+
+    _WeightedSamples._releaseMatrixScratch(gradients);
+    _WeightedSamples._releaseScratch(block);
+    this.__residuals(0, total, residuals);
+    return _WeightedSamples.__sumOfSquares(residuals, total);
+  }
+
+  /**
+   * Compute the leading linear parameters of a model which is linear in
+   * its first {@code linearCount} parameters for fixed values of the
+   * remaining ones. The basis functions are obtained from
+   * {@link BasicModel#linearBasisBatch(double[], double[], double[][], int)}
+   * . The weighted linear least squares problem is solved with a streaming QR
+   * decomposition, so no matrix with one row per point needs to be
+   * allocated. The blocks of basis function values are computed in the
+   * scratch arrays of the current thread, whose last row holds the
+   * weighted row passed to the solver.
+   *
+   * @param model
+   *          the model
+   * @param linearCount
+   *          the number of leading linear parameters
+   * @param parameters
+   *          the parameters: the non-linear parameters are read, the
+   *          solution for the linear ones is stored in the first
+   *          {@code linearCount} elements
+   * @return {@code true} if a finite solution was found, {@code false}
+   *         otherwise
+   */
+  final boolean _solveLinear(final BasicModel model, final int linearCount,
+      final double[] parameters) {
+    final _LinearLeastSquares solver;
+    final int[] indexes;
+    final double[] y, weights, block, row;
+    final double[][] basis;
+    final int total, blockSize;
+    double[] functions;
+    double weight;
+    int start, count, i, j, index;
+
+    total = this.m_count;
+    blockSize = Math.min(total, _WeightedSamples.BLOCK_SIZE);
+    block = _WeightedSamples._acquireScratch(blockSize);
+    basis = _WeightedSamples._acquireMatrixScratch((blockSize + 1),
+        parameters.length);
+    row = basis[blockSize];
+    solver = new _LinearLeastSquares(linearCount);
+    y = this.m_y;
+    weights = this.m_weights;
+    indexes = this.m_indexes;
+
+    for (start = 0; start < total; start += count) {
+      count = Math.min(blockSize, (total - start));
+      this.__gatherX(start, count, block);
+      model.linearBasisBatch(block, parameters, basis, count);
+      for (i = 0; i < count; i++) {
+        index = ((indexes != null) ? indexes[start + i] : (start + i));
+        weight = weights[index];
+        functions = basis[i];
+        for (j = linearCount; (--j) >= 0;) {
+          row[j] = (functions[j] * weight);
+        }
+        solver._addRow(row, (y[index] * weight));
+      }
+    }
+
+    _WeightedSamples._releaseMatrixScratch(basis);
+    _WeightedSamples._releaseScratch(block);
+    return solver._solve(parameters);
+  }
+
+  /**
+   * Turn the weighted Jacobian of the non-linear parameters of a model,
+   * computed for fixed linear parameters, into Kaufman's approximation
+   * of the Jacobian of the variable projection functional: Each column
+   * {@code J_j} is replaced by its projection {@code J_j-A*z_j} onto the
+   * orthogonal complement of the column space of the weighted basis
+   * matrix {@code A}, where {@code z_j} minimizes {@code |A*z_j-J_j|}.
+   * The {@code z_j} are computed with streaming QR decompositions in a
+   * first pass over the points, the basis is recomputed block-wise in a
+   * second pass, so again no matrix with one row per point needs to be
+   * allocated. As in
+   * {@link #_solveLinear(BasicModel, int, double[])}, the blocks are
+   * computed in the scratch arrays of the current thread.
+   *
+   * @param model
+   *          the model
+   * @param linearCount
+   *          the number of leading linear parameters
+   * @param parameters
+   *          the complete parameter vector
+   * @param jacobian
+   *          the weighted Jacobian with one row per point and one column
+   *          per non-linear parameter, which is projected in place
+   */
+  final void _projectJacobian(final BasicModel model,
+      final int linearCount, final double[] parameters,
+      final double[][] jacobian) {
+    final _LinearLeastSquares[] solvers;
+    final double[][] basis, coefficients;
+    final double[] weights, block, row;
+    final int[] indexes;
+    final int total, columns, blockSize;
+    double[] functions, jacobianRow, solution;
+    double weight, sum;
+    int start, count, i, j, l;
+
+    total = this.m_count;
+    columns = (parameters.length - linearCount);
+    blockSize = Math.min(total, _WeightedSamples.BLOCK_SIZE);
+    block = _WeightedSamples._acquireScratch(blockSize);
+    basis = _WeightedSamples._acquireMatrixScratch((blockSize + 1),
+        parameters.length);
+    row = basis[blockSize];
+    solvers = new _LinearLeastSquares[columns];
+    for (j = columns; (--j) >= 0;) {
+      solvers[j] = new _LinearLeastSquares(linearCount);
+    }
+    weights = this.m_weights;
+    indexes = this.m_indexes;
+
+    for (start = 0; start < total; start += count) {
+      count = Math.min(blockSize, (total - start));
+      this.__gatherX(start, count, block);
+      model.linearBasisBatch(block, parameters, basis, count);
+      for (i = 0; i < count; i++) {
+        weight = weights[(indexes != null) ? indexes[start + i]
+            : (start + i)];
+        functions = basis[i];
+        jacobianRow = jacobian[start + i];
+        for (j = columns; (--j) >= 0;) {
+          for (l = linearCount; (--l) >= 0;) {
+            row[l] = (functions[l] * weight);
+          }
+          solvers[j]._addRow(row, jacobianRow[j]);
+        }
+      }
+    }
+
+    coefficients = new double[columns][linearCount];
+    for (j = columns; (--j) >= 0;) {
+      if (!(solvers[j]._solve(coefficients[j]))) {
+        // the basis is degenerate: keep the partial Jacobian
+        _WeightedSamples._releaseMatrixScratch(basis);
+        _WeightedSamples._releaseScratch(block);
+        return;
+      }
+    }
+
+    for (start = 0; start < total; start += count) {
+      count = Math.min(blockSize, (total - start));
+      this.__gatherX(start, count, block);
+      model.linearBasisBatch(block, parameters, basis, count);
+      for (i = 0; i < count; i++) {
+        weight = weights[(indexes != null) ? indexes[start + i]
+            : (start + i)];
+        functions = basis[i];
+        jacobianRow = jacobian[start + i];
+        for (j = columns; (--j) >= 0;) {
+          solution = coefficients[j];
+          sum = 0d;
+          for (l = linearCount; (--l) >= 0;) {
+            sum += (functions[l] * solution[l]);
+          }
+          jacobianRow[j] -= (sum * weight);
+        }
+      }
+    }
+
+    _WeightedSamples._releaseMatrixScratch(basis);
+    _WeightedSamples._releaseScratch(block);
+  }
+
+  /**
+   * Reduce the points to a coreset of at most {@code size} points which
+   * is stratified in {@code x}: The range of {@code x}-coordinates is
+   * divided into {@code size} strata holding (roughly) the same number of
+   * points each, based on the quantiles of the {@code x}-coordinates, and
+   * one random point of each non-empty stratum is kept. The weight of the
+   * kept point is scaled such that the point represents all points of its
+   * stratum and the root-mean-square error computed on the coreset
+   * estimates the one computed on all points. The returned sample set
+   * stores compact copies of the selected points.
+   *
+   * @param size
+   *          the maximum number of points to keep
+   * @param random
+   *          the random number generator
+   * @return the coreset, or this sample set if it does not have more
+   *         than {@code size} points
+   */
+  final _WeightedSamples _coreset(final int size, final Random random) {
+    final int[] indexes, chosen, counts;
+    final double[] x, y, weights, sorted, bounds, newX, newY, newWeights;
+    final int total;
+    int index, point, stratum, low, high, middle, kept;
+    double value, scale;
+
+    total = this.m_count;
+    if ((size <= 0) || (size >= total)) {
+      return this;
+    }
+
+    x = this.m_x;
+    y = this.m_y;
+    weights = this.m_weights;
+    indexes = this.m_indexes;
+
+    // the stratum boundaries are the quantiles of the x-coordinates
+    sorted = new double[total];
+    this.__gatherX(0, total, sorted);
+    Arrays.sort(sorted);
+    bounds = new double[size - 1];
+    for (stratum = bounds.length; (--stratum) >= 0;) {
+      bounds[stratum] = sorted[(int) ((((long) (stratum + 1)) * total)
+          / size)];
+    }
+
+    // pick one random point per stratum via reservoir sampling
+    chosen = new int[size];
+    counts = new int[size];
+    for (index = 0; index < total; index++) {
+      point = ((indexes != null) ? indexes[index] : index);
+      value = x[point];
+      low = 0;
+      high = bounds.length;
+      while (low < high) {
+        middle = ((low + high) >>> 1);
+        if (bounds[middle] <= value) {
+          low = (middle + 1);
+        } else {
+          high = middle;
+        }
+      }
+      if (random.nextInt(++counts[low]) == 0) {
+        chosen[low] = point;
+      }
+    }
+
+    kept = 0;
+    for (stratum = size; (--stratum) >= 0;) {
+      if (counts[stratum] > 0) {
+        ++kept;
+      }
+    }
+
+    newX = new double[kept];
+    newY = new double[kept];
+    newWeights = new double[kept];
+    scale = (((double) kept) / total);
+    index = 0;
+    for (stratum = 0; stratum < size; stratum++) {
+      if (counts[stratum] > 0) {
+        point = chosen[stratum];
+        newX[index] = x[point];
+        newY[index] = y[point];
+        newWeights[index] = (weights[point]
+            * Math.sqrt(counts[stratum] * scale));
+        ++index;
+      }
+    }
+
+    return new _WeightedSamples(newX, newY, newWeights);
+  }
+
+  /**
+   * Randomly select a subset of the points. Points with the same
+   * {@code x}- or {@code y}-coordinates as already selected points are
+   * avoided if possible. The returned sample set shares the coordinate
+   * arrays with this one and only stores the selected indexes.
+   *
+   * @param npoints
+   *          the number of points to select
+   * @param random
+   *          the random number generator
+   * @return the subset
+   */
+  final _WeightedSamples _subselect(final int npoints,
+      final Random random) {
+    final int[] source, selected;
+    final double[] allX, allY;
+    final int total;
+    int index, attempts, candidate, checkIndex;
+    double x, y;
+
+    total = this.m_count;
+    if ((npoints >= total) || (npoints <= 0)) {
+      return this;
+    }
+
+    source = this.m_indexes;
+    allX = this.m_x;
+    allY = this.m_y;
+    selected = new int[npoints];
+    candidate = (-1);
+
+    for (index = npoints; (--index) >= 0;) {
+      attempter: for (attempts = 100; (--attempts) >= 0;) {
+        candidate = random.nextInt(total);
+        if (source != null) {
+          candidate = source[candidate];
+        }
+        x = allX[candidate];
+        y = allY[candidate];
+        for (checkIndex = (npoints - 1); checkIndex > index; checkIndex--) {
+          if ((x == allX[selected[checkIndex]]) || //
+              (y == allY[selected[checkIndex]])) {
+            continue attempter;
+          }
+        }
+        break attempter;
+      }
+      selected[index] = candidate;
+    }
+
+    return new _WeightedSamples(allX, allY, this.m_weights, selected,
+        this.m_length, null, false);
+  }
+
+  /**
+   * Is the weight of each point exactly the inverse of the absolute value
+   * of its {@code y}-coordinate?
+   *
+   * @return {@code true} if the weight of each point is exactly the
+   *         inverse of the absolute value of its {@code y}-coordinate,
+   *         {@code false} otherwise
+   */
+  final boolean _hasInverseYWeights() {
+    return this.m_inverseY;
+  }
+
+  /**
+   * Make sure that this sample set can be extended
+   *
+   * @throws IllegalStateException
+   *           if it cannot be extended
+   */
+  private final void __checkCanAppend() {
+    if (this.m_claimed == null) {
+      throw new IllegalStateException(//
+          "Points can only be appended to a complete sample set."); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Create a sample set containing the points of this sample set followed
+   * by the given points. If this sample set is the latest extension of
+   * its arrays and they have room for the new points, the new points are
+   * written behind the existing ones and the arrays are shared, which
+   * does not affect this sample set since it only accesses its first
+   * {@link #_getCount()} elements. Otherwise, the arrays are copied into
+   * arrays with room for more points. Appending points hence has
+   * amortized costs linear in the number of new points.
+   *
+   * @param x
+   *          the {@code x}-coordinates of the new points
+   * @param y
+   *          the {@code y}-coordinates of the new points
+   * @param weights
+   *          the weights of the new points
+   * @param count
+   *          the number of new points
+   * @return the extended sample set
+   * @throws IllegalStateException
+   *           if this sample set cannot be extended
+   */
+  final _WeightedSamples _append(final double[] x, final double[] y,
+      final double[] weights, final int count) {
+    final int length, newLength;
+    AtomicInteger claimed;
+    double[] allX, allY, allWeights;
+    int capacity;
+
+    this.__checkCanAppend();
+
+    length = this.m_length;
+    newLength = (length + count);
+    claimed = this.m_claimed;
+    allX = this.m_x;
+    allY = this.m_y;
+    allWeights = this.m_weights;
+
+    if ((newLength > allX.length)
+        || (!(claimed.compareAndSet(length, newLength)))) {
+      capacity = Math.max(newLength, (length << 1));
+      allX = Arrays.copyOf(allX, capacity);
+      allY = Arrays.copyOf(allY, capacity);
+      allWeights = Arrays.copyOf(allWeights, capacity);
+      claimed = new AtomicInteger(newLength);
+    }
+
+    System.arraycopy(x, 0, allX, length, count);
+    System.arraycopy(y, 0, allY, length, count);
+    System.arraycopy(weights, 0, allWeights, length, count);
+    return new _WeightedSamples(allX, allY, allWeights, null, newLength,
+        claimed, this.m_inverseY);
+  }
+
+  /**
+   * Store the points of this sample set followed by the given points as
+   * {@code x}-{@code y} pairs in a new array.
+   *
+   * @param x
+   *          the {@code x}-coordinates of the new points
+   * @param y
+   *          the {@code y}-coordinates of the new points
+   * @param count
+   *          the number of new points
+   * @return the array with the {@code x}-{@code y} pairs of all points
+   * @throws IllegalStateException
+   *           if this sample set cannot be extended
+   */
+  final double[] _concat(final double[] x, final double[] y,
+      final int count) {
+    final double[] allX, allY, dest;
+    final int length;
+    int i;
+
+    this.__checkCanAppend();
+
+    allX = this.m_x;
+    allY = this.m_y;
+    length = this.m_length;
+    dest = new double[(length + count) << 1];
+    for (i = length; (--i) >= 0;) {
+      dest[i << 1] = allX[i];
+      dest[(i << 1) + 1] = allY[i];
+    }
+    for (i = count; (--i) >= 0;) {
+      dest[(length + i) << 1] = x[i];
+      dest[((length + i) << 1) + 1] = y[i];
+    }
+    return dest;
+  }
+
+  /**
+   * Compute the hash code of the first elements of an array in the same
+   * way as {@link Arrays#hashCode(double[])}
+   *
+   * @param data
+   *          the array
+   * @param length
+   *          the number of elements to consider
+   * @return the hash code
+   */
+  private static final int __hashCode(final double[] data,
+      final int length) {
+    long bits;
+    int hash, i;
+
+    hash = 1;
+    for (i = 0; i < length; i++) {
+      bits = Double.doubleToLongBits(data[i]);
+      hash = ((31 * hash) + ((int) (bits ^ (bits >>> 32))));
+    }
+    return hash;
+  }
+
+  /**
+   * Compare the first elements of two arrays in the same way as
+   * {@link Arrays#equals(double[], double[])}
+   *
+   * @param a
+   *          the first array
+   * @param b
+   *          the second array
+   * @param length
+   *          the number of elements to compare
+   * @return {@code true} if the elements are equal, {@code false}
+   *         otherwise
+   */
+  private static final boolean __equals(final double[] a,
+      final double[] b, final int length) {
+    int i;
+
+    if (a == b) {
+      return true;
+    }
+    for (i = length; (--i) >= 0;) {
+      if (Double.doubleToLongBits(a[i]) != Double
+          .doubleToLongBits(b[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final int hashCode() {
+    final int length;
+    int hash;
+
+    hash = this.m_hashCode;
+    if (hash == 0) {
+      length = this.m_length;
+      hash = HashUtils.combineHashes(//
+          HashUtils.combineHashes(
+              _WeightedSamples.__hashCode(this.m_x, length),
+              _WeightedSamples.__hashCode(this.m_y, length)), //
+          HashUtils.combineHashes(
+              _WeightedSamples.__hashCode(this.m_weights, length),
+              Arrays.hashCode(this.m_indexes)));
+      if (hash == 0) {
+        hash = 1;
+      }
+      this.m_hashCode = hash;
+    }
+    return hash;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final boolean equals(final Object o) {
+    final _WeightedSamples other;
+    final int length;
+
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof _WeightedSamples) {
+      other = ((_WeightedSamples) o);
+      length = this.m_length;
+      return ((this.m_count == other.m_count) && //
+          (length == other.m_length) && //
+          (this.hashCode() == other.hashCode()) && //
+          Arrays.equals(this.m_indexes, other.m_indexes) && //
+          _WeightedSamples.__equals(this.m_x, other.m_x, length) && //
+          _WeightedSamples.__equals(this.m_y, other.m_y, length) && //
+          _WeightedSamples.__equals(this.m_weights, other.m_weights,
+              length));
+    }
+    return false;
+  }
+}
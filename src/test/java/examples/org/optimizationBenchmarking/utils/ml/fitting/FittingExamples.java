@@ -14,10 +14,13 @@ import org.optimizationBenchmarking.utils.math.statistics.aggregate.ArithmeticMe
 import org.optimizationBenchmarking.utils.math.statistics.aggregate.QuantileAggregate;
 import org.optimizationBenchmarking.utils.math.statistics.ranking.ETieStrategy;
 import org.optimizationBenchmarking.utils.math.statistics.ranking.RankingStrategy;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls.BIPOPCMAESLSFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.ParallelLSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.varpro.VarProFitter;
 import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
 import org.optimizationBenchmarking.utils.parallel.Execute;
 import org.optimizationBenchmarking.utils.parsers.LoggerParser;
@@ -31,9 +34,12 @@ public class FittingExamples {
   public static final ArrayListView<IFunctionFitter> FITTERS = //
   new ArrayListView<>(new IFunctionFitter[] { //
       CMAESLSFitter.getInstance(), //
+      BIPOPCMAESLSFitter.getInstance(), //
       DELSFitter.getInstance(), //
       ESLSFitter.getInstance(), //
-      LSSimplexFitter.getInstance(),//
+      LSSimplexFitter.getInstance(), //
+      ParallelLSSimplexFitter.getInstance(), //
+      VarProFitter.getInstance(),//
   }, false);
 
   /**
@@ -0,0 +1,2582 @@
+package shared.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import org.apache.commons.math3.analysis.MultivariateFunction;
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.exception.OutOfRangeException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.MaxIter;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.MultivariateOptimizer;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * <p>
+ * The former version of the internal BOBYQA optimizer of
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob}
+ * , which works on
+ * {@link org.apache.commons.math3.linear.ArrayRealVector} and
+ * {@link org.apache.commons.math3.linear.Array2DRowRealMatrix} and is
+ * run via
+ * {@link org.apache.commons.math3.optim.nonlinear.scalar.MultivariateOptimizer}
+ * . It is kept unchanged so that the current implementation, which works
+ * on primitive arrays, can be checked for producing the same results and
+ * benchmarked against it, see
+ * {@link #refine(MultivariateFunction, double[], int)}.
+ * </p>
+ * <p>
+ * Like the current implementation, it is a 1:1 copy of
+ * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+ * , with the exception that we limit the iterations in the
+ * potentially-infinite loops inside some of the methods (see
+ * https://issues.apache.org/jira/browse/MATH-1375 and
+ * https://issues.apache.org/jira/browse/MATH-1282). Hence, we provide no
+ * further documentation.
+ * </p>
+ */
+public final class LegacySafeBOBYQAOptimizer
+    extends MultivariateOptimizer {
+  /** Minimum dimension of the problem: {@value} */
+  public static final int MINIMUM_PROBLEM_DIMENSION = 2;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  public static final double DEFAULT_INITIAL_RADIUS = 10.0;
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   */
+  public static final double DEFAULT_STOPPING_RADIUS = 1E-8;
+  /** Constant 0. */
+  private static final double ZERO = 0d;
+  /** Constant 1. */
+  private static final double ONE = 1d;
+  /** Constant 2. */
+  private static final double TWO = 2d;
+  /** Constant 10. */
+  private static final double TEN = 10d;
+  /** Constant 16. */
+  private static final double SIXTEEN = 16d;
+  /** Constant 250. */
+  private static final double TWO_HUNDRED_FIFTY = 250d;
+  /** Constant -1. */
+  private static final double MINUS_ONE = -LegacySafeBOBYQAOptimizer.ONE;
+  /** Constant 1/2. */
+  private static final double HALF = LegacySafeBOBYQAOptimizer.ONE / 2;
+  /** Constant 1/4. */
+  private static final double ONE_OVER_FOUR = LegacySafeBOBYQAOptimizer.ONE
+      / 4;
+  /** Constant 1/8. */
+  private static final double ONE_OVER_EIGHT = LegacySafeBOBYQAOptimizer.ONE
+      / 8;
+  /** Constant 1/10. */
+  private static final double ONE_OVER_TEN = LegacySafeBOBYQAOptimizer.ONE
+      / 10;
+  /** Constant 1/1000. */
+  private static final double ONE_OVER_A_THOUSAND = LegacySafeBOBYQAOptimizer.ONE
+      / 1000;
+
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private final int m_numberOfInterpolationPoints;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private double m_initialTrustRegionRadius;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private final double m_stoppingTrustRegionRadius;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_currentBest;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private double[] m_boundDifference;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private int m_trustRegionCenterInterpolationPointIndex;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private Array2DRowRealMatrix m_bMatrix;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private Array2DRowRealMatrix m_zMatrix;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private Array2DRowRealMatrix m_interpolationPoints;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_originShift;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_fAtInterpolationPoints;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_trustRegionCenterOffset;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_gradientAtTrustRegionCenter;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_lowerDifference;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_upperDifference;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_modelSecondDerivativesParameters;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_newPoint;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_alternativeNewPoint;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_trialStepPoint;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_lagrangeValuesAtNewPoint;
+  /** {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer} */
+  private ArrayRealVector m_modelSecondDerivativesValues;
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param numberOfInterpolationPoints
+   *          Number of interpolation conditions. For a problem of
+   *          dimension {@code n}, its value must be in the interval
+   *          {@code [n+2, (n+1)(n+2)/2]}. Choices that exceed
+   *          {@code 2n+1} are not recommended.
+   */
+  public LegacySafeBOBYQAOptimizer(
+      final int numberOfInterpolationPoints) {
+    super(null); // No custom convergence criterion.
+    this.m_numberOfInterpolationPoints = numberOfInterpolationPoints;
+    this.m_initialTrustRegionRadius = LegacySafeBOBYQAOptimizer.DEFAULT_INITIAL_RADIUS;
+    this.m_stoppingTrustRegionRadius = LegacySafeBOBYQAOptimizer.DEFAULT_STOPPING_RADIUS;
+  }
+
+  /**
+   * Refine a starting point with a new instance of this optimizer,
+   * exactly as it was done by the former version of
+   * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob#refineWithBOBYQA(org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution)}
+   * : The bounds are ten times the magnitude of each parameter around
+   * it, and all errors are ignored. The objective function is expected
+   * to remember the best point it has seen.
+   *
+   * @param objective
+   *          the objective function
+   * @param start
+   *          the starting point
+   * @param maxIterations
+   *          the maximum number of iterations, from which the maximum
+   *          number of evaluations is derived in the same way as in the
+   *          fitting jobs
+   */
+  public static final void refine(final MultivariateFunction objective,
+      final double[] start, final int maxIterations) {
+    final double[] lower, upper;
+    final int dim;
+    double bound;
+    int index;
+
+    dim = start.length;
+    lower = new double[dim];
+    upper = new double[dim];
+    for (index = dim; (--index) >= 0;) {
+      bound = Math.abs(start[index]);
+      if (bound > 1e50d) {
+        return;
+      }
+      if (bound < 1e-9d) {
+        bound = 1e-9d;
+      }
+      bound *= 10d;
+      lower[index] = Math.nextAfter((start[index] - bound),
+          Double.NEGATIVE_INFINITY);
+      upper[index] = Math.nextUp(start[index] + bound);
+    }
+
+    try {
+      new LegacySafeBOBYQAOptimizer(dim << 1).optimize(GoalType.MINIMIZE, //
+          new ObjectiveFunction(objective), //
+          new InitialGuess(start), //
+          new SimpleBounds(lower, upper), //
+          new MaxEval(Math.max(maxIterations, Math.max(1000, //
+              (maxIterations * dim * dim * 2)))), //
+          new MaxIter(maxIterations + 1));
+    } catch (@SuppressWarnings("unused") final Throwable error) {
+      // ignored, as in the former version
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected final PointValuePair doOptimize() {
+    final double[] lowerBound = this.getLowerBound();
+    final double[] upperBound = this.getUpperBound();
+
+    this.__setup(lowerBound, upperBound);
+
+    this.m_currentBest = new ArrayRealVector(this.getStartPoint());
+
+    final double value = this.__bobyqa(lowerBound, upperBound);
+
+    return new PointValuePair(this.m_currentBest.getDataRef(), value);
+  }
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param lowerBound
+   *          Lower bounds.
+   * @param upperBound
+   *          Upper bounds.
+   * @return the value of the objective at the optimum or
+   *         {@link Double#POSITIVE_INFINITY} if we got stuck and had to
+   *         abort a potential infinite loop.
+   */
+  private double __bobyqa(final double[] lowerBound,
+      final double[] upperBound) {
+
+    final int n = this.m_currentBest.getDimension();
+
+    for (int j = 0; j < n; j++) {
+      final double boundDiff = this.m_boundDifference[j];
+      this.m_lowerDifference.setEntry(j,
+          lowerBound[j] - this.m_currentBest.getEntry(j));
+      this.m_upperDifference.setEntry(j,
+          upperBound[j] - this.m_currentBest.getEntry(j));
+      if (this.m_lowerDifference
+          .getEntry(j) >= -this.m_initialTrustRegionRadius) {
+        if (this.m_lowerDifference
+            .getEntry(j) >= LegacySafeBOBYQAOptimizer.ZERO) {
+          this.m_currentBest.setEntry(j, lowerBound[j]);
+          this.m_lowerDifference.setEntry(j, LegacySafeBOBYQAOptimizer.ZERO);
+          this.m_upperDifference.setEntry(j, boundDiff);
+        } else {
+          this.m_currentBest.setEntry(j,
+              lowerBound[j] + this.m_initialTrustRegionRadius);
+          this.m_lowerDifference.setEntry(j,
+              -this.m_initialTrustRegionRadius);
+          // Computing MAX
+          final double deltaOne = upperBound[j]
+              - this.m_currentBest.getEntry(j);
+          this.m_upperDifference.setEntry(j,
+              FastMath.max(deltaOne, this.m_initialTrustRegionRadius));
+        }
+      } else
+        if (this.m_upperDifference
+            .getEntry(j) <= this.m_initialTrustRegionRadius) {
+          if (this.m_upperDifference
+              .getEntry(j) <= LegacySafeBOBYQAOptimizer.ZERO) {
+            this.m_currentBest.setEntry(j, upperBound[j]);
+            this.m_lowerDifference.setEntry(j, -boundDiff);
+            this.m_upperDifference.setEntry(j,
+                LegacySafeBOBYQAOptimizer.ZERO);
+          } else {
+            this.m_currentBest.setEntry(j,
+                upperBound[j] - this.m_initialTrustRegionRadius);
+            // Computing MIN
+            final double deltaOne = lowerBound[j]
+                - this.m_currentBest.getEntry(j);
+            final double deltaTwo = -this.m_initialTrustRegionRadius;
+            this.m_lowerDifference.setEntry(j,
+                FastMath.min(deltaOne, deltaTwo));
+            this.m_upperDifference.setEntry(j,
+                this.m_initialTrustRegionRadius);
+          }
+        }
+    }
+
+    return this.__bobyqb(lowerBound, upperBound);
+  }
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param lowerBound
+   *          Lower bounds.
+   * @param upperBound
+   *          Upper bounds.
+   * @return the value of the objective at the optimum, or
+   *         {@link Double#POSITIVE_INFINITY} if we got stuck and had to
+   *         abort a potential infinite loop.
+   */
+  @SuppressWarnings("fallthrough")
+  private double __bobyqb(final double[] lowerBound,
+      final double[] upperBound) {
+
+    final int n = this.m_currentBest.getDimension();
+    final int npt = this.m_numberOfInterpolationPoints;
+    final int np = n + 1;
+    final int nptm = npt - np;
+    final int nh = (n * np) / 2;
+
+    final ArrayRealVector work1 = new ArrayRealVector(n);
+    final ArrayRealVector work2 = new ArrayRealVector(npt);
+    final ArrayRealVector work3 = new ArrayRealVector(npt);
+
+    double cauchy = Double.NaN;
+    double alpha = Double.NaN;
+    double dsq = Double.NaN;
+    double crvmin = Double.NaN;
+
+    // Set some constants.
+    // Parameter adjustments
+
+    // Function Body
+
+    // The call of PRELIM sets the elements of XBASE, XPT, FVAL, GOPT,
+    // HQ, PQ,
+    // BMAT and ZMAT for the first iteration, with the corresponding
+    // values of
+    // of NF and KOPT, which are the number of calls of CALFUN so far and
+    // the
+    // index of the interpolation point at the trust region centre. Then
+    // the
+    // initial XOPT is set too. The branch to label 720 occurs if MAXFUN
+    // is
+    // less than NPT. GOPT will be updated if KOPT is different from
+    // KBASE.
+
+    this.m_trustRegionCenterInterpolationPointIndex = 0;
+
+    this.__prelim(lowerBound, upperBound);
+    double xoptsq = LegacySafeBOBYQAOptimizer.ZERO;
+    for (int i = 0; i < n; i++) {
+      this.m_trustRegionCenterOffset.setEntry(i,
+          this.m_interpolationPoints.getEntry(
+              this.m_trustRegionCenterInterpolationPointIndex, i));
+      // Computing 2nd power
+      final double deltaOne = this.m_trustRegionCenterOffset.getEntry(i);
+      xoptsq += deltaOne * deltaOne;
+    }
+    double fsave = this.m_fAtInterpolationPoints.getEntry(0);
+    final int kbase = 0;
+
+    // Complete the settings that are required for the iterative
+    // procedure.
+
+    int ntrits = 0;
+    int itest = 0;
+    int knew = 0;
+    int nfsav = this.getEvaluations();
+    double rho = this.m_initialTrustRegionRadius;
+    double delta = rho;
+    double diffa = LegacySafeBOBYQAOptimizer.ZERO;
+    double diffb = LegacySafeBOBYQAOptimizer.ZERO;
+    double diffc = LegacySafeBOBYQAOptimizer.ZERO;
+    double f = LegacySafeBOBYQAOptimizer.ZERO;
+    double beta = LegacySafeBOBYQAOptimizer.ZERO;
+    double adelt = LegacySafeBOBYQAOptimizer.ZERO;
+    double denom = LegacySafeBOBYQAOptimizer.ZERO;
+    double ratio = LegacySafeBOBYQAOptimizer.ZERO;
+    double dnorm = LegacySafeBOBYQAOptimizer.ZERO;
+    double scaden = LegacySafeBOBYQAOptimizer.ZERO;
+    double biglsq = LegacySafeBOBYQAOptimizer.ZERO;
+    double distsq = LegacySafeBOBYQAOptimizer.ZERO;
+
+    // Update GOPT if necessary before the first iteration and after each
+    // call of RESCUE that makes a call of CALFUN.
+
+    int state = 20;
+    for (int indexer = 100000; (--indexer) >= 0;) {
+      switch (state) {
+        case 20: {
+
+          if (this.m_trustRegionCenterInterpolationPointIndex != kbase) {
+            int ih = 0;
+            for (int j = 0; j < n; j++) {
+              for (int i = 0; i <= j; i++) {
+                if (i < j) {
+                  this.m_gradientAtTrustRegionCenter.setEntry(j,
+                      this.m_gradientAtTrustRegionCenter.getEntry(j)
+                          + (this.m_modelSecondDerivativesValues
+                              .getEntry(ih)
+                              * this.m_trustRegionCenterOffset
+                                  .getEntry(i)));
+                }
+                this.m_gradientAtTrustRegionCenter.setEntry(i,
+                    this.m_gradientAtTrustRegionCenter.getEntry(i)
+                        + (this.m_modelSecondDerivativesValues
+                            .getEntry(ih)
+                            * this.m_trustRegionCenterOffset
+                                .getEntry(j)));
+                ih++;
+              }
+            }
+            if (this.getEvaluations() > npt) {
+              for (int k = 0; k < npt; k++) {
+                double temp = LegacySafeBOBYQAOptimizer.ZERO;
+                for (int j = 0; j < n; j++) {
+                  temp += this.m_interpolationPoints.getEntry(k, j)
+                      * this.m_trustRegionCenterOffset.getEntry(j);
+                }
+                temp *= this.m_modelSecondDerivativesParameters
+                    .getEntry(k);
+                for (int i = 0; i < n; i++) {
+                  this.m_gradientAtTrustRegionCenter.setEntry(i,
+                      this.m_gradientAtTrustRegionCenter.getEntry(i)
+                          + (temp * this.m_interpolationPoints
+                              .getEntry(k, i)));
+                }
+              }
+            }
+          }
+
+          // Generate the next point in the trust region that provides a
+          // small value
+          // of the quadratic model subject to the constraints on the
+          // variables.
+          // The int NTRITS is set to the number "trust region"
+          // iterations that
+          // have occurred since the last "alternative" iteration. If the
+          // length
+          // of XNEW-XOPT is less than HALF*RHO, however, then there is a
+          // branch to
+          // label 650 or 680 with NTRITS=-1, instead of calculating F at
+          // XNEW.
+
+        }
+        case 60: {
+
+          final ArrayRealVector gnew = new ArrayRealVector(n);
+          final ArrayRealVector xbdi = new ArrayRealVector(n);
+          final ArrayRealVector s = new ArrayRealVector(n);
+          final ArrayRealVector hs = new ArrayRealVector(n);
+          final ArrayRealVector hred = new ArrayRealVector(n);
+
+          final double[] dsqCrvmin = this.__trsbox(delta, gnew, xbdi, s,
+              hs, hred);
+          if (dsqCrvmin == null) {
+            return Double.POSITIVE_INFINITY;
+          }
+          dsq = dsqCrvmin[0];
+          crvmin = dsqCrvmin[1];
+
+          // Computing MIN
+          double deltaOne = delta;
+          final double deltaTwo = FastMath.sqrt(dsq);
+          dnorm = FastMath.min(deltaOne, deltaTwo);
+          if (dnorm < (LegacySafeBOBYQAOptimizer.HALF * rho)) {
+            ntrits = -1;
+            // Computing 2nd power
+            deltaOne = LegacySafeBOBYQAOptimizer.TEN * rho;
+            distsq = deltaOne * deltaOne;
+            if (this.getEvaluations() <= (nfsav + 2)) {
+              state = 650;
+              break;
+            }
+
+            // The following choice between labels 650 and 680 depends on
+            // whether or
+            // not our work with the current RHO seems to be complete.
+            // Either RHO is
+            // decreased or termination occurs if the errors in the
+            // quadratic model at
+            // the last three interpolation points compare favourably
+            // with predictions
+            // of likely improvements to the model within distance
+            // HALF*RHO of XOPT.
+
+            // Computing MAX
+            deltaOne = FastMath.max(diffa, diffb);
+            final double errbig = FastMath.max(deltaOne, diffc);
+            final double frhosq = rho
+                * LegacySafeBOBYQAOptimizer.ONE_OVER_EIGHT * rho;
+            if ((crvmin > LegacySafeBOBYQAOptimizer.ZERO)
+                && (errbig > (frhosq * crvmin))) {
+              state = 650;
+              break;
+            }
+            final double bdtol = errbig / rho;
+            for (int j = 0; j < n; j++) {
+              double bdtest = bdtol;
+              if (this.m_newPoint.getEntry(j) == this.m_lowerDifference
+                  .getEntry(j)) {
+                bdtest = work1.getEntry(j);
+              }
+              if (this.m_newPoint.getEntry(j) == this.m_upperDifference
+                  .getEntry(j)) {
+                bdtest = -work1.getEntry(j);
+              }
+              if (bdtest < bdtol) {
+                double curv = this.m_modelSecondDerivativesValues
+                    .getEntry((j + (j * j)) / 2);
+                for (int k = 0; k < npt; k++) {
+                  // Computing 2nd power
+                  final double d1 = this.m_interpolationPoints
+                      .getEntry(k, j);
+                  curv += this.m_modelSecondDerivativesParameters
+                      .getEntry(k) * (d1 * d1);
+                }
+                bdtest += LegacySafeBOBYQAOptimizer.HALF * curv * rho;
+                if (bdtest < bdtol) {
+                  state = 650;
+                  break;
+                }
+              }
+            }
+            state = 680;
+            break;
+          }
+          ++ntrits;
+
+          // Severe cancellation is likely to occur if XOPT is too far
+          // from XBASE.
+          // If the following test holds, then XBASE is shifted so that
+          // XOPT becomes
+          // zero. The appropriate changes are made to BMAT and to the
+          // second
+          // derivatives of the current model, beginning with the changes
+          // to BMAT
+          // that do not depend on ZMAT. VLAG is used temporarily for
+          // working space.
+
+        }
+        case 90: {
+
+          if (dsq <= (xoptsq
+              * LegacySafeBOBYQAOptimizer.ONE_OVER_A_THOUSAND)) {
+            final double fracsq = xoptsq
+                * LegacySafeBOBYQAOptimizer.ONE_OVER_FOUR;
+            double sumpq = LegacySafeBOBYQAOptimizer.ZERO;
+            // final RealVector sumVector
+            // = new ArrayRealVector(npt, -HALF *
+            // xoptsq).add(m_interpolationPoints.operate(trustRegionCenter));
+            for (int k = 0; k < npt; k++) {
+              sumpq += this.m_modelSecondDerivativesParameters
+                  .getEntry(k);
+              double sum = -LegacySafeBOBYQAOptimizer.HALF * xoptsq;
+              for (int i = 0; i < n; i++) {
+                sum += this.m_interpolationPoints.getEntry(k, i)
+                    * this.m_trustRegionCenterOffset.getEntry(i);
+              }
+              work2.setEntry(k, sum);
+              final double temp = fracsq
+                  - (LegacySafeBOBYQAOptimizer.HALF * sum);
+              for (int i = 0; i < n; i++) {
+                work1.setEntry(i, this.m_bMatrix.getEntry(k, i));
+                this.m_lagrangeValuesAtNewPoint.setEntry(i, (sum
+                    * this.m_interpolationPoints.getEntry(k, i))
+                    + (temp
+                        * this.m_trustRegionCenterOffset.getEntry(i)));
+                final int ip = npt + i;
+                for (int j = 0; j <= i; j++) {
+                  this.m_bMatrix.setEntry(ip, j,
+                      this.m_bMatrix.getEntry(ip, j)
+                          + (work1.getEntry(i)
+                              * this.m_lagrangeValuesAtNewPoint
+                                  .getEntry(j))
+                      + (this.m_lagrangeValuesAtNewPoint.getEntry(i)
+                          * work1.getEntry(j)));
+                }
+              }
+            }
+
+            // Then the revisions of BMAT that depend on ZMAT are
+            // calculated.
+
+            for (int m = 0; m < nptm; m++) {
+              double sumz = LegacySafeBOBYQAOptimizer.ZERO;
+              double sumw = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int k = 0; k < npt; k++) {
+                sumz += this.m_zMatrix.getEntry(k, m);
+                this.m_lagrangeValuesAtNewPoint.setEntry(k,
+                    work2.getEntry(k) * this.m_zMatrix.getEntry(k, m));
+                sumw += this.m_lagrangeValuesAtNewPoint.getEntry(k);
+              }
+              for (int j = 0; j < n; j++) {
+                double sum = ((fracsq * sumz)
+                    - (LegacySafeBOBYQAOptimizer.HALF * sumw))
+                    * this.m_trustRegionCenterOffset.getEntry(j);
+                for (int k = 0; k < npt; k++) {
+                  sum += this.m_lagrangeValuesAtNewPoint.getEntry(k)
+                      * this.m_interpolationPoints.getEntry(k, j);
+                }
+                work1.setEntry(j, sum);
+                for (int k = 0; k < npt; k++) {
+                  this.m_bMatrix.setEntry(k, j,
+                      this.m_bMatrix.getEntry(k, j)
+                          + (sum * this.m_zMatrix.getEntry(k, m)));
+                }
+              }
+              for (int i = 0; i < n; i++) {
+                final int ip = i + npt;
+                final double temp = work1.getEntry(i);
+                for (int j = 0; j <= i; j++) {
+                  this.m_bMatrix.setEntry(ip, j,
+                      this.m_bMatrix.getEntry(ip, j)
+                          + (temp * work1.getEntry(j)));
+                }
+              }
+            }
+
+            // The following instructions complete the shift, including
+            // the changes
+            // to the second derivative parameters of the quadratic
+            // model.
+
+            int ih = 0;
+            for (int j = 0; j < n; j++) {
+              work1.setEntry(j, -LegacySafeBOBYQAOptimizer.HALF * sumpq
+                  * this.m_trustRegionCenterOffset.getEntry(j));
+              for (int k = 0; k < npt; k++) {
+                work1.setEntry(j, work1.getEntry(j)
+                    + (this.m_modelSecondDerivativesParameters.getEntry(
+                        k) * this.m_interpolationPoints.getEntry(k, j)));
+                this.m_interpolationPoints.setEntry(k, j,
+                    this.m_interpolationPoints.getEntry(k, j)
+                        - this.m_trustRegionCenterOffset.getEntry(j));
+              }
+              for (int i = 0; i <= j; i++) {
+                this.m_modelSecondDerivativesValues.setEntry(ih,
+                    this.m_modelSecondDerivativesValues.getEntry(ih)
+                        + (work1.getEntry(i)
+                            * this.m_trustRegionCenterOffset.getEntry(j))
+                        + (this.m_trustRegionCenterOffset.getEntry(i)
+                            * work1.getEntry(j)));
+                this.m_bMatrix.setEntry(npt + i, j,
+                    this.m_bMatrix.getEntry(npt + j, i));
+                ih++;
+              }
+            }
+            for (int i = 0; i < n; i++) {
+              this.m_originShift.setEntry(i,
+                  this.m_originShift.getEntry(i)
+                      + this.m_trustRegionCenterOffset.getEntry(i));
+              this.m_newPoint.setEntry(i, this.m_newPoint.getEntry(i)
+                  - this.m_trustRegionCenterOffset.getEntry(i));
+              this.m_lowerDifference.setEntry(i,
+                  this.m_lowerDifference.getEntry(i)
+                      - this.m_trustRegionCenterOffset.getEntry(i));
+              this.m_upperDifference.setEntry(i,
+                  this.m_upperDifference.getEntry(i)
+                      - this.m_trustRegionCenterOffset.getEntry(i));
+              this.m_trustRegionCenterOffset.setEntry(i,
+                  LegacySafeBOBYQAOptimizer.ZERO);
+            }
+            xoptsq = LegacySafeBOBYQAOptimizer.ZERO;
+          }
+          if (ntrits == 0) {
+            state = 210;
+            break;
+          }
+          state = 230;
+          break;
+
+          // XBASE is also moved to XOPT by a call of RESCUE. This
+          // calculation is
+          // more expensive than the previous shift, because new matrices
+          // BMAT and
+          // ZMAT are generated from scratch, which may include the
+          // replacement of
+          // interpolation points whose positions seem to be causing near
+          // linear
+          // dependence in the interpolation conditions. Therefore RESCUE
+          // is called
+          // only if rounding errors have reduced by at least a factor of
+          // two the
+          // denominator of the formula for updating the H matrix. It
+          // provides a
+          // useful safeguard, but is not invoked in most applications of
+          // BOBYQA.
+
+        }
+        case 210: {
+
+          // Pick two alternative vectors of variables, relative to
+          // XBASE, that
+          // are suitable as new positions of the KNEW-th interpolation
+          // point.
+          // Firstly, XNEW is set to the point on a line through XOPT and
+          // another
+          // interpolation point that minimizes the predicted value of
+          // the next
+          // denominator, subject to ||XNEW - XOPT|| .LEQ. ADELT and to
+          // the SL
+          // and SU bounds. Secondly, XALT is set to the best feasible
+          // point on
+          // a constrained version of the Cauchy step of the KNEW-th
+          // Lagrange
+          // function, the corresponding value of the square of this
+          // function
+          // being returned in CAUCHY. The choice between these
+          // alternatives is
+          // going to be made when the denominator is calculated.
+
+          final double[] alphaCauchy = this.__altmov(knew, adelt);
+          alpha = alphaCauchy[0];
+          cauchy = alphaCauchy[1];
+
+          for (int i = 0; i < n; i++) {
+            this.m_trialStepPoint.setEntry(i, this.m_newPoint.getEntry(i)
+                - this.m_trustRegionCenterOffset.getEntry(i));
+          }
+
+          // Calculate VLAG and BETA for the current choice of D. The
+          // scalar
+          // product of D with XPT(K,.) is going to be held in W(NPT+K)
+          // for
+          // use when VQUAD is calculated.
+
+        }
+        case 230: {
+
+          for (int k = 0; k < npt; k++) {
+            double suma = LegacySafeBOBYQAOptimizer.ZERO;
+            double sumb = LegacySafeBOBYQAOptimizer.ZERO;
+            double sum = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int j = 0; j < n; j++) {
+              suma += this.m_interpolationPoints.getEntry(k, j)
+                  * this.m_trialStepPoint.getEntry(j);
+              sumb += this.m_interpolationPoints.getEntry(k, j)
+                  * this.m_trustRegionCenterOffset.getEntry(j);
+              sum += this.m_bMatrix.getEntry(k, j)
+                  * this.m_trialStepPoint.getEntry(j);
+            }
+            work3.setEntry(k,
+                suma * ((LegacySafeBOBYQAOptimizer.HALF * suma) + sumb));
+            this.m_lagrangeValuesAtNewPoint.setEntry(k, sum);
+            work2.setEntry(k, suma);
+          }
+          beta = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int m = 0; m < nptm; m++) {
+            double sum = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int k = 0; k < npt; k++) {
+              sum += this.m_zMatrix.getEntry(k, m) * work3.getEntry(k);
+            }
+            beta -= sum * sum;
+            for (int k = 0; k < npt; k++) {
+              this.m_lagrangeValuesAtNewPoint.setEntry(k,
+                  this.m_lagrangeValuesAtNewPoint.getEntry(k)
+                      + (sum * this.m_zMatrix.getEntry(k, m)));
+            }
+          }
+          dsq = LegacySafeBOBYQAOptimizer.ZERO;
+          double bsum = LegacySafeBOBYQAOptimizer.ZERO;
+          double dx = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int j = 0; j < n; j++) {
+            // Computing 2nd power
+            final double d1 = this.m_trialStepPoint.getEntry(j);
+            dsq += d1 * d1;
+            double sum = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int k = 0; k < npt; k++) {
+              sum += work3.getEntry(k) * this.m_bMatrix.getEntry(k, j);
+            }
+            bsum += sum * this.m_trialStepPoint.getEntry(j);
+            final int jp = npt + j;
+            for (int i = 0; i < n; i++) {
+              sum += this.m_bMatrix.getEntry(jp, i)
+                  * this.m_trialStepPoint.getEntry(i);
+            }
+            this.m_lagrangeValuesAtNewPoint.setEntry(jp, sum);
+            bsum += sum * this.m_trialStepPoint.getEntry(j);
+            dx += this.m_trialStepPoint.getEntry(j)
+                * this.m_trustRegionCenterOffset.getEntry(j);
+          }
+
+          beta = ((dx * dx) + (dsq
+              * (xoptsq + dx + dx + (LegacySafeBOBYQAOptimizer.HALF * dsq)))
+              + beta) - bsum; // Original
+
+          this.m_lagrangeValuesAtNewPoint.setEntry(
+              this.m_trustRegionCenterInterpolationPointIndex,
+              this.m_lagrangeValuesAtNewPoint.getEntry(
+                  this.m_trustRegionCenterInterpolationPointIndex)
+                  + LegacySafeBOBYQAOptimizer.ONE);
+
+          // If NTRITS is zero, the denominator may be increased by
+          // replacing
+          // the step D of ALTMOV by a Cauchy step. Then RESCUE may be
+          // called if
+          // rounding errors have damaged the chosen denominator.
+
+          if (ntrits == 0) {
+            // Computing 2nd power
+            final double d1 = this.m_lagrangeValuesAtNewPoint
+                .getEntry(knew);
+            denom = (d1 * d1) + (alpha * beta);
+            if ((denom < cauchy)
+                && (cauchy > LegacySafeBOBYQAOptimizer.ZERO)) {
+              for (int i = 0; i < n; i++) {
+                this.m_newPoint.setEntry(i,
+                    this.m_alternativeNewPoint.getEntry(i));
+                this.m_trialStepPoint.setEntry(i,
+                    this.m_newPoint.getEntry(i)
+                        - this.m_trustRegionCenterOffset.getEntry(i));
+              }
+              cauchy = LegacySafeBOBYQAOptimizer.ZERO;
+
+              state = 230;
+              break;
+            }
+            // Alternatively, if NTRITS is positive, then set KNEW to the
+            // index of
+            // the next interpolation point to be deleted to make room
+            // for a trust
+            // region step. Again RESCUE may be called if rounding errors
+            // have damaged_
+            // the chosen denominator, which is the reason for attempting
+            // to select
+            // KNEW before calculating the next value of the objective
+            // function.
+
+          } else {
+            final double delsq = delta * delta;
+            scaden = LegacySafeBOBYQAOptimizer.ZERO;
+            biglsq = LegacySafeBOBYQAOptimizer.ZERO;
+            knew = 0;
+            for (int k = 0; k < npt; k++) {
+              if (k == this.m_trustRegionCenterInterpolationPointIndex) {
+                continue;
+              }
+              double hdiag = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int m = 0; m < nptm; m++) {
+                // Computing 2nd power
+                final double d1 = this.m_zMatrix.getEntry(k, m);
+                hdiag += d1 * d1;
+              }
+              // Computing 2nd power
+              final double d2 = this.m_lagrangeValuesAtNewPoint
+                  .getEntry(k);
+              final double den = (beta * hdiag) + (d2 * d2);
+              distsq = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int j = 0; j < n; j++) {
+                // Computing 2nd power
+                final double d3 = this.m_interpolationPoints.getEntry(k,
+                    j) - this.m_trustRegionCenterOffset.getEntry(j);
+                distsq += d3 * d3;
+              }
+              // Computing MAX
+              // Computing 2nd power
+              final double d4 = distsq / delsq;
+              final double temp = FastMath.max(LegacySafeBOBYQAOptimizer.ONE,
+                  d4 * d4);
+              if ((temp * den) > scaden) {
+                scaden = temp * den;
+                knew = k;
+                denom = den;
+              }
+              // Computing MAX
+              // Computing 2nd power
+              final double d5 = this.m_lagrangeValuesAtNewPoint
+                  .getEntry(k);
+              biglsq = FastMath.max(biglsq, temp * (d5 * d5));
+            }
+          }
+
+          // Put the variables for the next calculation of the objective
+          // function
+          // in XNEW, with any adjustments for the bounds.
+
+          // Calculate the value of the objective function at XBASE+XNEW,
+          // unless
+          // the limit on the number of calculations of F has been
+          // reached.
+
+        }
+        case 360: {
+
+          for (int i = 0; i < n; i++) {
+            // Computing MIN
+            // Computing MAX
+            final double d3 = lowerBound[i];
+            final double d4 = this.m_originShift.getEntry(i)
+                + this.m_newPoint.getEntry(i);
+            final double d1 = FastMath.max(d3, d4);
+            final double d2 = upperBound[i];
+            this.m_currentBest.setEntry(i, FastMath.min(d1, d2));
+            if (this.m_newPoint.getEntry(i) == this.m_lowerDifference
+                .getEntry(i)) {
+              this.m_currentBest.setEntry(i, lowerBound[i]);
+            }
+            if (this.m_newPoint.getEntry(i) == this.m_upperDifference
+                .getEntry(i)) {
+              this.m_currentBest.setEntry(i, upperBound[i]);
+            }
+          }
+
+          f = this.computeObjectiveValue(this.m_currentBest.toArray());
+
+          if (ntrits == -1) {
+            fsave = f;
+            state = 720;
+            break;
+          }
+
+          // Use the quadratic model to predict the change in F due to
+          // the step D,
+          // and set DIFF to the error of this prediction.
+
+          final double fopt = this.m_fAtInterpolationPoints
+              .getEntry(this.m_trustRegionCenterInterpolationPointIndex);
+          double vquad = LegacySafeBOBYQAOptimizer.ZERO;
+          int ih = 0;
+          for (int j = 0; j < n; j++) {
+            vquad += this.m_trialStepPoint.getEntry(j)
+                * this.m_gradientAtTrustRegionCenter.getEntry(j);
+            for (int i = 0; i <= j; i++) {
+              double temp = this.m_trialStepPoint.getEntry(i)
+                  * this.m_trialStepPoint.getEntry(j);
+              if (i == j) {
+                temp *= LegacySafeBOBYQAOptimizer.HALF;
+              }
+              vquad += this.m_modelSecondDerivativesValues.getEntry(ih)
+                  * temp;
+              ih++;
+            }
+          }
+          for (int k = 0; k < npt; k++) {
+            // Computing 2nd power
+            final double d1 = work2.getEntry(k);
+            final double d2 = d1 * d1; // "d1" must be squared first to
+                                       // prevent test failures.
+            vquad += LegacySafeBOBYQAOptimizer.HALF
+                * this.m_modelSecondDerivativesParameters.getEntry(k)
+                * d2;
+          }
+          final double diff = f - fopt - vquad;
+          diffc = diffb;
+          diffb = diffa;
+          diffa = FastMath.abs(diff);
+          if (dnorm > rho) {
+            nfsav = this.getEvaluations();
+          }
+
+          // Pick the next value of DELTA after a trust region step.
+
+          if (ntrits > 0) {
+            if (vquad >= LegacySafeBOBYQAOptimizer.ZERO) {
+              throw new MathIllegalStateException(
+                  LocalizedFormats.TRUST_REGION_STEP_FAILED,
+                  Double.valueOf(vquad));
+            }
+            ratio = (f - fopt) / vquad;
+            final double hDelta = LegacySafeBOBYQAOptimizer.HALF * delta;
+            if (ratio <= LegacySafeBOBYQAOptimizer.ONE_OVER_TEN) {
+              // Computing MIN
+              delta = FastMath.min(hDelta, dnorm);
+            } else
+              if (ratio <= .7) {
+                // Computing MAX
+                delta = FastMath.max(hDelta, dnorm);
+              } else {
+                // Computing MAX
+                delta = FastMath.max(hDelta, 2 * dnorm);
+              }
+            if (delta <= (rho * 1.5)) {
+              delta = rho;
+            }
+
+            // Recalculate KNEW and DENOM if the new F is less than FOPT.
+
+            if (f < fopt) {
+              final int ksav = knew;
+              final double densav = denom;
+              final double delsq = delta * delta;
+              scaden = LegacySafeBOBYQAOptimizer.ZERO;
+              biglsq = LegacySafeBOBYQAOptimizer.ZERO;
+              knew = 0;
+              for (int k = 0; k < npt; k++) {
+                double hdiag = LegacySafeBOBYQAOptimizer.ZERO;
+                for (int m = 0; m < nptm; m++) {
+                  // Computing 2nd power
+                  final double d1 = this.m_zMatrix.getEntry(k, m);
+                  hdiag += d1 * d1;
+                }
+                // Computing 2nd power
+                final double d1 = this.m_lagrangeValuesAtNewPoint
+                    .getEntry(k);
+                final double den = (beta * hdiag) + (d1 * d1);
+                distsq = LegacySafeBOBYQAOptimizer.ZERO;
+                for (int j = 0; j < n; j++) {
+                  // Computing 2nd power
+                  final double d2 = this.m_interpolationPoints
+                      .getEntry(k, j) - this.m_newPoint.getEntry(j);
+                  distsq += d2 * d2;
+                }
+                // Computing MAX
+                // Computing 2nd power
+                final double d3 = distsq / delsq;
+                final double temp = FastMath
+                    .max(LegacySafeBOBYQAOptimizer.ONE, d3 * d3);
+                if ((temp * den) > scaden) {
+                  scaden = temp * den;
+                  knew = k;
+                  denom = den;
+                }
+                // Computing MAX
+                // Computing 2nd power
+                final double d4 = this.m_lagrangeValuesAtNewPoint
+                    .getEntry(k);
+                final double d5 = temp * (d4 * d4);
+                biglsq = FastMath.max(biglsq, d5);
+              }
+              if (scaden <= (LegacySafeBOBYQAOptimizer.HALF * biglsq)) {
+                knew = ksav;
+                denom = densav;
+              }
+            }
+          }
+
+          // Update BMAT and ZMAT, so that the KNEW-th interpolation
+          // point can be
+          // moved. Also update the second derivative terms of the model.
+
+          this.__update(beta, denom, knew);
+
+          ih = 0;
+          final double pqold = this.m_modelSecondDerivativesParameters
+              .getEntry(knew);
+          this.m_modelSecondDerivativesParameters.setEntry(knew,
+              LegacySafeBOBYQAOptimizer.ZERO);
+          for (int i = 0; i < n; i++) {
+            final double temp = pqold
+                * this.m_interpolationPoints.getEntry(knew, i);
+            for (int j = 0; j <= i; j++) {
+              this.m_modelSecondDerivativesValues.setEntry(ih,
+                  this.m_modelSecondDerivativesValues.getEntry(ih)
+                      + (temp * this.m_interpolationPoints.getEntry(knew,
+                          j)));
+              ih++;
+            }
+          }
+          for (int m = 0; m < nptm; m++) {
+            final double temp = diff * this.m_zMatrix.getEntry(knew, m);
+            for (int k = 0; k < npt; k++) {
+              this.m_modelSecondDerivativesParameters.setEntry(k,
+                  this.m_modelSecondDerivativesParameters.getEntry(k)
+                      + (temp * this.m_zMatrix.getEntry(k, m)));
+            }
+          }
+
+          // Include the new interpolation point, and make the changes to
+          // GOPT at
+          // the old XOPT that are caused by the updating of the
+          // quadratic model.
+
+          this.m_fAtInterpolationPoints.setEntry(knew, f);
+          for (int i = 0; i < n; i++) {
+            this.m_interpolationPoints.setEntry(knew, i,
+                this.m_newPoint.getEntry(i));
+            work1.setEntry(i, this.m_bMatrix.getEntry(knew, i));
+          }
+          for (int k = 0; k < npt; k++) {
+            double suma = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int m = 0; m < nptm; m++) {
+              suma += this.m_zMatrix.getEntry(knew, m)
+                  * this.m_zMatrix.getEntry(k, m);
+            }
+            double sumb = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int j = 0; j < n; j++) {
+              sumb += this.m_interpolationPoints.getEntry(k, j)
+                  * this.m_trustRegionCenterOffset.getEntry(j);
+            }
+            final double temp = suma * sumb;
+            for (int i = 0; i < n; i++) {
+              work1.setEntry(i, work1.getEntry(i)
+                  + (temp * this.m_interpolationPoints.getEntry(k, i)));
+            }
+          }
+          for (int i = 0; i < n; i++) {
+            this.m_gradientAtTrustRegionCenter.setEntry(i,
+                this.m_gradientAtTrustRegionCenter.getEntry(i)
+                    + (diff * work1.getEntry(i)));
+          }
+
+          // Update XOPT, GOPT and KOPT if the new calculated F is less
+          // than FOPT.
+
+          if (f < fopt) {
+            this.m_trustRegionCenterInterpolationPointIndex = knew;
+            xoptsq = LegacySafeBOBYQAOptimizer.ZERO;
+            ih = 0;
+            for (int j = 0; j < n; j++) {
+              this.m_trustRegionCenterOffset.setEntry(j,
+                  this.m_newPoint.getEntry(j));
+              // Computing 2nd power
+              final double d1 = this.m_trustRegionCenterOffset
+                  .getEntry(j);
+              xoptsq += d1 * d1;
+              for (int i = 0; i <= j; i++) {
+                if (i < j) {
+                  this.m_gradientAtTrustRegionCenter.setEntry(j,
+                      this.m_gradientAtTrustRegionCenter.getEntry(j)
+                          + (this.m_modelSecondDerivativesValues
+                              .getEntry(ih)
+                              * this.m_trialStepPoint.getEntry(i)));
+                }
+                this.m_gradientAtTrustRegionCenter.setEntry(i,
+                    this.m_gradientAtTrustRegionCenter.getEntry(i)
+                        + (this.m_modelSecondDerivativesValues.getEntry(
+                            ih) * this.m_trialStepPoint.getEntry(j)));
+                ih++;
+              }
+            }
+            for (int k = 0; k < npt; k++) {
+              double temp = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int j = 0; j < n; j++) {
+                temp += this.m_interpolationPoints.getEntry(k, j)
+                    * this.m_trialStepPoint.getEntry(j);
+              }
+              temp *= this.m_modelSecondDerivativesParameters
+                  .getEntry(k);
+              for (int i = 0; i < n; i++) {
+                this.m_gradientAtTrustRegionCenter.setEntry(i,
+                    this.m_gradientAtTrustRegionCenter.getEntry(i)
+                        + (temp * this.m_interpolationPoints.getEntry(k,
+                            i)));
+              }
+            }
+          }
+
+          // Calculate the parameters of the least Frobenius norm
+          // interpolant to
+          // the current data, the gradient of this interpolant at XOPT
+          // being put
+          // into VLAG(NPT+I), I=1,2,...,N.
+
+          if (ntrits > 0) {
+            for (int k = 0; k < npt; k++) {
+              this.m_lagrangeValuesAtNewPoint.setEntry(k,
+                  this.m_fAtInterpolationPoints.getEntry(k)
+                      - this.m_fAtInterpolationPoints.getEntry(
+                          this.m_trustRegionCenterInterpolationPointIndex));
+              work3.setEntry(k, LegacySafeBOBYQAOptimizer.ZERO);
+            }
+            for (int j = 0; j < nptm; j++) {
+              double sum = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int k = 0; k < npt; k++) {
+                sum += this.m_zMatrix.getEntry(k, j)
+                    * this.m_lagrangeValuesAtNewPoint.getEntry(k);
+              }
+              for (int k = 0; k < npt; k++) {
+                work3.setEntry(k, work3.getEntry(k)
+                    + (sum * this.m_zMatrix.getEntry(k, j)));
+              }
+            }
+            for (int k = 0; k < npt; k++) {
+              double sum = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int j = 0; j < n; j++) {
+                sum += this.m_interpolationPoints.getEntry(k, j)
+                    * this.m_trustRegionCenterOffset.getEntry(j);
+              }
+              work2.setEntry(k, work3.getEntry(k));
+              work3.setEntry(k, sum * work3.getEntry(k));
+            }
+            double gqsq = LegacySafeBOBYQAOptimizer.ZERO;
+            double gisq = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int i = 0; i < n; i++) {
+              double sum = LegacySafeBOBYQAOptimizer.ZERO;
+              for (int k = 0; k < npt; k++) {
+                sum += (this.m_bMatrix.getEntry(k, i)
+                    * this.m_lagrangeValuesAtNewPoint.getEntry(k))
+                    + (this.m_interpolationPoints.getEntry(k, i)
+                        * work3.getEntry(k));
+              }
+              if (this.m_trustRegionCenterOffset
+                  .getEntry(i) == this.m_lowerDifference.getEntry(i)) {
+                // Computing MIN
+                // Computing 2nd power
+                final double d1 = FastMath.min(
+                    LegacySafeBOBYQAOptimizer.ZERO,
+                    this.m_gradientAtTrustRegionCenter.getEntry(i));
+                gqsq += d1 * d1;
+                // Computing 2nd power
+                final double d2 = FastMath
+                    .min(LegacySafeBOBYQAOptimizer.ZERO, sum);
+                gisq += d2 * d2;
+              } else
+                if (this.m_trustRegionCenterOffset
+                    .getEntry(i) == this.m_upperDifference.getEntry(i)) {
+                  // Computing MAX
+                  // Computing 2nd power
+                  final double d1 = FastMath.max(
+                      LegacySafeBOBYQAOptimizer.ZERO,
+                      this.m_gradientAtTrustRegionCenter.getEntry(i));
+                  gqsq += d1 * d1;
+                  // Computing 2nd power
+                  final double d2 = FastMath
+                      .max(LegacySafeBOBYQAOptimizer.ZERO, sum);
+                  gisq += d2 * d2;
+                } else {
+                  // Computing 2nd power
+                  final double d1 = this.m_gradientAtTrustRegionCenter
+                      .getEntry(i);
+                  gqsq += d1 * d1;
+                  gisq += sum * sum;
+                }
+              this.m_lagrangeValuesAtNewPoint.setEntry(npt + i, sum);
+            }
+
+            // Test whether to replace the new quadratic model by the
+            // least Frobenius
+            // norm interpolant, making the replacement if the test is
+            // satisfied.
+
+            ++itest;
+            if (gqsq < (LegacySafeBOBYQAOptimizer.TEN * gisq)) {
+              itest = 0;
+            }
+            if (itest >= 3) {
+              for (int i = 0, max = FastMath.max(npt,
+                  nh); i < max; i++) {
+                if (i < n) {
+                  this.m_gradientAtTrustRegionCenter.setEntry(i,
+                      this.m_lagrangeValuesAtNewPoint.getEntry(npt + i));
+                }
+                if (i < npt) {
+                  this.m_modelSecondDerivativesParameters.setEntry(i,
+                      work2.getEntry(i));
+                }
+                if (i < nh) {
+                  this.m_modelSecondDerivativesValues.setEntry(i,
+                      LegacySafeBOBYQAOptimizer.ZERO);
+                }
+                itest = 0;
+              }
+            }
+          }
+
+          // If a trust region step has provided a sufficient decrease in
+          // F, then
+          // branch for another trust region calculation. The case
+          // NTRITS=0 occurs
+          // when the new interpolation point was reached by an
+          // alternative step.
+
+          if (ntrits == 0) {
+            state = 60;
+            break;
+          }
+          if (f <= (fopt
+              + (LegacySafeBOBYQAOptimizer.ONE_OVER_TEN * vquad))) {
+            state = 60;
+            break;
+          }
+
+          // Alternatively, find out if the interpolation points are
+          // close enough
+          // to the best point so far.
+
+          // Computing MAX
+          // Computing 2nd power
+          final double d1 = LegacySafeBOBYQAOptimizer.TWO * delta;
+          // Computing 2nd power
+          final double d2 = LegacySafeBOBYQAOptimizer.TEN * rho;
+          distsq = FastMath.max(d1 * d1, d2 * d2);
+        }
+        case 650: {
+
+          knew = -1;
+          for (int k = 0; k < npt; k++) {
+            double sum = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int j = 0; j < n; j++) {
+              // Computing 2nd power
+              final double d1 = this.m_interpolationPoints.getEntry(k, j)
+                  - this.m_trustRegionCenterOffset.getEntry(j);
+              sum += d1 * d1;
+            }
+            if (sum > distsq) {
+              knew = k;
+              distsq = sum;
+            }
+          }
+
+          // If KNEW is positive, then ALTMOV finds alternative new
+          // positions for
+          // the KNEW-th interpolation point within distance ADELT of
+          // XOPT. It is
+          // reached via label 90. Otherwise, there is a branch to label
+          // 60 for
+          // another trust region iteration, unless the calculations with
+          // the
+          // current RHO are complete.
+
+          if (knew >= 0) {
+            final double dist = FastMath.sqrt(distsq);
+            if (ntrits == -1) {
+              // Computing MIN
+              delta = FastMath.min(
+                  LegacySafeBOBYQAOptimizer.ONE_OVER_TEN * delta,
+                  LegacySafeBOBYQAOptimizer.HALF * dist);
+              if (delta <= (rho * 1.5)) {
+                delta = rho;
+              }
+            }
+            ntrits = 0;
+            // Computing MAX
+            // Computing MIN
+            final double d1 = FastMath
+                .min(LegacySafeBOBYQAOptimizer.ONE_OVER_TEN * dist, delta);
+            adelt = FastMath.max(d1, rho);
+            dsq = adelt * adelt;
+            state = 90;
+            break;
+          }
+          if (ntrits == -1) {
+            state = 680;
+            break;
+          }
+          if (ratio > LegacySafeBOBYQAOptimizer.ZERO) {
+            state = 60;
+            break;
+          }
+          if (FastMath.max(delta, dnorm) > rho) {
+            state = 60;
+            break;
+          }
+
+          // The calculations with the current value of RHO are complete.
+          // Pick the
+          // next values of RHO and DELTA.
+        }
+        case 680: {
+
+          if (rho > this.m_stoppingTrustRegionRadius) {
+            delta = LegacySafeBOBYQAOptimizer.HALF * rho;
+            ratio = rho / this.m_stoppingTrustRegionRadius;
+            if (ratio <= LegacySafeBOBYQAOptimizer.SIXTEEN) {
+              rho = this.m_stoppingTrustRegionRadius;
+            } else
+              if (ratio <= LegacySafeBOBYQAOptimizer.TWO_HUNDRED_FIFTY) {
+                rho = FastMath.sqrt(ratio)
+                    * this.m_stoppingTrustRegionRadius;
+              } else {
+                rho *= LegacySafeBOBYQAOptimizer.ONE_OVER_TEN;
+              }
+            delta = FastMath.max(delta, rho);
+            ntrits = 0;
+            nfsav = this.getEvaluations();
+            state = 60;
+            break;
+          }
+
+          // Return from the calculation, after another Newton-Raphson
+          // step, if
+          // it is too short to have been tried before.
+
+          if (ntrits == -1) {
+            state = 360;
+            break;
+          }
+        }
+        case 720: {
+
+          if (this.m_fAtInterpolationPoints.getEntry(
+              this.m_trustRegionCenterInterpolationPointIndex) <= fsave) {
+            for (int i = 0; i < n; i++) {
+              // Computing MIN
+              // Computing MAX
+              final double d3 = lowerBound[i];
+              final double d4 = this.m_originShift.getEntry(i)
+                  + this.m_trustRegionCenterOffset.getEntry(i);
+              final double d1 = FastMath.max(d3, d4);
+              final double d2 = upperBound[i];
+              this.m_currentBest.setEntry(i, FastMath.min(d1, d2));
+              if (this.m_trustRegionCenterOffset
+                  .getEntry(i) == this.m_lowerDifference.getEntry(i)) {
+                this.m_currentBest.setEntry(i, lowerBound[i]);
+              }
+              if (this.m_trustRegionCenterOffset
+                  .getEntry(i) == this.m_upperDifference.getEntry(i)) {
+                this.m_currentBest.setEntry(i, upperBound[i]);
+              }
+            }
+            f = this.m_fAtInterpolationPoints.getEntry(
+                this.m_trustRegionCenterInterpolationPointIndex);
+          }
+          return f;
+        }
+        default: {
+          throw new MathIllegalStateException(
+              LocalizedFormats.SIMPLE_MESSAGE, "bobyqb"); //$NON-NLS-1$
+        }
+      }
+    }
+
+    return Double.POSITIVE_INFINITY;
+  } // bobyqb
+
+  // ----------------------------------------------------------------------------------------
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param knew
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param adelt
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @return the array see
+   *         {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   */
+  private final double[] __altmov(final int knew, final double adelt) {
+
+    final int n = this.m_currentBest.getDimension();
+    final int npt = this.m_numberOfInterpolationPoints;
+
+    final ArrayRealVector glag = new ArrayRealVector(n);
+    final ArrayRealVector hcol = new ArrayRealVector(npt);
+
+    final ArrayRealVector work1 = new ArrayRealVector(n);
+    final ArrayRealVector work2 = new ArrayRealVector(n);
+
+    for (int k = 0; k < npt; k++) {
+      hcol.setEntry(k, LegacySafeBOBYQAOptimizer.ZERO);
+    }
+    for (int j = 0, max = npt - n - 1; j < max; j++) {
+      final double tmp = this.m_zMatrix.getEntry(knew, j);
+      for (int k = 0; k < npt; k++) {
+        hcol.setEntry(k,
+            hcol.getEntry(k) + (tmp * this.m_zMatrix.getEntry(k, j)));
+      }
+    }
+    final double alpha = hcol.getEntry(knew);
+    final double ha = LegacySafeBOBYQAOptimizer.HALF * alpha;
+
+    for (int i = 0; i < n; i++) {
+      glag.setEntry(i, this.m_bMatrix.getEntry(knew, i));
+    }
+    for (int k = 0; k < npt; k++) {
+      double tmp = LegacySafeBOBYQAOptimizer.ZERO;
+      for (int j = 0; j < n; j++) {
+        tmp += this.m_interpolationPoints.getEntry(k, j)
+            * this.m_trustRegionCenterOffset.getEntry(j);
+      }
+      tmp *= hcol.getEntry(k);
+      for (int i = 0; i < n; i++) {
+        glag.setEntry(i, glag.getEntry(i)
+            + (tmp * this.m_interpolationPoints.getEntry(k, i)));
+      }
+    }
+
+    double presav = LegacySafeBOBYQAOptimizer.ZERO;
+    double step = Double.NaN;
+    int ksav = 0;
+    int ibdsav = 0;
+    double stpsav = 0;
+    for (int k = 0; k < npt; k++) {
+      if (k == this.m_trustRegionCenterInterpolationPointIndex) {
+        continue;
+      }
+      double dderiv = LegacySafeBOBYQAOptimizer.ZERO;
+      double distsq = LegacySafeBOBYQAOptimizer.ZERO;
+      for (int i = 0; i < n; i++) {
+        final double tmp = this.m_interpolationPoints.getEntry(k, i)
+            - this.m_trustRegionCenterOffset.getEntry(i);
+        dderiv += glag.getEntry(i) * tmp;
+        distsq += tmp * tmp;
+      }
+      double subd = adelt / FastMath.sqrt(distsq);
+      double slbd = -subd;
+      int ilbd = 0;
+      int iubd = 0;
+      final double sumin = FastMath.min(LegacySafeBOBYQAOptimizer.ONE, subd);
+
+      for (int i = 0; i < n; i++) {
+        final double tmp = this.m_interpolationPoints.getEntry(k, i)
+            - this.m_trustRegionCenterOffset.getEntry(i);
+        if (tmp > LegacySafeBOBYQAOptimizer.ZERO) {
+          if ((slbd * tmp) < (this.m_lowerDifference.getEntry(i)
+              - this.m_trustRegionCenterOffset.getEntry(i))) {
+            slbd = (this.m_lowerDifference.getEntry(i)
+                - this.m_trustRegionCenterOffset.getEntry(i)) / tmp;
+            ilbd = -i - 1;
+          }
+          if ((subd * tmp) > (this.m_upperDifference.getEntry(i)
+              - this.m_trustRegionCenterOffset.getEntry(i))) {
+            // Computing MAX
+            subd = FastMath
+                .max(sumin,
+                    (this.m_upperDifference.getEntry(i)
+                        - this.m_trustRegionCenterOffset.getEntry(i))
+                        / tmp);
+            iubd = i + 1;
+          }
+        } else
+          if (tmp < LegacySafeBOBYQAOptimizer.ZERO) {
+            if ((slbd * tmp) > (this.m_upperDifference.getEntry(i)
+                - this.m_trustRegionCenterOffset.getEntry(i))) {
+              slbd = (this.m_upperDifference.getEntry(i)
+                  - this.m_trustRegionCenterOffset.getEntry(i)) / tmp;
+              ilbd = i + 1;
+            }
+            if ((subd * tmp) < (this.m_lowerDifference.getEntry(i)
+                - this.m_trustRegionCenterOffset.getEntry(i))) {
+              // Computing MAX
+              subd = FastMath.max(sumin,
+                  (this.m_lowerDifference.getEntry(i)
+                      - this.m_trustRegionCenterOffset.getEntry(i))
+                      / tmp);
+              iubd = -i - 1;
+            }
+          }
+      }
+
+      step = slbd;
+      int isbd = ilbd;
+      double vlag = Double.NaN;
+      if (k == knew) {
+        final double diff = dderiv - LegacySafeBOBYQAOptimizer.ONE;
+        vlag = slbd * (dderiv - (slbd * diff));
+        final double d1 = subd * (dderiv - (subd * diff));
+        if (FastMath.abs(d1) > FastMath.abs(vlag)) {
+          step = subd;
+          vlag = d1;
+          isbd = iubd;
+        }
+        final double d2 = LegacySafeBOBYQAOptimizer.HALF * dderiv;
+        final double d3 = d2 - (diff * slbd);
+        final double d4 = d2 - (diff * subd);
+        if ((d3 * d4) < LegacySafeBOBYQAOptimizer.ZERO) {
+          final double d5 = (d2 * d2) / diff;
+          if (FastMath.abs(d5) > FastMath.abs(vlag)) {
+            step = d2 / diff;
+            vlag = d5;
+            isbd = 0;
+          }
+        }
+
+      } else {
+        vlag = slbd * (LegacySafeBOBYQAOptimizer.ONE - slbd);
+        final double tmp = subd * (LegacySafeBOBYQAOptimizer.ONE - subd);
+        if (FastMath.abs(tmp) > FastMath.abs(vlag)) {
+          step = subd;
+          vlag = tmp;
+          isbd = iubd;
+        }
+        if ((subd > LegacySafeBOBYQAOptimizer.HALF) && (FastMath
+            .abs(vlag) < LegacySafeBOBYQAOptimizer.ONE_OVER_FOUR)) {
+          step = LegacySafeBOBYQAOptimizer.HALF;
+          vlag = LegacySafeBOBYQAOptimizer.ONE_OVER_FOUR;
+          isbd = 0;
+        }
+        vlag *= dderiv;
+      }
+
+      final double tmp = step * (LegacySafeBOBYQAOptimizer.ONE - step)
+          * distsq;
+      final double predsq = vlag * vlag
+          * ((vlag * vlag) + (ha * tmp * tmp));
+      if (predsq > presav) {
+        presav = predsq;
+        ksav = k;
+        stpsav = step;
+        ibdsav = isbd;
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      final double tmp = this.m_trustRegionCenterOffset.getEntry(i)
+          + (stpsav * (this.m_interpolationPoints.getEntry(ksav, i)
+              - this.m_trustRegionCenterOffset.getEntry(i)));
+      this.m_newPoint.setEntry(i,
+          FastMath.max(this.m_lowerDifference.getEntry(i),
+              FastMath.min(this.m_upperDifference.getEntry(i), tmp)));
+    }
+    if (ibdsav < 0) {
+      this.m_newPoint.setEntry(-ibdsav - 1,
+          this.m_lowerDifference.getEntry(-ibdsav - 1));
+    }
+    if (ibdsav > 0) {
+      this.m_newPoint.setEntry(ibdsav - 1,
+          this.m_upperDifference.getEntry(ibdsav - 1));
+    }
+
+    final double bigstp = adelt + adelt;
+    int iflag = 0;
+    double cauchy = Double.NaN;
+    double csave = LegacySafeBOBYQAOptimizer.ZERO;
+    while (true) {
+      double wfixsq = LegacySafeBOBYQAOptimizer.ZERO;
+      double ggfree = LegacySafeBOBYQAOptimizer.ZERO;
+      for (int i = 0; i < n; i++) {
+        final double glagValue = glag.getEntry(i);
+        work1.setEntry(i, LegacySafeBOBYQAOptimizer.ZERO);
+        if ((FastMath.min(
+            this.m_trustRegionCenterOffset.getEntry(i)
+                - this.m_lowerDifference.getEntry(i),
+            glagValue) > LegacySafeBOBYQAOptimizer.ZERO)
+            || (FastMath.max(
+                this.m_trustRegionCenterOffset.getEntry(i)
+                    - this.m_upperDifference.getEntry(i),
+                glagValue) < LegacySafeBOBYQAOptimizer.ZERO)) {
+          work1.setEntry(i, bigstp);
+          ggfree += glagValue * glagValue;
+        }
+      }
+      if (ggfree == LegacySafeBOBYQAOptimizer.ZERO) {
+        return new double[] { alpha, LegacySafeBOBYQAOptimizer.ZERO };
+      }
+
+      final double tmp1 = (adelt * adelt) - wfixsq;
+      if (tmp1 > LegacySafeBOBYQAOptimizer.ZERO) {
+        step = FastMath.sqrt(tmp1 / ggfree);
+        ggfree = LegacySafeBOBYQAOptimizer.ZERO;
+        for (int i = 0; i < n; i++) {
+          if (work1.getEntry(i) == bigstp) {
+            final double tmp2 = this.m_trustRegionCenterOffset
+                .getEntry(i) - (step * glag.getEntry(i));
+            if (tmp2 <= this.m_lowerDifference.getEntry(i)) {
+              work1.setEntry(i, this.m_lowerDifference.getEntry(i)
+                  - this.m_trustRegionCenterOffset.getEntry(i));
+              final double d1 = work1.getEntry(i);
+              wfixsq += d1 * d1;
+            } else
+              if (tmp2 >= this.m_upperDifference.getEntry(i)) {
+                work1.setEntry(i, this.m_upperDifference.getEntry(i)
+                    - this.m_trustRegionCenterOffset.getEntry(i));
+                final double d1 = work1.getEntry(i);
+                wfixsq += d1 * d1;
+              } else {
+                final double d1 = glag.getEntry(i);
+                ggfree += d1 * d1;
+              }
+          }
+        }
+      }
+
+      double gw = LegacySafeBOBYQAOptimizer.ZERO;
+      for (int i = 0; i < n; i++) {
+        final double glagValue = glag.getEntry(i);
+        if (work1.getEntry(i) == bigstp) {
+          work1.setEntry(i, -step * glagValue);
+          final double min = FastMath.min(
+              this.m_upperDifference.getEntry(i),
+              this.m_trustRegionCenterOffset.getEntry(i)
+                  + work1.getEntry(i));
+          this.m_alternativeNewPoint.setEntry(i,
+              FastMath.max(this.m_lowerDifference.getEntry(i), min));
+        } else
+          if (work1.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+            this.m_alternativeNewPoint.setEntry(i,
+                this.m_trustRegionCenterOffset.getEntry(i));
+          } else
+            if (glagValue > LegacySafeBOBYQAOptimizer.ZERO) {
+              this.m_alternativeNewPoint.setEntry(i,
+                  this.m_lowerDifference.getEntry(i));
+            } else {
+              this.m_alternativeNewPoint.setEntry(i,
+                  this.m_upperDifference.getEntry(i));
+            }
+        gw += glagValue * work1.getEntry(i);
+      }
+
+      double curv = LegacySafeBOBYQAOptimizer.ZERO;
+      for (int k = 0; k < npt; k++) {
+        double tmp = LegacySafeBOBYQAOptimizer.ZERO;
+        for (int j = 0; j < n; j++) {
+          tmp += this.m_interpolationPoints.getEntry(k, j)
+              * work1.getEntry(j);
+        }
+        curv += hcol.getEntry(k) * tmp * tmp;
+      }
+      if (iflag == 1) {
+        curv = -curv;
+      }
+      if ((curv > -gw) && (curv < (-gw * (LegacySafeBOBYQAOptimizer.ONE
+          + FastMath.sqrt(LegacySafeBOBYQAOptimizer.TWO))))) {
+        final double scale = -gw / curv;
+        for (int i = 0; i < n; i++) {
+          final double tmp = this.m_trustRegionCenterOffset.getEntry(i)
+              + (scale * work1.getEntry(i));
+          this.m_alternativeNewPoint.setEntry(i, FastMath.max(
+              this.m_lowerDifference.getEntry(i),
+              FastMath.min(this.m_upperDifference.getEntry(i), tmp)));
+        }
+        // Computing 2nd power
+        final double d1 = LegacySafeBOBYQAOptimizer.HALF * gw * scale;
+        cauchy = d1 * d1;
+      } else {
+        // Computing 2nd power
+        final double d1 = gw + (LegacySafeBOBYQAOptimizer.HALF * curv);
+        cauchy = d1 * d1;
+      }
+
+      if (iflag == 0) {
+        for (int i = 0; i < n; i++) {
+          glag.setEntry(i, -glag.getEntry(i));
+          work2.setEntry(i, this.m_alternativeNewPoint.getEntry(i));
+        }
+        csave = cauchy;
+        iflag = 1;
+      } else {
+        break;
+      }
+    }
+    if (csave > cauchy) {
+      for (int i = 0; i < n; i++) {
+        this.m_alternativeNewPoint.setEntry(i, work2.getEntry(i));
+      }
+      cauchy = csave;
+    }
+
+    return new double[] { alpha, cauchy };
+  }
+
+  // ----------------------------------------------------------------------------------------
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param lowerBound
+   *          Lower bounds.
+   * @param upperBound
+   *          Upper bounds.
+   */
+  private final void __prelim(final double[] lowerBound,
+      final double[] upperBound) {
+
+    final int n = this.m_currentBest.getDimension();
+    final int npt = this.m_numberOfInterpolationPoints;
+    final int ndim = this.m_bMatrix.getRowDimension();
+
+    final double rhosq = this.m_initialTrustRegionRadius
+        * this.m_initialTrustRegionRadius;
+    final double recip = 1d / rhosq;
+    final int np = n + 1;
+
+    // Set XBASE to the initial vector of variables, and set the initial
+    // elements of XPT, BMAT, HQ, PQ and ZMAT to zero.
+
+    for (int j = 0; j < n; j++) {
+      this.m_originShift.setEntry(j, this.m_currentBest.getEntry(j));
+      for (int k = 0; k < npt; k++) {
+        this.m_interpolationPoints.setEntry(k, j,
+            LegacySafeBOBYQAOptimizer.ZERO);
+      }
+      for (int i = 0; i < ndim; i++) {
+        this.m_bMatrix.setEntry(i, j, LegacySafeBOBYQAOptimizer.ZERO);
+      }
+    }
+    for (int i = 0, max = (n * np) / 2; i < max; i++) {
+      this.m_modelSecondDerivativesValues.setEntry(i,
+          LegacySafeBOBYQAOptimizer.ZERO);
+    }
+    for (int k = 0; k < npt; k++) {
+      this.m_modelSecondDerivativesParameters.setEntry(k,
+          LegacySafeBOBYQAOptimizer.ZERO);
+      for (int j = 0, max = npt - np; j < max; j++) {
+        this.m_zMatrix.setEntry(k, j, LegacySafeBOBYQAOptimizer.ZERO);
+      }
+    }
+
+    int ipt = 0;
+    int jpt = 0;
+    double fbeg = Double.NaN;
+    do {
+      final int nfm = this.getEvaluations();
+      final int nfx = nfm - n;
+      final int nfmm = nfm - 1;
+      final int nfxm = nfx - 1;
+      double stepa = 0;
+      double stepb = 0;
+      if (nfm <= (2 * n)) {
+        if ((nfm >= 1) && (nfm <= n)) {
+          stepa = this.m_initialTrustRegionRadius;
+          if (this.m_upperDifference
+              .getEntry(nfmm) == LegacySafeBOBYQAOptimizer.ZERO) {
+            stepa = -stepa;
+          }
+          this.m_interpolationPoints.setEntry(nfm, nfmm, stepa);
+        } else
+          if (nfm > n) {
+            stepa = this.m_interpolationPoints.getEntry(nfx, nfxm);
+            stepb = -this.m_initialTrustRegionRadius;
+            if (this.m_lowerDifference
+                .getEntry(nfxm) == LegacySafeBOBYQAOptimizer.ZERO) {
+              stepb = FastMath.min(
+                  LegacySafeBOBYQAOptimizer.TWO
+                      * this.m_initialTrustRegionRadius,
+                  this.m_upperDifference.getEntry(nfxm));
+            }
+            if (this.m_upperDifference
+                .getEntry(nfxm) == LegacySafeBOBYQAOptimizer.ZERO) {
+              stepb = FastMath.max(
+                  -LegacySafeBOBYQAOptimizer.TWO
+                      * this.m_initialTrustRegionRadius,
+                  this.m_lowerDifference.getEntry(nfxm));
+            }
+            this.m_interpolationPoints.setEntry(nfm, nfxm, stepb);
+          }
+      } else {
+        final int tmp1 = (nfm - np) / n;
+        jpt = nfm - (tmp1 * n) - n;
+        ipt = jpt + tmp1;
+        if (ipt > n) {
+          final int tmp2 = jpt;
+          jpt = ipt - n;
+          ipt = tmp2;
+        }
+        final int iptMinus1 = ipt - 1;
+        final int jptMinus1 = jpt - 1;
+        this.m_interpolationPoints.setEntry(nfm, iptMinus1,
+            this.m_interpolationPoints.getEntry(ipt, iptMinus1));
+        this.m_interpolationPoints.setEntry(nfm, jptMinus1,
+            this.m_interpolationPoints.getEntry(jpt, jptMinus1));
+      }
+
+      for (int j = 0; j < n; j++) {
+        this.m_currentBest.setEntry(j,
+            FastMath.min(
+                FastMath.max(lowerBound[j],
+                    this.m_originShift.getEntry(j)
+                        + this.m_interpolationPoints.getEntry(nfm, j)),
+            upperBound[j]));
+        if (this.m_interpolationPoints.getEntry(nfm,
+            j) == this.m_lowerDifference.getEntry(j)) {
+          this.m_currentBest.setEntry(j, lowerBound[j]);
+        }
+        if (this.m_interpolationPoints.getEntry(nfm,
+            j) == this.m_upperDifference.getEntry(j)) {
+          this.m_currentBest.setEntry(j, upperBound[j]);
+        }
+      }
+
+      final double objectiveValue = this
+          .computeObjectiveValue(this.m_currentBest.toArray());
+      final double f = objectiveValue;
+      final int numEval = this.getEvaluations(); // nfm + 1
+      this.m_fAtInterpolationPoints.setEntry(nfm, f);
+
+      if (numEval == 1) {
+        fbeg = f;
+        this.m_trustRegionCenterInterpolationPointIndex = 0;
+      } else
+        if (f < this.m_fAtInterpolationPoints
+            .getEntry(this.m_trustRegionCenterInterpolationPointIndex)) {
+          this.m_trustRegionCenterInterpolationPointIndex = nfm;
+        }
+
+      if (numEval <= ((2 * n) + 1)) {
+        if ((numEval >= 2) && (numEval <= (n + 1))) {
+          this.m_gradientAtTrustRegionCenter.setEntry(nfmm,
+              (f - fbeg) / stepa);
+          if (npt < (numEval + n)) {
+            final double oneOverStepA = LegacySafeBOBYQAOptimizer.ONE
+                / stepa;
+            this.m_bMatrix.setEntry(0, nfmm, -oneOverStepA);
+            this.m_bMatrix.setEntry(nfm, nfmm, oneOverStepA);
+            this.m_bMatrix.setEntry(npt + nfmm, nfmm,
+                -LegacySafeBOBYQAOptimizer.HALF * rhosq);
+          }
+        } else
+          if (numEval >= (n + 2)) {
+            final int ih = ((nfx * (nfx + 1)) / 2) - 1;
+            final double tmp = (f - fbeg) / stepb;
+            final double diff = stepb - stepa;
+            this.m_modelSecondDerivativesValues.setEntry(ih,
+                (LegacySafeBOBYQAOptimizer.TWO * (tmp
+                    - this.m_gradientAtTrustRegionCenter.getEntry(nfxm)))
+                    / diff);
+            this.m_gradientAtTrustRegionCenter.setEntry(nfxm,
+                ((this.m_gradientAtTrustRegionCenter.getEntry(nfxm)
+                    * stepb) - (tmp * stepa)) / diff);
+            if (((stepa * stepb) < LegacySafeBOBYQAOptimizer.ZERO)
+                && (f < this.m_fAtInterpolationPoints
+                    .getEntry(nfm - n))) {
+              this.m_fAtInterpolationPoints.setEntry(nfm,
+                  this.m_fAtInterpolationPoints.getEntry(nfm - n));
+              this.m_fAtInterpolationPoints.setEntry(nfm - n, f);
+              if (this.m_trustRegionCenterInterpolationPointIndex == nfm) {
+                this.m_trustRegionCenterInterpolationPointIndex = nfm
+                    - n;
+              }
+              this.m_interpolationPoints.setEntry(nfm - n, nfxm, stepb);
+              this.m_interpolationPoints.setEntry(nfm, nfxm, stepa);
+            }
+            this.m_bMatrix.setEntry(0, nfxm,
+                -(stepa + stepb) / (stepa * stepb));
+            this.m_bMatrix.setEntry(nfm, nfxm,
+                -LegacySafeBOBYQAOptimizer.HALF / this.m_interpolationPoints
+                    .getEntry(nfm - n, nfxm));
+            this.m_bMatrix.setEntry(nfm - n, nfxm,
+                -this.m_bMatrix.getEntry(0, nfxm)
+                    - this.m_bMatrix.getEntry(nfm, nfxm));
+            this.m_zMatrix.setEntry(0, nfxm,
+                FastMath.sqrt(LegacySafeBOBYQAOptimizer.TWO)
+                    / (stepa * stepb));
+            this.m_zMatrix.setEntry(nfm, nfxm,
+                FastMath.sqrt(LegacySafeBOBYQAOptimizer.HALF) / rhosq);
+            this.m_zMatrix.setEntry(nfm - n, nfxm,
+                -this.m_zMatrix.getEntry(0, nfxm)
+                    - this.m_zMatrix.getEntry(nfm, nfxm));
+          }
+      } else {
+        this.m_zMatrix.setEntry(0, nfxm, recip);
+        this.m_zMatrix.setEntry(nfm, nfxm, recip);
+        this.m_zMatrix.setEntry(ipt, nfxm, -recip);
+        this.m_zMatrix.setEntry(jpt, nfxm, -recip);
+
+        final int ih = (((ipt * (ipt - 1)) / 2) + jpt) - 1;
+        final double tmp = this.m_interpolationPoints.getEntry(nfm,
+            ipt - 1) * this.m_interpolationPoints.getEntry(nfm, jpt - 1);
+        this.m_modelSecondDerivativesValues.setEntry(ih,
+            ((fbeg - this.m_fAtInterpolationPoints.getEntry(ipt)
+                - this.m_fAtInterpolationPoints.getEntry(jpt)) + f)
+                / tmp);
+      }
+    } while (this.getEvaluations() < npt);
+  }
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param delta
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param gnew
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param xbdi
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param s
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param hs
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param hred
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @return the array, or {@code null} if too many iterations were
+   *         consumed
+   */
+  @SuppressWarnings("fallthrough")
+  private double[] __trsbox(final double delta,
+      final ArrayRealVector gnew, final ArrayRealVector xbdi,
+      final ArrayRealVector s, final ArrayRealVector hs,
+      final ArrayRealVector hred) {
+
+    final int n = this.m_currentBest.getDimension();
+    final int npt = this.m_numberOfInterpolationPoints;
+
+    double dsq = Double.NaN;
+    double crvmin = Double.NaN;
+
+    // Local variables
+    double ds;
+    int iu;
+    double dhd, dhs, cth, shs, sth, ssq, beta = 0, sdec, blen;
+    int iact = -1;
+    int nact = 0;
+    double angt = 0, qred;
+    int isav;
+    double temp = 0, xsav = 0, xsum = 0, angbd = 0, dredg = 0, sredg = 0;
+    int iterc;
+    double resid = 0, delsq = 0, ggsav = 0, tempa = 0, tempb = 0,
+        redmax = 0, dredsq = 0, redsav = 0, gredsq = 0, rednew = 0;
+    int itcsav = 0;
+    double rdprev = 0, rdnext = 0, stplen = 0, stepsq = 0;
+    int itermax = 0;
+
+    iterc = 0;
+    nact = 0;
+    for (int i = 0; i < n; i++) {
+      xbdi.setEntry(i, LegacySafeBOBYQAOptimizer.ZERO);
+      if (this.m_trustRegionCenterOffset
+          .getEntry(i) <= this.m_lowerDifference.getEntry(i)) {
+        if (this.m_gradientAtTrustRegionCenter
+            .getEntry(i) >= LegacySafeBOBYQAOptimizer.ZERO) {
+          xbdi.setEntry(i, LegacySafeBOBYQAOptimizer.MINUS_ONE);
+        }
+      } else
+        if ((this.m_trustRegionCenterOffset
+            .getEntry(i) >= this.m_upperDifference.getEntry(i))
+            && (this.m_gradientAtTrustRegionCenter
+                .getEntry(i) <= LegacySafeBOBYQAOptimizer.ZERO)) {
+          xbdi.setEntry(i, LegacySafeBOBYQAOptimizer.ONE);
+        }
+      if (xbdi.getEntry(i) != LegacySafeBOBYQAOptimizer.ZERO) {
+        ++nact;
+      }
+      this.m_trialStepPoint.setEntry(i, LegacySafeBOBYQAOptimizer.ZERO);
+      gnew.setEntry(i, this.m_gradientAtTrustRegionCenter.getEntry(i));
+    }
+    delsq = delta * delta;
+    qred = LegacySafeBOBYQAOptimizer.ZERO;
+    crvmin = LegacySafeBOBYQAOptimizer.MINUS_ONE;
+
+    int state = 20;
+    for (int index = 10000; (--index) >= 0;) {
+      switch (state) {
+        case 20: {
+          beta = LegacySafeBOBYQAOptimizer.ZERO;
+        }
+
+        case 30: {
+          stepsq = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int i = 0; i < n; i++) {
+            if (xbdi.getEntry(i) != LegacySafeBOBYQAOptimizer.ZERO) {
+              s.setEntry(i, LegacySafeBOBYQAOptimizer.ZERO);
+            } else
+              if (beta == LegacySafeBOBYQAOptimizer.ZERO) {
+                s.setEntry(i, -gnew.getEntry(i));
+              } else {
+                s.setEntry(i, (beta * s.getEntry(i)) - gnew.getEntry(i));
+              }
+            // Computing 2nd power
+            final double d1 = s.getEntry(i);
+            stepsq += d1 * d1;
+          }
+          if (stepsq == LegacySafeBOBYQAOptimizer.ZERO) {
+            state = 190;
+            break;
+          }
+          if (beta == LegacySafeBOBYQAOptimizer.ZERO) {
+            gredsq = stepsq;
+            itermax = (iterc + n) - nact;
+          }
+          if ((gredsq * delsq) <= (qred * 1e-4 * qred)) {
+            state = 190;
+            break;
+          }
+
+          state = 210;
+          break;
+        }
+        case 50: {
+
+          resid = delsq;
+          ds = LegacySafeBOBYQAOptimizer.ZERO;
+          shs = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int i = 0; i < n; i++) {
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+              final double d1 = this.m_trialStepPoint.getEntry(i);
+              resid -= d1 * d1;
+              ds += s.getEntry(i) * this.m_trialStepPoint.getEntry(i);
+              shs += s.getEntry(i) * hs.getEntry(i);
+            }
+          }
+          if (resid <= LegacySafeBOBYQAOptimizer.ZERO) {
+            state = 90;
+            break;
+          }
+          temp = FastMath.sqrt((stepsq * resid) + (ds * ds));
+          if (ds < LegacySafeBOBYQAOptimizer.ZERO) {
+            blen = (temp - ds) / stepsq;
+          } else {
+            blen = resid / (temp + ds);
+          }
+          stplen = blen;
+          if (shs > LegacySafeBOBYQAOptimizer.ZERO) {
+            stplen = FastMath.min(blen, gredsq / shs);
+          }
+
+          iact = -1;
+          for (int i = 0; i < n; i++) {
+            if (s.getEntry(i) != LegacySafeBOBYQAOptimizer.ZERO) {
+              xsum = this.m_trustRegionCenterOffset.getEntry(i)
+                  + this.m_trialStepPoint.getEntry(i);
+              if (s.getEntry(i) > LegacySafeBOBYQAOptimizer.ZERO) {
+                temp = (this.m_upperDifference.getEntry(i) - xsum)
+                    / s.getEntry(i);
+              } else {
+                temp = (this.m_lowerDifference.getEntry(i) - xsum)
+                    / s.getEntry(i);
+              }
+              if (temp < stplen) {
+                stplen = temp;
+                iact = i;
+              }
+            }
+          }
+
+          sdec = LegacySafeBOBYQAOptimizer.ZERO;
+          if (stplen > LegacySafeBOBYQAOptimizer.ZERO) {
+            ++iterc;
+            temp = shs / stepsq;
+            if ((iact == -1) && (temp > LegacySafeBOBYQAOptimizer.ZERO)) {
+              crvmin = FastMath.min(crvmin, temp);
+              if (crvmin == LegacySafeBOBYQAOptimizer.MINUS_ONE) {
+                crvmin = temp;
+              }
+            }
+            ggsav = gredsq;
+            gredsq = LegacySafeBOBYQAOptimizer.ZERO;
+            for (int i = 0; i < n; i++) {
+              gnew.setEntry(i,
+                  gnew.getEntry(i) + (stplen * hs.getEntry(i)));
+              if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+                // Computing 2nd power
+                final double d1 = gnew.getEntry(i);
+                gredsq += d1 * d1;
+              }
+              this.m_trialStepPoint.setEntry(i,
+                  this.m_trialStepPoint.getEntry(i)
+                      + (stplen * s.getEntry(i)));
+            }
+            final double d1 = stplen
+                * (ggsav - (LegacySafeBOBYQAOptimizer.HALF * stplen * shs));
+            sdec = FastMath.max(d1, LegacySafeBOBYQAOptimizer.ZERO);
+            qred += sdec;
+          }
+
+          if (iact >= 0) {
+            ++nact;
+            xbdi.setEntry(iact, LegacySafeBOBYQAOptimizer.ONE);
+            if (s.getEntry(iact) < LegacySafeBOBYQAOptimizer.ZERO) {
+              xbdi.setEntry(iact, LegacySafeBOBYQAOptimizer.MINUS_ONE);
+            }
+            final double d1 = this.m_trialStepPoint.getEntry(iact);
+            delsq -= d1 * d1;
+            if (delsq <= LegacySafeBOBYQAOptimizer.ZERO) {
+              state = 190;
+              break;
+            }
+            state = 20;
+            break;
+          }
+
+          if (stplen < blen) {
+            if (iterc == itermax) {
+              state = 190;
+              break;
+            }
+            if (sdec <= (qred * .01)) {
+              state = 190;
+              break;
+            }
+            beta = gredsq / ggsav;
+            state = 30;
+            break;
+          }
+        }
+        case 90: {
+          crvmin = LegacySafeBOBYQAOptimizer.ZERO;
+        }
+
+        case 100: {
+          if (nact >= (n - 1)) {
+            state = 190;
+            break;
+          }
+          dredsq = LegacySafeBOBYQAOptimizer.ZERO;
+          dredg = LegacySafeBOBYQAOptimizer.ZERO;
+          gredsq = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int i = 0; i < n; i++) {
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+              double d1 = this.m_trialStepPoint.getEntry(i);
+              dredsq += d1 * d1;
+              dredg += this.m_trialStepPoint.getEntry(i)
+                  * gnew.getEntry(i);
+              d1 = gnew.getEntry(i);
+              gredsq += d1 * d1;
+              s.setEntry(i, this.m_trialStepPoint.getEntry(i));
+            } else {
+              s.setEntry(i, LegacySafeBOBYQAOptimizer.ZERO);
+            }
+          }
+          itcsav = iterc;
+          state = 210;
+          break;
+        }
+        case 120: {
+
+          ++iterc;
+          temp = (gredsq * dredsq) - (dredg * dredg);
+          if (temp <= (qred * 1e-4 * qred)) {
+            state = 190;
+            break;
+          }
+          temp = FastMath.sqrt(temp);
+          for (int i = 0; i < n; i++) {
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+              s.setEntry(i, ((dredg * this.m_trialStepPoint.getEntry(i))
+                  - (dredsq * gnew.getEntry(i))) / temp);
+            } else {
+              s.setEntry(i, LegacySafeBOBYQAOptimizer.ZERO);
+            }
+          }
+          sredg = -temp;
+
+          angbd = LegacySafeBOBYQAOptimizer.ONE;
+          iact = -1;
+          for (int i = 0; i < n; i++) {
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+              tempa = (this.m_trustRegionCenterOffset.getEntry(i)
+                  + this.m_trialStepPoint.getEntry(i))
+                  - this.m_lowerDifference.getEntry(i);
+              tempb = this.m_upperDifference.getEntry(i)
+                  - this.m_trustRegionCenterOffset.getEntry(i)
+                  - this.m_trialStepPoint.getEntry(i);
+              if (tempa <= LegacySafeBOBYQAOptimizer.ZERO) {
+                ++nact;
+                xbdi.setEntry(i, LegacySafeBOBYQAOptimizer.MINUS_ONE);
+                state = 100;
+                break;
+              } else
+                if (tempb <= LegacySafeBOBYQAOptimizer.ZERO) {
+                  ++nact;
+                  xbdi.setEntry(i, LegacySafeBOBYQAOptimizer.ONE);
+                  state = 100;
+                  break;
+                }
+              double d1 = this.m_trialStepPoint.getEntry(i);
+              final double d2 = s.getEntry(i);
+              ssq = (d1 * d1) + (d2 * d2);
+              d1 = this.m_trustRegionCenterOffset.getEntry(i)
+                  - this.m_lowerDifference.getEntry(i);
+              temp = ssq - (d1 * d1);
+              if (temp > LegacySafeBOBYQAOptimizer.ZERO) {
+                temp = FastMath.sqrt(temp) - s.getEntry(i);
+                if ((angbd * temp) > tempa) {
+                  angbd = tempa / temp;
+                  iact = i;
+                  xsav = LegacySafeBOBYQAOptimizer.MINUS_ONE;
+                }
+              }
+              d1 = this.m_upperDifference.getEntry(i)
+                  - this.m_trustRegionCenterOffset.getEntry(i);
+              temp = ssq - (d1 * d1);
+              if (temp > LegacySafeBOBYQAOptimizer.ZERO) {
+                temp = FastMath.sqrt(temp) + s.getEntry(i);
+                if ((angbd * temp) > tempb) {
+                  angbd = tempb / temp;
+                  iact = i;
+                  xsav = LegacySafeBOBYQAOptimizer.ONE;
+                }
+              }
+            }
+          }
+
+          state = 210;
+          break;
+        }
+        case 150: {
+
+          shs = LegacySafeBOBYQAOptimizer.ZERO;
+          dhs = LegacySafeBOBYQAOptimizer.ZERO;
+          dhd = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int i = 0; i < n; i++) {
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+              shs += s.getEntry(i) * hs.getEntry(i);
+              dhs += this.m_trialStepPoint.getEntry(i) * hs.getEntry(i);
+              dhd += this.m_trialStepPoint.getEntry(i)
+                  * hred.getEntry(i);
+            }
+          }
+
+          redmax = LegacySafeBOBYQAOptimizer.ZERO;
+          isav = -1;
+          redsav = LegacySafeBOBYQAOptimizer.ZERO;
+          iu = (int) ((angbd * 17.) + 3.1);
+          for (int i = 0; i < iu; i++) {
+            angt = (angbd * i) / iu;
+            sth = (angt + angt)
+                / (LegacySafeBOBYQAOptimizer.ONE + (angt * angt));
+            temp = shs + (angt * ((angt * dhd) - dhs - dhs));
+            rednew = sth * ((angt * dredg) - sredg
+                - (LegacySafeBOBYQAOptimizer.HALF * sth * temp));
+            if (rednew > redmax) {
+              redmax = rednew;
+              isav = i;
+              rdprev = redsav;
+            } else
+              if (i == (isav + 1)) {
+                rdnext = rednew;
+              }
+            redsav = rednew;
+          }
+
+          if (isav < 0) {
+            state = 190;
+            break;
+          }
+          if (isav < iu) {
+            temp = (rdnext - rdprev)
+                / ((redmax + redmax) - rdprev - rdnext);
+            angt = (angbd * (isav + (LegacySafeBOBYQAOptimizer.HALF * temp)))
+                / iu;
+          }
+          cth = (LegacySafeBOBYQAOptimizer.ONE - (angt * angt))
+              / (LegacySafeBOBYQAOptimizer.ONE + (angt * angt));
+          sth = (angt + angt)
+              / (LegacySafeBOBYQAOptimizer.ONE + (angt * angt));
+          temp = shs + (angt * ((angt * dhd) - dhs - dhs));
+          sdec = sth * ((angt * dredg) - sredg
+              - (LegacySafeBOBYQAOptimizer.HALF * sth * temp));
+          if (sdec <= LegacySafeBOBYQAOptimizer.ZERO) {
+            state = 190;
+            break;
+          }
+
+          dredg = LegacySafeBOBYQAOptimizer.ZERO;
+          gredsq = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int i = 0; i < n; i++) {
+            gnew.setEntry(i, gnew.getEntry(i)
+                + ((cth - LegacySafeBOBYQAOptimizer.ONE) * hred.getEntry(i))
+                + (sth * hs.getEntry(i)));
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ZERO) {
+              this.m_trialStepPoint.setEntry(i,
+                  (cth * this.m_trialStepPoint.getEntry(i))
+                      + (sth * s.getEntry(i)));
+              dredg += this.m_trialStepPoint.getEntry(i)
+                  * gnew.getEntry(i);
+              // Computing 2nd power
+              final double d1 = gnew.getEntry(i);
+              gredsq += d1 * d1;
+            }
+            hred.setEntry(i,
+                (cth * hred.getEntry(i)) + (sth * hs.getEntry(i)));
+          }
+          qred += sdec;
+          if ((iact >= 0) && (isav == iu)) {
+            ++nact;
+            xbdi.setEntry(iact, xsav);
+            state = 100;
+            break;
+          }
+
+          if (sdec > (qred * .01)) {
+            state = 120;
+            break;
+          }
+        }
+        case 190: {
+
+          dsq = LegacySafeBOBYQAOptimizer.ZERO;
+          for (int i = 0; i < n; i++) {
+            final double min = FastMath.min(
+                this.m_trustRegionCenterOffset.getEntry(i)
+                    + this.m_trialStepPoint.getEntry(i),
+                this.m_upperDifference.getEntry(i));
+            this.m_newPoint.setEntry(i,
+                FastMath.max(min, this.m_lowerDifference.getEntry(i)));
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.MINUS_ONE) {
+              this.m_newPoint.setEntry(i,
+                  this.m_lowerDifference.getEntry(i));
+            }
+            if (xbdi.getEntry(i) == LegacySafeBOBYQAOptimizer.ONE) {
+              this.m_newPoint.setEntry(i,
+                  this.m_upperDifference.getEntry(i));
+            }
+            this.m_trialStepPoint.setEntry(i, this.m_newPoint.getEntry(i)
+                - this.m_trustRegionCenterOffset.getEntry(i));
+            final double d1 = this.m_trialStepPoint.getEntry(i);
+            dsq += d1 * d1;
+          }
+          return new double[] { dsq, crvmin };
+        }
+
+        case 210: {
+          int ih = 0;
+          for (int j = 0; j < n; j++) {
+            hs.setEntry(j, LegacySafeBOBYQAOptimizer.ZERO);
+            for (int i = 0; i <= j; i++) {
+              if (i < j) {
+                hs.setEntry(j, hs.getEntry(j)
+                    + (this.m_modelSecondDerivativesValues.getEntry(ih)
+                        * s.getEntry(i)));
+              }
+              hs.setEntry(i,
+                  hs.getEntry(i)
+                      + (this.m_modelSecondDerivativesValues.getEntry(ih)
+                          * s.getEntry(j)));
+              ih++;
+            }
+          }
+          final RealVector tmp = this.m_interpolationPoints.operate(s)
+              .ebeMultiply(this.m_modelSecondDerivativesParameters);
+          for (int k = 0; k < npt; k++) {
+            if (this.m_modelSecondDerivativesParameters
+                .getEntry(k) != LegacySafeBOBYQAOptimizer.ZERO) {
+              for (int i = 0; i < n; i++) {
+                hs.setEntry(i, hs.getEntry(i) + (tmp.getEntry(k)
+                    * this.m_interpolationPoints.getEntry(k, i)));
+              }
+            }
+          }
+          if (crvmin != LegacySafeBOBYQAOptimizer.ZERO) {
+            state = 50;
+            break;
+          }
+          if (iterc > itcsav) {
+            state = 150;
+            break;
+          }
+          for (int i = 0; i < n; i++) {
+            hred.setEntry(i, hs.getEntry(i));
+          }
+          state = 120;
+          break;
+        }
+        default: {
+          throw new MathIllegalStateException(
+              LocalizedFormats.SIMPLE_MESSAGE, "trsbox"); //$NON-NLS-1$
+        }
+      }
+    }
+
+    return null;// too many iterations
+  }
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param beta
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param denom
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   * @param knew
+   *          see
+   *          {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   */
+  private final void __update(final double beta, final double denom,
+      final int knew) {
+
+    final int n = this.m_currentBest.getDimension();
+    final int npt = this.m_numberOfInterpolationPoints;
+    final int nptm = npt - n - 1;
+
+    final ArrayRealVector work = new ArrayRealVector(npt + n);
+
+    double ztest = LegacySafeBOBYQAOptimizer.ZERO;
+    for (int k = 0; k < npt; k++) {
+      for (int j = 0; j < nptm; j++) {
+        // Computing MAX
+        ztest = FastMath.max(ztest,
+            FastMath.abs(this.m_zMatrix.getEntry(k, j)));
+      }
+    }
+    ztest *= 1e-20;
+
+    for (int j = 1; j < nptm; j++) {
+      final double d1 = this.m_zMatrix.getEntry(knew, j);
+      if (FastMath.abs(d1) > ztest) {
+        // Computing 2nd power
+        final double d2 = this.m_zMatrix.getEntry(knew, 0);
+        // Computing 2nd power
+        final double d3 = this.m_zMatrix.getEntry(knew, j);
+        final double d4 = FastMath.sqrt((d2 * d2) + (d3 * d3));
+        final double d5 = this.m_zMatrix.getEntry(knew, 0) / d4;
+        final double d6 = this.m_zMatrix.getEntry(knew, j) / d4;
+        for (int i = 0; i < npt; i++) {
+          final double d7 = (d5 * this.m_zMatrix.getEntry(i, 0))
+              + (d6 * this.m_zMatrix.getEntry(i, j));
+          this.m_zMatrix.setEntry(i, j,
+              (d5 * this.m_zMatrix.getEntry(i, j))
+                  - (d6 * this.m_zMatrix.getEntry(i, 0)));
+          this.m_zMatrix.setEntry(i, 0, d7);
+        }
+      }
+      this.m_zMatrix.setEntry(knew, j, LegacySafeBOBYQAOptimizer.ZERO);
+    }
+
+    for (int i = 0; i < npt; i++) {
+      work.setEntry(i, this.m_zMatrix.getEntry(knew, 0)
+          * this.m_zMatrix.getEntry(i, 0));
+    }
+    final double alpha = work.getEntry(knew);
+    final double tau = this.m_lagrangeValuesAtNewPoint.getEntry(knew);
+    this.m_lagrangeValuesAtNewPoint.setEntry(knew,
+        this.m_lagrangeValuesAtNewPoint.getEntry(knew)
+            - LegacySafeBOBYQAOptimizer.ONE);
+
+    // Complete the updating of ZMAT.
+
+    final double sqrtDenom = FastMath.sqrt(denom);
+    final double d1 = tau / sqrtDenom;
+    final double d2 = this.m_zMatrix.getEntry(knew, 0) / sqrtDenom;
+    for (int i = 0; i < npt; i++) {
+      this.m_zMatrix.setEntry(i, 0, (d1 * this.m_zMatrix.getEntry(i, 0))
+          - (d2 * this.m_lagrangeValuesAtNewPoint.getEntry(i)));
+    }
+
+    // Finally, update the matrix BMAT.
+
+    for (int j = 0; j < n; j++) {
+      final int jp = npt + j;
+      work.setEntry(jp, this.m_bMatrix.getEntry(knew, j));
+      final double d3 = ((alpha
+          * this.m_lagrangeValuesAtNewPoint.getEntry(jp))
+          - (tau * work.getEntry(jp))) / denom;
+      final double d4 = ((-beta * work.getEntry(jp))
+          - (tau * this.m_lagrangeValuesAtNewPoint.getEntry(jp)))
+          / denom;
+      for (int i = 0; i <= jp; i++) {
+        this.m_bMatrix.setEntry(i, j,
+            this.m_bMatrix.getEntry(i, j)
+                + (d3 * this.m_lagrangeValuesAtNewPoint.getEntry(i))
+                + (d4 * work.getEntry(i)));
+        if (i >= npt) {
+          this.m_bMatrix.setEntry(jp, (i - npt),
+              this.m_bMatrix.getEntry(i, j));
+        }
+      }
+    }
+  }
+
+  /**
+   * see
+   * {@link org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer}
+   *
+   * @param lowerBound
+   *          Lower bounds (constraints) of the objective variables.
+   * @param upperBound
+   *          Upperer bounds (constraints) of the objective variables.
+   */
+  private final void __setup(final double[] lowerBound,
+      final double[] upperBound) {
+
+    final double[] init = this.getStartPoint();
+    final int dimension = init.length;
+
+    // Check problem dimension.
+    if (dimension < LegacySafeBOBYQAOptimizer.MINIMUM_PROBLEM_DIMENSION) {
+      throw new NumberIsTooSmallException(Integer.valueOf(dimension),
+          Integer.valueOf(
+              LegacySafeBOBYQAOptimizer.MINIMUM_PROBLEM_DIMENSION),
+          true);
+    }
+    // Check number of interpolation points.
+    final int[] nPointsInterval = { dimension + 2,
+        ((dimension + 2) * (dimension + 1)) / 2 };
+    if ((this.m_numberOfInterpolationPoints < nPointsInterval[0])
+        || (this.m_numberOfInterpolationPoints > nPointsInterval[1])) {
+      throw new OutOfRangeException(
+          LocalizedFormats.NUMBER_OF_INTERPOLATION_POINTS,
+          Integer.valueOf(this.m_numberOfInterpolationPoints),
+          Integer.valueOf(nPointsInterval[0]),
+          Integer.valueOf(nPointsInterval[1]));
+    }
+
+    // Initialize bound differences.
+    this.m_boundDifference = new double[dimension];
+
+    final double requiredMinDiff = 2 * this.m_initialTrustRegionRadius;
+    double minDiff = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < dimension; i++) {
+      this.m_boundDifference[i] = upperBound[i] - lowerBound[i];
+      minDiff = FastMath.min(minDiff, this.m_boundDifference[i]);
+    }
+    if (minDiff < requiredMinDiff) {
+      this.m_initialTrustRegionRadius = minDiff / 3.0;
+    }
+
+    // Initialize the data structures used by the "bobyqa" method.
+    this.m_bMatrix = new Array2DRowRealMatrix(
+        dimension + this.m_numberOfInterpolationPoints, dimension);
+    this.m_zMatrix = new Array2DRowRealMatrix(
+        this.m_numberOfInterpolationPoints,
+        this.m_numberOfInterpolationPoints - dimension - 1);
+    this.m_interpolationPoints = new Array2DRowRealMatrix(
+        this.m_numberOfInterpolationPoints, dimension);
+    this.m_originShift = new ArrayRealVector(dimension);
+    this.m_fAtInterpolationPoints = new ArrayRealVector(
+        this.m_numberOfInterpolationPoints);
+    this.m_trustRegionCenterOffset = new ArrayRealVector(dimension);
+    this.m_gradientAtTrustRegionCenter = new ArrayRealVector(dimension);
+    this.m_lowerDifference = new ArrayRealVector(dimension);
+    this.m_upperDifference = new ArrayRealVector(dimension);
+    this.m_modelSecondDerivativesParameters = new ArrayRealVector(
+        this.m_numberOfInterpolationPoints);
+    this.m_newPoint = new ArrayRealVector(dimension);
+    this.m_alternativeNewPoint = new ArrayRealVector(dimension);
+    this.m_trialStepPoint = new ArrayRealVector(dimension);
+    this.m_lagrangeValuesAtNewPoint = new ArrayRealVector(
+        dimension + this.m_numberOfInterpolationPoints);
+    this.m_modelSecondDerivativesValues = new ArrayRealVector(
+        (dimension * (dimension + 1)) / 2);
+  }
+}
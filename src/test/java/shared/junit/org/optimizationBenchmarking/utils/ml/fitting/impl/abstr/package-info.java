@@ -0,0 +1,8 @@
+/**
+ * Shared test utilities for the abstract base classes of the function
+ * fitting utility package
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.abstr} of
+ * the <a href="http://www.optimizationBenchmarking.org/" >
+ * optimizationBenchmarking.org</a> tool suite.
+ */
+package shared.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
@@ -0,0 +1,21 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.bipopcmaesls.BIPOPCMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.ExampleFitterTest;
+
+/** test the BIPOP-CMA-ES + least-squares */
+public class BIPOPCMAESLSFitterTest extends ExampleFitterTest {
+
+  /** create */
+  public BIPOPCMAESLSFitterTest() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected IFunctionFitter getTool() {
+    return BIPOPCMAESLSFitter.getInstance();
+  }
+}
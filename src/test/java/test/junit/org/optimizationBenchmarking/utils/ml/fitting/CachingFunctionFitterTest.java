@@ -0,0 +1,62 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.AfterClass;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.CachingFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStore;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.ExampleFitterTest;
+
+/**
+ * test the caching fitter wrapping the least-squares + simplex fitter on
+ * the example data sets; re-opening and repairing the store are tested in
+ * {@link test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStoreTest}
+ */
+public class CachingFunctionFitterTest extends ExampleFitterTest {
+
+  /** create */
+  public CachingFunctionFitterTest() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected IFunctionFitter getTool() {
+    return __StoreHolder.FITTER;
+  }
+
+  /**
+   * close the store after all tests
+   *
+   * @throws IOException
+   *           if the store cannot be closed
+   */
+  @AfterClass
+  public static void closeStore() throws IOException {
+    CachingFunctionFitterTest.__StoreHolder.FITTER.getStore().close();
+  }
+
+  /** the holder for the fitter with its temporary store */
+  private static final class __StoreHolder {
+    /** the fitter */
+    static final CachingFunctionFitter FITTER;
+
+    static {
+      final Path path;
+
+      try {
+        path = Files.createTempFile("fittingResults", ".store"); //$NON-NLS-1$//$NON-NLS-2$
+        path.toFile().deleteOnExit();
+        FITTER = new CachingFunctionFitter(LSSimplexFitter.getInstance(),
+            FittingResultStore.open(path));
+      } catch (final IOException error) {
+        throw new IllegalStateException(error);
+      }
+    }
+  }
+}
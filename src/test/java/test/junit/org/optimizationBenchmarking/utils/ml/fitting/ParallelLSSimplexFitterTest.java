@@ -0,0 +1,21 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.ParallelLSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.ExampleFitterTest;
+
+/** test the parallel least-squares + simplex fitter */
+public class ParallelLSSimplexFitterTest extends ExampleFitterTest {
+
+  /** create */
+  public ParallelLSSimplexFitterTest() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected IFunctionFitter getTool() {
+    return ParallelLSSimplexFitter.getInstance();
+  }
+}
@@ -0,0 +1,21 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting;
+
+import org.optimizationBenchmarking.utils.ml.fitting.impl.varpro.VarProFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.ExampleFitterTest;
+
+/** test the variable projection fitter */
+public class VarProFitterTest extends ExampleFitterTest {
+
+  /** create */
+  public VarProFitterTest() {
+    super();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected IFunctionFitter getTool() {
+    return VarProFitter.getInstance();
+  }
+}
@@ -0,0 +1,256 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.FittingUtils;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.varpro.VarProFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.QuadraticModel;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedHuberError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the closed-form fitting of models which are linear in all
+ * of their parameters, see
+ * {@link FittingUtils#canFitInClosedForm(org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction, org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingQualityMeasure)}
+ * .
+ */
+public class ClosedFormFittingTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 200;
+
+  /** create the test */
+  public ClosedFormFittingTest() {
+    super();
+  }
+
+  /**
+   * Create a data set following a given model with multiplicative noise
+   *
+   * @param random
+   *          the random number generator
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param noise
+   *          the relative noise
+   * @return the data
+   */
+  private static final IMatrix __createData(final Random random,
+      final BasicModel model, final double[] parameters,
+      final double noise) {
+    final double[] data;
+    double x;
+    int i;
+
+    data = new double[ClosedFormFittingTest.POINTS << 1];
+    for (i = ClosedFormFittingTest.POINTS; (--i) >= 0;) {
+      x = (((10d * i) / ClosedFormFittingTest.POINTS) - 5d);
+      data[i << 1] = x;
+      data[(i << 1) + 1] = model.value(x, parameters)
+          * (1d + (noise * random.nextGaussian()));
+    }
+    return new DoubleMatrix1D(data, ClosedFormFittingTest.POINTS, 2);
+  }
+
+  /**
+   * Create a random parameter vector for which the polynomial stays
+   * positive on the data range
+   *
+   * @param random
+   *          the random number generator
+   * @param count
+   *          the number of parameters
+   * @return the parameters
+   */
+  private static final double[] __createParameters(final Random random,
+      final int count) {
+    final double[] parameters;
+    int i;
+
+    parameters = new double[count];
+    for (i = count; (--i) > 0;) {
+      parameters[i] = ((random.nextDouble() * 0.2d) - 0.1d);
+    }
+    parameters[0] = (10d + (random.nextDouble() * 10d));
+    return parameters;
+  }
+
+  /** Only fully linear models under the RMSE are fitted in closed form */
+  @Test(timeout = 3600000)
+  public void testCanFitInClosedForm() {
+    final IMatrix data;
+
+    data = ClosedFormFittingTest.__createData(new Random(),
+        new QuadraticModel(), new double[] { 10d, 1d, 0.1d }, 0d);
+
+    Assert.assertTrue(FittingUtils.canFitInClosedForm(
+        new QuadraticModel(), new WeightedRootMeanSquareError(data)));
+    Assert.assertTrue(FittingUtils.canFitInClosedForm(new CubicModel(),
+        new WeightedRootMeanSquareError(data)));
+    Assert.assertFalse(FittingUtils.canFitInClosedForm(
+        new LogisticModelWithOffsetOverLogX(),
+        new WeightedRootMeanSquareError(data)));
+    Assert.assertFalse(FittingUtils.canFitInClosedForm(
+        new QuadraticModel(), new WeightedHuberError(data)));
+    Assert.assertFalse(FittingUtils.canFitInClosedForm(null,
+        new WeightedRootMeanSquareError(data)));
+    Assert.assertFalse(
+        FittingUtils.canFitInClosedForm(new QuadraticModel(), null));
+  }
+
+  /**
+   * Fit noise-free data: the result must reproduce the polynomial
+   * exactly, using only a single evaluation and no guess
+   *
+   * @param fitter
+   *          the fitter
+   * @param model
+   *          the model
+   */
+  private static final void __testExact(final FunctionFitter fitter,
+      final BasicModel model) {
+    final Random random;
+    final IMatrix data;
+    final FittingResult result;
+    final FittingMetrics metrics;
+    final double[] parameters, fitted;
+    int i;
+
+    random = new Random();
+    parameters = ClosedFormFittingTest.__createParameters(random,
+        model.getParameterCount());
+    data = ClosedFormFittingTest.__createData(random, model, parameters,
+        0d);
+
+    result = fitter.use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(model)//
+        .setCollectMetrics(true)//
+        .create().call();
+
+    Assert.assertTrue(result.getQuality() < 1e-10d);
+    fitted = result.getFittedParametersRef();
+    Assert.assertEquals(parameters.length, fitted.length);
+    for (i = parameters.length; (--i) >= 0;) {
+      Assert.assertEquals(parameters[i], fitted[i],
+          (1e-8d * Math.max(1d, Math.abs(parameters[i]))));
+    }
+
+    metrics = result.getMetrics();
+    Assert.assertNotNull(metrics);
+    Assert.assertEquals(1L, metrics.getEvaluations());
+    Assert.assertEquals(0L, metrics.getGuesses());
+  }
+
+  /**
+   * Fit noisy data: no small change of any parameter may improve the
+   * result
+   *
+   * @param fitter
+   *          the fitter
+   * @param model
+   *          the model
+   */
+  private static final void __testOptimal(final FunctionFitter fitter,
+      final BasicModel model) {
+    final Random random;
+    final IMatrix data;
+    final WeightedRootMeanSquareError measure;
+    final FittingResult result;
+    final double[] parameters, shifted;
+    final double quality;
+    double h;
+    int i;
+
+    random = new Random();
+    data = ClosedFormFittingTest.__createData(random, model,
+        ClosedFormFittingTest.__createParameters(random,
+            model.getParameterCount()),
+        0.05d);
+    measure = new WeightedRootMeanSquareError(data);
+
+    result = fitter.use()//
+        .setPoints(data)//
+        .setQualityMeasure(measure)//
+        .setFunctionToFit(model)//
+        .create().call();
+    quality = result.getQuality();
+    Assert.assertTrue(quality > 0d);
+    Assert.assertEquals(quality,
+        measure.evaluate(model, result.getFittedParametersRef()),
+        1e-12d);
+
+    parameters = result.getFittedParametersRef();
+    shifted = parameters.clone();
+    for (i = parameters.length; (--i) >= 0;) {
+      h = (1e-4d * Math.max(1e-3d, Math.abs(parameters[i])));
+      shifted[i] = (parameters[i] + h);
+      Assert.assertTrue(measure.evaluate(model, shifted) >= quality);
+      shifted[i] = (parameters[i] - h);
+      Assert.assertTrue(measure.evaluate(model, shifted) >= quality);
+      shifted[i] = parameters[i];
+    }
+  }
+
+  /**
+   * Test a fitter
+   *
+   * @param fitter
+   *          the fitter
+   */
+  private static final void __test(final FunctionFitter fitter) {
+    ClosedFormFittingTest.__testExact(fitter, new QuadraticModel());
+    ClosedFormFittingTest.__testExact(fitter, new CubicModel());
+    ClosedFormFittingTest.__testOptimal(fitter, new QuadraticModel());
+    ClosedFormFittingTest.__testOptimal(fitter, new CubicModel());
+  }
+
+  /** test the closed-form fitting of the LSSimplex fitter */
+  @Test(timeout = 3600000)
+  public void testLSSimplex() {
+    ClosedFormFittingTest.__test(LSSimplexFitter.getInstance());
+  }
+
+  /** test the closed-form fitting of the DELS fitter */
+  @Test(timeout = 3600000)
+  public void testDELS() {
+    ClosedFormFittingTest.__test(DELSFitter.getInstance());
+  }
+
+  /** test the closed-form fitting of the ESLS fitter */
+  @Test(timeout = 3600000)
+  public void testESLS() {
+    ClosedFormFittingTest.__test(ESLSFitter.getInstance());
+  }
+
+  /** test the closed-form fitting of the CMAESLS fitter */
+  @Test(timeout = 3600000)
+  public void testCMAESLS() {
+    ClosedFormFittingTest.__test(CMAESLSFitter.getInstance());
+  }
+
+  /** test the closed-form fitting of the variable projection fitter */
+  @Test(timeout = 3600000)
+  public void testVarPro() {
+    ClosedFormFittingTest.__test(VarProFitter.getInstance());
+  }
+}
@@ -0,0 +1,151 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import examples.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDatasets;
+import shared.junit.TestBase;
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A test for the
+ * {@linkplain FittingJobBuilder#setParallel(boolean) parallel mode} of the
+ * {@link DELSFitter} and the {@link ESLSFitter}, which evaluate and
+ * refine their populations on several threads: the returned quality must
+ * be the one of the returned parameters, the trace must only improve,
+ * and the result must be about as good as the one of a serial run.
+ */
+public class ParallelFittingTest extends TestBase {
+
+  /** create the test */
+  public ParallelFittingTest() {
+    super();
+  }
+
+  /**
+   * Fit an example data set
+   *
+   * @param fitter
+   *          the fitter
+   * @param example
+   *          the example data set
+   * @param parallel
+   *          should the job run in parallel mode?
+   * @return the result
+   */
+  private static final FittingResult __fit(final FunctionFitter fitter,
+      final FittingExampleDataset example, final boolean parallel) {
+    return fitter.use()//
+        .setPoints(example.data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(example.data))//
+        .setFunctionToFit(example.model)//
+        .setCollectMetrics(true)//
+        .setParallel(parallel)//
+        .create().call();
+  }
+
+  /**
+   * Check a result
+   *
+   * @param example
+   *          the example data set
+   * @param result
+   *          the result
+   */
+  private static final void __check(final FittingExampleDataset example,
+      final FittingResult result) {
+    final FittingMetrics metrics;
+    final double quality;
+    int index;
+
+    quality = result.getQuality();
+    Assert.assertTrue(quality >= 0d);
+    Assert.assertTrue(quality < Double.POSITIVE_INFINITY);
+    Assert.assertEquals(quality,
+        new WeightedRootMeanSquareError(example.data).evaluate(
+            example.model, result.getFittedParametersRef()),
+        (1e-12d * quality));
+
+    metrics = result.getMetrics();
+    Assert.assertTrue(metrics.getEvaluations() > 0L);
+    Assert.assertTrue(metrics.getTraceLength() > 0);
+    for (index = 1; index < metrics.getTraceLength(); index++) {
+      Assert.assertTrue(metrics.getTraceQuality(index) < //
+      metrics.getTraceQuality(index - 1));
+    }
+    Assert.assertEquals(quality,
+        metrics.getTraceQuality(metrics.getTraceLength() - 1), 0d);
+  }
+
+  /**
+   * Fit an example data set in serial and in parallel mode
+   *
+   * @param fitter
+   *          the fitter
+   * @param example
+   *          the example data set
+   */
+  private static final void __compare(final FunctionFitter fitter,
+      final FittingExampleDataset example) {
+    final FittingResult serial, parallel;
+
+    serial = ParallelFittingTest.__fit(fitter, example, false);
+    ParallelFittingTest.__check(example, serial);
+    parallel = ParallelFittingTest.__fit(fitter, example, true);
+    ParallelFittingTest.__check(example, parallel);
+
+    // both runs are randomized and may end up in different local optima,
+    // which are less than 10% apart on the examples
+    Assert.assertTrue(parallel.getQuality() <= //
+    (1.25d * serial.getQuality()));
+  }
+
+  /** test the parallel DE/LS on the logistic model */
+  @Test(timeout = 3600000)
+  public void testDELS_A_1FlipHC_uf020_01_FOL() {
+    ParallelFittingTest.__compare(DELSFitter.getInstance(),
+        FittingExampleDatasets.A_1FlipHC_uf020_01_FOL);
+  }
+
+  /** test the parallel DE/LS on the Gompertz model */
+  @Test(timeout = 3600000)
+  public void testDELS_B_mFlipHC_uf100_01_TOG() {
+    ParallelFittingTest.__compare(DELSFitter.getInstance(),
+        FittingExampleDatasets.B_mFlipHC_uf100_01_TOG);
+  }
+
+  /** test the parallel DE/LS on the decay model */
+  @Test(timeout = 3600000)
+  public void testDELS_C_2FlipHCrs_uf250_01_FOE() {
+    ParallelFittingTest.__compare(DELSFitter.getInstance(),
+        FittingExampleDatasets.C_2FlipHCrs_uf250_01_FOE);
+  }
+
+  /** test the parallel ES/LS on the logistic model */
+  @Test(timeout = 3600000)
+  public void testESLS_A_1FlipHC_uf020_01_FOL() {
+    ParallelFittingTest.__compare(ESLSFitter.getInstance(),
+        FittingExampleDatasets.A_1FlipHC_uf020_01_FOL);
+  }
+
+  /** test the parallel ES/LS on the Gompertz model */
+  @Test(timeout = 3600000)
+  public void testESLS_B_mFlipHC_uf100_01_TOG() {
+    ParallelFittingTest.__compare(ESLSFitter.getInstance(),
+        FittingExampleDatasets.B_mFlipHC_uf100_01_TOG);
+  }
+
+  /** test the parallel ES/LS on the decay model */
+  @Test(timeout = 3600000)
+  public void testESLS_C_2FlipHCrs_uf250_01_FOE() {
+    ParallelFittingTest.__compare(ESLSFitter.getInstance(),
+        FittingExampleDatasets.C_2FlipHCrs_uf250_01_FOE);
+  }
+}
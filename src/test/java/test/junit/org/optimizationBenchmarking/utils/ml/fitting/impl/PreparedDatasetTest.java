@@ -0,0 +1,117 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.PreparedDataset;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for {@linkplain PreparedDataset#append(IMatrix) appending}
+ * points to a {@link PreparedDataset}.
+ */
+public class PreparedDatasetTest extends TestBase {
+
+  /** create the test */
+  public PreparedDatasetTest() {
+    super();
+  }
+
+  /**
+   * Create random points with positive coordinates
+   *
+   * @param random
+   *          the random number generator
+   * @param count
+   *          the number of points
+   * @return the points
+   */
+  private static final double[] __createPoints(final Random random,
+      final int count) {
+    final double[] data;
+    int i;
+
+    data = new double[count << 1];
+    for (i = data.length; (--i) >= 0;) {
+      data[i] = (0.1d + (random.nextDouble() * 100d));
+    }
+    return data;
+  }
+
+  /**
+   * Assert that a data set equals the one prepared from scratch for the
+   * given points
+   *
+   * @param points
+   *          the points, as {@code x}-{@code y} pairs
+   * @param count
+   *          the number of points to use
+   * @param data
+   *          the data set
+   */
+  private static final void __assertSame(final double[] points,
+      final int count, final PreparedDataset data) {
+    final PreparedDataset expected;
+    final double[] copy;
+    int i;
+
+    copy = new double[count << 1];
+    System.arraycopy(points, 0, copy, 0, copy.length);
+    expected = PreparedDataset.prepare(new DoubleMatrix1D(copy, count, 2));
+
+    Assert.assertEquals(count, data.m());
+    Assert.assertTrue(expected.contentEquals(data));
+    Assert.assertTrue(data.contentEquals(expected));
+    Assert.assertEquals(expected.contentHashCode(), data.contentHashCode());
+    Assert.assertEquals(expected.contentFingerprint(),
+        data.contentFingerprint());
+    Assert.assertEquals(expected.getMinX(), data.getMinX(), 0d);
+    Assert.assertEquals(expected.getMaxX(), data.getMaxX(), 0d);
+    Assert.assertEquals(expected.getMinY(), data.getMinY(), 0d);
+    Assert.assertEquals(expected.getMaxY(), data.getMaxY(), 0d);
+    for (i = count; (--i) >= 0;) {
+      Assert.assertEquals(points[i << 1], data.getX(i), 0d);
+      Assert.assertEquals(points[(i << 1) + 1], data.getY(i), 0d);
+      Assert.assertEquals(expected.getLogX(i), data.getLogX(i), 0d);
+      Assert.assertEquals(expected.getLogY(i), data.getLogY(i), 0d);
+    }
+  }
+
+  /**
+   * Appending points must yield the same data set as preparing all points
+   * at once, also if the same data set is extended twice
+   */
+  @Test(timeout = 3600000)
+  public void testAppend() {
+    final Random random;
+    final double[] points, other;
+    final PreparedDataset base, extended, twice, branch;
+
+    random = new Random();
+    points = PreparedDatasetTest.__createPoints(random, 150);
+    other = PreparedDatasetTest.__createPoints(random, 150);
+    System.arraycopy(points, 0, other, 0, 260);
+
+    base = PreparedDataset.prepare(new DoubleMatrix1D(
+        Arrays.copyOf(points, 200), 100, 2));
+    extended = base.append(new DoubleMatrix1D(
+        Arrays.copyOfRange(points, 200, 260), 30, 2));
+    // the storage of extended has room for more points and is shared
+    twice = extended.append(new DoubleMatrix1D(
+        Arrays.copyOfRange(points, 260, 300), 20, 2));
+    // now the storage is used by twice, so it must be copied for branch
+    branch = extended.append(new DoubleMatrix1D(
+        Arrays.copyOfRange(other, 260, 300), 20, 2));
+
+    PreparedDatasetTest.__assertSame(points, 100, base);
+    PreparedDatasetTest.__assertSame(points, 130, extended);
+    PreparedDatasetTest.__assertSame(points, 150, twice);
+    PreparedDatasetTest.__assertSame(other, 150, branch);
+    Assert.assertFalse(twice.contentEquals(branch));
+  }
+}
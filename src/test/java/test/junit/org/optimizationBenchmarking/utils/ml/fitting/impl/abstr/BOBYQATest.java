@@ -0,0 +1,223 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+import examples.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDatasets;
+import shared.junit.TestBase;
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.LegacySafeBOBYQAOptimizer;
+
+/**
+ * A test checking that the internal BOBYQA implementation used by
+ * {@link OptimizationBasedFittingJob#refineWithBOBYQA(FittingCandidateSolution)}
+ * , which works on primitive arrays, behaves exactly like the
+ * {@link LegacySafeBOBYQAOptimizer former version} based on the vectors
+ * and matrices of commons math. Both are started from the same random
+ * points on the example data sets, each in a job of its own, and must
+ * find the same best point with the same quality after the same number
+ * of evaluations. Every second refinement runs with the smallest
+ * evaluation budget, so that both implementations are also compared when
+ * they are stopped by the budget.
+ */
+public class BOBYQATest extends TestBase {
+
+  /** the number of random starting points per data set */
+  private static final int STARTS = 50;
+
+  /** create the test */
+  public BOBYQATest() {
+    super();
+  }
+
+  /**
+   * Refine a starting point in a job of its own
+   *
+   * @param example
+   *          the example data set
+   * @param start
+   *          the starting point
+   * @param maxIterations
+   *          the maximum number of iterations
+   * @param legacy
+   *          {@code true} to use the former implementation, {@code false}
+   *          to use the current one
+   * @return the result
+   */
+  private static final FittingResult __refine(
+      final FittingExampleDataset example, final double[] start,
+      final int maxIterations, final boolean legacy) {
+    return new __Fitter(start, maxIterations, legacy).use()//
+        .setPoints(example.data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(example.data))//
+        .setFunctionToFit(example.model)//
+        .setCollectMetrics(true)//
+        .create().call();
+  }
+
+  /**
+   * Compare both implementations on an example data set
+   *
+   * @param example
+   *          the example data set
+   */
+  private static final void __compare(final FittingExampleDataset example) {
+    final Random random;
+    final IParameterGuesser guesser;
+    final double[] start;
+    FittingResult expected, actual;
+    int run, maxIterations;
+
+    random = new Random();
+    guesser = example.model.createParameterGuesser(example.data);
+    start = new double[example.model.getParameterCount()];
+
+    for (run = BOBYQATest.STARTS; (--run) >= 0;) {
+      guesser.createRandomGuess(start, random);
+      maxIterations = (((run & 1) == 0) ? 1
+          : (start.length * start.length * 300));
+
+      expected = BOBYQATest.__refine(example, start, maxIterations, true);
+      actual = BOBYQATest.__refine(example, start, maxIterations, false);
+
+      Assert.assertTrue(expected.getMetrics().getEvaluations() > 0L);
+      Assert.assertEquals(expected.getMetrics().getEvaluations(),
+          actual.getMetrics().getEvaluations());
+      Assert.assertEquals(expected.getQuality(), actual.getQuality(), 0d);
+      Assert.assertArrayEquals(expected.getFittedParametersRef(),
+          actual.getFittedParametersRef(), 0d);
+    }
+  }
+
+  /** compare on the logistic model example of the first data set */
+  @Test(timeout = 3600000)
+  public void testA_1FlipHC_uf020_01_FOL() {
+    BOBYQATest.__compare(FittingExampleDatasets.A_1FlipHC_uf020_01_FOL);
+  }
+
+  /** compare on the decay model example of the first data set */
+  @Test(timeout = 3600000)
+  public void testA_1FlipHC_uf020_01_FOE() {
+    BOBYQATest.__compare(FittingExampleDatasets.A_1FlipHC_uf020_01_FOE);
+  }
+
+  /** compare on the Gompertz model example of the second data set */
+  @Test(timeout = 3600000)
+  public void testB_mFlipHC_uf100_01_FOG() {
+    BOBYQATest.__compare(FittingExampleDatasets.B_mFlipHC_uf100_01_FOG);
+  }
+
+  /** compare on the logistic model example of the second data set */
+  @Test(timeout = 3600000)
+  public void testB_mFlipHC_uf100_01_TOL() {
+    BOBYQATest.__compare(FittingExampleDatasets.B_mFlipHC_uf100_01_TOL);
+  }
+
+  /** compare on the decay model example of the third data set */
+  @Test(timeout = 3600000)
+  public void testC_2FlipHCrs_uf250_01_FOE() {
+    BOBYQATest
+        .__compare(FittingExampleDatasets.C_2FlipHCrs_uf250_01_FOE);
+  }
+
+  /** compare on the Gompertz model example of the fourth data set */
+  @Test(timeout = 3600000)
+  public void testD_2FlipHC_uf250_01_TOG() {
+    BOBYQATest.__compare(FittingExampleDatasets.D_2FlipHC_uf250_01_TOG);
+  }
+
+  /** a fitter performing a single BOBYQA run from a fixed starting point */
+  private static final class __Fitter extends FunctionFitter {
+
+    /** the starting point */
+    final double[] m_start;
+    /** the maximum number of iterations */
+    final int m_maxIterations;
+    /** should the former implementation be used? */
+    final boolean m_legacy;
+
+    /**
+     * create
+     *
+     * @param start
+     *          the starting point
+     * @param maxIterations
+     *          the maximum number of iterations
+     * @param legacy
+     *          should the former implementation be used?
+     */
+    __Fitter(final double[] start, final int maxIterations,
+        final boolean legacy) {
+      super();
+      this.m_start = start;
+      this.m_maxIterations = maxIterations;
+      this.m_legacy = legacy;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean canUse() {
+      return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final FittingJob create(final FittingJobBuilder builder) {
+      return new __Job(this, builder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final String toString() {
+      return "BOBYQA"; //$NON-NLS-1$
+    }
+  }
+
+  /** the job performing a single BOBYQA run */
+  private static final class __Job
+      extends OptimizationBasedFittingJob<FittingCandidateSolution> {
+
+    /** the owner */
+    private final __Fitter m_owner;
+
+    /**
+     * create
+     *
+     * @param owner
+     *          the owner
+     * @param builder
+     *          the builder
+     */
+    __Job(final __Fitter owner, final FittingJobBuilder builder) {
+      super(builder);
+      this.m_owner = owner;
+      this.setNumericalOptimizerMaxIterations(owner.m_maxIterations);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void doFit() {
+      final FittingCandidateSolution solution;
+
+      if (this.m_owner.m_legacy) {
+        LegacySafeBOBYQAOptimizer.refine(this, this.m_owner.m_start,
+            this.m_owner.m_maxIterations);
+      } else {
+        solution = new FittingCandidateSolution(
+            this.m_owner.m_start.length);
+        solution.assign(this.m_owner.m_start, Double.POSITIVE_INFINITY);
+        this.refineWithBOBYQA(solution);
+      }
+    }
+  }
+}
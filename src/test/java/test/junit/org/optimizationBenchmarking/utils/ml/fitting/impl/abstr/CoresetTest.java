@@ -0,0 +1,141 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the search on a
+ * {@linkplain FittingJobBuilder#setCoresetSize(int) coreset} of the
+ * points: the target quality and the metrics must only refer to
+ * qualities measured on all points.
+ */
+public class CoresetTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 5000;
+  /** the coreset size */
+  private static final int CORESET = 100;
+
+  /** create the test */
+  public CoresetTest() {
+    super();
+  }
+
+  /**
+   * Create a large data set following a logistic model with
+   * multiplicative noise
+   *
+   * @param random
+   *          the random number generator
+   * @return the data
+   */
+  private static final IMatrix __createData(final Random random) {
+    final LogisticModelWithOffsetOverLogX model;
+    final double[] data, parameters;
+    double x;
+    int i;
+
+    model = new LogisticModelWithOffsetOverLogX();
+    parameters = new double[] { 1d, 10d, 0.01d, 1.5d };
+    data = new double[CoresetTest.POINTS << 1];
+    for (i = CoresetTest.POINTS; (--i) >= 0;) {
+      x = Math.pow(10d, ((3d * i) / CoresetTest.POINTS));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = model.value(x, parameters)
+          * (1d + (0.05d * random.nextGaussian()));
+    }
+    return new DoubleMatrix1D(data, CoresetTest.POINTS, 2);
+  }
+
+  /**
+   * Fit the logistic model on a coreset
+   *
+   * @param fitter
+   *          the fitter
+   * @param data
+   *          the data
+   * @param target
+   *          the target quality
+   * @return the result
+   */
+  private static final FittingResult __fit(final FunctionFitter fitter,
+      final IMatrix data, final double target) {
+    return fitter.use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(new LogisticModelWithOffsetOverLogX())//
+        .setCoresetSize(CoresetTest.CORESET)//
+        .setTargetQuality(target)//
+        .setCollectMetrics(true)//
+        .create().call();
+  }
+
+  /**
+   * A target quality reached on the coreset must not stop the job before
+   * the solution has been refined on all points, and the metrics must
+   * only contain qualities on all points
+   *
+   * @param fitter
+   *          the fitter
+   */
+  private static final void __testTarget(final FunctionFitter fitter) {
+    final IMatrix data;
+    final FittingResult reference, result;
+    final double target, quality;
+    FittingMetrics metrics;
+    int index;
+
+    data = CoresetTest.__createData(new Random());
+    reference = CoresetTest.__fit(fitter, data, 0d);
+
+    // the coreset estimate of the quality may well reach this target
+    // before the solution does on all points
+    target = (1.02d * reference.getQuality());
+    result = CoresetTest.__fit(fitter, data, target);
+    quality = result.getQuality();
+    Assert.assertEquals(quality,
+        new WeightedRootMeanSquareError(data).evaluate(
+            new LogisticModelWithOffsetOverLogX(),
+            result.getFittedParametersRef()),
+        (1e-12d * quality));
+    Assert.assertTrue(quality <= target);
+
+    for (final FittingResult current : new FittingResult[] { reference,
+        result }) {
+      metrics = current.getMetrics();
+      Assert.assertTrue(metrics.getTraceLength() > 0);
+      for (index = 1; index < metrics.getTraceLength(); index++) {
+        Assert.assertTrue(metrics.getTraceQuality(index) < //
+        metrics.getTraceQuality(index - 1));
+      }
+      Assert.assertEquals(current.getQuality(),
+          metrics.getTraceQuality(metrics.getTraceLength() - 1), 0d);
+    }
+  }
+
+  /** test the coreset search with the LSSimplex fitter */
+  @Test(timeout = 3600000)
+  public void testTargetLSSimplex() {
+    CoresetTest.__testTarget(LSSimplexFitter.getInstance());
+  }
+
+  /** test the coreset search with the CMA-ES/LS fitter */
+  @Test(timeout = 3600000)
+  public void testTargetCMAESLS() {
+    CoresetTest.__testTarget(CMAESLSFitter.getInstance());
+  }
+}
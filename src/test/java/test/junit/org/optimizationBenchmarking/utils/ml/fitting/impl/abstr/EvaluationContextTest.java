@@ -0,0 +1,293 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.apache.commons.math3.analysis.MultivariateFunction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+import examples.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDatasets;
+import shared.junit.TestBase;
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A test for the
+ * {@linkplain OptimizationBasedFittingJob.EvaluationContext#fork() fork}
+ * and {@linkplain OptimizationBasedFittingJob.EvaluationContext#merge(
+ * OptimizationBasedFittingJob.EvaluationContext) merge} of evaluation
+ * contexts: several threads search with forked contexts at the same time,
+ * and the best point merged from them must be the best point the job has
+ * registered from all threads. A context forked after a subselection of
+ * the points must neither report its points to the job nor be merged into
+ * a context working on all points.
+ */
+public class EvaluationContextTest extends TestBase {
+
+  /** the number of threads */
+  private static final int THREADS = 4;
+  /** the number of steps of each search */
+  private static final int STEPS = 500;
+
+  /** create the test */
+  public EvaluationContextTest() {
+    super();
+  }
+
+  /**
+   * Fork, search, and merge on an example data set
+   *
+   * @param example
+   *          the example data set
+   */
+  private static final void __test(final FittingExampleDataset example) {
+    final __Fitter fitter;
+
+    fitter = new __Fitter(example.model.getParameterCount());
+    fitter.use()//
+        .setPoints(example.data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(example.data))//
+        .setFunctionToFit(example.model)//
+        .create().call();
+
+    for (final __Search search : fitter.m_searches) {
+      Assert.assertNull(search.m_error);
+    }
+    Assert.assertNull(fitter.m_subsetSearch.m_error);
+
+    Assert.assertTrue(fitter.m_best.quality >= 0d);
+    Assert.assertTrue(fitter.m_best.quality < Double.POSITIVE_INFINITY);
+    Assert.assertEquals(fitter.m_best.quality, fitter.m_merged.quality,
+        0d);
+    Assert.assertArrayEquals(fitter.m_best.solution,
+        fitter.m_merged.solution, 0d);
+
+    Assert.assertTrue(fitter.m_subsetMerged);
+    Assert.assertFalse(fitter.m_subsetMergedIntoAll);
+    Assert.assertEquals(fitter.m_best.quality,
+        fitter.m_bestAfterSubset.quality, 0d);
+    Assert.assertArrayEquals(fitter.m_best.solution,
+        fitter.m_bestAfterSubset.solution, 0d);
+  }
+
+  /** test on the logistic model example of the first data set */
+  @Test(timeout = 3600000)
+  public void testA_1FlipHC_uf020_01_FOL() {
+    EvaluationContextTest
+        .__test(FittingExampleDatasets.A_1FlipHC_uf020_01_FOL);
+  }
+
+  /** test on the Gompertz model example of the second data set */
+  @Test(timeout = 3600000)
+  public void testB_mFlipHC_uf100_01_TOG() {
+    EvaluationContextTest
+        .__test(FittingExampleDatasets.B_mFlipHC_uf100_01_TOG);
+  }
+
+  /** test on the decay model example of the third data set */
+  @Test(timeout = 3600000)
+  public void testC_2FlipHCrs_uf250_01_FOE() {
+    EvaluationContextTest
+        .__test(FittingExampleDatasets.C_2FlipHCrs_uf250_01_FOE);
+  }
+
+  /** a fitter whose job forks and merges evaluation contexts */
+  private static final class __Fitter extends FunctionFitter {
+
+    /** the searches on all points */
+    final __Search[] m_searches;
+    /** the search on a subset of the points */
+    __Search m_subsetSearch;
+    /** the best point registered with the job */
+    final FittingCandidateSolution m_best;
+    /** the best point merged from the searches */
+    final FittingCandidateSolution m_merged;
+    /**
+     * the best point registered with the job after the search on a subset
+     * of the points
+     */
+    final FittingCandidateSolution m_bestAfterSubset;
+    /**
+     * was the search on the subset merged into a context on the same
+     * subset?
+     */
+    boolean m_subsetMerged;
+    /** was the search on the subset merged into a context on all points? */
+    boolean m_subsetMergedIntoAll;
+
+    /**
+     * create
+     *
+     * @param parameterCount
+     *          the number of parameters
+     */
+    __Fitter(final int parameterCount) {
+      super();
+      this.m_searches = new __Search[EvaluationContextTest.THREADS];
+      this.m_best = new FittingCandidateSolution(parameterCount);
+      this.m_merged = new FittingCandidateSolution(parameterCount);
+      this.m_bestAfterSubset = new FittingCandidateSolution(
+          parameterCount);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean canUse() {
+      return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final FittingJob create(final FittingJobBuilder builder) {
+      return new __Job(this, builder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final String toString() {
+      return "Fork and Merge"; //$NON-NLS-1$
+    }
+  }
+
+  /** the job forking and merging evaluation contexts */
+  private static final class __Job
+      extends OptimizationBasedFittingJob<FittingCandidateSolution> {
+
+    /** the owner */
+    private final __Fitter m_owner;
+
+    /**
+     * create
+     *
+     * @param owner
+     *          the owner
+     * @param builder
+     *          the builder
+     */
+    __Job(final __Fitter owner, final FittingJobBuilder builder) {
+      super(builder);
+      this.m_owner = owner;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void doFit() {
+      final IParameterGuesser guesser;
+      final __Search[] searches;
+      final EvaluationContext[] contexts;
+      final __Search subsetSearch;
+      final EvaluationContext all, subset, subsetFork;
+      int index;
+
+      guesser = this.m_function.createParameterGuesser(this.m_data);
+      searches = this.m_owner.m_searches;
+
+      // search on all points with several threads and merge the results
+      all = this.forkContext();
+      contexts = ((EvaluationContext[]) (new OptimizationBasedFittingJob<?>.EvaluationContext[searches.length]));
+      for (index = searches.length; (--index) >= 0;) {
+        contexts[index] = all.fork();
+        searches[index] = new __Search(contexts[index], guesser,
+            this.m_function.getParameterCount());
+      }
+      for (final __Search search : searches) {
+        search.start();
+      }
+      for (final __Search search : searches) {
+        try {
+          search.join();
+        } catch (final InterruptedException interrupted) {
+          throw new IllegalStateException(interrupted);
+        }
+      }
+      for (final EvaluationContext context : contexts) {
+        all.merge(context);
+      }
+      all.getCopyOfBest(this.m_owner.m_merged);
+      this.getCopyOfBest(this.m_owner.m_best);
+
+      // search on a subset of the points
+      subset = this.forkContext();
+      subset.subselect((this.getObservationSize() >>> 1), new Random());
+      subsetFork = subset.fork();
+      this.m_owner.m_subsetSearch = subsetSearch = new __Search(subsetFork,
+          guesser, this.m_function.getParameterCount());
+      subsetSearch.run();
+      this.m_owner.m_subsetMergedIntoAll = this.forkContext()
+          .merge(subsetFork);
+      this.m_owner.m_subsetMerged = subset.merge(subsetFork);
+      this.getCopyOfBest(this.m_owner.m_bestAfterSubset);
+    }
+  }
+
+  /**
+   * A thread performing a simple random local search with an evaluation
+   * context of its own
+   */
+  private static final class __Search extends Thread {
+
+    /** the evaluation context */
+    private final MultivariateFunction m_context;
+    /** the parameter guesser */
+    private final IParameterGuesser m_guesser;
+    /** the number of parameters */
+    private final int m_parameterCount;
+    /** the error, if any */
+    volatile Throwable m_error;
+
+    /**
+     * create
+     *
+     * @param context
+     *          the evaluation context
+     * @param guesser
+     *          the parameter guesser
+     * @param parameterCount
+     *          the number of parameters
+     */
+    __Search(final MultivariateFunction context,
+        final IParameterGuesser guesser, final int parameterCount) {
+      super();
+      this.m_context = context;
+      this.m_guesser = guesser;
+      this.m_parameterCount = parameterCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final void run() {
+      final Random random;
+      final double[] current, next;
+      double quality, nextQuality;
+      int step, index;
+
+      try {
+        random = new Random();
+        current = new double[this.m_parameterCount];
+        next = new double[this.m_parameterCount];
+        this.m_guesser.createRandomGuess(current, random);
+        quality = this.m_context.value(current);
+
+        for (step = EvaluationContextTest.STEPS; (--step) >= 0;) {
+          for (index = next.length; (--index) >= 0;) {
+            next[index] = current[index] + (0.05d * random.nextGaussian()
+                * (Math.abs(current[index]) + 1e-3d));
+          }
+          nextQuality = this.m_context.value(next);
+          if ((nextQuality < quality) || (quality != quality)) {
+            quality = nextQuality;
+            System.arraycopy(next, 0, current, 0, next.length);
+          }
+        }
+      } catch (final Throwable error) {
+        this.m_error = error;
+      }
+    }
+  }
+}
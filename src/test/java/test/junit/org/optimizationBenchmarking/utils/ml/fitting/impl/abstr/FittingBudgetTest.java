@@ -0,0 +1,124 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the time, evaluation, and target-quality budgets of the
+ * fitting jobs, see {@link FittingJobBuilder#setTimeLimit(long)},
+ * {@link FittingJobBuilder#setMaxEvaluations(long)}, and
+ * {@link FittingJobBuilder#setTargetQuality(double)}. In each case, the
+ * job must stop early and still return a valid result.
+ */
+public class FittingBudgetTest extends TestBase {
+
+  /** the fitters to test */
+  private static final FunctionFitter[] FITTERS = { //
+      LSSimplexFitter.getInstance(), //
+      DELSFitter.getInstance(), //
+      ESLSFitter.getInstance(), //
+      CMAESLSFitter.getInstance() };
+
+  /** create the test */
+  public FittingBudgetTest() {
+    super();
+  }
+
+  /**
+   * Create a builder for fitting the logistic model to noisy data
+   *
+   * @param fitter
+   *          the fitter
+   * @return the builder
+   */
+  private static final FittingJobBuilder __builder(
+      final FunctionFitter fitter) {
+    final IMatrix data;
+
+    data = StartingPointsTest._createData(new Random(),
+        new double[] { 1d, 10d, 0.01d, 1.5d }, 0.01d);
+    return fitter.use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(new LogisticModelWithOffsetOverLogX())//
+        .setCollectMetrics(true);
+  }
+
+  /**
+   * Check that a result is valid
+   *
+   * @param result
+   *          the result
+   */
+  private static final void __checkResult(final FittingResult result) {
+    Assert.assertNotNull(result);
+    Assert.assertTrue((result.getQuality() >= 0d)
+        && (result.getQuality() < Double.POSITIVE_INFINITY));
+    Assert.assertEquals(4, result.getFittedParametersRef().length);
+    Assert.assertNotNull(result.getMetrics());
+  }
+
+  /** The maximum number of evaluations must be respected. */
+  @Test(timeout = 3600000)
+  public void testMaxEvaluations() {
+    FittingResult result;
+
+    for (final FunctionFitter fitter : FittingBudgetTest.FITTERS) {
+      result = FittingBudgetTest.__builder(fitter)//
+          .setMaxEvaluations(500L).create().call();
+      FittingBudgetTest.__checkResult(result);
+      // the evaluation exceeding the budget is counted, but not executed
+      Assert.assertTrue(result.getMetrics().getEvaluations() <= 501L);
+    }
+  }
+
+  /** The time limit must be respected. */
+  @Test(timeout = 3600000)
+  public void testTimeLimit() {
+    FittingResult result;
+    long start, time;
+
+    for (final FunctionFitter fitter : FittingBudgetTest.FITTERS) {
+      start = System.nanoTime();
+      result = FittingBudgetTest.__builder(fitter)//
+          .setTimeLimit(20L).create().call();
+      time = (System.nanoTime() - start);
+      FittingBudgetTest.__checkResult(result);
+      // generous slack for the setup of the job and slow machines
+      Assert.assertTrue(time < 2_000_000_000L);
+      Assert.assertTrue(result.getMetrics().getRuntimeNanos() < //
+      1_000_000_000L);
+    }
+  }
+
+  /** The job must stop once the target quality has been reached. */
+  @Test(timeout = 3600000)
+  public void testTargetQuality() {
+    FittingResult result, full;
+
+    for (final FunctionFitter fitter : FittingBudgetTest.FITTERS) {
+      result = FittingBudgetTest.__builder(fitter)//
+          .setTargetQuality(0.1d).create().call();
+      FittingBudgetTest.__checkResult(result);
+      Assert.assertTrue(result.getQuality() <= 0.1d);
+
+      full = FittingBudgetTest.__builder(fitter).create().call();
+      Assert.assertTrue(result.getMetrics().getEvaluations() < //
+      full.getMetrics().getEvaluations());
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the {@link FittingMetrics} collected by the fitting jobs if
+ * {@linkplain FittingJobBuilder#setCollectMetrics(boolean) requested}.
+ */
+public class FittingMetricsTest extends TestBase {
+
+  /** create the test */
+  public FittingMetricsTest() {
+    super();
+  }
+
+  /**
+   * Create a builder for fitting the logistic model to noisy data
+   *
+   * @param fitter
+   *          the fitter
+   * @return the builder
+   */
+  private static final FittingJobBuilder __builder(
+      final FunctionFitter fitter) {
+    final IMatrix data;
+
+    data = StartingPointsTest._createData(new Random(),
+        new double[] { 1d, 10d, 0.01d, 1.5d }, 0.01d);
+    return fitter.use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(new LogisticModelWithOffsetOverLogX());
+  }
+
+  /**
+   * Check that the metrics of a fitting job are consistent
+   *
+   * @param fitter
+   *          the fitter
+   */
+  private static final void __testMetrics(final FunctionFitter fitter) {
+    final FittingResult result;
+    final FittingMetrics metrics;
+    long refinements, nanos;
+    int index, method;
+
+    result = FittingMetricsTest.__builder(fitter)//
+        .setCollectMetrics(true).create().call();
+    metrics = result.getMetrics();
+    Assert.assertNotNull(metrics);
+
+    Assert.assertTrue(metrics.getEvaluations() > 0L);
+    Assert.assertTrue(metrics.getRuntimeNanos() > 0L);
+    Assert.assertTrue(metrics.getGuesses() > 0L);
+    Assert.assertTrue(metrics.getGuessNanos() >= 0L);
+    Assert.assertTrue(metrics.getRejections() >= 0L);
+
+    refinements = 0L;
+    for (method = FittingMetrics.METHOD_COUNT; (--method) >= 0;) {
+      Assert.assertTrue(metrics.getRefinements(method) >= 0L);
+      Assert.assertTrue(metrics.getRefinementNanos(method) >= 0L);
+      Assert.assertTrue(metrics.getImprovements(method) >= 0L);
+      Assert.assertTrue(metrics.getFailures(method) >= 0L);
+      Assert.assertTrue((metrics.getImprovements(method)
+          + metrics.getFailures(method)) <= metrics
+              .getRefinements(method));
+      refinements += metrics.getRefinements(method);
+    }
+    Assert.assertTrue(refinements > 0L);
+    Assert.assertTrue(
+        metrics.getRefinements(FittingMetrics.LEVENBERG_MARQUARDT) > 0L);
+
+    // the trace improves monotonically and ends with the result
+    Assert.assertTrue(metrics.getTraceLength() > 0);
+    nanos = 0L;
+    for (index = 0; index < metrics.getTraceLength(); index++) {
+      Assert.assertTrue(metrics.getTraceTimeNanos(index) >= nanos);
+      nanos = metrics.getTraceTimeNanos(index);
+      if (index > 0) {
+        Assert.assertTrue(metrics.getTraceQuality(index) < //
+        metrics.getTraceQuality(index - 1));
+      }
+    }
+    Assert.assertTrue(nanos <= metrics.getRuntimeNanos());
+    Assert.assertEquals(result.getQuality(),
+        metrics.getTraceQuality(metrics.getTraceLength() - 1), 0d);
+
+    Assert.assertTrue(metrics.toString().length() > 0);
+  }
+
+  /** Without request, no metrics are collected. */
+  @Test(timeout = 3600000)
+  public void testNoMetrics() {
+    Assert.assertNull(FittingMetricsTest
+        .__builder(LSSimplexFitter.getInstance()).create().call()
+        .getMetrics());
+  }
+
+  /** Test the metrics of the LSSimplex fitter. */
+  @Test(timeout = 3600000)
+  public void testMetricsLSSimplex() {
+    FittingMetricsTest.__testMetrics(LSSimplexFitter.getInstance());
+  }
+
+  /** Test the metrics of the DE/LS fitter. */
+  @Test(timeout = 3600000)
+  public void testMetricsDELS() {
+    FittingMetricsTest.__testMetrics(DELSFitter.getInstance());
+  }
+
+  /** Test the metrics of the ES/LS fitter. */
+  @Test(timeout = 3600000)
+  public void testMetricsESLS() {
+    FittingMetricsTest.__testMetrics(ESLSFitter.getInstance());
+  }
+
+  /** Test the metrics of the CMA-ES/LS fitter. */
+  @Test(timeout = 3600000)
+  public void testMetricsCMAESLS() {
+    FittingMetricsTest.__testMetrics(CMAESLSFitter.getInstance());
+  }
+}
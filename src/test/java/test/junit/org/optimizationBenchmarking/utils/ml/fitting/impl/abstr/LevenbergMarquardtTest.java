@@ -0,0 +1,364 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.apache.commons.math3.exception.MaxCountExceededException;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresOptimizer.Optimum;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresProblem;
+import org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.optim.ConvergenceChecker;
+import org.apache.commons.math3.util.Incrementor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingCandidateSolution;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.OptimizationBasedFittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+import examples.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDatasets;
+import shared.junit.TestBase;
+import shared.junit.org.optimizationBenchmarking.utils.ml.fitting.FittingExampleDataset;
+
+/**
+ * A test checking that the internal implementation of the
+ * Levenberg-Marquardt algorithm used by
+ * {@link OptimizationBasedFittingJob#refineWithLevenbergMarquardt(FittingCandidateSolution)}
+ * behaves exactly like the
+ * {@link org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer}
+ * of commons math it was ported from. Both are started from the same
+ * random points on the example data sets, each in a job of its own, and
+ * must find the same best point with the same quality after the same
+ * number of evaluations. Since both stop when the iteration limit of the
+ * job is reached, they must also do so if the limit is lowered below
+ * the number of iterations needed by commons math, which shows that they
+ * count the iterations in the same way.
+ */
+public class LevenbergMarquardtTest extends TestBase {
+
+  /** the number of random starting points per data set */
+  private static final int STARTS = 5;
+
+  /** create the test */
+  public LevenbergMarquardtTest() {
+    super();
+  }
+
+  /**
+   * Refine a starting point in a job of its own
+   *
+   * @param example
+   *          the example data set
+   * @param start
+   *          the starting point
+   * @param maxIterations
+   *          the maximum number of iterations
+   * @param commons
+   *          {@code true} to use the optimizer of commons math,
+   *          {@code false} to use the internal implementation
+   * @return the fitter, which holds the result
+   */
+  private static final __Fitter __refine(final FittingExampleDataset example,
+      final double[] start, final int maxIterations,
+      final boolean commons) {
+    final __Fitter fitter;
+
+    fitter = new __Fitter(start, maxIterations, commons);
+    fitter.m_result = fitter.use()//
+        .setPoints(example.data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(example.data))//
+        .setFunctionToFit(example.model)//
+        .setCollectMetrics(true)//
+        .create().call();
+    return fitter;
+  }
+
+  /**
+   * Assert that both implementations produced the same result
+   *
+   * @param expected
+   *          the fitter using commons math
+   * @param actual
+   *          the fitter using the internal implementation
+   */
+  private static final void __assertSame(final __Fitter expected,
+      final __Fitter actual) {
+    Assert.assertEquals(expected.m_result.getMetrics().getEvaluations(),
+        actual.m_result.getMetrics().getEvaluations());
+    Assert.assertEquals(expected.m_result.getQuality(),
+        actual.m_result.getQuality(), 0d);
+    Assert.assertArrayEquals(expected.m_result.getFittedParametersRef(),
+        actual.m_result.getFittedParametersRef(), 0d);
+  }
+
+  /**
+   * Compare both implementations on an example data set
+   *
+   * @param example
+   *          the example data set
+   */
+  private static final void __compare(final FittingExampleDataset example) {
+    final Random random;
+    final IParameterGuesser guesser;
+    final double[] start;
+    __Fitter expected;
+    int run, iterations, limit;
+
+    random = new Random();
+    guesser = example.model.createParameterGuesser(example.data);
+    start = new double[example.model.getParameterCount()];
+
+    for (run = LevenbergMarquardtTest.STARTS; (--run) >= 0;) {
+      guesser.createRandomGuess(start, random);
+
+      expected = LevenbergMarquardtTest.__refine(example, start,
+          LevenbergMarquardtTest.__Job.MAX_ITERATIONS, true);
+      LevenbergMarquardtTest.__assertSame(expected,
+          LevenbergMarquardtTest.__refine(example, start,
+              LevenbergMarquardtTest.__Job.MAX_ITERATIONS, false));
+
+      iterations = expected.m_iterations;
+      Assert.assertTrue(iterations > 0);
+      for (limit = 1; limit < iterations; limit += ((limit >>> 2) + 1)) {
+        expected = LevenbergMarquardtTest.__refine(example, start, limit,
+            true);
+        LevenbergMarquardtTest.__assertSame(expected,
+            LevenbergMarquardtTest.__refine(example, start, limit, false));
+      }
+    }
+  }
+
+  /** compare on the logistic model example of the first data set */
+  @Test(timeout = 3600000)
+  public void testA_1FlipHC_uf020_01_FOL() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.A_1FlipHC_uf020_01_FOL);
+  }
+
+  /** compare on the decay model example of the first data set */
+  @Test(timeout = 3600000)
+  public void testA_1FlipHC_uf020_01_FOE() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.A_1FlipHC_uf020_01_FOE);
+  }
+
+  /** compare on the Gompertz model example of the first data set */
+  @Test(timeout = 3600000)
+  public void testA_1FlipHC_uf020_01_TOG() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.A_1FlipHC_uf020_01_TOG);
+  }
+
+  /** compare on the logistic model example of the second data set */
+  @Test(timeout = 3600000)
+  public void testB_mFlipHC_uf100_01_TOL() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.B_mFlipHC_uf100_01_TOL);
+  }
+
+  /** compare on the decay model example of the second data set */
+  @Test(timeout = 3600000)
+  public void testB_mFlipHC_uf100_01_TOE() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.B_mFlipHC_uf100_01_TOE);
+  }
+
+  /** compare on the Gompertz model example of the second data set */
+  @Test(timeout = 3600000)
+  public void testB_mFlipHC_uf100_01_FOG() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.B_mFlipHC_uf100_01_FOG);
+  }
+
+  /** compare on the logistic model example of the third data set */
+  @Test(timeout = 3600000)
+  public void testC_2FlipHCrs_uf250_01_FOL() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.C_2FlipHCrs_uf250_01_FOL);
+  }
+
+  /** compare on the Gompertz model example of the fourth data set */
+  @Test(timeout = 3600000)
+  public void testD_2FlipHC_uf250_01_TOG() {
+    LevenbergMarquardtTest
+        .__compare(FittingExampleDatasets.D_2FlipHC_uf250_01_TOG);
+  }
+
+  /**
+   * a fitter performing a single Levenberg-Marquardt run from a fixed
+   * starting point
+   */
+  private static final class __Fitter extends FunctionFitter {
+
+    /** the starting point */
+    final double[] m_start;
+    /** the maximum number of iterations */
+    final int m_maxIterations;
+    /** should the optimizer of commons math be used? */
+    final boolean m_commons;
+    /**
+     * the number of iterations needed by the optimizer of commons math,
+     * or {@code -1} if it hit the iteration or evaluation limit
+     */
+    int m_iterations;
+    /** the result */
+    FittingResult m_result;
+
+    /**
+     * create
+     *
+     * @param start
+     *          the starting point
+     * @param maxIterations
+     *          the maximum number of iterations
+     * @param commons
+     *          should the optimizer of commons math be used?
+     */
+    __Fitter(final double[] start, final int maxIterations,
+        final boolean commons) {
+      super();
+      this.m_start = start;
+      this.m_maxIterations = maxIterations;
+      this.m_commons = commons;
+      this.m_iterations = -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean canUse() {
+      return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final FittingJob create(final FittingJobBuilder builder) {
+      return new __Job(this, builder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final String toString() {
+      return "Levenberg-Marquardt"; //$NON-NLS-1$
+    }
+  }
+
+  /** the job performing a single Levenberg-Marquardt run */
+  private static final class __Job
+      extends OptimizationBasedFittingJob<FittingCandidateSolution> {
+
+    /** the default maximum number of iterations */
+    static final int MAX_ITERATIONS = OptimizationBasedFittingJob.DEFAULT_LEAST_SQUARES_MAX_ITERATIONS;
+
+    /** the owner */
+    private final __Fitter m_owner;
+
+    /**
+     * create
+     *
+     * @param owner
+     *          the owner
+     * @param builder
+     *          the builder
+     */
+    __Job(final __Fitter owner, final FittingJobBuilder builder) {
+      super(builder);
+      this.m_owner = owner;
+      this.setLeastSquaresMaxIterations(owner.m_maxIterations);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void doFit() {
+      final FittingCandidateSolution solution;
+      final Optimum optimum;
+
+      if (this.m_owner.m_commons) {
+        try {
+          optimum = new LevenbergMarquardtOptimizer()
+              .optimize(new __Problem(this, this.m_owner.m_start));
+          this.m_owner.m_iterations = optimum.getIterations();
+        } catch (@SuppressWarnings("unused") final MaxCountExceededException exceeded) {
+          // the iteration or evaluation limit has been reached
+        }
+      } else {
+        solution = new FittingCandidateSolution(
+            this.m_owner.m_start.length);
+        solution.assign(this.m_owner.m_start, Double.POSITIVE_INFINITY);
+        this.refineWithLevenbergMarquardt(solution);
+      }
+    }
+  }
+
+  /**
+   * The least squares problem of a job, starting at a given point. All
+   * other methods are delegated to the job.
+   */
+  private static final class __Problem implements LeastSquaresProblem {
+
+    /** the job */
+    private final __Job m_job;
+    /** the starting point */
+    private final RealVector m_start;
+
+    /**
+     * create
+     *
+     * @param job
+     *          the job
+     * @param start
+     *          the starting point
+     */
+    __Problem(final __Job job, final double[] start) {
+      super();
+      this.m_job = job;
+      this.m_start = new ArrayRealVector(start);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final RealVector getStart() {
+      return this.m_start;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int getObservationSize() {
+      return this.m_job.getObservationSize();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final int getParameterSize() {
+      return this.m_job.getParameterSize();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final Evaluation evaluate(final RealVector point) {
+      return this.m_job.evaluate(point);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final Incrementor getEvaluationCounter() {
+      return this.m_job.getEvaluationCounter();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final Incrementor getIterationCounter() {
+      return this.m_job.getIterationCounter();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final ConvergenceChecker<Evaluation> getConvergenceChecker() {
+      return this.m_job.getConvergenceChecker();
+    }
+  }
+}
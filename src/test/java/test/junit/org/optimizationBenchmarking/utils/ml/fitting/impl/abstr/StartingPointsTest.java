@@ -0,0 +1,190 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.abstr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cmaesls.CMAESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.dels.DELSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.esls.ESLSFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for fitting jobs which are started from the parameters of a
+ * previous fitting, see
+ * {@link FittingJobBuilder#setStartingPoints(double[][])}.
+ */
+public class StartingPointsTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 200;
+
+  /** create the test */
+  public StartingPointsTest() {
+    super();
+  }
+
+  /**
+   * Create a data set following a logistic model with multiplicative
+   * noise
+   *
+   * @param random
+   *          the random number generator
+   * @param parameters
+   *          the parameters
+   * @param noise
+   *          the relative noise
+   * @return the data
+   */
+  static final IMatrix _createData(final Random random,
+      final double[] parameters, final double noise) {
+    final LogisticModelWithOffsetOverLogX model;
+    final double[] data;
+    double x;
+    int i;
+
+    model = new LogisticModelWithOffsetOverLogX();
+    data = new double[StartingPointsTest.POINTS << 1];
+    for (i = StartingPointsTest.POINTS; (--i) >= 0;) {
+      x = Math.pow(10d, ((3d * i) / StartingPointsTest.POINTS));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = model.value(x, parameters)
+          * (1d + (noise * random.nextGaussian()));
+    }
+    return new DoubleMatrix1D(data, StartingPointsTest.POINTS, 2);
+  }
+
+  /**
+   * Create a builder for fitting the logistic model
+   *
+   * @param fitter
+   *          the fitter
+   * @param data
+   *          the data
+   * @return the builder
+   */
+  private static final FittingJobBuilder __builder(
+      final FunctionFitter fitter, final IMatrix data) {
+    return fitter.use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(new LogisticModelWithOffsetOverLogX())//
+        .setCollectMetrics(true);
+  }
+
+  /** The starting points must be copied by the builder. */
+  @Test(timeout = 3600000)
+  public void testStartingPointsAreCopied() {
+    final FittingJobBuilder builder;
+    final double[] point;
+
+    point = new double[] { 1d, 2d, 3d, 4d };
+    builder = LSSimplexFitter.getInstance().use();
+    builder.setStartingPoints(point);
+    point[0] = 5d;
+    Assert.assertEquals(1, builder.getStartingPoints().length);
+    Assert.assertArrayEquals(new double[] { 1d, 2d, 3d, 4d },
+        builder.getStartingPoints()[0], 0d);
+
+    builder.setStartingPoints((double[][]) null);
+    Assert.assertNull(builder.getStartingPoints());
+  }
+
+  /** A {@code null} starting point is an error. */
+  @Test(timeout = 3600000, expected = IllegalArgumentException.class)
+  public void testNullStartingPoint() {
+    LSSimplexFitter.getInstance().use()
+        .setStartingPoints(new double[][] { null });
+  }
+
+  /**
+   * Starting points of the wrong length or with non-finite values must be
+   * ignored, the fitting must still work.
+   */
+  @Test(timeout = 3600000)
+  public void testInvalidStartingPointsAreIgnored() {
+    final IMatrix data;
+    final FittingResult result;
+
+    data = StartingPointsTest._createData(new Random(),
+        new double[] { 1d, 10d, 0.01d, 1.5d }, 0.01d);
+    result = StartingPointsTest
+        .__builder(LSSimplexFitter.getInstance(), data)//
+        .setStartingPoints(new double[] { 1d, 10d }, //
+            new double[] { 1d, Double.NaN, 0.01d, 1.5d })//
+        .create().call();
+    Assert.assertTrue(result.getQuality() < 0.05d);
+  }
+
+  /**
+   * Test refitting slightly changed data with the previous result as
+   * starting point with a given fitter: The result must be as good as
+   * fitting from scratch, but take fewer evaluations than the slowest of
+   * three fittings from scratch.
+   *
+   * @param fitter
+   *          the fitter
+   */
+  private static final void __testWarmStart(final FunctionFitter fitter) {
+    final Random random;
+    final double[] parameters;
+    final IMatrix data, changed;
+    final FittingResult first, cold, cold2, warm;
+
+    random = new Random();
+    parameters = new double[] { (1d + random.nextDouble()), //
+        (5d + (10d * random.nextDouble())), //
+        (0.01d + (0.01d * random.nextDouble())), //
+        (1d + random.nextDouble()) };
+    data = StartingPointsTest._createData(random, parameters, 0.01d);
+    parameters[1] *= 1.01d;
+    changed = StartingPointsTest._createData(random, parameters, 0.01d);
+
+    first = StartingPointsTest.__builder(fitter, data).create().call();
+    cold = StartingPointsTest.__builder(fitter, changed).create().call();
+    cold2 = StartingPointsTest.__builder(fitter, changed).create().call();
+    warm = StartingPointsTest.__builder(fitter, changed)//
+        .setStartingPoints(first).create().call();
+
+    Assert.assertTrue(warm.getQuality() <= (1.000001d
+        * Math.min(cold.getQuality(), cold2.getQuality())));
+    // a single run from scratch may be lucky, so we compare with three
+    Assert.assertTrue(warm.getMetrics().getEvaluations() < //
+    Math.max(first.getMetrics().getEvaluations(), //
+        Math.max(cold.getMetrics().getEvaluations(),
+            cold2.getMetrics().getEvaluations())));
+  }
+
+  /** Test warm-starting the LSSimplex fitter. */
+  @Test(timeout = 3600000)
+  public void testWarmStartLSSimplex() {
+    StartingPointsTest.__testWarmStart(LSSimplexFitter.getInstance());
+  }
+
+  /** Test warm-starting the DE/LS fitter. */
+  @Test(timeout = 3600000)
+  public void testWarmStartDELS() {
+    StartingPointsTest.__testWarmStart(DELSFitter.getInstance());
+  }
+
+  /** Test warm-starting the ES/LS fitter. */
+  @Test(timeout = 3600000)
+  public void testWarmStartESLS() {
+    StartingPointsTest.__testWarmStart(ESLSFitter.getInstance());
+  }
+
+  /** Test warm-starting the CMA-ES/LS fitter. */
+  @Test(timeout = 3600000)
+  public void testWarmStartCMAESLS() {
+    StartingPointsTest.__testWarmStart(CMAESLSFitter.getInstance());
+  }
+}
@@ -0,0 +1,408 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.CachingFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStore;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the {@link FittingResultStore} and the
+ * {@link CachingFunctionFitter}: results must survive closing and
+ * re-opening the store, stored results must be re-used after checking
+ * them with a single evaluation, and damaged files must be repaired
+ * without losing the intact records.
+ */
+public class FittingResultStoreTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 50;
+  /** the size of the file header */
+  private static final int HEADER_SIZE = 12;
+  /** the version tag */
+  private static final String VERSION = "test"; //$NON-NLS-1$
+
+  /** create the test */
+  public FittingResultStoreTest() {
+    super();
+  }
+
+  /**
+   * Create data following a logistic model with multiplicative noise
+   *
+   * @param random
+   *          the random number generator
+   * @param b
+   *          the second parameter of the model
+   * @return the data
+   */
+  private static final IMatrix __createData(final Random random,
+      final double b) {
+    final LogisticModelWithOffsetOverLogX model;
+    final double[] data, parameters;
+    double x;
+    int i;
+
+    model = new LogisticModelWithOffsetOverLogX();
+    parameters = new double[] { 1d, b, 0.01d, 1.5d };
+    data = new double[FittingResultStoreTest.POINTS << 1];
+    for (i = FittingResultStoreTest.POINTS; (--i) >= 0;) {
+      x = Math.pow(10d, ((3d * i) / FittingResultStoreTest.POINTS));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = model.value(x, parameters)
+          * (1d + (0.01d * random.nextGaussian()));
+    }
+    return new DoubleMatrix1D(data, FittingResultStoreTest.POINTS, 2);
+  }
+
+  /**
+   * Fit the logistic model to the data with a caching fitter using the
+   * given store
+   *
+   * @param store
+   *          the store
+   * @param data
+   *          the data
+   * @return the result
+   */
+  private static final FittingResult __fit(final FittingResultStore store,
+      final IMatrix data) {
+    return new CachingFunctionFitter(LSSimplexFitter.getInstance(), store)
+        .use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(new LogisticModelWithOffsetOverLogX())//
+        .setCollectMetrics(true)//
+        .create().call();
+  }
+
+  /**
+   * Fit the data with a store which is opened only for this purpose
+   *
+   * @param path
+   *          the path to the store
+   * @param data
+   *          the data
+   * @param size
+   *          the expected number of results in the store after opening
+   *          it
+   * @return the result
+   * @throws IOException
+   *           if the store cannot be opened
+   */
+  private static final FittingResult __fit(final Path path,
+      final IMatrix data, final int size) throws IOException {
+    try (final FittingResultStore store = FittingResultStore.open(path,
+        FittingResultStoreTest.VERSION)) {
+      Assert.assertEquals(size, store.size());
+      return FittingResultStoreTest.__fit(store, data);
+    }
+  }
+
+  /**
+   * Check that a result was taken from the store, i.e., that it is the
+   * same as the stored one and was obtained with a single evaluation
+   *
+   * @param stored
+   *          the stored result
+   * @param result
+   *          the result to check
+   */
+  private static final void __assertFromStore(final FittingResult stored,
+      final FittingResult result) {
+    Assert.assertEquals(1L, result.getMetrics().getEvaluations());
+    Assert.assertEquals(stored.getQuality(), result.getQuality(), 0d);
+    Assert.assertArrayEquals(stored.getFittedParametersRef(),
+        result.getFittedParametersRef(), 0d);
+  }
+
+  /**
+   * Get the start of the record following the record at a given position
+   *
+   * @param path
+   *          the path to the store
+   * @param record
+   *          the start of the record
+   * @return the start of the next record
+   * @throws IOException
+   *           if the file cannot be read
+   */
+  private static final long __next(final Path path, final long record)
+      throws IOException {
+    final ByteBuffer buffer;
+
+    buffer = ByteBuffer.allocate(4);
+    try (final FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ)) {
+      channel.read(buffer, record);
+    }
+    return (record + 8L + buffer.getInt(0));
+  }
+
+  /**
+   * Write some bytes into the store
+   *
+   * @param path
+   *          the path to the store
+   * @param position
+   *          the position
+   * @param bytes
+   *          the bytes
+   * @throws IOException
+   *           if the file cannot be written
+   */
+  private static final void __write(final Path path, final long position,
+      final byte[] bytes) throws IOException {
+    final ByteBuffer buffer;
+
+    buffer = ByteBuffer.wrap(bytes);
+    try (final FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, (position + buffer.position()));
+      }
+    }
+  }
+
+  /**
+   * Invert one byte of the file
+   *
+   * @param path
+   *          the path to the store
+   * @param position
+   *          the position of the byte
+   * @throws IOException
+   *           if the file cannot be read or written
+   */
+  private static final void __invert(final Path path, final long position)
+      throws IOException {
+    final byte[] bytes;
+
+    bytes = Files.readAllBytes(path);
+    FittingResultStoreTest.__write(path, position,
+        new byte[] { ((byte) (~(bytes[(int) position]))) });
+  }
+
+  /**
+   * Create a store with two results
+   *
+   * @param path
+   *          the path to the store
+   * @param first
+   *          the first data set
+   * @param second
+   *          the second data set
+   * @return the results
+   * @throws IOException
+   *           if the store cannot be created
+   */
+  private static final FittingResult[] __createStore(final Path path,
+      final IMatrix first, final IMatrix second) throws IOException {
+    final FittingResult[] results;
+
+    try (final FittingResultStore store = FittingResultStore.open(path,
+        FittingResultStoreTest.VERSION)) {
+      results = new FittingResult[] {
+          FittingResultStoreTest.__fit(store, first),
+          FittingResultStoreTest.__fit(store, second) };
+      Assert.assertEquals(2, store.size());
+    }
+    Assert.assertEquals(
+        FittingResultStoreTest.__next(path,
+            FittingResultStoreTest.__next(path,
+                FittingResultStoreTest.HEADER_SIZE)),
+        Files.size(path));
+    return results;
+  }
+
+  /**
+   * Results must be re-used after re-opening the store
+   *
+   * @throws IOException
+   *           if i/o fails
+   */
+  @Test(timeout = 3600000)
+  public void testReopen() throws IOException {
+    final Path path;
+    final IMatrix data;
+    final FittingResult stored;
+
+    path = Files.createTempFile("fittingResults", ".store"); //$NON-NLS-1$//$NON-NLS-2$
+    try {
+      Files.delete(path);
+      data = FittingResultStoreTest.__createData(new Random(), 10d);
+      stored = FittingResultStoreTest.__fit(path, data, 0);
+      Assert.assertTrue(stored.getMetrics().getEvaluations() != 1L);
+
+      FittingResultStoreTest.__assertFromStore(stored,
+          FittingResultStoreTest.__fit(path, data, 1));
+      FittingResultStoreTest.__assertFromStore(stored,
+          FittingResultStoreTest.__fit(path, data, 1));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * A stored result whose quality cannot be confirmed must not be re-used
+   *
+   * @throws IOException
+   *           if i/o fails
+   */
+  @Test(timeout = 3600000)
+  public void testReverify() throws IOException {
+    final Path path;
+    final IMatrix data;
+    final FittingResult stored, result;
+    final ByteBuffer record;
+    final CRC32 checksum;
+    final int length, parameter;
+    final double wrong;
+
+    path = Files.createTempFile("fittingResults", ".store"); //$NON-NLS-1$//$NON-NLS-2$
+    try {
+      Files.delete(path);
+      data = FittingResultStoreTest.__createData(new Random(), 10d);
+      stored = FittingResultStoreTest.__fit(path, data, 0);
+
+      // replace the first parameter and fix the checksum: the record
+      // consists of its length, the fingerprint, the number of points,
+      // the descriptor, the quality, the parameters, and the checksum
+      record = ByteBuffer.wrap(Files.readAllBytes(path));
+      length = record.getInt(FittingResultStoreTest.HEADER_SIZE);
+      parameter = (FittingResultStoreTest.HEADER_SIZE + 4 + 8 + 4 + 2
+          + (record.getShort(FittingResultStoreTest.HEADER_SIZE + 16)
+              & 0xffff)
+          + 8 + 4);
+      wrong = (stored.getFittedParametersRef()[0] + 100d);
+      record.putDouble(parameter, wrong);
+      checksum = new CRC32();
+      checksum.update(record.array(), (FittingResultStoreTest.HEADER_SIZE
+          + 4), length);
+      record.putInt((FittingResultStoreTest.HEADER_SIZE + 4 + length),
+          ((int) (checksum.getValue())));
+      Files.write(path, record.array());
+
+      result = FittingResultStoreTest.__fit(path, data, 1);
+      Assert.assertTrue(result.getFittedParametersRef()[0] != wrong);
+      Assert.assertTrue(result.getQuality() < 1.1d * stored.getQuality());
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * A torn record at the end of the store must be cut off
+   *
+   * @throws IOException
+   *           if i/o fails
+   */
+  @Test(timeout = 3600000)
+  public void testCorruptedTail() throws IOException {
+    final Path path;
+    final Random random;
+    final IMatrix first, second;
+    final FittingResult[] stored;
+    final long size, last;
+    final byte[] bytes;
+
+    path = Files.createTempFile("fittingResults", ".store"); //$NON-NLS-1$//$NON-NLS-2$
+    try {
+      Files.delete(path);
+      random = new Random();
+      first = FittingResultStoreTest.__createData(random, 10d);
+      second = FittingResultStoreTest.__createData(random, 20d);
+      stored = FittingResultStoreTest.__createStore(path, first, second);
+      size = Files.size(path);
+      last = FittingResultStoreTest.__next(path,
+          FittingResultStoreTest.HEADER_SIZE);
+
+      // an incomplete copy of the last record
+      bytes = Files.readAllBytes(path);
+      FittingResultStoreTest.__write(path, size, Arrays
+          .copyOfRange(bytes, (int) last, (int) (last + 20L)));
+      FittingResultStoreTest.__assertFromStore(stored[0],
+          FittingResultStoreTest.__fit(path, first, 2));
+      Assert.assertEquals(size, Files.size(path));
+
+      // zeros
+      FittingResultStoreTest.__write(path, size, new byte[16]);
+      FittingResultStoreTest.__assertFromStore(stored[1],
+          FittingResultStoreTest.__fit(path, second, 2));
+      Assert.assertEquals(size, Files.size(path));
+
+      // a complete last record with a wrong checksum
+      FittingResultStoreTest.__invert(path, (last + 20L));
+      FittingResultStoreTest.__assertFromStore(stored[0],
+          FittingResultStoreTest.__fit(path, first, 1));
+      Assert.assertEquals(last, Files.size(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * A corrupted record in the middle of the store must be skipped, while
+   * the records after it are kept
+   *
+   * @throws IOException
+   *           if i/o fails
+   */
+  @Test(timeout = 3600000)
+  public void testCorruptedMiddle() throws IOException {
+    final Path path;
+    final Random random;
+    final IMatrix first, second;
+    final FittingResult[] stored;
+    final long size;
+    boolean failed;
+
+    path = Files.createTempFile("fittingResults", ".store"); //$NON-NLS-1$//$NON-NLS-2$
+    try {
+      Files.delete(path);
+      random = new Random();
+      first = FittingResultStoreTest.__createData(random, 10d);
+      second = FittingResultStoreTest.__createData(random, 20d);
+      stored = FittingResultStoreTest.__createStore(path, first, second);
+      size = Files.size(path);
+
+      // a wrong checksum in the first record
+      FittingResultStoreTest.__invert(path,
+          (FittingResultStoreTest.HEADER_SIZE + 20L));
+      FittingResultStoreTest.__assertFromStore(stored[1],
+          FittingResultStoreTest.__fit(path, second, 1));
+      Assert.assertEquals(size, Files.size(path));
+
+      // an invalid length of the first record
+      FittingResultStoreTest.__write(path,
+          FittingResultStoreTest.HEADER_SIZE, new byte[] { -1, -1, -1, -1 });
+      failed = false;
+      try {
+        FittingResultStoreTest.__fit(path, second, 1);
+      } catch (final IOException expected) {
+        failed = true;
+      }
+      Assert.assertTrue(failed);
+      Assert.assertEquals(size, Files.size(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+}
@@ -0,0 +1,8 @@
+/**
+ * Here we test the persistent store for fitting results and the caching
+ * fitter from package
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.cache} of the
+ * <a href="http://www.optimizationBenchmarking.org/" >
+ * optimizationBenchmarking.org</a> tool suite.
+ */
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.cache;
@@ -0,0 +1,133 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingMetrics;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.ParallelLSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the index of the explored solutions of the LSSimplex
+ * fitters: On noise-free data, all restarts converge to the same optimum.
+ * The solutions they arrive at must be recognized as explored, i.e.,
+ * rejected, while the search must still terminate and find the optimum.
+ * The raw bits of three of the optimal parameter values, {@code 1},
+ * {@code 10}, and {@code 1.5}, lie on the boundaries of the cells of the
+ * grid of the index, so the converged solutions are spread over
+ * neighboring cells, which thus must be queried as well.
+ */
+public class ExploredSolutionsTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 100;
+
+  /** the parameters of the logistic model */
+  private static final double[] PARAMETERS = { 1d, 10d, 0.01d, 1.5d };
+
+  /** the number of fitting runs */
+  private static final int RUNS = 3;
+
+  /**
+   * the minimum average number of rejected solutions per run: with the
+   * neighboring cells queried, usually more than 240 solutions are
+   * rejected, otherwise mostly less than 150
+   */
+  private static final long MIN_REJECTIONS = 200L;
+
+  /** create the test */
+  public ExploredSolutionsTest() {
+    super();
+  }
+
+  /**
+   * Create noise-free data following the logistic model
+   *
+   * @return the data
+   */
+  private static final IMatrix __createData() {
+    final LogisticModelWithOffsetOverLogX model;
+    final double[] data;
+    double x;
+    int i;
+
+    model = new LogisticModelWithOffsetOverLogX();
+    data = new double[ExploredSolutionsTest.POINTS << 1];
+    for (i = ExploredSolutionsTest.POINTS; (--i) >= 0;) {
+      x = Math.pow(10d, ((3d * i) / ExploredSolutionsTest.POINTS));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = model.value(x,
+          ExploredSolutionsTest.PARAMETERS);
+    }
+    return new DoubleMatrix1D(data, ExploredSolutionsTest.POINTS, 2);
+  }
+
+  /**
+   * Fit the noise-free data several times and check that the explored
+   * solutions are rejected without hindering the search
+   *
+   * @param fitter
+   *          the fitter
+   */
+  private static final void __testExplored(final FunctionFitter fitter) {
+    final IMatrix data;
+    FittingResult result;
+    FittingMetrics metrics;
+    double[] parameters;
+    long rejections;
+    int run, index;
+
+    data = ExploredSolutionsTest.__createData();
+    rejections = 0L;
+    for (run = ExploredSolutionsTest.RUNS; (--run) >= 0;) {
+      result = fitter.use()//
+          .setPoints(data)//
+          .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+          .setFunctionToFit(new LogisticModelWithOffsetOverLogX())//
+          .setCollectMetrics(true)//
+          .create().call();
+
+      Assert.assertTrue(result.getQuality() < 1e-6d);
+      parameters = result.getFittedParametersRef();
+      for (index = parameters.length; (--index) >= 0;) {
+        Assert.assertEquals(ExploredSolutionsTest.PARAMETERS[index],
+            parameters[index],
+            (1e-3d * Math.abs(ExploredSolutionsTest.PARAMETERS[index])));
+      }
+
+      // several restarts reach the same optimum: all but one of them
+      // must be detected as explored
+      metrics = result.getMetrics();
+      Assert.assertTrue(metrics.getRejections() > 0L);
+      Assert.assertEquals(result.getQuality(),
+          metrics.getTraceQuality(metrics.getTraceLength() - 1), 0d);
+      rejections += metrics.getRejections();
+    }
+
+    Assert.assertTrue(rejections >= (ExploredSolutionsTest.RUNS
+        * ExploredSolutionsTest.MIN_REJECTIONS));
+  }
+
+  /** test the explored solutions of the serial LSSimplex fitter */
+  @Test(timeout = 3600000)
+  public void testExploredSerial() {
+    ExploredSolutionsTest.__testExplored(LSSimplexFitter.getInstance());
+  }
+
+  /**
+   * test the explored solutions of the parallel LSSimplex fitter, where
+   * the restarts share the index concurrently
+   */
+  @Test(timeout = 3600000)
+  public void testExploredParallel() {
+    ExploredSolutionsTest
+        .__testExplored(ParallelLSSimplexFitter.getInstance());
+  }
+}
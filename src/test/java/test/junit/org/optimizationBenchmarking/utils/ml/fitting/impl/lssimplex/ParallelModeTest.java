@@ -0,0 +1,46 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.ParallelLSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.QuadraticModel;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the
+ * {@linkplain FittingJobBuilder#setParallel(boolean) parallel mode} of the
+ * {@link ParallelLSSimplexFitter}: its jobs always run in parallel mode,
+ * but creating them must not change the builder.
+ */
+public class ParallelModeTest extends TestBase {
+
+  /** create the test */
+  public ParallelModeTest() {
+    super();
+  }
+
+  /** creating a job must not put the builder into parallel mode */
+  @Test(timeout = 3600000)
+  public void testBuilderNotModified() {
+    final IMatrix data;
+    final FittingJobBuilder builder;
+
+    data = new DoubleMatrix1D(new double[] { 1d, 6d, 2d, 17d, 3d, 34d,
+        4d, 57d, 5d, 86d }, 5, 2);
+    builder = ParallelLSSimplexFitter.getInstance().use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedRootMeanSquareError(data))//
+        .setFunctionToFit(new QuadraticModel())//
+        .setParallel(false);
+
+    Assert.assertTrue(builder.create().call().getQuality() < 1e-6d);
+    Assert.assertFalse(builder.isParallel());
+    Assert.assertTrue(builder.create().call().getQuality() < 1e-6d);
+    Assert.assertFalse(builder.isParallel());
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * Here we test the least-squares and simplex-based fitters from package
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex} of
+ * the <a href="http://www.optimizationBenchmarking.org/" >
+ * optimizationBenchmarking.org</a> tool suite.
+ */
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex;
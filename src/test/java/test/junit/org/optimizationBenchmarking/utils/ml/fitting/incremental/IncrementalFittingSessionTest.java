@@ -0,0 +1,205 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.incremental;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.incremental.IncrementalFittingSession;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+
+import shared.junit.TestBase;
+
+/** A test for the {@link IncrementalFittingSession}. */
+public class IncrementalFittingSessionTest extends TestBase {
+
+  /** the parameters of the logistic model the data is sampled from */
+  private static final double[] PARAMETERS = { 1d, 10d, 0.01d, 1.5d };
+
+  /** create the test */
+  public IncrementalFittingSessionTest() {
+    super();
+  }
+
+  /**
+   * Create points following a logistic model with multiplicative noise
+   *
+   * @param random
+   *          the random number generator
+   * @param count
+   *          the number of points
+   * @param noise
+   *          the relative noise
+   * @return the points
+   */
+  private static final double[] __createPoints(final Random random,
+      final int count, final double noise) {
+    final LogisticModelWithOffsetOverLogX model;
+    final double[] data;
+    double x;
+    int i;
+
+    model = new LogisticModelWithOffsetOverLogX();
+    data = new double[count << 1];
+    for (i = count; (--i) >= 0;) {
+      x = Math.pow(10d, (3d * random.nextDouble()));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = model.value(x,
+          IncrementalFittingSessionTest.PARAMETERS)
+          * (1d + (noise * random.nextGaussian()));
+    }
+    return data;
+  }
+
+  /**
+   * Append points to a session and to an array holding all points
+   *
+   * @param session
+   *          the session
+   * @param points
+   *          the points to append
+   * @param all
+   *          the array of all points
+   * @param start
+   *          the index in {@code all} where to put the points
+   */
+  private static final void __append(
+      final IncrementalFittingSession session, final double[] points,
+      final double[] all, final int start) {
+    int i;
+
+    for (i = 0; i < points.length; i += 2) {
+      session.append(points[i], points[i + 1]);
+    }
+    System.arraycopy(points, 0, all, start, points.length);
+  }
+
+  /**
+   * Assert that the quality of a result is the one on all given points
+   *
+   * @param all
+   *          the array of all points
+   * @param count
+   *          the number of points
+   * @param result
+   *          the result
+   */
+  private static final void __assertQuality(final double[] all,
+      final int count, final IFittingResult result) {
+    final IMatrix data;
+    final double[] copy;
+
+    copy = new double[count << 1];
+    System.arraycopy(all, 0, copy, 0, copy.length);
+    data = new DoubleMatrix1D(copy, count, 2);
+    Assert.assertEquals(
+        new WeightedRootMeanSquareError(data).evaluate(
+            new LogisticModelWithOffsetOverLogX(),
+            result.getFittedParametersRef()),
+        result.getQuality(), (1e-12d * result.getQuality()));
+  }
+
+  /** a session without points has no result */
+  @Test(timeout = 3600000, expected = IllegalStateException.class)
+  public void testNoPoints() {
+    new IncrementalFittingSession(LSSimplexFitter.getInstance(),
+        new LogisticModelWithOffsetOverLogX()).getResult();
+  }
+
+  /** non-finite points are rejected */
+  @Test(timeout = 3600000, expected = IllegalArgumentException.class)
+  public void testInvalidPoint() {
+    new IncrementalFittingSession(LSSimplexFitter.getInstance(),
+        new LogisticModelWithOffsetOverLogX()).append(1d, Double.NaN);
+  }
+
+  /**
+   * After the first global fit, new points only lead to local
+   * refinements, whose quality is measured on all points
+   */
+  @Test(timeout = 3600000)
+  public void testLocalRefinement() {
+    final Random random;
+    final IncrementalFittingSession session;
+    final double[] all;
+    final IFittingResult first, second, third;
+
+    random = new Random();
+    session = new IncrementalFittingSession(LSSimplexFitter.getInstance(),
+        new LogisticModelWithOffsetOverLogX(), Double.POSITIVE_INFINITY);
+    all = new double[600];
+
+    IncrementalFittingSessionTest.__append(session,
+        IncrementalFittingSessionTest.__createPoints(random, 100, 0.01d),
+        all, 0);
+    Assert.assertEquals(100, session.getPointCount());
+    first = session.getResult();
+    Assert.assertSame(first, session.getResult());
+    Assert.assertEquals(1, session.getGlobalFitCount());
+    Assert.assertEquals(0, session.getLocalFitCount());
+    IncrementalFittingSessionTest.__assertQuality(all, 100, first);
+
+    IncrementalFittingSessionTest.__append(session,
+        IncrementalFittingSessionTest.__createPoints(random, 100, 0.01d),
+        all, 200);
+    Assert.assertEquals(200, session.getPointCount());
+    second = session.getResult();
+    Assert.assertEquals(1, session.getGlobalFitCount());
+    Assert.assertEquals(1, session.getLocalFitCount());
+    IncrementalFittingSessionTest.__assertQuality(all, 200, second);
+
+    IncrementalFittingSessionTest.__append(session,
+        IncrementalFittingSessionTest.__createPoints(random, 100, 0.01d),
+        all, 400);
+    Assert.assertEquals(300, session.getPointCount());
+    third = session.getResult();
+    Assert.assertSame(third, session.getResult());
+    Assert.assertEquals(1, session.getGlobalFitCount());
+    Assert.assertEquals(2, session.getLocalFitCount());
+    IncrementalFittingSessionTest.__assertQuality(all, 300, third);
+  }
+
+  /**
+   * If the refined fit is worse than the latest global fit, a global fit
+   * starting at the refined parameters is performed, which must not be
+   * worse than the previous parameters on all points
+   */
+  @Test(timeout = 3600000)
+  public void testWarmStartedRefit() {
+    final Random random;
+    final IncrementalFittingSession session;
+    final double[] all;
+    final IFittingResult first, second;
+    final IMatrix data;
+
+    random = new Random();
+    session = new IncrementalFittingSession(LSSimplexFitter.getInstance(),
+        new LogisticModelWithOffsetOverLogX(), 0d);
+    all = new double[400];
+
+    IncrementalFittingSessionTest.__append(session,
+        IncrementalFittingSessionTest.__createPoints(random, 100, 0.01d),
+        all, 0);
+    first = session.getResult();
+    Assert.assertEquals(1, session.getGlobalFitCount());
+
+    // much noisier points make the refined fit worse than the first one
+    IncrementalFittingSessionTest.__append(session,
+        IncrementalFittingSessionTest.__createPoints(random, 100, 0.2d),
+        all, 200);
+    second = session.getResult();
+    Assert.assertEquals(2, session.getGlobalFitCount());
+    Assert.assertEquals(1, session.getLocalFitCount());
+    IncrementalFittingSessionTest.__assertQuality(all, 200, second);
+
+    data = new DoubleMatrix1D(all, 200, 2);
+    Assert.assertTrue(second.getQuality() <= //
+    new WeightedRootMeanSquareError(data).evaluate(
+        new LogisticModelWithOffsetOverLogX(),
+        first.getFittedParametersRef()));
+  }
+}
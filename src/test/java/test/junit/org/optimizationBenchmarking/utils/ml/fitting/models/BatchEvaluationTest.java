@@ -0,0 +1,211 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpLinearModelOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExponentialDecayModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.QuadraticModel;
+
+import shared.junit.TestBase;
+
+/**
+ * A test checking that the batch methods
+ * {@link BasicModel#valueBatch(double[], double[], double[], int)},
+ * {@link BasicModel#gradientBatch(double[], double[], double[][], int)},
+ * and
+ * {@link BasicModel#valueAndGradientBatch(double[], double[], double[], double[][], int)}
+ * of the hand-written models agree with their single-point methods
+ * {@link BasicModel#value(double, double[])} and
+ * {@link BasicModel#gradient(double, double[], double[])}, also for the
+ * special cases of zero coordinates and parameters. Since the batch
+ * methods only share common terms among the value and the gradient
+ * elements, most of them must compute exactly the same results.
+ */
+public class BatchEvaluationTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 150;
+
+  /** create the test */
+  public BatchEvaluationTest() {
+    super();
+  }
+
+  /**
+   * Assert that two values are equal, up to a relative error
+   *
+   * @param expected
+   *          the expected value
+   * @param actual
+   *          the actual value
+   * @param error
+   *          the relative error
+   */
+  private static final void __assertEquals(final double expected,
+      final double actual, final double error) {
+    if (expected != expected) {
+      Assert.assertTrue(actual != actual);
+    } else {
+      Assert.assertEquals(expected, actual,
+          (error * Math.max(1d, Math.abs(expected))));
+    }
+  }
+
+  /**
+   * Compare the batch methods of a model with its single-point methods
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param x
+   *          the coordinates
+   * @param count
+   *          the number of coordinates to evaluate
+   * @param error
+   *          the relative error
+   */
+  private static final void __compare(final BasicModel model,
+      final double[] parameters, final double[] x, final int count,
+      final double error) {
+    final double[] values, values2, gradient;
+    final double[][] gradients, gradients2;
+    int i, j;
+
+    values = new double[x.length];
+    values2 = new double[x.length];
+    gradient = new double[parameters.length];
+    gradients = new double[x.length][parameters.length];
+    gradients2 = new double[x.length][parameters.length];
+
+    model.valueBatch(x, parameters, values, count);
+    model.gradientBatch(x, parameters, gradients, count);
+    model.valueAndGradientBatch(x, parameters, values2, gradients2,
+        count);
+
+    for (i = count; (--i) >= 0;) {
+      BatchEvaluationTest.__assertEquals(model.value(x[i], parameters),
+          values[i], error);
+      BatchEvaluationTest.__assertEquals(values[i], values2[i], error);
+      model.gradient(x[i], parameters, gradient);
+      for (j = parameters.length; (--j) >= 0;) {
+        BatchEvaluationTest.__assertEquals(gradient[j], gradients[i][j],
+            error);
+        BatchEvaluationTest.__assertEquals(gradient[j], gradients2[i][j],
+            error);
+      }
+    }
+  }
+
+  /**
+   * Check a model for random parameters and coordinates
+   *
+   * @param model
+   *          the model
+   * @param minX
+   *          the minimum {@code x} coordinate
+   * @param maxX
+   *          the maximum {@code x} coordinate
+   * @param min
+   *          the minimum values of the parameters
+   * @param max
+   *          the maximum values of the parameters
+   * @param error
+   *          the relative error, {@code 0} if the batch methods must
+   *          compute exactly the same values
+   */
+  private static final void __check(final BasicModel model,
+      final double minX, final double maxX, final double[] min,
+      final double[] max, final double error) {
+    final Random random;
+    final double[] x, parameters;
+    int round, i;
+
+    random = new Random();
+    x = new double[BatchEvaluationTest.POINTS];
+    parameters = new double[min.length];
+    Assert.assertEquals(parameters.length, model.getParameterCount());
+
+    for (round = 300; (--round) >= 0;) {
+      for (i = x.length; (--i) >= 0;) {
+        x[i] = (minX + (random.nextDouble() * (maxX - minX)));
+      }
+      // the special cases of the models
+      x[random.nextInt(x.length)] = 0d;
+      x[random.nextInt(x.length)] = 1d;
+
+      for (i = parameters.length; (--i) >= 0;) {
+        parameters[i] = (min[i]
+            + (random.nextDouble() * (max[i] - min[i])));
+      }
+      if ((round & 3) == 0) {
+        parameters[random.nextInt(parameters.length)] = 0d;
+      }
+
+      BatchEvaluationTest.__compare(model, parameters, x, x.length,
+          error);
+      // incomplete batches
+      BatchEvaluationTest.__compare(model, parameters, x,
+          random.nextInt(x.length), error);
+    }
+  }
+
+  /** test the exponential decay model */
+  @Test(timeout = 3600000)
+  public void testExponentialDecay() {
+    BatchEvaluationTest.__check(new ExponentialDecayModel(), 0d, 100d, //
+        new double[] { -2d, -2d, -1d, 0.1d }, //
+        new double[] { 2d, 2d, 1d, 2d }, 0d);
+  }
+
+  /**
+   * test the exp-linear model over {@code log(x)}, whose batch methods
+   * compute {@code (x+d)^(c-1)} as {@code (x+d)^c/(x+d)} and may hence
+   * differ in the last digits
+   */
+  @Test(timeout = 3600000)
+  public void testExpLinear() {
+    BatchEvaluationTest.__check(new ExpLinearModelOverLogX(), 0d, 100d, //
+        new double[] { -2d, -2d, -1d, 0d }, //
+        new double[] { 2d, 2d, 1d, 10d }, 1e-13d);
+  }
+
+  /** test the quadratic model */
+  @Test(timeout = 3600000)
+  public void testQuadratic() {
+    BatchEvaluationTest.__check(new QuadraticModel(), -10d, 10d, //
+        new double[] { -2d, -2d, -2d }, //
+        new double[] { 2d, 2d, 2d }, 0d);
+  }
+
+  /** test the cubic model */
+  @Test(timeout = 3600000)
+  public void testCubic() {
+    BatchEvaluationTest.__check(new CubicModel(), -10d, 10d, //
+        new double[] { -2d, -2d, -2d, -2d }, //
+        new double[] { 2d, 2d, 2d, 2d }, 0d);
+  }
+
+  /** test the Gompertz model */
+  @Test(timeout = 3600000)
+  public void testGompertz() {
+    BatchEvaluationTest.__check(new GompertzModel(), 0d, 4d, //
+        new double[] { -2d, -2d, -1d, -0.5d }, //
+        new double[] { 2d, 2d, 1d, 0.5d }, 0d);
+  }
+
+  /** test the logistic model over {@code log(x)} */
+  @Test(timeout = 3600000)
+  public void testLogistic() {
+    BatchEvaluationTest.__check(new LogisticModelWithOffsetOverLogX(),
+        0d, 100d, //
+        new double[] { -2d, -2d, 0.01d, -2d }, //
+        new double[] { 2d, 2d, 1d, 2d }, 0d);
+  }
+}
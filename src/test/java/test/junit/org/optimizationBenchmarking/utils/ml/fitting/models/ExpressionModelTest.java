@@ -0,0 +1,374 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.document.spec.IMath;
+import org.optimizationBenchmarking.utils.document.spec.IMathRenderable;
+import org.optimizationBenchmarking.utils.document.spec.IParameterRenderer;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpressionModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ModelExpression;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+import org.optimizationBenchmarking.utils.text.textOutput.ITextOutput;
+
+import shared.junit.TestBase;
+
+/**
+ * A test checking that the values and gradients which an
+ * {@link ExpressionModel} derives automatically agree with those of the
+ * hand-written {@link LogisticModelWithOffsetOverLogX} and
+ * {@link GompertzModel}, and with central differences. The batches are
+ * longer than the blocks in which the points are evaluated, so that
+ * incomplete blocks are checked as well.
+ */
+public class ExpressionModelTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 150;
+
+  /** create the test */
+  public ExpressionModelTest() {
+    super();
+  }
+
+  /**
+   * Assert that two values are equal, up to a relative error
+   *
+   * @param expected
+   *          the expected value
+   * @param actual
+   *          the actual value
+   * @param error
+   *          the relative error
+   */
+  private static final void __assertEquals(final double expected,
+      final double actual, final double error) {
+    Assert.assertEquals(expected, actual,
+        (error * Math.max(1d, Math.abs(expected))));
+  }
+
+  /**
+   * Compare an expression-based model with another version, both point
+   * by point and in batches
+   *
+   * @param expression
+   *          the expression-based model
+   * @param model
+   *          the model to compare with
+   * @param parameters
+   *          the parameters
+   * @param x
+   *          the coordinates
+   */
+  private static final void __compare(final BasicModel expression,
+      final BasicModel model, final double[] parameters,
+      final double[] x) {
+    final int count;
+    final double[] values, expectedValues, gradient;
+    final double[][] gradients, expectedGradients, gradients2;
+    int i, j;
+
+    count = parameters.length;
+    values = new double[x.length];
+    expectedValues = new double[x.length];
+    gradient = new double[count];
+    gradients = new double[x.length][count];
+    gradients2 = new double[x.length][count];
+    expectedGradients = new double[x.length][count];
+
+    model.valueAndGradientBatch(x, parameters, expectedValues,
+        expectedGradients, x.length);
+
+    for (i = x.length; (--i) >= 0;) {
+      ExpressionModelTest.__assertEquals(expectedValues[i],
+          expression.value(x[i], parameters), 1e-12d);
+      expression.gradient(x[i], parameters, gradient);
+      for (j = count; (--j) >= 0;) {
+        ExpressionModelTest.__assertEquals(expectedGradients[i][j],
+            gradient[j], 1e-12d);
+      }
+    }
+
+    expression.valueBatch(x, parameters, values, x.length);
+    expression.gradientBatch(x, parameters, gradients, x.length);
+    for (i = x.length; (--i) >= 0;) {
+      ExpressionModelTest.__assertEquals(expectedValues[i], values[i],
+          1e-12d);
+      for (j = count; (--j) >= 0;) {
+        ExpressionModelTest.__assertEquals(expectedGradients[i][j],
+            gradients[i][j], 1e-12d);
+      }
+    }
+
+    expression.valueAndGradientBatch(x, parameters, values, gradients2,
+        x.length);
+    for (i = x.length; (--i) >= 0;) {
+      ExpressionModelTest.__assertEquals(expectedValues[i], values[i],
+          1e-12d);
+      for (j = count; (--j) >= 0;) {
+        Assert.assertEquals(gradients[i][j], gradients2[i][j], 0d);
+      }
+    }
+  }
+
+  /**
+   * Compare the gradient of a model with central differences
+   *
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param x
+   *          the coordinates
+   */
+  private static final void __checkDifferences(final BasicModel model,
+      final double[] parameters, final double[] x) {
+    final double[] gradient, shifted;
+    double h, expected;
+    int i, j;
+
+    gradient = new double[parameters.length];
+    shifted = new double[parameters.length];
+    for (i = x.length; (--i) >= 0;) {
+      model.gradient(x[i], parameters, gradient);
+      for (j = parameters.length; (--j) >= 0;) {
+        System.arraycopy(parameters, 0, shifted, 0, parameters.length);
+        h = (1e-6d * Math.max(1d, Math.abs(parameters[j])));
+        shifted[j] += h;
+        expected = model.value(x[i], shifted);
+        shifted[j] -= (h + h);
+        expected = ((expected - model.value(x[i], shifted)) / (h + h));
+        ExpressionModelTest.__assertEquals(expected, gradient[j], 1e-5d);
+      }
+    }
+  }
+
+  /**
+   * Check an expression-based model for random parameters
+   *
+   * @param expression
+   *          the expression-based model
+   * @param model
+   *          the hand-written model, or {@code null} if there is none,
+   *          in which case the batches of the expression-based model are
+   *          compared with its single-point evaluation
+   * @param minX
+   *          the minimum {@code x} coordinate
+   * @param maxX
+   *          the maximum {@code x} coordinate
+   * @param min
+   *          the minimum values of the parameters
+   * @param max
+   *          the maximum values of the parameters
+   */
+  private static final void __check(final BasicModel expression,
+      final BasicModel model, final double minX, final double maxX,
+      final double[] min, final double[] max) {
+    final Random random;
+    final double[] x, parameters;
+    int round, i;
+
+    random = new Random();
+    x = new double[ExpressionModelTest.POINTS];
+    parameters = new double[min.length];
+    Assert.assertEquals(parameters.length,
+        expression.getParameterCount());
+
+    for (round = 100; (--round) >= 0;) {
+      for (i = x.length; (--i) >= 0;) {
+        x[i] = (minX + (random.nextDouble() * (maxX - minX)));
+      }
+      for (i = parameters.length; (--i) >= 0;) {
+        parameters[i] = (min[i]
+            + (random.nextDouble() * (max[i] - min[i])));
+      }
+      ExpressionModelTest.__compare(expression,
+          ((model != null) ? model : expression), parameters, x);
+      ExpressionModelTest.__checkDifferences(expression, parameters, x);
+    }
+  }
+
+  /** compare the expression-based logistic model with the original */
+  @Test(timeout = 3600000)
+  public void testLogistic() {
+    ExpressionModelTest.__check(new __LogisticExpression(),
+        new LogisticModelWithOffsetOverLogX(), 0.5d, 10.5d,
+        new double[] { -2d, -2d, 0.01d, -2d }, //
+        new double[] { 2d, 2d, 1d, 2d });
+  }
+
+  /** compare the expression-based Gompertz model with the original */
+  @Test(timeout = 3600000)
+  public void testGompertz() {
+    ExpressionModelTest.__check(new __GompertzExpression(),
+        new GompertzModel(), 0d, 4d, //
+        new double[] { -2d, -2d, -1d, -0.5d }, //
+        new double[] { 2d, 2d, 1d, 0.5d });
+  }
+
+  /**
+   * check a formula using all operations and a common sub-expression
+   * against central differences
+   */
+  @Test(timeout = 3600000)
+  public void testAllOperations() {
+    final double[] parameters;
+    final BasicModel model;
+    double x;
+
+    model = new __MixedExpression();
+    ExpressionModelTest.__check(model, null, 0.5d, 10.5d, //
+        new double[] { 0.5d, -1d, 0.5d }, //
+        new double[] { 2d, 1d, 2d });
+
+    parameters = new double[] { 1.5d, -0.3d, 0.7d };
+    for (x = 0.5d; x < 10d; x += 0.25d) {
+      ExpressionModelTest.__assertEquals(
+          __MixedExpression._value(x, parameters),
+          model.value(x, parameters), 1e-12d);
+    }
+  }
+
+  /**
+   * A base class for the expression-based models of this test, which are
+   * never rendered
+   */
+  private static abstract class __TestExpression extends ExpressionModel {
+
+    /**
+     * create
+     *
+     * @param formula
+     *          the formula
+     */
+    __TestExpression(final ModelExpression.Term formula) {
+      super(formula);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final IParameterGuesser createParameterGuesser(
+        final IMatrix data) {
+      throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final void mathRender(final ITextOutput out,
+        final IParameterRenderer renderer, final IMathRenderable x) {
+      throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final void mathRender(final IMath out,
+        final IParameterRenderer renderer, final IMathRenderable x) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** the logistic model {@code a+b/(1+c*x^d)} */
+  private static final class __LogisticExpression
+      extends __TestExpression {
+
+    /** create */
+    __LogisticExpression() {
+      super(__LogisticExpression.__define());
+    }
+
+    /**
+     * Define the formula
+     *
+     * @return the root term of the formula
+     */
+    private static final ModelExpression.Term __define() {
+      final ModelExpression e;
+
+      e = new ModelExpression(4);
+      return e.add(e.parameter(0), e.divide(e.parameter(1), //
+          e.add(e.constant(1d), //
+              e.multiply(e.parameter(2), e.pow(e.x(), e.parameter(3))))));
+    }
+  }
+
+  /** the Gompertz model {@code a+(b*exp(c*exp(d*x)))} */
+  private static final class __GompertzExpression
+      extends __TestExpression {
+
+    /** create */
+    __GompertzExpression() {
+      super(__GompertzExpression.__define());
+    }
+
+    /**
+     * Define the formula
+     *
+     * @return the root term of the formula
+     */
+    private static final ModelExpression.Term __define() {
+      final ModelExpression e;
+
+      e = new ModelExpression(4);
+      return e.add(e.parameter(0), e.multiply(e.parameter(1), e.exp(//
+          e.multiply(e.parameter(2), //
+              e.exp(e.multiply(e.parameter(3), e.x()))))));
+    }
+  }
+
+  /**
+   * the formula
+   * {@code sqrt(a*x)*log(x)-(-(b*x)^2)+exp(-c*x)+c^x/(1+x)-a*x}, which
+   * uses {@code a*x} twice
+   */
+  private static final class __MixedExpression extends __TestExpression {
+
+    /** create */
+    __MixedExpression() {
+      super(__MixedExpression.__define());
+    }
+
+    /**
+     * Define the formula
+     *
+     * @return the root term of the formula
+     */
+    private static final ModelExpression.Term __define() {
+      final ModelExpression e;
+      final ModelExpression.Term ax;
+
+      e = new ModelExpression(3);
+      ax = e.multiply(e.parameter(0), e.x());
+      return e.subtract(e.add(e.add(
+          e.subtract(e.multiply(e.sqrt(ax), e.log(e.x())),
+              e.negate(e.sqr(e.multiply(e.parameter(1), e.x())))),
+          e.exp(e.multiply(e.negate(e.parameter(2)), e.x()))), //
+          e.divide(e.pow(e.parameter(2), e.x()),
+              e.add(e.constant(1d), e.x()))),
+          e.multiply(e.parameter(0), e.x()));
+    }
+
+    /**
+     * Compute the value of the formula directly
+     *
+     * @param x
+     *          the {@code x} coordinate
+     * @param parameters
+     *          the parameters
+     * @return the value
+     */
+    static final double _value(final double x, final double[] parameters) {
+      final double ax, bx;
+
+      ax = (parameters[0] * x);
+      bx = (parameters[1] * x);
+      return ((((Math.sqrt(ax) * Math.log(x)) + (bx * bx))
+          + Math.exp(-parameters[2] * x))
+          + (Math.pow(parameters[2], x) / (1d + x))) - ax;
+    }
+  }
+}
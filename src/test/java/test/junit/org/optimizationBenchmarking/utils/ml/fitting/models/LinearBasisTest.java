@@ -0,0 +1,154 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpLinearModelOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExponentialDecayModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.QuadraticModel;
+
+import shared.junit.TestBase;
+
+/**
+ * A test checking that the
+ * {@linkplain BasicModel#linearBasisBatch(double[], double[], double[][], int)
+ * basis functions} of the linear parameters of the models are consistent
+ * with their values, and that the gradient of the logistic model is
+ * correct also for non-positive {@code c}.
+ */
+public class LinearBasisTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 100;
+
+  /** create the test */
+  public LinearBasisTest() {
+    super();
+  }
+
+  /**
+   * Check that the value of a model is the linear combination of its
+   * basis functions, for random parameters
+   *
+   * @param model
+   *          the model
+   * @param minC
+   *          the minimum value of the third parameter
+   */
+  private static final void __check(final BasicModel model,
+      final double minC) {
+    final Random random;
+    final int linear;
+    final double[] x, parameters;
+    final double[][] basis;
+    double expected, actual;
+    int i, j, round;
+
+    random = new Random();
+    linear = model.getLinearParameterCount();
+    Assert.assertTrue(linear > 0);
+    x = new double[LinearBasisTest.POINTS];
+    parameters = new double[model.getParameterCount()];
+    basis = new double[x.length][parameters.length];
+
+    for (round = 100; (--round) >= 0;) {
+      for (i = x.length; (--i) >= 0;) {
+        x[i] = (0.5d + (random.nextDouble() * 10d));
+      }
+      for (j = parameters.length; (--j) >= 0;) {
+        parameters[j] = ((random.nextDouble() * 4d) - 2d);
+      }
+      if (parameters.length > 2) {
+        parameters[2] = (minC + (random.nextDouble() * (1d - minC)));
+      }
+      model.linearBasisBatch(x, parameters, basis, x.length);
+
+      for (i = x.length; (--i) >= 0;) {
+        expected = model.value(x[i], parameters);
+        actual = 0d;
+        for (j = linear; (--j) >= 0;) {
+          Assert.assertTrue(Math.abs(basis[i][j]) < Double.POSITIVE_INFINITY);
+          actual += (parameters[j] * basis[i][j]);
+        }
+        if (Math.abs(expected) < 1e100d) {
+          Assert.assertEquals(expected, actual,
+              (1e-9d * Math.max(1d, Math.abs(expected))));
+        }
+      }
+    }
+  }
+
+  /** test the basis of the quadratic model */
+  @Test(timeout = 3600000)
+  public void testQuadratic() {
+    LinearBasisTest.__check(new QuadraticModel(), -1d);
+  }
+
+  /** test the basis of the cubic model */
+  @Test(timeout = 3600000)
+  public void testCubic() {
+    LinearBasisTest.__check(new CubicModel(), -1d);
+  }
+
+  /** test the basis of the exp-linear model */
+  @Test(timeout = 3600000)
+  public void testExpLinear() {
+    LinearBasisTest.__check(new ExpLinearModelOverLogX(), -1d);
+  }
+
+  /** test the basis of the exponential decay model */
+  @Test(timeout = 3600000)
+  public void testExponentialDecay() {
+    LinearBasisTest.__check(new ExponentialDecayModel(), -1d);
+  }
+
+  /** test the basis of the Gompertz model */
+  @Test(timeout = 3600000)
+  public void testGompertz() {
+    LinearBasisTest.__check(new GompertzModel(), -1d);
+  }
+
+  /** test the basis of the logistic model, also for negative {@code c} */
+  @Test(timeout = 3600000)
+  public void testLogistic() {
+    LinearBasisTest.__check(new LogisticModelWithOffsetOverLogX(), -1d);
+  }
+
+  /**
+   * Compare the gradient of the logistic model with central differences
+   * for positive, zero, and negative values of {@code c}.
+   */
+  @Test(timeout = 3600000)
+  public void testLogisticGradient() {
+    final LogisticModelWithOffsetOverLogX model;
+    final double[] gradient, shifted;
+    double[] parameters;
+    double x, h, expected;
+    int j;
+
+    model = new LogisticModelWithOffsetOverLogX();
+    gradient = new double[4];
+    shifted = new double[4];
+    for (final double c : new double[] { 0.5d, 0d, -0.01d }) {
+      parameters = new double[] { 1d, 3d, c, 0.7d };
+      for (x = 1.5d; x < 10d; x += 1d) {
+        model.gradient(x, parameters, gradient);
+        for (j = 4; (--j) >= 0;) {
+          System.arraycopy(parameters, 0, shifted, 0, 4);
+          h = (1e-6d * Math.max(1d, Math.abs(parameters[j])));
+          shifted[j] += h;
+          expected = model.value(x, shifted);
+          shifted[j] -= (h + h);
+          expected = ((expected - model.value(x, shifted)) / (h + h));
+          Assert.assertEquals(expected, gradient[j],
+              (1e-6d * Math.max(1d, Math.abs(expected))));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.models;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpLinearModelOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IParameterGuesser;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the parameter guessers of the models: the guesses must lie
+ * in the ranges of one of the variants of the model.
+ */
+public class ParameterGuesserTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 200;
+  /** the number of guesses */
+  private static final int GUESSES = 1000;
+  /** the smallest {@code x}-coordinate */
+  private static final double MIN_X = 2d;
+
+  /** create the test */
+  public ParameterGuesserTest() {
+    super();
+  }
+
+  /**
+   * Create a data set with decreasing {@code y}-coordinates and
+   * multiplicative noise
+   *
+   * @param random
+   *          the random number generator
+   * @return the data
+   */
+  private static final IMatrix __createData(final Random random) {
+    final double[] data;
+    double x;
+    int i;
+
+    data = new double[ParameterGuesserTest.POINTS << 1];
+    for (i = ParameterGuesserTest.POINTS; (--i) >= 0;) {
+      x = (ParameterGuesserTest.MIN_X - 1d)
+          + Math.pow(10d, ((3d * i) / ParameterGuesserTest.POINTS));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = (1d + (10d / Math.sqrt(x)))
+          * (1d + (0.01d * random.nextGaussian()));
+    }
+    return new DoubleMatrix1D(data, ParameterGuesserTest.POINTS, 2);
+  }
+
+  /**
+   * Create guesses for a model and check them
+   *
+   * @param model
+   *          the model
+   * @param signs
+   *          the allowed signs of parameters {@code b}, {@code c}, and
+   *          {@code d}, one row per variant
+   */
+  private static final void __check(final BasicModel model,
+      final int[][] signs) {
+    final Random random;
+    final IParameterGuesser guesser;
+    final double[] guess;
+    int index, parameter;
+    boolean found, matches;
+
+    random = new Random();
+    guesser = model
+        .createParameterGuesser(ParameterGuesserTest.__createData(random));
+    guess = new double[model.getParameterCount()];
+
+    for (index = ParameterGuesserTest.GUESSES; (--index) >= 0;) {
+      guesser.createRandomGuess(guess, random);
+      for (parameter = guess.length; (--parameter) >= 0;) {
+        Assert.assertTrue(
+            Math.abs(guess[parameter]) < Double.POSITIVE_INFINITY);
+      }
+
+      found = false;
+      for (final int[] variant : signs) {
+        matches = true;
+        for (parameter = 1; parameter < guess.length; parameter++) {
+          if (Math.signum(guess[parameter]) != variant[parameter - 1]) {
+            matches = false;
+            break;
+          }
+        }
+        found |= matches;
+      }
+      Assert.assertTrue(found);
+    }
+  }
+
+  /** the guesses for the logistic model */
+  @Test(timeout = 3600000)
+  public void testLogistic() {
+    ParameterGuesserTest.__check(new LogisticModelWithOffsetOverLogX(),
+        new int[][] { { 1, 1, 1 }, { -1, 1, -1 } });
+  }
+
+  /** the guesses for the Gompertz model */
+  @Test(timeout = 3600000)
+  public void testGompertz() {
+    ParameterGuesserTest.__check(new GompertzModel(),
+        new int[][] { { -1, -1, -1 }, { 1, -1, 1 } });
+  }
+
+  /**
+   * The offset {@code d} of the exp-linear model must keep {@code x+d}
+   * positive for all points, since the model uses {@code log(x+d)}
+   */
+  @Test(timeout = 3600000)
+  public void testExpLinearOffset() {
+    final Random random;
+    final IParameterGuesser guesser;
+    final double[] guess;
+    int index;
+
+    random = new Random();
+    guesser = new ExpLinearModelOverLogX()
+        .createParameterGuesser(ParameterGuesserTest.__createData(random));
+    guess = new double[4];
+
+    for (index = ParameterGuesserTest.GUESSES; (--index) >= 0;) {
+      guesser.createRandomGuess(guess, random);
+      Assert.assertTrue((guess[3] + ParameterGuesserTest.MIN_X) > 0d);
+      Assert.assertTrue(guess[3] < 1e3d);
+    }
+  }
+}
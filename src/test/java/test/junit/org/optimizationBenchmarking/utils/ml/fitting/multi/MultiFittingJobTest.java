@@ -0,0 +1,591 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.multi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJob;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.abstr.FunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.cache.FittingResultStore;
+import org.optimizationBenchmarking.utils.ml.fitting.impl.lssimplex.LSSimplexFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExpLinearModelOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.ExponentialDecayModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.GompertzModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.models.QuadraticModel;
+import org.optimizationBenchmarking.utils.ml.fitting.multi.MultiFittingJobBuilder;
+import org.optimizationBenchmarking.utils.ml.fitting.multi.MultiFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedHuberError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFittingResult;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.IFunctionFitter;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+import shared.junit.TestBase;
+
+/**
+ * A test for the scheduling, cancellation, racing, and result caching of
+ * the multi-function fitter. All jobs use a fitter which counts how often
+ * it actually performs a fitting for a function with a given number of
+ * parameters. The robust Huber error is used as quality measure, as it
+ * cannot be minimized in closed form, so every fitting is counted.
+ */
+public class MultiFittingJobTest extends TestBase {
+
+  /** the number of points */
+  private static final int POINTS = 64;
+
+  /** create the test */
+  public MultiFittingJobTest() {
+    super();
+  }
+
+  /**
+   * Create a data set from a cubic polynomial
+   *
+   * @param random
+   *          the random number generator
+   * @param noise
+   *          the relative noise to add to the y-coordinates
+   * @param cubic
+   *          the coefficient of the cubic term
+   * @return the data
+   */
+  private static final IMatrix __createData(final Random random,
+      final double noise, final double cubic) {
+    final double[] data, parameters;
+    double x;
+    int i;
+
+    parameters = new double[] { (1d + random.nextDouble()), //
+        (0.5d + random.nextDouble()), //
+        (0.1d + (0.1d * random.nextDouble())), cubic };
+    data = new double[MultiFittingJobTest.POINTS << 1];
+    for (i = MultiFittingJobTest.POINTS; (--i) >= 0;) {
+      x = (1d + (0.25d * i) + (0.1d * random.nextDouble()));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = (parameters[0] + (x * (parameters[1]
+          + (x * (parameters[2] + (x * parameters[3])))))) * //
+          (1d + (noise * random.nextGaussian()));
+    }
+    return new DoubleMatrix1D(data, MultiFittingJobTest.POINTS, 2);
+  }
+
+  /**
+   * Create the builder for a multi-function fitting job without
+   * persistent result store
+   *
+   * @param data
+   *          the data
+   * @param fitter
+   *          the fitter
+   * @param functions
+   *          the functions
+   * @return the builder
+   */
+  private static final MultiFittingJobBuilder __builder(
+      final IMatrix data, final IFunctionFitter fitter,
+      final ParametricUnaryFunction... functions) {
+    return MultiFunctionFitter.getInstance().use()//
+        .setPoints(data)//
+        .setQualityMeasure(new WeightedHuberError(data))//
+        .setFunctionsToFit(Arrays.asList(functions))//
+        .setFitters(fitter)//
+        .setResultStore(null);
+  }
+
+  /**
+   * Check that a result is valid
+   *
+   * @param result
+   *          the result
+   * @param parameterCount
+   *          the expected number of parameters
+   */
+  private static final void __checkResult(final IFittingResult result,
+      final int parameterCount) {
+    final double quality;
+
+    Assert.assertNotNull(result);
+    quality = result.getQuality();
+    Assert.assertTrue((quality >= 0d)
+        && (quality < Double.POSITIVE_INFINITY));
+    Assert.assertEquals(parameterCount,
+        result.getFittedParametersRef().length);
+    Assert.assertEquals(parameterCount,
+        result.getFittedFunction().getParameterCount());
+  }
+
+  /**
+   * Fitting the same data a second time must return the cached result
+   * without performing any fitting, unless caching is disabled.
+   */
+  @Test(timeout = 3600000)
+  public void testCacheHit() {
+    final IMatrix data;
+    final __CountingFitter fitter;
+    final IFittingResult first, second;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0.05d, 0.02d);
+    fitter = new __CountingFitter();
+
+    first = MultiFittingJobTest.__builder(data, fitter, //
+        new QuadraticModel(), new CubicModel()).create().call();
+    MultiFittingJobTest.__checkResult(first,
+        first.getFittedFunction().getParameterCount());
+    Assert.assertEquals(1, fitter.m_fits.get(3));
+    Assert.assertEquals(1, fitter.m_fits.get(4));
+
+    second = MultiFittingJobTest.__builder(//
+        MultiFittingJobTest.__copy(data), fitter, //
+        new QuadraticModel(), new CubicModel()).create().call();
+    Assert.assertEquals(1, fitter.m_fits.get(3));
+    Assert.assertEquals(1, fitter.m_fits.get(4));
+    Assert.assertEquals(first.getQuality(), second.getQuality(), 0d);
+    Assert.assertArrayEquals(first.getFittedParametersRef(),
+        second.getFittedParametersRef(), 0d);
+
+    MultiFittingJobTest.__builder(data, fitter, //
+        new QuadraticModel(), new CubicModel())//
+        .setCacheResults(false).create().call();
+    Assert.assertEquals(2, fitter.m_fits.get(3));
+    Assert.assertEquals(2, fitter.m_fits.get(4));
+  }
+
+  /**
+   * With a persistent result store, every fitter is wrapped into a
+   * caching fitter, but the result of one fitter must still never be
+   * returned for another one.
+   *
+   * @throws IOException
+   *           if the store cannot be created
+   */
+  @Test(timeout = 3600000)
+  public void testCacheHitWithStore() throws IOException {
+    final IMatrix data;
+    final __CountingFitter counting;
+    final __FixedFitter fixed;
+    final Path path;
+    final IFittingResult first, second;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0.05d, 0.02d);
+    counting = new __CountingFitter();
+    fixed = new __FixedFitter(0.5d);
+
+    path = Files.createTempFile("multiFitting", ".store"); //$NON-NLS-1$//$NON-NLS-2$
+    try {
+      try (final FittingResultStore store = FittingResultStore
+          .open(path)) {
+        MultiFittingJobTest.__builder(data, counting, new CubicModel())//
+            .setFitters(counting, fixed).setResultStore(store)//
+            .create().call();
+        Assert.assertEquals(1, counting.m_fits.get(4));
+        Assert.assertEquals(1, fixed.m_fits.get());
+
+        first = MultiFittingJobTest.__builder(data, fixed, //
+            new CubicModel()).setResultStore(store).create().call();
+        MultiFittingJobTest.__checkResult(first, 4);
+        Assert.assertEquals(1, fixed.m_fits.get());
+        Assert.assertArrayEquals(new double[] { 0.5d, 0.5d, 0.5d, 0.5d },
+            first.getFittedParametersRef(), 0d);
+
+        second = MultiFittingJobTest.__builder(data, counting, //
+            new CubicModel()).setResultStore(store).create().call();
+        MultiFittingJobTest.__checkResult(second, 4);
+        Assert.assertEquals(1, counting.m_fits.get(4));
+        Assert.assertTrue(second.getQuality() < first.getQuality());
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Two differently configured fitters of the same class must not share
+   * their cached results.
+   */
+  @Test(timeout = 3600000)
+  public void testCacheHitPerFitterInstance() {
+    final IMatrix data;
+    final __FixedFitter first, second;
+    IFittingResult result;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0.05d, 0.02d);
+    first = new __FixedFitter(0.5d);
+    second = new __FixedFitter(0.25d);
+
+    MultiFittingJobTest.__builder(data, first, new CubicModel())//
+        .setFitters(first, second).create().call();
+    Assert.assertEquals(1, first.m_fits.get());
+    Assert.assertEquals(1, second.m_fits.get());
+
+    result = MultiFittingJobTest.__builder(data, first, //
+        new CubicModel()).create().call();
+    Assert.assertEquals(1, first.m_fits.get());
+    Assert.assertArrayEquals(new double[] { 0.5d, 0.5d, 0.5d, 0.5d },
+        result.getFittedParametersRef(), 0d);
+
+    result = MultiFittingJobTest.__builder(data, second, //
+        new CubicModel()).create().call();
+    Assert.assertEquals(1, second.m_fits.get());
+    Assert.assertArrayEquals(new double[] { 0.25d, 0.25d, 0.25d, 0.25d },
+        result.getFittedParametersRef(), 0d);
+  }
+
+  /**
+   * If the same pair of fitter and function is fitted twice in one job,
+   * the better result must remain cached, also if it was found first.
+   */
+  @Test(timeout = 3600000)
+  public void testCacheKeepsBetterResult() {
+    final IMatrix data;
+    final __FixedFitter fitter;
+    final IFittingResult first, second;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0.05d, 0.02d);
+    fitter = new __FixedFitter(0.5d, 5d);
+
+    first = MultiFittingJobTest.__builder(data, fitter, //
+        new CubicModel()).setFitters(fitter, fitter).create().call();
+    Assert.assertEquals(2, fitter.m_fits.get());
+    Assert.assertArrayEquals(new double[] { 0.5d, 0.5d, 0.5d, 0.5d },
+        first.getFittedParametersRef(), 0d);
+
+    second = MultiFittingJobTest.__builder(data, fitter, //
+        new CubicModel()).create().call();
+    Assert.assertEquals(2, fitter.m_fits.get());
+    Assert.assertEquals(first.getQuality(), second.getQuality(), 0d);
+    Assert.assertArrayEquals(first.getFittedParametersRef(),
+        second.getFittedParametersRef(), 0d);
+  }
+
+  /**
+   * Copy a data matrix
+   *
+   * @param data
+   *          the data
+   * @return the copy
+   */
+  private static final IMatrix __copy(final IMatrix data) {
+    final double[] copy;
+    int i;
+
+    copy = new double[data.m() << 1];
+    for (i = data.m(); (--i) >= 0;) {
+      copy[i << 1] = data.getDouble(i, 0);
+      copy[(i << 1) + 1] = data.getDouble(i, 1);
+    }
+    return new DoubleMatrix1D(copy, data.m(), 2);
+  }
+
+  /**
+   * If the cheaper function fits the data perfectly, the fitting of the
+   * function with more parameters must be cancelled before it starts.
+   */
+  @Test(timeout = 3600000)
+  public void testCancellation() {
+    final IMatrix data;
+    final __CountingFitter fitter;
+    final IFittingResult result;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0d, 0d);
+    fitter = new __CountingFitter();
+
+    result = MultiFittingJobTest.__builder(data, fitter, //
+        new CubicModel(), new QuadraticModel())//
+        .setTargetQuality(1e-6d).setCacheResults(false).create().call();
+    MultiFittingJobTest.__checkResult(result, 3);
+    Assert.assertTrue(result.getQuality() <= 1e-6d);
+    Assert.assertEquals(1, fitter.m_fits.get(3));
+    Assert.assertEquals(0, fitter.m_fits.get(4));
+  }
+
+  /**
+   * Without a reachable target quality, all tasks must be executed, also
+   * if the scheduler forks them into a fork-join pool.
+   *
+   * @throws Exception
+   *           if something fails
+   */
+  @Test(timeout = 3600000)
+  public void testForkJoinScheduler() throws Exception {
+    final IMatrix data;
+    final __CountingFitter fitter;
+    final IFittingResult result;
+    final ForkJoinPool pool;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0.05d, 0.02d);
+    fitter = new __CountingFitter();
+
+    pool = new ForkJoinPool(4);
+    try {
+      result = pool.submit(MultiFittingJobTest.__builder(data, fitter, //
+          new QuadraticModel(), new CubicModel(),
+          new ExponentialDecayModel(), new GompertzModel())//
+          .setTargetQuality(Double.NEGATIVE_INFINITY)//
+          .setCacheResults(false).create()).get();
+    } finally {
+      pool.shutdown();
+    }
+
+    MultiFittingJobTest.__checkResult(result,
+        result.getFittedFunction().getParameterCount());
+    Assert.assertEquals(1, fitter.m_fits.get(3));
+    Assert.assertEquals(3, fitter.m_fits.get(4));
+  }
+
+  /**
+   * When racing, the pairs are first fitted to subsets of the data, but
+   * the model from which the data was generated must survive and be
+   * fitted to all the data.
+   */
+  @Test(timeout = 3600000)
+  public void testRacing() {
+    final IMatrix data;
+    final __CountingFitter fitter;
+    final IFittingResult result;
+    int fits, i;
+
+    data = MultiFittingJobTest.__createData(new Random(), 1e-6d, 0.05d);
+    fitter = new __CountingFitter();
+
+    result = MultiFittingJobTest.__builder(data, fitter, //
+        new QuadraticModel(), new CubicModel(),
+        new ExponentialDecayModel(), new GompertzModel(),
+        new ExpLinearModelOverLogX(),
+        new LogisticModelWithOffsetOverLogX())//
+        .setRacing(true).setCacheResults(false).create().call();
+
+    MultiFittingJobTest.__checkResult(result, 4);
+    Assert.assertTrue(result.getFittedFunction() instanceof CubicModel);
+    Assert.assertTrue(result.getQuality() < 1e-4d);
+
+    fits = 0;
+    for (i = fitter.m_fits.length(); (--i) >= 0;) {
+      fits += fitter.m_fits.get(i);
+    }
+    // 6 pairs in the first round, at least one more round on all data
+    Assert.assertTrue(fits > 6);
+  }
+
+  /**
+   * With three pairs, racing consists of a single round on a third of
+   * the points with a third of the effort, followed by the fitting of the
+   * best pair to all points with full effort.
+   */
+  @Test(timeout = 3600000)
+  public void testRacingRounds() {
+    final IMatrix data;
+    final __CountingFitter fitter;
+    final IFittingResult result;
+    double[] call;
+    int i;
+
+    data = MultiFittingJobTest.__createData(new Random(), 1e-6d, 0d);
+    fitter = new __CountingFitter();
+
+    result = MultiFittingJobTest.__builder(data, fitter, //
+        new QuadraticModel(), new CubicModel(),
+        new ExponentialDecayModel())//
+        .setRacing(true).setCacheResults(false).create().call();
+    MultiFittingJobTest.__checkResult(result,
+        result.getFittedFunction().getParameterCount());
+
+    Assert.assertEquals(4, fitter.m_calls.size());
+    for (i = 0; i < 3; i++) {
+      call = fitter.m_calls.get(i);
+      Assert.assertEquals((MultiFittingJobTest.POINTS / 3), call[0], 0d);
+      Assert.assertEquals((1d / 3d), call[1], 1e-15d);
+    }
+    call = fitter.m_calls.get(3);
+    Assert.assertEquals(MultiFittingJobTest.POINTS, call[0], 0d);
+    Assert.assertEquals(1d, call[1], 0d);
+  }
+
+  /**
+   * Racing a single pair must not perform any racing round.
+   */
+  @Test(timeout = 3600000)
+  public void testRacingSinglePair() {
+    final IMatrix data;
+    final __CountingFitter fitter;
+
+    data = MultiFittingJobTest.__createData(new Random(), 0.05d, 0d);
+    fitter = new __CountingFitter();
+
+    MultiFittingJobTest.__checkResult(MultiFittingJobTest.__builder(data,
+        fitter, new QuadraticModel()).setRacing(true)
+        .setCacheResults(false).create().call(), 3);
+    Assert.assertEquals(1, fitter.m_calls.size());
+    Assert.assertEquals(MultiFittingJobTest.POINTS,
+        fitter.m_calls.get(0)[0], 0d);
+  }
+
+  /** a fitter counting the fittings, by parameter count */
+  private static final class __CountingFitter extends FunctionFitter {
+
+    /** the number of fittings, indexed by parameter count */
+    final AtomicIntegerArray m_fits;
+    /** the sample counts and efforts of the fittings, in order */
+    final ArrayList<double[]> m_calls;
+
+    /** create */
+    __CountingFitter() {
+      super();
+      this.m_fits = new AtomicIntegerArray(16);
+      this.m_calls = new ArrayList<>();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean canUse() {
+      return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final FittingJob create(final FittingJobBuilder builder) {
+      return new __CountingJob(this, builder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final String toString() {
+      return "Counting Fitter"; //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * a fitter counting its fittings, which sets all parameters to the same
+   * value, taken from a fixed sequence
+   */
+  private static final class __FixedFitter extends FunctionFitter {
+
+    /**
+     * the values of all parameters, one per fitting, where the last one
+     * is used for all further fittings
+     */
+    final double[] m_values;
+    /** the number of fittings */
+    final AtomicInteger m_fits;
+
+    /**
+     * create
+     *
+     * @param values
+     *          the values of all parameters, one per fitting
+     */
+    __FixedFitter(final double... values) {
+      super();
+      this.m_values = values;
+      this.m_fits = new AtomicInteger();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final boolean canUse() {
+      return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final FittingJob create(final FittingJobBuilder builder) {
+      return new __FixedJob(this, builder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public final String toString() {
+      return ("Fixed Fitter " + Arrays.toString(this.m_values)); //$NON-NLS-1$
+    }
+  }
+
+  /** the job of the fixed fitter */
+  private static final class __FixedJob extends FittingJob {
+
+    /** the owner */
+    private final __FixedFitter m_owner;
+
+    /**
+     * create
+     *
+     * @param owner
+     *          the owner
+     * @param builder
+     *          the builder
+     */
+    __FixedJob(final __FixedFitter owner,
+        final FittingJobBuilder builder) {
+      super(builder);
+      this.m_owner = owner;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void fit() {
+      final double[] parameters, values;
+
+      values = this.m_owner.m_values;
+      parameters = new double[this.m_function.getParameterCount()];
+      Arrays.fill(parameters, values[Math.min(
+          this.m_owner.m_fits.getAndIncrement(), (values.length - 1))]);
+      this.evaluate(parameters);
+    }
+  }
+
+  /** the job of the counting fitter */
+  private static final class __CountingJob extends FittingJob {
+
+    /** the owner */
+    private final __CountingFitter m_owner;
+    /** the effort */
+    private final double m_effort;
+
+    /**
+     * create
+     *
+     * @param owner
+     *          the owner
+     * @param builder
+     *          the builder
+     */
+    __CountingJob(final __CountingFitter owner,
+        final FittingJobBuilder builder) {
+      super(builder);
+      this.m_owner = owner;
+      this.m_effort = builder.getEffort();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected final void fit() {
+      final IFittingResult result;
+
+      this.m_owner.m_fits
+          .incrementAndGet(this.m_function.getParameterCount());
+      synchronized (this.m_owner.m_calls) {
+        this.m_owner.m_calls.add(new double[] {
+            this.m_measure.getSampleCount(), this.m_effort });
+      }
+      result = LSSimplexFitter.getInstance().use()//
+          .setFunctionToFit(this.m_function)//
+          .setQualityMeasure(this.m_measure)//
+          .setPoints(this.m_data)//
+          .setEffort(this.m_effort)//
+          .create().call();
+      this.register(result.getQuality(),
+          result.getFittedParametersRef());
+    }
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * Here we test the multi-function fitter from package
+ * {@link org.optimizationBenchmarking.utils.ml.fitting.multi} of the
+ * <a href="http://www.optimizationBenchmarking.org/" >
+ * optimizationBenchmarking.org</a> tool suite.
+ */
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.multi;
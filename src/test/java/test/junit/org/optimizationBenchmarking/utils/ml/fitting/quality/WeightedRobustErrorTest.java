@@ -0,0 +1,314 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedCauchyError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedHuberError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRobustError;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedSoftL1Error;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+import shared.junit.TestBase;
+
+/**
+ * A test comparing the robust quality measures derived from
+ * {@link WeightedRobustError} with naive reference implementations of
+ * their loss functions.
+ */
+public class WeightedRobustErrorTest extends TestBase {
+
+  /** the Huber loss */
+  private static final int HUBER = 0;
+  /** the Cauchy loss */
+  private static final int CAUCHY = 1;
+  /** the soft-L1 loss */
+  private static final int SOFT_L1 = 2;
+
+  /** create the test */
+  public WeightedRobustErrorTest() {
+    super();
+  }
+
+  /**
+   * Compute a loss in the naive way
+   *
+   * @param type
+   *          the loss type
+   * @param residual
+   *          the weighted residual
+   * @param scale
+   *          the scale
+   * @return the loss
+   */
+  private static final double __loss(final int type,
+      final double residual, final double scale) {
+    final double square, ratio;
+
+    square = (residual * residual);
+    ratio = (square / (scale * scale));
+    switch (type) {
+      case HUBER: {
+        if (Math.abs(residual) <= scale) {
+          return square;
+        }
+        return (scale * ((2d * Math.abs(residual)) - scale));
+      }
+      case CAUCHY: {
+        return ((scale * scale) * Math.log1p(ratio));
+      }
+      default: {
+        return (2d * (scale * scale) * (Math.sqrt(1d + ratio) - 1d));
+      }
+    }
+  }
+
+  /**
+   * Compute the derivative of the reweighted residual
+   * {@code sign(r)*sqrt(loss(r))} with respect to the weighted residual
+   * {@code r} in the naive way
+   *
+   * @param type
+   *          the loss type
+   * @param residual
+   *          the weighted residual
+   * @param scale
+   *          the scale
+   * @return the derivative
+   */
+  private static final double __derivative(final int type,
+      final double residual, final double scale) {
+    final double ratio, derivative;
+
+    if (residual == 0d) {
+      return 1d;
+    }
+    ratio = ((residual * residual) / (scale * scale));
+    switch (type) {
+      case HUBER: {
+        if (Math.abs(residual) <= scale) {
+          return 1d;
+        }
+        derivative = (2d * scale);
+        break;
+      }
+      case CAUCHY: {
+        derivative = ((2d * Math.abs(residual)) / (1d + ratio));
+        break;
+      }
+      default: {
+        derivative = ((2d * Math.abs(residual)) / Math.sqrt(1d + ratio));
+      }
+    }
+    return (derivative / (2d * Math.sqrt(
+        WeightedRobustErrorTest.__loss(type, residual, scale))));
+  }
+
+  /**
+   * Create the measure
+   *
+   * @param type
+   *          the loss type
+   * @param data
+   *          the data
+   * @param scale
+   *          the scale
+   * @return the measure
+   */
+  private static final WeightedRobustError __create(final int type,
+      final IMatrix data, final double scale) {
+    switch (type) {
+      case HUBER: {
+        return new WeightedHuberError(data, scale);
+      }
+      case CAUCHY: {
+        return new WeightedCauchyError(data, scale);
+      }
+      default: {
+        return new WeightedSoftL1Error(data, scale);
+      }
+    }
+  }
+
+  /**
+   * Create data points around a model, with relative deviations of up to
+   * 30%, so that the weighted residuals lie on both sides of the scale
+   *
+   * @param random
+   *          the random number generator
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @param count
+   *          the number of points
+   * @return the data
+   */
+  private static final IMatrix __createData(final Random random,
+      final ParametricUnaryFunction model, final double[] parameters,
+      final int count) {
+    final double[] data;
+    double x;
+    int i;
+
+    data = new double[count << 1];
+    for (i = 0; i < data.length;) {
+      data[i++] = x = (1d + (20d * random.nextDouble()));
+      data[i++] = (model.value(x, parameters)
+          * (1d + (0.3d * ((2d * random.nextDouble()) - 1d))));
+    }
+    return new DoubleMatrix1D(data, count, 2);
+  }
+
+  /**
+   * Compare a robust measure with the naive reference
+   *
+   * @param type
+   *          the loss type
+   * @param model
+   *          the model
+   * @param count
+   *          the number of points
+   * @param scale
+   *          the scale
+   * @param seed
+   *          the random seed
+   */
+  private static final void __check(final int type,
+      final ParametricUnaryFunction model, final int count,
+      final double scale, final long seed) {
+    final Random random;
+    final IMatrix data;
+    final WeightedRobustError measure;
+    final double[] parameters, dataParameters, residuals;
+    final double[][] jacobian;
+    final FittingEvaluation evaluation;
+    double sum, expected, factor;
+    int i, j, small;
+
+    random = new Random(seed);
+    dataParameters = new double[model.getParameterCount()];
+    parameters = new double[dataParameters.length];
+    for (i = parameters.length; (--i) >= 0;) {
+      dataParameters[i] = (0.2d + random.nextDouble());
+      parameters[i] = (dataParameters[i]
+          * (1d + (0.05d * random.nextGaussian())));
+    }
+    data = WeightedRobustErrorTest.__createData(random, model,
+        dataParameters, count);
+    measure = WeightedRobustErrorTest.__create(type, data, scale);
+    Assert.assertEquals(scale, measure.getScale(), 0d);
+    Assert.assertEquals(count, measure.getSampleCount());
+
+    residuals = WeightedRootMeanSquareErrorTest._residuals(data, model,
+        parameters);
+    jacobian = WeightedRootMeanSquareErrorTest._jacobian(data, model,
+        parameters);
+    sum = 0d;
+    small = 0;
+    for (final double residual : residuals) {
+      sum += WeightedRobustErrorTest.__loss(type, residual, scale);
+      if (Math.abs(residual) <= scale) {
+        small++;
+      }
+    }
+    Assert.assertTrue("residuals must lie on both sides of the scale", //$NON-NLS-1$
+        (small > 0) && (small < count));
+    expected = Math.sqrt(sum / count);
+
+    WeightedRootMeanSquareErrorTest._assertClose(expected,
+        measure.evaluate(model, parameters));
+
+    evaluation = new FittingEvaluation();
+    measure.evaluate(model, parameters, false, false, evaluation);
+    WeightedRootMeanSquareErrorTest._assertClose(expected,
+        evaluation.quality);
+    WeightedRootMeanSquareErrorTest._assertClose(Math.sqrt(sum),
+        evaluation.rsError);
+    Assert.assertNull(evaluation.residuals);
+
+    measure.evaluate(model, parameters, true, true, evaluation);
+    WeightedRootMeanSquareErrorTest._assertClose(expected,
+        evaluation.quality);
+    for (i = count; (--i) >= 0;) {
+      WeightedRootMeanSquareErrorTest._assertClose(
+          Math.copySign(Math.sqrt(WeightedRobustErrorTest.__loss(type,
+              residuals[i], scale)), residuals[i]),
+          evaluation.residuals[i]);
+      factor = WeightedRobustErrorTest.__derivative(type, residuals[i],
+          scale);
+      for (j = parameters.length; (--j) >= 0;) {
+        WeightedRootMeanSquareErrorTest._assertClose(
+            (factor * jacobian[i][j]), evaluation.jacobian[i][j]);
+      }
+    }
+
+    evaluation.residuals = null;
+    evaluation.jacobian = null;
+    measure.evaluate(model, parameters, 1, false, true, evaluation);
+    WeightedRootMeanSquareErrorTest._assertClose(expected,
+        evaluation.quality);
+    Assert.assertNull(evaluation.residuals);
+    for (i = count; (--i) >= 0;) {
+      factor = WeightedRobustErrorTest.__derivative(type, residuals[i],
+          scale);
+      for (j = parameters.length; (--j) > 0;) {
+        WeightedRootMeanSquareErrorTest._assertClose(
+            (factor * jacobian[i][j]), evaluation.jacobian[i][j - 1]);
+      }
+    }
+
+    Assert.assertEquals(measure,
+        WeightedRobustErrorTest.__create(type, data, scale));
+    Assert.assertFalse(measure.equals(
+        WeightedRobustErrorTest.__create(type, data, (2d * scale))));
+  }
+
+  /** test the Huber error with the cubic model */
+  @Test(timeout = 3600000)
+  public void testHuberCubic() {
+    WeightedRobustErrorTest.__check(WeightedRobustErrorTest.HUBER,
+        new CubicModel(), 517, WeightedRobustError.DEFAULT_SCALE, 1L);
+  }
+
+  /** test the Huber error with the logistic model */
+  @Test(timeout = 3600000)
+  public void testHuberLogistic() {
+    WeightedRobustErrorTest.__check(WeightedRobustErrorTest.HUBER,
+        new LogisticModelWithOffsetOverLogX(), 61, 0.05d, 2L);
+  }
+
+  /** test the Cauchy error with the cubic model */
+  @Test(timeout = 3600000)
+  public void testCauchyCubic() {
+    WeightedRobustErrorTest.__check(WeightedRobustErrorTest.CAUCHY,
+        new CubicModel(), 517, WeightedRobustError.DEFAULT_SCALE, 3L);
+  }
+
+  /** test the Cauchy error with the logistic model */
+  @Test(timeout = 3600000)
+  public void testCauchyLogistic() {
+    WeightedRobustErrorTest.__check(WeightedRobustErrorTest.CAUCHY,
+        new LogisticModelWithOffsetOverLogX(), 61, 0.05d, 4L);
+  }
+
+  /** test the soft-L1 error with the cubic model */
+  @Test(timeout = 3600000)
+  public void testSoftL1Cubic() {
+    WeightedRobustErrorTest.__check(WeightedRobustErrorTest.SOFT_L1,
+        new CubicModel(), 517, WeightedRobustError.DEFAULT_SCALE, 5L);
+  }
+
+  /** test the soft-L1 error with the logistic model */
+  @Test(timeout = 3600000)
+  public void testSoftL1Logistic() {
+    WeightedRobustErrorTest.__check(WeightedRobustErrorTest.SOFT_L1,
+        new LogisticModelWithOffsetOverLogX(), 61, 0.05d, 6L);
+  }
+}
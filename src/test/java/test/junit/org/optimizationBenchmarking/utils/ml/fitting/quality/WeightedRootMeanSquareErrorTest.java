@@ -0,0 +1,598 @@
+package test.junit.org.optimizationBenchmarking.utils.ml.fitting.quality;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.optimizationBenchmarking.utils.math.matrix.IMatrix;
+import org.optimizationBenchmarking.utils.math.matrix.impl.DoubleMatrix1D;
+import org.optimizationBenchmarking.utils.ml.fitting.models.BasicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.CubicModel;
+import org.optimizationBenchmarking.utils.ml.fitting.models.LogisticModelWithOffsetOverLogX;
+import org.optimizationBenchmarking.utils.ml.fitting.quality.WeightedRootMeanSquareError;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.FittingEvaluation;
+import org.optimizationBenchmarking.utils.ml.fitting.spec.ParametricUnaryFunction;
+
+import shared.junit.TestBase;
+
+/**
+ * A test comparing the block evaluation kernel of the
+ * {@link WeightedRootMeanSquareError} with a naive reference
+ * implementation.
+ */
+public class WeightedRootMeanSquareErrorTest extends TestBase {
+
+  /** the relative tolerance */
+  private static final double TOLERANCE = 1e-12d;
+
+  /** create the test */
+  public WeightedRootMeanSquareErrorTest() {
+    super();
+  }
+
+  /**
+   * Create a data matrix whose {@code y}-coordinates are all non-zero,
+   * so that the weight of each point is the inverse of its absolute
+   * {@code y}-coordinate
+   *
+   * @param random
+   *          the random number generator
+   * @param count
+   *          the number of points
+   * @return the data matrix
+   */
+  static final IMatrix _createData(final Random random, final int count) {
+    final double[] data;
+    int i;
+
+    data = new double[count << 1];
+    for (i = 0; i < data.length;) {
+      data[i++] = (1d + (20d * random.nextDouble()));
+      data[i++] = ((random.nextBoolean() ? 1d : -1d)
+          * (0.5d + (10d * random.nextDouble())));
+    }
+    return new DoubleMatrix1D(data, count, 2);
+  }
+
+  /**
+   * Compute the weighted residuals in the naive way
+   *
+   * @param data
+   *          the data
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @return the weighted residuals
+   */
+  static final double[] _residuals(final IMatrix data,
+      final ParametricUnaryFunction model, final double[] parameters) {
+    final double[] residuals;
+    double y;
+    int i;
+
+    residuals = new double[data.m()];
+    for (i = residuals.length; (--i) >= 0;) {
+      y = data.getDouble(i, 1);
+      residuals[i] = ((y - model.value(data.getDouble(i, 0), parameters))
+          / Math.abs(y));
+    }
+    return residuals;
+  }
+
+  /**
+   * Compute the weighted Jacobian in the naive way
+   *
+   * @param data
+   *          the data
+   * @param model
+   *          the model
+   * @param parameters
+   *          the parameters
+   * @return the weighted Jacobian
+   */
+  static final double[][] _jacobian(final IMatrix data,
+      final ParametricUnaryFunction model, final double[] parameters) {
+    final double[][] jacobian;
+    double[] row;
+    double weight;
+    int i, j;
+
+    jacobian = new double[data.m()][parameters.length];
+    for (i = jacobian.length; (--i) >= 0;) {
+      row = jacobian[i];
+      model.gradient(data.getDouble(i, 0), parameters, row);
+      weight = (1d / Math.abs(data.getDouble(i, 1)));
+      for (j = row.length; (--j) >= 0;) {
+        row[j] *= weight;
+      }
+    }
+    return jacobian;
+  }
+
+  /**
+   * Assert that two numbers are equal up to the relative tolerance
+   *
+   * @param expected
+   *          the expected value
+   * @param actual
+   *          the actual value
+   */
+  static final void _assertClose(final double expected,
+      final double actual) {
+    Assert.assertEquals(expected, actual,
+        (WeightedRootMeanSquareErrorTest.TOLERANCE
+            * Math.max(1d, Math.abs(expected))));
+  }
+
+  /**
+   * Compare the measure with the naive reference
+   *
+   * @param model
+   *          the model
+   * @param count
+   *          the number of points
+   * @param seed
+   *          the random seed
+   */
+  private static final void __check(final ParametricUnaryFunction model,
+      final int count, final long seed) {
+    final Random random;
+    final IMatrix data;
+    final WeightedRootMeanSquareError measure;
+    final double[] parameters, residuals;
+    final double[][] jacobian;
+    final FittingEvaluation evaluation;
+    double sum, expected, quality;
+    int i, j;
+
+    random = new Random(seed);
+    data = WeightedRootMeanSquareErrorTest._createData(random, count);
+    measure = new WeightedRootMeanSquareError(data);
+    parameters = new double[model.getParameterCount()];
+    for (i = parameters.length; (--i) >= 0;) {
+      parameters[i] = (0.2d + random.nextDouble());
+    }
+
+    residuals = WeightedRootMeanSquareErrorTest._residuals(data, model,
+        parameters);
+    jacobian = WeightedRootMeanSquareErrorTest._jacobian(data, model,
+        parameters);
+    sum = 0d;
+    for (final double residual : residuals) {
+      sum += (residual * residual);
+    }
+    expected = Math.sqrt(sum / count);
+
+    quality = measure.evaluate(model, parameters);
+    WeightedRootMeanSquareErrorTest._assertClose(expected, quality);
+
+    // all ways to evaluate a point must yield exactly the same quality
+    evaluation = new FittingEvaluation();
+    measure.evaluate(model, parameters, false, false, evaluation);
+    Assert.assertEquals(quality, evaluation.quality, 0d);
+    WeightedRootMeanSquareErrorTest._assertClose(Math.sqrt(sum),
+        evaluation.rsError);
+    Assert.assertNull(evaluation.residuals);
+    Assert.assertNull(evaluation.jacobian);
+
+    measure.evaluate(model, parameters, true, true, evaluation);
+    Assert.assertEquals(quality, evaluation.quality, 0d);
+    for (i = count; (--i) >= 0;) {
+      WeightedRootMeanSquareErrorTest._assertClose(residuals[i],
+          evaluation.residuals[i]);
+      for (j = parameters.length; (--j) >= 0;) {
+        WeightedRootMeanSquareErrorTest._assertClose(jacobian[i][j],
+            evaluation.jacobian[i][j]);
+      }
+    }
+
+    evaluation.residuals = null;
+    evaluation.jacobian = null;
+    measure.evaluate(model, parameters, 1, false, true, evaluation);
+    Assert.assertEquals(quality, evaluation.quality, 0d);
+    Assert.assertNull(evaluation.residuals);
+    for (i = count; (--i) >= 0;) {
+      Assert.assertEquals(parameters.length - 1,
+          evaluation.jacobian[i].length);
+      for (j = parameters.length; (--j) > 0;) {
+        WeightedRootMeanSquareErrorTest._assertClose(jacobian[i][j],
+            evaluation.jacobian[i][j - 1]);
+      }
+    }
+  }
+
+  /** test the cubic model on fewer points than a block */
+  @Test(timeout = 3600000)
+  public void testCubicSmall() {
+    WeightedRootMeanSquareErrorTest.__check(new CubicModel(), 7, 1L);
+  }
+
+  /** test the cubic model on several blocks */
+  @Test(timeout = 3600000)
+  public void testCubicLarge() {
+    WeightedRootMeanSquareErrorTest.__check(new CubicModel(), 1031, 2L);
+  }
+
+  /** test the logistic model on fewer points than a block */
+  @Test(timeout = 3600000)
+  public void testLogisticSmall() {
+    WeightedRootMeanSquareErrorTest.__check(
+        new LogisticModelWithOffsetOverLogX(), 13, 3L);
+  }
+
+  /** test the logistic model on several blocks */
+  @Test(timeout = 3600000)
+  public void testLogisticLarge() {
+    WeightedRootMeanSquareErrorTest.__check(
+        new LogisticModelWithOffsetOverLogX(), 777, 4L);
+  }
+
+  /** test that sub-selecting all points yields the same quality */
+  @Test(timeout = 3600000)
+  public void testSubselectAll() {
+    final IMatrix data;
+    final WeightedRootMeanSquareError measure;
+    final ParametricUnaryFunction model;
+    final double[] parameters;
+
+    data = WeightedRootMeanSquareErrorTest._createData(new Random(5L),
+        300);
+    measure = new WeightedRootMeanSquareError(data);
+    model = new CubicModel();
+    parameters = new double[] { 1d, -0.5d, 0.25d, 0.01d };
+    Assert.assertEquals(100,
+        measure.subselect(100, new Random(6L)).getSampleCount());
+    WeightedRootMeanSquareErrorTest._assertClose(
+        measure.evaluate(model, parameters),
+        measure.subselect(300, new Random(7L)).evaluate(model,
+            parameters));
+  }
+
+  /**
+   * The sum of the squared residuals of many points must be accurate up
+   * to the rounding of the final result, which a simple running sum over
+   * all points is not. The exact sum is computed from the residuals with
+   * {@link BigDecimal}.
+   */
+  @Test(timeout = 3600000)
+  public void testSumOfSquaresAccuracy() {
+    final int count;
+    final IMatrix data;
+    final WeightedRootMeanSquareError measure;
+    final ParametricUnaryFunction model;
+    final double[] parameters;
+    final FittingEvaluation evaluation;
+    final double expected;
+    BigDecimal sum, residual;
+
+    count = 1000000;
+    data = WeightedRootMeanSquareErrorTest._createData(new Random(8L),
+        count);
+    measure = new WeightedRootMeanSquareError(data);
+    model = new CubicModel();
+    parameters = new double[] { 1d, -0.5d, 0.25d, 0.01d };
+    evaluation = new FittingEvaluation();
+    measure.evaluate(model, parameters, true, false, evaluation);
+
+    sum = BigDecimal.ZERO;
+    for (final double value : evaluation.residuals) {
+      residual = new BigDecimal(value);
+      sum = sum.add(residual.multiply(residual));
+    }
+    expected = Math.sqrt(sum.divide(BigDecimal.valueOf(count),
+        MathContext.DECIMAL128).doubleValue());
+
+    Assert.assertEquals(expected, evaluation.quality,
+        (2d * Math.ulp(expected)));
+    Assert.assertEquals(evaluation.quality,
+        measure.evaluate(model, parameters), 0d);
+  }
+
+  /**
+   * Compute the complete parameter vector for given non-linear parameters
+   * of the logistic model
+   *
+   * @param measure
+   *          the measure
+   * @param model
+   *          the model
+   * @param nonLinear
+   *          the non-linear parameters
+   * @return the complete parameter vector
+   */
+  private static final double[] __expand(
+      final WeightedRootMeanSquareError measure, final BasicModel model,
+      final double[] nonLinear) {
+    final double[] parameters;
+
+    parameters = new double[] { 0d, 0d, nonLinear[0], nonLinear[1] };
+    Assert.assertTrue(measure.solveLinearParameters(model, parameters));
+    return parameters;
+  }
+
+  /**
+   * Check the projected Jacobian of variable projection for the logistic
+   * model, see
+   * {@link WeightedRootMeanSquareError#evaluateProjected(BasicModel, double[], boolean, boolean, FittingEvaluation)}
+   * .
+   *
+   * @param count
+   *          the number of points
+   * @param noise
+   *          the relative noise of the data
+   * @param seed
+   *          the random seed
+   * @return the data, the measure, the expanded parameters, and the
+   *         projected Jacobian
+   */
+  private static final Object[] __projected(final int count,
+      final double noise, final long seed) {
+    final Random random;
+    final BasicModel model;
+    final double[] data, trueParameters, parameters;
+    final IMatrix matrix;
+    final WeightedRootMeanSquareError measure;
+    final FittingEvaluation evaluation;
+    double x;
+    int i;
+
+    random = new Random(seed);
+    model = new LogisticModelWithOffsetOverLogX();
+    trueParameters = new double[] { 1d, 10d, 0.05d, 1.5d };
+    data = new double[count << 1];
+    for (i = count; (--i) >= 0;) {
+      x = (1d + (20d * random.nextDouble()));
+      data[i << 1] = x;
+      data[(i << 1) + 1] = (model.value(x, trueParameters)
+          * (1d + (noise * random.nextGaussian())));
+    }
+    matrix = new DoubleMatrix1D(data, count, 2);
+    measure = new WeightedRootMeanSquareError(matrix);
+    parameters = WeightedRootMeanSquareErrorTest.__expand(measure, model,
+        new double[] { trueParameters[2], trueParameters[3] });
+
+    evaluation = new FittingEvaluation();
+    measure.evaluateProjected(model, parameters, true, true, evaluation);
+    Assert.assertEquals(count, evaluation.jacobian.length);
+    Assert.assertEquals(2, evaluation.jacobian[0].length);
+    WeightedRootMeanSquareErrorTest._assertClose(
+        measure.evaluate(model, parameters), evaluation.quality);
+    return new Object[] { matrix, measure, parameters,
+        evaluation.jacobian };
+  }
+
+  /**
+   * For data without noise, the residuals vanish at the true parameters,
+   * where Kaufman's approximation becomes the exact Jacobian of the
+   * projected residuals. We compare it with central differences.
+   */
+  @Test(timeout = 3600000)
+  public void testProjectedJacobianExact() {
+    final Object[] result;
+    final IMatrix data;
+    final WeightedRootMeanSquareError measure;
+    final BasicModel model;
+    final double[] parameters;
+    final double[][] jacobian;
+    double[] nonLinear, plus, minus;
+    double h, max, expected;
+    int i, j;
+
+    result = WeightedRootMeanSquareErrorTest.__projected(500, 0d, 8L);
+    data = ((IMatrix) (result[0]));
+    measure = ((WeightedRootMeanSquareError) (result[1]));
+    parameters = ((double[]) (result[2]));
+    jacobian = ((double[][]) (result[3]));
+    model = new LogisticModelWithOffsetOverLogX();
+
+    max = 0d;
+    for (final double[] row : jacobian) {
+      for (final double value : row) {
+        max = Math.max(max, Math.abs(value));
+      }
+    }
+    Assert.assertTrue(max > 0d);
+
+    for (j = 2; (--j) >= 0;) {
+      nonLinear = new double[] { parameters[2], parameters[3] };
+      h = (1e-6d * Math.abs(nonLinear[j]));
+      nonLinear[j] += h;
+      plus = WeightedRootMeanSquareErrorTest._residuals(data, model,
+          WeightedRootMeanSquareErrorTest.__expand(measure, model,
+              nonLinear));
+      nonLinear[j] -= (h + h);
+      minus = WeightedRootMeanSquareErrorTest._residuals(data, model,
+          WeightedRootMeanSquareErrorTest.__expand(measure, model,
+              nonLinear));
+      for (i = jacobian.length; (--i) >= 0;) {
+        // the residuals are y-f, the Jacobian is the one of f
+        expected = ((minus[i] - plus[i]) / (h + h));
+        Assert.assertEquals(expected, jacobian[i][j], (1e-5d * max));
+      }
+    }
+  }
+
+  /**
+   * For noisy data, the columns of the projected Jacobian must be
+   * orthogonal to the weighted basis functions of the linear parameters.
+   */
+  @Test(timeout = 3600000)
+  public void testProjectedJacobianOrthogonal() {
+    final Object[] result;
+    final IMatrix data;
+    final BasicModel model;
+    final double[] parameters, x;
+    final double[][] jacobian, basis;
+    double weight, max;
+    double[] sums;
+    int i, j, l;
+
+    result = WeightedRootMeanSquareErrorTest.__projected(1500, 0.05d,
+        9L);
+    data = ((IMatrix) (result[0]));
+    parameters = ((double[]) (result[2]));
+    jacobian = ((double[][]) (result[3]));
+    model = new LogisticModelWithOffsetOverLogX();
+
+    x = new double[data.m()];
+    for (i = x.length; (--i) >= 0;) {
+      x[i] = data.getDouble(i, 0);
+    }
+    basis = new double[x.length][4];
+    model.linearBasisBatch(x, parameters, basis, x.length);
+
+    max = 0d;
+    sums = new double[4];
+    for (i = x.length; (--i) >= 0;) {
+      weight = (1d / Math.abs(data.getDouble(i, 1)));
+      for (j = 2; (--j) >= 0;) {
+        max = Math.max(max, Math.abs(jacobian[i][j]));
+        for (l = 2; (--l) >= 0;) {
+          sums[(j << 1) + l] += (basis[i][l] * weight * jacobian[i][j]);
+        }
+      }
+    }
+    for (final double sum : sums) {
+      Assert.assertEquals(0d, sum, (1e-9d * max * x.length));
+    }
+  }
+
+  /**
+   * Concatenate two data matrices
+   *
+   * @param a
+   *          the first matrix
+   * @param b
+   *          the second matrix
+   * @return the matrix with the rows of {@code a} followed by those of
+   *         {@code b}
+   */
+  private static final IMatrix __concat(final IMatrix a, final IMatrix b) {
+    final double[] data;
+    final int m;
+    int i;
+
+    m = a.m();
+    data = new double[(m + b.m()) << 1];
+    for (i = m; (--i) >= 0;) {
+      data[i << 1] = a.getDouble(i, 0);
+      data[(i << 1) + 1] = a.getDouble(i, 1);
+    }
+    for (i = b.m(); (--i) >= 0;) {
+      data[(m + i) << 1] = b.getDouble(i, 0);
+      data[((m + i) << 1) + 1] = b.getDouble(i, 1);
+    }
+    return new DoubleMatrix1D(data, (m + b.m()), 2);
+  }
+
+  /**
+   * Assert that a measure equals the one created from scratch for the
+   * given data
+   *
+   * @param data
+   *          the data
+   * @param measure
+   *          the measure
+   */
+  private static final void __assertSame(final IMatrix data,
+      final WeightedRootMeanSquareError measure) {
+    final WeightedRootMeanSquareError expected;
+    final CubicModel model;
+    final double[] parameters;
+
+    expected = new WeightedRootMeanSquareError(data);
+    Assert.assertEquals(expected, measure);
+    Assert.assertEquals(expected.hashCode(), measure.hashCode());
+    Assert.assertEquals(data.m(), measure.getSampleCount());
+
+    model = new CubicModel();
+    parameters = new double[] { 1d, -0.5d, 0.1d, 0.01d };
+    Assert.assertEquals(expected.evaluate(model, parameters),
+        measure.evaluate(model, parameters), 0d);
+  }
+
+  /**
+   * Appending points to a measure must yield the same measure as creating
+   * it for all points, also if the same measure is extended twice
+   */
+  @Test(timeout = 3600000)
+  public void testAppend() {
+    final Random random;
+    final IMatrix first, second, third, other;
+    final WeightedRootMeanSquareError base, extended, twice, branch;
+
+    random = new Random();
+    first = WeightedRootMeanSquareErrorTest._createData(random, 100);
+    second = WeightedRootMeanSquareErrorTest._createData(random, 30);
+    third = WeightedRootMeanSquareErrorTest._createData(random, 20);
+    other = WeightedRootMeanSquareErrorTest._createData(random, 20);
+
+    base = new WeightedRootMeanSquareError(first);
+    extended = base.append(second);
+    // the storage of extended has room for third, which is thus shared
+    twice = extended.append(third);
+    // now the storage is used by twice, so it must be copied for other
+    branch = extended.append(other);
+
+    WeightedRootMeanSquareErrorTest.__assertSame(first, base);
+    WeightedRootMeanSquareErrorTest.__assertSame(
+        WeightedRootMeanSquareErrorTest.__concat(first, second),
+        extended);
+    WeightedRootMeanSquareErrorTest.__assertSame(
+        WeightedRootMeanSquareErrorTest.__concat(
+            WeightedRootMeanSquareErrorTest.__concat(first, second),
+            third),
+        twice);
+    WeightedRootMeanSquareErrorTest.__assertSame(
+        WeightedRootMeanSquareErrorTest.__concat(
+            WeightedRootMeanSquareErrorTest.__concat(first, second),
+            other),
+        branch);
+  }
+
+  /**
+   * Appending points with zero {@code y}-coordinate changes the weights
+   * of such points, which must be the same as for a measure created for
+   * all points
+   */
+  @Test(timeout = 3600000)
+  public void testAppendZero() {
+    final Random random;
+    final IMatrix first, second, zeros;
+    final WeightedRootMeanSquareError base;
+
+    random = new Random();
+    first = WeightedRootMeanSquareErrorTest._createData(random, 50);
+    second = WeightedRootMeanSquareErrorTest._createData(random, 50);
+    zeros = new DoubleMatrix1D(new double[] { 3d, 0d, 4d, 1e-3d }, 2, 2);
+
+    base = new WeightedRootMeanSquareError(
+        WeightedRootMeanSquareErrorTest.__concat(first, zeros));
+    WeightedRootMeanSquareErrorTest.__assertSame(
+        WeightedRootMeanSquareErrorTest.__concat(
+            WeightedRootMeanSquareErrorTest.__concat(first, zeros),
+            second),
+        base.append(second));
+    WeightedRootMeanSquareErrorTest.__assertSame(
+        WeightedRootMeanSquareErrorTest.__concat(
+            WeightedRootMeanSquareErrorTest.__concat(second, first),
+            zeros),
+        new WeightedRootMeanSquareError(second).append(first)
+            .append(zeros));
+  }
+
+  /** Points cannot be appended to a subset of a measure */
+  @Test(timeout = 3600000, expected = IllegalStateException.class)
+  public void testAppendSubset() {
+    final Random random;
+
+    random = new Random();
+    new WeightedRootMeanSquareError(
+        WeightedRootMeanSquareErrorTest._createData(random, 100))
+            .subselect(10, random).append(
+                WeightedRootMeanSquareErrorTest._createData(random, 10));
+  }
+}